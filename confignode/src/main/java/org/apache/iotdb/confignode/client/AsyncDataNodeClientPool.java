@@ -27,9 +27,14 @@ import org.apache.iotdb.commons.client.IClientManager;
 import org.apache.iotdb.commons.client.async.AsyncDataNodeInternalServiceClient;
 import org.apache.iotdb.confignode.client.handlers.CreateRegionHandler;
 import org.apache.iotdb.confignode.client.handlers.HeartbeatHandler;
+import org.apache.iotdb.confignode.client.handlers.LoadBalanceHandler;
+import org.apache.iotdb.confignode.client.handlers.UpdatePartitionCacheHandler;
 import org.apache.iotdb.confignode.consensus.request.write.CreateRegionsReq;
 import org.apache.iotdb.mpp.rpc.thrift.TCreateDataRegionReq;
 import org.apache.iotdb.mpp.rpc.thrift.TCreateSchemaRegionReq;
+import org.apache.iotdb.mpp.rpc.thrift.TMigrateSchemaRegionReq;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionLeaderChangeReq;
+import org.apache.iotdb.mpp.rpc.thrift.TUpdatePartitionCacheReq;
 
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
@@ -209,6 +214,54 @@ public class AsyncDataNodeClientPool {
     }
   }
 
+  /**
+   * Push the newly created partitions to the partition cache of specific DataNode
+   *
+   * @param endPoint The specific DataNode
+   */
+  public void updatePartitionCache(
+      TEndPoint endPoint, TUpdatePartitionCacheReq req, UpdatePartitionCacheHandler handler) {
+    AsyncDataNodeInternalServiceClient client;
+    try {
+      client = clientManager.borrowClient(endPoint);
+      client.updatePartitionCache(req, handler);
+    } catch (Exception e) {
+      LOGGER.error("Push partitions to DataNode {} failed", endPoint, e);
+    }
+  }
+
+  /**
+   * Transfer the leader of a Region to another replica
+   *
+   * @param endPoint The DataNode holding the current leader
+   */
+  public void changeRegionLeader(
+      TEndPoint endPoint, TRegionLeaderChangeReq req, LoadBalanceHandler handler) {
+    AsyncDataNodeInternalServiceClient client;
+    try {
+      client = clientManager.borrowClient(endPoint);
+      client.changeRegionLeader(req, handler);
+    } catch (Exception e) {
+      LOGGER.error("Change Region leader on DataNode {} failed", endPoint, e);
+    }
+  }
+
+  /**
+   * Migrate a SchemaRegion replica to another DataNode
+   *
+   * @param endPoint The DataNode holding the replica to be migrated
+   */
+  public void migrateSchemaRegion(
+      TEndPoint endPoint, TMigrateSchemaRegionReq req, LoadBalanceHandler handler) {
+    AsyncDataNodeInternalServiceClient client;
+    try {
+      client = clientManager.borrowClient(endPoint);
+      client.migrateSchemaRegion(req, handler);
+    } catch (Exception e) {
+      LOGGER.error("Migrate SchemaRegion on DataNode {} failed", endPoint, e);
+    }
+  }
+
   /**
    * Only used in LoadManager
    *
@@ -221,6 +274,7 @@ public class AsyncDataNodeClientPool {
       client.getHeartBeat(req, handler);
     } catch (Exception e) {
       LOGGER.error("Asking DataNode: {}, for heartbeat failed", endPoint, e);
+      handler.onError(e);
     }
   }
 
@@ -24,26 +24,62 @@ import org.apache.iotdb.confignode.manager.load.heartbeat.HeartbeatPackage;
 
 import org.apache.thrift.async.AsyncMethodCallback;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
 public class HeartbeatHandler implements AsyncMethodCallback<THeartbeatResp> {
 
   // Update HeartbeatCache when success
   private final int dataNodeId;
+  private final long regionLoadsBaseline;
   private final HeartbeatCache heartbeatCache;
 
-  public HeartbeatHandler(int dataNodeId, HeartbeatCache heartbeatCache) {
+  // Release the concurrency quota of heartbeats when finished
+  private final Semaphore heartbeatPermits;
+  private final Set<Integer> pendingDataNodes;
+
+  public HeartbeatHandler(
+      int dataNodeId,
+      long regionLoadsBaseline,
+      HeartbeatCache heartbeatCache,
+      Semaphore heartbeatPermits,
+      Set<Integer> pendingDataNodes) {
     this.dataNodeId = dataNodeId;
+    this.regionLoadsBaseline = regionLoadsBaseline;
     this.heartbeatCache = heartbeatCache;
+    this.heartbeatPermits = heartbeatPermits;
+    this.pendingDataNodes = pendingDataNodes;
   }
 
   @Override
   public void onComplete(THeartbeatResp tHeartbeatResp) {
+    boolean isDelta =
+        tHeartbeatResp.isSetIsRegionLoadsDelta() && tHeartbeatResp.isIsRegionLoadsDelta();
     heartbeatCache.cacheHeartBeat(
         dataNodeId,
-        new HeartbeatPackage(tHeartbeatResp.getHeartbeatTimestamp(), System.currentTimeMillis()));
+        new HeartbeatPackage(
+            tHeartbeatResp.getHeartbeatTimestamp(),
+            System.currentTimeMillis(),
+            tHeartbeatResp.isSetRegionLoads()
+                ? tHeartbeatResp.getRegionLoads()
+                : Collections.emptyList(),
+            isDelta ? regionLoadsBaseline : -1,
+            tHeartbeatResp.isSetRemovedRegionIds()
+                ? tHeartbeatResp.getRemovedRegionIds()
+                : Collections.emptyList()));
+    finish();
   }
 
   @Override
   public void onError(Exception e) {
-    // Just ignore heartbeat error
+    // Just ignore heartbeat error, the failure detector suspects the DataNode if it keeps silent
+    finish();
+  }
+
+  private void finish() {
+    if (pendingDataNodes.remove(dataNodeId)) {
+      heartbeatPermits.release();
+    }
   }
 }
@@ -106,6 +106,9 @@ public class ConfigNodeConf {
   /** Time partition interval in seconds */
   private long timePartitionInterval = 604800;
 
+  /** Whether to allocate the next time partition of the actively written SeriesPartitionSlots */
+  private boolean enableDataPartitionPreAllocation = false;
+
   /** Default number of SchemaRegion replicas */
   private int schemaReplicationFactor = 3;
 
@@ -131,9 +134,45 @@ public class ConfigNodeConf {
   /** The heartbeat interval in milliseconds */
   private long heartbeatInterval = 1000;
 
+  /** The heartbeat interval in milliseconds that a stable cluster could be relaxed to */
+  private long maxHeartbeatInterval = 5000;
+
+  /** The maximum number of heartbeats waiting for their responses at the same time */
+  private int heartbeatMaxConcurrency = 64;
+
+  /** A DataNode is suspected to be unavailable when its phi exceeds this threshold */
+  private double heartbeatPhiThreshold = 8;
+
   /** This parameter only exists for a few days */
   private boolean enableHeartbeat = true;
 
+  /** Whether to transfer Region leaders from overloaded DataNodes */
+  private boolean enableLeaderBalancing = true;
+
+  /** Whether to migrate Region replicas from overloaded DataNodes */
+  private boolean enableRegionMigration = false;
+
+  /**
+   * A DataNode is overloaded when its leader load exceeds the cluster average by this ratio, which
+   * triggers leader transfers
+   */
+  private double leaderBalanceThreshold = 1.2;
+
+  /**
+   * A DataNode is overloaded when its replica load exceeds the cluster average by this ratio, which
+   * triggers Region migrations
+   */
+  private double regionBalanceThreshold = 1.5;
+
+  /** The maximum number of leader transfers in one load balancing round */
+  private int maxLeaderTransfersPerRound = 2;
+
+  /** The maximum number of Region migrations in one load balancing round */
+  private int maxRegionMigrationsPerRound = 1;
+
+  /** A Region won't be balanced again within this many milliseconds after it was moved */
+  private long regionBalanceCoolDownMs = 60_000;
+
   ConfigNodeConf() {
     // empty constructor
   }
@@ -243,6 +282,14 @@ public class ConfigNodeConf {
     this.timePartitionInterval = timePartitionInterval;
   }
 
+  public boolean isEnableDataPartitionPreAllocation() {
+    return enableDataPartitionPreAllocation;
+  }
+
+  public void setEnableDataPartitionPreAllocation(boolean enableDataPartitionPreAllocation) {
+    this.enableDataPartitionPreAllocation = enableDataPartitionPreAllocation;
+  }
+
   public int getRpcMaxConcurrentClientNum() {
     return rpcMaxConcurrentClientNum;
   }
@@ -396,6 +443,30 @@ public class ConfigNodeConf {
     this.heartbeatInterval = heartbeatInterval;
   }
 
+  public long getMaxHeartbeatInterval() {
+    return maxHeartbeatInterval;
+  }
+
+  public void setMaxHeartbeatInterval(long maxHeartbeatInterval) {
+    this.maxHeartbeatInterval = maxHeartbeatInterval;
+  }
+
+  public int getHeartbeatMaxConcurrency() {
+    return heartbeatMaxConcurrency;
+  }
+
+  public void setHeartbeatMaxConcurrency(int heartbeatMaxConcurrency) {
+    this.heartbeatMaxConcurrency = heartbeatMaxConcurrency;
+  }
+
+  public double getHeartbeatPhiThreshold() {
+    return heartbeatPhiThreshold;
+  }
+
+  public void setHeartbeatPhiThreshold(double heartbeatPhiThreshold) {
+    this.heartbeatPhiThreshold = heartbeatPhiThreshold;
+  }
+
   public boolean isEnableHeartbeat() {
     return enableHeartbeat;
   }
@@ -403,4 +474,60 @@ public class ConfigNodeConf {
   public void setEnableHeartbeat(boolean enableHeartbeat) {
     this.enableHeartbeat = enableHeartbeat;
   }
+
+  public boolean isEnableLeaderBalancing() {
+    return enableLeaderBalancing;
+  }
+
+  public void setEnableLeaderBalancing(boolean enableLeaderBalancing) {
+    this.enableLeaderBalancing = enableLeaderBalancing;
+  }
+
+  public boolean isEnableRegionMigration() {
+    return enableRegionMigration;
+  }
+
+  public void setEnableRegionMigration(boolean enableRegionMigration) {
+    this.enableRegionMigration = enableRegionMigration;
+  }
+
+  public double getLeaderBalanceThreshold() {
+    return leaderBalanceThreshold;
+  }
+
+  public void setLeaderBalanceThreshold(double leaderBalanceThreshold) {
+    this.leaderBalanceThreshold = leaderBalanceThreshold;
+  }
+
+  public double getRegionBalanceThreshold() {
+    return regionBalanceThreshold;
+  }
+
+  public void setRegionBalanceThreshold(double regionBalanceThreshold) {
+    this.regionBalanceThreshold = regionBalanceThreshold;
+  }
+
+  public int getMaxLeaderTransfersPerRound() {
+    return maxLeaderTransfersPerRound;
+  }
+
+  public void setMaxLeaderTransfersPerRound(int maxLeaderTransfersPerRound) {
+    this.maxLeaderTransfersPerRound = maxLeaderTransfersPerRound;
+  }
+
+  public int getMaxRegionMigrationsPerRound() {
+    return maxRegionMigrationsPerRound;
+  }
+
+  public void setMaxRegionMigrationsPerRound(int maxRegionMigrationsPerRound) {
+    this.maxRegionMigrationsPerRound = maxRegionMigrationsPerRound;
+  }
+
+  public long getRegionBalanceCoolDownMs() {
+    return regionBalanceCoolDownMs;
+  }
+
+  public void setRegionBalanceCoolDownMs(long regionBalanceCoolDownMs) {
+    this.regionBalanceCoolDownMs = regionBalanceCoolDownMs;
+  }
 }
@@ -181,6 +181,12 @@ public class ConfigNodeDescriptor {
               properties.getProperty(
                   "time_partition_interval", String.valueOf(conf.getTimePartitionInterval()))));
 
+      conf.setEnableDataPartitionPreAllocation(
+          Boolean.parseBoolean(
+              properties.getProperty(
+                  "enable_data_partition_pre_allocation",
+                  String.valueOf(conf.isEnableDataPartitionPreAllocation()))));
+
       conf.setSchemaReplicationFactor(
           Integer.parseInt(
               properties.getProperty(
@@ -207,11 +213,65 @@ public class ConfigNodeDescriptor {
               properties.getProperty(
                   "heartbeat_interval", String.valueOf(conf.getHeartbeatInterval()))));
 
+      conf.setMaxHeartbeatInterval(
+          Long.parseLong(
+              properties.getProperty(
+                  "max_heartbeat_interval", String.valueOf(conf.getMaxHeartbeatInterval()))));
+
+      conf.setHeartbeatMaxConcurrency(
+          Integer.parseInt(
+              properties.getProperty(
+                  "heartbeat_max_concurrency",
+                  String.valueOf(conf.getHeartbeatMaxConcurrency()))));
+
+      conf.setHeartbeatPhiThreshold(
+          Double.parseDouble(
+              properties.getProperty(
+                  "heartbeat_phi_threshold", String.valueOf(conf.getHeartbeatPhiThreshold()))));
+
       conf.setEnableHeartbeat(
           Boolean.parseBoolean(
               properties.getProperty(
                   "enable_heartbeat", String.valueOf(conf.isEnableHeartbeat()))));
 
+      conf.setEnableLeaderBalancing(
+          Boolean.parseBoolean(
+              properties.getProperty(
+                  "enable_leader_balancing", String.valueOf(conf.isEnableLeaderBalancing()))));
+
+      conf.setEnableRegionMigration(
+          Boolean.parseBoolean(
+              properties.getProperty(
+                  "enable_region_migration", String.valueOf(conf.isEnableRegionMigration()))));
+
+      conf.setLeaderBalanceThreshold(
+          Double.parseDouble(
+              properties.getProperty(
+                  "leader_balance_threshold", String.valueOf(conf.getLeaderBalanceThreshold()))));
+
+      conf.setRegionBalanceThreshold(
+          Double.parseDouble(
+              properties.getProperty(
+                  "region_balance_threshold", String.valueOf(conf.getRegionBalanceThreshold()))));
+
+      conf.setMaxLeaderTransfersPerRound(
+          Integer.parseInt(
+              properties.getProperty(
+                  "max_leader_transfers_per_round",
+                  String.valueOf(conf.getMaxLeaderTransfersPerRound()))));
+
+      conf.setMaxRegionMigrationsPerRound(
+          Integer.parseInt(
+              properties.getProperty(
+                  "max_region_migrations_per_round",
+                  String.valueOf(conf.getMaxRegionMigrationsPerRound()))));
+
+      conf.setRegionBalanceCoolDownMs(
+          Long.parseLong(
+              properties.getProperty(
+                  "region_balance_cool_down_ms",
+                  String.valueOf(conf.getRegionBalanceCoolDownMs()))));
+
       // commons
       commonDescriptor.loadCommonProps(properties);
       commonDescriptor.initCommonConfigDir(conf.getSystemDir());
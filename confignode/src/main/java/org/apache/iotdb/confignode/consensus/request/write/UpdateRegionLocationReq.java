@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.consensus.request.write;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
+import org.apache.iotdb.commons.utils.ThriftCommonsSerDeUtils;
+import org.apache.iotdb.confignode.consensus.request.ConfigRequest;
+import org.apache.iotdb.confignode.consensus.request.ConfigRequestType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/** Move a replica of a Region from one DataNode to another after the Region is migrated */
+public class UpdateRegionLocationReq extends ConfigRequest {
+
+  private TConsensusGroupId regionId;
+
+  private TDataNodeLocation oldNode;
+
+  private TDataNodeLocation newNode;
+
+  public UpdateRegionLocationReq() {
+    super(ConfigRequestType.UpdateRegionLocation);
+  }
+
+  public UpdateRegionLocationReq(
+      TConsensusGroupId regionId, TDataNodeLocation oldNode, TDataNodeLocation newNode) {
+    this();
+    this.regionId = regionId;
+    this.oldNode = oldNode;
+    this.newNode = newNode;
+  }
+
+  public TConsensusGroupId getRegionId() {
+    return regionId;
+  }
+
+  public TDataNodeLocation getOldNode() {
+    return oldNode;
+  }
+
+  public TDataNodeLocation getNewNode() {
+    return newNode;
+  }
+
+  @Override
+  protected void serializeImpl(ByteBuffer buffer) {
+    buffer.putInt(getType().ordinal());
+
+    ThriftCommonsSerDeUtils.serializeTConsensusGroupId(regionId, buffer);
+    ThriftCommonsSerDeUtils.serializeTDataNodeLocation(oldNode, buffer);
+    ThriftCommonsSerDeUtils.serializeTDataNodeLocation(newNode, buffer);
+  }
+
+  @Override
+  protected void deserializeImpl(ByteBuffer buffer) throws IOException {
+    regionId = ThriftCommonsSerDeUtils.deserializeTConsensusGroupId(buffer);
+    oldNode = ThriftCommonsSerDeUtils.deserializeTDataNodeLocation(buffer);
+    newNode = ThriftCommonsSerDeUtils.deserializeTDataNodeLocation(buffer);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    UpdateRegionLocationReq that = (UpdateRegionLocationReq) o;
+    return regionId.equals(that.regionId)
+        && oldNode.equals(that.oldNode)
+        && newNode.equals(that.newNode);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(regionId, oldNode, newNode);
+  }
+}
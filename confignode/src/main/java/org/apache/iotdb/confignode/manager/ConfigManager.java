@@ -130,6 +130,7 @@ public class ConfigManager implements Manager {
   }
 
   public void close() throws IOException {
+    partitionManager.close();
     consensusManager.close();
     procedureManager.shiftExecutor(false);
   }
@@ -556,6 +557,7 @@ public class ConfigManager implements Manager {
     return nodeManager.applyConfigNode(applyConfigNodeReq);
   }
 
+  @Override
   public ProcedureManager getProcedureManager() {
     return procedureManager;
   }
@@ -33,6 +33,7 @@ import org.apache.iotdb.confignode.consensus.statemachine.PartitionRegionStateMa
 import org.apache.iotdb.consensus.ConsensusFactory;
 import org.apache.iotdb.consensus.IConsensus;
 import org.apache.iotdb.consensus.common.Peer;
+import org.apache.iotdb.consensus.common.ReadConsistencyLevel;
 import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
 import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
 import org.apache.iotdb.rpc.TSStatusCode;
@@ -150,6 +151,11 @@ public class ConsensusManager {
     return consensusImpl.read(consensusGroupId, req);
   }
 
+  /** Transmit PhysicalPlan to confignode.consensus.statemachine with the consistency level */
+  public ConsensusReadResponse read(ConfigRequest req, ReadConsistencyLevel consistencyLevel) {
+    return consensusImpl.read(consensusGroupId, req, consistencyLevel);
+  }
+
   public boolean isLeader() {
     return consensusImpl.isLeader(consensusGroupId);
   }
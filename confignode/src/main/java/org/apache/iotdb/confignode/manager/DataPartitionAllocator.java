@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.manager;
+
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.common.rpc.thrift.TSeriesPartitionSlot;
+import org.apache.iotdb.common.rpc.thrift.TTimePartitionSlot;
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.confignode.conf.ConfigNodeConf;
+import org.apache.iotdb.confignode.conf.ConfigNodeDescriptor;
+import org.apache.iotdb.rpc.TSStatusCode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The DataPartitionAllocator coalesces concurrent DataPartition allocations. A single thread
+ * allocates the slots and persists them in one consensus log entry. A request that finds the thread
+ * idle is allocated at once, the requests that arrive while an allocation is in progress are
+ * allocated together right after it. So a write storm across new time partitions no longer turns
+ * into one consensus write per DataNode request, and the same slot is never allocated twice.
+ *
+ * <p>When a SeriesPartitionSlot is written in its latest time partition, the next time partition
+ * is pre-allocated in the background, so that writes crossing the time partition boundary don't
+ * wait for allocation. The pre-allocated DataPartitions are not pushed to DataNodes. The first
+ * write into one of them fetches it from ConfigNode, which in turn pre-allocates the one after it.
+ * So only the actively written SeriesPartitionSlots keep being pre-allocated.
+ *
+ * <p>The next time partition starts one interval after the latest one, the interval is taken from
+ * the two latest time partitions of the SeriesPartitionSlot, so the timestamp precision of the
+ * DataNodes is not needed. A SeriesPartitionSlot is only pre-allocated after it has been written in
+ * two consecutive time partitions, which never happens when the DataNodes set
+ * enable_partition=false and write everything into the time partition 0.
+ */
+public class DataPartitionAllocator {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DataPartitionAllocator.class);
+
+  private final PartitionManager partitionManager;
+
+  private final boolean enablePreAllocation;
+  // The time partition interval in each timestamp precision the DataNodes may use
+  private final Set<Long> timePartitionIntervals;
+
+  private final ExecutorService allocationExecutor;
+
+  // The slots waiting for allocation,
+  // Map<StorageGroupName, Map<SeriesPartitionSlot, Set<TimePartitionSlot>>>
+  private Map<String, Map<TSeriesPartitionSlot, Set<TTimePartitionSlot>>> requestedSlots;
+  private Map<String, Map<TSeriesPartitionSlot, Set<TTimePartitionSlot>>> preAllocatedSlots;
+  // Completed when the waiting slots are allocated, null if there are no waiting slots
+  private CompletableFuture<TSStatus> allocationFuture;
+  private boolean isClosed = false;
+
+  public DataPartitionAllocator(PartitionManager partitionManager) {
+    this.partitionManager = partitionManager;
+
+    ConfigNodeConf conf = ConfigNodeDescriptor.getInstance().getConf();
+    this.enablePreAllocation = conf.isEnableDataPartitionPreAllocation();
+    this.timePartitionIntervals = new HashSet<>();
+    // ms, us and ns
+    for (long unitsPerSecond = 1_000L; unitsPerSecond <= 1_000_000_000L; unitsPerSecond *= 1_000L) {
+      timePartitionIntervals.add(conf.getTimePartitionInterval() * unitsPerSecond);
+    }
+
+    this.allocationExecutor =
+        IoTDBThreadPoolFactory.newSingleThreadExecutor("DataPartitionAllocator");
+    this.requestedSlots = new HashMap<>();
+    this.preAllocatedSlots = new HashMap<>();
+  }
+
+  /**
+   * Allocate DataPartitions for the specific slots. Blocks until the allocation is persisted
+   * together with the other allocations queued at the same time.
+   *
+   * @param partitionSlotsMap Map<StorageGroupName, Map<SeriesPartitionSlot,
+   *     List<TimePartitionSlot>>>, the slots that are not assigned yet
+   * @return SUCCESS_STATUS if the slots are allocated. NOT_ENOUGH_DATA_NODE if the DataNodes are
+   *     not enough to create new Regions.
+   */
+  public TSStatus allocate(
+      Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> partitionSlotsMap) {
+    try {
+      return submit(partitionSlotsMap, false).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode())
+          .setMessage("Interrupted while waiting for DataPartition allocation");
+    } catch (ExecutionException e) {
+      return new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode())
+          .setMessage(e.getCause().getMessage());
+    }
+  }
+
+  /**
+   * Pre-allocate the next time partition for each SeriesPartitionSlot requested in its latest time
+   * partition. Returns without waiting for the allocation.
+   *
+   * @param partitionSlotsMap Map<StorageGroupName, Map<SeriesPartitionSlot,
+   *     List<TimePartitionSlot>>>, the slots requested by DataNodes
+   */
+  public void preAllocate(
+      Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> partitionSlotsMap) {
+    if (!enablePreAllocation) {
+      return;
+    }
+
+    Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> nextSlotsMap = new HashMap<>();
+    partitionSlotsMap.forEach(
+        (storageGroup, seriesPartitionSlotMap) ->
+            seriesPartitionSlotMap.forEach(
+                (seriesPartitionSlot, timePartitionSlots) -> {
+                  List<TTimePartitionSlot> latestTimePartitionSlots =
+                      partitionManager.getLatestTimePartitionSlots(
+                          storageGroup, seriesPartitionSlot);
+                  if (latestTimePartitionSlots.size() < 2
+                      || !timePartitionSlots.contains(latestTimePartitionSlots.get(0))) {
+                    return;
+                  }
+                  long latestStartTime = latestTimePartitionSlots.get(0).getStartTime();
+                  long interval = latestStartTime - latestTimePartitionSlots.get(1).getStartTime();
+                  // Only the consecutive time partitions tell the interval
+                  if (timePartitionIntervals.contains(interval)) {
+                    nextSlotsMap
+                        .computeIfAbsent(storageGroup, key -> new HashMap<>())
+                        .put(
+                            seriesPartitionSlot,
+                            Collections.singletonList(
+                                new TTimePartitionSlot(latestStartTime + interval)));
+                  }
+                }));
+
+    if (!nextSlotsMap.isEmpty()) {
+      submit(nextSlotsMap, true);
+    }
+  }
+
+  private synchronized CompletableFuture<TSStatus> submit(
+      Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> partitionSlotsMap,
+      boolean isPreAllocation) {
+    if (isClosed) {
+      CompletableFuture<TSStatus> future = new CompletableFuture<>();
+      future.complete(
+          new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode())
+              .setMessage("DataPartitionAllocator is closed"));
+      return future;
+    }
+
+    Map<String, Map<TSeriesPartitionSlot, Set<TTimePartitionSlot>>> waitingSlots =
+        isPreAllocation ? preAllocatedSlots : requestedSlots;
+    partitionSlotsMap.forEach(
+        (storageGroup, seriesPartitionSlotMap) ->
+            seriesPartitionSlotMap.forEach(
+                (seriesPartitionSlot, timePartitionSlots) ->
+                    waitingSlots
+                        .computeIfAbsent(storageGroup, key -> new HashMap<>())
+                        .computeIfAbsent(seriesPartitionSlot, key -> new HashSet<>())
+                        .addAll(timePartitionSlots)));
+
+    // The allocation task takes all the slots queued when it starts, so a new task is only needed
+    // if the former one has started
+    if (allocationFuture == null) {
+      allocationFuture = new CompletableFuture<>();
+      allocationExecutor.execute(this::allocateWaitingSlots);
+    }
+    return allocationFuture;
+  }
+
+  private void allocateWaitingSlots() {
+    Map<String, Map<TSeriesPartitionSlot, Set<TTimePartitionSlot>>> requested;
+    Map<String, Map<TSeriesPartitionSlot, Set<TTimePartitionSlot>>> preAllocated;
+    CompletableFuture<TSStatus> future;
+    synchronized (this) {
+      requested = requestedSlots;
+      preAllocated = preAllocatedSlots;
+      future = allocationFuture;
+      requestedSlots = new HashMap<>();
+      preAllocatedSlots = new HashMap<>();
+      allocationFuture = null;
+    }
+    if (future == null) {
+      // Closed
+      return;
+    }
+
+    TSStatus status;
+    try {
+      status = partitionManager.createDataPartitions(toListMap(requested), toListMap(preAllocated));
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to allocate DataPartitions", e);
+      status =
+          new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode())
+              .setMessage(e.getMessage());
+    }
+    future.complete(status);
+  }
+
+  private static Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> toListMap(
+      Map<String, Map<TSeriesPartitionSlot, Set<TTimePartitionSlot>>> slotsMap) {
+    Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> result = new HashMap<>();
+    slotsMap.forEach(
+        (storageGroup, seriesPartitionSlotMap) -> {
+          Map<TSeriesPartitionSlot, List<TTimePartitionSlot>> listMap = new HashMap<>();
+          seriesPartitionSlotMap.forEach(
+              (seriesPartitionSlot, timePartitionSlots) ->
+                  listMap.put(seriesPartitionSlot, new ArrayList<>(timePartitionSlots)));
+          result.put(storageGroup, listMap);
+        });
+    return result;
+  }
+
+  /** Stop allocating, the queued allocations fail */
+  public void close() {
+    CompletableFuture<TSStatus> future;
+    synchronized (this) {
+      isClosed = true;
+      future = allocationFuture;
+      allocationFuture = null;
+    }
+    allocationExecutor.shutdownNow();
+    if (future != null) {
+      future.complete(
+          new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode())
+              .setMessage("DataPartitionAllocator is closed"));
+    }
+  }
+}
@@ -88,6 +88,13 @@ public interface Manager {
    */
   LoadManager getLoadManager();
 
+  /**
+   * Get ProcedureManager
+   *
+   * @return ProcedureManager instance
+   */
+  ProcedureManager getProcedureManager();
+
   /**
    * Register DataNode
    *
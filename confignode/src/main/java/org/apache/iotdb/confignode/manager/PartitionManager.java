@@ -20,11 +20,15 @@ package org.apache.iotdb.confignode.manager;
 
 import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
 import org.apache.iotdb.common.rpc.thrift.TConsensusGroupType;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeInfo;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
 import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
 import org.apache.iotdb.common.rpc.thrift.TSStatus;
 import org.apache.iotdb.common.rpc.thrift.TSeriesPartitionSlot;
 import org.apache.iotdb.common.rpc.thrift.TTimePartitionSlot;
 import org.apache.iotdb.commons.partition.executor.SeriesPartitionExecutor;
+import org.apache.iotdb.confignode.client.AsyncDataNodeClientPool;
+import org.apache.iotdb.confignode.client.handlers.UpdatePartitionCacheHandler;
 import org.apache.iotdb.confignode.conf.ConfigNodeConf;
 import org.apache.iotdb.confignode.conf.ConfigNodeDescriptor;
 import org.apache.iotdb.confignode.consensus.request.read.GetDataPartitionReq;
@@ -33,13 +37,17 @@ import org.apache.iotdb.confignode.consensus.request.read.GetOrCreateSchemaParti
 import org.apache.iotdb.confignode.consensus.request.read.GetSchemaPartitionReq;
 import org.apache.iotdb.confignode.consensus.request.write.CreateDataPartitionReq;
 import org.apache.iotdb.confignode.consensus.request.write.CreateSchemaPartitionReq;
+import org.apache.iotdb.confignode.consensus.request.write.UpdateRegionLocationReq;
 import org.apache.iotdb.confignode.consensus.response.DataPartitionResp;
 import org.apache.iotdb.confignode.consensus.response.SchemaPartitionResp;
 import org.apache.iotdb.confignode.exception.NotEnoughDataNodeException;
 import org.apache.iotdb.confignode.manager.load.LoadManager;
 import org.apache.iotdb.confignode.persistence.PartitionInfo;
 import org.apache.iotdb.consensus.common.DataSet;
+import org.apache.iotdb.consensus.common.ReadConsistencyLevel;
 import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
+import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
+import org.apache.iotdb.mpp.rpc.thrift.TUpdatePartitionCacheReq;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.tsfile.utils.Pair;
 
@@ -62,10 +70,13 @@ public class PartitionManager {
 
   private SeriesPartitionExecutor executor;
 
+  private final DataPartitionAllocator dataPartitionAllocator;
+
   public PartitionManager(Manager configManager, PartitionInfo partitionInfo) {
     this.configManager = configManager;
     this.partitionInfo = partitionInfo;
     setSeriesPartitionExecutor();
+    this.dataPartitionAllocator = new DataPartitionAllocator(this);
   }
 
   /**
@@ -76,7 +87,9 @@ public class PartitionManager {
    */
   public DataSet getSchemaPartition(GetSchemaPartitionReq physicalPlan) {
     SchemaPartitionResp schemaPartitionResp;
-    ConsensusReadResponse consensusReadResponse = getConsensusManager().read(physicalPlan);
+    // the DataNodes cache the partitions, so they must not miss one created just now
+    ConsensusReadResponse consensusReadResponse =
+        getConsensusManager().read(physicalPlan, ReadConsistencyLevel.LINEARIZABLE);
     schemaPartitionResp = (SchemaPartitionResp) consensusReadResponse.getDataset();
     return schemaPartitionResp;
   }
@@ -112,7 +125,13 @@ public class PartitionManager {
       // Persist SchemaPartition
       CreateSchemaPartitionReq createPlan = new CreateSchemaPartitionReq();
       createPlan.setAssignedSchemaPartition(assignedSchemaPartition);
-      getConsensusManager().write(createPlan);
+      ConsensusWriteResponse writeResponse = getConsensusManager().write(createPlan);
+      if (isSuccessful(writeResponse)) {
+        TUpdatePartitionCacheReq updateReq =
+            new TUpdatePartitionCacheReq(getCreatedPartitionVersion(writeResponse));
+        updateReq.setSchemaPartitionMap(assignedSchemaPartition);
+        pushPartitionsToDataNodes(updateReq);
+      }
 
       // TODO: Allocate more Regions if necessary
     }
@@ -120,6 +139,39 @@ public class PartitionManager {
     return getSchemaPartition(physicalPlan);
   }
 
+  private boolean isSuccessful(ConsensusWriteResponse response) {
+    return response.getStatus() != null
+        && response.getStatus().getCode() == TSStatusCode.SUCCESS_STATUS.getStatusCode();
+  }
+
+  /**
+   * The partition version is read when the creation is applied, a version read afterwards may
+   * include later modifications, such as the deletion of the storage group.
+   */
+  private long getCreatedPartitionVersion(ConsensusWriteResponse response) {
+    return Long.parseLong(response.getStatus().getMessage());
+  }
+
+  /** @return The version of the partition table */
+  public long getPartitionVersion() {
+    return partitionInfo.getPartitionVersion();
+  }
+
+  /**
+   * Push the created partitions to all the online DataNodes, so that they could update their
+   * partition caches incrementally instead of fetching them on cache misses.
+   */
+  private void pushPartitionsToDataNodes(TUpdatePartitionCacheReq updateReq) {
+    for (TDataNodeInfo dataNodeInfo : getNodeManager().getOnlineDataNodes(-1)) {
+      TDataNodeLocation location = dataNodeInfo.getLocation();
+      AsyncDataNodeClientPool.getInstance()
+          .updatePartitionCache(
+              location.getInternalEndPoint(),
+              updateReq,
+              new UpdatePartitionCacheHandler(location, updateReq.getPartitionVersion()));
+    }
+  }
+
   /**
    * TODO: allocate schema partition by LoadManager
    *
@@ -175,13 +227,15 @@ public class PartitionManager {
    */
   public DataSet getDataPartition(GetDataPartitionReq physicalPlan) {
     DataPartitionResp dataPartitionResp;
-    ConsensusReadResponse consensusReadResponse = getConsensusManager().read(physicalPlan);
+    ConsensusReadResponse consensusReadResponse =
+        getConsensusManager().read(physicalPlan, ReadConsistencyLevel.LINEARIZABLE);
     dataPartitionResp = (DataPartitionResp) consensusReadResponse.getDataset();
     return dataPartitionResp;
   }
 
   /**
-   * Get DataPartition and create a new one if it does not exist
+   * Get DataPartition and create a new one if it does not exist. The creations of concurrent
+   * requests are coalesced by the DataPartitionAllocator.
    *
    * @param physicalPlan DataPartitionPlan with Map<StorageGroupName, Map<SeriesPartitionSlot,
    *     List<TimePartitionSlot>>>
@@ -193,30 +247,105 @@ public class PartitionManager {
         partitionInfo.filterNoAssignedDataPartitionSlots(physicalPlan.getPartitionSlotsMap());
 
     if (noAssignedDataPartitionSlots.size() > 0) {
-
-      // Make sure each StorageGroup has at least one DataRegion
-      try {
-        checkAndAllocateRegionsIfNecessary(
-            new ArrayList<>(noAssignedDataPartitionSlots.keySet()), TConsensusGroupType.DataRegion);
-      } catch (NotEnoughDataNodeException e) {
+      TSStatus status = dataPartitionAllocator.allocate(noAssignedDataPartitionSlots);
+      if (status.getCode() != TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
         DataPartitionResp resp = new DataPartitionResp();
-        resp.setStatus(new TSStatus(TSStatusCode.NOT_ENOUGH_DATA_NODE.getStatusCode()));
+        resp.setStatus(status);
         return resp;
       }
+    }
+    dataPartitionAllocator.preAllocate(physicalPlan.getPartitionSlotsMap());
 
-      // Allocate DataPartition
-      Map<String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
-          assignedDataPartition = allocateDataPartition(noAssignedDataPartitionSlots);
+    return getDataPartition(physicalPlan);
+  }
 
-      // Persist DataPartition
-      CreateDataPartitionReq createPlan = new CreateDataPartitionReq();
-      createPlan.setAssignedDataPartition(assignedDataPartition);
-      getConsensusManager().write(createPlan);
+  /**
+   * Allocate and persist DataPartitions in one consensus log entry. Only the DataPartitionAllocator
+   * thread uses this interface, so the slots can't be allocated concurrently.
+   *
+   * @param requestedSlots Map<StorageGroupName, Map<SeriesPartitionSlot, List<TimePartitionSlot>>>,
+   *     slots requested by DataNodes, which are pushed to DataNodes once created
+   * @param preAllocatedSlots Map<StorageGroupName, Map<SeriesPartitionSlot,
+   *     List<TimePartitionSlot>>>, slots allocated ahead of the writes, which are not pushed
+   * @return SUCCESS_STATUS if all the slots are assigned. NOT_ENOUGH_DATA_NODE if the DataNodes is
+   *     not enough to create new Regions.
+   */
+  TSStatus createDataPartitions(
+      Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> requestedSlots,
+      Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> preAllocatedSlots) {
+    // Some slots may have been allocated by the former batch
+    Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> noAssignedRequestedSlots =
+        partitionInfo.filterNoAssignedDataPartitionSlots(requestedSlots);
+    Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> noAssignedSlots =
+        partitionInfo.filterNoAssignedDataPartitionSlots(preAllocatedSlots);
+    noAssignedRequestedSlots.forEach(
+        (storageGroup, seriesPartitionSlotMap) ->
+            seriesPartitionSlotMap.forEach(
+                (seriesPartitionSlot, timePartitionSlots) -> {
+                  List<TTimePartitionSlot> slots =
+                      noAssignedSlots
+                          .computeIfAbsent(storageGroup, key -> new HashMap<>())
+                          .computeIfAbsent(seriesPartitionSlot, key -> new ArrayList<>());
+                  for (TTimePartitionSlot timePartitionSlot : timePartitionSlots) {
+                    if (!slots.contains(timePartitionSlot)) {
+                      slots.add(timePartitionSlot);
+                    }
+                  }
+                }));
+    if (noAssignedSlots.isEmpty()) {
+      return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+    }
 
-      // TODO: Allocate more Regions if necessary
+    // Make sure each StorageGroup has at least one DataRegion
+    try {
+      checkAndAllocateRegionsIfNecessary(
+          new ArrayList<>(noAssignedSlots.keySet()), TConsensusGroupType.DataRegion);
+    } catch (NotEnoughDataNodeException e) {
+      return new TSStatus(TSStatusCode.NOT_ENOUGH_DATA_NODE.getStatusCode());
     }
 
-    return getDataPartition(physicalPlan);
+    // Allocate DataPartition
+    Map<String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
+        assignedDataPartition = allocateDataPartition(noAssignedSlots);
+
+    // Persist DataPartition
+    CreateDataPartitionReq createPlan = new CreateDataPartitionReq();
+    createPlan.setAssignedDataPartition(assignedDataPartition);
+    ConsensusWriteResponse writeResponse = getConsensusManager().write(createPlan);
+    if (!isSuccessful(writeResponse)) {
+      return writeResponse.getStatus() != null
+          ? writeResponse.getStatus()
+          : new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode())
+              .setMessage("Failed to persist DataPartitions");
+    }
+
+    // Only push the requested DataPartitions
+    if (!noAssignedRequestedSlots.isEmpty()) {
+      Map<String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
+          requestedDataPartition = new HashMap<>();
+      noAssignedRequestedSlots.forEach(
+          (storageGroup, seriesPartitionSlotMap) ->
+              seriesPartitionSlotMap.forEach(
+                  (seriesPartitionSlot, timePartitionSlots) ->
+                      timePartitionSlots.forEach(
+                          timePartitionSlot ->
+                              requestedDataPartition
+                                  .computeIfAbsent(storageGroup, key -> new HashMap<>())
+                                  .computeIfAbsent(seriesPartitionSlot, key -> new HashMap<>())
+                                  .put(
+                                      timePartitionSlot,
+                                      assignedDataPartition
+                                          .get(storageGroup)
+                                          .get(seriesPartitionSlot)
+                                          .get(timePartitionSlot)))));
+      TUpdatePartitionCacheReq updateReq =
+          new TUpdatePartitionCacheReq(getCreatedPartitionVersion(writeResponse));
+      updateReq.setDataPartitionMap(requestedDataPartition);
+      pushPartitionsToDataNodes(updateReq);
+    }
+
+    // TODO: Allocate more Regions if necessary
+    return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
   }
 
   /**
@@ -292,6 +421,12 @@ public class PartitionManager {
     getLoadManager().initializeRegions(storageGroupWithoutRegion, consensusGroupType);
   }
 
+  /** @return The two latest assigned TimePartitionSlots of the SeriesPartitionSlot, latest first */
+  List<TTimePartitionSlot> getLatestTimePartitionSlots(
+      String storageGroup, TSeriesPartitionSlot seriesPartitionSlot) {
+    return partitionInfo.getLatestTimePartitionSlots(storageGroup, seriesPartitionSlot);
+  }
+
   /** Get all allocated RegionReplicaSets */
   public List<TRegionReplicaSet> getAllocatedRegions() {
     return partitionInfo.getAllocatedRegions();
@@ -334,6 +469,20 @@ public class PartitionManager {
     return partitionInfo.getRegionReplicaSets(groupIds);
   }
 
+  /**
+   * Only leader use this interface. Replace the old DataNode with the new one in the replicas of
+   * the migrated Region.
+   *
+   * @return SUCCESS_STATUS if the new location is persisted
+   */
+  public TSStatus updateRegionLocation(UpdateRegionLocationReq req) {
+    return getConsensusManager().write(req).getStatus();
+  }
+
+  public void close() {
+    dataPartitionAllocator.close();
+  }
+
   private ConsensusManager getConsensusManager() {
     return configManager.getConsensusManager();
   }
@@ -342,6 +491,10 @@ public class PartitionManager {
     return configManager.getClusterSchemaManager();
   }
 
+  private NodeManager getNodeManager() {
+    return configManager.getNodeManager();
+  }
+
   private LoadManager getLoadManager() {
     return configManager.getLoadManager();
   }
@@ -19,6 +19,8 @@
 
 package org.apache.iotdb.confignode.manager;
 
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
 import org.apache.iotdb.common.rpc.thrift.TSStatus;
 import org.apache.iotdb.commons.utils.StatusUtils;
 import org.apache.iotdb.confignode.conf.ConfigNodeConf;
@@ -28,6 +30,7 @@ import org.apache.iotdb.confignode.procedure.Procedure;
 import org.apache.iotdb.confignode.procedure.ProcedureExecutor;
 import org.apache.iotdb.confignode.procedure.env.ConfigNodeProcedureEnv;
 import org.apache.iotdb.confignode.procedure.impl.DeleteStorageGroupProcedure;
+import org.apache.iotdb.confignode.procedure.impl.RegionMigrateProcedure;
 import org.apache.iotdb.confignode.procedure.scheduler.ProcedureScheduler;
 import org.apache.iotdb.confignode.procedure.scheduler.SimpleProcedureScheduler;
 import org.apache.iotdb.confignode.procedure.store.ConfigProcedureStore;
@@ -40,7 +43,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 public class ProcedureManager {
@@ -57,6 +64,9 @@ public class ProcedureManager {
   private IProcedureStore store;
   private ConfigNodeProcedureEnv env;
 
+  // Map<RegionId, the id of the procedure migrating a replica of the Region>
+  private final Map<TConsensusGroupId, Long> regionMigrationMap = new ConcurrentHashMap<>();
+
   public ProcedureManager(ConfigManager configManager, ProcedureInfo procedureInfo) {
     this.configManager = configManager;
     this.scheduler = new SimpleProcedureScheduler();
@@ -69,6 +79,7 @@ public class ProcedureManager {
     if (running) {
       if (!executor.isRunning()) {
         executor.init(configNodeConf.getSchemaReplicationFactor());
+        recoverRegionMigrations();
         executor.startWorkers();
         executor.startCompletedCleaner(
             configNodeConf.getProcedureCompletedCleanInterval(),
@@ -81,6 +92,8 @@ public class ProcedureManager {
         if (!executor.isRunning()) {
           executor.join();
           store.stop();
+          // the procedures are recovered by the next leader
+          regionMigrationMap.clear();
         }
       }
     }
@@ -103,6 +116,46 @@ public class ProcedureManager {
     }
   }
 
+  /**
+   * Submit the migration of a DataRegion replica. The migration lasts as long as the files of the
+   * Region are being transferred, so it's not waited here. A Region is migrated by one procedure
+   * at a time.
+   *
+   * @return the id of the submitted procedure, -1 if the Region is being migrated
+   */
+  public synchronized long migrateRegion(
+      TConsensusGroupId regionId, TDataNodeLocation source, TDataNodeLocation target) {
+    Long migratingProcId = regionMigrationMap.get(regionId);
+    if (migratingProcId != null) {
+      LOGGER.warn("Skip migrating {}, which is being migrated by {}", regionId, migratingProcId);
+      return -1;
+    }
+    long procId =
+        this.executor.submitProcedure(new RegionMigrateProcedure(regionId, source, target));
+    regionMigrationMap.put(regionId, procId);
+    return procId;
+  }
+
+  /** Called when a RegionMigrateProcedure succeeds or is rolled back */
+  public synchronized void onRegionMigrationFinished(TConsensusGroupId regionId, long procId) {
+    regionMigrationMap.remove(regionId, procId);
+  }
+
+  /** @return the Regions being migrated, which should not be moved again until they finish */
+  public Set<TConsensusGroupId> getMigratingRegions() {
+    return new HashSet<>(regionMigrationMap.keySet());
+  }
+
+  private void recoverRegionMigrations() {
+    regionMigrationMap.clear();
+    for (Procedure procedure : executor.getProcedures().values()) {
+      if (procedure instanceof RegionMigrateProcedure && !procedure.isFinished()) {
+        regionMigrationMap.put(
+            ((RegionMigrateProcedure) procedure).getRegionId(), procedure.getProcId());
+      }
+    }
+  }
+
   private static boolean getProcedureStatus(
       ProcedureExecutor executor, List<Long> procIds, List<TSStatus> statusList) {
     boolean isSucceed = true;
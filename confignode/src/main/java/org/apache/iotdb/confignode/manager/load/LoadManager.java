@@ -21,11 +21,14 @@ package org.apache.iotdb.confignode.manager.load;
 import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
 import org.apache.iotdb.common.rpc.thrift.TConsensusGroupType;
 import org.apache.iotdb.common.rpc.thrift.TDataNodeInfo;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
 import org.apache.iotdb.common.rpc.thrift.THeartbeatReq;
 import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
 import org.apache.iotdb.commons.exception.MetadataException;
 import org.apache.iotdb.confignode.client.AsyncDataNodeClientPool;
 import org.apache.iotdb.confignode.client.handlers.HeartbeatHandler;
+import org.apache.iotdb.confignode.client.handlers.LoadBalanceHandler;
+import org.apache.iotdb.confignode.conf.ConfigNodeConf;
 import org.apache.iotdb.confignode.conf.ConfigNodeDescriptor;
 import org.apache.iotdb.confignode.consensus.request.write.CreateRegionsReq;
 import org.apache.iotdb.confignode.exception.NotEnoughDataNodeException;
@@ -33,19 +36,29 @@ import org.apache.iotdb.confignode.manager.ClusterSchemaManager;
 import org.apache.iotdb.confignode.manager.ConsensusManager;
 import org.apache.iotdb.confignode.manager.Manager;
 import org.apache.iotdb.confignode.manager.NodeManager;
+import org.apache.iotdb.confignode.manager.PartitionManager;
+import org.apache.iotdb.confignode.manager.load.balancer.BalancePlan;
 import org.apache.iotdb.confignode.manager.load.balancer.RegionBalancer;
+import org.apache.iotdb.confignode.manager.load.balancer.RegionLoadBalancer;
 import org.apache.iotdb.confignode.manager.load.heartbeat.HeartbeatCache;
 import org.apache.iotdb.confignode.rpc.thrift.TStorageGroupSchema;
+import org.apache.iotdb.mpp.rpc.thrift.TMigrateSchemaRegionReq;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionLeaderChangeReq;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * The LoadManager at ConfigNodeGroup-Leader is active. It proactively implements the cluster
@@ -57,11 +70,28 @@ public class LoadManager implements Runnable {
 
   private final Manager configManager;
 
-  private final long heartbeatInterval =
-      ConfigNodeDescriptor.getInstance().getConf().getHeartbeatInterval();
+  private static final ConfigNodeConf CONF = ConfigNodeDescriptor.getInstance().getConf();
+
+  // The heartbeat interval is multiplied by this ratio after each stable round
+  private static final double heartbeatIntervalRelaxRatio = 1.2;
+
+  private final long heartbeatInterval = CONF.getHeartbeatInterval();
+  private final long maxHeartbeatInterval =
+      Math.max(CONF.getMaxHeartbeatInterval(), heartbeatInterval);
+  private final double heartbeatPhiThreshold = CONF.getHeartbeatPhiThreshold();
   private final HeartbeatCache heartbeatCache;
 
+  // The interval of the current heartbeat round, relaxed while the cluster is stable
+  private long currentHeartbeatInterval;
+  // Bound the heartbeats waiting for their responses
+  private final Semaphore heartbeatPermits;
+  // The DataNodes whose heartbeats are waiting for responses
+  private final Set<Integer> pendingDataNodes;
+  // The DataNodes pinged in the last heartbeat round
+  private Set<Integer> lastOnlineDataNodeIds;
+
   private final RegionBalancer regionBalancer;
+  private final RegionLoadBalancer regionLoadBalancer;
 
   private final Map<TConsensusGroupId, TRegionReplicaSet> replicaScoreMap;
 
@@ -70,8 +100,13 @@ public class LoadManager implements Runnable {
   public LoadManager(Manager configManager) {
     this.configManager = configManager;
     this.heartbeatCache = new HeartbeatCache();
+    this.currentHeartbeatInterval = heartbeatInterval;
+    this.heartbeatPermits = new Semaphore(CONF.getHeartbeatMaxConcurrency());
+    this.pendingDataNodes = ConcurrentHashMap.newKeySet();
+    this.lastOnlineDataNodeIds = Collections.emptySet();
 
     this.regionBalancer = new RegionBalancer(configManager);
+    this.regionLoadBalancer = new RegionLoadBalancer();
 
     this.replicaScoreMap = new TreeMap<>();
   }
@@ -109,8 +144,64 @@ public class LoadManager implements Runnable {
     AsyncDataNodeClientPool.getInstance().createRegions(createRegionsReq, ttlMap);
   }
 
-  private THeartbeatReq genHeartbeatReq() {
-    return new THeartbeatReq(System.currentTimeMillis());
+  private THeartbeatReq genHeartbeatReq(long regionLoadsBaseline) {
+    THeartbeatReq req = new THeartbeatReq(System.currentTimeMillis());
+    if (regionLoadsBaseline >= 0) {
+      req.setRegionLoadsBaseline(regionLoadsBaseline);
+    }
+    return req;
+  }
+
+  /**
+   * Ask the online DataNodes for heartbeats asynchronously. A DataNode is skipped if its last
+   * heartbeat hasn't returned yet, and at most heartbeat_max_concurrency heartbeats are waiting for
+   * responses at the same time.
+   *
+   * @return True if the cluster is stable in this round, i.e. no DataNode joins, leaves or is
+   *     suspected by the failure detector
+   */
+  private boolean pingOnlineDataNodes() throws InterruptedException {
+    boolean isStable = true;
+    long currentTime = System.currentTimeMillis();
+    Set<Integer> onlineDataNodeIds = new HashSet<>();
+    for (TDataNodeInfo dataNodeInfo : getNodeManager().getOnlineDataNodes(-1)) {
+      int dataNodeId = dataNodeInfo.getLocation().getDataNodeId();
+      onlineDataNodeIds.add(dataNodeId);
+      if (!isDataNodeAvailable(dataNodeId, currentTime)) {
+        isStable = false;
+      }
+
+      if (!pendingDataNodes.add(dataNodeId)) {
+        continue;
+      }
+      if (!heartbeatPermits.tryAcquire(currentHeartbeatInterval, TimeUnit.MILLISECONDS)) {
+        pendingDataNodes.remove(dataNodeId);
+        LOGGER.warn("Too many heartbeats are waiting for responses, skip the rest DataNodes");
+        isStable = false;
+        break;
+      }
+      long regionLoadsBaseline = heartbeatCache.getRegionLoadsBaseline(dataNodeId);
+      HeartbeatHandler handler =
+          new HeartbeatHandler(
+              dataNodeId, regionLoadsBaseline, heartbeatCache, heartbeatPermits, pendingDataNodes);
+      AsyncDataNodeClientPool.getInstance()
+          .getHeartBeat(
+              dataNodeInfo.getLocation().getInternalEndPoint(),
+              genHeartbeatReq(regionLoadsBaseline),
+              handler);
+    }
+
+    if (!onlineDataNodeIds.equals(lastOnlineDataNodeIds)) {
+      isStable = false;
+    }
+    lastOnlineDataNodeIds = onlineDataNodeIds;
+    return isStable;
+  }
+
+  /** @return False if the DataNode is suspected to be down by the phi accrual failure detector */
+  private boolean isDataNodeAvailable(int dataNodeId, long currentTime) {
+    return heartbeatCache.getPhi(dataNodeId, currentTime, currentHeartbeatInterval)
+        < heartbeatPhiThreshold;
   }
 
   private void regionExpansion() {
@@ -170,9 +261,71 @@ public class LoadManager implements Runnable {
     }
   }
 
+  /** Even out the hot spots by the Region loads reported in the latest heartbeats */
+  private void balanceRegionLoads() {
+    // Don't move loads onto the DataNodes suspected to be down
+    long currentTime = System.currentTimeMillis();
+    List<TDataNodeLocation> onlineDataNodes =
+        getNodeManager().getOnlineDataNodes(-1).stream()
+            .map(TDataNodeInfo::getLocation)
+            .filter(location -> isDataNodeAvailable(location.getDataNodeId(), currentTime))
+            .collect(Collectors.toList());
+    BalancePlan balancePlan =
+        regionLoadBalancer.genBalancePlan(
+            getPartitionManager().getAllocatedRegions(),
+            heartbeatCache.getLatestRegionLoads(),
+            onlineDataNodes,
+            configManager.getProcedureManager().getMigratingRegions(),
+            System.currentTimeMillis());
+
+    for (BalancePlan.LeaderTransfer leaderTransfer : balancePlan.getLeaderTransfers()) {
+      LOGGER.info("Start {}", leaderTransfer);
+      AsyncDataNodeClientPool.getInstance()
+          .changeRegionLeader(
+              leaderTransfer.getOldLeader().getInternalEndPoint(),
+              new TRegionLeaderChangeReq(
+                  leaderTransfer.getRegionId(), leaderTransfer.getNewLeader()),
+              new LoadBalanceHandler(leaderTransfer));
+    }
+
+    for (BalancePlan.RegionMigration regionMigration : balancePlan.getRegionMigrations()) {
+      LOGGER.info("Start {}", regionMigration);
+      switch (regionMigration.getRegionId().getType()) {
+        case SchemaRegion:
+          AsyncDataNodeClientPool.getInstance()
+              .migrateSchemaRegion(
+                  regionMigration.getSource().getInternalEndPoint(),
+                  new TMigrateSchemaRegionReq(
+                      regionMigration.getSource().getDataNodeId(),
+                      regionMigration.getTarget().getDataNodeId(),
+                      regionMigration.getRegionId().getId()),
+                  new LoadBalanceHandler(regionMigration));
+          break;
+        case DataRegion:
+        default:
+          configManager
+              .getProcedureManager()
+              .migrateRegion(
+                  regionMigration.getRegionId(),
+                  regionMigration.getSource(),
+                  regionMigration.getTarget());
+      }
+    }
+  }
+
   private void doLoadBalancing() {
     regionExpansion();
-    // TODO: update replicaScoreMap
+    balanceRegionLoads();
+  }
+
+  /**
+   * Get the leader of each Region reported by the latest heartbeats, so that the DataNodes could
+   * route the requests to the leaders
+   *
+   * @return Map<RegionId, DataNodeId of the leader>
+   */
+  public Map<TConsensusGroupId, Integer> getLatestRegionLeaderMap() {
+    return heartbeatCache.getLatestRegionLeaderMap();
   }
 
   @Override
@@ -183,14 +336,15 @@ public class LoadManager implements Runnable {
 
         if (getConsensusManager().isLeader()) {
           // Ask DataNode for heartbeat in every heartbeat interval
-          List<TDataNodeInfo> onlineDataNodes = getNodeManager().getOnlineDataNodes(-1);
-          for (TDataNodeInfo dataNodeInfo : onlineDataNodes) {
-            HeartbeatHandler handler =
-                new HeartbeatHandler(dataNodeInfo.getLocation().getDataNodeId(), heartbeatCache);
-            AsyncDataNodeClientPool.getInstance()
-                .getHeartBeat(
-                    dataNodeInfo.getLocation().getInternalEndPoint(), genHeartbeatReq(), handler);
-          }
+          boolean isStable = pingOnlineDataNodes();
+          // Relax the heartbeat interval gradually while the cluster is stable, and restore it as
+          // soon as anything changes
+          currentHeartbeatInterval =
+              isStable
+                  ? Math.min(
+                      (long) (currentHeartbeatInterval * heartbeatIntervalRelaxRatio),
+                      maxHeartbeatInterval)
+                  : heartbeatInterval;
 
           balanceCount += 1;
           // TODO: Adjust load balancing period
@@ -200,9 +354,11 @@ public class LoadManager implements Runnable {
           }
         } else {
           heartbeatCache.discardAllCache();
+          currentHeartbeatInterval = heartbeatInterval;
+          lastOnlineDataNodeIds = Collections.emptySet();
         }
 
-        TimeUnit.MILLISECONDS.sleep(heartbeatInterval);
+        TimeUnit.MILLISECONDS.sleep(currentHeartbeatInterval);
       } catch (InterruptedException e) {
         LOGGER.error("Heartbeat thread has been interrupted, stopping ConfigNode...", e);
         System.exit(-1);
@@ -218,6 +374,10 @@ public class LoadManager implements Runnable {
     return configManager.getNodeManager();
   }
 
+  private PartitionManager getPartitionManager() {
+    return configManager.getPartitionManager();
+  }
+
   private ClusterSchemaManager getClusterSchemaManager() {
     return configManager.getClusterSchemaManager();
   }
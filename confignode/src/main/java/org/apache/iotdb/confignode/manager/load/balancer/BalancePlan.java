@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.manager.load.balancer;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** The leader transfers and Region migrations generated in one round of load balancing */
+public class BalancePlan {
+
+  private final List<LeaderTransfer> leaderTransfers;
+  private final List<RegionMigration> regionMigrations;
+
+  public BalancePlan() {
+    this.leaderTransfers = new ArrayList<>();
+    this.regionMigrations = new ArrayList<>();
+  }
+
+  public List<LeaderTransfer> getLeaderTransfers() {
+    return leaderTransfers;
+  }
+
+  public List<RegionMigration> getRegionMigrations() {
+    return regionMigrations;
+  }
+
+  public boolean isEmpty() {
+    return leaderTransfers.isEmpty() && regionMigrations.isEmpty();
+  }
+
+  /** Transfer the leader of a Region to one of its followers */
+  public static class LeaderTransfer {
+
+    private final TConsensusGroupId regionId;
+    private final TDataNodeLocation oldLeader;
+    private final TDataNodeLocation newLeader;
+
+    public LeaderTransfer(
+        TConsensusGroupId regionId, TDataNodeLocation oldLeader, TDataNodeLocation newLeader) {
+      this.regionId = regionId;
+      this.oldLeader = oldLeader;
+      this.newLeader = newLeader;
+    }
+
+    public TConsensusGroupId getRegionId() {
+      return regionId;
+    }
+
+    public TDataNodeLocation getOldLeader() {
+      return oldLeader;
+    }
+
+    public TDataNodeLocation getNewLeader() {
+      return newLeader;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "LeaderTransfer{regionId=%s, from DataNode %d to DataNode %d}",
+          regionId, oldLeader.getDataNodeId(), newLeader.getDataNodeId());
+    }
+  }
+
+  /** Move a replica of a Region to a DataNode that doesn't hold the Region yet */
+  public static class RegionMigration {
+
+    private final TConsensusGroupId regionId;
+    private final TDataNodeLocation source;
+    private final TDataNodeLocation target;
+
+    public RegionMigration(
+        TConsensusGroupId regionId, TDataNodeLocation source, TDataNodeLocation target) {
+      this.regionId = regionId;
+      this.source = source;
+      this.target = target;
+    }
+
+    public TConsensusGroupId getRegionId() {
+      return regionId;
+    }
+
+    public TDataNodeLocation getSource() {
+      return source;
+    }
+
+    public TDataNodeLocation getTarget() {
+      return target;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "RegionMigration{regionId=%s, from DataNode %d to DataNode %d}",
+          regionId, source.getDataNodeId(), target.getDataNodeId());
+    }
+  }
+}
@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.manager.load.balancer;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
+import org.apache.iotdb.common.rpc.thrift.TRegionLoad;
+import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
+import org.apache.iotdb.confignode.conf.ConfigNodeConf;
+import org.apache.iotdb.confignode.conf.ConfigNodeDescriptor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The RegionLoadBalancer evens out hot spots by the Region load statistics reported in heartbeats.
+ * It only generates plans and keeps no cluster state except the time each Region was last moved,
+ * so that it could be evaluated offline.
+ *
+ * <p>Two kinds of load are balanced separately:
+ *
+ * <p>1. The leader load of a DataNode is the sum of the write share and query share of the Regions
+ * it leads. Leaders of an overloaded DataNode are transferred to followers on lighter DataNodes.
+ *
+ * <p>2. The replica load of a DataNode is the sum of the write share, disk share and memtable
+ * pressure of all the replicas it holds. Replicas of an overloaded DataNode are migrated to lighter
+ * DataNodes that don't hold the Region.
+ *
+ * <p>A share is the ratio of a Region's statistic to the cluster total, so that statistics in
+ * different units could be summed. A DataNode is overloaded when its load exceeds the average by
+ * the configured threshold. Each move must lower the maximum load of the two DataNodes involved,
+ * which prevents the plans from oscillating.
+ */
+public class RegionLoadBalancer {
+
+  private final double leaderBalanceThreshold;
+  private final double regionBalanceThreshold;
+  private final int maxLeaderTransfersPerRound;
+  private final int maxRegionMigrationsPerRound;
+  private final long coolDownMs;
+
+  // Map<RegionId, the last time the Region was moved>
+  private final Map<TConsensusGroupId, Long> lastMoveTimeMap;
+
+  public RegionLoadBalancer() {
+    this(ConfigNodeDescriptor.getInstance().getConf());
+  }
+
+  private RegionLoadBalancer(ConfigNodeConf conf) {
+    this(
+        conf.getLeaderBalanceThreshold(),
+        conf.getRegionBalanceThreshold(),
+        conf.isEnableLeaderBalancing() ? conf.getMaxLeaderTransfersPerRound() : 0,
+        conf.isEnableRegionMigration() ? conf.getMaxRegionMigrationsPerRound() : 0,
+        conf.getRegionBalanceCoolDownMs());
+  }
+
+  public RegionLoadBalancer(
+      double leaderBalanceThreshold,
+      double regionBalanceThreshold,
+      int maxLeaderTransfersPerRound,
+      int maxRegionMigrationsPerRound,
+      long coolDownMs) {
+    this.leaderBalanceThreshold = leaderBalanceThreshold;
+    this.regionBalanceThreshold = regionBalanceThreshold;
+    this.maxLeaderTransfersPerRound = maxLeaderTransfersPerRound;
+    this.maxRegionMigrationsPerRound = maxRegionMigrationsPerRound;
+    this.coolDownMs = coolDownMs;
+    this.lastMoveTimeMap = new HashMap<>();
+  }
+
+  /** Generate the plan of one balancing round when no Region is being migrated */
+  public BalancePlan genBalancePlan(
+      List<TRegionReplicaSet> regionReplicaSets,
+      Map<Integer, List<TRegionLoad>> regionLoadMap,
+      List<TDataNodeLocation> onlineDataNodes,
+      long currentTime) {
+    return genBalancePlan(
+        regionReplicaSets, regionLoadMap, onlineDataNodes, Collections.emptySet(), currentTime);
+  }
+
+  /**
+   * Generate the leader transfers and Region migrations of one balancing round. The moves in the
+   * plan are regarded as done, so the moved Regions won't be moved again until the cool-down ends.
+   *
+   * @param regionReplicaSets All the allocated Regions
+   * @param regionLoadMap Map<DataNodeId, the latest TRegionLoads reported by the DataNode>
+   * @param onlineDataNodes The DataNodes that could take over leaders or replicas
+   * @param migratingRegions The Regions being migrated, which are not moved in this round
+   * @param currentTime Current time in milliseconds
+   * @return BalancePlan, empty if the cluster is balanced
+   */
+  public synchronized BalancePlan genBalancePlan(
+      List<TRegionReplicaSet> regionReplicaSets,
+      Map<Integer, List<TRegionLoad>> regionLoadMap,
+      List<TDataNodeLocation> onlineDataNodes,
+      Set<TConsensusGroupId> migratingRegions,
+      long currentTime) {
+    BalancePlan balancePlan = new BalancePlan();
+    if (onlineDataNodes.size() < 2) {
+      return balancePlan;
+    }
+
+    Map<Integer, TDataNodeLocation> locationMap = new HashMap<>();
+    onlineDataNodes.forEach(location -> locationMap.put(location.getDataNodeId(), location));
+    Map<TConsensusGroupId, RegionStatistic> statisticMap =
+        aggregateStatistics(regionReplicaSets, regionLoadMap);
+    for (TConsensusGroupId regionId : migratingRegions) {
+      RegionStatistic statistic = statisticMap.get(regionId);
+      if (statistic != null) {
+        statistic.isMigrating = true;
+      }
+    }
+
+    if (maxLeaderTransfersPerRound > 0) {
+      balanceLeaders(statisticMap, locationMap, currentTime, balancePlan);
+    }
+    if (maxRegionMigrationsPerRound > 0) {
+      migrateRegions(statisticMap, locationMap, currentTime, balancePlan);
+    }
+
+    // Forget the Regions whose cool-down has ended
+    lastMoveTimeMap.values().removeIf(lastMoveTime -> currentTime - lastMoveTime > coolDownMs);
+    return balancePlan;
+  }
+
+  private Map<TConsensusGroupId, RegionStatistic> aggregateStatistics(
+      List<TRegionReplicaSet> regionReplicaSets, Map<Integer, List<TRegionLoad>> regionLoadMap) {
+    Map<TConsensusGroupId, RegionStatistic> statisticMap = new HashMap<>();
+    regionReplicaSets.forEach(
+        replicaSet -> statisticMap.put(replicaSet.getRegionId(), new RegionStatistic(replicaSet)));
+
+    regionLoadMap.forEach(
+        (dataNodeId, regionLoads) -> {
+          for (TRegionLoad regionLoad : regionLoads) {
+            RegionStatistic statistic = statisticMap.get(regionLoad.getRegionId());
+            if (statistic == null) {
+              // The Region is being created or deleted
+              continue;
+            }
+            if (regionLoad.isIsLeader()) {
+              statistic.leaderId = dataNodeId;
+              statistic.queryRate = regionLoad.getQueryRate();
+            }
+            // Every replica applies the same writes, take the maximum in case some lag behind
+            statistic.writeRate = Math.max(statistic.writeRate, regionLoad.getWriteRate());
+            statistic.diskUsage = Math.max(statistic.diskUsage, regionLoad.getDiskUsage());
+            statistic.memTablePressureMap.put(dataNodeId, regionLoad.getMemTablePressure());
+          }
+        });
+
+    double totalWriteRate = 0;
+    double totalQueryRate = 0;
+    double totalDiskUsage = 0;
+    for (RegionStatistic statistic : statisticMap.values()) {
+      totalWriteRate += statistic.writeRate;
+      totalQueryRate += statistic.queryRate;
+      totalDiskUsage += statistic.diskUsage;
+    }
+    for (RegionStatistic statistic : statisticMap.values()) {
+      double writeShare = share(statistic.writeRate, totalWriteRate);
+      statistic.leaderScore = writeShare + share(statistic.queryRate, totalQueryRate);
+      statistic.replicaScore = writeShare + share(statistic.diskUsage, totalDiskUsage);
+    }
+    return statisticMap;
+  }
+
+  private void balanceLeaders(
+      Map<TConsensusGroupId, RegionStatistic> statisticMap,
+      Map<Integer, TDataNodeLocation> locationMap,
+      long currentTime,
+      BalancePlan balancePlan) {
+    Map<Integer, Double> leaderLoadMap = new HashMap<>();
+    locationMap.keySet().forEach(dataNodeId -> leaderLoadMap.put(dataNodeId, 0.0));
+    for (RegionStatistic statistic : statisticMap.values()) {
+      leaderLoadMap.computeIfPresent(
+          statistic.leaderId, (id, load) -> load + statistic.leaderScore);
+    }
+    double threshold = average(leaderLoadMap) * leaderBalanceThreshold;
+
+    while (balancePlan.getLeaderTransfers().size() < maxLeaderTransfersPerRound) {
+      int hottest = argMax(leaderLoadMap);
+      double hottestLoad = leaderLoadMap.get(hottest);
+      if (hottestLoad <= threshold) {
+        break;
+      }
+
+      // Choose the transfer that lowers the maximum load of the two DataNodes the most,
+      // and prefer the lighter follower when there is a tie
+      RegionStatistic bestRegion = null;
+      int bestFollower = -1;
+      double bestLoad = hottestLoad;
+      double bestFollowerLoad = hottestLoad;
+      for (RegionStatistic statistic : statisticMap.values()) {
+        if (statistic.leaderId != hottest || !isMovable(statistic, currentTime)) {
+          continue;
+        }
+        for (TDataNodeLocation follower : statistic.replicaSet.getDataNodeLocations()) {
+          Double followerLoad = leaderLoadMap.get(follower.getDataNodeId());
+          if (follower.getDataNodeId() == hottest || followerLoad == null) {
+            continue;
+          }
+          double load =
+              Math.max(hottestLoad - statistic.leaderScore, followerLoad + statistic.leaderScore);
+          if (load < bestLoad || (load == bestLoad && followerLoad < bestFollowerLoad)) {
+            bestRegion = statistic;
+            bestFollower = follower.getDataNodeId();
+            bestLoad = load;
+            bestFollowerLoad = followerLoad;
+          }
+        }
+      }
+      if (bestRegion == null) {
+        break;
+      }
+
+      balancePlan
+          .getLeaderTransfers()
+          .add(
+              new BalancePlan.LeaderTransfer(
+                  bestRegion.replicaSet.getRegionId(),
+                  locationMap.get(hottest),
+                  locationMap.get(bestFollower)));
+      leaderLoadMap.put(hottest, hottestLoad - bestRegion.leaderScore);
+      leaderLoadMap.merge(bestFollower, bestRegion.leaderScore, Double::sum);
+      bestRegion.leaderId = bestFollower;
+      lastMoveTimeMap.put(bestRegion.replicaSet.getRegionId(), currentTime);
+    }
+  }
+
+  private void migrateRegions(
+      Map<TConsensusGroupId, RegionStatistic> statisticMap,
+      Map<Integer, TDataNodeLocation> locationMap,
+      long currentTime,
+      BalancePlan balancePlan) {
+    Map<Integer, Double> replicaLoadMap = new HashMap<>();
+    locationMap.keySet().forEach(dataNodeId -> replicaLoadMap.put(dataNodeId, 0.0));
+    for (RegionStatistic statistic : statisticMap.values()) {
+      for (TDataNodeLocation location : statistic.replicaSet.getDataNodeLocations()) {
+        replicaLoadMap.computeIfPresent(
+            location.getDataNodeId(),
+            (id, load) -> load + statistic.getReplicaScore(location.getDataNodeId()));
+      }
+    }
+    double threshold = average(replicaLoadMap) * regionBalanceThreshold;
+
+    while (balancePlan.getRegionMigrations().size() < maxRegionMigrationsPerRound) {
+      int hottest = argMax(replicaLoadMap);
+      double hottestLoad = replicaLoadMap.get(hottest);
+      if (hottestLoad <= threshold) {
+        break;
+      }
+
+      // Choose the migration that lowers the maximum load of the two DataNodes the most,
+      // and prefer the lighter target when there is a tie
+      RegionStatistic bestRegion = null;
+      int bestTarget = -1;
+      double bestScore = 0;
+      double bestLoad = hottestLoad;
+      double bestTargetLoad = hottestLoad;
+      for (RegionStatistic statistic : statisticMap.values()) {
+        if (!statistic.isHeldBy(hottest) || !isMovable(statistic, currentTime)) {
+          continue;
+        }
+        double score = statistic.getReplicaScore(hottest);
+        for (Map.Entry<Integer, Double> entry : replicaLoadMap.entrySet()) {
+          if (statistic.isHeldBy(entry.getKey())) {
+            continue;
+          }
+          double targetLoad = entry.getValue();
+          double load = Math.max(hottestLoad - score, targetLoad + score);
+          if (load < bestLoad || (load == bestLoad && targetLoad < bestTargetLoad)) {
+            bestRegion = statistic;
+            bestTarget = entry.getKey();
+            bestScore = score;
+            bestLoad = load;
+            bestTargetLoad = targetLoad;
+          }
+        }
+      }
+      if (bestRegion == null) {
+        break;
+      }
+
+      balancePlan
+          .getRegionMigrations()
+          .add(
+              new BalancePlan.RegionMigration(
+                  bestRegion.replicaSet.getRegionId(),
+                  locationMap.get(hottest),
+                  locationMap.get(bestTarget)));
+      replicaLoadMap.put(hottest, hottestLoad - bestScore);
+      replicaLoadMap.merge(bestTarget, bestScore, Double::sum);
+      lastMoveTimeMap.put(bestRegion.replicaSet.getRegionId(), currentTime);
+    }
+  }
+
+  private boolean isMovable(RegionStatistic statistic, long currentTime) {
+    if (statistic.isMigrating) {
+      return false;
+    }
+    Long lastMoveTime = lastMoveTimeMap.get(statistic.replicaSet.getRegionId());
+    return lastMoveTime == null || currentTime - lastMoveTime > coolDownMs;
+  }
+
+  private static double share(double value, double total) {
+    return total > 0 ? value / total : 0;
+  }
+
+  private static double average(Map<Integer, Double> loadMap) {
+    return loadMap.values().stream().mapToDouble(Double::doubleValue).sum() / loadMap.size();
+  }
+
+  private static int argMax(Map<Integer, Double> loadMap) {
+    int result = -1;
+    double maxLoad = -1;
+    for (Map.Entry<Integer, Double> entry : loadMap.entrySet()) {
+      if (entry.getValue() > maxLoad) {
+        result = entry.getKey();
+        maxLoad = entry.getValue();
+      }
+    }
+    return result;
+  }
+
+  private static class RegionStatistic {
+
+    private final TRegionReplicaSet replicaSet;
+
+    // -1 if no DataNode reports itself as the leader
+    private int leaderId = -1;
+    private double writeRate = 0;
+    private double queryRate = 0;
+    private long diskUsage = 0;
+    // Map<DataNodeId, memtable pressure of the replica on the DataNode>
+    private final Map<Integer, Double> memTablePressureMap = new HashMap<>();
+
+    private double leaderScore;
+    private double replicaScore;
+    private boolean isMigrating = false;
+
+    private RegionStatistic(TRegionReplicaSet replicaSet) {
+      this.replicaSet = replicaSet;
+    }
+
+    private double getReplicaScore(int dataNodeId) {
+      return replicaScore + memTablePressureMap.getOrDefault(dataNodeId, 0.0);
+    }
+
+    private boolean isHeldBy(int dataNodeId) {
+      for (TDataNodeLocation location : replicaSet.getDataNodeLocations()) {
+        if (location.getDataNodeId() == dataNodeId) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
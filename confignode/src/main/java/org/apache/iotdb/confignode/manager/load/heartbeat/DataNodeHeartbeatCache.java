@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.manager.load.heartbeat;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TRegionLoad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The heartbeat statistics of one DataNode */
+public class DataNodeHeartbeatCache {
+
+  private final PhiAccrualFailureDetector failureDetector;
+
+  private long lastSendTimestamp = -1;
+
+  // The region loads assembled from the full and delta heartbeats, Map<RegionId, TRegionLoad>
+  private final Map<TConsensusGroupId, TRegionLoad> regionLoads;
+  // The sendTimestamp of the heartbeat whose region loads are applied last, -1 if there is none
+  private long regionLoadsBaseline = -1;
+
+  public DataNodeHeartbeatCache() {
+    this.failureDetector = new PhiAccrualFailureDetector();
+    this.regionLoads = new TreeMap<>();
+  }
+
+  public synchronized void cacheHeartbeat(HeartbeatPackage newHeartbeat) {
+    // Only sequential heartbeats are accepted.
+    // And un-sequential heartbeats will be discarded.
+    if (newHeartbeat.getSendTimestamp() <= lastSendTimestamp) {
+      return;
+    }
+    lastSendTimestamp = newHeartbeat.getSendTimestamp();
+    failureDetector.heartbeat(newHeartbeat.getReceiveTimestamp());
+
+    if (!newHeartbeat.isRegionLoadsDelta()) {
+      regionLoads.clear();
+    } else if (newHeartbeat.getRegionLoadsBaseline() != regionLoadsBaseline) {
+      // The delta isn't based on what we have, keep the current baseline so that the next
+      // heartbeat asks for all the region loads again
+      return;
+    }
+    for (TConsensusGroupId regionId : newHeartbeat.getRemovedRegionIds()) {
+      regionLoads.remove(regionId);
+    }
+    for (TRegionLoad regionLoad : newHeartbeat.getRegionLoads()) {
+      regionLoads.put(regionLoad.getRegionId(), regionLoad);
+    }
+    regionLoadsBaseline = newHeartbeat.getSendTimestamp();
+  }
+
+  /** @return The load of all the Regions on the DataNode, or null if there is no heartbeat */
+  public synchronized List<TRegionLoad> getRegionLoads() {
+    return regionLoadsBaseline < 0 ? null : new ArrayList<>(regionLoads.values());
+  }
+
+  public synchronized long getRegionLoadsBaseline() {
+    return regionLoadsBaseline;
+  }
+
+  public double getPhi(long currentTime, long expectedIntervalMs) {
+    return failureDetector.phi(currentTime, expectedIntervalMs);
+  }
+}
@@ -18,34 +18,81 @@
  */
 package org.apache.iotdb.confignode.manager.load.heartbeat;
 
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TRegionLoad;
+
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** HeartbeatCache caches and maintains all the heartbeat data */
 public class HeartbeatCache implements IHeartbeatStatistic {
 
   private boolean containsCache = false;
 
-  // Map<DataNodeId, HeartbeatWindow>
-  private final Map<Integer, HeartbeatWindow> windowMap;
+  // Map<DataNodeId, DataNodeHeartbeatCache>
+  private final Map<Integer, DataNodeHeartbeatCache> nodeCacheMap;
 
   public HeartbeatCache() {
-    this.windowMap = new HashMap<>();
+    this.nodeCacheMap = new ConcurrentHashMap<>();
   }
 
   @Override
   public void cacheHeartBeat(int dataNodeId, HeartbeatPackage newHeartbeat) {
     containsCache = true;
-    windowMap
-        .computeIfAbsent(dataNodeId, window -> new HeartbeatWindow())
-        .addHeartbeat(newHeartbeat);
+    nodeCacheMap
+        .computeIfAbsent(dataNodeId, nodeCache -> new DataNodeHeartbeatCache())
+        .cacheHeartbeat(newHeartbeat);
+  }
+
+  @Override
+  public Map<Integer, List<TRegionLoad>> getLatestRegionLoads() {
+    Map<Integer, List<TRegionLoad>> regionLoads = new HashMap<>();
+    nodeCacheMap.forEach(
+        (dataNodeId, nodeCache) -> {
+          List<TRegionLoad> nodeRegionLoads = nodeCache.getRegionLoads();
+          if (nodeRegionLoads != null) {
+            regionLoads.put(dataNodeId, nodeRegionLoads);
+          }
+        });
+    return regionLoads;
+  }
+
+  @Override
+  public Map<TConsensusGroupId, Integer> getLatestRegionLeaderMap() {
+    Map<TConsensusGroupId, Integer> regionLeaderMap = new HashMap<>();
+    nodeCacheMap.forEach(
+        (dataNodeId, nodeCache) -> {
+          List<TRegionLoad> nodeRegionLoads = nodeCache.getRegionLoads();
+          if (nodeRegionLoads != null) {
+            for (TRegionLoad regionLoad : nodeRegionLoads) {
+              if (regionLoad.isIsLeader()) {
+                regionLeaderMap.put(regionLoad.getRegionId(), dataNodeId);
+              }
+            }
+          }
+        });
+    return regionLeaderMap;
+  }
+
+  @Override
+  public long getRegionLoadsBaseline(int dataNodeId) {
+    DataNodeHeartbeatCache nodeCache = nodeCacheMap.get(dataNodeId);
+    return nodeCache == null ? -1 : nodeCache.getRegionLoadsBaseline();
+  }
+
+  @Override
+  public double getPhi(int dataNodeId, long currentTime, long expectedIntervalMs) {
+    DataNodeHeartbeatCache nodeCache = nodeCacheMap.get(dataNodeId);
+    return nodeCache == null ? 0 : nodeCache.getPhi(currentTime, expectedIntervalMs);
   }
 
   @Override
   public void discardAllCache() {
     if (containsCache) {
       containsCache = false;
-      windowMap.clear();
+      nodeCacheMap.clear();
     }
   }
 }
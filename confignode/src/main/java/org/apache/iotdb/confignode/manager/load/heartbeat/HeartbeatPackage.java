@@ -18,14 +18,46 @@
  */
 package org.apache.iotdb.confignode.manager.load.heartbeat;
 
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TRegionLoad;
+
+import java.util.Collections;
+import java.util.List;
+
 public class HeartbeatPackage {
 
   private final long sendTimestamp;
   private final long receiveTimestamp;
 
+  // Load statistics of the Regions reported by the DataNode
+  private final List<TRegionLoad> regionLoads;
+
+  // The sendTimestamp of the heartbeat that the regionLoads are changed since,
+  // or -1 if the regionLoads contains all the Regions of the DataNode
+  private final long regionLoadsBaseline;
+  // The Regions removed since the regionLoadsBaseline
+  private final List<TConsensusGroupId> removedRegionIds;
+
   public HeartbeatPackage(long sendTimestamp, long receiveTimestamp) {
+    this(sendTimestamp, receiveTimestamp, Collections.emptyList());
+  }
+
+  public HeartbeatPackage(
+      long sendTimestamp, long receiveTimestamp, List<TRegionLoad> regionLoads) {
+    this(sendTimestamp, receiveTimestamp, regionLoads, -1, Collections.emptyList());
+  }
+
+  public HeartbeatPackage(
+      long sendTimestamp,
+      long receiveTimestamp,
+      List<TRegionLoad> regionLoads,
+      long regionLoadsBaseline,
+      List<TConsensusGroupId> removedRegionIds) {
     this.sendTimestamp = sendTimestamp;
     this.receiveTimestamp = receiveTimestamp;
+    this.regionLoads = regionLoads;
+    this.regionLoadsBaseline = regionLoadsBaseline;
+    this.removedRegionIds = removedRegionIds;
   }
 
   public long getSendTimestamp() {
@@ -35,4 +67,20 @@ public class HeartbeatPackage {
   public long getReceiveTimestamp() {
     return receiveTimestamp;
   }
+
+  public List<TRegionLoad> getRegionLoads() {
+    return regionLoads;
+  }
+
+  public boolean isRegionLoadsDelta() {
+    return regionLoadsBaseline >= 0;
+  }
+
+  public long getRegionLoadsBaseline() {
+    return regionLoadsBaseline;
+  }
+
+  public List<TConsensusGroupId> getRemovedRegionIds() {
+    return removedRegionIds;
+  }
 }
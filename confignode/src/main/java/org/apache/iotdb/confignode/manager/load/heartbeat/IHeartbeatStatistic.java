@@ -18,6 +18,12 @@
  */
 package org.apache.iotdb.confignode.manager.load.heartbeat;
 
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TRegionLoad;
+
+import java.util.List;
+import java.util.Map;
+
 /** All the interfaces that provided by HeartbeatCache */
 public interface IHeartbeatStatistic {
 
@@ -29,7 +35,37 @@ public interface IHeartbeatStatistic {
    */
   void cacheHeartBeat(int dataNodeId, HeartbeatPackage newHeartbeat);
 
-  // TODO: Interfaces for statistics
+  /**
+   * Get the Region load statistics carried by the latest heartbeat of each DataNode
+   *
+   * @return Map<DataNodeId, List<TRegionLoad>>
+   */
+  Map<Integer, List<TRegionLoad>> getLatestRegionLoads();
+
+  /**
+   * Get the leader of each Region reported by the latest heartbeats
+   *
+   * @return Map<RegionId, DataNodeId of the leader>
+   */
+  Map<TConsensusGroupId, Integer> getLatestRegionLeaderMap();
+
+  /**
+   * Get the baseline that the next heartbeat of the specific DataNode could ask for delta region
+   * loads against
+   *
+   * @return The sendTimestamp of the last heartbeat whose region loads are applied, or -1 if the
+   *     DataNode should report all of its region loads
+   */
+  long getRegionLoadsBaseline(int dataNodeId);
+
+  /**
+   * Evaluate how likely the specific DataNode is down by the phi accrual failure detector
+   *
+   * @param currentTime The time to evaluate the suspicion at
+   * @param expectedIntervalMs The interval the heartbeats are sent at currently
+   * @return The suspicion level phi, 0 if the DataNode has no heartbeat yet
+   */
+  double getPhi(int dataNodeId, long currentTime, long expectedIntervalMs);
 
   /** Only use this interface when current ConfigNode is not the leader */
   void discardAllCache();
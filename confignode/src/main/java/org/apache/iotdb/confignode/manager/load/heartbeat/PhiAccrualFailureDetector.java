@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.manager.load.heartbeat;
+
+import java.util.LinkedList;
+
+/**
+ * The phi accrual failure detector of one DataNode. Instead of a fixed timeout, it estimates the
+ * distribution of the intervals between the recent heartbeats, and expresses how likely the
+ * DataNode is down as phi = -log10(P(the next heartbeat arrives later than now)). So a jittery
+ * network is tolerated automatically, while a steady DataNode is suspected soon after it stops.
+ */
+public class PhiAccrualFailureDetector {
+
+  private static final int maximumWindowSize = 100;
+
+  // Keep the estimated deviation away from zero, otherwise a perfectly steady DataNode is
+  // suspected as soon as one heartbeat is slightly late
+  private static final double minimumStdDeviationMs = 100;
+
+  private final LinkedList<Long> intervals = new LinkedList<>();
+  private long intervalSum = 0;
+  private long intervalSquareSum = 0;
+
+  private long lastArrivalTime = -1;
+
+  /** Record a heartbeat arrived at arrivalTime */
+  public synchronized void heartbeat(long arrivalTime) {
+    if (lastArrivalTime >= 0) {
+      long interval = Math.max(arrivalTime - lastArrivalTime, 0);
+      intervals.add(interval);
+      intervalSum += interval;
+      intervalSquareSum += interval * interval;
+      if (intervals.size() > maximumWindowSize) {
+        long expired = intervals.removeFirst();
+        intervalSum -= expired;
+        intervalSquareSum -= expired * expired;
+      }
+    }
+    lastArrivalTime = arrivalTime;
+  }
+
+  /**
+   * @param currentTime The time to evaluate the suspicion at
+   * @param expectedIntervalMs The interval the heartbeats are sent at currently. The estimated mean
+   *     interval is raised to it, since the recorded intervals lag behind when the heartbeat
+   *     interval has just been relaxed
+   * @return The suspicion level phi, 0 if there are not enough heartbeats to estimate
+   */
+  public synchronized double phi(long currentTime, long expectedIntervalMs) {
+    if (intervals.isEmpty()) {
+      return 0;
+    }
+    double observedMean = (double) intervalSum / intervals.size();
+    double mean = Math.max(observedMean, expectedIntervalMs);
+    double variance = (double) intervalSquareSum / intervals.size() - observedMean * observedMean;
+    double stdDeviation = Math.max(Math.sqrt(Math.max(variance, 0)), minimumStdDeviationMs);
+
+    // The logistic approximation of the normal cumulative distribution function
+    double y = (currentTime - lastArrivalTime - mean) / stdDeviation;
+    double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+    if (currentTime - lastArrivalTime > mean) {
+      return -Math.log10(e / (1.0 + e));
+    } else {
+      return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+  }
+
+  /** @return The time the latest heartbeat arrived at, or -1 if there is none */
+  public synchronized long getLastArrivalTime() {
+    return lastArrivalTime;
+  }
+}
@@ -20,6 +20,7 @@
 package org.apache.iotdb.confignode.persistence;
 
 import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
 import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
 import org.apache.iotdb.common.rpc.thrift.TSStatus;
 import org.apache.iotdb.common.rpc.thrift.TSeriesPartitionSlot;
@@ -36,6 +37,7 @@ import org.apache.iotdb.confignode.consensus.request.write.CreateRegionsReq;
 import org.apache.iotdb.confignode.consensus.request.write.CreateSchemaPartitionReq;
 import org.apache.iotdb.confignode.consensus.request.write.DeleteRegionsReq;
 import org.apache.iotdb.confignode.consensus.request.write.DeleteStorageGroupReq;
+import org.apache.iotdb.confignode.consensus.request.write.UpdateRegionLocationReq;
 import org.apache.iotdb.confignode.consensus.response.DataPartitionResp;
 import org.apache.iotdb.confignode.consensus.response.SchemaPartitionResp;
 import org.apache.iotdb.confignode.rpc.thrift.TStorageGroupSchema;
@@ -58,18 +60,26 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
 
 /**
  * The PartitionInfo stores cluster PartitionTable. The PartitionTable including: 1. regionMap:
  * location of Region member 2. schemaPartition: location of schema 3. dataPartition: location of
  * data
+ *
+ * <p>The schemaPartition and dataPartition are immutable once published. Each modification copies
+ * the maps on its path and publishes a new version, so reads never take a lock.
  */
 public class PartitionInfo implements SnapshotProcessor {
 
@@ -82,34 +92,56 @@ public class PartitionInfo implements SnapshotProcessor {
   // Map<TConsensusGroupId, allocatedSlotsNumber>
   private final Map<TConsensusGroupId, Long> regionSlotsCounter;
 
-  // SchemaPartition read write lock
-  private final ReentrantReadWriteLock schemaPartitionReadWriteLock;
-  private final SchemaPartition schemaPartition;
-
-  // DataPartition read write lock
-  private final ReentrantReadWriteLock dataPartitionReadWriteLock;
-  private final DataPartition dataPartition;
+  // The write lock serializes the modifications of schemaPartition and dataPartition, the read
+  // lock blocks them while taking a snapshot. Reading the partitions needs no lock.
+  private final ReentrantReadWriteLock partitionReadWriteLock;
+  private volatile SchemaPartition schemaPartition;
+  private volatile DataPartition dataPartition;
+  // The two latest assigned TimePartitionSlots of each SeriesPartitionSlot, the latest first.
+  // Replaced together with dataPartition,
+  // Map<StorageGroupName, Map<SeriesPartitionSlot, List<TimePartitionSlot>>>
+  private volatile Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>>
+      latestTimePartitionSlots;
+  // Increased by every modification of schemaPartition or dataPartition
+  private final AtomicLong partitionVersion = new AtomicLong(0);
 
   private final String snapshotFileName = "partition_info.bin";
 
+  // Heads the snapshots with partitionVersion. Snapshots taken by former versions begin with
+  // nextRegionGroupId, which is never negative.
+  private static final int PARTITION_VERSION_MARKER = -1;
+
   public PartitionInfo() {
     this.regionReadWriteLock = new ReentrantReadWriteLock();
     this.regionReplicaMap = new HashMap<>();
     this.regionSlotsCounter = new HashMap<>();
 
-    this.schemaPartitionReadWriteLock = new ReentrantReadWriteLock();
-    this.schemaPartition =
-        new SchemaPartition(
-            ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionExecutorClass(),
-            ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionSlotNum());
-    this.schemaPartition.setSchemaPartitionMap(new HashMap<>());
+    this.partitionReadWriteLock = new ReentrantReadWriteLock();
+    this.schemaPartition = newSchemaPartition(new HashMap<>());
+    this.dataPartition = newDataPartition(new HashMap<>());
+    this.latestTimePartitionSlots = new HashMap<>();
+  }
 
-    this.dataPartitionReadWriteLock = new ReentrantReadWriteLock();
-    this.dataPartition =
-        new DataPartition(
-            ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionExecutorClass(),
-            ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionSlotNum());
-    this.dataPartition.setDataPartitionMap(new HashMap<>());
+  private SchemaPartition newSchemaPartition(
+      Map<String, Map<TSeriesPartitionSlot, TRegionReplicaSet>> schemaPartitionMap) {
+    return new SchemaPartition(
+        schemaPartitionMap,
+        ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionExecutorClass(),
+        ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionSlotNum());
+  }
+
+  private DataPartition newDataPartition(
+      Map<String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
+          dataPartitionMap) {
+    return new DataPartition(
+        dataPartitionMap,
+        ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionExecutorClass(),
+        ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionSlotNum());
+  }
+
+  /** @return The version of schemaPartition and dataPartition */
+  public long getPartitionVersion() {
+    return partitionVersion.get();
   }
 
   public int generateNextRegionGroupId() {
@@ -175,6 +207,95 @@ public class PartitionInfo implements SnapshotProcessor {
     return result;
   }
 
+  /**
+   * Replace the old DataNode with the new one in the replicas of the migrated Region, both in the
+   * regionReplicaMap and in the partition tables
+   *
+   * @param req UpdateRegionLocationReq
+   * @return SUCCESS_STATUS, or REGION_MIGRATE_FAILED if the Region doesn't exist
+   */
+  public TSStatus updateRegionLocation(UpdateRegionLocationReq req) {
+    partitionReadWriteLock.writeLock().lock();
+    regionReadWriteLock.writeLock().lock();
+    try {
+      TRegionReplicaSet oldReplicaSet = regionReplicaMap.get(req.getRegionId());
+      if (oldReplicaSet == null) {
+        return new TSStatus(TSStatusCode.REGION_MIGRATE_FAILED.getStatusCode())
+            .setMessage(String.format("Region %s doesn't exist", req.getRegionId()));
+      }
+      List<TDataNodeLocation> dataNodeLocations = new ArrayList<>();
+      for (TDataNodeLocation dataNodeLocation : oldReplicaSet.getDataNodeLocations()) {
+        if (dataNodeLocation.getDataNodeId() == req.getNewNode().getDataNodeId()) {
+          // the request has been applied
+          return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+        }
+        dataNodeLocations.add(
+            dataNodeLocation.getDataNodeId() == req.getOldNode().getDataNodeId()
+                ? req.getNewNode()
+                : dataNodeLocation);
+      }
+      TRegionReplicaSet newReplicaSet =
+          new TRegionReplicaSet(req.getRegionId(), dataNodeLocations);
+      regionReplicaMap.put(req.getRegionId(), newReplicaSet);
+
+      // Copy the maps that hold the Region, the others are shared with the old version
+      Map<String, Map<TSeriesPartitionSlot, TRegionReplicaSet>> schemaPartitionMap =
+          new HashMap<>(schemaPartition.getSchemaPartitionMap());
+      schemaPartitionMap.replaceAll(
+          (storageGroup, seriesPartitionSlotMap) -> {
+            if (seriesPartitionSlotMap.values().stream()
+                .noneMatch(replicaSet -> replicaSet.getRegionId().equals(req.getRegionId()))) {
+              return seriesPartitionSlotMap;
+            }
+            Map<TSeriesPartitionSlot, TRegionReplicaSet> newSeriesPartitionSlotMap =
+                new HashMap<>(seriesPartitionSlotMap);
+            newSeriesPartitionSlotMap.replaceAll(
+                (seriesPartitionSlot, replicaSet) ->
+                    replicaSet.getRegionId().equals(req.getRegionId())
+                        ? newReplicaSet
+                        : replicaSet);
+            return newSeriesPartitionSlotMap;
+          });
+      schemaPartition = newSchemaPartition(schemaPartitionMap);
+
+      Map<String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
+          dataPartitionMap = new HashMap<>(dataPartition.getDataPartitionMap());
+      dataPartitionMap.replaceAll(
+          (storageGroup, seriesPartitionSlotMap) -> {
+            Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>
+                newSeriesPartitionSlotMap = new HashMap<>(seriesPartitionSlotMap);
+            newSeriesPartitionSlotMap.replaceAll(
+                (seriesPartitionSlot, timePartitionSlotMap) -> {
+                  if (timePartitionSlotMap.values().stream()
+                      .flatMap(List::stream)
+                      .noneMatch(
+                          replicaSet -> replicaSet.getRegionId().equals(req.getRegionId()))) {
+                    return timePartitionSlotMap;
+                  }
+                  Map<TTimePartitionSlot, List<TRegionReplicaSet>> newTimePartitionSlotMap =
+                      new HashMap<>(timePartitionSlotMap);
+                  newTimePartitionSlotMap.replaceAll(
+                      (timePartitionSlot, replicaSets) ->
+                          replicaSets.stream()
+                              .map(
+                                  replicaSet ->
+                                      replicaSet.getRegionId().equals(req.getRegionId())
+                                          ? newReplicaSet
+                                          : replicaSet)
+                              .collect(Collectors.toList()));
+                  return newTimePartitionSlotMap;
+                });
+            return newSeriesPartitionSlotMap;
+          });
+      dataPartition = newDataPartition(dataPartitionMap);
+      partitionVersion.incrementAndGet();
+    } finally {
+      regionReadWriteLock.writeLock().unlock();
+      partitionReadWriteLock.writeLock().unlock();
+    }
+    return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+  }
+
   /**
    * Delete StorageGroup
    *
@@ -204,16 +325,9 @@ public class PartitionInfo implements SnapshotProcessor {
    */
   public DataSet getSchemaPartition(GetSchemaPartitionReq req) {
     SchemaPartitionResp schemaPartitionResp = new SchemaPartitionResp();
-    schemaPartitionReadWriteLock.readLock().lock();
-
-    try {
-      schemaPartitionResp.setSchemaPartition(
-          schemaPartition.getSchemaPartition(req.getPartitionSlotsMap()));
-    } finally {
-      schemaPartitionReadWriteLock.readLock().unlock();
-      schemaPartitionResp.setStatus(new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode()));
-    }
-
+    schemaPartitionResp.setSchemaPartition(
+        schemaPartition.getSchemaPartition(req.getPartitionSlotsMap()));
+    schemaPartitionResp.setStatus(new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode()));
     return schemaPartitionResp;
   }
 
@@ -221,31 +335,42 @@ public class PartitionInfo implements SnapshotProcessor {
    * Create SchemaPartition
    *
    * @param req CreateSchemaPartitionPlan with SchemaPartition assigned result
-   * @return TSStatusCode.SUCCESS_STATUS when creation successful
+   * @return TSStatusCode.SUCCESS_STATUS when creation successful, the message is the partition
+   *     version after the creation
    */
   public TSStatus createSchemaPartition(CreateSchemaPartitionReq req) {
-    schemaPartitionReadWriteLock.writeLock().lock();
+    long version;
+    partitionReadWriteLock.writeLock().lock();
     regionReadWriteLock.writeLock().lock();
 
     try {
-      // Allocate SchemaPartition by CreateSchemaPartitionPlan
+      // Copy the maps of the modified StorageGroups, the others are shared with the old version
+      Map<String, Map<TSeriesPartitionSlot, TRegionReplicaSet>> schemaPartitionMap =
+          new HashMap<>(schemaPartition.getSchemaPartitionMap());
       Map<String, Map<TSeriesPartitionSlot, TRegionReplicaSet>> assignedResult =
           req.getAssignedSchemaPartition();
       assignedResult.forEach(
-          (storageGroup, partitionSlots) ->
-              partitionSlots.forEach(
-                  (seriesPartitionSlot, regionReplicaSet) -> {
-                    schemaPartition.createSchemaPartition(
-                        storageGroup, seriesPartitionSlot, regionReplicaSet);
-                    regionSlotsCounter.computeIfPresent(
-                        regionReplicaSet.getRegionId(), (consensusGroupId, count) -> (count + 1));
-                  }));
+          (storageGroup, partitionSlots) -> {
+            Map<TSeriesPartitionSlot, TRegionReplicaSet> seriesPartitionSlotMap =
+                new HashMap<>(
+                    schemaPartitionMap.getOrDefault(storageGroup, Collections.emptyMap()));
+            partitionSlots.forEach(
+                (seriesPartitionSlot, regionReplicaSet) -> {
+                  seriesPartitionSlotMap.put(seriesPartitionSlot, regionReplicaSet);
+                  regionSlotsCounter.computeIfPresent(
+                      regionReplicaSet.getRegionId(), (consensusGroupId, count) -> (count + 1));
+                });
+            schemaPartitionMap.put(storageGroup, seriesPartitionSlotMap);
+          });
+      schemaPartition = newSchemaPartition(schemaPartitionMap);
+      version = partitionVersion.incrementAndGet();
     } finally {
       regionReadWriteLock.writeLock().unlock();
-      schemaPartitionReadWriteLock.writeLock().unlock();
+      partitionReadWriteLock.writeLock().unlock();
     }
 
-    return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+    return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode())
+        .setMessage(String.valueOf(version));
   }
 
   /**
@@ -257,14 +382,7 @@ public class PartitionInfo implements SnapshotProcessor {
    */
   public Map<String, List<TSeriesPartitionSlot>> filterNoAssignedSchemaPartitionSlots(
       Map<String, List<TSeriesPartitionSlot>> partitionSlotsMap) {
-    Map<String, List<TSeriesPartitionSlot>> result;
-    schemaPartitionReadWriteLock.readLock().lock();
-    try {
-      result = schemaPartition.filterNoAssignedSchemaPartitionSlot(partitionSlotsMap);
-    } finally {
-      schemaPartitionReadWriteLock.readLock().unlock();
-    }
-    return result;
+    return schemaPartition.filterNoAssignedSchemaPartitionSlot(partitionSlotsMap);
   }
 
   /**
@@ -275,19 +393,12 @@ public class PartitionInfo implements SnapshotProcessor {
    */
   public DataSet getDataPartition(GetDataPartitionReq req) {
     DataPartitionResp dataPartitionResp = new DataPartitionResp();
-    dataPartitionReadWriteLock.readLock().lock();
-
-    try {
-      dataPartitionResp.setDataPartition(
-          dataPartition.getDataPartition(
-              req.getPartitionSlotsMap(),
-              ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionExecutorClass(),
-              ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionSlotNum()));
-    } finally {
-      dataPartitionReadWriteLock.readLock().unlock();
-      dataPartitionResp.setStatus(new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode()));
-    }
-
+    dataPartitionResp.setDataPartition(
+        dataPartition.getDataPartition(
+            req.getPartitionSlotsMap(),
+            ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionExecutorClass(),
+            ConfigNodeDescriptor.getInstance().getConf().getSeriesPartitionSlotNum()));
+    dataPartitionResp.setStatus(new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode()));
     return dataPartitionResp;
   }
 
@@ -295,39 +406,68 @@ public class PartitionInfo implements SnapshotProcessor {
    * Create DataPartition
    *
    * @param req CreateDataPartitionPlan with DataPartition assigned result
-   * @return TSStatusCode.SUCCESS_STATUS when creation successful
+   * @return TSStatusCode.SUCCESS_STATUS when creation successful, the message is the partition
+   *     version after the creation
    */
   public TSStatus createDataPartition(CreateDataPartitionReq req) {
-    dataPartitionReadWriteLock.writeLock().lock();
+    long version;
+    partitionReadWriteLock.writeLock().lock();
     regionReadWriteLock.writeLock().lock();
 
     try {
-      // Allocate DataPartition by CreateDataPartitionPlan
+      // Copy the maps on the path of each modified SeriesPartitionSlot, the others are shared with
+      // the old version
+      Map<String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
+          dataPartitionMap = new HashMap<>(dataPartition.getDataPartitionMap());
+      Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> latestSlotsMap =
+          new HashMap<>(latestTimePartitionSlots);
       Map<String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
           assignedResult = req.getAssignedDataPartition();
       assignedResult.forEach(
-          (storageGroup, seriesPartitionTimePartitionSlots) ->
-              seriesPartitionTimePartitionSlots.forEach(
-                  ((seriesPartitionSlot, timePartitionSlotRegionReplicaSets) ->
-                      timePartitionSlotRegionReplicaSets.forEach(
-                          ((timePartitionSlot, regionReplicaSets) ->
-                              regionReplicaSets.forEach(
-                                  regionReplicaSet -> {
-                                    dataPartition.createDataPartition(
-                                        storageGroup,
-                                        seriesPartitionSlot,
-                                        timePartitionSlot,
-                                        regionReplicaSet);
-                                    regionSlotsCounter.computeIfPresent(
-                                        regionReplicaSet.getRegionId(),
-                                        (consensusGroupId, count) -> (count + 1));
-                                  }))))));
+          (storageGroup, seriesPartitionTimePartitionSlots) -> {
+            Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>
+                seriesPartitionSlotMap =
+                    new HashMap<>(
+                        dataPartitionMap.getOrDefault(storageGroup, Collections.emptyMap()));
+            Map<TSeriesPartitionSlot, List<TTimePartitionSlot>> latestSlots =
+                new HashMap<>(latestSlotsMap.getOrDefault(storageGroup, Collections.emptyMap()));
+            seriesPartitionTimePartitionSlots.forEach(
+                (seriesPartitionSlot, timePartitionSlotRegionReplicaSets) -> {
+                  latestSlots.put(
+                      seriesPartitionSlot,
+                      mergeLatestTimePartitionSlots(
+                          latestSlots.get(seriesPartitionSlot),
+                          timePartitionSlotRegionReplicaSets.keySet()));
+                  Map<TTimePartitionSlot, List<TRegionReplicaSet>> timePartitionSlotMap =
+                      new HashMap<>(
+                          seriesPartitionSlotMap.getOrDefault(
+                              seriesPartitionSlot, Collections.emptyMap()));
+                  timePartitionSlotRegionReplicaSets.forEach(
+                      (timePartitionSlot, regionReplicaSets) ->
+                          regionReplicaSets.forEach(
+                              regionReplicaSet -> {
+                                timePartitionSlotMap.put(
+                                    timePartitionSlot,
+                                    Collections.singletonList(regionReplicaSet));
+                                regionSlotsCounter.computeIfPresent(
+                                    regionReplicaSet.getRegionId(),
+                                    (consensusGroupId, count) -> (count + 1));
+                              }));
+                  seriesPartitionSlotMap.put(seriesPartitionSlot, timePartitionSlotMap);
+                });
+            dataPartitionMap.put(storageGroup, seriesPartitionSlotMap);
+            latestSlotsMap.put(storageGroup, latestSlots);
+          });
+      dataPartition = newDataPartition(dataPartitionMap);
+      latestTimePartitionSlots = latestSlotsMap;
+      version = partitionVersion.incrementAndGet();
     } finally {
       regionReadWriteLock.writeLock().unlock();
-      dataPartitionReadWriteLock.writeLock().unlock();
+      partitionReadWriteLock.writeLock().unlock();
     }
 
-    return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+    return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode())
+        .setMessage(String.valueOf(version));
   }
 
   /**
@@ -341,14 +481,65 @@ public class PartitionInfo implements SnapshotProcessor {
   public Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>>
       filterNoAssignedDataPartitionSlots(
           Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> partitionSlotsMap) {
-    Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> result;
-    dataPartitionReadWriteLock.readLock().lock();
-    try {
-      result = dataPartition.filterNoAssignedDataPartitionSlots(partitionSlotsMap);
-    } finally {
-      dataPartitionReadWriteLock.readLock().unlock();
+    return dataPartition.filterNoAssignedDataPartitionSlots(partitionSlotsMap);
+  }
+
+  /**
+   * Get the two latest assigned TimePartitionSlots of the specific SeriesPartitionSlot
+   *
+   * @return The TimePartitionSlots with the largest start times, the latest first. Empty if there
+   *     is none
+   */
+  public List<TTimePartitionSlot> getLatestTimePartitionSlots(
+      String storageGroup, TSeriesPartitionSlot seriesPartitionSlot) {
+    return latestTimePartitionSlots
+        .getOrDefault(storageGroup, Collections.emptyMap())
+        .getOrDefault(seriesPartitionSlot, Collections.emptyList());
+  }
+
+  /** @return The two latest of the old latest TimePartitionSlots and the new ones */
+  private static List<TTimePartitionSlot> mergeLatestTimePartitionSlots(
+      List<TTimePartitionSlot> latestSlots, Collection<TTimePartitionSlot> timePartitionSlots) {
+    TTimePartitionSlot latest = null;
+    TTimePartitionSlot previous = null;
+    List<TTimePartitionSlot> candidates = new ArrayList<>(timePartitionSlots);
+    if (latestSlots != null) {
+      candidates.addAll(latestSlots);
     }
-    return result;
+    for (TTimePartitionSlot timePartitionSlot : candidates) {
+      if (latest == null || timePartitionSlot.getStartTime() > latest.getStartTime()) {
+        previous = latest;
+        latest = timePartitionSlot;
+      } else if (timePartitionSlot.getStartTime() < latest.getStartTime()
+          && (previous == null || timePartitionSlot.getStartTime() > previous.getStartTime())) {
+        previous = timePartitionSlot;
+      }
+    }
+    return previous == null
+        ? Collections.singletonList(latest)
+        : Collections.unmodifiableList(Arrays.asList(latest, previous));
+  }
+
+  private static Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>>
+      buildLatestTimePartitionSlots(DataPartition dataPartition) {
+    Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> latestSlotsMap =
+        new HashMap<>();
+    dataPartition
+        .getDataPartitionMap()
+        .forEach(
+            (storageGroup, seriesPartitionSlotMap) -> {
+              Map<TSeriesPartitionSlot, List<TTimePartitionSlot>> latestSlots = new HashMap<>();
+              seriesPartitionSlotMap.forEach(
+                  (seriesPartitionSlot, timePartitionSlotMap) -> {
+                    if (!timePartitionSlotMap.isEmpty()) {
+                      latestSlots.put(
+                          seriesPartitionSlot,
+                          mergeLatestTimePartitionSlots(null, timePartitionSlotMap.keySet()));
+                    }
+                  });
+              latestSlotsMap.put(storageGroup, latestSlots);
+            });
+    return latestSlotsMap;
   }
 
   /** Get RegionReplicaSet by the specific TConsensusGroupIds */
@@ -406,20 +597,32 @@ public class PartitionInfo implements SnapshotProcessor {
   }
 
   private void deleteDataPartitionMapByStorageGroup(String storageGroup) {
-    dataPartitionReadWriteLock.writeLock().lock();
+    partitionReadWriteLock.writeLock().lock();
     try {
-      dataPartition.getDataPartitionMap().remove(storageGroup);
+      Map<String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
+          dataPartitionMap = new HashMap<>(dataPartition.getDataPartitionMap());
+      dataPartitionMap.remove(storageGroup);
+      Map<String, Map<TSeriesPartitionSlot, List<TTimePartitionSlot>>> latestSlotsMap =
+          new HashMap<>(latestTimePartitionSlots);
+      latestSlotsMap.remove(storageGroup);
+      dataPartition = newDataPartition(dataPartitionMap);
+      latestTimePartitionSlots = latestSlotsMap;
+      partitionVersion.incrementAndGet();
     } finally {
-      dataPartitionReadWriteLock.writeLock().unlock();
+      partitionReadWriteLock.writeLock().unlock();
     }
   }
 
   private void deleteSchemaPartitionMapByStorageGroup(String storageGroup) {
-    schemaPartitionReadWriteLock.writeLock().lock();
+    partitionReadWriteLock.writeLock().lock();
     try {
-      schemaPartition.getSchemaPartitionMap().remove(storageGroup);
+      Map<String, Map<TSeriesPartitionSlot, TRegionReplicaSet>> schemaPartitionMap =
+          new HashMap<>(schemaPartition.getSchemaPartitionMap());
+      schemaPartitionMap.remove(storageGroup);
+      schemaPartition = newSchemaPartition(schemaPartitionMap);
+      partitionVersion.incrementAndGet();
     } finally {
-      schemaPartitionReadWriteLock.writeLock().unlock();
+      partitionReadWriteLock.writeLock().unlock();
     }
   }
 
@@ -442,6 +645,9 @@ public class PartitionInfo implements SnapshotProcessor {
         TIOStreamTransport tioStreamTransport = new TIOStreamTransport(fileOutputStream)) {
       TProtocol protocol = new TBinaryProtocol(tioStreamTransport);
 
+      // serialize partitionVersion
+      ReadWriteIOUtils.write(PARTITION_VERSION_MARKER, fileOutputStream);
+      ReadWriteIOUtils.write(partitionVersion.get(), fileOutputStream);
       // serialize nextRegionGroupId
       ReadWriteIOUtils.write(nextRegionGroupId.get(), fileOutputStream);
       // serialize regionMap
@@ -488,37 +694,44 @@ public class PartitionInfo implements SnapshotProcessor {
       // before restoring a snapshot, clear all old data
       clear();
       // start to restore
-      nextRegionGroupId.set(ReadWriteIOUtils.readInt(fileInputStream));
+      int head = ReadWriteIOUtils.readInt(fileInputStream);
+      if (head == PARTITION_VERSION_MARKER) {
+        partitionVersion.set(ReadWriteIOUtils.readLong(fileInputStream));
+        head = ReadWriteIOUtils.readInt(fileInputStream);
+      }
+      nextRegionGroupId.set(head);
       deserializeRegionMap(fileInputStream, protocol);
-      schemaPartition.deserialize(fileInputStream, protocol);
-      dataPartition.deserialize(fileInputStream, protocol);
+      SchemaPartition loadedSchemaPartition = newSchemaPartition(new HashMap<>());
+      loadedSchemaPartition.deserialize(fileInputStream, protocol);
+      DataPartition loadedDataPartition = newDataPartition(new HashMap<>());
+      loadedDataPartition.deserialize(fileInputStream, protocol);
+      schemaPartition = loadedSchemaPartition;
+      dataPartition = loadedDataPartition;
+      latestTimePartitionSlots = buildLatestTimePartitionSlots(loadedDataPartition);
     } finally {
       unlockAllWrite();
     }
   }
 
   private void lockAllWrite() {
+    partitionReadWriteLock.writeLock().lock();
     regionReadWriteLock.writeLock().lock();
-    schemaPartitionReadWriteLock.writeLock().lock();
-    dataPartitionReadWriteLock.writeLock().lock();
   }
 
   private void unlockAllWrite() {
     regionReadWriteLock.writeLock().unlock();
-    schemaPartitionReadWriteLock.writeLock().unlock();
-    dataPartitionReadWriteLock.writeLock().unlock();
+    partitionReadWriteLock.writeLock().unlock();
   }
 
   private void lockAllRead() {
+    // the partitions are immutable, only their modifications need to be blocked
+    partitionReadWriteLock.readLock().lock();
     regionReadWriteLock.readLock().lock();
-    schemaPartitionReadWriteLock.readLock().lock();
-    dataPartitionReadWriteLock.readLock().lock();
   }
 
   private void unlockAllRead() {
     regionReadWriteLock.readLock().unlock();
-    schemaPartitionReadWriteLock.readLock().unlock();
-    dataPartitionReadWriteLock.readLock().unlock();
+    partitionReadWriteLock.readLock().unlock();
   }
 
   @TestOnly
@@ -567,12 +780,9 @@ public class PartitionInfo implements SnapshotProcessor {
     regionReplicaMap.clear();
     regionSlotsCounter.clear();
 
-    if (schemaPartition.getSchemaPartitionMap() != null) {
-      schemaPartition.getSchemaPartitionMap().clear();
-    }
-
-    if (dataPartition.getDataPartitionMap() != null) {
-      dataPartition.getDataPartitionMap().clear();
-    }
+    schemaPartition = newSchemaPartition(new HashMap<>());
+    dataPartition = newDataPartition(new HashMap<>());
+    latestTimePartitionSlots = new HashMap<>();
+    partitionVersion.set(0);
   }
 }
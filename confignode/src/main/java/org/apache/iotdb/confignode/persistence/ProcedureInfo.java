@@ -24,65 +24,37 @@ import org.apache.iotdb.commons.conf.CommonDescriptor;
 import org.apache.iotdb.confignode.consensus.request.write.DeleteProcedureReq;
 import org.apache.iotdb.confignode.consensus.request.write.UpdateProcedureReq;
 import org.apache.iotdb.confignode.procedure.Procedure;
-import org.apache.iotdb.confignode.procedure.conf.ProcedureNodeConstant;
 import org.apache.iotdb.confignode.procedure.store.ProcedureFactory;
-import org.apache.iotdb.confignode.procedure.store.ProcedureWAL;
+import org.apache.iotdb.confignode.procedure.store.SegmentedProcedureWAL;
 import org.apache.iotdb.rpc.TSStatusCode;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class ProcedureInfo {
 
   private static final Logger LOG = LoggerFactory.getLogger(ProcedureInfo.class);
 
-  private final ProcedureFactory procedureFactory = ProcedureFactory.getInstance();
   private final String procedureWalDir =
       CommonDescriptor.getInstance().getConfig().getProcedureWalFolder();
-  private final ConcurrentHashMap<Long, ProcedureWAL> procWALMap = new ConcurrentHashMap<>();
+  // Records are not fsynced one by one, as the former per-procedure files were not either. They
+  // reach the OS on every commit, so only a host crash could lose the tail of the current segment,
+  // and a new segment is fsynced before the older ones are deleted. The procedures are not part
+  // of the ConfigNode snapshot, so they could not be rebuilt from the consensus log.
+  private final SegmentedProcedureWAL procedureWAL =
+      new SegmentedProcedureWAL(procedureWalDir, ProcedureFactory.getInstance(), false);
 
   public void load(List<Procedure> procedureList) {
-    try {
-      Files.list(Paths.get(procedureWalDir))
-          .filter(
-              path ->
-                  path.getFileName()
-                      .toString()
-                      .endsWith(ProcedureNodeConstant.PROCEDURE_WAL_SUFFIX))
-          .sorted(
-              (p1, p2) ->
-                  Long.compareUnsigned(
-                      Long.parseLong(p1.getFileName().toString().split("\\.")[0]),
-                      Long.parseLong(p2.getFileName().toString().split("\\.")[0])))
-          .forEach(
-              path -> {
-                String fileName = path.getFileName().toString();
-                long procId = Long.parseLong(fileName.split("\\.")[0]);
-                ProcedureWAL procedureWAL =
-                    procWALMap.computeIfAbsent(
-                        procId, id -> new ProcedureWAL(path, procedureFactory));
-                procedureWAL.load(procedureList);
-              });
-    } catch (IOException e) {
-      LOG.error("Load procedure wal failed.", e);
-    }
+    procedureWAL.load(procedureList);
   }
 
   public TSStatus updateProcedure(UpdateProcedureReq updateProcedureReq) {
     Procedure procedure = updateProcedureReq.getProcedure();
-    long procId = procedure.getProcId();
-    Path path = Paths.get(procedureWalDir, procId + ProcedureNodeConstant.PROCEDURE_WAL_SUFFIX);
-    ProcedureWAL procedureWAL =
-        procWALMap.computeIfAbsent(procId, id -> new ProcedureWAL(path, procedureFactory));
     try {
-      procedureWAL.save(procedure);
+      procedureWAL.update(procedure);
     } catch (IOException e) {
       LOG.error("Update Procedure (pid={}) wal failed", procedure.getProcId(), e);
       return new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
@@ -92,11 +64,12 @@ public class ProcedureInfo {
 
   public TSStatus deleteProcedure(DeleteProcedureReq deleteProcedureReq) {
     long procId = deleteProcedureReq.getProcId();
-    ProcedureWAL procedureWAL = procWALMap.get(procId);
-    if (procedureWAL != null) {
-      procedureWAL.delete();
+    try {
+      procedureWAL.delete(new long[] {procId}, 0, 1);
+    } catch (IOException e) {
+      LOG.error("Delete Procedure (pid={}) wal failed", procId, e);
+      return new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
     }
-    procWALMap.remove(procId);
     return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
   }
 }
@@ -42,6 +42,7 @@ import org.apache.iotdb.confignode.consensus.request.write.SetStorageGroupReq;
 import org.apache.iotdb.confignode.consensus.request.write.SetTTLReq;
 import org.apache.iotdb.confignode.consensus.request.write.SetTimePartitionIntervalReq;
 import org.apache.iotdb.confignode.consensus.request.write.UpdateProcedureReq;
+import org.apache.iotdb.confignode.consensus.request.write.UpdateRegionLocationReq;
 import org.apache.iotdb.confignode.exception.physical.UnknownPhysicalPlanTypeException;
 import org.apache.iotdb.confignode.persistence.AuthorInfo;
 import org.apache.iotdb.confignode.persistence.ClusterSchemaInfo;
@@ -150,6 +151,8 @@ public class ConfigRequestExecutor {
         return partitionInfo.createSchemaPartition((CreateSchemaPartitionReq) req);
       case CreateDataPartition:
         return partitionInfo.createDataPartition((CreateDataPartitionReq) req);
+      case UpdateRegionLocation:
+        return partitionInfo.updateRegionLocation((UpdateRegionLocationReq) req);
       case UpdateProcedure:
         return procedureInfo.updateProcedure((UpdateProcedureReq) req);
       case DeleteProcedure:
@@ -458,6 +458,7 @@ public class ProcedureExecutor<Env> {
           }
         } else if (proc.getState() == ProcedureState.WAITING_TIMEOUT) {
           LOG.info("Added into timeoutExecutor {}", proc);
+          timeoutExecutor.add(proc);
         } else if (!suspended) {
           proc.setState(ProcedureState.SUCCESS);
         }
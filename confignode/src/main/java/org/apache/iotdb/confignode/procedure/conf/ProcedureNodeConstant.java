@@ -21,6 +21,7 @@ package org.apache.iotdb.confignode.procedure.conf;
 
 public class ProcedureNodeConstant {
   public static final String PROCEDURE_WAL_SUFFIX = ".proc.wal";
+  public static final String PROCEDURE_LOG_SEGMENT_SUFFIX = ".proc.log";
   public static final String PROCEDURENODE_PACKAGE = "org.apache.iotdb.procedurenode.service";
   public static final String JMX_TYPE = "type";
   public static final String GLOBAL_NAME = "IoTDB  ProcedureNode";
@@ -26,7 +26,6 @@ import org.apache.iotdb.commons.client.IClientManager;
 import org.apache.iotdb.commons.client.sync.SyncDataNodeInternalServiceClient;
 import org.apache.iotdb.confignode.manager.ConfigManager;
 import org.apache.iotdb.db.client.DataNodeClientPoolFactory;
-import org.apache.iotdb.mpp.rpc.thrift.InternalService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,7 +54,7 @@ public class ConfigNodeProcedureEnv {
     return configManager;
   }
 
-  public InternalService.Client getDataNodeClient(TRegionReplicaSet dataRegionReplicaSet)
+  public SyncDataNodeInternalServiceClient getDataNodeClient(TRegionReplicaSet dataRegionReplicaSet)
       throws IOException {
     List<TDataNodeLocation> dataNodeLocations = dataRegionReplicaSet.getDataNodeLocations();
     int retry = dataNodeLocations.size() - 1;
@@ -77,7 +76,7 @@ public class ConfigNodeProcedureEnv {
     return null;
   }
 
-  public InternalService.Client getDataNodeClient(TDataNodeLocation dataNodeLocation)
+  public SyncDataNodeInternalServiceClient getDataNodeClient(TDataNodeLocation dataNodeLocation)
       throws IOException {
     return INTERNAL_SERVICE_CLIENT_MANAGER.borrowClient(dataNodeLocation.getInternalEndPoint());
   }
@@ -198,6 +198,8 @@ public class DeleteStorageGroupProcedure
     TInvalidateCacheReq invalidateCacheReq = new TInvalidateCacheReq();
     invalidateCacheReq.setStorageGroup(true);
     invalidateCacheReq.setFullPath(storageGroupName);
+    invalidateCacheReq.setPartitionVersion(
+        env.getConfigManager().getPartitionManager().getPartitionVersion());
     for (TDataNodeInfo dataNodeInfo : allDataNodes) {
       env.getDataNodeClient(dataNodeInfo.getLocation()).invalidateSchemaCache(invalidateCacheReq);
       env.getDataNodeClient(dataNodeInfo.getLocation())
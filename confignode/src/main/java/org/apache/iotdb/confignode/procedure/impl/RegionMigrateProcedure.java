@@ -0,0 +1,493 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.procedure.impl;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupType;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeInfo;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
+import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.commons.client.sync.SyncDataNodeInternalServiceClient;
+import org.apache.iotdb.commons.exception.MetadataException;
+import org.apache.iotdb.commons.utils.BasicStructureSerDeUtil;
+import org.apache.iotdb.commons.utils.StatusUtils;
+import org.apache.iotdb.commons.utils.ThriftCommonsSerDeUtils;
+import org.apache.iotdb.confignode.consensus.request.write.UpdateRegionLocationReq;
+import org.apache.iotdb.confignode.manager.ClusterSchemaManager;
+import org.apache.iotdb.confignode.procedure.StateMachineProcedure;
+import org.apache.iotdb.confignode.procedure.env.ConfigNodeProcedureEnv;
+import org.apache.iotdb.confignode.procedure.exception.ProcedureException;
+import org.apache.iotdb.confignode.procedure.exception.ProcedureSuspendedException;
+import org.apache.iotdb.confignode.procedure.exception.ProcedureYieldException;
+import org.apache.iotdb.confignode.procedure.state.ProcedureState;
+import org.apache.iotdb.confignode.procedure.state.RegionMigrateState;
+import org.apache.iotdb.confignode.procedure.store.ProcedureFactory;
+import org.apache.iotdb.confignode.rpc.thrift.TStorageGroupSchema;
+import org.apache.iotdb.mpp.rpc.thrift.TInvalidateCacheReq;
+import org.apache.iotdb.mpp.rpc.thrift.TPullRegionReq;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionPeerReq;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionPullProgressResp;
+
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Move a replica of a DataRegion from the source DataNode to the target DataNode without stopping
+ * the Region. The target pulls the sealed files of the Region from the source under its bandwidth
+ * throttle and joins the consensus group, which replays the writes after the consensus index
+ * captured when the files were listed. Then the ConfigNode routes the Region to the target, and the
+ * source leaves the group and drops its replica.
+ *
+ * <p>If the migration fails, the target leaves the group and drops the pulled files, and the Region
+ * is routed to the source again.
+ */
+public class RegionMigrateProcedure
+    extends StateMachineProcedure<ConfigNodeProcedureEnv, RegionMigrateState> {
+  private static final Logger LOG = LoggerFactory.getLogger(RegionMigrateProcedure.class);
+  private static final int retryThreshold = 5;
+  private static final long PULL_PROGRESS_POLL_INTERVAL_MS = 1000;
+
+  private TConsensusGroupId regionId;
+  private TDataNodeLocation source;
+  private TDataNodeLocation target;
+
+  // resolved when the procedure is prepared
+  private String storageGroup;
+  private long ttl = Long.MAX_VALUE;
+  // the consensus index of the Region when its files were listed, -1 if unknown
+  private long startIndex = -1;
+
+  private int failures = 0;
+
+  public RegionMigrateProcedure() {
+    super();
+  }
+
+  public RegionMigrateProcedure(
+      TConsensusGroupId regionId, TDataNodeLocation source, TDataNodeLocation target) {
+    super();
+    this.regionId = regionId;
+    this.source = source;
+    this.target = target;
+  }
+
+  public TConsensusGroupId getRegionId() {
+    return regionId;
+  }
+
+  public TDataNodeLocation getSource() {
+    return source;
+  }
+
+  public TDataNodeLocation getTarget() {
+    return target;
+  }
+
+  public long getStartIndex() {
+    return startIndex;
+  }
+
+  @Override
+  protected Flow executeFromState(ConfigNodeProcedureEnv env, RegionMigrateState state)
+      throws ProcedureSuspendedException, ProcedureYieldException, InterruptedException {
+    if (regionId == null) {
+      return Flow.NO_MORE_STATE;
+    }
+    try {
+      switch (state) {
+        case REGION_MIGRATE_PREPARE:
+          LOG.info(
+              "Migrate {} from DataNode {} to DataNode {}",
+              regionId,
+              source.getDataNodeId(),
+              target.getDataNodeId());
+          if (prepare(env)) {
+            setNextState(RegionMigrateState.PULL_REGION);
+          }
+          break;
+        case PULL_REGION:
+          TSStatus pullStatus = pullRegion(env);
+          if (verifySucceed(pullStatus)) {
+            setNextState(RegionMigrateState.WAIT_REGION_PULLED);
+          } else {
+            onFailure(state, "Failed to start pulling, status is " + pullStatus);
+          }
+          break;
+        case WAIT_REGION_PULLED:
+          TRegionPullProgressResp progress = getPullProgress(env);
+          switch (progress.getState()) {
+            case "FINISHED":
+              if (progress.isSetConsensusIndex()) {
+                startIndex = progress.getConsensusIndex();
+              }
+              LOG.info(
+                  "{} has been pulled by DataNode {} at consensus index {}",
+                  regionId,
+                  target.getDataNodeId(),
+                  startIndex);
+              failures = 0;
+              setNextState(RegionMigrateState.ADD_REGION_PEER);
+              break;
+            case "FAILED":
+              // the pulling is restarted from scratch
+              onFailure(state, progress.getStatus().getMessage());
+              setNextState(RegionMigrateState.PULL_REGION);
+              break;
+            case "PULLING":
+            default:
+              LOG.debug(
+                  "DataNode {} has pulled {}/{} bytes of {}",
+                  target.getDataNodeId(),
+                  progress.getTransferredBytes(),
+                  progress.getTotalBytes(),
+                  regionId);
+              // release the worker until the next poll, see setTimeoutFailure
+              setTimeout(PULL_PROGRESS_POLL_INTERVAL_MS);
+              setState(ProcedureState.WAITING_TIMEOUT);
+              throw new ProcedureSuspendedException();
+          }
+          break;
+        case ADD_REGION_PEER:
+          TSStatus addStatus = addRegionPeer(env);
+          if (verifySucceed(addStatus)) {
+            failures = 0;
+            setNextState(RegionMigrateState.UPDATE_REGION_LOCATION);
+          } else {
+            onFailure(state, "Failed to add the target peer, status is " + addStatus);
+          }
+          break;
+        case UPDATE_REGION_LOCATION:
+          TSStatus updateStatus = updateRegionLocation(env, source, target);
+          if (verifySucceed(updateStatus)) {
+            failures = 0;
+            setNextState(RegionMigrateState.INVALIDATE_CACHE);
+          } else {
+            onFailure(state, "Failed to update the location, status is " + updateStatus);
+          }
+          break;
+        case INVALIDATE_CACHE:
+          invalidateCache(env);
+          failures = 0;
+          setNextState(RegionMigrateState.REMOVE_REGION_PEER);
+          break;
+        case REMOVE_REGION_PEER:
+          TSStatus removeStatus = removeRegionPeer(env, source);
+          if (verifySucceed(removeStatus)) {
+            LOG.info(
+                "{} has been migrated from DataNode {} to DataNode {}",
+                regionId,
+                source.getDataNodeId(),
+                target.getDataNodeId());
+            return Flow.NO_MORE_STATE;
+          }
+          onFailure(state, "Failed to remove the source peer, status is " + removeStatus);
+          break;
+      }
+    } catch (TException | IOException e) {
+      LOG.error("Retriable error trying to migrate {}, state {}", regionId, state, e);
+      onFailure(state, e.getMessage());
+    }
+    return Flow.HAS_MORE_STATE;
+  }
+
+  /** Resolve the StorageGroup of the Region, and check the source and target DataNodes */
+  private boolean prepare(ConfigNodeProcedureEnv env) {
+    if (regionId.getType() != TConsensusGroupType.DataRegion) {
+      setFailure(new ProcedureException("Only DataRegion could be migrated, but got " + regionId));
+      return false;
+    }
+    TRegionReplicaSet replicaSet = getCurrentReplicaSet(env);
+    if (replicaSet == null || !containsDataNode(replicaSet, source)) {
+      setFailure(new ProcedureException(regionId + " is not on DataNode " + source));
+      return false;
+    }
+    if (containsDataNode(replicaSet, target)) {
+      setFailure(new ProcedureException(regionId + " is already on DataNode " + target));
+      return false;
+    }
+
+    ClusterSchemaManager clusterSchemaManager = env.getConfigManager().getClusterSchemaManager();
+    for (String storageGroupName : clusterSchemaManager.getStorageGroupNames()) {
+      if (clusterSchemaManager
+          .getRegionGroupIds(storageGroupName, TConsensusGroupType.DataRegion)
+          .contains(regionId)) {
+        storageGroup = storageGroupName;
+        try {
+          TStorageGroupSchema storageGroupSchema =
+              clusterSchemaManager.getStorageGroupSchemaByName(storageGroupName);
+          if (storageGroupSchema.isSetTTL()) {
+            ttl = storageGroupSchema.getTTL();
+          }
+        } catch (MetadataException e) {
+          LOG.warn("Failed to get the TTL of StorageGroup {}", storageGroupName, e);
+        }
+        return true;
+      }
+    }
+    setFailure(new ProcedureException("No StorageGroup holds " + regionId));
+    return false;
+  }
+
+  protected TSStatus pullRegion(ConfigNodeProcedureEnv env) throws IOException, TException {
+    TRegionReplicaSet replicaSet = getCurrentReplicaSet(env);
+    List<TDataNodeLocation> dataNodeLocations = new ArrayList<>(replicaSet.getDataNodeLocations());
+    if (!containsDataNode(replicaSet, target)) {
+      dataNodeLocations.add(target);
+    }
+    TPullRegionReq req =
+        new TPullRegionReq(
+            new TRegionReplicaSet(regionId, dataNodeLocations), storageGroup, source);
+    req.setTtl(ttl);
+    try (SyncDataNodeInternalServiceClient client = env.getDataNodeClient(target)) {
+      return client.pullRegion(req);
+    }
+  }
+
+  protected TRegionPullProgressResp getPullProgress(ConfigNodeProcedureEnv env)
+      throws IOException, TException {
+    try (SyncDataNodeInternalServiceClient client = env.getDataNodeClient(target)) {
+      return client.getRegionPullProgress(regionId);
+    }
+  }
+
+  /** Stop pulling on the target, and drop the pulled files and the replica loaded from them */
+  protected TSStatus cancelRegionPull(ConfigNodeProcedureEnv env) throws IOException, TException {
+    try (SyncDataNodeInternalServiceClient client = env.getDataNodeClient(target)) {
+      return client.cancelRegionPull(regionId);
+    }
+  }
+
+  /**
+   * Adding the target is sent to the source, which sends the target the writes after the
+   * consensus index of the pulled files
+   */
+  private TSStatus addRegionPeer(ConfigNodeProcedureEnv env) throws IOException, TException {
+    TRegionPeerReq req = new TRegionPeerReq(regionId, target);
+    if (startIndex >= 0) {
+      req.setStartIndex(startIndex);
+    }
+    return changeRegionPeer(env, req, true);
+  }
+
+  private TSStatus removeRegionPeer(ConfigNodeProcedureEnv env, TDataNodeLocation peer)
+      throws IOException, TException {
+    return changeRegionPeer(env, new TRegionPeerReq(regionId, peer), false);
+  }
+
+  /** Both adding and removing a peer are sent to the source */
+  protected TSStatus changeRegionPeer(
+      ConfigNodeProcedureEnv env, TRegionPeerReq req, boolean isAdd)
+      throws IOException, TException {
+    try (SyncDataNodeInternalServiceClient client = env.getDataNodeClient(source)) {
+      return isAdd ? client.addRegionPeer(req) : client.removeRegionPeer(req);
+    }
+  }
+
+  protected TSStatus updateRegionLocation(
+      ConfigNodeProcedureEnv env, TDataNodeLocation from, TDataNodeLocation to) {
+    return env.getConfigManager()
+        .getPartitionManager()
+        .updateRegionLocation(new UpdateRegionLocationReq(regionId, from, to));
+  }
+
+  protected void invalidateCache(ConfigNodeProcedureEnv env) throws IOException, TException {
+    List<TDataNodeInfo> allDataNodes =
+        env.getConfigManager().getNodeManager().getOnlineDataNodes(-1);
+    TInvalidateCacheReq invalidateCacheReq = new TInvalidateCacheReq();
+    invalidateCacheReq.setStorageGroup(true);
+    invalidateCacheReq.setFullPath(storageGroup);
+    for (TDataNodeInfo dataNodeInfo : allDataNodes) {
+      try (SyncDataNodeInternalServiceClient client =
+          env.getDataNodeClient(dataNodeInfo.getLocation())) {
+        client.invalidatePartitionCache(invalidateCacheReq);
+      }
+    }
+  }
+
+  protected TRegionReplicaSet getCurrentReplicaSet(ConfigNodeProcedureEnv env) {
+    return env.getConfigManager()
+        .getPartitionManager()
+        .getRegionReplicaSets(Collections.singletonList(regionId))
+        .get(0);
+  }
+
+  private boolean containsDataNode(TRegionReplicaSet replicaSet, TDataNodeLocation dataNode) {
+    return replicaSet.getDataNodeLocations().stream()
+        .anyMatch(location -> location.getDataNodeId() == dataNode.getDataNodeId());
+  }
+
+  private void onFailure(RegionMigrateState state, String message) {
+    if (++failures > retryThreshold) {
+      setFailure(
+          new ProcedureException(
+              String.format("Migrate %s failed at state %s: %s", regionId, state, message)));
+    }
+  }
+
+  /**
+   * Poll the progress of pulling again. The procedure waits in the timeout executor between polls
+   * instead of holding a worker, and is put back to the scheduler here.
+   */
+  @Override
+  protected synchronized boolean setTimeoutFailure(ConfigNodeProcedureEnv env) {
+    setState(ProcedureState.RUNNABLE);
+    wakeUp(env);
+    return false;
+  }
+
+  protected void wakeUp(ConfigNodeProcedureEnv env) {
+    env.getConfigManager().getProcedureManager().getScheduler().addFront(this);
+  }
+
+  /**
+   * Compensate the executed states in reverse order: route the Region to the source again, remove
+   * the target from the consensus group, then drop the files and the replica on the target. An
+   * IOException makes the framework retry the rollback of the state later.
+   */
+  @Override
+  protected void rollbackState(ConfigNodeProcedureEnv env, RegionMigrateState state)
+      throws IOException, InterruptedException {
+    if (regionId == null) {
+      return;
+    }
+    LOG.info("Rollback state {} of migrating {}", state, regionId);
+    try {
+      switch (state) {
+        case UPDATE_REGION_LOCATION:
+          TRegionReplicaSet replicaSet = getCurrentReplicaSet(env);
+          if (replicaSet != null
+              && containsDataNode(replicaSet, target)
+              && !containsDataNode(replicaSet, source)) {
+            TSStatus restoreStatus = updateRegionLocation(env, target, source);
+            if (!verifySucceed(restoreStatus)) {
+              throw new IOException(
+                  String.format(
+                      "Failed to route %s to DataNode %d again, status is %s",
+                      regionId, source.getDataNodeId(), restoreStatus));
+            }
+            invalidateCache(env);
+          }
+          break;
+        case ADD_REGION_PEER:
+          // fails if the target has not been added, which needs no compensation
+          TSStatus removeStatus = removeRegionPeer(env, target);
+          if (!verifySucceed(removeStatus)) {
+            LOG.warn(
+                "Failed to remove DataNode {} from the group of {}, status is {}",
+                target.getDataNodeId(),
+                regionId,
+                removeStatus);
+          }
+          break;
+        case PULL_REGION:
+          TSStatus cancelStatus = cancelRegionPull(env);
+          if (!verifySucceed(cancelStatus)) {
+            LOG.warn(
+                "Failed to drop the pulled files of {} on DataNode {}, status is {}",
+                regionId,
+                target.getDataNodeId(),
+                cancelStatus);
+          }
+          break;
+        default:
+          break;
+      }
+    } catch (TException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  protected void completionCleanup(ConfigNodeProcedureEnv env) {
+    env.getConfigManager().getProcedureManager().onRegionMigrationFinished(regionId, getProcId());
+  }
+
+  @Override
+  protected boolean isRollbackSupported(RegionMigrateState state) {
+    // the source may have left the group
+    return state != RegionMigrateState.REMOVE_REGION_PEER;
+  }
+
+  @Override
+  protected RegionMigrateState getState(int stateId) {
+    return RegionMigrateState.values()[stateId];
+  }
+
+  @Override
+  protected int getStateId(RegionMigrateState regionMigrateState) {
+    return regionMigrateState.ordinal();
+  }
+
+  @Override
+  protected RegionMigrateState getInitialState() {
+    return RegionMigrateState.REGION_MIGRATE_PREPARE;
+  }
+
+  @Override
+  public void serialize(ByteBuffer byteBuffer) {
+    byteBuffer.putInt(ProcedureFactory.ProcedureType.REGION_MIGRATE_PROCEDURE.ordinal());
+    super.serialize(byteBuffer);
+    ThriftCommonsSerDeUtils.serializeTConsensusGroupId(regionId, byteBuffer);
+    ThriftCommonsSerDeUtils.serializeTDataNodeLocation(source, byteBuffer);
+    ThriftCommonsSerDeUtils.serializeTDataNodeLocation(target, byteBuffer);
+    BasicStructureSerDeUtil.write(storageGroup, byteBuffer);
+    byteBuffer.putLong(ttl);
+    byteBuffer.putLong(startIndex);
+  }
+
+  @Override
+  public void deserialize(ByteBuffer byteBuffer) {
+    super.deserialize(byteBuffer);
+    regionId = ThriftCommonsSerDeUtils.deserializeTConsensusGroupId(byteBuffer);
+    source = ThriftCommonsSerDeUtils.deserializeTDataNodeLocation(byteBuffer);
+    target = ThriftCommonsSerDeUtils.deserializeTDataNodeLocation(byteBuffer);
+    storageGroup = BasicStructureSerDeUtil.readString(byteBuffer);
+    ttl = byteBuffer.getLong();
+    startIndex = byteBuffer.getLong();
+  }
+
+  public boolean verifySucceed(TSStatus status) {
+    return status.getCode() == StatusUtils.OK.getCode();
+  }
+
+  @Override
+  public boolean equals(Object that) {
+    if (that instanceof RegionMigrateProcedure) {
+      RegionMigrateProcedure thatProc = (RegionMigrateProcedure) that;
+      return thatProc.getProcId() == this.getProcId()
+          && thatProc.getState() == this.getState()
+          && thatProc.regionId.equals(this.regionId)
+          && thatProc.source.equals(this.source)
+          && thatProc.target.equals(this.target)
+          && Objects.equals(thatProc.storageGroup, this.storageGroup)
+          && thatProc.ttl == this.ttl
+          && thatProc.startIndex == this.startIndex;
+    }
+    return false;
+  }
+}
@@ -21,6 +21,7 @@ package org.apache.iotdb.confignode.procedure.store;
 
 import org.apache.iotdb.confignode.procedure.Procedure;
 import org.apache.iotdb.confignode.procedure.impl.DeleteStorageGroupProcedure;
+import org.apache.iotdb.confignode.procedure.impl.RegionMigrateProcedure;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -40,6 +41,9 @@ public class ProcedureFactory implements IProcedureFactory {
       case DELETE_STORAGE_GROUP_PROCEDURE:
         procedure = new DeleteStorageGroupProcedure();
         break;
+      case REGION_MIGRATE_PROCEDURE:
+        procedure = new RegionMigrateProcedure();
+        break;
       default:
         throw new IOException("unknown Procedure type: " + typeNum);
     }
@@ -50,12 +54,15 @@ public class ProcedureFactory implements IProcedureFactory {
   public static ProcedureType getProcedureType(Procedure procedure) {
     if (procedure instanceof DeleteStorageGroupProcedure) {
       return ProcedureType.DELETE_STORAGE_GROUP_PROCEDURE;
+    } else if (procedure instanceof RegionMigrateProcedure) {
+      return ProcedureType.REGION_MIGRATE_PROCEDURE;
     }
     return null;
   }
 
   public enum ProcedureType {
-    DELETE_STORAGE_GROUP_PROCEDURE
+    DELETE_STORAGE_GROUP_PROCEDURE,
+    REGION_MIGRATE_PROCEDURE
   }
 
   private static class ProcedureFactoryHolder {
@@ -22,7 +22,6 @@ package org.apache.iotdb.confignode.procedure.store;
 import org.apache.iotdb.commons.utils.TestOnly;
 import org.apache.iotdb.confignode.procedure.Procedure;
 import org.apache.iotdb.confignode.procedure.conf.ProcedureNodeConfigDescriptor;
-import org.apache.iotdb.confignode.procedure.conf.ProcedureNodeConstant;
 
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
@@ -31,38 +30,36 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class ProcedureStore implements IProcedureStore {
 
   private static final Logger LOG = LoggerFactory.getLogger(ProcedureStore.class);
   private String procedureWalDir =
       ProcedureNodeConfigDescriptor.getInstance().getConf().getProcedureWalDir();
-  private final ConcurrentHashMap<Long, ProcedureWAL> procWALMap = new ConcurrentHashMap<>();
-  private final IProcedureFactory procedureFactory;
+  private final SegmentedProcedureWAL procedureWAL;
   private volatile boolean isRunning = false;
 
   public ProcedureStore(IProcedureFactory procedureFactory) {
     try {
-      this.procedureFactory = procedureFactory;
       Files.createDirectories(Paths.get(procedureWalDir));
     } catch (IOException e) {
       throw new RuntimeException("Create procedure wal directory failed.", e);
     }
+    this.procedureWAL = new SegmentedProcedureWAL(procedureWalDir, procedureFactory, true);
   }
 
   @TestOnly
   public ProcedureStore(String testWALDir, IProcedureFactory procedureFactory) {
-    this.procedureFactory = procedureFactory;
     try {
       Files.createDirectories(Paths.get(testWALDir));
       procedureWalDir = testWALDir;
     } catch (IOException e) {
       throw new RuntimeException("Create procedure wal directory failed.", e);
     }
+    this.procedureWAL = new SegmentedProcedureWAL(procedureWalDir, procedureFactory, true);
   }
 
   public boolean isRunning() {
@@ -74,80 +71,55 @@ public class ProcedureStore implements IProcedureStore {
   }
 
   /**
-   * Load procedure wal files into memory.
+   * Load the procedures from the procedure log into memory.
    *
    * @param procedureList procedureList
    */
   public void load(List<Procedure> procedureList) {
-    try {
-      Files.list(Paths.get(procedureWalDir))
-          .filter(
-              path ->
-                  path.getFileName()
-                      .toString()
-                      .endsWith(ProcedureNodeConstant.PROCEDURE_WAL_SUFFIX))
-          .sorted(
-              (p1, p2) ->
-                  Long.compareUnsigned(
-                      Long.parseLong(p1.getFileName().toString().split("\\.")[0]),
-                      Long.parseLong(p2.getFileName().toString().split("\\.")[0])))
-          .forEach(
-              path -> {
-                String fileName = path.getFileName().toString();
-                long procId = Long.parseLong(fileName.split("\\.")[0]);
-                ProcedureWAL procedureWAL =
-                    procWALMap.computeIfAbsent(
-                        procId, id -> new ProcedureWAL(path, procedureFactory));
-                procedureWAL.load(procedureList);
-              });
-    } catch (IOException e) {
-      LOG.error("Load procedure wal failed.", e);
-    }
+    procedureWAL.load(procedureList);
   }
 
   /**
-   * Update procedure, roughly delete and create a new wal file.
+   * Update procedure, append its latest state to the procedure log.
    *
    * @param procedure procedure
    */
   public void update(Procedure procedure) {
     if (!procedure.needPersistance()) {
-      procWALMap.remove(procedure.getProcId());
       return;
     }
-    long procId = procedure.getProcId();
-    Path path = Paths.get(procedureWalDir, procId + ProcedureNodeConstant.PROCEDURE_WAL_SUFFIX);
-    ProcedureWAL procedureWAL =
-        procWALMap.computeIfAbsent(procId, id -> new ProcedureWAL(path, procedureFactory));
     try {
-      procedureWAL.save(procedure);
+      procedureWAL.update(procedure);
     } catch (IOException e) {
-      LOG.error("Update Procedure (pid={}) wal failed", procedure.getProcId());
+      LOG.error("Update Procedure (pid={}) wal failed", procedure.getProcId(), e);
     }
   }
 
   /**
-   * Batch update
+   * Batch update, the procedures are committed together.
    *
    * @param subprocs procedure array
    */
   public void update(Procedure[] subprocs) {
-    for (Procedure subproc : subprocs) {
-      update(subproc);
+    Procedure[] persistentProcs =
+        Arrays.stream(subprocs).filter(Procedure::needPersistance).toArray(Procedure[]::new);
+    if (persistentProcs.length == 0) {
+      return;
+    }
+    try {
+      procedureWAL.update(persistentProcs);
+    } catch (IOException e) {
+      LOG.error("Update {} procedures wal failed", persistentProcs.length, e);
     }
   }
 
   /**
-   * Delete procedure wal file
+   * Delete procedure from the procedure log
    *
    * @param procId procedure id
    */
   public void delete(long procId) {
-    ProcedureWAL procedureWAL = procWALMap.get(procId);
-    if (procedureWAL != null) {
-      procedureWAL.delete();
-    }
-    procWALMap.remove(procId);
+    delete(new long[] {procId});
   }
 
   /**
@@ -156,9 +128,7 @@ public class ProcedureStore implements IProcedureStore {
    * @param childProcIds procedure id array
    */
   public void delete(long[] childProcIds) {
-    for (long childProcId : childProcIds) {
-      delete(childProcId);
-    }
+    delete(childProcIds, 0, childProcIds.length);
   }
 
   /**
@@ -169,13 +139,16 @@ public class ProcedureStore implements IProcedureStore {
    * @param batchCount delete procedure count
    */
   public void delete(long[] batchIds, int startIndex, int batchCount) {
-    for (int i = startIndex; i < batchCount; i++) {
-      delete(batchIds[i]);
+    try {
+      procedureWAL.delete(batchIds, startIndex, batchCount);
+    } catch (IOException e) {
+      LOG.error("Delete procedures wal failed", e);
     }
   }
 
   /** clean all the wal, used for unit test. */
   public void cleanup() {
+    procedureWAL.close();
     try {
       FileUtils.cleanDirectory(new File(procedureWalDir));
     } catch (IOException e) {
@@ -185,6 +158,7 @@ public class ProcedureStore implements IProcedureStore {
 
   public void stop() {
     isRunning = false;
+    procedureWAL.close();
   }
 
   @Override
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.procedure.store;
+
+import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.confignode.procedure.Procedure;
+import org.apache.iotdb.confignode.procedure.conf.ProcedureNodeConstant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only procedure log split into segments. Every update or deletion of a procedure is
+ * appended as a record, so a state change costs one append instead of rewriting a file per
+ * procedure.
+ *
+ * <p>Records are committed in groups: the thread that gets to write flushes the records appended
+ * by all threads so far with one write and one fsync, the others just wait for it.
+ *
+ * <p>When a segment is full, a new segment is started with the latest states of the procedures
+ * still alive, and the older segments are deleted. So finished procedures are dropped and recovery
+ * reads at most a few segments.
+ *
+ * <p>Record: | length(int) | crc32 of body(int) | body: type(byte), procId(long), procedure |
+ */
+public class SegmentedProcedureWAL {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SegmentedProcedureWAL.class);
+
+  private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+  private static final int PROCEDURE_BUFFER_SIZE = 8 * 1024 * 1024;
+  private static final int RECORD_HEADER_SIZE = Integer.BYTES * 2;
+  private static final byte UPDATE = 0;
+  private static final byte DELETE = 1;
+
+  private final Path walDir;
+  private final IProcedureFactory procedureFactory;
+  private final long segmentSize;
+  // whether to fsync every commit, a new segment is always fsynced before older ones are deleted
+  private final boolean sync;
+
+  // guards the fields below, held only to append records in memory
+  private final Object appendLock = new Object();
+  private final ByteBuffer serializeBuffer = ByteBuffer.allocate(PROCEDURE_BUFFER_SIZE);
+  private ByteBuffer pendingRecords = ByteBuffer.allocate(64 * 1024);
+  private long appendedRecordNum = 0;
+  // latest serialized state of the procedures alive, rewritten when a new segment is started
+  private final Map<Long, byte[]> aliveProcedures = new TreeMap<>();
+
+  // held to write the pending records into the current segment
+  private final Object writeLock = new Object();
+  private volatile long writtenRecordNum = 0;
+  private FileChannel currentSegment;
+  private long currentSegmentId = -1;
+
+  public SegmentedProcedureWAL(String walDir, IProcedureFactory procedureFactory, boolean sync) {
+    this(walDir, procedureFactory, sync, DEFAULT_SEGMENT_SIZE);
+  }
+
+  @TestOnly
+  public SegmentedProcedureWAL(
+      String walDir, IProcedureFactory procedureFactory, boolean sync, long segmentSize) {
+    this.walDir = Paths.get(walDir);
+    this.procedureFactory = procedureFactory;
+    this.sync = sync;
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * Replay the segments and load the procedures still alive, ordered by procedure id. Procedures
+   * saved in the files of the former one-file-per-procedure format are moved into the log.
+   */
+  public void load(List<Procedure> procedureList) {
+    synchronized (writeLock) {
+      closeCurrentSegment();
+      synchronized (appendLock) {
+        aliveProcedures.clear();
+        for (Path segment : listFiles(ProcedureNodeConstant.PROCEDURE_LOG_SEGMENT_SUFFIX)) {
+          currentSegmentId = Math.max(currentSegmentId, getFileId(segment));
+          replay(segment);
+        }
+        for (byte[] procedure : aliveProcedures.values()) {
+          try {
+            procedureList.add(procedureFactory.create(ByteBuffer.wrap(procedure)));
+          } catch (IOException e) {
+            LOG.error("Failed to deserialize a procedure from the log, it will be ignored.", e);
+          }
+        }
+      }
+    }
+    loadLegacyFiles(procedureList);
+  }
+
+  private void loadLegacyFiles(List<Procedure> procedureList) {
+    for (Path path : listFiles(ProcedureNodeConstant.PROCEDURE_WAL_SUFFIX)) {
+      ProcedureWAL legacyWAL = new ProcedureWAL(path, procedureFactory);
+      List<Procedure> legacyProcedures = new ArrayList<>();
+      legacyWAL.load(legacyProcedures);
+      try {
+        for (Procedure procedure : legacyProcedures) {
+          if (procedure != null) {
+            update(procedure);
+            procedureList.add(procedure);
+          }
+        }
+        legacyWAL.delete();
+      } catch (IOException e) {
+        LOG.error("Failed to move {} into the procedure log.", path, e);
+      }
+    }
+  }
+
+  public void update(Procedure procedure) throws IOException {
+    update(new Procedure[] {procedure});
+  }
+
+  /** Append the states of the procedures and return after they are committed. */
+  public void update(Procedure[] procedures) throws IOException {
+    long recordNum;
+    synchronized (appendLock) {
+      for (Procedure procedure : procedures) {
+        serializeBuffer.clear();
+        procedure.serialize(serializeBuffer);
+        serializeBuffer.flip();
+        byte[] serialized = new byte[serializeBuffer.remaining()];
+        serializeBuffer.get(serialized);
+        appendRecord(UPDATE, procedure.getProcId(), serialized);
+        aliveProcedures.put(procedure.getProcId(), serialized);
+      }
+      recordNum = appendedRecordNum;
+    }
+    commit(recordNum);
+  }
+
+  /** Append the deletions of the procedures and return after they are committed. */
+  public void delete(long[] procIds, int startIndex, int endIndex) throws IOException {
+    long recordNum;
+    synchronized (appendLock) {
+      for (int i = startIndex; i < endIndex; i++) {
+        if (aliveProcedures.remove(procIds[i]) != null) {
+          appendRecord(DELETE, procIds[i], new byte[0]);
+        }
+      }
+      recordNum = appendedRecordNum;
+    }
+    commit(recordNum);
+  }
+
+  public void close() {
+    synchronized (writeLock) {
+      closeCurrentSegment();
+    }
+  }
+
+  private void appendRecord(byte type, long procId, byte[] procedure) {
+    int bodySize = Byte.BYTES + Long.BYTES + procedure.length;
+    if (pendingRecords.remaining() < RECORD_HEADER_SIZE + bodySize) {
+      ByteBuffer larger =
+          ByteBuffer.allocate(
+              Math.max(pendingRecords.capacity() * 2, pendingRecords.position() + bodySize * 2));
+      pendingRecords.flip();
+      larger.put(pendingRecords);
+      pendingRecords = larger;
+    }
+    ByteBuffer body = ByteBuffer.allocate(bodySize);
+    body.put(type).putLong(procId).put(procedure);
+    CRC32 crc32 = new CRC32();
+    crc32.update(body.array());
+    pendingRecords.putInt(bodySize).putInt((int) crc32.getValue()).put(body.array());
+    appendedRecordNum++;
+  }
+
+  /** Group commit: write all the pending records unless someone else has done so. */
+  private void commit(long recordNum) throws IOException {
+    if (writtenRecordNum >= recordNum) {
+      return;
+    }
+    synchronized (writeLock) {
+      if (writtenRecordNum >= recordNum) {
+        return;
+      }
+      ByteBuffer records;
+      long lastRecordNum;
+      synchronized (appendLock) {
+        records = pendingRecords;
+        lastRecordNum = appendedRecordNum;
+        pendingRecords = ByteBuffer.allocate(records.capacity());
+      }
+      records.flip();
+      if (currentSegment == null) {
+        startNewSegment();
+      }
+      while (records.hasRemaining()) {
+        currentSegment.write(records);
+      }
+      if (sync) {
+        currentSegment.force(false);
+      }
+      writtenRecordNum = lastRecordNum;
+      if (currentSegment.position() >= segmentSize) {
+        startNewSegment();
+      }
+    }
+  }
+
+  /**
+   * Start a new segment holding the latest states of the procedures alive, then delete the older
+   * segments. Records still pending are written after them, so the newer states win on replay.
+   */
+  private void startNewSegment() throws IOException {
+    closeCurrentSegment();
+    List<Path> oldSegments = listFiles(ProcedureNodeConstant.PROCEDURE_LOG_SEGMENT_SUFFIX);
+    long newSegmentId = currentSegmentId + 1;
+    if (!oldSegments.isEmpty()) {
+      newSegmentId = Math.max(newSegmentId, getFileId(oldSegments.get(oldSegments.size() - 1)) + 1);
+    }
+    Path newSegmentPath =
+        walDir.resolve(newSegmentId + ProcedureNodeConstant.PROCEDURE_LOG_SEGMENT_SUFFIX);
+    FileChannel newSegment =
+        FileChannel.open(newSegmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    newSegment.truncate(0);
+
+    ByteBuffer snapshot;
+    synchronized (appendLock) {
+      ByteBuffer pending = pendingRecords;
+      long pendingNum = appendedRecordNum;
+      pendingRecords = ByteBuffer.allocate(pending.capacity());
+      for (Map.Entry<Long, byte[]> procedure : aliveProcedures.entrySet()) {
+        appendRecord(UPDATE, procedure.getKey(), procedure.getValue());
+      }
+      snapshot = pendingRecords;
+      pendingRecords = pending;
+      appendedRecordNum = pendingNum;
+    }
+    snapshot.flip();
+    while (snapshot.hasRemaining()) {
+      newSegment.write(snapshot);
+    }
+    // the older segments are deleted only after the snapshot is durable
+    newSegment.force(true);
+
+    for (Path segment : oldSegments) {
+      Files.deleteIfExists(segment);
+    }
+    currentSegment = newSegment;
+    currentSegmentId = newSegmentId;
+  }
+
+  private void closeCurrentSegment() {
+    if (currentSegment == null) {
+      return;
+    }
+    try {
+      currentSegment.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close procedure log segment {}", currentSegmentId, e);
+    }
+    currentSegment = null;
+  }
+
+  /** Replay the records of a segment, stopping at a torn record at the tail. */
+  private void replay(Path segment) {
+    ByteBuffer buffer;
+    try {
+      buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+    } catch (IOException e) {
+      LOG.error("Failed to read procedure log segment {}", segment, e);
+      return;
+    }
+    while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+      int bodySize = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (bodySize < Byte.BYTES + Long.BYTES || bodySize > buffer.remaining()) {
+        LOG.warn("Procedure log segment {} ends with an incomplete record", segment);
+        return;
+      }
+      byte[] body = new byte[bodySize];
+      buffer.get(body);
+      CRC32 crc32 = new CRC32();
+      crc32.update(body);
+      if ((int) crc32.getValue() != checksum) {
+        LOG.warn("Procedure log segment {} ends with a corrupted record", segment);
+        return;
+      }
+      ByteBuffer bodyBuffer = ByteBuffer.wrap(body);
+      byte type = bodyBuffer.get();
+      long procId = bodyBuffer.getLong();
+      if (type == UPDATE) {
+        byte[] procedure = new byte[bodyBuffer.remaining()];
+        bodyBuffer.get(procedure);
+        aliveProcedures.put(procId, procedure);
+      } else {
+        aliveProcedures.remove(procId);
+      }
+    }
+  }
+
+  private List<Path> listFiles(String suffix) {
+    try (Stream<Path> files = Files.list(walDir)) {
+      return files
+          .filter(path -> path.getFileName().toString().endsWith(suffix))
+          .sorted((p1, p2) -> Long.compare(getFileId(p1), getFileId(p2)))
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      LOG.error("Failed to list procedure wal dir {}", walDir, e);
+      return new ArrayList<>();
+    }
+  }
+
+  private static long getFileId(Path path) {
+    return Long.parseLong(path.getFileName().toString().split("\\.")[0]);
+  }
+
+  @TestOnly
+  public int getSegmentNum() {
+    return listFiles(ProcedureNodeConstant.PROCEDURE_LOG_SEGMENT_SUFFIX).size();
+  }
+}
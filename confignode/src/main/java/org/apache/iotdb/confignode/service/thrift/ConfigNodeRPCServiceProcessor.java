@@ -19,7 +19,11 @@
 package org.apache.iotdb.confignode.service.thrift;
 
 import org.apache.iotdb.common.rpc.thrift.TConfigNodeLocation;
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
 import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.common.rpc.thrift.TSeriesPartitionSlot;
+import org.apache.iotdb.common.rpc.thrift.TTimePartitionSlot;
 import org.apache.iotdb.commons.auth.AuthException;
 import org.apache.iotdb.commons.conf.CommonDescriptor;
 import org.apache.iotdb.commons.utils.TestOnly;
@@ -82,7 +86,9 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /** ConfigNodeRPCServer exposes the interface that interacts with the DataNode */
 public class ConfigNodeRPCServiceProcessor implements ConfigIService.Iface {
@@ -267,6 +273,7 @@ public class ConfigNodeRPCServiceProcessor implements ConfigIService.Iface {
 
     TDataPartitionResp resp = new TDataPartitionResp();
     dataResp.convertToRpcDataPartitionResp(resp);
+    setRegionLeaderMap(resp);
     return resp;
   }
 
@@ -279,9 +286,35 @@ public class ConfigNodeRPCServiceProcessor implements ConfigIService.Iface {
 
     TDataPartitionResp resp = new TDataPartitionResp();
     dataResp.convertToRpcDataPartitionResp(resp);
+    setRegionLeaderMap(resp);
     return resp;
   }
 
+  /** Attach the leaders of the DataRegions, so that the DataNodes could route writes to them */
+  private void setRegionLeaderMap(TDataPartitionResp resp) {
+    if (!resp.isSetDataPartitionMap()) {
+      return;
+    }
+    Map<TConsensusGroupId, Integer> latestRegionLeaderMap =
+        configManager.getLoadManager().getLatestRegionLeaderMap();
+    Map<TConsensusGroupId, Integer> regionLeaderMap = new HashMap<>();
+    for (Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>
+        seriesPartitionMap : resp.getDataPartitionMap().values()) {
+      for (Map<TTimePartitionSlot, List<TRegionReplicaSet>> timePartitionMap :
+          seriesPartitionMap.values()) {
+        for (List<TRegionReplicaSet> regionReplicaSets : timePartitionMap.values()) {
+          for (TRegionReplicaSet regionReplicaSet : regionReplicaSets) {
+            Integer leaderId = latestRegionLeaderMap.get(regionReplicaSet.getRegionId());
+            if (leaderId != null) {
+              regionLeaderMap.put(regionReplicaSet.getRegionId(), leaderId);
+            }
+          }
+        }
+      }
+    }
+    resp.setRegionLeaderMap(regionLeaderMap);
+  }
+
   @Override
   public TSStatus operatePermission(TAuthorizerReq req) throws TException {
     if (req.getAuthorType() < 0
@@ -51,8 +51,10 @@ import org.apache.iotdb.confignode.consensus.request.write.SetStorageGroupReq;
 import org.apache.iotdb.confignode.consensus.request.write.SetTTLReq;
 import org.apache.iotdb.confignode.consensus.request.write.SetTimePartitionIntervalReq;
 import org.apache.iotdb.confignode.consensus.request.write.UpdateProcedureReq;
+import org.apache.iotdb.confignode.consensus.request.write.UpdateRegionLocationReq;
 import org.apache.iotdb.confignode.procedure.Procedure;
 import org.apache.iotdb.confignode.procedure.impl.DeleteStorageGroupProcedure;
+import org.apache.iotdb.confignode.procedure.impl.RegionMigrateProcedure;
 import org.apache.iotdb.confignode.rpc.thrift.TStorageGroupSchema;
 
 import org.junit.After;
@@ -629,4 +631,41 @@ public class ConfigRequestSerDeTest {
     DeleteProcedureReq req1 = (DeleteProcedureReq) ConfigRequest.Factory.create(buffer);
     Assert.assertEquals(req0, req1);
   }
+
+  @Test
+  public void UpdateRegionLocationReqTest() throws IOException {
+    UpdateRegionLocationReq req0 =
+        new UpdateRegionLocationReq(
+            new TConsensusGroupId(TConsensusGroupType.DataRegion, 1),
+            generateDataNodeLocation(0),
+            generateDataNodeLocation(1));
+    req0.serialize(buffer);
+    buffer.flip();
+    UpdateRegionLocationReq req1 = (UpdateRegionLocationReq) ConfigRequest.Factory.create(buffer);
+    Assert.assertEquals(req0, req1);
+  }
+
+  @Test
+  public void UpdateRegionMigrateProcedureReqTest() throws IOException {
+    UpdateProcedureReq req0 = new UpdateProcedureReq();
+    req0.setProcedure(
+        new RegionMigrateProcedure(
+            new TConsensusGroupId(TConsensusGroupType.DataRegion, 1),
+            generateDataNodeLocation(0),
+            generateDataNodeLocation(1)));
+    req0.serialize(buffer);
+    buffer.flip();
+    UpdateProcedureReq req1 = (UpdateProcedureReq) ConfigRequest.Factory.create(buffer);
+    Assert.assertEquals(req0, req1);
+  }
+
+  private TDataNodeLocation generateDataNodeLocation(int dataNodeId) {
+    TDataNodeLocation dataNodeLocation = new TDataNodeLocation();
+    dataNodeLocation.setDataNodeId(dataNodeId);
+    dataNodeLocation.setExternalEndPoint(new TEndPoint("0.0.0.0", 6667 + dataNodeId));
+    dataNodeLocation.setInternalEndPoint(new TEndPoint("0.0.0.0", 9003 + dataNodeId));
+    dataNodeLocation.setDataBlockManagerEndPoint(new TEndPoint("0.0.0.0", 8777 + dataNodeId));
+    dataNodeLocation.setConsensusEndPoint(new TEndPoint("0.0.0.0", 40010 + dataNodeId));
+    return dataNodeLocation;
+  }
 }
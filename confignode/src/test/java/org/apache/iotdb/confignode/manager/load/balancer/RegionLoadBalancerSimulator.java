@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.manager.load.balancer;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupType;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
+import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.common.rpc.thrift.TRegionLoad;
+import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Offline harness for evaluating the policies of RegionLoadBalancer. It keeps a synthetic cluster
+ * whose Regions have fixed loads, feeds the balancer with the heartbeat statistics the cluster
+ * would report, and applies the generated plans as if all the moves succeed immediately.
+ *
+ * <p>Run the main method to print the imbalance of a skewed cluster after each balancing round.
+ */
+public class RegionLoadBalancerSimulator {
+
+  private final List<TDataNodeLocation> dataNodeLocations = new ArrayList<>();
+  private final List<SimulatedRegion> regions = new ArrayList<>();
+
+  private long currentTime = 0;
+
+  public RegionLoadBalancerSimulator(int dataNodeNum) {
+    for (int i = 0; i < dataNodeNum; i++) {
+      dataNodeLocations.add(
+          new TDataNodeLocation(
+              i,
+              new TEndPoint("0.0.0.0", 6667 + i),
+              new TEndPoint("0.0.0.0", 9003 + i),
+              new TEndPoint("0.0.0.0", 8777 + i),
+              new TEndPoint("0.0.0.0", 40010 + i)));
+    }
+  }
+
+  /**
+   * Add a DataRegion to the synthetic cluster
+   *
+   * @param replicaIds The DataNodes holding the replicas, the first one is the leader
+   */
+  public void addRegion(double writeRate, double queryRate, long diskUsage, int... replicaIds) {
+    SimulatedRegion region =
+        new SimulatedRegion(new TConsensusGroupId(TConsensusGroupType.DataRegion, regions.size()));
+    region.writeRate = writeRate;
+    region.queryRate = queryRate;
+    region.diskUsage = diskUsage;
+    for (int replicaId : replicaIds) {
+      region.replicaIds.add(replicaId);
+    }
+    region.leaderId = replicaIds[0];
+    regions.add(region);
+  }
+
+  /**
+   * Run one balancing round and apply the generated plan
+   *
+   * @param roundIntervalMs Time elapsed since the last round
+   */
+  public BalancePlan runRound(RegionLoadBalancer balancer, long roundIntervalMs) {
+    return runRound(balancer, roundIntervalMs, Collections.emptySet());
+  }
+
+  /**
+   * Run one balancing round while some Regions are being migrated, and apply the generated plan
+   *
+   * @param migratingRegions The Regions being migrated
+   */
+  public BalancePlan runRound(
+      RegionLoadBalancer balancer, long roundIntervalMs, Set<TConsensusGroupId> migratingRegions) {
+    currentTime += roundIntervalMs;
+    BalancePlan balancePlan =
+        balancer.genBalancePlan(
+            genRegionReplicaSets(),
+            genRegionLoads(),
+            dataNodeLocations,
+            migratingRegions,
+            currentTime);
+    for (BalancePlan.LeaderTransfer leaderTransfer : balancePlan.getLeaderTransfers()) {
+      SimulatedRegion region = regions.get(leaderTransfer.getRegionId().getId());
+      region.leaderId = leaderTransfer.getNewLeader().getDataNodeId();
+    }
+    for (BalancePlan.RegionMigration regionMigration : balancePlan.getRegionMigrations()) {
+      SimulatedRegion region = regions.get(regionMigration.getRegionId().getId());
+      int sourceId = regionMigration.getSource().getDataNodeId();
+      int targetId = regionMigration.getTarget().getDataNodeId();
+      region.replicaIds.set(region.replicaIds.indexOf(sourceId), targetId);
+      if (region.leaderId == sourceId) {
+        region.leaderId = targetId;
+      }
+    }
+    return balancePlan;
+  }
+
+  /** @return The maximum leader load divided by the average leader load of the DataNodes */
+  public double getLeaderImbalance() {
+    double[] leaderLoads = new double[dataNodeLocations.size()];
+    for (SimulatedRegion region : regions) {
+      leaderLoads[region.leaderId] += region.writeRate + region.queryRate;
+    }
+    return imbalance(leaderLoads);
+  }
+
+  /** @return The maximum disk usage divided by the average disk usage of the DataNodes */
+  public double getDiskImbalance() {
+    double[] diskUsages = new double[dataNodeLocations.size()];
+    for (SimulatedRegion region : regions) {
+      for (int replicaId : region.replicaIds) {
+        diskUsages[replicaId] += region.diskUsage;
+      }
+    }
+    return imbalance(diskUsages);
+  }
+
+  public int getLeaderId(int regionId) {
+    return regions.get(regionId).leaderId;
+  }
+
+  public List<Integer> getReplicaIds(int regionId) {
+    return regions.get(regionId).replicaIds;
+  }
+
+  private List<TRegionReplicaSet> genRegionReplicaSets() {
+    List<TRegionReplicaSet> regionReplicaSets = new ArrayList<>();
+    for (SimulatedRegion region : regions) {
+      List<TDataNodeLocation> locations = new ArrayList<>();
+      region.replicaIds.forEach(replicaId -> locations.add(dataNodeLocations.get(replicaId)));
+      regionReplicaSets.add(new TRegionReplicaSet(region.regionId, locations));
+    }
+    return regionReplicaSets;
+  }
+
+  private Map<Integer, List<TRegionLoad>> genRegionLoads() {
+    Map<Integer, List<TRegionLoad>> regionLoadMap = new HashMap<>();
+    for (SimulatedRegion region : regions) {
+      for (int replicaId : region.replicaIds) {
+        boolean isLeader = replicaId == region.leaderId;
+        regionLoadMap
+            .computeIfAbsent(replicaId, id -> new ArrayList<>())
+            .add(
+                new TRegionLoad(
+                    region.regionId,
+                    isLeader,
+                    region.writeRate,
+                    isLeader ? region.queryRate : 0,
+                    region.diskUsage,
+                    0));
+      }
+    }
+    return regionLoadMap;
+  }
+
+  private static double imbalance(double[] loads) {
+    double sum = 0;
+    double max = 0;
+    for (double load : loads) {
+      sum += load;
+      max = Math.max(max, load);
+    }
+    return sum == 0 ? 1 : max / (sum / loads.length);
+  }
+
+  private static class SimulatedRegion {
+
+    private final TConsensusGroupId regionId;
+    private final List<Integer> replicaIds = new ArrayList<>();
+    private int leaderId;
+    private double writeRate;
+    private double queryRate;
+    private long diskUsage;
+
+    private SimulatedRegion(TConsensusGroupId regionId) {
+      this.regionId = regionId;
+    }
+  }
+
+  public static void main(String[] args) {
+    int dataNodeNum = 6;
+    int regionNum = 60;
+    Random random = new Random(0);
+
+    // All the leaders are on DataNode 0 and the replicas are piled on the first 4 DataNodes
+    RegionLoadBalancerSimulator simulator = new RegionLoadBalancerSimulator(dataNodeNum);
+    for (int i = 0; i < regionNum; i++) {
+      double writeRate = Math.pow(random.nextDouble(), 3) * 10_000;
+      simulator.addRegion(
+          writeRate,
+          random.nextDouble() * 100,
+          (long) (writeRate * 1000),
+          0,
+          1 + i % 3,
+          1 + (i + 1) % 3);
+    }
+
+    RegionLoadBalancer balancer = new RegionLoadBalancer(1.1, 1.2, 2, 1, 30_000);
+    for (int round = 0; round < 50; round++) {
+      BalancePlan balancePlan = simulator.runRound(balancer, 10_000);
+      System.out.printf(
+          "Round %d: %d leader transfers, %d region migrations, "
+              + "leader imbalance %.3f, disk imbalance %.3f%n",
+          round,
+          balancePlan.getLeaderTransfers().size(),
+          balancePlan.getRegionMigrations().size(),
+          simulator.getLeaderImbalance(),
+          simulator.getDiskImbalance());
+    }
+  }
+}
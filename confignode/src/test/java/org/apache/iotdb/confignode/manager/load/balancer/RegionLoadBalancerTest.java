@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.manager.load.balancer;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class RegionLoadBalancerTest {
+
+  @Test
+  public void testLeaderTransfer() {
+    // All the leaders are on DataNode 0
+    RegionLoadBalancerSimulator simulator = new RegionLoadBalancerSimulator(3);
+    for (int i = 0; i < 6; i++) {
+      simulator.addRegion(100, 10, 1000, 0, 1, 2);
+    }
+    Assert.assertEquals(3.0, simulator.getLeaderImbalance(), 1e-6);
+
+    RegionLoadBalancer balancer = new RegionLoadBalancer(1.1, 1.5, 10, 0, 60_000);
+    BalancePlan balancePlan = simulator.runRound(balancer, 1000);
+    Assert.assertEquals(4, balancePlan.getLeaderTransfers().size());
+    Assert.assertTrue(balancePlan.getRegionMigrations().isEmpty());
+    Assert.assertEquals(1.0, simulator.getLeaderImbalance(), 1e-6);
+
+    // The cluster is balanced now
+    Assert.assertTrue(simulator.runRound(balancer, 1000).isEmpty());
+  }
+
+  @Test
+  public void testRateLimitAndCoolDown() {
+    RegionLoadBalancerSimulator simulator = new RegionLoadBalancerSimulator(3);
+    for (int i = 0; i < 6; i++) {
+      simulator.addRegion(100, 10, 1000, 0, 1, 2);
+    }
+
+    RegionLoadBalancer balancer = new RegionLoadBalancer(1.1, 1.5, 1, 0, 60_000);
+    Set<TConsensusGroupId> movedRegions = new HashSet<>();
+    for (int round = 0; round < 4; round++) {
+      BalancePlan balancePlan = simulator.runRound(balancer, 10_000);
+      Assert.assertEquals(1, balancePlan.getLeaderTransfers().size());
+      // A Region won't be moved again within the cool-down
+      Assert.assertTrue(movedRegions.add(balancePlan.getLeaderTransfers().get(0).getRegionId()));
+    }
+    Assert.assertEquals(1.0, simulator.getLeaderImbalance(), 1e-6);
+  }
+
+  @Test
+  public void testRegionMigration() {
+    // All the replicas are on DataNode 0
+    RegionLoadBalancerSimulator simulator = new RegionLoadBalancerSimulator(4);
+    for (int i = 0; i < 8; i++) {
+      simulator.addRegion(100, 10, 1000, 0);
+    }
+    Assert.assertEquals(4.0, simulator.getDiskImbalance(), 1e-6);
+
+    RegionLoadBalancer balancer = new RegionLoadBalancer(1.1, 1.1, 0, 10, 60_000);
+    BalancePlan balancePlan = simulator.runRound(balancer, 1000);
+    Assert.assertTrue(balancePlan.getLeaderTransfers().isEmpty());
+    Assert.assertEquals(6, balancePlan.getRegionMigrations().size());
+    Assert.assertEquals(1.0, simulator.getDiskImbalance(), 1e-6);
+    for (int i = 0; i < 8; i++) {
+      Assert.assertEquals(1, simulator.getReplicaIds(i).size());
+      Assert.assertEquals((int) simulator.getReplicaIds(i).get(0), simulator.getLeaderId(i));
+    }
+  }
+
+  @Test
+  public void testSkipMigratingRegions() {
+    // All the replicas are on DataNode 0, and half of the Regions are being migrated
+    RegionLoadBalancerSimulator simulator = new RegionLoadBalancerSimulator(4);
+    Set<TConsensusGroupId> migratingRegions = new HashSet<>();
+    for (int i = 0; i < 8; i++) {
+      simulator.addRegion(100, 10, 1000, 0);
+      if (i % 2 == 0) {
+        migratingRegions.add(new TConsensusGroupId(TConsensusGroupType.DataRegion, i));
+      }
+    }
+
+    RegionLoadBalancer balancer = new RegionLoadBalancer(1.1, 1.1, 10, 10, 60_000);
+    BalancePlan balancePlan = simulator.runRound(balancer, 1000, migratingRegions);
+    Assert.assertEquals(4, balancePlan.getRegionMigrations().size());
+    for (BalancePlan.RegionMigration regionMigration : balancePlan.getRegionMigrations()) {
+      Assert.assertFalse(migratingRegions.contains(regionMigration.getRegionId()));
+    }
+  }
+
+  @Test
+  public void testOnlyFollowersTakeOverLeaders() {
+    // Both the Regions are only replicated on DataNode 0 and 1, DataNode 2 can't lead them
+    RegionLoadBalancerSimulator simulator = new RegionLoadBalancerSimulator(3);
+    simulator.addRegion(100, 10, 1000, 0, 1);
+    simulator.addRegion(100, 10, 1000, 0, 1);
+
+    RegionLoadBalancer balancer = new RegionLoadBalancer(1.1, 1.5, 10, 0, 60_000);
+    BalancePlan balancePlan = simulator.runRound(balancer, 1000);
+    Assert.assertEquals(1, balancePlan.getLeaderTransfers().size());
+    Assert.assertEquals(1, balancePlan.getLeaderTransfers().get(0).getNewLeader().getDataNodeId());
+    Assert.assertTrue(simulator.runRound(balancer, 1000).isEmpty());
+  }
+
+  @Test
+  public void testIdleCluster() {
+    RegionLoadBalancerSimulator simulator = new RegionLoadBalancerSimulator(3);
+    for (int i = 0; i < 3; i++) {
+      simulator.addRegion(0, 0, 0, 0, 1, 2);
+    }
+
+    RegionLoadBalancer balancer = new RegionLoadBalancer(1.1, 1.1, 10, 10, 60_000);
+    Assert.assertTrue(simulator.runRound(balancer, 1000).isEmpty());
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.manager.load.heartbeat;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupType;
+import org.apache.iotdb.common.rpc.thrift.TRegionLoad;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class HeartbeatCacheTest {
+
+  private static final double phiThreshold = 8;
+
+  @Test
+  public void testPhiAccrualFailureDetector() {
+    PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector();
+    // Nothing to estimate before the second heartbeat
+    Assert.assertEquals(0, detector.phi(0, 1000), 1e-6);
+
+    long time = 0;
+    for (int i = 0; i < 20; i++) {
+      detector.heartbeat(time);
+      time += 1000;
+    }
+    long lastArrivalTime = detector.getLastArrivalTime();
+
+    // The next heartbeat is on schedule
+    Assert.assertTrue(detector.phi(lastArrivalTime + 1000, 1000) < 1);
+    // The DataNode keeps silent for 3 intervals
+    Assert.assertTrue(detector.phi(lastArrivalTime + 3000, 1000) > phiThreshold);
+    // The suspicion accrues as time goes by
+    Assert.assertTrue(
+        detector.phi(lastArrivalTime + 1500, 1000) < detector.phi(lastArrivalTime + 1800, 1000));
+    // A relaxed heartbeat interval isn't suspected even though the recorded intervals lag behind
+    Assert.assertTrue(detector.phi(lastArrivalTime + 2000, 2000) < 1);
+  }
+
+  @Test
+  public void testJitteryHeartbeats() {
+    PhiAccrualFailureDetector steadyDetector = new PhiAccrualFailureDetector();
+    PhiAccrualFailureDetector jitteryDetector = new PhiAccrualFailureDetector();
+    long steadyTime = 0;
+    long jitteryTime = 0;
+    for (int i = 0; i < 20; i++) {
+      steadyDetector.heartbeat(steadyTime);
+      jitteryDetector.heartbeat(jitteryTime);
+      steadyTime += 1000;
+      jitteryTime += i % 2 == 0 ? 500 : 1500;
+    }
+
+    // The same delay is more suspicious for the steady DataNode
+    long delay = 1800;
+    Assert.assertTrue(
+        steadyDetector.phi(steadyDetector.getLastArrivalTime() + delay, 1000)
+            > jitteryDetector.phi(jitteryDetector.getLastArrivalTime() + delay, 1000));
+  }
+
+  @Test
+  public void testDeltaRegionLoads() {
+    HeartbeatCache heartbeatCache = new HeartbeatCache();
+    Assert.assertEquals(-1, heartbeatCache.getRegionLoadsBaseline(0));
+
+    // The first heartbeat reports all the region loads
+    heartbeatCache.cacheHeartBeat(
+        0,
+        new HeartbeatPackage(
+            100,
+            110,
+            Arrays.asList(genRegionLoad(1, 10), genRegionLoad(2, 20), genRegionLoad(3, 30))));
+    Assert.assertEquals(100, heartbeatCache.getRegionLoadsBaseline(0));
+    Assert.assertEquals(3, heartbeatCache.getLatestRegionLoads().get(0).size());
+
+    // Region 1 is changed and Region 2 is removed since the first heartbeat
+    heartbeatCache.cacheHeartBeat(
+        0,
+        new HeartbeatPackage(
+            200,
+            210,
+            Collections.singletonList(genRegionLoad(1, 15)),
+            100,
+            Collections.singletonList(new TConsensusGroupId(TConsensusGroupType.DataRegion, 2))));
+    Assert.assertEquals(200, heartbeatCache.getRegionLoadsBaseline(0));
+    List<TRegionLoad> regionLoads = heartbeatCache.getLatestRegionLoads().get(0);
+    Assert.assertEquals(Arrays.asList(genRegionLoad(1, 15), genRegionLoad(3, 30)), regionLoads);
+
+    // A delta against an unknown baseline is ignored, so the next heartbeat asks for all loads
+    heartbeatCache.cacheHeartBeat(
+        0,
+        new HeartbeatPackage(
+            300,
+            310,
+            Collections.singletonList(genRegionLoad(3, 35)),
+            250,
+            Collections.emptyList()));
+    Assert.assertEquals(200, heartbeatCache.getRegionLoadsBaseline(0));
+    Assert.assertEquals(regionLoads, heartbeatCache.getLatestRegionLoads().get(0));
+
+    // Un-sequential heartbeats are discarded
+    heartbeatCache.cacheHeartBeat(
+        0, new HeartbeatPackage(150, 320, Collections.singletonList(genRegionLoad(4, 40))));
+    Assert.assertEquals(200, heartbeatCache.getRegionLoadsBaseline(0));
+
+    // A full heartbeat replaces all the region loads
+    heartbeatCache.cacheHeartBeat(
+        0, new HeartbeatPackage(400, 410, Collections.singletonList(genRegionLoad(4, 40))));
+    Assert.assertEquals(400, heartbeatCache.getRegionLoadsBaseline(0));
+    Assert.assertEquals(
+        Collections.singletonList(genRegionLoad(4, 40)),
+        heartbeatCache.getLatestRegionLoads().get(0));
+
+    heartbeatCache.discardAllCache();
+    Assert.assertEquals(-1, heartbeatCache.getRegionLoadsBaseline(0));
+    Assert.assertTrue(heartbeatCache.getLatestRegionLoads().isEmpty());
+  }
+
+  private TRegionLoad genRegionLoad(int regionId, double writeRate) {
+    return new TRegionLoad(
+        new TConsensusGroupId(TConsensusGroupType.DataRegion, regionId), true, writeRate, 0, 0, 0);
+  }
+}
@@ -24,22 +24,31 @@ import org.apache.iotdb.common.rpc.thrift.TConsensusGroupType;
 import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
 import org.apache.iotdb.common.rpc.thrift.TEndPoint;
 import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
 import org.apache.iotdb.common.rpc.thrift.TSeriesPartitionSlot;
 import org.apache.iotdb.common.rpc.thrift.TTimePartitionSlot;
 import org.apache.iotdb.confignode.consensus.request.write.CreateDataPartitionReq;
 import org.apache.iotdb.confignode.consensus.request.write.CreateRegionsReq;
 import org.apache.iotdb.confignode.consensus.request.write.CreateSchemaPartitionReq;
+import org.apache.iotdb.confignode.consensus.request.write.UpdateRegionLocationReq;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TIOStreamTransport;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -129,11 +138,13 @@ public class PartitionInfoTest {
     int nextId = partitionInfo.getNextRegionGroupId();
 
     Map<TConsensusGroupId, Long> counter_before = partitionInfo.getRegionSlotsCounter();
+    long version_before = partitionInfo.getPartitionVersion();
     partitionInfo.processTakeSnapshot(snapshotDir);
     partitionInfo.clear();
     partitionInfo.processLoadSnapshot(snapshotDir);
 
     Assert.assertEquals(nextId, (int) partitionInfo.getNextRegionGroupId());
+    Assert.assertEquals(version_before, partitionInfo.getPartitionVersion());
 
     // Check SchemaRegion
     List<TRegionReplicaSet> reloadTRegionReplicaSet =
@@ -163,6 +174,165 @@ public class PartitionInfoTest {
     Assert.assertEquals(dataMap_before, partitionInfo.getDataPartition().getDataPartitionMap());
   }
 
+  @Test
+  public void testLoadSnapshotWithoutPartitionVersion() throws TException, IOException {
+    // A snapshot taken by a former version begins with nextRegionGroupId
+    File formerSnapshotDir = new File(snapshotDir, "former");
+    formerSnapshotDir.mkdirs();
+    PartitionInfo emptyInfo = new PartitionInfo();
+    try (FileOutputStream fileOutputStream =
+            new FileOutputStream(new File(formerSnapshotDir, "partition_info.bin"));
+        TIOStreamTransport tioStreamTransport = new TIOStreamTransport(fileOutputStream)) {
+      TProtocol protocol = new TBinaryProtocol(tioStreamTransport);
+      ReadWriteIOUtils.write(5, fileOutputStream);
+      ReadWriteIOUtils.write(0, fileOutputStream);
+      emptyInfo.getSchemaPartition().serialize(fileOutputStream, protocol);
+      emptyInfo.getDataPartition().serialize(fileOutputStream, protocol);
+    }
+
+    PartitionInfo info = new PartitionInfo();
+    info.createSchemaPartition(
+        generateCreateSchemaPartitionReq(
+            testFlag.SchemaPartition.getFlag(),
+            generateTConsensusGroupId(
+                testFlag.SchemaPartition.getFlag(), TConsensusGroupType.SchemaRegion)));
+    info.processLoadSnapshot(formerSnapshotDir);
+    Assert.assertEquals(5, (int) info.getNextRegionGroupId());
+    Assert.assertEquals(0, info.getPartitionVersion());
+    Assert.assertTrue(info.getSchemaPartition().getSchemaPartitionMap().isEmpty());
+    FileUtils.deleteDirectory(formerSnapshotDir);
+  }
+
+  @Test
+  public void testCopyOnWrite() {
+    PartitionInfo info = new PartitionInfo();
+    TConsensusGroupId schemaRegionId =
+        generateTConsensusGroupId(
+            testFlag.SchemaPartition.getFlag(), TConsensusGroupType.SchemaRegion);
+    info.createSchemaPartition(
+        generateCreateSchemaPartitionReq(testFlag.SchemaPartition.getFlag(), schemaRegionId));
+    Map<String, Map<TSeriesPartitionSlot, TRegionReplicaSet>> schemaMap_before =
+        info.getSchemaPartition().getSchemaPartitionMap();
+    Map<TSeriesPartitionSlot, TRegionReplicaSet> slotMap_before =
+        new HashMap<>(schemaMap_before.get("root.test.sg"));
+    Assert.assertEquals(1, info.getPartitionVersion());
+
+    // A new version is published, the former one is unchanged
+    TSStatus status =
+        info.createSchemaPartition(
+            generateCreateSchemaPartitionReq(
+                testFlag.SchemaPartition.getFlag() + 1, schemaRegionId));
+    Assert.assertEquals("2", status.getMessage());
+    Assert.assertEquals(2, info.getPartitionVersion());
+    Assert.assertEquals(slotMap_before, schemaMap_before.get("root.test.sg"));
+    Assert.assertEquals(
+        2, info.getSchemaPartition().getSchemaPartitionMap().get("root.test.sg").size());
+  }
+
+  @Test
+  public void testGetLatestTimePartitionSlots() {
+    PartitionInfo info = new PartitionInfo();
+    TSeriesPartitionSlot seriesPartitionSlot = new TSeriesPartitionSlot(1);
+    Assert.assertTrue(
+        info.getLatestTimePartitionSlots("root.test.data.sg", seriesPartitionSlot).isEmpty());
+
+    createDataPartition(info, seriesPartitionSlot, 200);
+    Assert.assertEquals(
+        Collections.singletonList(new TTimePartitionSlot(200)),
+        info.getLatestTimePartitionSlots("root.test.data.sg", seriesPartitionSlot));
+
+    createDataPartition(info, seriesPartitionSlot, 100, 200);
+    Assert.assertEquals(
+        Arrays.asList(new TTimePartitionSlot(200), new TTimePartitionSlot(100)),
+        info.getLatestTimePartitionSlots("root.test.data.sg", seriesPartitionSlot));
+
+    createDataPartition(info, seriesPartitionSlot, 400, 150, 300);
+    Assert.assertEquals(
+        Arrays.asList(new TTimePartitionSlot(400), new TTimePartitionSlot(300)),
+        info.getLatestTimePartitionSlots("root.test.data.sg", seriesPartitionSlot));
+    Assert.assertTrue(
+        info.getLatestTimePartitionSlots("root.test.data.sg", new TSeriesPartitionSlot(2))
+            .isEmpty());
+  }
+
+  private void createDataPartition(
+      PartitionInfo info, TSeriesPartitionSlot seriesPartitionSlot, long... startTimes) {
+    TRegionReplicaSet regionReplicaSet =
+        generateTRegionReplicaSet(
+            1,
+            generateTConsensusGroupId(
+                testFlag.DataPartition.getFlag(), TConsensusGroupType.DataRegion));
+    Map<TTimePartitionSlot, List<TRegionReplicaSet>> timePartitionSlotMap = new HashMap<>();
+    for (long startTime : startTimes) {
+      timePartitionSlotMap.put(
+          new TTimePartitionSlot(startTime), Collections.singletonList(regionReplicaSet));
+    }
+    Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>> slotMap =
+        new HashMap<>();
+    slotMap.put(seriesPartitionSlot, timePartitionSlotMap);
+    CreateDataPartitionReq createDataPartitionReq = new CreateDataPartitionReq();
+    createDataPartitionReq.setAssignedDataPartition(
+        Collections.singletonMap("root.test.data.sg", slotMap));
+    info.createDataPartition(createDataPartitionReq);
+  }
+
+  @Test
+  public void testUpdateRegionLocation() {
+    PartitionInfo info = new PartitionInfo();
+    TConsensusGroupId dataRegionId =
+        generateTConsensusGroupId(testFlag.DataPartition.getFlag(), TConsensusGroupType.DataRegion);
+    TRegionReplicaSet regionReplicaSet = generateTRegionReplicaSet(1, dataRegionId);
+    CreateRegionsReq createRegionsReq = new CreateRegionsReq();
+    createRegionsReq.addRegion("root.test.data.sg", regionReplicaSet);
+    info.createRegions(createRegionsReq);
+
+    TSeriesPartitionSlot seriesPartitionSlot = new TSeriesPartitionSlot(1);
+    Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>> slotMap =
+        new HashMap<>();
+    slotMap.put(
+        seriesPartitionSlot,
+        Collections.singletonMap(
+            new TTimePartitionSlot(100), Collections.singletonList(regionReplicaSet)));
+    CreateDataPartitionReq createDataPartitionReq = new CreateDataPartitionReq();
+    createDataPartitionReq.setAssignedDataPartition(
+        Collections.singletonMap("root.test.data.sg", slotMap));
+    info.createDataPartition(createDataPartitionReq);
+    Map<String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
+        dataMap_before = info.getDataPartition().getDataPartitionMap();
+    long version_before = info.getPartitionVersion();
+
+    // Move the replica on DataNode 1 to DataNode 10
+    TDataNodeLocation oldNode = regionReplicaSet.getDataNodeLocations().get(0);
+    TDataNodeLocation newNode =
+        generateTRegionReplicaSet(10, dataRegionId).getDataNodeLocations().get(0);
+    Assert.assertEquals(
+        TSStatusCode.SUCCESS_STATUS.getStatusCode(),
+        info.updateRegionLocation(new UpdateRegionLocationReq(dataRegionId, oldNode, newNode))
+            .getCode());
+
+    TRegionReplicaSet newReplicaSet = info.getRegionReplicaMap().get(dataRegionId);
+    Assert.assertEquals(newNode, newReplicaSet.getDataNodeLocations().get(0));
+    Assert.assertEquals(
+        regionReplicaSet.getDataNodeLocations().subList(1, 5),
+        newReplicaSet.getDataNodeLocations().subList(1, 5));
+    Assert.assertEquals(
+        Collections.singletonList(newReplicaSet),
+        info.getDataPartition()
+            .getDataPartitionMap()
+            .get("root.test.data.sg")
+            .get(seriesPartitionSlot)
+            .get(new TTimePartitionSlot(100)));
+    Assert.assertEquals(version_before + 1, info.getPartitionVersion());
+
+    // The former version is unchanged
+    Assert.assertEquals(
+        Collections.singletonList(regionReplicaSet),
+        dataMap_before
+            .get("root.test.data.sg")
+            .get(seriesPartitionSlot)
+            .get(new TTimePartitionSlot(100)));
+  }
+
   private TRegionReplicaSet generateTRegionReplicaSet(
       int startFlag, TConsensusGroupId tConsensusGroupId) {
     TRegionReplicaSet tRegionReplicaSet = new TRegionReplicaSet();
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.procedure.impl;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupType;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
+import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.commons.utils.StatusUtils;
+import org.apache.iotdb.confignode.procedure.env.ConfigNodeProcedureEnv;
+import org.apache.iotdb.confignode.procedure.exception.ProcedureSuspendedException;
+import org.apache.iotdb.confignode.procedure.state.ProcedureState;
+import org.apache.iotdb.confignode.procedure.state.RegionMigrateState;
+import org.apache.iotdb.confignode.procedure.store.ProcedureFactory;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionPeerReq;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionPullProgressResp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RegionMigrateProcedureTest {
+
+  private static final TConsensusGroupId REGION_ID =
+      new TConsensusGroupId(TConsensusGroupType.DataRegion, 1);
+
+  @Test
+  public void testPollPullProgressWithoutBlocking() throws Exception {
+    MockedRegionMigrateProcedure procedure = new MockedRegionMigrateProcedure();
+    procedure.pullState = "PULLING";
+
+    long startTime = System.currentTimeMillis();
+    try {
+      procedure.executeFromState(null, RegionMigrateState.WAIT_REGION_PULLED);
+      Assert.fail("The procedure should be suspended while the region is being pulled");
+    } catch (ProcedureSuspendedException e) {
+      // expected
+    }
+    // the worker is released right away and the procedure waits in the timeout executor
+    Assert.assertTrue(System.currentTimeMillis() - startTime < 500);
+    Assert.assertEquals(ProcedureState.WAITING_TIMEOUT, procedure.getState());
+    Assert.assertTrue(procedure.getTimeout() > 0);
+
+    // the timeout wakes up the procedure instead of failing it
+    Assert.assertFalse(procedure.setTimeoutFailure(null));
+    Assert.assertEquals(ProcedureState.RUNNABLE, procedure.getState());
+    Assert.assertEquals(1, procedure.wakeUpCount);
+    Assert.assertFalse(procedure.hasException());
+  }
+
+  @Test
+  public void testStartNewPeerFromListedIndex() throws Exception {
+    MockedRegionMigrateProcedure procedure = new MockedRegionMigrateProcedure();
+    procedure.pullState = "FINISHED";
+    procedure.consensusIndex = 42;
+
+    procedure.executeFromState(null, RegionMigrateState.WAIT_REGION_PULLED);
+    Assert.assertEquals(42, procedure.getStartIndex());
+
+    procedure.executeFromState(null, RegionMigrateState.ADD_REGION_PEER);
+    Assert.assertEquals(1, procedure.addedPeers.size());
+    TRegionPeerReq req = procedure.addedPeers.get(0);
+    Assert.assertEquals(procedure.getTarget(), req.getDataNodeLocation());
+    Assert.assertTrue(req.isSetStartIndex());
+    Assert.assertEquals(42, req.getStartIndex());
+  }
+
+  @Test
+  public void testRollback() throws Exception {
+    MockedRegionMigrateProcedure procedure = new MockedRegionMigrateProcedure();
+    procedure.executeFromState(null, RegionMigrateState.UPDATE_REGION_LOCATION);
+    Assert.assertEquals(Arrays.asList(2, 1), dataNodeIdsOf(procedure.replicaSet));
+
+    // the states are rolled back in reverse order
+    procedure.rollbackState(null, RegionMigrateState.INVALIDATE_CACHE);
+    procedure.rollbackState(null, RegionMigrateState.UPDATE_REGION_LOCATION);
+    procedure.rollbackState(null, RegionMigrateState.ADD_REGION_PEER);
+    procedure.rollbackState(null, RegionMigrateState.WAIT_REGION_PULLED);
+    procedure.rollbackState(null, RegionMigrateState.PULL_REGION);
+
+    // the region is routed to the source again
+    Assert.assertEquals(Arrays.asList(0, 1), dataNodeIdsOf(procedure.replicaSet));
+    Assert.assertEquals(1, procedure.invalidateCacheCount);
+    // the target leaves the group and drops the pulled files
+    Assert.assertEquals(1, procedure.removedPeers.size());
+    Assert.assertEquals(procedure.getTarget(), procedure.removedPeers.get(0).getDataNodeLocation());
+    Assert.assertEquals(1, procedure.cancelCount);
+
+    // rolling back again doesn't route the region back twice
+    procedure.rollbackState(null, RegionMigrateState.UPDATE_REGION_LOCATION);
+    Assert.assertEquals(1, procedure.invalidateCacheCount);
+  }
+
+  @Test(expected = IOException.class)
+  public void testRetryRollbackOnRouteFailure() throws Exception {
+    MockedRegionMigrateProcedure procedure = new MockedRegionMigrateProcedure();
+    procedure.executeFromState(null, RegionMigrateState.UPDATE_REGION_LOCATION);
+    procedure.updateStatus = new TSStatus(StatusUtils.INTERNAL_ERROR.getCode());
+    procedure.rollbackState(null, RegionMigrateState.UPDATE_REGION_LOCATION);
+  }
+
+  @Test
+  public void testSerDe() throws Exception {
+    MockedRegionMigrateProcedure procedure = new MockedRegionMigrateProcedure();
+    procedure.pullState = "FINISHED";
+    procedure.consensusIndex = 42;
+    procedure.executeFromState(null, RegionMigrateState.WAIT_REGION_PULLED);
+
+    ByteBuffer buffer = ByteBuffer.allocate(10240);
+    procedure.serialize(buffer);
+    buffer.flip();
+    RegionMigrateProcedure deserialized =
+        (RegionMigrateProcedure) ProcedureFactory.getInstance().create(buffer);
+    Assert.assertEquals(REGION_ID, deserialized.getRegionId());
+    Assert.assertEquals(procedure.getSource(), deserialized.getSource());
+    Assert.assertEquals(procedure.getTarget(), deserialized.getTarget());
+    Assert.assertEquals(42, deserialized.getStartIndex());
+  }
+
+  private static List<Integer> dataNodeIdsOf(TRegionReplicaSet replicaSet) {
+    List<Integer> dataNodeIds = new ArrayList<>();
+    for (TDataNodeLocation location : replicaSet.getDataNodeLocations()) {
+      dataNodeIds.add(location.getDataNodeId());
+    }
+    return dataNodeIds;
+  }
+
+  private static TDataNodeLocation generateDataNodeLocation(int dataNodeId) {
+    TDataNodeLocation dataNodeLocation = new TDataNodeLocation();
+    dataNodeLocation.setDataNodeId(dataNodeId);
+    dataNodeLocation.setExternalEndPoint(new TEndPoint("0.0.0.0", 6667 + dataNodeId));
+    dataNodeLocation.setInternalEndPoint(new TEndPoint("0.0.0.0", 9003 + dataNodeId));
+    dataNodeLocation.setDataBlockManagerEndPoint(new TEndPoint("0.0.0.0", 8777 + dataNodeId));
+    dataNodeLocation.setConsensusEndPoint(new TEndPoint("0.0.0.0", 40010 + dataNodeId));
+    return dataNodeLocation;
+  }
+
+  /** Answer the RPCs of the procedure locally, with the region on DataNode 0 and 1 at first */
+  private static class MockedRegionMigrateProcedure extends RegionMigrateProcedure {
+
+    private final TRegionReplicaSet replicaSet =
+        new TRegionReplicaSet(
+            REGION_ID,
+            new ArrayList<>(
+                Arrays.asList(generateDataNodeLocation(0), generateDataNodeLocation(1))));
+
+    private String pullState = "PULLING";
+    private long consensusIndex = -1;
+    private TSStatus updateStatus = StatusUtils.OK;
+
+    private final List<TRegionPeerReq> addedPeers = new ArrayList<>();
+    private final List<TRegionPeerReq> removedPeers = new ArrayList<>();
+    private int invalidateCacheCount = 0;
+    private int cancelCount = 0;
+    private int wakeUpCount = 0;
+
+    private MockedRegionMigrateProcedure() {
+      super(REGION_ID, generateDataNodeLocation(0), generateDataNodeLocation(2));
+    }
+
+    @Override
+    protected TSStatus pullRegion(ConfigNodeProcedureEnv env) {
+      return StatusUtils.OK;
+    }
+
+    @Override
+    protected TRegionPullProgressResp getPullProgress(ConfigNodeProcedureEnv env) {
+      TRegionPullProgressResp resp = new TRegionPullProgressResp(StatusUtils.OK, pullState, 0, 0);
+      if (consensusIndex >= 0) {
+        resp.setConsensusIndex(consensusIndex);
+      }
+      return resp;
+    }
+
+    @Override
+    protected TSStatus cancelRegionPull(ConfigNodeProcedureEnv env) {
+      cancelCount++;
+      return StatusUtils.OK;
+    }
+
+    @Override
+    protected TSStatus changeRegionPeer(
+        ConfigNodeProcedureEnv env, TRegionPeerReq req, boolean isAdd) {
+      (isAdd ? addedPeers : removedPeers).add(req);
+      return StatusUtils.OK;
+    }
+
+    @Override
+    protected TSStatus updateRegionLocation(
+        ConfigNodeProcedureEnv env, TDataNodeLocation from, TDataNodeLocation to) {
+      if (updateStatus.getCode() != StatusUtils.OK.getCode()) {
+        return updateStatus;
+      }
+      List<TDataNodeLocation> locations = replicaSet.getDataNodeLocations();
+      for (int i = 0; i < locations.size(); i++) {
+        if (locations.get(i).getDataNodeId() == from.getDataNodeId()) {
+          locations.set(i, to);
+        }
+      }
+      return StatusUtils.OK;
+    }
+
+    @Override
+    protected void invalidateCache(ConfigNodeProcedureEnv env) {
+      invalidateCacheCount++;
+    }
+
+    @Override
+    protected TRegionReplicaSet getCurrentReplicaSet(ConfigNodeProcedureEnv env) {
+      return replicaSet;
+    }
+
+    @Override
+    protected void wakeUp(ConfigNodeProcedureEnv env) {
+      wakeUpCount++;
+    }
+  }
+}
@@ -108,9 +108,48 @@ public class TestProcedureStore extends TestProcedureBase {
         procExecutor.getResultOrProcedure(rootId).getState(), ProcedureState.SUCCESS);
   }
 
+  @Test
+  public void testSegmentRollingAndRecovery() throws IOException {
+    String walDir = TEST_DIR + "segment/";
+    new File(walDir).mkdirs();
+    SegmentedProcedureWAL procedureWAL = new SegmentedProcedureWAL(walDir, factory, true, 1024);
+    List<IncProcedure> procedures = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      IncProcedure procedure = new IdentifiedIncProcedure(i);
+      procedures.add(procedure);
+      procedureWAL.update(procedure);
+    }
+    // finished procedures are dropped when a new segment starts
+    long[] finished = new long[90];
+    for (int i = 0; i < finished.length; i++) {
+      finished[i] = i;
+    }
+    procedureWAL.delete(finished, 0, finished.length);
+    for (int i = 90; i < 100; i++) {
+      procedureWAL.update(procedures.get(i));
+    }
+    procedureWAL.close();
+    Assert.assertEquals(1, procedureWAL.getSegmentNum());
+
+    List<Procedure> procedureList = new ArrayList<>();
+    new SegmentedProcedureWAL(walDir, factory, true, 1024).load(procedureList);
+    Assert.assertEquals(10, procedureList.size());
+    for (int i = 0; i < procedureList.size(); i++) {
+      assertProc(procedureList.get(i), IncProcedure.class, i + 90, ProcedureState.INITIALIZING);
+    }
+    FileUtils.deleteDirectory(new File(walDir));
+  }
+
   private void assertProc(Procedure proc, Class clazz, long procId, ProcedureState state) {
     Assert.assertEquals(clazz, proc.getClass());
     Assert.assertEquals(procId, proc.getProcId());
     Assert.assertEquals(state, proc.getState());
   }
+
+  private static class IdentifiedIncProcedure extends IncProcedure {
+
+    private IdentifiedIncProcedure(long procId) {
+      setProcId(procId);
+    }
+  }
 }
@@ -30,6 +30,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.Optional;
 
 public class ConsensusFactory {
+  public static final String MULTI_LEADER_CONSENSUS =
+      "org.apache.iotdb.consensus.multileader.MultiLeaderConsensus";
+
   public static final String CONSTRUCT_FAILED_MSG =
       "Construct consensusImpl failed, Please check your consensus className %s";
 
@@ -54,4 +57,34 @@ public class ConsensusFactory {
     }
     return Optional.empty();
   }
+
+  /**
+   * Construct the consensus implementation with its own configuration, e.g. a {@link
+   * org.apache.iotdb.consensus.ratis.conf.RatisConfig}. The configuration is ignored if the
+   * implementation does not accept it.
+   */
+  public static Optional<IConsensus> getConsensusImpl(
+      String className,
+      TEndPoint endpoint,
+      File storageDir,
+      IStateMachine.Registry registry,
+      Object config) {
+    try {
+      Class<?> executor = Class.forName(className);
+      Constructor<?> executorConstructor =
+          executor.getDeclaredConstructor(
+              TEndPoint.class, File.class, IStateMachine.Registry.class, config.getClass());
+      executorConstructor.setAccessible(true);
+      return Optional.of(
+          (IConsensus) executorConstructor.newInstance(endpoint, storageDir, registry, config));
+    } catch (NoSuchMethodException e) {
+      return getConsensusImpl(className, endpoint, storageDir, registry);
+    } catch (ClassNotFoundException
+        | InstantiationException
+        | IllegalAccessException
+        | InvocationTargetException e) {
+      logger.error("Couldn't Construct IConsensus class: {}", className, e);
+    }
+    return Optional.empty();
+  }
 }
@@ -20,6 +20,7 @@ package org.apache.iotdb.consensus;
 
 import org.apache.iotdb.commons.consensus.ConsensusGroupId;
 import org.apache.iotdb.consensus.common.Peer;
+import org.apache.iotdb.consensus.common.ReadConsistencyLevel;
 import org.apache.iotdb.consensus.common.request.IConsensusRequest;
 import org.apache.iotdb.consensus.common.response.ConsensusGenericResponse;
 import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
@@ -43,6 +44,17 @@ public interface IConsensus {
   // read API
   ConsensusReadResponse read(ConsensusGroupId groupId, IConsensusRequest IConsensusRequest);
 
+  /**
+   * read with the given consistency level, protocols that have only one level of consistency
+   * ignore it
+   */
+  default ConsensusReadResponse read(
+      ConsensusGroupId groupId,
+      IConsensusRequest IConsensusRequest,
+      ReadConsistencyLevel consistencyLevel) {
+    return read(groupId, IConsensusRequest);
+  }
+
   // multi consensus group API
   ConsensusGenericResponse addConsensusGroup(ConsensusGroupId groupId, List<Peer> peers);
 
@@ -51,6 +63,14 @@ public interface IConsensus {
   // single consensus group API
   ConsensusGenericResponse addPeer(ConsensusGroupId groupId, Peer peer);
 
+  /**
+   * add a peer which has already got the writes up to startIndex by other means, e.g. copying the
+   * files of the group. Protocols that replicate to a new peer from their own log ignore startIndex
+   */
+  default ConsensusGenericResponse addPeer(ConsensusGroupId groupId, Peer peer, long startIndex) {
+    return addPeer(groupId, peer);
+  }
+
   ConsensusGenericResponse removePeer(ConsensusGroupId groupId, Peer peer);
 
   ConsensusGenericResponse changePeer(ConsensusGroupId groupId, List<Peer> newPeers);
@@ -62,5 +82,14 @@ public interface IConsensus {
 
   boolean isLeader(ConsensusGroupId groupId);
 
+  /**
+   * @return the index of the latest write applied by the local peer of the group, which could be
+   *     passed to {@link #addPeer(ConsensusGroupId, Peer, long)}. -1 if the protocol doesn't need
+   *     it
+   */
+  default long getCurrentIndex(ConsensusGroupId groupId) {
+    return -1;
+  }
+
   Peer getLeader(ConsensusGroupId groupId);
 }
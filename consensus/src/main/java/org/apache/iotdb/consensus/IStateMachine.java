@@ -25,10 +25,12 @@ import org.apache.iotdb.commons.consensus.ConsensusGroupId;
 import org.apache.iotdb.consensus.common.DataSet;
 import org.apache.iotdb.consensus.common.Peer;
 import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+import org.apache.iotdb.consensus.wal.ConsensusReqReader;
 
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
@@ -48,6 +50,21 @@ public interface IStateMachine {
    */
   TSStatus write(IConsensusRequest IConsensusRequest);
 
+  /**
+   * apply a batch of write-requests in order. The statemachine may merge them into fewer writes,
+   * the default implementation applies them one by one
+   *
+   * @param requests write requests
+   * @return the status of each request, in the same order as the requests
+   */
+  default List<TSStatus> multiWrite(List<IConsensusRequest> requests) {
+    List<TSStatus> statuses = new ArrayList<>(requests.size());
+    for (IConsensusRequest request : requests) {
+      statuses.add(write(request));
+    }
+    return statuses;
+  }
+
   /**
    * read local data and return
    *
@@ -71,6 +88,17 @@ public interface IStateMachine {
    */
   void loadSnapshot(File latestSnapshotRootDir);
 
+  /**
+   * Get the reader of the requests written to this statemachine by their search indices, see {@link
+   * org.apache.iotdb.consensus.common.request.IndexedConsensusRequest}. The requests returned by
+   * the reader are {@link org.apache.iotdb.consensus.common.request.IndexedConsensusRequest}s.
+   *
+   * @return null if the requests could not be read again
+   */
+  default ConsensusReqReader getConsensusReqReader() {
+    return null;
+  }
+
   /** An optional API for event notifications. */
   interface EventApi {
     /**
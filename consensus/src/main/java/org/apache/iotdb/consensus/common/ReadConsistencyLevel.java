@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.consensus.common;
+
+/** How fresh the data returned by a read of a consensus group should be. */
+public enum ReadConsistencyLevel {
+  /** The read observes all the writes committed before it starts. */
+  LINEARIZABLE,
+  /**
+   * The leader serves the read from its local copy while it holds a lease granted by the
+   * heartbeats of a majority, other replicas serve it like {@link #LINEARIZABLE}.
+   */
+  LEADER_LEASE,
+  /**
+   * Any replica serves the read from its local copy if it has heard from the leader recently, so
+   * the read may miss the writes of the last moments.
+   */
+  BOUNDED_STALENESS;
+
+  public static ReadConsistencyLevel fromString(String level) {
+    for (ReadConsistencyLevel value : values()) {
+      if (value.name().equalsIgnoreCase(level)) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Unknown read consistency level: " + level);
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.consensus.common.request;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A request tagged with its search index, i.e. its position among all the requests written on the
+ * peer which accepted it. The state machine should record the search index with the request, e.g.
+ * in the WAL, so that the request could be read again by the index to catch up a lagging peer.
+ */
+public class IndexedConsensusRequest implements IConsensusRequest {
+
+  private final long searchIndex;
+  // the requests whose search indices are smaller than this have been received by all the peers
+  private final long safelyDeletedSearchIndex;
+  private final IConsensusRequest request;
+
+  public IndexedConsensusRequest(long searchIndex, IConsensusRequest request) {
+    this(searchIndex, Long.MAX_VALUE, request);
+  }
+
+  public IndexedConsensusRequest(
+      long searchIndex, long safelyDeletedSearchIndex, IConsensusRequest request) {
+    this.searchIndex = searchIndex;
+    this.safelyDeletedSearchIndex = safelyDeletedSearchIndex;
+    this.request = request;
+  }
+
+  @Override
+  public void serializeRequest(ByteBuffer buffer) {
+    request.serializeRequest(buffer);
+  }
+
+  public long getSearchIndex() {
+    return searchIndex;
+  }
+
+  public long getSafelyDeletedSearchIndex() {
+    return safelyDeletedSearchIndex;
+  }
+
+  public IConsensusRequest getRequest() {
+    return request;
+  }
+}
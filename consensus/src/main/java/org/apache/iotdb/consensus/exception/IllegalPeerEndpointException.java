@@ -20,6 +20,9 @@
 package org.apache.iotdb.consensus.exception;
 
 import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.consensus.common.Peer;
+
+import java.util.List;
 
 public class IllegalPeerEndpointException extends ConsensusException {
 
@@ -29,4 +32,8 @@ public class IllegalPeerEndpointException extends ConsensusException {
             "Illegal creation for node %s in node %s in StandAloneConsensus Mode",
             newNode, currentNode));
   }
+
+  public IllegalPeerEndpointException(TEndPoint currentNode, List<Peer> peers) {
+    super(String.format("Illegal creation for node %s with peers %s", currentNode, peers));
+  }
 }
@@ -19,6 +19,7 @@
 package org.apache.iotdb.consensus.exception;
 
 import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.consensus.common.Peer;
 
 import org.apache.ratis.protocol.RaftPeer;
 
@@ -26,4 +27,11 @@ public class PeerNotInConsensusGroupException extends ConsensusException {
   public PeerNotInConsensusGroupException(ConsensusGroupId groupId, RaftPeer peer) {
     super(String.format("Peer %s is not in group %d", peer.getAddress(), groupId.getId()));
   }
+
+  public PeerNotInConsensusGroupException(ConsensusGroupId groupId, Peer peer) {
+    super(
+        String.format(
+            "Peer %s:%d is not in group %d",
+            peer.getEndpoint().getIp(), peer.getEndpoint().getPort(), groupId.getId()));
+  }
 }
@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.consensus.multileader;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupType;
+import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.commons.client.IClientManager;
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.commons.exception.StartupException;
+import org.apache.iotdb.consensus.IConsensus;
+import org.apache.iotdb.consensus.IStateMachine;
+import org.apache.iotdb.consensus.IStateMachine.Registry;
+import org.apache.iotdb.consensus.common.Peer;
+import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+import org.apache.iotdb.consensus.common.response.ConsensusGenericResponse;
+import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
+import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
+import org.apache.iotdb.consensus.exception.ConsensusException;
+import org.apache.iotdb.consensus.exception.ConsensusGroupAlreadyExistException;
+import org.apache.iotdb.consensus.exception.ConsensusGroupNotExistException;
+import org.apache.iotdb.consensus.exception.IllegalPeerEndpointException;
+import org.apache.iotdb.consensus.exception.IllegalPeerNumException;
+import org.apache.iotdb.consensus.exception.PeerAlreadyInConsensusGroupException;
+import org.apache.iotdb.consensus.exception.PeerNotInConsensusGroupException;
+import org.apache.iotdb.consensus.multileader.client.MultiLeaderConsensusClientPool.SyncMultiLeaderServiceClientPoolFactory;
+import org.apache.iotdb.consensus.multileader.client.SyncMultiLeaderServiceClient;
+import org.apache.iotdb.consensus.multileader.conf.MultiLeaderConfig;
+import org.apache.iotdb.consensus.multileader.service.MultiLeaderRPCService;
+import org.apache.iotdb.consensus.multileader.service.MultiLeaderRPCServiceProcessor;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * A consensus protocol in which every peer of a group accepts writes. A write is applied locally
+ * and then replicated to the other peers asynchronously in the background, so the data is only
+ * persisted by the state machine, e.g. in the WAL of a DataRegion, without a separate consensus
+ * log. It trades the strong consistency of Raft for throughput, which fits time series insertions
+ * as they are idempotent and commutative in most cases.
+ */
+public class MultiLeaderConsensus implements IConsensus {
+
+  private final Logger logger = LoggerFactory.getLogger(MultiLeaderConsensus.class);
+
+  private final TEndPoint thisNode;
+  private final File storageDir;
+  private final IStateMachine.Registry registry;
+  private final MultiLeaderConfig config;
+  private final Map<ConsensusGroupId, MultiLeaderServerImpl> stateMachineMap =
+      new ConcurrentHashMap<>();
+  private final MultiLeaderRPCService service;
+  private final IClientManager<TEndPoint, SyncMultiLeaderServiceClient> clientManager;
+
+  public MultiLeaderConsensus(TEndPoint thisNode, File storageDir, Registry registry) {
+    this(thisNode, storageDir, registry, MultiLeaderConfig.newBuilder().build());
+  }
+
+  public MultiLeaderConsensus(
+      TEndPoint thisNode, File storageDir, Registry registry, MultiLeaderConfig config) {
+    this.thisNode = thisNode;
+    this.storageDir = storageDir;
+    this.registry = registry;
+    this.config = config;
+    this.service =
+        new MultiLeaderRPCService(thisNode, config, new MultiLeaderRPCServiceProcessor(this));
+    this.clientManager =
+        new IClientManager.Factory<TEndPoint, SyncMultiLeaderServiceClient>()
+            .createClientManager(new SyncMultiLeaderServiceClientPoolFactory(config));
+  }
+
+  @Override
+  public void start() throws IOException {
+    initAndRecover();
+    try {
+      service.start();
+    } catch (StartupException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private void initAndRecover() throws IOException {
+    if (!storageDir.exists()) {
+      if (!storageDir.mkdirs()) {
+        logger.warn("Unable to create consensus dir at {}", storageDir);
+      }
+    } else {
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(storageDir.toPath())) {
+        for (Path path : stream) {
+          String[] items = path.getFileName().toString().split("_");
+          ConsensusGroupId consensusGroupId =
+              ConsensusGroupId.Factory.create(
+                  TConsensusGroupType.valueOf(items[0]).getValue(), Integer.parseInt(items[1]));
+          List<Peer> configuration =
+              MultiLeaderServerImpl.recoverConfiguration(path.toFile()).stream()
+                  .map(endPoint -> new Peer(consensusGroupId, endPoint))
+                  .collect(Collectors.toList());
+          MultiLeaderServerImpl impl =
+              new MultiLeaderServerImpl(
+                  new Peer(consensusGroupId, thisNode),
+                  configuration,
+                  path.toFile(),
+                  registry.apply(consensusGroupId),
+                  config,
+                  clientManager);
+          stateMachineMap.put(consensusGroupId, impl);
+          impl.start();
+        }
+      }
+    }
+  }
+
+  @Override
+  public void stop() throws IOException {
+    stateMachineMap.values().forEach(MultiLeaderServerImpl::stop);
+    clientManager.close();
+    service.stop();
+  }
+
+  @Override
+  public ConsensusWriteResponse write(ConsensusGroupId groupId, IConsensusRequest request) {
+    MultiLeaderServerImpl impl = stateMachineMap.get(groupId);
+    if (impl == null) {
+      return ConsensusWriteResponse.newBuilder()
+          .setException(new ConsensusGroupNotExistException(groupId))
+          .build();
+    }
+    return ConsensusWriteResponse.newBuilder().setStatus(impl.write(request)).build();
+  }
+
+  @Override
+  public ConsensusReadResponse read(ConsensusGroupId groupId, IConsensusRequest request) {
+    MultiLeaderServerImpl impl = stateMachineMap.get(groupId);
+    if (impl == null) {
+      return ConsensusReadResponse.newBuilder()
+          .setException(new ConsensusGroupNotExistException(groupId))
+          .build();
+    }
+    return ConsensusReadResponse.newBuilder().setDataSet(impl.read(request)).build();
+  }
+
+  @Override
+  public ConsensusGenericResponse addConsensusGroup(ConsensusGroupId groupId, List<Peer> peers) {
+    int consensusGroupSize = peers.size();
+    if (consensusGroupSize == 0) {
+      return ConsensusGenericResponse.newBuilder()
+          .setException(new IllegalPeerNumException(consensusGroupSize))
+          .build();
+    }
+    Peer thisPeer = new Peer(groupId, thisNode);
+    if (!peers.contains(thisPeer)) {
+      return ConsensusGenericResponse.newBuilder()
+          .setException(new IllegalPeerEndpointException(thisNode, peers))
+          .build();
+    }
+    AtomicBoolean exist = new AtomicBoolean(true);
+    stateMachineMap.computeIfAbsent(
+        groupId,
+        k -> {
+          exist.set(false);
+          File peerDir = new File(buildPeerDir(groupId));
+          if (!peerDir.mkdirs()) {
+            logger.warn("Unable to create consensus dir for group {} at {}", groupId, peerDir);
+          }
+          MultiLeaderServerImpl impl =
+              new MultiLeaderServerImpl(
+                  thisPeer,
+                  new ArrayList<>(peers),
+                  peerDir,
+                  registry.apply(groupId),
+                  config,
+                  clientManager);
+          try {
+            impl.persistConfiguration();
+          } catch (IOException e) {
+            logger.error("Unable to persist the configuration of group {}", groupId, e);
+          }
+          impl.start();
+          return impl;
+        });
+    if (exist.get()) {
+      return ConsensusGenericResponse.newBuilder()
+          .setException(new ConsensusGroupAlreadyExistException(groupId))
+          .build();
+    }
+    return ConsensusGenericResponse.newBuilder().setSuccess(true).build();
+  }
+
+  @Override
+  public ConsensusGenericResponse removeConsensusGroup(ConsensusGroupId groupId) {
+    AtomicBoolean exist = new AtomicBoolean(false);
+    stateMachineMap.computeIfPresent(
+        groupId,
+        (k, v) -> {
+          exist.set(true);
+          v.stop();
+          try {
+            FileUtils.deleteDirectory(v.getStorageDir());
+          } catch (IOException e) {
+            logger.warn(
+                "Unable to delete consensus dir for group {} at {}", groupId, v.getStorageDir(), e);
+          }
+          return null;
+        });
+    if (!exist.get()) {
+      return ConsensusGenericResponse.newBuilder()
+          .setException(new ConsensusGroupNotExistException(groupId))
+          .build();
+    }
+    return ConsensusGenericResponse.newBuilder().setSuccess(true).build();
+  }
+
+  /**
+   * Add a peer to the group on this peer only, as there is no leader to replicate the change. It
+   * should be called on every peer of the group. The new peer receives the writes accepted from now
+   * on, the data written before should be transferred to it by migrating the region.
+   */
+  @Override
+  public ConsensusGenericResponse addPeer(ConsensusGroupId groupId, Peer peer) {
+    return addPeer(groupId, peer, -1);
+  }
+
+  /**
+   * The writes of this peer after startIndex are read from the state machine and sent to the new
+   * peer, see {@link MultiLeaderServerImpl#addPeer(Peer, long)}.
+   */
+  @Override
+  public ConsensusGenericResponse addPeer(ConsensusGroupId groupId, Peer peer, long startIndex) {
+    MultiLeaderServerImpl impl = stateMachineMap.get(groupId);
+    if (impl == null) {
+      return failed(new ConsensusGroupNotExistException(groupId));
+    }
+    if (impl.getConfiguration().contains(peer)) {
+      return failed(new PeerAlreadyInConsensusGroupException(groupId, peer));
+    }
+    try {
+      impl.addPeer(peer, startIndex);
+    } catch (IOException e) {
+      logger.error("Unable to persist the configuration of group {}", groupId, e);
+      return failed(new ConsensusException(e.getMessage(), e));
+    }
+    return ConsensusGenericResponse.newBuilder().setSuccess(true).build();
+  }
+
+  /** Remove a peer from the group on this peer only, see {@link #addPeer}. */
+  @Override
+  public ConsensusGenericResponse removePeer(ConsensusGroupId groupId, Peer peer) {
+    MultiLeaderServerImpl impl = stateMachineMap.get(groupId);
+    if (impl == null) {
+      return failed(new ConsensusGroupNotExistException(groupId));
+    }
+    if (!impl.getConfiguration().contains(peer)) {
+      return failed(new PeerNotInConsensusGroupException(groupId, peer));
+    }
+    try {
+      impl.removePeer(peer);
+    } catch (IOException e) {
+      logger.error("Unable to persist the configuration of group {}", groupId, e);
+      return failed(new ConsensusException(e.getMessage(), e));
+    }
+    return ConsensusGenericResponse.newBuilder().setSuccess(true).build();
+  }
+
+  @Override
+  public ConsensusGenericResponse changePeer(ConsensusGroupId groupId, List<Peer> newPeers) {
+    MultiLeaderServerImpl impl = stateMachineMap.get(groupId);
+    if (impl == null) {
+      return failed(new ConsensusGroupNotExistException(groupId));
+    }
+    try {
+      for (Peer peer : impl.getConfiguration()) {
+        if (!newPeers.contains(peer)) {
+          impl.removePeer(peer);
+        }
+      }
+      for (Peer peer : newPeers) {
+        if (!impl.getConfiguration().contains(peer)) {
+          impl.addPeer(peer);
+        }
+      }
+    } catch (IOException e) {
+      logger.error("Unable to persist the configuration of group {}", groupId, e);
+      return failed(new ConsensusException(e.getMessage(), e));
+    }
+    return ConsensusGenericResponse.newBuilder().setSuccess(true).build();
+  }
+
+  /** Every peer is a leader already, so there is nothing to transfer. */
+  @Override
+  public ConsensusGenericResponse transferLeader(ConsensusGroupId groupId, Peer newLeader) {
+    MultiLeaderServerImpl impl = stateMachineMap.get(groupId);
+    if (impl == null) {
+      return failed(new ConsensusGroupNotExistException(groupId));
+    }
+    if (!impl.getConfiguration().contains(newLeader)) {
+      return failed(new PeerNotInConsensusGroupException(groupId, newLeader));
+    }
+    return ConsensusGenericResponse.newBuilder().setSuccess(true).build();
+  }
+
+  @Override
+  public ConsensusGenericResponse triggerSnapshot(ConsensusGroupId groupId) {
+    MultiLeaderServerImpl impl = stateMachineMap.get(groupId);
+    if (impl == null) {
+      return failed(new ConsensusGroupNotExistException(groupId));
+    }
+    return ConsensusGenericResponse.newBuilder().setSuccess(impl.takeSnapshot()).build();
+  }
+
+  /** Every peer is a leader and accepts writes. */
+  @Override
+  public boolean isLeader(ConsensusGroupId groupId) {
+    return true;
+  }
+
+  @Override
+  public long getCurrentIndex(ConsensusGroupId groupId) {
+    MultiLeaderServerImpl impl = stateMachineMap.get(groupId);
+    return impl == null ? -1 : impl.getSearchIndex();
+  }
+
+  @Override
+  public Peer getLeader(ConsensusGroupId groupId) {
+    if (!stateMachineMap.containsKey(groupId)) {
+      return null;
+    }
+    return new Peer(groupId, thisNode);
+  }
+
+  public MultiLeaderServerImpl getImpl(ConsensusGroupId groupId) {
+    return stateMachineMap.get(groupId);
+  }
+
+  private ConsensusGenericResponse failed(ConsensusException e) {
+    return ConsensusGenericResponse.newBuilder().setSuccess(false).setException(e).build();
+  }
+
+  private String buildPeerDir(ConsensusGroupId groupId) {
+    return storageDir + File.separator + groupId.getType() + "_" + groupId.getId();
+  }
+}
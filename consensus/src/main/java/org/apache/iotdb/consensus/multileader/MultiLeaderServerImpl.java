@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.consensus.multileader;
+
+import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.commons.client.IClientManager;
+import org.apache.iotdb.consensus.IStateMachine;
+import org.apache.iotdb.consensus.common.DataSet;
+import org.apache.iotdb.consensus.common.Peer;
+import org.apache.iotdb.consensus.common.request.ByteBufferConsensusRequest;
+import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+import org.apache.iotdb.consensus.common.request.IndexedConsensusRequest;
+import org.apache.iotdb.consensus.multileader.client.SyncMultiLeaderServiceClient;
+import org.apache.iotdb.consensus.multileader.conf.MultiLeaderConfig;
+import org.apache.iotdb.consensus.multileader.logdispatcher.LogDispatcher;
+import org.apache.iotdb.rpc.TSStatusCode;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A peer of a consensus group in {@link MultiLeaderConsensus}. Every peer accepts writes, a write
+ * is applied to the local state machine first and then sent to the other peers asynchronously. The
+ * requests received from the other peers are applied but not sent again.
+ *
+ * <p>The writes accepted by this peer are numbered by their search indices, which are passed to
+ * the state machine in {@link IndexedConsensusRequest}s, so that the state machine could provide
+ * the requests again to catch up a lagging peer.
+ */
+public class MultiLeaderServerImpl {
+
+  private static final Logger logger = LoggerFactory.getLogger(MultiLeaderServerImpl.class);
+
+  private static final String CONFIGURATION_FILE_NAME = "configuration";
+  private static final String SNAPSHOT_DIR_NAME = "snapshot";
+
+  private final Peer thisNode;
+  private final List<Peer> configuration;
+  private final File storageDir;
+  private final IStateMachine stateMachine;
+  private final LogDispatcher logDispatcher;
+
+  // guarantees the requests are sent in the order they are applied
+  private final Lock writeLock = new ReentrantLock();
+  // guarded by writeLock
+  private long searchIndex;
+
+  public MultiLeaderServerImpl(
+      Peer thisNode,
+      List<Peer> configuration,
+      File storageDir,
+      IStateMachine stateMachine,
+      MultiLeaderConfig config,
+      IClientManager<TEndPoint, SyncMultiLeaderServiceClient> clientManager) {
+    this.thisNode = thisNode;
+    this.configuration = new CopyOnWriteArrayList<>(configuration);
+    this.storageDir = storageDir;
+    this.stateMachine = stateMachine;
+    this.logDispatcher =
+        new LogDispatcher(
+            thisNode, this.configuration, storageDir, stateMachine, config, clientManager);
+    // the state machine may drop its log once recovered, e.g. a DataRegion deletes its WAL, so the
+    // numbering continues after the last request received by any peer
+    this.searchIndex = logDispatcher.getMaxSyncIndex();
+  }
+
+  public void start() {
+    stateMachine.start();
+    logDispatcher.start();
+  }
+
+  public void stop() {
+    logDispatcher.stop();
+    stateMachine.stop();
+  }
+
+  /**
+   * Apply a request from the user and send it to the other peers. The request is queued for the
+   * peers without blocking, a peer which falls behind reads it from the state machine later.
+   */
+  public TSStatus write(IConsensusRequest request) {
+    // serialize it before applied in case the state machine modifies the request
+    ByteBuffer serializedRequest =
+        logDispatcher.hasPeers() ? LogDispatcher.serializeRequest(request) : null;
+    writeLock.lock();
+    try {
+      IndexedConsensusRequest indexedRequest =
+          new IndexedConsensusRequest(
+              searchIndex + 1, logDispatcher.getSafelyDeletedSearchIndex(), request);
+      TSStatus status = stateMachine.write(indexedRequest);
+      if (status.getCode() == TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
+        searchIndex++;
+        if (serializedRequest != null) {
+          logDispatcher.offer(
+              new IndexedConsensusRequest(
+                  searchIndex, new ByteBufferConsensusRequest(serializedRequest)));
+        }
+      }
+      return status;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Add a peer to the group. It receives the writes accepted by this peer from now on, the data
+   * written before should be transferred to it by other means, e.g. migrating the region.
+   */
+  public void addPeer(Peer peer) throws IOException {
+    addPeer(peer, -1);
+  }
+
+  /**
+   * Add a peer which has got the writes up to startIndex. The writes after it are read from the
+   * state machine and sent to the peer, a negative startIndex means the peer has got all of them.
+   */
+  public void addPeer(Peer peer, long startIndex) throws IOException {
+    writeLock.lock();
+    try {
+      configuration.add(peer);
+      persistConfiguration();
+      logDispatcher.addPeer(peer, startIndex < 0 ? searchIndex : Math.min(startIndex, searchIndex));
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  public void removePeer(Peer peer) throws IOException {
+    writeLock.lock();
+    try {
+      configuration.remove(peer);
+      persistConfiguration();
+      logDispatcher.removePeer(peer);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** Apply the requests sent by another peer in order. */
+  public List<TSStatus> syncLog(List<ByteBuffer> requests) {
+    List<TSStatus> statuses = new ArrayList<>(requests.size());
+    for (ByteBuffer request : requests) {
+      statuses.add(stateMachine.write(new ByteBufferConsensusRequest(request)));
+    }
+    return statuses;
+  }
+
+  public DataSet read(IConsensusRequest request) {
+    return stateMachine.read(request);
+  }
+
+  /**
+   * Take a snapshot of the state machine in a new directory under the storage dir, the previous
+   * snapshots are deleted once it succeeds.
+   */
+  public boolean takeSnapshot() {
+    File snapshotDir =
+        new File(storageDir, SNAPSHOT_DIR_NAME + "_" + getSearchIndex() + "_" + System.nanoTime());
+    if (!stateMachine.takeSnapshot(snapshotDir)) {
+      logger.error("{}: failed to take snapshot in {}", thisNode.getGroupId(), snapshotDir);
+      return false;
+    }
+    File[] snapshotDirs =
+        storageDir.listFiles(
+            file -> file.isDirectory() && file.getName().startsWith(SNAPSHOT_DIR_NAME));
+    if (snapshotDirs != null) {
+      for (File dir : snapshotDirs) {
+        if (!dir.equals(snapshotDir)) {
+          try {
+            FileUtils.deleteDirectory(dir);
+          } catch (IOException e) {
+            logger.warn("{}: unable to delete old snapshot {}", thisNode.getGroupId(), dir, e);
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  public Peer getThisNode() {
+    return thisNode;
+  }
+
+  public List<Peer> getConfiguration() {
+    return configuration;
+  }
+
+  public File getStorageDir() {
+    return storageDir;
+  }
+
+  public IStateMachine getStateMachine() {
+    return stateMachine;
+  }
+
+  public long getSearchIndex() {
+    writeLock.lock();
+    try {
+      return searchIndex;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** @return the search index of the last request sent to the peer */
+  public long getSyncIndex(Peer peer) {
+    return logDispatcher.getSyncIndex(peer);
+  }
+
+  /**
+   * Persist the peers of the group, one endpoint per line. The file is written aside and then moved
+   * over the old one, so a crash never leaves a partial configuration.
+   */
+  public void persistConfiguration() throws IOException {
+    File tmpFile = new File(storageDir, CONFIGURATION_FILE_NAME + ".tmp");
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+      for (Peer peer : configuration) {
+        writer.write(peer.getEndpoint().getIp() + ":" + peer.getEndpoint().getPort());
+        writer.newLine();
+      }
+    }
+    Files.move(
+        tmpFile.toPath(),
+        new File(storageDir, CONFIGURATION_FILE_NAME).toPath(),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  public static List<TEndPoint> recoverConfiguration(File storageDir) throws IOException {
+    List<TEndPoint> endPoints = new ArrayList<>();
+    for (String line :
+        Files.readAllLines(
+            new File(storageDir, CONFIGURATION_FILE_NAME).toPath(), StandardCharsets.UTF_8)) {
+      if (!line.isEmpty()) {
+        int separator = line.lastIndexOf(':');
+        endPoints.add(
+            new TEndPoint(
+                line.substring(0, separator), Integer.parseInt(line.substring(separator + 1))));
+      }
+    }
+    return endPoints;
+  }
+}
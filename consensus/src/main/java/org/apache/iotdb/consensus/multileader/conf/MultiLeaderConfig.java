@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.consensus.multileader.conf;
+
+import java.util.concurrent.TimeUnit;
+
+/** Configurations of {@link org.apache.iotdb.consensus.multileader.MultiLeaderConsensus}. */
+public class MultiLeaderConfig {
+
+  private final int rpcMaxConcurrentClientNum;
+  private final int thriftServerAwaitTimeForStopService;
+  private final int connectionTimeoutInMs;
+  private final int maxPendingRequestNumPerPeer;
+  private final int maxRequestPerBatch;
+  private final long retryIntervalInMs;
+  private final int syncIndexPersistInterval;
+
+  private MultiLeaderConfig(
+      int rpcMaxConcurrentClientNum,
+      int thriftServerAwaitTimeForStopService,
+      int connectionTimeoutInMs,
+      int maxPendingRequestNumPerPeer,
+      int maxRequestPerBatch,
+      long retryIntervalInMs,
+      int syncIndexPersistInterval) {
+    this.rpcMaxConcurrentClientNum = rpcMaxConcurrentClientNum;
+    this.thriftServerAwaitTimeForStopService = thriftServerAwaitTimeForStopService;
+    this.connectionTimeoutInMs = connectionTimeoutInMs;
+    this.maxPendingRequestNumPerPeer = maxPendingRequestNumPerPeer;
+    this.maxRequestPerBatch = maxRequestPerBatch;
+    this.retryIntervalInMs = retryIntervalInMs;
+    this.syncIndexPersistInterval = syncIndexPersistInterval;
+  }
+
+  public int getRpcMaxConcurrentClientNum() {
+    return rpcMaxConcurrentClientNum;
+  }
+
+  public int getThriftServerAwaitTimeForStopService() {
+    return thriftServerAwaitTimeForStopService;
+  }
+
+  public int getConnectionTimeoutInMs() {
+    return connectionTimeoutInMs;
+  }
+
+  public int getMaxPendingRequestNumPerPeer() {
+    return maxPendingRequestNumPerPeer;
+  }
+
+  public int getMaxRequestPerBatch() {
+    return maxRequestPerBatch;
+  }
+
+  public long getRetryIntervalInMs() {
+    return retryIntervalInMs;
+  }
+
+  public int getSyncIndexPersistInterval() {
+    return syncIndexPersistInterval;
+  }
+
+  public static MultiLeaderConfig.Builder newBuilder() {
+    return new MultiLeaderConfig.Builder();
+  }
+
+  public static class Builder {
+
+    private int rpcMaxConcurrentClientNum = 65535;
+    private int thriftServerAwaitTimeForStopService = 60;
+    private int connectionTimeoutInMs = (int) TimeUnit.SECONDS.toMillis(20);
+    // the requests waiting in memory to be sent to a peer, the ones beyond the limit are read
+    // from the statemachine again when the peer catches up
+    private int maxPendingRequestNumPerPeer = 1000;
+    private int maxRequestPerBatch = 100;
+    private long retryIntervalInMs = TimeUnit.SECONDS.toMillis(1);
+    // the sync index of a peer is persisted once it moves this many requests forward, at most
+    // this many requests are sent to the peer again after a crash
+    private int syncIndexPersistInterval = 1000;
+
+    public Builder setRpcMaxConcurrentClientNum(int rpcMaxConcurrentClientNum) {
+      this.rpcMaxConcurrentClientNum = rpcMaxConcurrentClientNum;
+      return this;
+    }
+
+    public Builder setThriftServerAwaitTimeForStopService(
+        int thriftServerAwaitTimeForStopService) {
+      this.thriftServerAwaitTimeForStopService = thriftServerAwaitTimeForStopService;
+      return this;
+    }
+
+    public Builder setConnectionTimeoutInMs(int connectionTimeoutInMs) {
+      this.connectionTimeoutInMs = connectionTimeoutInMs;
+      return this;
+    }
+
+    public Builder setMaxPendingRequestNumPerPeer(int maxPendingRequestNumPerPeer) {
+      this.maxPendingRequestNumPerPeer = maxPendingRequestNumPerPeer;
+      return this;
+    }
+
+    public Builder setMaxRequestPerBatch(int maxRequestPerBatch) {
+      this.maxRequestPerBatch = maxRequestPerBatch;
+      return this;
+    }
+
+    public Builder setRetryIntervalInMs(long retryIntervalInMs) {
+      this.retryIntervalInMs = retryIntervalInMs;
+      return this;
+    }
+
+    public Builder setSyncIndexPersistInterval(int syncIndexPersistInterval) {
+      this.syncIndexPersistInterval = syncIndexPersistInterval;
+      return this;
+    }
+
+    public MultiLeaderConfig build() {
+      return new MultiLeaderConfig(
+          rpcMaxConcurrentClientNum,
+          thriftServerAwaitTimeForStopService,
+          connectionTimeoutInMs,
+          maxPendingRequestNumPerPeer,
+          maxRequestPerBatch,
+          retryIntervalInMs,
+          syncIndexPersistInterval);
+    }
+  }
+}
@@ -0,0 +1,457 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.consensus.multileader.logdispatcher;
+
+import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.commons.client.IClientManager;
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.consensus.IStateMachine;
+import org.apache.iotdb.consensus.common.Peer;
+import org.apache.iotdb.consensus.common.request.ByteBufferConsensusRequest;
+import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+import org.apache.iotdb.consensus.common.request.IndexedConsensusRequest;
+import org.apache.iotdb.consensus.multileader.client.SyncMultiLeaderServiceClient;
+import org.apache.iotdb.consensus.multileader.conf.MultiLeaderConfig;
+import org.apache.iotdb.consensus.multileader.thrift.TLogBatch;
+import org.apache.iotdb.consensus.multileader.thrift.TSyncLogReq;
+import org.apache.iotdb.consensus.multileader.thrift.TSyncLogRes;
+import org.apache.iotdb.consensus.wal.ConsensusReqReader;
+import org.apache.iotdb.rpc.TSStatusCode;
+
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends the requests written on this peer to the other peers of the consensus group. Each peer is
+ * served by its own thread, which sends the requests in batches, in the order they are written.
+ * At most {@link MultiLeaderConfig#getMaxPendingRequestNumPerPeer()} requests wait in memory for a
+ * peer, so a slow peer never blocks writing. The requests which do not fit are read again from the
+ * {@link ConsensusReqReader} of the statemachine when the peer catches up.
+ *
+ * <p>The search index of the last request each peer received is persisted in the directory of the
+ * group, so that the peers continue from there after restarting. It's persisted once any peer moves
+ * {@link MultiLeaderConfig#getSyncIndexPersistInterval()} requests forward, when the peers change
+ * and when the dispatcher stops. After a crash the peers may receive the requests after the
+ * persisted index again, so the statemachine keeps the requests after it.
+ */
+public class LogDispatcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(LogDispatcher.class);
+
+  private static final String SYNC_INDEX_FILE_NAME = "sync_index";
+  private static final int DEFAULT_BUFFER_SIZE = 2048 * 10;
+
+  private final ConsensusGroupId groupId;
+  private final File storageDir;
+  private final IStateMachine stateMachine;
+  private final MultiLeaderConfig config;
+  private final IClientManager<TEndPoint, SyncMultiLeaderServiceClient> clientManager;
+  private final List<LogDispatcherThread> threads = new CopyOnWriteArrayList<>();
+  private ExecutorService executorService;
+  private volatile boolean stopped = false;
+
+  public LogDispatcher(
+      Peer thisNode,
+      List<Peer> configuration,
+      File storageDir,
+      IStateMachine stateMachine,
+      MultiLeaderConfig config,
+      IClientManager<TEndPoint, SyncMultiLeaderServiceClient> clientManager) {
+    this.groupId = thisNode.getGroupId();
+    this.storageDir = storageDir;
+    this.stateMachine = stateMachine;
+    this.config = config;
+    this.clientManager = clientManager;
+    Map<TEndPoint, Long> syncIndices = recoverSyncIndices();
+    for (Peer peer : configuration) {
+      if (!peer.equals(thisNode)) {
+        threads.add(
+            new LogDispatcherThread(peer, syncIndices.getOrDefault(peer.getEndpoint(), 0L)));
+      }
+    }
+  }
+
+  public synchronized void start() {
+    executorService =
+        IoTDBThreadPoolFactory.newCachedThreadPool(
+            ThreadName.MULTI_LEADER_CONSENSUS_LOG_DISPATCHER.getName() + "-" + groupId);
+    threads.forEach(thread -> thread.future = executorService.submit(thread));
+  }
+
+  public synchronized void stop() {
+    stopped = true;
+    if (executorService != null) {
+      executorService.shutdownNow();
+      try {
+        if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
+          logger.warn("{}: log dispatcher threads are still running", groupId);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    persistSyncIndices();
+  }
+
+  /** Send the requests after the search index to a new peer. */
+  public synchronized void addPeer(Peer peer, long syncIndex) {
+    LogDispatcherThread thread = new LogDispatcherThread(peer, syncIndex);
+    threads.add(thread);
+    persistSyncIndices();
+    if (executorService != null) {
+      thread.future = executorService.submit(thread);
+    }
+  }
+
+  public synchronized void removePeer(Peer peer) {
+    for (LogDispatcherThread thread : threads) {
+      if (thread.peer.equals(peer)) {
+        threads.remove(thread);
+        thread.removed = true;
+        if (thread.future != null) {
+          thread.future.cancel(true);
+        }
+      }
+    }
+    persistSyncIndices();
+  }
+
+  public boolean hasPeers() {
+    return !threads.isEmpty();
+  }
+
+  /** Send the request to all the peers, it never blocks. */
+  public void offer(IndexedConsensusRequest request) {
+    for (LogDispatcherThread thread : threads) {
+      thread.offer(request);
+    }
+  }
+
+  /** @return the search index of the last request sent to the peer, -1 if the peer is unknown */
+  public long getSyncIndex(Peer peer) {
+    for (LogDispatcherThread thread : threads) {
+      if (thread.peer.equals(peer)) {
+        return thread.syncIndex;
+      }
+    }
+    return -1;
+  }
+
+  /** @return the max search index of the requests sent to the peers, 0 if there are no peers */
+  public long getMaxSyncIndex() {
+    long maxSyncIndex = 0;
+    for (LogDispatcherThread thread : threads) {
+      maxSyncIndex = Math.max(maxSyncIndex, thread.syncIndex);
+    }
+    return maxSyncIndex;
+  }
+
+  /**
+   * @return the requests whose search indices are smaller than this have been sent to all the
+   *     peers, so the statemachine does not need to keep them any more
+   */
+  public long getSafelyDeletedSearchIndex() {
+    long safelyDeletedSearchIndex = Long.MAX_VALUE;
+    for (LogDispatcherThread thread : threads) {
+      // the requests after the persisted index are sent again after a crash
+      safelyDeletedSearchIndex =
+          Math.min(safelyDeletedSearchIndex, thread.persistedSyncIndex + 1);
+    }
+    return safelyDeletedSearchIndex;
+  }
+
+  /** Serialize a request to be sent, the content of a ByteBufferConsensusRequest is shared. */
+  public static ByteBuffer serializeRequest(IConsensusRequest request) {
+    if (request instanceof ByteBufferConsensusRequest) {
+      return ((ByteBufferConsensusRequest) request).getContent().duplicate();
+    }
+    int bufferSize = DEFAULT_BUFFER_SIZE;
+    while (true) {
+      ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+      try {
+        request.serializeRequest(buffer);
+        buffer.flip();
+        return buffer;
+      } catch (BufferOverflowException e) {
+        bufferSize *= 2;
+      }
+    }
+  }
+
+  /** Persist the search index of the last request each peer received, one peer per line. */
+  private synchronized void persistSyncIndices() {
+    File tmpFile = new File(storageDir, SYNC_INDEX_FILE_NAME + ".tmp");
+    try {
+      Map<LogDispatcherThread, Long> syncIndices = new HashMap<>();
+      try (BufferedWriter writer =
+          Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+        for (LogDispatcherThread thread : threads) {
+          long syncIndex = thread.syncIndex;
+          TEndPoint endPoint = thread.peer.getEndpoint();
+          writer.write(endPoint.getIp() + ":" + endPoint.getPort() + " " + syncIndex);
+          writer.newLine();
+          syncIndices.put(thread, syncIndex);
+        }
+      }
+      Files.move(
+          tmpFile.toPath(),
+          new File(storageDir, SYNC_INDEX_FILE_NAME).toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      syncIndices.forEach((thread, syncIndex) -> thread.persistedSyncIndex = syncIndex);
+    } catch (IOException e) {
+      logger.warn("{}: unable to persist the sync indices of the peers", groupId, e);
+    }
+  }
+
+  private Map<TEndPoint, Long> recoverSyncIndices() {
+    Map<TEndPoint, Long> syncIndices = new HashMap<>();
+    File file = new File(storageDir, SYNC_INDEX_FILE_NAME);
+    if (!file.exists()) {
+      return syncIndices;
+    }
+    try {
+      for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+        if (!line.isEmpty()) {
+          int indexSeparator = line.lastIndexOf(' ');
+          int portSeparator = line.lastIndexOf(':', indexSeparator);
+          syncIndices.put(
+              new TEndPoint(
+                  line.substring(0, portSeparator),
+                  Integer.parseInt(line.substring(portSeparator + 1, indexSeparator))),
+              Long.parseLong(line.substring(indexSeparator + 1)));
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.warn("{}: unable to recover the sync indices of the peers", groupId, e);
+    }
+    return syncIndices;
+  }
+
+  private class LogDispatcherThread implements Runnable {
+
+    private final Peer peer;
+    private final BlockingQueue<IndexedConsensusRequest> pendingRequests;
+    // the search index of the last request the peer has received
+    private volatile long syncIndex;
+    // the sync index in the file, the peer continues from it after a crash
+    private volatile long persistedSyncIndex;
+    // the latest request which did not fit in the queue, it's sent after the missing requests are
+    // read again, so that the peer catches up without waiting for new requests
+    private volatile IndexedConsensusRequest latestDroppedRequest;
+    private volatile boolean removed = false;
+    private Future<?> future;
+
+    private LogDispatcherThread(Peer peer, long syncIndex) {
+      this.peer = peer;
+      this.syncIndex = syncIndex;
+      this.persistedSyncIndex = syncIndex;
+      this.pendingRequests = new ArrayBlockingQueue<>(config.getMaxPendingRequestNumPerPeer());
+    }
+
+    private void offer(IndexedConsensusRequest request) {
+      if (!pendingRequests.offer(request)) {
+        latestDroppedRequest = request;
+        if (logger.isDebugEnabled()) {
+          logger.debug(
+              "{}: {} falls behind, request {} will be read again when it catches up",
+              groupId,
+              peer,
+              request.getSearchIndex());
+        }
+      }
+    }
+
+    private boolean isRunning() {
+      return !stopped && !removed && !Thread.currentThread().isInterrupted();
+    }
+
+    @Override
+    public void run() {
+      List<IndexedConsensusRequest> requests = new ArrayList<>(config.getMaxRequestPerBatch());
+      try {
+        while (isRunning()) {
+          IndexedConsensusRequest request =
+              pendingRequests.poll(config.getRetryIntervalInMs(), TimeUnit.MILLISECONDS);
+          if (request == null) {
+            IndexedConsensusRequest droppedRequest = latestDroppedRequest;
+            if (droppedRequest != null && droppedRequest.getSearchIndex() > syncIndex) {
+              dispatch(Collections.singletonList(droppedRequest));
+            }
+            continue;
+          }
+          requests.add(request);
+          pendingRequests.drainTo(requests, config.getMaxRequestPerBatch() - 1);
+          dispatch(requests);
+          requests.clear();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      logger.info("{}: log dispatcher of {} exits", groupId, peer);
+    }
+
+    /** Send the requests in order, the missing ones before them are read again and sent first. */
+    private void dispatch(List<IndexedConsensusRequest> requests) throws InterruptedException {
+      List<IndexedConsensusRequest> batch = new ArrayList<>(requests.size());
+      for (IndexedConsensusRequest request : requests) {
+        long expectedIndex =
+            batch.isEmpty() ? syncIndex + 1 : batch.get(batch.size() - 1).getSearchIndex() + 1;
+        if (request.getSearchIndex() < expectedIndex) {
+          // it has been sent when catching up
+          continue;
+        }
+        if (request.getSearchIndex() > expectedIndex) {
+          if (!batch.isEmpty()) {
+            sendBatch(batch);
+            batch.clear();
+          }
+          catchUp(request.getSearchIndex() - 1);
+        }
+        batch.add(request);
+      }
+      if (!batch.isEmpty()) {
+        sendBatch(batch);
+      }
+    }
+
+    /** Read the requests in (syncIndex, endIndex] from the statemachine and send them. */
+    private void catchUp(long endIndex) throws InterruptedException {
+      ConsensusReqReader reader = stateMachine.getConsensusReqReader();
+      if (reader == null) {
+        logger.error(
+            "{}: requests ({}, {}] could not be read again, they are not sent to {}",
+            groupId,
+            syncIndex,
+            endIndex,
+            peer);
+        updateSyncIndex(endIndex);
+        return;
+      }
+      logger.info("{}: catch up {} from request {} to {}", groupId, peer, syncIndex + 1, endIndex);
+      ConsensusReqReader.ReqIterator iterator = reader.getReqIterator(syncIndex + 1);
+      List<IndexedConsensusRequest> batch = new ArrayList<>(config.getMaxRequestPerBatch());
+      long lastIndex = syncIndex;
+      while (isRunning()) {
+        IndexedConsensusRequest request;
+        try {
+          request = (IndexedConsensusRequest) iterator.waitForNext(config.getRetryIntervalInMs());
+        } catch (TimeoutException e) {
+          continue;
+        }
+        long searchIndex = request.getSearchIndex();
+        if (searchIndex > endIndex) {
+          break;
+        }
+        if (searchIndex > lastIndex + 1) {
+          logger.warn(
+              "{}: requests ({}, {}) are no longer kept, they are not sent to {}",
+              groupId,
+              lastIndex,
+              searchIndex,
+              peer);
+        }
+        // a request may be split into several ones with the same search index by the statemachine,
+        // they are sent in the same batch
+        if (batch.size() >= config.getMaxRequestPerBatch() && searchIndex > lastIndex) {
+          sendBatch(batch);
+          batch.clear();
+        }
+        batch.add(request);
+        lastIndex = searchIndex;
+      }
+      if (!isRunning()) {
+        return;
+      }
+      if (!batch.isEmpty()) {
+        sendBatch(batch);
+      }
+      if (lastIndex < endIndex) {
+        logger.warn(
+            "{}: requests ({}, {}] are no longer kept, they are not sent to {}",
+            groupId,
+            lastIndex,
+            endIndex,
+            peer);
+      }
+      updateSyncIndex(endIndex);
+    }
+
+    private void sendBatch(List<IndexedConsensusRequest> batch) throws InterruptedException {
+      List<ByteBuffer> data = new ArrayList<>(batch.size());
+      for (IndexedConsensusRequest request : batch) {
+        data.add(serializeRequest(request.getRequest()));
+      }
+      long lastSearchIndex = batch.get(batch.size() - 1).getSearchIndex();
+      TSyncLogReq req =
+          new TSyncLogReq(
+              ConsensusGroupId.convertToTConsensusGroupId(groupId),
+              new TLogBatch(data, lastSearchIndex));
+      // the requests should be applied in order, so retry until the batch is sent
+      while (isRunning()) {
+        try (SyncMultiLeaderServiceClient client = clientManager.borrowClient(peer.getEndpoint())) {
+          TSyncLogRes res = client.syncLog(req);
+          for (TSStatus status : res.getStatus()) {
+            if (status.getCode() != TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
+              logger.warn("{}: {} failed to apply a request, status {}", groupId, peer, status);
+            }
+          }
+          updateSyncIndex(lastSearchIndex);
+          return;
+        } catch (IOException | TException e) {
+          logger.warn(
+              "{}: failed to send {} requests to {}, retry later", groupId, batch.size(), peer, e);
+          TimeUnit.MILLISECONDS.sleep(config.getRetryIntervalInMs());
+        }
+      }
+    }
+
+    private void updateSyncIndex(long index) {
+      syncIndex = index;
+      if (index - persistedSyncIndex >= config.getSyncIndexPersistInterval()) {
+        persistSyncIndices();
+      }
+    }
+  }
+}
@@ -19,10 +19,14 @@
 package org.apache.iotdb.consensus.ratis;
 
 import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
 import org.apache.iotdb.consensus.IStateMachine;
 import org.apache.iotdb.consensus.common.DataSet;
 import org.apache.iotdb.consensus.common.request.ByteBufferConsensusRequest;
 import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+import org.apache.iotdb.consensus.ratis.conf.RatisConfig;
+import org.apache.iotdb.rpc.TSStatusCode;
 
 import org.apache.ratis.proto.RaftProtos;
 import org.apache.ratis.proto.RaftProtos.RaftConfigurationProto;
@@ -30,6 +34,7 @@ import org.apache.ratis.protocol.Message;
 import org.apache.ratis.protocol.RaftGroupId;
 import org.apache.ratis.protocol.RaftGroupMemberId;
 import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.protocol.exceptions.StateMachineException;
 import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.protocol.TermIndex;
 import org.apache.ratis.server.raftlog.RaftLog;
@@ -44,22 +49,67 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Adapts an {@link IStateMachine} to Ratis.
+ *
+ * <p>Committed log entries are not applied on the apply thread of Ratis. They are queued and applied
+ * by an applier thread, which drains the queue in batches and hands each batch to {@link
+ * IStateMachine#multiWrite} so that the application could merge small writes. The futures of a
+ * batch are completed together once it is applied, or completed exceptionally if the batch fails.
+ * The queue is bounded, so the apply thread of Ratis blocks when applying falls too far behind.
+ *
+ * <p>Whoever needs the entries up to an index applied, e.g. a read on a follower, waits on the
+ * future returned by {@link #whenApplied(long)}, which is completed once the applied index reaches
+ * it.
+ */
 public class ApplicationStateMachineProxy extends BaseStateMachine {
   private final Logger logger = LoggerFactory.getLogger(ApplicationStateMachineProxy.class);
   private final IStateMachine applicationStateMachine;
 
+  private static final long APPLIER_STOP_TIMEOUT_SECONDS = 10;
+
+  private final int maxEntriesPerBatch;
+  private final BlockingQueue<PendingEntry> pendingEntries;
+  private final ExecutorService applier;
+  private volatile boolean stopped = false;
+  // the index of the latest queued entry
+  private volatile long lastQueuedIndex = RaftLog.INVALID_LOG_INDEX;
+  // index -> the future completed once the applied index reaches the index
+  private final ConcurrentSkipListMap<Long, CompletableFuture<Void>> appliedIndexFutures =
+      new ConcurrentSkipListMap<>();
+
   // Raft Storage sub dir for statemachine data, default (_sm)
   private File statemachineDir;
   private final SnapshotStorage snapshotStorage;
   private final RaftGroupId groupId;
 
   public ApplicationStateMachineProxy(IStateMachine stateMachine, RaftGroupId id) {
+    this(stateMachine, id, RatisConfig.newBuilder().build());
+  }
+
+  public ApplicationStateMachineProxy(
+      IStateMachine stateMachine, RaftGroupId id, RatisConfig config) {
     applicationStateMachine = stateMachine;
+    maxEntriesPerBatch = config.getApplierMaxEntriesPerBatch();
+    pendingEntries = new ArrayBlockingQueue<>(config.getApplierMaxPendingEntries());
     snapshotStorage = new SnapshotStorage(applicationStateMachine);
     applicationStateMachine.start();
     groupId = id;
+    applier =
+        IoTDBThreadPoolFactory.newSingleThreadExecutor(
+            ThreadName.RATIS_APPLIER.getName() + "-" + id);
+    applier.submit(this::applyPendingEntries);
   }
 
   @Override
@@ -86,19 +136,36 @@ public class ApplicationStateMachineProxy extends BaseStateMachine {
 
   @Override
   public void pause() {
+    waitUntilApplied();
     getLifeCycle().transition(LifeCycle.State.PAUSING);
     getLifeCycle().transition(LifeCycle.State.PAUSED);
   }
 
   @Override
   public void close() throws IOException {
-    getLifeCycle().checkStateAndClose(applicationStateMachine::stop);
+    getLifeCycle()
+        .checkStateAndClose(
+            () -> {
+              // entries still queued are applied again from the log after restart
+              stopped = true;
+              applier.shutdownNow();
+              try {
+                // let the batch being applied finish before the statemachine is stopped
+                if (!applier.awaitTermination(APPLIER_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                  logger.warn("The applier of {} is still running after being stopped", groupId);
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              failPendingEntries();
+              failAppliedIndexFutures();
+              applicationStateMachine.stop();
+            });
   }
 
   @Override
   public CompletableFuture<Message> applyTransaction(TransactionContext trx) {
     RaftProtos.LogEntryProto log = trx.getLogEntry();
-    updateLastAppliedTermIndex(log.getTerm(), log.getIndex());
 
     IConsensusRequest applicationRequest = null;
 
@@ -108,16 +175,192 @@ public class ApplicationStateMachineProxy extends BaseStateMachine {
         && trx.getClientRequest().getMessage() instanceof RequestMessage) {
       RequestMessage requestMessage = (RequestMessage) trx.getClientRequest().getMessage();
       applicationRequest = requestMessage.getActualRequest();
+    } else if (ReadIndexMessage.isReadIndexRequest(log.getStateMachineLogEntry().getLogData())) {
+      // a null request marks the no-op entry of a read index, see ReadIndexMessage
+      applicationRequest = null;
     } else {
       applicationRequest =
           new ByteBufferConsensusRequest(
               log.getStateMachineLogEntry().getLogData().asReadOnlyByteBuffer());
     }
 
-    TSStatus result = applicationStateMachine.write(applicationRequest);
-    Message ret = new ResponseMessage(result);
+    PendingEntry entry = new PendingEntry(log.getTerm(), log.getIndex(), applicationRequest);
+    try {
+      pendingEntries.put(entry);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      entry.future.completeExceptionally(e);
+      return entry.future;
+    }
+    lastQueuedIndex = entry.index;
+    if (stopped) {
+      // the applier is gone and will never drain the entry
+      failPendingEntries();
+    }
+    return entry.future;
+  }
+
+  private void applyPendingEntries() {
+    List<PendingEntry> batch = new ArrayList<>(maxEntriesPerBatch);
+    while (!stopped) {
+      try {
+        PendingEntry first = pendingEntries.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        pendingEntries.drainTo(batch, maxEntriesPerBatch - 1);
+        applyBatch(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void applyBatch(List<PendingEntry> batch) {
+    List<IConsensusRequest> requests = new ArrayList<>(batch.size());
+    for (PendingEntry entry : batch) {
+      if (entry.request != null) {
+        requests.add(entry.request);
+      }
+    }
+    List<TSStatus> results;
+    try {
+      results =
+          requests.isEmpty()
+              ? new ArrayList<>()
+              : applicationStateMachine.multiWrite(requests);
+      if (results.size() != requests.size()) {
+        throw new IllegalStateException(
+            String.format("Got %d results of %d entries", results.size(), requests.size()));
+      }
+    } catch (RuntimeException e) {
+      // the applier must survive a failed batch, otherwise no entry would be applied any more
+      logger.error(
+          "Failed to apply {} entries of {} in a batch, apply them one by one",
+          batch.size(),
+          groupId,
+          e);
+      applyOneByOne(batch);
+      return;
+    }
 
-    return CompletableFuture.completedFuture(ret);
+    PendingEntry last = batch.get(batch.size() - 1);
+    updateLastAppliedTermIndex(last.term, last.index);
+    int resultIndex = 0;
+    for (PendingEntry entry : batch) {
+      entry.future.complete(
+          entry.request == null
+              ? ReadIndexMessage.newReply(entry.index)
+              : new ResponseMessage(results.get(resultIndex++)));
+    }
+  }
+
+  /**
+   * Apply the entries of a failed batch separately, so that only the entries failing on their own
+   * are reported as failed. The applied index moves forward with each entry handed over.
+   */
+  private void applyOneByOne(List<PendingEntry> batch) {
+    for (PendingEntry entry : batch) {
+      if (entry.request == null) {
+        updateLastAppliedTermIndex(entry.term, entry.index);
+        entry.future.complete(ReadIndexMessage.newReply(entry.index));
+        continue;
+      }
+      TSStatus status;
+      try {
+        status = applicationStateMachine.write(entry.request);
+      } catch (RuntimeException e) {
+        logger.error("Failed to apply entry {} of {}", entry.index, groupId, e);
+        status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+        status.setMessage(e.getMessage());
+      }
+      updateLastAppliedTermIndex(entry.term, entry.index);
+      entry.future.complete(new ResponseMessage(status));
+    }
+  }
+
+  /** Complete the futures of the entries that will not be applied by this proxy any more. */
+  private void failPendingEntries() {
+    PendingEntry entry;
+    while ((entry = pendingEntries.poll()) != null) {
+      entry.future.completeExceptionally(
+          new StateMachineException(
+              String.format(
+                  "StateMachine of %s is closed before applying entry %d", groupId, entry.index)));
+    }
+  }
+
+  @Override
+  public void notifyTermIndexUpdated(long term, long index) {
+    // the applied index should not go beyond the entries still queued
+    waitUntilApplied();
+    super.notifyTermIndexUpdated(term, index);
+  }
+
+  /** Block until all the queued entries have been applied. */
+  private void waitUntilApplied() {
+    try {
+      whenApplied(lastQueuedIndex).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      logger.warn("Failed to apply entries of {}", groupId, e);
+    }
+  }
+
+  /**
+   * @return a future completed once the entries up to the index are applied, or completed
+   *     exceptionally if this statemachine is closed before that
+   */
+  CompletableFuture<Void> whenApplied(long index) {
+    if (getAppliedIndex() >= index) {
+      return CompletableFuture.completedFuture(null);
+    }
+    CompletableFuture<Void> future =
+        appliedIndexFutures.computeIfAbsent(index, k -> new CompletableFuture<>());
+    // the index may have been applied before the future is registered
+    if (getAppliedIndex() >= index) {
+      appliedIndexFutures.remove(index, future);
+      future.complete(null);
+    } else if (stopped) {
+      failAppliedIndexFutures();
+    }
+    return future;
+  }
+
+  @Override
+  protected boolean updateLastAppliedTermIndex(long term, long index) {
+    boolean updated = super.updateLastAppliedTermIndex(term, index);
+    long appliedIndex = getAppliedIndex();
+    Map.Entry<Long, CompletableFuture<Void>> first;
+    while ((first = appliedIndexFutures.firstEntry()) != null && first.getKey() <= appliedIndex) {
+      if (appliedIndexFutures.remove(first.getKey(), first.getValue())) {
+        first.getValue().complete(null);
+      }
+    }
+    return updated;
+  }
+
+  private long getAppliedIndex() {
+    TermIndex lastApplied = getLastAppliedTermIndex();
+    return lastApplied == null ? RaftLog.INVALID_LOG_INDEX : lastApplied.getIndex();
+  }
+
+  private void failAppliedIndexFutures() {
+    Map.Entry<Long, CompletableFuture<Void>> entry;
+    while ((entry = appliedIndexFutures.pollFirstEntry()) != null) {
+      entry
+          .getValue()
+          .completeExceptionally(
+              new StateMachineException(
+                  String.format(
+                      "StateMachine of %s is closed before applying entry %d",
+                      groupId, entry.getKey())));
+    }
   }
 
   @Override
@@ -134,6 +377,7 @@ public class ApplicationStateMachineProxy extends BaseStateMachine {
 
   @Override
   public long takeSnapshot() throws IOException {
+    waitUntilApplied();
     final TermIndex lastApplied = getLastAppliedTermIndex();
     if (lastApplied.getTerm() <= 0 || lastApplied.getIndex() <= 0) {
       return RaftLog.INVALID_LOG_INDEX;
@@ -159,6 +403,14 @@ public class ApplicationStateMachineProxy extends BaseStateMachine {
       }
       return RaftLog.INVALID_LOG_INDEX;
     }
+
+    try {
+      snapshotStorage.writeManifest(
+          snapshotDir, snapshotStorage.findPreviousSnapshotDir(snapshotDir));
+    } catch (IOException e) {
+      // the files will be digested when the snapshot is read
+      logger.warn("Failed to write the manifest of snapshot {}", snapshotDir, e);
+    }
     return lastApplied.getIndex();
   }
 
@@ -198,4 +450,19 @@ public class ApplicationStateMachineProxy extends BaseStateMachine {
             Utils.fromRaftProtoListAndRaftGroupIdToPeers(
                 newRaftConfiguration.getPeersList(), groupId));
   }
+
+  private static class PendingEntry {
+
+    private final long term;
+    private final long index;
+    /** null for the no-op entry of a read index */
+    private final IConsensusRequest request;
+    private final CompletableFuture<Message> future = new CompletableFuture<>();
+
+    private PendingEntry(long term, long index, IConsensusRequest request) {
+      this.term = term;
+      this.index = index;
+      this.request = request;
+    }
+  }
 }
@@ -32,6 +32,7 @@ import org.apache.iotdb.consensus.IConsensus;
 import org.apache.iotdb.consensus.IStateMachine;
 import org.apache.iotdb.consensus.common.DataSet;
 import org.apache.iotdb.consensus.common.Peer;
+import org.apache.iotdb.consensus.common.ReadConsistencyLevel;
 import org.apache.iotdb.consensus.common.request.IConsensusRequest;
 import org.apache.iotdb.consensus.common.response.ConsensusGenericResponse;
 import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
@@ -41,6 +42,7 @@ import org.apache.iotdb.consensus.exception.ConsensusGroupNotExistException;
 import org.apache.iotdb.consensus.exception.PeerAlreadyInConsensusGroupException;
 import org.apache.iotdb.consensus.exception.PeerNotInConsensusGroupException;
 import org.apache.iotdb.consensus.exception.RatisRequestFailedException;
+import org.apache.iotdb.consensus.ratis.conf.RatisConfig;
 
 import org.apache.commons.pool2.KeyedObjectPool;
 import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
@@ -51,6 +53,7 @@ import org.apache.ratis.conf.Parameters;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.grpc.GrpcConfigKeys;
 import org.apache.ratis.grpc.GrpcFactory;
+import org.apache.ratis.proto.RaftProtos;
 import org.apache.ratis.protocol.ClientId;
 import org.apache.ratis.protocol.Message;
 import org.apache.ratis.protocol.RaftClientReply;
@@ -75,7 +78,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -110,20 +115,46 @@ class RatisConsensus implements IConsensus {
   // TODO make it configurable
   private static final int DEFAULT_WAIT_LEADER_READY_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(20);
 
+  private static final long MIN_ELECTION_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(2);
+  private static final long MAX_FOLLOWER_READ_STALENESS_MS = TimeUnit.SECONDS.toMillis(5);
+
+  // shorter than the min election timeout, so that no other leader could have been elected
+  private final long leaderLeaseTimeoutMs;
+
   /**
    * @param ratisStorageDir different groups of RatisConsensus Peer all share ratisStorageDir as
    *     root dir
    */
   public RatisConsensus(TEndPoint endpoint, File ratisStorageDir, IStateMachine.Registry registry)
       throws IOException {
+    this(endpoint, ratisStorageDir, registry, RatisConfig.newBuilder().build());
+  }
+
+  public RatisConsensus(
+      TEndPoint endpoint,
+      File ratisStorageDir,
+      IStateMachine.Registry registry,
+      RatisConfig config)
+      throws IOException {
     String address = Utils.IPAddress(endpoint);
     myself = Utils.fromTEndPointAndPriorityToRaftPeer(endpoint, DEFAULT_PRIORITY);
+    if (config.getLeaderLeaseTimeoutMs() >= MIN_ELECTION_TIMEOUT_MS) {
+      logger.warn(
+          "The leader lease {}ms is not shorter than the min election timeout {}ms, use {}ms",
+          config.getLeaderLeaseTimeoutMs(),
+          MIN_ELECTION_TIMEOUT_MS,
+          MIN_ELECTION_TIMEOUT_MS / 2);
+      leaderLeaseTimeoutMs = MIN_ELECTION_TIMEOUT_MS / 2;
+    } else {
+      leaderLeaseTimeoutMs = config.getLeaderLeaseTimeoutMs();
+    }
 
     RaftServerConfigKeys.setStorageDir(properties, Collections.singletonList(ratisStorageDir));
     RaftServerConfigKeys.Snapshot.setAutoTriggerEnabled(properties, true);
     RaftServerConfigKeys.Rpc.setSlownessTimeout(
         properties, TimeDuration.valueOf(10, TimeUnit.MINUTES));
-    RaftServerConfigKeys.Rpc.setTimeoutMin(properties, TimeDuration.valueOf(2, TimeUnit.SECONDS));
+    RaftServerConfigKeys.Rpc.setTimeoutMin(
+        properties, TimeDuration.valueOf(MIN_ELECTION_TIMEOUT_MS, TimeUnit.MILLISECONDS));
     RaftServerConfigKeys.Rpc.setTimeoutMax(properties, TimeDuration.valueOf(8, TimeUnit.SECONDS));
     RaftServerConfigKeys.Rpc.setSleepTime(properties, TimeDuration.valueOf(1, TimeUnit.SECONDS));
 
@@ -143,7 +174,8 @@ class RatisConsensus implements IConsensus {
                 raftGroupId ->
                     new ApplicationStateMachineProxy(
                         registry.apply(Utils.fromRaftGroupIdToConsensusGroupId(raftGroupId)),
-                        raftGroupId))
+                        raftGroupId,
+                        config))
             .build();
   }
 
@@ -224,7 +256,10 @@ class RatisConsensus implements IConsensus {
     return ConsensusWriteResponse.newBuilder().setStatus(writeResult).build();
   }
 
-  /** Read directly from LOCAL COPY notice: May read stale data (not linearizable) */
+  /**
+   * Read from LOCAL COPY right away, the read may miss the latest writes. Use {@link
+   * #read(ConsensusGroupId, IConsensusRequest, ReadConsistencyLevel)} for a fresher read
+   */
   @Override
   public ConsensusReadResponse read(
       ConsensusGroupId consensusGroupId, IConsensusRequest IConsensusRequest) {
@@ -233,12 +268,49 @@ class RatisConsensus implements IConsensus {
     if (group == null || !group.getPeers().contains(myself)) {
       return failedRead(new ConsensusGroupNotExistException(consensusGroupId));
     }
+    return readLocally(groupId, IConsensusRequest, RaftClientRequest.staleReadRequestType(-1));
+  }
 
+  /**
+   * Every level reads from LOCAL COPY, they differ in how far the local copy should have caught up
+   * before the read:
+   *
+   * <p>1. LINEARIZABLE: a no-op entry is committed through the leader, which confirms that a
+   * majority still follows it. The index of the entry is the read index, the replica reads after it
+   * has applied up to that index, see {@link ReadIndexMessage}
+   *
+   * <p>2. LEADER_LEASE: the leader reads immediately if a majority of the group has responded to it
+   * within the lease, otherwise the read is served as LINEARIZABLE
+   *
+   * <p>3. BOUNDED_STALENESS: the leader reads immediately, a follower reads immediately if it has
+   * heard from the leader recently, otherwise the read is served as LINEARIZABLE
+   */
+  @Override
+  public ConsensusReadResponse read(
+      ConsensusGroupId consensusGroupId,
+      IConsensusRequest IConsensusRequest,
+      ReadConsistencyLevel consistencyLevel) {
+    RaftGroupId groupId = Utils.fromConsensusGroupIdToRaftGroupId(consensusGroupId);
+    RaftGroup group = getGroupInfo(groupId);
+    if (group == null || !group.getPeers().contains(myself)) {
+      return failedRead(new ConsensusGroupNotExistException(consensusGroupId));
+    }
+
+    RaftClientRequest.Type readType;
+    try {
+      readType = getReadType(group, consistencyLevel);
+    } catch (IOException e) {
+      return failedRead(new RatisRequestFailedException(e));
+    }
+    return readLocally(groupId, IConsensusRequest, readType);
+  }
+
+  private ConsensusReadResponse readLocally(
+      RaftGroupId groupId, IConsensusRequest IConsensusRequest, RaftClientRequest.Type readType) {
     RaftClientReply reply;
     try {
       RequestMessage message = new RequestMessage(IConsensusRequest);
-      RaftClientRequest clientRequest =
-          buildRawRequest(groupId, message, RaftClientRequest.staleReadRequestType(-1));
+      RaftClientRequest clientRequest = buildRawRequest(groupId, message, readType);
       reply = server.submitClientRequest(clientRequest);
       if (!reply.isSuccess()) {
         return failedRead(new RatisRequestFailedException(reply.getException()));
@@ -254,6 +326,99 @@ class RatisConsensus implements IConsensus {
     return ConsensusReadResponse.newBuilder().setDataSet(dataSet).build();
   }
 
+  private RaftClientRequest.Type getReadType(RaftGroup group, ReadConsistencyLevel level)
+      throws IOException {
+    RaftServer.Division division = server.getDivision(group.getGroupId());
+    DivisionInfo divisionInfo = division.getInfo();
+    RaftProtos.RoleInfoProto roleInfo = divisionInfo.getRoleInfoProto();
+    if (divisionInfo.isLeader()) {
+      if (level == ReadConsistencyLevel.BOUNDED_STALENESS
+          || (level == ReadConsistencyLevel.LEADER_LEASE && holdsLeaderLease(group, roleInfo))) {
+        return RaftClientRequest.staleReadRequestType(-1);
+      }
+    } else if (level == ReadConsistencyLevel.BOUNDED_STALENESS
+        && roleInfo.hasFollowerInfo()
+        && roleInfo.getFollowerInfo().getLeaderInfo().getLastRpcElapsedTimeMs()
+            <= MAX_FOLLOWER_READ_STALENESS_MS) {
+      return RaftClientRequest.staleReadRequestType(-1);
+    }
+
+    long readIndex = getReadIndex(group, divisionInfo.isLeader());
+    waitUntilApplied(division, group.getGroupId(), readIndex);
+    return RaftClientRequest.staleReadRequestType(readIndex);
+  }
+
+  /**
+   * The lease is held if a majority, the leader included, have responded within the lease, which is
+   * shorter than the minimum election timeout so that no other leader could have been elected
+   */
+  private boolean holdsLeaderLease(RaftGroup group, RaftProtos.RoleInfoProto roleInfo) {
+    if (!roleInfo.hasLeaderInfo()) {
+      return false;
+    }
+    int responded = 1;
+    for (RaftProtos.ServerRpcProto follower : roleInfo.getLeaderInfo().getFollowerInfoList()) {
+      if (follower.getLastRpcElapsedTimeMs() <= leaderLeaseTimeoutMs) {
+        responded++;
+      }
+    }
+    return responded > group.getPeers().size() / 2;
+  }
+
+  /**
+   * @return the index of a no-op entry committed through the current leader, see {@link
+   *     ReadIndexMessage}
+   */
+  private long getReadIndex(RaftGroup group, boolean isLeader) throws IOException {
+    if (isLeader) {
+      RaftClientReply reply =
+          server.submitClientRequest(
+              buildRawRequest(
+                  group.getGroupId(),
+                  ReadIndexMessage.REQUEST,
+                  RaftClientRequest.writeRequestType()));
+      if (reply.isSuccess()) {
+        return ReadIndexMessage.getReadIndex(reply.getMessage());
+      }
+      if (reply.getNotLeaderException() == null) {
+        throw new IOException("Failed to get the read index", reply.getException());
+      }
+      // the leadership is lost meanwhile, ask the new leader
+    }
+    RatisClient client = null;
+    try {
+      client = getRaftClient(group);
+      RaftClientReply reply = client.getRaftClient().io().send(ReadIndexMessage.REQUEST);
+      if (!reply.isSuccess()) {
+        throw new IOException("Failed to get the read index", reply.getException());
+      }
+      return ReadIndexMessage.getReadIndex(reply.getMessage());
+    } finally {
+      if (client != null) {
+        client.returnSelf();
+      }
+    }
+  }
+
+  private void waitUntilApplied(RaftServer.Division division, RaftGroupId groupId, long index)
+      throws IOException {
+    ApplicationStateMachineProxy stateMachine =
+        (ApplicationStateMachineProxy) division.getStateMachine();
+    try {
+      stateMachine
+          .whenApplied(index)
+          .get(DEFAULT_WAIT_LEADER_READY_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      throw new IOException(
+          String.format("%s: log %d is still not applied for reading", groupId, index));
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+  }
+
   /**
    * Add this IConsensus Peer into ConsensusGroup(groupId, peers) Caller's responsibility to call
    * addConsensusGroup to every peer of this group and ensure the group is all up
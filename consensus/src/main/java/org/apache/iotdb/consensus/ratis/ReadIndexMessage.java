@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.consensus.ratis;
+
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A no-op write appended to the log of a group to get the read index of a linearizable read. The
+ * entry is committed only by a leader that a majority still follows, and all the writes committed
+ * before the read started precede it in the log, so its index is the read index. The statemachine
+ * answers the entry with its index instead of applying it.
+ */
+class ReadIndexMessage {
+
+  private static final ByteString READ_INDEX_REQUEST =
+      ByteString.copyFrom("READ_INDEX", StandardCharsets.UTF_8);
+
+  static final Message REQUEST = Message.valueOf(READ_INDEX_REQUEST);
+
+  private ReadIndexMessage() {}
+
+  static boolean isReadIndexRequest(ByteString logData) {
+    return READ_INDEX_REQUEST.equals(logData);
+  }
+
+  static Message newReply(long readIndex) {
+    ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+    buffer.putLong(readIndex);
+    buffer.flip();
+    return Message.valueOf(ByteString.copyFrom(buffer));
+  }
+
+  static long getReadIndex(Message reply) {
+    return reply.getContent().asReadOnlyByteBuffer().getLong();
+  }
+}
@@ -35,13 +35,20 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * TODO: Warning, currently in Ratis 2.2.0, there is a bug in installSnapshot. In subsequent
@@ -52,6 +59,19 @@ import java.util.Objects;
 public class SnapshotStorage implements StateMachineStorage {
   private final IStateMachine applicationStateMachine;
 
+  /**
+   * The manifest of a snapshot lists its files with their sizes and digests, and tells whether each
+   * file is shared with the previous snapshot or has been added since then. Files shared through
+   * hard links keep the digests computed for the previous snapshot, so that the cost of describing
+   * a snapshot grows with the changes instead of the total size.
+   */
+  public static final String MANIFEST_FILE_NAME = "snapshot.manifest";
+
+  private static final String MANIFEST_SEPARATOR = "\t";
+  private static final String ADDED = "A";
+  private static final String SHARED = "S";
+  private static final String REMOVED = "R";
+
   private File stateMachineDir;
   private final Logger logger = LoggerFactory.getLogger(SnapshotStorage.class);
 
@@ -94,6 +114,22 @@ public class SnapshotStorage implements StateMachineStorage {
     return snapshots[snapshots.length - 1].toFile();
   }
 
+  /** @return the latest snapshot dir taken before the given one, null if there is none */
+  public File findPreviousSnapshotDir(File snapshotDir) {
+    Path[] snapshots = getSortedSnapshotDirPaths();
+    if (snapshots == null) {
+      return null;
+    }
+    long index = Utils.getTermIndexFromDir(snapshotDir).getIndex();
+    File previous = null;
+    for (Path snapshot : snapshots) {
+      if (Utils.getTermIndexFromDir(snapshot.toFile()).getIndex() < index) {
+        previous = snapshot.toFile();
+      }
+    }
+    return previous;
+  }
+
   @Override
   public SnapshotInfo getLatestSnapshot() {
     File latestSnapshotDir = findLatestSnapshotDir();
@@ -103,22 +139,105 @@ public class SnapshotStorage implements StateMachineStorage {
     TermIndex snapshotTermIndex = Utils.getTermIndexFromDir(latestSnapshotDir);
 
     List<FileInfo> fileInfos = new ArrayList<>();
-    for (File file : Objects.requireNonNull(latestSnapshotDir.listFiles())) {
-      Path filePath = file.toPath();
-      MD5Hash fileHash = null;
-      try {
-        fileHash = MD5FileUtil.computeMd5ForFile(file);
-      } catch (IOException e) {
-        logger.error("read file info failed for snapshot file ", e);
+    Map<String, ManifestEntry> manifest = readManifest(latestSnapshotDir);
+    if (manifest != null) {
+      for (ManifestEntry entry : manifest.values()) {
+        fileInfos.add(
+            new FileInfo(
+                new File(latestSnapshotDir, entry.fileName).toPath(),
+                entry.digest == null ? null : new MD5Hash(entry.digest)));
+      }
+      File manifestFile = new File(latestSnapshotDir, MANIFEST_FILE_NAME);
+      fileInfos.add(new FileInfo(manifestFile.toPath(), computeDigest(manifestFile)));
+    } else {
+      for (File file : Objects.requireNonNull(latestSnapshotDir.listFiles())) {
+        fileInfos.add(new FileInfo(file.toPath(), computeDigest(file)));
       }
-      FileInfo fileInfo = new FileInfo(filePath, fileHash);
-      fileInfos.add(fileInfo);
     }
 
     return new FileListSnapshotInfo(
         fileInfos, snapshotTermIndex.getTerm(), snapshotTermIndex.getIndex());
   }
 
+  /**
+   * Write the manifest of a newly taken snapshot. A file is shared with the previous snapshot if
+   * both are links of the same file, whose digest is then taken from the previous manifest.
+   */
+  public void writeManifest(File snapshotDir, File previousSnapshotDir) throws IOException {
+    Map<String, ManifestEntry> previousManifest =
+        previousSnapshotDir == null ? null : readManifest(previousSnapshotDir);
+    if (previousManifest == null) {
+      previousManifest = Collections.emptyMap();
+    }
+
+    List<String> lines = new ArrayList<>();
+    Set<String> fileNames = new HashSet<>();
+    for (File file : Objects.requireNonNull(snapshotDir.listFiles())) {
+      if (file.getName().equals(MANIFEST_FILE_NAME)) {
+        continue;
+      }
+      fileNames.add(file.getName());
+      ManifestEntry previous = previousManifest.get(file.getName());
+      ManifestEntry entry;
+      File previousFile = new File(previousSnapshotDir, file.getName());
+      if (previous != null
+          && previous.size == file.length()
+          && previousFile.exists()
+          && Files.isSameFile(file.toPath(), previousFile.toPath())) {
+        entry = new ManifestEntry(SHARED, file.length(), previous.digest, file.getName());
+      } else {
+        MD5Hash digest = computeDigest(file);
+        entry =
+            new ManifestEntry(
+                ADDED, file.length(), digest == null ? null : digest.toString(), file.getName());
+      }
+      lines.add(entry.toString());
+    }
+    for (ManifestEntry previous : previousManifest.values()) {
+      if (!fileNames.contains(previous.fileName)) {
+        lines.add(new ManifestEntry(REMOVED, 0, null, previous.fileName).toString());
+      }
+    }
+
+    // write to a temporary file first so that a partial manifest is never read
+    File tmpManifest = new File(snapshotDir, MANIFEST_FILE_NAME + ".tmp");
+    Files.write(tmpManifest.toPath(), lines, StandardCharsets.UTF_8);
+    Files.move(
+        tmpManifest.toPath(),
+        new File(snapshotDir, MANIFEST_FILE_NAME).toPath(),
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** @return the files in the snapshot indexed by name, null if there is no valid manifest */
+  private Map<String, ManifestEntry> readManifest(File snapshotDir) {
+    File manifestFile = new File(snapshotDir, MANIFEST_FILE_NAME);
+    if (!manifestFile.exists()) {
+      return null;
+    }
+    Map<String, ManifestEntry> entries = new LinkedHashMap<>();
+    try {
+      for (String line : Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+        ManifestEntry entry = ManifestEntry.parse(line);
+        if (!entry.change.equals(REMOVED)) {
+          entries.put(entry.fileName, entry);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.warn("cannot read snapshot manifest {}", manifestFile, e);
+      return null;
+    }
+    return entries;
+  }
+
+  private MD5Hash computeDigest(File file) {
+    try {
+      return MD5FileUtil.computeMd5ForFile(file);
+    } catch (IOException e) {
+      logger.error("read file info failed for snapshot file ", e);
+      return null;
+    }
+  }
+
   @Override
   public void format() throws IOException {}
 
@@ -141,4 +260,35 @@ public class SnapshotStorage implements StateMachineStorage {
   public File getSnapshotDir(String snapshotMetadata) {
     return new File(stateMachineDir.getAbsolutePath() + File.separator + snapshotMetadata);
   }
+
+  private static class ManifestEntry {
+
+    private final String change;
+    private final long size;
+    // hex string of the MD5 digest, null if it could not be computed
+    private final String digest;
+    private final String fileName;
+
+    private ManifestEntry(String change, long size, String digest, String fileName) {
+      this.change = change;
+      this.size = size;
+      this.digest = digest;
+      this.fileName = fileName;
+    }
+
+    private static ManifestEntry parse(String line) {
+      String[] items = line.split(MANIFEST_SEPARATOR, 4);
+      if (items.length != 4) {
+        throw new IllegalArgumentException("Illegal manifest entry: " + line);
+      }
+      return new ManifestEntry(
+          items[0], Long.parseLong(items[1]), items[2].isEmpty() ? null : items[2], items[3]);
+    }
+
+    @Override
+    public String toString() {
+      return String.join(
+          MANIFEST_SEPARATOR, change, String.valueOf(size), digest == null ? "" : digest, fileName);
+    }
+  }
 }
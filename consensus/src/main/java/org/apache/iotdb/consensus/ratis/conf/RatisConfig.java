@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.consensus.ratis.conf;
+
+/** Configurations of {@link org.apache.iotdb.consensus.ratis.RatisConsensus}. */
+public class RatisConfig {
+
+  private final int applierMaxPendingEntries;
+  private final int applierMaxEntriesPerBatch;
+  private final long leaderLeaseTimeoutMs;
+
+  private RatisConfig(
+      int applierMaxPendingEntries, int applierMaxEntriesPerBatch, long leaderLeaseTimeoutMs) {
+    this.applierMaxPendingEntries = applierMaxPendingEntries;
+    this.applierMaxEntriesPerBatch = applierMaxEntriesPerBatch;
+    this.leaderLeaseTimeoutMs = leaderLeaseTimeoutMs;
+  }
+
+  public int getApplierMaxPendingEntries() {
+    return applierMaxPendingEntries;
+  }
+
+  public int getApplierMaxEntriesPerBatch() {
+    return applierMaxEntriesPerBatch;
+  }
+
+  public long getLeaderLeaseTimeoutMs() {
+    return leaderLeaseTimeoutMs;
+  }
+
+  public static RatisConfig.Builder newBuilder() {
+    return new RatisConfig.Builder();
+  }
+
+  public static class Builder {
+
+    // the committed entries waiting to be applied, the apply thread of Ratis blocks beyond it
+    private int applierMaxPendingEntries = 1024;
+    // the committed entries handed to the statemachine at a time
+    private int applierMaxEntriesPerBatch = 128;
+    // the leader serves LEADER_LEASE reads locally while a majority responded within it, which
+    // should be shorter than the min election timeout
+    private long leaderLeaseTimeoutMs = 1000;
+
+    public Builder setApplierMaxPendingEntries(int applierMaxPendingEntries) {
+      this.applierMaxPendingEntries = applierMaxPendingEntries;
+      return this;
+    }
+
+    public Builder setApplierMaxEntriesPerBatch(int applierMaxEntriesPerBatch) {
+      this.applierMaxEntriesPerBatch = applierMaxEntriesPerBatch;
+      return this;
+    }
+
+    public Builder setLeaderLeaseTimeoutMs(long leaderLeaseTimeoutMs) {
+      this.leaderLeaseTimeoutMs = leaderLeaseTimeoutMs;
+      return this;
+    }
+
+    public RatisConfig build() {
+      return new RatisConfig(
+          applierMaxPendingEntries, applierMaxEntriesPerBatch, leaderLeaseTimeoutMs);
+    }
+  }
+}
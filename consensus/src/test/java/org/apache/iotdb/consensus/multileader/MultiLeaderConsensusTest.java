@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.consensus.multileader;
+
+import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.commons.consensus.DataRegionId;
+import org.apache.iotdb.consensus.IStateMachine;
+import org.apache.iotdb.consensus.common.DataSet;
+import org.apache.iotdb.consensus.common.Peer;
+import org.apache.iotdb.consensus.common.request.ByteBufferConsensusRequest;
+import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+import org.apache.iotdb.consensus.common.request.IndexedConsensusRequest;
+import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
+import org.apache.iotdb.consensus.multileader.conf.MultiLeaderConfig;
+import org.apache.iotdb.consensus.wal.ConsensusReqReader;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MultiLeaderConsensusTest {
+
+  private final ConsensusGroupId gid = new DataRegionId(1);
+  private final List<Peer> peers = new ArrayList<>();
+  private final List<File> peersStorage = new ArrayList<>();
+  private final List<MultiLeaderConsensus> servers = new ArrayList<>();
+  private final List<IntegerCounter> stateMachines = new ArrayList<>();
+
+  @Before
+  public void setUp() throws IOException {
+    for (int i = 0; i < 3; i++) {
+      peers.add(new Peer(gid, new TEndPoint("127.0.0.1", 6000 + i)));
+      File storage = new File("target" + File.separator + "multileader" + File.separator + i);
+      FileUtils.deleteDirectory(storage);
+      peersStorage.add(storage);
+      stateMachines.add(new IntegerCounter());
+    }
+    makeServers();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    for (MultiLeaderConsensus server : servers) {
+      server.stop();
+    }
+    for (File storage : peersStorage) {
+      FileUtils.deleteDirectory(storage);
+    }
+  }
+
+  private void makeServers() throws IOException {
+    servers.clear();
+    for (int i = 0; i < 3; i++) {
+      servers.add(makeServer(i));
+    }
+  }
+
+  private MultiLeaderConsensus makeServer(int i) throws IOException {
+    MultiLeaderConsensus server =
+        new MultiLeaderConsensus(
+            peers.get(i).getEndpoint(),
+            peersStorage.get(i),
+            groupId -> stateMachines.get(i),
+            MultiLeaderConfig.newBuilder()
+                .setRetryIntervalInMs(100)
+                .setMaxPendingRequestNumPerPeer(2)
+                .build());
+    server.start();
+    return server;
+  }
+
+  @Test
+  public void replicateWritesOfAllPeers() throws Exception {
+    for (MultiLeaderConsensus server : servers) {
+      Assert.assertTrue(server.addConsensusGroup(gid, peers).isSuccess());
+      Assert.assertTrue(server.isLeader(gid));
+    }
+
+    // every peer accepts writes
+    for (int i = 0; i < 30; i++) {
+      ConsensusWriteResponse response = servers.get(i % 3).write(gid, incrRequest());
+      Assert.assertEquals(200, response.getStatus().getCode());
+    }
+    waitUntilAllCountersReach(30);
+    for (MultiLeaderConsensus server : servers) {
+      MultiLeaderServerImpl impl = server.getImpl(gid);
+      Assert.assertEquals(10, impl.getSearchIndex());
+      for (Peer peer : peers) {
+        if (!peer.equals(impl.getThisNode())) {
+          Assert.assertEquals(10, impl.getSyncIndex(peer));
+        }
+      }
+    }
+
+    // the groups are recovered after restarting
+    for (MultiLeaderConsensus server : servers) {
+      server.stop();
+    }
+    makeServers();
+    for (int i = 0; i < 3; i++) {
+      Assert.assertNotNull(servers.get(i).getImpl(gid));
+      Assert.assertEquals(3, servers.get(i).getImpl(gid).getConfiguration().size());
+      servers.get(i).write(gid, incrRequest());
+    }
+    waitUntilAllCountersReach(33);
+  }
+
+  @Test
+  public void catchUpFromStateMachine() throws Exception {
+    for (MultiLeaderConsensus server : servers) {
+      Assert.assertTrue(server.addConsensusGroup(gid, peers).isSuccess());
+    }
+    servers.get(2).stop();
+
+    // far more requests than the pending ones kept in memory for the stopped peer
+    for (int i = 0; i < 50; i++) {
+      Assert.assertEquals(200, servers.get(0).write(gid, incrRequest()).getStatus().getCode());
+    }
+    waitUntilCounterReaches(stateMachines.get(1), 50);
+    Assert.assertEquals(0, stateMachines.get(2).get());
+
+    // the missing requests are read from the statemachine of peer 0
+    servers.set(2, makeServer(2));
+    waitUntilCounterReaches(stateMachines.get(2), 50);
+    MultiLeaderServerImpl impl = servers.get(0).getImpl(gid);
+    Assert.assertEquals(50, impl.getSearchIndex());
+    Assert.assertEquals(50, impl.getSyncIndex(peers.get(2)));
+  }
+
+  @Test
+  public void changeMembership() throws Exception {
+    List<Peer> initialPeers = peers.subList(0, 2);
+    for (int i = 0; i < 2; i++) {
+      Assert.assertTrue(servers.get(i).addConsensusGroup(gid, initialPeers).isSuccess());
+    }
+    for (int i = 0; i < 5; i++) {
+      servers.get(0).write(gid, incrRequest());
+    }
+    waitUntilCounterReaches(stateMachines.get(1), 5);
+
+    // the new peer receives the writes from now on
+    Assert.assertTrue(servers.get(2).addConsensusGroup(gid, peers).isSuccess());
+    for (int i = 0; i < 2; i++) {
+      Assert.assertTrue(servers.get(i).addPeer(gid, peers.get(2)).isSuccess());
+      Assert.assertFalse(servers.get(i).addPeer(gid, peers.get(2)).isSuccess());
+    }
+    for (int i = 0; i < 5; i++) {
+      servers.get(0).write(gid, incrRequest());
+    }
+    waitUntilCounterReaches(stateMachines.get(1), 10);
+    waitUntilCounterReaches(stateMachines.get(2), 5);
+    Assert.assertEquals(3, servers.get(0).getImpl(gid).getConfiguration().size());
+
+    for (int i = 0; i < 2; i++) {
+      Assert.assertTrue(servers.get(i).removePeer(gid, peers.get(2)).isSuccess());
+      Assert.assertFalse(servers.get(i).removePeer(gid, peers.get(2)).isSuccess());
+    }
+    servers.get(0).write(gid, incrRequest());
+    waitUntilCounterReaches(stateMachines.get(1), 11);
+    Assert.assertEquals(5, stateMachines.get(2).get());
+
+    Assert.assertTrue(servers.get(0).transferLeader(gid, peers.get(1)).isSuccess());
+    Assert.assertFalse(servers.get(0).transferLeader(gid, peers.get(2)).isSuccess());
+    Assert.assertTrue(servers.get(0).triggerSnapshot(gid).isSuccess());
+  }
+
+  private void waitUntilAllCountersReach(int target) throws InterruptedException {
+    for (IntegerCounter stateMachine : stateMachines) {
+      waitUntilCounterReaches(stateMachine, target);
+    }
+  }
+
+  private void waitUntilCounterReaches(IntegerCounter stateMachine, int target)
+      throws InterruptedException {
+    long start = System.currentTimeMillis();
+    while (stateMachine.get() < target
+        && System.currentTimeMillis() - start < TimeUnit.SECONDS.toMillis(30)) {
+      TimeUnit.MILLISECONDS.sleep(50);
+    }
+    Assert.assertEquals(target, stateMachine.get());
+  }
+
+  private IConsensusRequest incrRequest() {
+    ByteBuffer buffer = ByteBuffer.allocate(4);
+    buffer.putInt(1);
+    buffer.flip();
+    return new ByteBufferConsensusRequest(buffer);
+  }
+
+  /** Counts the requests, and keeps the requests written on its own peer to be read again. */
+  private static class IntegerCounter implements IStateMachine, ConsensusReqReader {
+
+    private final AtomicInteger integer = new AtomicInteger(0);
+    private final List<IndexedConsensusRequest> log = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void stop() {}
+
+    @Override
+    public TSStatus write(IConsensusRequest request) {
+      if (request instanceof IndexedConsensusRequest) {
+        log.add((IndexedConsensusRequest) request);
+        request = ((IndexedConsensusRequest) request).getRequest();
+      }
+      ByteBuffer buffer = ((ByteBufferConsensusRequest) request).getContent().duplicate();
+      integer.addAndGet(buffer.getInt());
+      return new TSStatus(200);
+    }
+
+    @Override
+    public DataSet read(IConsensusRequest request) {
+      return null;
+    }
+
+    @Override
+    public boolean takeSnapshot(File snapshotDir) {
+      return snapshotDir.mkdirs();
+    }
+
+    @Override
+    public void loadSnapshot(File latestSnapshotRootDir) {}
+
+    @Override
+    public ConsensusReqReader getConsensusReqReader() {
+      return this;
+    }
+
+    @Override
+    public IConsensusRequest getReq(long index) {
+      List<IConsensusRequest> requests = getReqs(index, 1);
+      return requests.isEmpty() ? null : requests.get(0);
+    }
+
+    @Override
+    public List<IConsensusRequest> getReqs(long startIndex, int num) {
+      List<IConsensusRequest> requests = new ArrayList<>();
+      ReqIterator iterator = getReqIterator(startIndex);
+      while (requests.size() < num && iterator.hasNext()) {
+        requests.add(iterator.next());
+      }
+      return requests;
+    }
+
+    @Override
+    public ReqIterator getReqIterator(long startIndex) {
+      return new ReqIterator() {
+        private int position = 0;
+        private long targetIndex = startIndex;
+
+        @Override
+        public boolean hasNext() {
+          while (position < log.size() && log.get(position).getSearchIndex() < targetIndex) {
+            position++;
+          }
+          return position < log.size();
+        }
+
+        @Override
+        public IConsensusRequest next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return log.get(position++);
+        }
+
+        @Override
+        public IConsensusRequest waitForNext() throws InterruptedException {
+          while (!hasNext()) {
+            TimeUnit.MILLISECONDS.sleep(10);
+          }
+          return next();
+        }
+
+        @Override
+        public IConsensusRequest waitForNext(long timeout)
+            throws InterruptedException, TimeoutException {
+          long deadline = System.currentTimeMillis() + timeout;
+          while (!hasNext()) {
+            if (System.currentTimeMillis() > deadline) {
+              throw new TimeoutException();
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+          }
+          return next();
+        }
+
+        @Override
+        public void skipTo(long index) {
+          targetIndex = index;
+        }
+      };
+    }
+
+    private int get() {
+      return integer.get();
+    }
+  }
+}
@@ -25,6 +25,7 @@ import org.apache.iotdb.consensus.ConsensusFactory;
 import org.apache.iotdb.consensus.IConsensus;
 import org.apache.iotdb.consensus.common.ConsensusGroup;
 import org.apache.iotdb.consensus.common.Peer;
+import org.apache.iotdb.consensus.common.ReadConsistencyLevel;
 import org.apache.iotdb.consensus.common.request.ByteBufferConsensusRequest;
 import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
 import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
@@ -189,6 +190,29 @@ public class RatisConsensusTest {
     doConsensus(servers.get(0), gid, 10, 50);
   }
 
+  @Test
+  public void readWithConsistencyLevels() throws Exception {
+    servers.get(0).addConsensusGroup(group.getGroupId(), group.getPeers());
+    servers.get(1).addConsensusGroup(group.getGroupId(), group.getPeers());
+    servers.get(2).addConsensusGroup(group.getGroupId(), group.getPeers());
+    doConsensus(servers.get(0), gid, 10, 10);
+
+    ByteBuffer get = ByteBuffer.allocate(4);
+    get.putInt(2);
+    get.flip();
+    ByteBufferConsensusRequest getReq = new ByteBufferConsensusRequest(get);
+    // only the bounded staleness reads of followers may miss the latest writes
+    for (IConsensus server : servers) {
+      for (ReadConsistencyLevel level : ReadConsistencyLevel.values()) {
+        ConsensusReadResponse response = server.read(gid, getReq, level);
+        Assert.assertNull(response.getException());
+        if (level != ReadConsistencyLevel.BOUNDED_STALENESS) {
+          Assert.assertEquals(10, ((TestUtils.TestDataSet) response.getDataset()).getNumber());
+        }
+      }
+    }
+  }
+
   private void doConsensus(IConsensus consensus, ConsensusGroupId gid, int count, int target)
       throws Exception {
 
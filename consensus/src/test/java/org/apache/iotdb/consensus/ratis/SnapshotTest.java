@@ -19,11 +19,13 @@
 package org.apache.iotdb.consensus.ratis;
 
 import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.storage.FileInfo;
 import org.apache.ratis.server.storage.RaftStorage;
 import org.apache.ratis.server.storage.RaftStorageDirectory;
 import org.apache.ratis.server.storage.RaftStorageMetadataFile;
 import org.apache.ratis.statemachine.SnapshotInfo;
 import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.MD5FileUtil;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -31,6 +33,9 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
 
 public class SnapshotTest {
 
@@ -117,4 +122,43 @@ public class SnapshotTest {
     Assert.assertFalse(new File(snapshotFilename).exists());
     Assert.assertTrue(new File(snapshotFilenameLatest).exists());
   }
+
+  @Test
+  public void testIncrementalManifest() throws Exception {
+    SnapshotStorage storage = new SnapshotStorage(new TestUtils.IntegerCounter());
+    storage.init(new EmptyStorageWithOnlySMDir());
+
+    File firstSnapshot = storage.getSnapshotDir("1_10");
+    Assert.assertTrue(firstSnapshot.mkdirs());
+    File sealedFile = new File(firstSnapshot, "sealed");
+    Files.write(sealedFile.toPath(), "sealed".getBytes(StandardCharsets.UTF_8));
+    storage.writeManifest(firstSnapshot, storage.findPreviousSnapshotDir(firstSnapshot));
+
+    // the second snapshot shares the sealed file and adds a new one
+    File secondSnapshot = storage.getSnapshotDir("1_20");
+    Assert.assertTrue(secondSnapshot.mkdirs());
+    Files.createLink(new File(secondSnapshot, "sealed").toPath(), sealedFile.toPath());
+    Files.write(
+        new File(secondSnapshot, "added").toPath(), "added".getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals(firstSnapshot, storage.findPreviousSnapshotDir(secondSnapshot));
+    storage.writeManifest(secondSnapshot, firstSnapshot);
+
+    List<String> manifest =
+        Files.readAllLines(
+            new File(secondSnapshot, SnapshotStorage.MANIFEST_FILE_NAME).toPath(),
+            StandardCharsets.UTF_8);
+    Assert.assertEquals(2, manifest.size());
+    for (String line : manifest) {
+      Assert.assertTrue(line, line.startsWith(line.endsWith("sealed") ? "S\t" : "A\t"));
+    }
+
+    // the manifest describes the files and itself
+    SnapshotInfo info = storage.getLatestSnapshot();
+    Assert.assertEquals(20, info.getIndex());
+    Assert.assertEquals(3, info.getFiles().size());
+    for (FileInfo fileInfo : info.getFiles()) {
+      Assert.assertEquals(
+          MD5FileUtil.computeMd5ForFile(fileInfo.getPath().toFile()), fileInfo.getFileDigest());
+    }
+  }
 }
@@ -41,6 +41,9 @@ public class Accumulator implements UDTF {
 
   private static final Logger logger = LoggerFactory.getLogger(Accumulator.class);
 
+  // the accumulation of the current window, maintained with the rows entering and leaving it
+  private int accumulator = 0;
+
   @Override
   public void validate(UDFParameterValidator validator) throws Exception {
     validator.validateInputSeriesDataType(0, TSDataType.INT32, TSDataType.DOUBLE);
@@ -55,7 +58,10 @@ public class Accumulator implements UDTF {
       case ExampleUDFConstant.ACCESS_STRATEGY_SLIDING_SIZE:
         configurations.setAccessStrategy(
             new SlidingSizeWindowAccessStrategy(
-                parameters.getInt(ExampleUDFConstant.WINDOW_SIZE_KEY)));
+                parameters.getInt(ExampleUDFConstant.WINDOW_SIZE_KEY),
+                parameters.getIntOrDefault(
+                    ExampleUDFConstant.SLIDING_STEP_KEY,
+                    parameters.getInt(ExampleUDFConstant.WINDOW_SIZE_KEY))));
         break;
       case ExampleUDFConstant.ACCESS_STRATEGY_SLIDING_TIME:
         configurations.setAccessStrategy(
@@ -78,21 +84,26 @@ public class Accumulator implements UDTF {
 
   @Override
   public void transform(RowWindow rowWindow, PointCollector collector) throws IOException {
-    int accumulator = 0;
-    RowIterator rowIterator = rowWindow.getRowIterator();
+    accumulator -= accumulate(rowWindow.getExitedRowIterator(), rowWindow.getDataType(0));
+    accumulator += accumulate(rowWindow.getEnteredRowIterator(), rowWindow.getDataType(0));
+    if (rowWindow.windowSize() != 0) {
+      collector.putInt(rowWindow.getRow(0).getTime(), accumulator);
+    }
+  }
+
+  private int accumulate(RowIterator rowIterator, TSDataType dataType) throws IOException {
+    int accumulation = 0;
     while (rowIterator.hasNextRow()) {
-      switch (rowWindow.getDataType(0)) {
+      switch (dataType) {
         case INT32:
-          accumulator += rowIterator.next().getInt(0);
+          accumulation += rowIterator.next().getInt(0);
           break;
         case DOUBLE:
-          accumulator += (int) rowIterator.next().getDouble(0);
+          accumulation += (int) rowIterator.next().getDouble(0);
           break;
       }
     }
-    if (rowWindow.windowSize() != 0) {
-      collector.putInt(rowWindow.getRow(0).getTime(), accumulator);
-    }
+    return accumulation;
   }
 
   @Override
@@ -25,10 +25,13 @@ import org.apache.iotdb.db.query.udf.api.access.RowWindow;
 import org.apache.iotdb.db.query.udf.api.collector.PointCollector;
 import org.apache.iotdb.db.query.udf.api.customizer.config.UDTFConfigurations;
 import org.apache.iotdb.db.query.udf.api.customizer.parameter.UDFParameters;
+import org.apache.iotdb.db.query.udf.api.customizer.strategy.ColumnBatchAccessStrategy;
 import org.apache.iotdb.db.query.udf.api.customizer.strategy.RowByRowAccessStrategy;
 import org.apache.iotdb.db.query.udf.api.customizer.strategy.SlidingSizeWindowAccessStrategy;
 import org.apache.iotdb.db.query.udf.api.customizer.strategy.SlidingTimeWindowAccessStrategy;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +66,13 @@ public class Counter implements UDTF {
                 : new SlidingTimeWindowAccessStrategy(
                     parameters.getLong(ExampleUDFConstant.TIME_INTERVAL_KEY)));
         break;
+      case ExampleUDFConstant.ACCESS_STRATEGY_COLUMN_BATCH:
+        configurations.setAccessStrategy(
+            new ColumnBatchAccessStrategy(
+                parameters.getIntOrDefault(
+                    ExampleUDFConstant.BATCH_SIZE_KEY,
+                    ColumnBatchAccessStrategy.DEFAULT_MAX_BATCH_SIZE)));
+        break;
       case ExampleUDFConstant.ACCESS_STRATEGY_ROW_BY_ROW:
       default:
         configurations.setAccessStrategy(new RowByRowAccessStrategy());
@@ -81,6 +91,16 @@ public class Counter implements UDTF {
     }
   }
 
+  @Override
+  public void transform(TimeColumn timeColumn, Column[] valueColumns, PointCollector collector)
+      throws IOException {
+    for (int i = 0; i < timeColumn.getPositionCount(); ++i) {
+      if (!valueColumns[0].isNull(i)) {
+        collector.putInt(timeColumn.getLong(i), 1);
+      }
+    }
+  }
+
   @Override
   public void beforeDestroy() {
     logger.debug("Counter#beforeDestroy");
@@ -130,6 +130,42 @@ public class IoTDBUDFWindowQueryIT {
     }
   }
 
+  @Test
+  public void testColumnBatch1() {
+    testColumnBatch(
+        String.format(
+            "select counter(s1, '%s'='%s') from root.vehicle.d1",
+            ExampleUDFConstant.ACCESS_STRATEGY_KEY,
+            ExampleUDFConstant.ACCESS_STRATEGY_COLUMN_BATCH));
+  }
+
+  @Test
+  public void testColumnBatch2() {
+    testColumnBatch(
+        String.format(
+            "select counter(s1, '%s'='%s', '%s'='%s') from root.vehicle.d1",
+            ExampleUDFConstant.ACCESS_STRATEGY_KEY,
+            ExampleUDFConstant.ACCESS_STRATEGY_COLUMN_BATCH,
+            ExampleUDFConstant.BATCH_SIZE_KEY,
+            7));
+  }
+
+  private void testColumnBatch(String sql) {
+    try (Connection conn = EnvFactory.getEnv().getConnection();
+        Statement statement = conn.createStatement()) {
+      ResultSet resultSet = statement.executeQuery(sql);
+      int count = 0;
+      assertEquals(2, resultSet.getMetaData().getColumnCount());
+      while (resultSet.next()) {
+        assertEquals(count++, (int) (Double.parseDouble(resultSet.getString(1))));
+        assertEquals(1, (int) (Double.parseDouble(resultSet.getString(2))));
+      }
+      assertEquals(ITERATION_TIMES, count);
+    } catch (SQLException throwable) {
+      fail(throwable.getMessage());
+    }
+  }
+
   @Test
   public void testSlidingSizeWindow1() {
     testSlidingSizeWindow((int) (0.1 * ITERATION_TIMES));
@@ -170,6 +206,45 @@ public class IoTDBUDFWindowQueryIT {
     testSlidingSizeWindow(-ITERATION_TIMES);
   }
 
+  @Test
+  public void testOverlappingSlidingSizeWindow() {
+    int windowSize = 5;
+    int slidingStep = 2;
+    String sql =
+        String.format(
+            "select accumulator(s1, '%s'='%s', '%s'='%s', '%s'='%s') from root.vehicle.d1",
+            ExampleUDFConstant.ACCESS_STRATEGY_KEY,
+            ExampleUDFConstant.ACCESS_STRATEGY_SLIDING_SIZE,
+            ExampleUDFConstant.WINDOW_SIZE_KEY,
+            windowSize,
+            ExampleUDFConstant.SLIDING_STEP_KEY,
+            slidingStep);
+
+    try (Connection conn = EnvFactory.getEnv().getConnection();
+        Statement statement = conn.createStatement()) {
+      ResultSet resultSet = statement.executeQuery(sql);
+      assertEquals(2, resultSet.getMetaData().getColumnCount());
+
+      int count = 0;
+      while (resultSet.next()) {
+        int windowBegin = count * slidingStep;
+        int windowEnd = Math.min(windowBegin + windowSize, ITERATION_TIMES);
+
+        int expectedAccumulation = 0;
+        for (int i = windowBegin; i < windowEnd; ++i) {
+          expectedAccumulation += i;
+        }
+
+        assertEquals(windowBegin, Long.parseLong(resultSet.getString(1)));
+        assertEquals(expectedAccumulation, (int) (Double.parseDouble(resultSet.getString(2))));
+        ++count;
+      }
+      assertEquals((ITERATION_TIMES + slidingStep - 1) / slidingStep, count);
+    } catch (SQLException throwable) {
+      fail(throwable.getMessage());
+    }
+  }
+
   private void testSlidingSizeWindow(int windowSize) {
     String sql =
         String.format(
@@ -87,6 +87,9 @@ public class SessionPoolTest {
       assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
       assertTrue(pool.currentAvailableSize() <= 3);
       assertEquals(0, pool.currentOccupiedSize());
+      assertTrue(pool.currentSize() <= 3);
+      assertEquals(10, pool.getAcquireCount());
+      assertEquals(0, pool.currentWaitingThreadNum());
     } catch (InterruptedException e) {
       logger.error("insert failed", e);
       fail(e.getMessage());
@@ -25,16 +25,19 @@ import org.apache.iotdb.db.query.udf.api.collector.PointCollector;
 import org.apache.iotdb.db.query.udf.api.customizer.config.UDTFConfigurations;
 import org.apache.iotdb.db.query.udf.api.customizer.parameter.UDFParameterValidator;
 import org.apache.iotdb.db.query.udf.api.customizer.parameter.UDFParameters;
-import org.apache.iotdb.db.query.udf.api.customizer.strategy.RowByRowAccessStrategy;
+import org.apache.iotdb.db.query.udf.api.customizer.strategy.ColumnBatchAccessStrategy;
 import org.apache.iotdb.library.util.DoubleCircularQueue;
 import org.apache.iotdb.library.util.Util;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
 
 /** This function calculates moving average of given window length of input series. */
 public class UDTFMvAvg implements UDTF {
   int windowSize;
   TSDataType dataType;
   DoubleCircularQueue v;
+  double windowSum;
 
   @Override
   public void validate(UDFParameterValidator validator) throws Exception {
@@ -52,22 +55,36 @@ public class UDTFMvAvg implements UDTF {
   public void beforeStart(UDFParameters parameters, UDTFConfigurations configurations)
       throws Exception {
     configurations
-        .setAccessStrategy(new RowByRowAccessStrategy())
+        .setAccessStrategy(new ColumnBatchAccessStrategy())
         .setOutputDataType(TSDataType.DOUBLE);
     dataType = parameters.getDataType(0);
     windowSize = parameters.getIntOrDefault("window", 10);
     v = new DoubleCircularQueue(windowSize);
+    windowSum = 0d;
   }
 
   @Override
   public void transform(Row row, PointCollector collector) throws Exception {
-    long t = row.getTime();
-    double windowSum = 0d;
-    if (v.isFull()) {
-      windowSum -= v.pop();
+    transform(row.getTime(), Util.getValueAsDouble(row), collector);
+  }
+
+  @Override
+  public void transform(TimeColumn timeColumn, Column[] valueColumns, PointCollector collector)
+      throws Exception {
+    Column valueColumn = valueColumns[0];
+    for (int i = 0, n = timeColumn.getPositionCount(); i < n; ++i) {
+      if (!valueColumn.isNull(i)) {
+        transform(timeColumn.getLong(i), Util.getValueAsDouble(valueColumn, i), collector);
+      }
     }
-    double value = Util.getValueAsDouble(row);
+  }
+
+  private void transform(long t, double value, PointCollector collector) throws Exception {
     if (Double.isFinite(value)) {
+      // the sum is maintained with the values entering and leaving the window
+      if (v.isFull()) {
+        windowSum -= v.pop();
+      }
       v.push(value);
       windowSum += value;
       if (v.isFull()) {
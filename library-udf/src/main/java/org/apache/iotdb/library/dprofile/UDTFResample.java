@@ -25,10 +25,12 @@ import org.apache.iotdb.db.query.udf.api.collector.PointCollector;
 import org.apache.iotdb.db.query.udf.api.customizer.config.UDTFConfigurations;
 import org.apache.iotdb.db.query.udf.api.customizer.parameter.UDFParameterValidator;
 import org.apache.iotdb.db.query.udf.api.customizer.parameter.UDFParameters;
-import org.apache.iotdb.db.query.udf.api.customizer.strategy.RowByRowAccessStrategy;
+import org.apache.iotdb.db.query.udf.api.customizer.strategy.ColumnBatchAccessStrategy;
 import org.apache.iotdb.library.dprofile.util.Resampler;
 import org.apache.iotdb.library.util.Util;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
 
 import java.text.SimpleDateFormat;
 
@@ -80,7 +82,7 @@ public class UDTFResample implements UDTF {
   public void beforeStart(UDFParameters parameters, UDTFConfigurations configurations)
       throws Exception {
     configurations
-        .setAccessStrategy(new RowByRowAccessStrategy())
+        .setAccessStrategy(new ColumnBatchAccessStrategy())
         .setOutputDataType(TSDataType.DOUBLE);
     long newPeriod = Util.parseTime(parameters.getString("every"));
     String aggregator = parameters.getStringOrDefault("aggr", "mean").toLowerCase();
@@ -105,6 +107,21 @@ public class UDTFResample implements UDTF {
     }
   }
 
+  @Override
+  public void transform(TimeColumn timeColumn, Column[] valueColumns, PointCollector pc)
+      throws Exception {
+    Column valueColumn = valueColumns[0];
+    for (int i = 0, n = timeColumn.getPositionCount(); i < n; ++i) {
+      if (!valueColumn.isNull(i)) {
+        resampler.insert(timeColumn.getLong(i), Util.getValueAsDouble(valueColumn, i));
+      }
+    }
+    while (resampler.hasNext()) { // output as early as possible
+      pc.putDouble(resampler.getOutTime(), resampler.getOutValue());
+      resampler.next();
+    }
+  }
+
   @Override
   public void terminate(PointCollector pc) throws Exception {
     resampler.flush();
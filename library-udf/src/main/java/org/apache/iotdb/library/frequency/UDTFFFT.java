@@ -25,10 +25,12 @@ import org.apache.iotdb.db.query.udf.api.collector.PointCollector;
 import org.apache.iotdb.db.query.udf.api.customizer.config.UDTFConfigurations;
 import org.apache.iotdb.db.query.udf.api.customizer.parameter.UDFParameterValidator;
 import org.apache.iotdb.db.query.udf.api.customizer.parameter.UDFParameters;
-import org.apache.iotdb.db.query.udf.api.customizer.strategy.RowByRowAccessStrategy;
+import org.apache.iotdb.db.query.udf.api.customizer.strategy.ColumnBatchAccessStrategy;
 import org.apache.iotdb.library.frequency.util.FFTUtil;
 import org.apache.iotdb.library.util.Util;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
 
 import org.eclipse.collections.impl.list.mutable.primitive.DoubleArrayList;
 import org.jtransforms.fft.DoubleFFT_1D;
@@ -70,7 +72,7 @@ public class UDTFFFT implements UDTF {
   public void beforeStart(UDFParameters parameters, UDTFConfigurations configurations)
       throws Exception {
     configurations
-        .setAccessStrategy(new RowByRowAccessStrategy())
+        .setAccessStrategy(new ColumnBatchAccessStrategy())
         .setOutputDataType(TSDataType.DOUBLE);
     String result = parameters.getStringOrDefault("result", "abs");
     this.compressed = parameters.hasAttribute("compress");
@@ -86,6 +88,20 @@ public class UDTFFFT implements UDTF {
     }
   }
 
+  @Override
+  public void transform(TimeColumn timeColumn, Column[] valueColumns, PointCollector collector)
+      throws Exception {
+    Column valueColumn = valueColumns[0];
+    for (int i = 0, n = timeColumn.getPositionCount(); i < n; ++i) {
+      if (!valueColumn.isNull(i)) {
+        double v = Util.getValueAsDouble(valueColumn, i);
+        if (Double.isFinite(v)) {
+          list.add(v);
+        }
+      }
+    }
+  }
+
   @Override
   public void terminate(PointCollector collector) throws Exception {
     int n = list.size();
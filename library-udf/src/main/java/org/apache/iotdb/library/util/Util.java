@@ -21,6 +21,7 @@ package org.apache.iotdb.library.util;
 import org.apache.iotdb.db.query.udf.api.access.Row;
 import org.apache.iotdb.db.query.udf.api.collector.PointCollector;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
 
 import org.apache.commons.math3.stat.descriptive.rank.Median;
 import org.eclipse.collections.api.tuple.primitive.LongIntPair;
@@ -65,6 +66,30 @@ public class Util {
     return ans;
   }
 
+  /**
+   * Get value from specific position of the column, and cast to double. Make sure never get null
+   * from the column.
+   *
+   * @param column data column
+   * @param position the position in the column
+   * @return value of specific position of the column
+   * @throws NoNumberException when getting a no number datatype
+   */
+  public static double getValueAsDouble(Column column, int position) throws NoNumberException {
+    switch (column.getDataType()) {
+      case INT32:
+        return column.getInt(position);
+      case INT64:
+        return column.getLong(position);
+      case FLOAT:
+        return column.getFloat(position);
+      case DOUBLE:
+        return column.getDouble(position);
+      default:
+        throw new NoNumberException();
+    }
+  }
+
   /**
    * Get value from 0th column from Row, and cast to double. Make sure never get null from Row.
    *
@@ -35,6 +35,7 @@ public enum ThreadName {
   FORCE_FLUSH_ALL_POLICY("ForceFlushAllPolicy"),
   STAT_MONITOR("StatMonitor"),
   DATA_REGION_RECOVER_SERVICE("Data-Region-Recover"),
+  DATA_REGION_MIGRATION_SERVICE("Data-Region-Migration"),
   FLUSH_SERVICE("Flush"),
   FLUSH_SUB_TASK_SERVICE("Flush-SubTask"),
   COMPACTION_SERVICE("Compaction"),
@@ -51,14 +52,19 @@ public enum ThreadName {
   QUERY_SERVICE("Query"),
   SUB_RAW_QUERY_SERVICE("Sub_RawQuery"),
   INSERTION_SERVICE("MultithreadingInsertionPool"),
+  SELECT_INTO_WRITER("Select-Into-Writer"),
   WINDOW_EVALUATION_SERVICE("WindowEvaluationTaskPoolManager"),
+  TRIGGER_ASYNC_EXECUTION("Trigger-Async"),
+  TRIGGER_SINK("Trigger-Sink"),
   TTL_CHECK_SERVICE("TTL-CHECK"),
   TIMED_FlUSH_SEQ_MEMTABLE("Timed-Flush-Seq-Memtable"),
   TIMED_FlUSH_UNSEQ_MEMTABLE("Timed-Flush-Unseq-Memtable"),
   SETTLE_SERVICE("Settle"),
   SYNC_SENDER_PIPE("Sync-Pipe"),
   SYNC_SENDER_HEARTBEAT("Sync-Heartbeat"),
+  SYNC_SENDER_FILE_PIECE("Sync-File-Piece"),
   SYNC_RECEIVER_COLLECTOR("Sync-Collector"),
+  SYNC_RECEIVER_LOADER("Sync-Loader"),
   CONTINUOUS_QUERY_SERVICE("ContinuousQueryTaskPoolManager"),
   CLUSTER_INFO_SERVICE("ClusterInfoClient"),
   CLUSTER_RPC_SERVICE("ClusterRPC"),
@@ -80,7 +86,12 @@ public enum ThreadName {
   DATA_BLOCK_MANAGER_RPC_SERVER("DataBlockManagerRPC"),
   DATA_BLOCK_MANAGER_RPC_CLIENT("DataBlockManagerRPC-Client"),
   INTERNAL_SERVICE_RPC_SERVER("InternalServiceRPC"),
-  INTERNAL_SERVICE_RPC_CLIENT("InternalServiceRPC-Client");
+  INTERNAL_SERVICE_RPC_CLIENT("InternalServiceRPC-Client"),
+  SCHEMA_QUERY_SERVICE("Schema-Query"),
+  MULTI_LEADER_CONSENSUS_RPC_SERVER("MultiLeaderConsensusRPC"),
+  MULTI_LEADER_CONSENSUS_RPC_CLIENT("MultiLeaderConsensusRPC-Client"),
+  MULTI_LEADER_CONSENSUS_LOG_DISPATCHER("LogDispatcher"),
+  RATIS_APPLIER("RatisApplier");
 
   private final String name;
 
@@ -20,6 +20,7 @@ package org.apache.iotdb.db.conf;
 
 import org.apache.iotdb.common.rpc.thrift.TEndPoint;
 import org.apache.iotdb.commons.conf.IoTDBConstant;
+import org.apache.iotdb.consensus.common.ReadConsistencyLevel;
 import org.apache.iotdb.db.conf.directories.DirectoryManager;
 import org.apache.iotdb.db.engine.compaction.constant.CompactionPriority;
 import org.apache.iotdb.db.engine.compaction.constant.CrossCompactionPerformer;
@@ -38,6 +39,7 @@ import org.apache.iotdb.rpc.RpcTransportFactory;
 import org.apache.iotdb.rpc.RpcUtils;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.fileSystem.FSType;
@@ -474,9 +476,24 @@ public class IoTDBConfig {
   /** White list for sync */
   private String ipWhiteList = "0.0.0.0/0";
 
+  /**
+   * The number of threads the receiver uses to load TsFiles. TsFiles of different storage groups
+   * are loaded concurrently.
+   */
+  private int syncReceiverLoadParallelism = 4;
+
   /** The maximum number of retries when the sender fails to synchronize files to the receiver. */
   private int maxNumberOfSyncFileRetry = 5;
 
+  /**
+   * The number of connections the sender uses to transfer files, each of them carries one piece of
+   * file in flight. So it is also the window of pieces that have not been acknowledged.
+   */
+  private int syncFileTransportParallelism = 4;
+
+  /** The compression type of the file pieces sent to the receiver. */
+  private CompressionType syncFileTransportCompressor = CompressionType.UNCOMPRESSED;
+
   /**
    * Set the language version when loading file including error information, default value is "EN"
    */
@@ -593,6 +610,12 @@ public class IoTDBConfig {
   /** The limit of compaction merge can reach per second */
   private int compactionWriteThroughputMbPerSec = 16;
 
+  /**
+   * The limit of bytes a DataNode could pull per second when a region is migrated to it. 0 means
+   * no limit.
+   */
+  private int regionMigrationThroughputMbPerSec = 32;
+
   /**
    * How many thread will be set up to perform compaction, 10 by default. Set to 1 when less than or
    * equal to 0.
@@ -617,6 +640,12 @@ public class IoTDBConfig {
    */
   private long continuousQueryMinimumEveryInterval = 1000;
 
+  /*
+   * Whether to maintain the partial aggregates of the windows of continuous queries on insertion,
+   * so that the windows are not read from disk again every time the queries are executed.
+   */
+  private boolean enableIncrementalContinuousQuery = false;
+
   /**
    * The size of log buffer for every CQ management operation plan. If the size of a CQ management
    * operation plan is larger than this parameter, the CQ management operation plan will be rejected
@@ -630,6 +659,12 @@ public class IoTDBConfig {
    */
   private int selectIntoInsertTabletPlanRowLimit = 10000;
 
+  /**
+   * The maximum number of insert-tablet-plan batches of a select-into statement which are waiting
+   * to be inserted, the query is blocked when the limit is reached.
+   */
+  private int selectIntoMaxPendingBatches = 4;
+
   /**
    * When the insert plan column count reaches the specified threshold, which means that the plan is
    * relatively large. At this time, may be enabled multithreading. If the tablet is small, the time
@@ -803,6 +838,12 @@ public class IoTDBConfig {
   /** cache size for pages in one schema file */
   private int pageCacheSizeInSchemaFile = 1024;
 
+  /**
+   * the parallelism used to count timeseries on a memory based MTree, 1 means counting on the
+   * query thread only
+   */
+  private int schemaQueryParallelism = Runtime.getRuntime().availableProcessors();
+
   /** Internal ip for data node */
   private String internalIp = "127.0.0.1";
 
@@ -812,6 +853,27 @@ public class IoTDBConfig {
   /** Internal port for consensus protocol */
   private int consensusPort = 40010;
 
+  /**
+   * The consistency level of queries on replicated regions. The queries are sent to the leader of a
+   * region unless it is BOUNDED_STALENESS, which spreads them over the replicas.
+   */
+  private ReadConsistencyLevel readConsistencyLevel = ReadConsistencyLevel.LINEARIZABLE;
+
+  /**
+   * The max number of committed Ratis log entries waiting to be applied to a region. The apply
+   * thread of Ratis blocks when it is reached.
+   */
+  private int ratisApplierMaxPendingEntries = 1024;
+
+  /** The max number of committed Ratis log entries applied to a region at a time. */
+  private int ratisApplierMaxEntriesPerBatch = 128;
+
+  /**
+   * The leader of a Ratis group serves LEADER_LEASE reads locally while a majority has responded to
+   * it within this time. It should be shorter than the min election timeout.
+   */
+  private long ratisLeaderLeaseTimeoutMs = 1000;
+
   /** Ip and port of config nodes. */
   private List<TEndPoint> configNodeList =
       Collections.singletonList(new TEndPoint("127.0.0.1", 22277));
@@ -1312,6 +1374,14 @@ public class IoTDBConfig {
     this.pipeServerPort = pipeServerPort;
   }
 
+  public int getSyncReceiverLoadParallelism() {
+    return syncReceiverLoadParallelism;
+  }
+
+  public void setSyncReceiverLoadParallelism(int syncReceiverLoadParallelism) {
+    this.syncReceiverLoadParallelism = syncReceiverLoadParallelism;
+  }
+
   public int getMaxNumberOfSyncFileRetry() {
     return maxNumberOfSyncFileRetry;
   }
@@ -1320,6 +1390,22 @@ public class IoTDBConfig {
     this.maxNumberOfSyncFileRetry = maxNumberOfSyncFileRetry;
   }
 
+  public int getSyncFileTransportParallelism() {
+    return syncFileTransportParallelism;
+  }
+
+  public void setSyncFileTransportParallelism(int syncFileTransportParallelism) {
+    this.syncFileTransportParallelism = syncFileTransportParallelism;
+  }
+
+  public CompressionType getSyncFileTransportCompressor() {
+    return syncFileTransportCompressor;
+  }
+
+  public void setSyncFileTransportCompressor(CompressionType syncFileTransportCompressor) {
+    this.syncFileTransportCompressor = syncFileTransportCompressor;
+  }
+
   String getLanguageVersion() {
     return languageVersion;
   }
@@ -1642,6 +1728,14 @@ public class IoTDBConfig {
     this.continuousQueryMinimumEveryInterval = minimumEveryInterval;
   }
 
+  public boolean isEnableIncrementalContinuousQuery() {
+    return enableIncrementalContinuousQuery;
+  }
+
+  public void setEnableIncrementalContinuousQuery(boolean enableIncrementalContinuousQuery) {
+    this.enableIncrementalContinuousQuery = enableIncrementalContinuousQuery;
+  }
+
   public int getCqlogBufferSize() {
     return cqlogBufferSize;
   }
@@ -1658,6 +1752,14 @@ public class IoTDBConfig {
     return selectIntoInsertTabletPlanRowLimit;
   }
 
+  public int getSelectIntoMaxPendingBatches() {
+    return selectIntoMaxPendingBatches;
+  }
+
+  public void setSelectIntoMaxPendingBatches(int selectIntoMaxPendingBatches) {
+    this.selectIntoMaxPendingBatches = selectIntoMaxPendingBatches;
+  }
+
   public int getInsertMultiTabletEnableMultithreadingColumnThreshold() {
     return insertMultiTabletEnableMultithreadingColumnThreshold;
   }
@@ -1676,6 +1778,14 @@ public class IoTDBConfig {
     this.compactionWriteThroughputMbPerSec = compactionWriteThroughputMbPerSec;
   }
 
+  public int getRegionMigrationThroughputMbPerSec() {
+    return regionMigrationThroughputMbPerSec;
+  }
+
+  public void setRegionMigrationThroughputMbPerSec(int regionMigrationThroughputMbPerSec) {
+    this.regionMigrationThroughputMbPerSec = regionMigrationThroughputMbPerSec;
+  }
+
   public boolean isEnableMemControl() {
     return enableMemControl;
   }
@@ -2593,6 +2703,14 @@ public class IoTDBConfig {
     this.pageCacheSizeInSchemaFile = pageCacheSizeInSchemaFile;
   }
 
+  public int getSchemaQueryParallelism() {
+    return schemaQueryParallelism;
+  }
+
+  public void setSchemaQueryParallelism(int schemaQueryParallelism) {
+    this.schemaQueryParallelism = schemaQueryParallelism;
+  }
+
   public String getInternalIp() {
     return internalIp;
   }
@@ -2741,6 +2859,38 @@ public class IoTDBConfig {
     return partitionCacheSize;
   }
 
+  public ReadConsistencyLevel getReadConsistencyLevel() {
+    return readConsistencyLevel;
+  }
+
+  public void setReadConsistencyLevel(ReadConsistencyLevel readConsistencyLevel) {
+    this.readConsistencyLevel = readConsistencyLevel;
+  }
+
+  public int getRatisApplierMaxPendingEntries() {
+    return ratisApplierMaxPendingEntries;
+  }
+
+  public void setRatisApplierMaxPendingEntries(int ratisApplierMaxPendingEntries) {
+    this.ratisApplierMaxPendingEntries = ratisApplierMaxPendingEntries;
+  }
+
+  public int getRatisApplierMaxEntriesPerBatch() {
+    return ratisApplierMaxEntriesPerBatch;
+  }
+
+  public void setRatisApplierMaxEntriesPerBatch(int ratisApplierMaxEntriesPerBatch) {
+    this.ratisApplierMaxEntriesPerBatch = ratisApplierMaxEntriesPerBatch;
+  }
+
+  public long getRatisLeaderLeaseTimeoutMs() {
+    return ratisLeaderLeaseTimeoutMs;
+  }
+
+  public void setRatisLeaderLeaseTimeoutMs(long ratisLeaderLeaseTimeoutMs) {
+    this.ratisLeaderLeaseTimeoutMs = ratisLeaderLeaseTimeoutMs;
+  }
+
   public void setPartitionCacheSize(int partitionCacheSize) {
     this.partitionCacheSize = partitionCacheSize;
   }
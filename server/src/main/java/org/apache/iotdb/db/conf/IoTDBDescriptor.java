@@ -23,6 +23,7 @@ import org.apache.iotdb.commons.conf.CommonDescriptor;
 import org.apache.iotdb.commons.conf.IoTDBConstant;
 import org.apache.iotdb.commons.exception.BadNodeUrlException;
 import org.apache.iotdb.commons.utils.NodeUrlUtils;
+import org.apache.iotdb.consensus.common.ReadConsistencyLevel;
 import org.apache.iotdb.confignode.rpc.thrift.TGlobalConfig;
 import org.apache.iotdb.db.conf.directories.DirectoryManager;
 import org.apache.iotdb.db.engine.StorageEngine;
@@ -43,6 +44,7 @@ import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
 import org.apache.iotdb.metrics.config.ReloadLevel;
 import org.apache.iotdb.rpc.RpcTransportFactory;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.fileSystem.FSType;
@@ -427,6 +429,16 @@ public class IoTDBDescriptor {
               properties
                   .getProperty("pipe_server_port", Integer.toString(conf.getPipeServerPort()))
                   .trim()));
+      int syncReceiverLoadParallelism =
+          Integer.parseInt(
+              properties
+                  .getProperty(
+                      "sync_receiver_load_parallelism",
+                      Integer.toString(conf.getSyncReceiverLoadParallelism()))
+                  .trim());
+      if (syncReceiverLoadParallelism > 0) {
+        conf.setSyncReceiverLoadParallelism(syncReceiverLoadParallelism);
+      }
       conf.setMaxNumberOfSyncFileRetry(
           Integer.parseInt(
               properties
@@ -434,6 +446,23 @@ public class IoTDBDescriptor {
                       "max_number_of_sync_file_retry",
                       Integer.toString(conf.getMaxNumberOfSyncFileRetry()))
                   .trim()));
+      int syncFileTransportParallelism =
+          Integer.parseInt(
+              properties
+                  .getProperty(
+                      "sync_file_transport_parallelism",
+                      Integer.toString(conf.getSyncFileTransportParallelism()))
+                  .trim());
+      if (syncFileTransportParallelism > 0) {
+        conf.setSyncFileTransportParallelism(syncFileTransportParallelism);
+      }
+      conf.setSyncFileTransportCompressor(
+          CompressionType.valueOf(
+              properties
+                  .getProperty(
+                      "sync_file_transport_compressor",
+                      conf.getSyncFileTransportCompressor().toString())
+                  .trim()));
 
       conf.setIpWhiteList(properties.getProperty("ip_white_list", conf.getIpWhiteList()));
 
@@ -588,6 +617,12 @@ public class IoTDBDescriptor {
                   "compaction_write_throughput_mb_per_sec",
                   Integer.toString(conf.getCompactionWriteThroughputMbPerSec()))));
 
+      conf.setRegionMigrationThroughputMbPerSec(
+          Integer.parseInt(
+              properties.getProperty(
+                  "region_migration_throughput_mb_per_sec",
+                  Integer.toString(conf.getRegionMigrationThroughputMbPerSec()))));
+
       conf.setEnablePartialInsert(
           Boolean.parseBoolean(
               properties.getProperty(
@@ -775,6 +810,12 @@ public class IoTDBDescriptor {
                   "page_cache_in_schema_file",
                   String.valueOf(conf.getPageCacheSizeInSchemaFile()))));
 
+      conf.setSchemaQueryParallelism(
+          Integer.parseInt(
+              properties.getProperty(
+                  "schema_query_parallelism",
+                  String.valueOf(conf.getSchemaQueryParallelism()))));
+
       // mqtt
       loadMqttProps(properties);
 
@@ -794,6 +835,12 @@ public class IoTDBDescriptor {
                   "select_into_insert_tablet_plan_row_limit",
                   String.valueOf(conf.getSelectIntoInsertTabletPlanRowLimit()))));
 
+      conf.setSelectIntoMaxPendingBatches(
+          Integer.parseInt(
+              properties.getProperty(
+                  "select_into_max_pending_batches",
+                  String.valueOf(conf.getSelectIntoMaxPendingBatches()))));
+
       conf.setInsertMultiTabletEnableMultithreadingColumnThreshold(
           Integer.parseInt(
               properties.getProperty(
@@ -1345,6 +1392,13 @@ public class IoTDBDescriptor {
                       "max_number_of_sync_file_retry",
                       Integer.toString(conf.getMaxNumberOfSyncFileRetry()))
                   .trim()));
+      conf.setSyncFileTransportCompressor(
+          CompressionType.valueOf(
+              properties
+                  .getProperty(
+                      "sync_file_transport_compressor",
+                      conf.getSyncFileTransportCompressor().toString())
+                  .trim()));
       conf.setIpWhiteList(properties.getProperty("ip_white_list", conf.getIpWhiteList()));
 
       // update wal config
@@ -1525,6 +1579,12 @@ public class IoTDBDescriptor {
             properties.getProperty("continuous_query_minimum_every_interval", "1s"),
             conf.getTimestampPrecision()));
 
+    conf.setEnableIncrementalContinuousQuery(
+        Boolean.parseBoolean(
+            properties.getProperty(
+                "enable_incremental_continuous_query",
+                Boolean.toString(conf.isEnableIncrementalContinuousQuery()))));
+
     conf.setCqlogBufferSize(
         Integer.parseInt(
             properties.getProperty(
@@ -1551,6 +1611,30 @@ public class IoTDBDescriptor {
     conf.setConsensusPort(
         Integer.parseInt(
             properties.getProperty("consensus_port", Integer.toString(conf.getConsensusPort()))));
+
+    conf.setReadConsistencyLevel(
+        ReadConsistencyLevel.fromString(
+            properties
+                .getProperty("read_consistency_level", conf.getReadConsistencyLevel().name())
+                .trim()));
+
+    conf.setRatisApplierMaxPendingEntries(
+        Integer.parseInt(
+            properties.getProperty(
+                "ratis_applier_max_pending_entries",
+                Integer.toString(conf.getRatisApplierMaxPendingEntries()))));
+
+    conf.setRatisApplierMaxEntriesPerBatch(
+        Integer.parseInt(
+            properties.getProperty(
+                "ratis_applier_max_entries_per_batch",
+                Integer.toString(conf.getRatisApplierMaxEntriesPerBatch()))));
+
+    conf.setRatisLeaderLeaseTimeoutMs(
+        Long.parseLong(
+            properties.getProperty(
+                "ratis_leader_lease_timeout_ms",
+                Long.toString(conf.getRatisLeaderLeaseTimeoutMs()))));
   }
 
   public void loadShuffleProps(Properties properties) {
@@ -24,6 +24,7 @@ import org.apache.iotdb.commons.consensus.DataRegionId;
 import org.apache.iotdb.commons.consensus.SchemaRegionId;
 import org.apache.iotdb.consensus.ConsensusFactory;
 import org.apache.iotdb.consensus.IConsensus;
+import org.apache.iotdb.consensus.ratis.conf.RatisConfig;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.consensus.statemachine.DataRegionStateMachine;
@@ -64,7 +65,8 @@ public class ConsensusImpl {
                   }
                   throw new IllegalArgumentException(
                       String.format("Unexpected consensusGroup %s", gid));
-                })
+                },
+                buildRatisConfig())
             .orElseThrow(
                 () ->
                     new IllegalArgumentException(
@@ -72,6 +74,14 @@ public class ConsensusImpl {
                             ConsensusFactory.CONSTRUCT_FAILED_MSG,
                             conf.getConsensusProtocolClass())));
 
+    private static RatisConfig buildRatisConfig() {
+      return RatisConfig.newBuilder()
+          .setApplierMaxPendingEntries(conf.getRatisApplierMaxPendingEntries())
+          .setApplierMaxEntriesPerBatch(conf.getRatisApplierMaxEntriesPerBatch())
+          .setLeaderLeaseTimeoutMs(conf.getRatisLeaderLeaseTimeoutMs())
+          .build();
+    }
+
     private ConsensusImplHolder() {}
   }
 }
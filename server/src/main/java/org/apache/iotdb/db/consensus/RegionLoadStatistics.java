@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.consensus;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.THeartbeatReq;
+import org.apache.iotdb.common.rpc.thrift.THeartbeatResp;
+import org.apache.iotdb.common.rpc.thrift.TRegionLoad;
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.commons.consensus.DataRegionId;
+import org.apache.iotdb.commons.consensus.SchemaRegionId;
+import org.apache.iotdb.consensus.IConsensus;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.StorageEngineV2;
+import org.apache.iotdb.db.engine.storagegroup.DataRegion;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.metadata.schemaregion.ISchemaRegion;
+import org.apache.iotdb.db.metadata.schemaregion.SchemaEngine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RegionLoadStatistics counts the requests applied to each region, and reports the load of the
+ * regions on this DataNode to ConfigNode with the heartbeats.
+ */
+public class RegionLoadStatistics {
+
+  private final Map<ConsensusGroupId, RegionCounter> counters = new ConcurrentHashMap<>();
+
+  // the region loads sent by the last heartbeat response, only accessed in fillHeartbeatResp
+  private Map<TConsensusGroupId, TRegionLoad> lastReportedLoads = new HashMap<>();
+  private long lastReportTimestamp = -1;
+
+  private RegionLoadStatistics() {}
+
+  /** Record the writes of rowCount rows into the region */
+  public void recordWrite(ConsensusGroupId regionId, long rowCount) {
+    counters.computeIfAbsent(regionId, id -> new RegionCounter()).writeCount.add(rowCount);
+  }
+
+  /** Record a query fragment executed on the region */
+  public void recordQuery(ConsensusGroupId regionId) {
+    counters.computeIfAbsent(regionId, id -> new RegionCounter()).queryCount.increment();
+  }
+
+  public void removeRegion(ConsensusGroupId regionId) {
+    counters.remove(regionId);
+  }
+
+  /**
+   * Fill the region loads into the heartbeat response. If the ConfigNode has applied the last
+   * response this DataNode sent, only the loads changed since then are reported, otherwise all of
+   * them are reported.
+   */
+  public synchronized void fillHeartbeatResp(
+      THeartbeatReq req, THeartbeatResp resp, IConsensus consensus) {
+    List<TRegionLoad> regionLoads = collectRegionLoads(consensus);
+    Map<TConsensusGroupId, TRegionLoad> currentLoads = new HashMap<>();
+    for (TRegionLoad regionLoad : regionLoads) {
+      currentLoads.put(regionLoad.getRegionId(), regionLoad);
+    }
+
+    if (req.isSetRegionLoadsBaseline() && req.getRegionLoadsBaseline() == lastReportTimestamp) {
+      List<TRegionLoad> changedLoads = new ArrayList<>();
+      for (TRegionLoad regionLoad : regionLoads) {
+        if (!regionLoad.equals(lastReportedLoads.get(regionLoad.getRegionId()))) {
+          changedLoads.add(regionLoad);
+        }
+      }
+      List<TConsensusGroupId> removedRegionIds = new ArrayList<>();
+      for (TConsensusGroupId regionId : lastReportedLoads.keySet()) {
+        if (!currentLoads.containsKey(regionId)) {
+          removedRegionIds.add(regionId);
+        }
+      }
+      resp.setRegionLoads(changedLoads);
+      resp.setIsRegionLoadsDelta(true);
+      resp.setRemovedRegionIds(removedRegionIds);
+    } else {
+      resp.setRegionLoads(regionLoads);
+      resp.setIsRegionLoadsDelta(false);
+    }
+
+    lastReportedLoads = currentLoads;
+    lastReportTimestamp = resp.getHeartbeatTimestamp();
+  }
+
+  /**
+   * Collect the load of all the regions on this DataNode. The rates are computed over the time
+   * since the last collection.
+   */
+  public synchronized List<TRegionLoad> collectRegionLoads(IConsensus consensus) {
+    long currentTime = System.currentTimeMillis();
+    List<TRegionLoad> regionLoads = new ArrayList<>();
+    long memoryForWrite = IoTDBDescriptor.getInstance().getConfig().getAllocateMemoryForWrite();
+    for (DataRegion dataRegion : StorageEngineV2.getInstance().getAllDataRegions()) {
+      DataRegionId regionId = new DataRegionId(Integer.parseInt(dataRegion.getDataRegionId()));
+      TRegionLoad regionLoad = collectRegionLoad(regionId, consensus, currentTime);
+      long diskUsage = 0;
+      for (TsFileResource resource : dataRegion.getSequenceFileList()) {
+        diskUsage += resource.getTsFileSize();
+      }
+      for (TsFileResource resource : dataRegion.getUnSequenceFileList()) {
+        diskUsage += resource.getTsFileSize();
+      }
+      regionLoad.setDiskUsage(diskUsage);
+      regionLoad.setMemTablePressure(
+          memoryForWrite > 0
+              ? (double) dataRegion.getStorageGroupInfo().getMemCost() / memoryForWrite
+              : 0);
+      regionLoads.add(regionLoad);
+    }
+    for (ISchemaRegion schemaRegion : SchemaEngine.getInstance().getAllSchemaRegions()) {
+      SchemaRegionId regionId = schemaRegion.getSchemaRegionId();
+      regionLoads.add(collectRegionLoad(regionId, consensus, currentTime));
+    }
+    return regionLoads;
+  }
+
+  private TRegionLoad collectRegionLoad(
+      ConsensusGroupId regionId, IConsensus consensus, long currentTime) {
+    RegionCounter counter = counters.computeIfAbsent(regionId, id -> new RegionCounter());
+    long writeCount = counter.writeCount.sum();
+    long queryCount = counter.queryCount.sum();
+    // avoid a division by zero when two heartbeats arrive in the same millisecond
+    double elapsedSeconds = Math.max(currentTime - counter.lastCollectTime, 1) / 1000.0;
+    double writeRate = (writeCount - counter.lastWriteCount) / elapsedSeconds;
+    double queryRate = (queryCount - counter.lastQueryCount) / elapsedSeconds;
+    counter.lastWriteCount = writeCount;
+    counter.lastQueryCount = queryCount;
+    counter.lastCollectTime = currentTime;
+    return new TRegionLoad(
+        ConsensusGroupId.convertToTConsensusGroupId(regionId),
+        consensus.isLeader(regionId),
+        writeRate,
+        queryRate,
+        0,
+        0);
+  }
+
+  private static class RegionCounter {
+
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder queryCount = new LongAdder();
+    // the counts and time of the last collection, only accessed in collectRegionLoads
+    private long lastWriteCount = 0;
+    private long lastQueryCount = 0;
+    private long lastCollectTime = System.currentTimeMillis();
+  }
+
+  public static RegionLoadStatistics getInstance() {
+    return RegionLoadStatisticsHolder.INSTANCE;
+  }
+
+  private static class RegionLoadStatisticsHolder {
+
+    private static final RegionLoadStatistics INSTANCE = new RegionLoadStatistics();
+
+    private RegionLoadStatisticsHolder() {}
+  }
+}
@@ -24,12 +24,18 @@ import org.apache.iotdb.consensus.IStateMachine;
 import org.apache.iotdb.consensus.common.DataSet;
 import org.apache.iotdb.consensus.common.request.ByteBufferConsensusRequest;
 import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+import org.apache.iotdb.consensus.common.request.IndexedConsensusRequest;
 import org.apache.iotdb.db.mpp.plan.planner.plan.FragmentInstance;
+import org.apache.iotdb.db.mpp.plan.planner.plan.node.PlanNode;
+import org.apache.iotdb.db.mpp.plan.planner.plan.node.write.InsertNode;
 import org.apache.iotdb.rpc.TSStatusCode;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public abstract class BaseStateMachine implements IStateMachine, IStateMachine.EventApi {
 
   private static final Logger logger = LoggerFactory.getLogger(BaseStateMachine.class);
@@ -46,6 +52,39 @@ public abstract class BaseStateMachine implements IStateMachine, IStateMachine.E
 
   protected abstract TSStatus write(FragmentInstance fragmentInstance);
 
+  @Override
+  public List<TSStatus> multiWrite(List<IConsensusRequest> requests) {
+    List<FragmentInstance> fragmentInstances = new ArrayList<>(requests.size());
+    for (IConsensusRequest request : requests) {
+      try {
+        fragmentInstances.add(getFragmentInstance(request));
+      } catch (IllegalArgumentException e) {
+        logger.error(e.getMessage(), e);
+        // a null instance is reported as failed without breaking the order of the others
+        fragmentInstances.add(null);
+      }
+    }
+    return writeFragmentInstances(fragmentInstances);
+  }
+
+  /**
+   * Apply the fragment instances in order. Subclasses could merge adjacent instances into one
+   * write, the default implementation applies them one by one.
+   *
+   * @param fragmentInstances the instances to apply, null for those failed to be deserialized
+   * @return the status of each instance
+   */
+  protected List<TSStatus> writeFragmentInstances(List<FragmentInstance> fragmentInstances) {
+    List<TSStatus> statuses = new ArrayList<>(fragmentInstances.size());
+    for (FragmentInstance fragmentInstance : fragmentInstances) {
+      statuses.add(
+          fragmentInstance == null
+              ? new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode())
+              : write(fragmentInstance));
+    }
+    return statuses;
+  }
+
   @Override
   public DataSet read(IConsensusRequest request) {
     try {
@@ -60,7 +99,17 @@ public abstract class BaseStateMachine implements IStateMachine, IStateMachine.E
 
   private FragmentInstance getFragmentInstance(IConsensusRequest request) {
     FragmentInstance instance;
-    if (request instanceof ByteBufferConsensusRequest) {
+    if (request instanceof IndexedConsensusRequest) {
+      IndexedConsensusRequest indexedRequest = (IndexedConsensusRequest) request;
+      instance = getFragmentInstance(indexedRequest.getRequest());
+      // the search index is recorded in the WAL, so that the write could be read again by it
+      PlanNode planNode = instance.getFragment().getRoot();
+      if (planNode instanceof InsertNode) {
+        ((InsertNode) planNode).setSearchIndex(indexedRequest.getSearchIndex());
+        ((InsertNode) planNode)
+            .setSafelyDeletedSearchIndex(indexedRequest.getSafelyDeletedSearchIndex());
+      }
+    } else if (request instanceof ByteBufferConsensusRequest) {
       instance =
           FragmentInstance.deserializeFrom(((ByteBufferConsensusRequest) request).getContent());
     } else if (request instanceof FragmentInstance) {
@@ -21,20 +21,45 @@ package org.apache.iotdb.db.consensus.statemachine;
 
 import org.apache.iotdb.common.rpc.thrift.TSStatus;
 import org.apache.iotdb.commons.consensus.DataRegionId;
+import org.apache.iotdb.commons.utils.StatusUtils;
 import org.apache.iotdb.consensus.common.DataSet;
+import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+import org.apache.iotdb.consensus.common.request.IndexedConsensusRequest;
+import org.apache.iotdb.consensus.wal.ConsensusReqReader;
+import org.apache.iotdb.db.consensus.RegionLoadStatistics;
 import org.apache.iotdb.db.consensus.statemachine.visitor.DataExecutionVisitor;
 import org.apache.iotdb.db.engine.StorageEngineV2;
 import org.apache.iotdb.db.engine.snapshot.SnapshotLoader;
 import org.apache.iotdb.db.engine.snapshot.SnapshotTaker;
 import org.apache.iotdb.db.engine.storagegroup.DataRegion;
+import org.apache.iotdb.db.exception.BatchProcessException;
+import org.apache.iotdb.db.mpp.common.FragmentInstanceId;
+import org.apache.iotdb.db.mpp.common.PlanFragmentId;
+import org.apache.iotdb.db.mpp.common.QueryId;
 import org.apache.iotdb.db.mpp.execution.fragment.FragmentInstanceManager;
+import org.apache.iotdb.db.mpp.plan.analyze.QueryType;
 import org.apache.iotdb.db.mpp.plan.planner.plan.FragmentInstance;
+import org.apache.iotdb.db.mpp.plan.planner.plan.PlanFragment;
 import org.apache.iotdb.db.mpp.plan.planner.plan.node.PlanNode;
+import org.apache.iotdb.db.mpp.plan.planner.plan.node.write.InsertMultiTabletsNode;
+import org.apache.iotdb.db.mpp.plan.planner.plan.node.write.InsertRowNode;
+import org.apache.iotdb.db.mpp.plan.planner.plan.node.write.InsertRowsNode;
+import org.apache.iotdb.db.mpp.plan.planner.plan.node.write.InsertRowsOfOneDeviceNode;
+import org.apache.iotdb.db.mpp.plan.planner.plan.node.write.InsertTabletNode;
+import org.apache.iotdb.db.wal.WALManager;
+import org.apache.iotdb.db.wal.node.WALNode;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.TSStatusCode;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 public class DataRegionStateMachine extends BaseStateMachine {
 
@@ -44,9 +69,11 @@ public class DataRegionStateMachine extends BaseStateMachine {
       FragmentInstanceManager.getInstance();
 
   private DataRegion region;
+  private final DataRegionId regionId;
 
   public DataRegionStateMachine(DataRegion region) {
     this.region = region;
+    this.regionId = new DataRegionId(Integer.parseInt(region.getDataRegionId()));
   }
 
   @Override
@@ -91,14 +118,204 @@ public class DataRegionStateMachine extends BaseStateMachine {
     }
   }
 
+  /**
+   * The writes are read from the wal node dedicated to this region with MultiLeaderConsensus, and
+   * are wrapped in fragment instances as the peers expect.
+   */
+  @Override
+  public ConsensusReqReader getConsensusReqReader() {
+    WALNode walNode =
+        WALManager.getInstance().getDedicatedWALNode(region.getWALApplicantUniqueId());
+    return walNode == null ? null : new FragmentInstanceReqReader(walNode);
+  }
+
   @Override
   protected TSStatus write(FragmentInstance fragmentInstance) {
     PlanNode planNode = fragmentInstance.getFragment().getRoot();
+    RegionLoadStatistics.getInstance().recordWrite(regionId, getRowCount(planNode));
     return planNode.accept(new DataExecutionVisitor(), region);
   }
 
+  private static long getRowCount(PlanNode planNode) {
+    if (planNode instanceof InsertTabletNode) {
+      return ((InsertTabletNode) planNode).getRowCount();
+    } else if (planNode instanceof InsertMultiTabletsNode) {
+      long rowCount = 0;
+      for (InsertTabletNode insertTabletNode :
+          ((InsertMultiTabletsNode) planNode).getInsertTabletNodeList()) {
+        rowCount += insertTabletNode.getRowCount();
+      }
+      return rowCount;
+    } else if (planNode instanceof InsertRowsNode) {
+      return ((InsertRowsNode) planNode).getInsertRowNodeList().size();
+    } else if (planNode instanceof InsertRowsOfOneDeviceNode) {
+      return ((InsertRowsOfOneDeviceNode) planNode).getInsertRowNodeList().size();
+    }
+    return 1;
+  }
+
+  /**
+   * Adjacent tablets are merged into one {@link InsertMultiTabletsNode} and adjacent rows into one
+   * {@link InsertRowsNode}, so that a batch of small writes is applied as a few large ones.
+   */
+  @Override
+  protected List<TSStatus> writeFragmentInstances(List<FragmentInstance> fragmentInstances) {
+    List<TSStatus> statuses = new ArrayList<>(fragmentInstances.size());
+    int start = 0;
+    while (start < fragmentInstances.size()) {
+      PlanNode first = getRoot(fragmentInstances.get(start));
+      int end = start + 1;
+      if (first instanceof InsertTabletNode || first instanceof InsertRowNode) {
+        while (end < fragmentInstances.size()
+            && first.getClass() == getClassOfRoot(fragmentInstances.get(end))) {
+          end++;
+        }
+      }
+      if (end - start == 1) {
+        statuses.add(
+            first == null
+                ? new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode())
+                : write(fragmentInstances.get(start)));
+      } else {
+        statuses.addAll(writeMerged(fragmentInstances.subList(start, end)));
+      }
+      start = end;
+    }
+    return statuses;
+  }
+
+  /**
+   * Apply adjacent instances of the same kind as one write. If the merged write fails as a whole,
+   * the instances are applied one by one so that each of them gets its own status.
+   */
+  private List<TSStatus> writeMerged(List<FragmentInstance> fragmentInstances) {
+    int size = fragmentInstances.size();
+    TSStatus[] failingStatus = null;
+    try {
+      if (getRoot(fragmentInstances.get(0)) instanceof InsertTabletNode) {
+        InsertMultiTabletsNode mergedNode =
+            new InsertMultiTabletsNode(getRoot(fragmentInstances.get(0)).getPlanNodeId());
+        for (int i = 0; i < size; i++) {
+          mergedNode.addInsertTabletNode((InsertTabletNode) getRoot(fragmentInstances.get(i)), i);
+        }
+        RegionLoadStatistics.getInstance().recordWrite(regionId, getRowCount(mergedNode));
+        region.insertTablets(mergedNode);
+      } else {
+        InsertRowsNode mergedNode =
+            new InsertRowsNode(getRoot(fragmentInstances.get(0)).getPlanNodeId());
+        for (int i = 0; i < size; i++) {
+          mergedNode.addOneInsertRowNode((InsertRowNode) getRoot(fragmentInstances.get(i)), i);
+        }
+        RegionLoadStatistics.getInstance().recordWrite(regionId, size);
+        region.insert(mergedNode);
+      }
+    } catch (BatchProcessException e) {
+      failingStatus = e.getFailingStatus();
+    } catch (RuntimeException e) {
+      logger.warn("Failed to apply {} merged writes, apply them one by one", size, e);
+      List<TSStatus> statuses = new ArrayList<>(size);
+      for (FragmentInstance fragmentInstance : fragmentInstances) {
+        try {
+          statuses.add(write(fragmentInstance));
+        } catch (RuntimeException writeException) {
+          logger.error("Failed to apply {}", fragmentInstance.getId(), writeException);
+          statuses.add(
+              RpcUtils.getStatus(
+                  TSStatusCode.INTERNAL_SERVER_ERROR, writeException.getMessage()));
+        }
+      }
+      return statuses;
+    }
+    if (failingStatus == null || failingStatus.length == 0) {
+      return Collections.nCopies(size, StatusUtils.OK);
+    }
+    return Arrays.asList(failingStatus);
+  }
+
+  private static PlanNode getRoot(FragmentInstance fragmentInstance) {
+    return fragmentInstance == null ? null : fragmentInstance.getFragment().getRoot();
+  }
+
+  private static Class<?> getClassOfRoot(FragmentInstance fragmentInstance) {
+    PlanNode root = getRoot(fragmentInstance);
+    return root == null ? null : root.getClass();
+  }
+
   @Override
   protected DataSet read(FragmentInstance fragmentInstance) {
+    RegionLoadStatistics.getInstance().recordQuery(regionId);
     return QUERY_INSTANCE_MANAGER.execDataQueryFragmentInstance(fragmentInstance, region);
   }
+
+  private static class FragmentInstanceReqReader implements ConsensusReqReader {
+
+    private static final QueryId WAL_QUERY_ID = new QueryId("wal");
+
+    private final ConsensusReqReader walReader;
+
+    private FragmentInstanceReqReader(ConsensusReqReader walReader) {
+      this.walReader = walReader;
+    }
+
+    @Override
+    public IConsensusRequest getReq(long index) {
+      return wrap(walReader.getReq(index));
+    }
+
+    @Override
+    public List<IConsensusRequest> getReqs(long startIndex, int num) {
+      List<IConsensusRequest> requests = new ArrayList<>();
+      for (IConsensusRequest request : walReader.getReqs(startIndex, num)) {
+        requests.add(wrap(request));
+      }
+      return requests;
+    }
+
+    @Override
+    public ReqIterator getReqIterator(long startIndex) {
+      ReqIterator walIterator = walReader.getReqIterator(startIndex);
+      return new ReqIterator() {
+        @Override
+        public boolean hasNext() {
+          return walIterator.hasNext();
+        }
+
+        @Override
+        public IConsensusRequest next() {
+          return wrap(walIterator.next());
+        }
+
+        @Override
+        public IConsensusRequest waitForNext() throws InterruptedException {
+          return wrap(walIterator.waitForNext());
+        }
+
+        @Override
+        public IConsensusRequest waitForNext(long timeout)
+            throws InterruptedException, TimeoutException {
+          return wrap(walIterator.waitForNext(timeout));
+        }
+
+        @Override
+        public void skipTo(long targetIndex) {
+          walIterator.skipTo(targetIndex);
+        }
+      };
+    }
+
+    private static IConsensusRequest wrap(IConsensusRequest request) {
+      if (request == null) {
+        return null;
+      }
+      IndexedConsensusRequest indexedRequest = (IndexedConsensusRequest) request;
+      PlanFragmentId fragmentId = new PlanFragmentId(WAL_QUERY_ID, 0);
+      FragmentInstance fragmentInstance =
+          new FragmentInstance(
+              new PlanFragment(fragmentId, (PlanNode) indexedRequest.getRequest()),
+              new FragmentInstanceId(fragmentId, String.valueOf(indexedRequest.getSearchIndex())),
+              null,
+              QueryType.WRITE);
+      return new IndexedConsensusRequest(indexedRequest.getSearchIndex(), fragmentInstance);
+    }
+  }
 }
@@ -21,6 +21,7 @@ package org.apache.iotdb.db.consensus.statemachine;
 
 import org.apache.iotdb.common.rpc.thrift.TSStatus;
 import org.apache.iotdb.consensus.common.DataSet;
+import org.apache.iotdb.db.consensus.RegionLoadStatistics;
 import org.apache.iotdb.db.metadata.schemaregion.ISchemaRegion;
 import org.apache.iotdb.db.metadata.visitor.SchemaExecutionVisitor;
 import org.apache.iotdb.db.mpp.execution.fragment.FragmentInstanceManager;
@@ -64,12 +65,14 @@ public class SchemaRegionStateMachine extends BaseStateMachine {
   protected TSStatus write(FragmentInstance fragmentInstance) {
     logger.info("Execute write plan in SchemaRegionStateMachine");
     PlanNode planNode = fragmentInstance.getFragment().getRoot();
+    RegionLoadStatistics.getInstance().recordWrite(schemaRegion.getSchemaRegionId(), 1);
     TSStatus status = planNode.accept(new SchemaExecutionVisitor(), schemaRegion);
     return status;
   }
 
   @Override
   protected DataSet read(FragmentInstance fragmentInstance) {
+    RegionLoadStatistics.getInstance().recordQuery(schemaRegion.getSchemaRegionId());
     logger.info(
         "SchemaRegionStateMachine[{}]: Execute read plan: FragmentInstance-{}",
         schemaRegion.getSchemaRegionId(),
@@ -41,6 +41,7 @@ import org.apache.iotdb.db.engine.storagegroup.DataRegion.TimePartitionFilter;
 import org.apache.iotdb.db.engine.storagegroup.TsFileProcessor;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.engine.storagegroup.dataregion.StorageGroupManager;
+import org.apache.iotdb.db.exception.BatchLoadFileException;
 import org.apache.iotdb.db.exception.BatchProcessException;
 import org.apache.iotdb.db.exception.DataRegionException;
 import org.apache.iotdb.db.exception.LoadFileException;
@@ -79,10 +80,13 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -883,6 +887,44 @@ public class StorageEngine implements IService {
     getProcessorDirectly(storageGroupPath).loadNewTsFile(newTsFileResource, deleteOriginFile);
   }
 
+  /**
+   * Load the TsFiles into their storage groups. The TsFiles of one storage group are loaded in
+   * order as one batch, and loading stops at the first storage group that fails.
+   *
+   * @throws BatchLoadFileException with the number of the leading TsFiles that are loaded
+   */
+  public void loadNewTsFiles(List<TsFileResource> newTsFileResources, boolean deleteOriginFile)
+      throws LoadFileException, StorageEngineException, MetadataException {
+    Map<PartialPath, List<TsFileResource>> storageGroupToResources = new LinkedHashMap<>();
+    for (TsFileResource newTsFileResource : newTsFileResources) {
+      Set<String> deviceSet = newTsFileResource.getDevices();
+      if (deviceSet == null || deviceSet.isEmpty()) {
+        throw new StorageEngineException("Can not get the corresponding storage group.");
+      }
+      PartialPath storageGroupPath =
+          IoTDB.schemaProcessor.getBelongedStorageGroup(
+              new PartialPath(deviceSet.iterator().next()));
+      storageGroupToResources
+          .computeIfAbsent(storageGroupPath, k -> new ArrayList<>())
+          .add(newTsFileResource);
+    }
+    Set<TsFileResource> loadedResources = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Entry<PartialPath, List<TsFileResource>> entry : storageGroupToResources.entrySet()) {
+      try {
+        getProcessorDirectly(entry.getKey()).loadNewTsFiles(entry.getValue(), deleteOriginFile);
+        loadedResources.addAll(entry.getValue());
+      } catch (BatchLoadFileException e) {
+        loadedResources.addAll(entry.getValue().subList(0, e.getLoadedNum()));
+        int loadedNum = 0;
+        while (loadedNum < newTsFileResources.size()
+            && loadedResources.contains(newTsFileResources.get(loadedNum))) {
+          loadedNum++;
+        }
+        throw new BatchLoadFileException(e.getMessage(), loadedNum);
+      }
+    }
+  }
+
   public boolean deleteTsfile(File deletedTsfile)
       throws StorageEngineException, IllegalPathException {
     return getProcessorDirectly(new PartialPath(getSgByEngineFile(deletedTsfile, true)))
@@ -51,6 +51,7 @@ import org.apache.iotdb.db.mpp.plan.planner.plan.node.write.InsertTabletNode;
 import org.apache.iotdb.db.rescon.SystemInfo;
 import org.apache.iotdb.db.utils.ThreadUtils;
 import org.apache.iotdb.db.utils.UpgradeUtils;
+import org.apache.iotdb.db.wal.WALManager;
 import org.apache.iotdb.db.wal.exception.WALException;
 import org.apache.iotdb.db.wal.recover.WALRecoverManager;
 import org.apache.iotdb.rpc.RpcUtils;
@@ -65,6 +66,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -594,13 +596,20 @@ public class StorageEngineV2 implements IService {
   }
 
   public void deleteDataRegion(DataRegionId regionId) {
-    dataRegionMap.remove(regionId);
+    DataRegion region = dataRegionMap.remove(regionId);
+    if (region != null) {
+      WALManager.getInstance().deleteDedicatedWALNode(region.getWALApplicantUniqueId());
+    }
   }
 
   public DataRegion getDataRegion(DataRegionId regionId) {
     return dataRegionMap.get(regionId);
   }
 
+  public Collection<DataRegion> getAllDataRegions() {
+    return dataRegionMap.values();
+  }
+
   public void setDataRegion(DataRegionId regionId, DataRegion newRegion) {
     if (dataRegionMap.containsKey(regionId)) {
       DataRegion oldRegion = dataRegionMap.get(regionId);
@@ -0,0 +1,568 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cq;
+
+import org.apache.iotdb.commons.exception.IllegalPathException;
+import org.apache.iotdb.commons.path.PartialPath;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.metadata.path.AlignedPath;
+import org.apache.iotdb.db.qp.constant.SQLConstant;
+import org.apache.iotdb.db.qp.logical.Operator;
+import org.apache.iotdb.db.qp.logical.crud.QueryOperator;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.qp.physical.sys.CreateContinuousQueryPlan;
+import org.apache.iotdb.db.qp.strategy.LogicalGenerator;
+import org.apache.iotdb.db.query.dataset.ListDataSet;
+import org.apache.iotdb.db.query.expression.Expression;
+import org.apache.iotdb.db.query.expression.ResultColumn;
+import org.apache.iotdb.db.query.expression.leaf.TimeSeriesOperand;
+import org.apache.iotdb.db.query.expression.multi.FunctionExpression;
+import org.apache.iotdb.db.utils.TypeInferenceUtils;
+import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * The partial aggregates of the windows of an incremental continuous query. They are updated from
+ * the insert path, so the windows could be emitted without reading them from the storage again.
+ *
+ * <p>The windows are aligned to the first execution time boundary of the continuous query, which
+ * requires both the every interval and the for interval to be multiples of the group by interval.
+ * Only the windows starting at or after {@link #completeSince}, the first window beginning after
+ * the state was created, are complete: the data inserted before could not be observed. A window is
+ * incomplete as well once a point inside the time span it has seen is inserted, which may overwrite
+ * an existing point, once it is partially deleted, or once a loaded TsFile has data of a matched
+ * series in it. An execution needing any incomplete window queries the storage instead.
+ *
+ * <p>An execution emits the windows which have not been emitted before, and the emitted windows
+ * which received late data since. Late data older than the earliest window of the last execution
+ * is ignored, as the continuous query will never compute these windows again.
+ */
+class ContinuousQueryAggregationState {
+
+  private final long origin;
+  private final long interval;
+  private final List<PartialPath> pathPatterns;
+
+  private final long completeSince;
+  private final ConcurrentSkipListSet<Long> incompleteWindows = new ConcurrentSkipListSet<>();
+  // start time -> end time, the time ranges of the loaded TsFiles, whose windows are incomplete
+  private final ConcurrentSkipListMap<Long, Long> incompleteTimeRanges =
+      new ConcurrentSkipListMap<>();
+
+  private final Map<String, SeriesWindows> seriesWindowsMap = new ConcurrentHashMap<>();
+  // the series and the devices which match none of the path patterns
+  private final Set<String> unmatchedSeries = ConcurrentHashMap.newKeySet();
+  private final Map<String, Boolean> deviceMatches = new ConcurrentHashMap<>();
+
+  // the windows starting before it are evicted
+  private volatile long retainedSince = Long.MIN_VALUE;
+  // the windows starting at or after it have never been emitted
+  private long emittedUntil = Long.MIN_VALUE;
+
+  ContinuousQueryAggregationState(
+      long origin, long interval, List<PartialPath> pathPatterns, long currentTime) {
+    this.origin = origin;
+    this.interval = interval;
+    this.pathPatterns = pathPatterns;
+    long windowStart = getWindowStart(currentTime);
+    this.completeSince = windowStart == currentTime ? windowStart : windowStart + interval;
+  }
+
+  /**
+   * Create the state of the continuous query if all its windows could be computed from partial
+   * aggregates, i.e. it only applies native aggregations to time series, without any filter or
+   * level grouping.
+   *
+   * @return null if the continuous query could not be executed incrementally
+   */
+  static ContinuousQueryAggregationState create(CreateContinuousQueryPlan plan, long currentTime) {
+    long interval = plan.getGroupByTimeInterval();
+    if (!IoTDBDescriptor.getInstance().getConfig().isEnableIncrementalContinuousQuery()
+        || IoTDBDescriptor.getInstance().getConfig().isEnableDiscardOutOfOrderData()
+        || !plan.getQuerySqlAfterGroupByClause().isEmpty()
+        || plan.getEveryInterval() % interval != 0
+        || plan.getForInterval() % interval != 0) {
+      return null;
+    }
+
+    String sql =
+        plan.getQuerySqlBeforeGroupByClause()
+            + "group by ([0,"
+            + interval
+            + "),"
+            + plan.getGroupByTimeIntervalString()
+            + ")";
+    Operator operator = LogicalGenerator.generate(sql, ZoneId.systemDefault());
+    if (!operator.isQuery() || ((QueryOperator) operator).getWhereComponent() != null) {
+      return null;
+    }
+    QueryOperator queryOperator = (QueryOperator) operator;
+
+    List<PartialPath> pathPatterns = new ArrayList<>();
+    for (ResultColumn resultColumn : queryOperator.getSelectComponent().getResultColumns()) {
+      Expression expression = resultColumn.getExpression();
+      if (!(expression instanceof FunctionExpression)
+          || !isMaintainable(((FunctionExpression) expression).getFunctionName())
+          || expression.getExpressions().size() != 1
+          || !(expression.getExpressions().get(0) instanceof TimeSeriesOperand)) {
+        return null;
+      }
+      PartialPath suffixPath = ((TimeSeriesOperand) expression.getExpressions().get(0)).getPath();
+      for (PartialPath prefixPath : queryOperator.getFromComponent().getPrefixPaths()) {
+        pathPatterns.add(prefixPath.concatPath(suffixPath));
+      }
+    }
+    return new ContinuousQueryAggregationState(
+        plan.getFirstExecutionTimeBoundary(), interval, pathPatterns, currentTime);
+  }
+
+  private long getWindowStart(long time) {
+    return origin + Math.floorDiv(time - origin, interval) * interval;
+  }
+
+  /** @return the windows of the series, null if the series matches none of the path patterns */
+  private SeriesWindows getSeriesWindows(PartialPath devicePath, String measurement) {
+    if (measurement == null) {
+      return null;
+    }
+    String seriesFullPath = devicePath.getFullPath() + TsFileConstant.PATH_SEPARATOR + measurement;
+    SeriesWindows seriesWindows = seriesWindowsMap.get(seriesFullPath);
+    if (seriesWindows != null || unmatchedSeries.contains(seriesFullPath)) {
+      return seriesWindows;
+    }
+    PartialPath seriesPath = devicePath.concatNode(measurement);
+    for (PartialPath pathPattern : pathPatterns) {
+      if (pathPattern.matchFullPath(seriesPath)) {
+        return seriesWindowsMap.computeIfAbsent(seriesFullPath, k -> new SeriesWindows(seriesPath));
+      }
+    }
+    unmatchedSeries.add(seriesFullPath);
+    return null;
+  }
+
+  /** @return true if any series of the device may match the path patterns */
+  private boolean matchDevice(String device) {
+    return deviceMatches.computeIfAbsent(
+        device,
+        k -> {
+          PartialPath devicePath;
+          try {
+            devicePath = new PartialPath(device);
+          } catch (IllegalPathException e) {
+            return true;
+          }
+          for (PartialPath pathPattern : pathPatterns) {
+            // the last node of the pattern is matched by itself, so the series named by it is
+            // matched if and only if the device is
+            if (pathPattern.matchFullPath(devicePath.concatNode(pathPattern.getMeasurement()))) {
+              return true;
+            }
+          }
+          return false;
+        });
+  }
+
+  void update(InsertRowPlan plan) {
+    String[] measurements = plan.getMeasurements();
+    Object[] values = plan.getValues();
+    for (int i = 0; i < measurements.length; ++i) {
+      SeriesWindows seriesWindows = getSeriesWindows(plan.getDevicePath(), measurements[i]);
+      if (seriesWindows == null || values[i] == null) {
+        continue;
+      }
+      synchronized (seriesWindows) {
+        seriesWindows.update(plan.getTime(), values[i]);
+      }
+    }
+  }
+
+  void update(InsertTabletPlan plan, int start, int end) {
+    String[] measurements = plan.getMeasurements();
+    Object[] columns = plan.getColumns();
+    BitMap[] bitMaps = plan.getBitMaps();
+    long[] times = plan.getTimes();
+    for (int i = 0; i < measurements.length; ++i) {
+      SeriesWindows seriesWindows = getSeriesWindows(plan.getDevicePath(), measurements[i]);
+      if (seriesWindows == null || columns[i] == null) {
+        continue;
+      }
+      synchronized (seriesWindows) {
+        for (int row = start; row < end; ++row) {
+          if (bitMaps == null || bitMaps[i] == null || !bitMaps[i].isMarked(row)) {
+            seriesWindows.update(times[row], getValue(plan.getDataTypes()[i], columns[i], row));
+          }
+        }
+      }
+    }
+  }
+
+  /** The rows in [start, end) may be partially inserted, so their windows become incomplete. */
+  void invalidate(InsertTabletPlan plan, int start, int end) {
+    for (String measurement : plan.getMeasurements()) {
+      if (getSeriesWindows(plan.getDevicePath(), measurement) != null) {
+        for (int row = start; row < end; ++row) {
+          incompleteWindows.add(getWindowStart(plan.getTimes()[row]));
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * The data of the loaded TsFile is not observed by the insert path, so the windows overlapping
+   * it become incomplete if it has any device of the matched series.
+   */
+  void invalidate(TsFileResource tsFileResource) {
+    for (String device : tsFileResource.getDevices()) {
+      long endTime = tsFileResource.getEndTime(device);
+      if (endTime < retainedSince || !matchDevice(device)) {
+        continue;
+      }
+      long startTime = tsFileResource.getStartTime(device);
+      incompleteTimeRanges.merge(startTime, endTime, Math::max);
+    }
+  }
+
+  /** Sketch aggregations are not kept as partial aggregates, their windows are always queried. */
+  private static boolean isMaintainable(String aggregation) {
+    String lowerCaseName = aggregation.toLowerCase();
+    return SQLConstant.getNativeFunctionNames().contains(lowerCaseName)
+        && !SQLConstant.APPROX_COUNT_DISTINCT.equals(lowerCaseName)
+        && !SQLConstant.APPROX_PERCENTILE.equals(lowerCaseName);
+  }
+
+  private static Object getValue(TSDataType dataType, Object column, int row) {
+    switch (dataType) {
+      case BOOLEAN:
+        return ((boolean[]) column)[row];
+      case INT32:
+        return ((int[]) column)[row];
+      case INT64:
+        return ((long[]) column)[row];
+      case FLOAT:
+        return ((float[]) column)[row];
+      case DOUBLE:
+        return ((double[]) column)[row];
+      default:
+        return ((Object[]) column)[row];
+    }
+  }
+
+  /** The windows of the series matching the pattern in [startTime, endTime] are deleted. */
+  void delete(PartialPath pathPattern, long startTime, long endTime) {
+    if (endTime < retainedSince) {
+      return;
+    }
+    for (SeriesWindows seriesWindows : seriesWindowsMap.values()) {
+      if (!pathPattern.matchFullPath(seriesWindows.seriesPath)) {
+        continue;
+      }
+      synchronized (seriesWindows) {
+        for (Map.Entry<Long, WindowAggregate> entry :
+            seriesWindows.windows.headMap(endTime, true).entrySet()) {
+          long windowStart = entry.getKey();
+          if (windowStart + interval <= startTime) {
+            continue;
+          }
+          if (startTime <= windowStart && windowStart + interval - 1 <= endTime) {
+            entry.getValue().clear();
+          } else {
+            incompleteWindows.add(windowStart);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Collect the windows in [beginTime, endTime) to emit from the state.
+   *
+   * @return the emission, whose data set is null if the storage should be queried instead
+   */
+  Emission prepareEmission(
+      List<PartialPath> paths,
+      List<String> aggregations,
+      List<TSDataType> seriesTypes,
+      long beginTime,
+      long endTime) {
+    Emission emission = new Emission(beginTime, endTime);
+    if (!isComplete(paths, aggregations, beginTime, endTime)) {
+      // the windows queried from the storage are emitted as a whole
+      for (SeriesWindows seriesWindows : seriesWindowsMap.values()) {
+        synchronized (seriesWindows) {
+          for (WindowAggregate aggregate :
+              seriesWindows.windows.subMap(beginTime, endTime).values()) {
+            emission.snapshot(aggregate);
+          }
+        }
+      }
+      return emission;
+    }
+
+    List<TSDataType> resultTypes = new ArrayList<>(paths.size());
+    for (int i = 0; i < paths.size(); ++i) {
+      resultTypes.add(TypeInferenceUtils.getAggrDataType(aggregations.get(i), seriesTypes.get(i)));
+    }
+    emission.dataSet = new ListDataSet(paths, resultTypes);
+
+    for (long windowStart = beginTime; windowStart < endTime; windowStart += interval) {
+      boolean isNewWindow = windowStart >= emittedUntil;
+      RowRecord record = new RowRecord(windowStart);
+      for (int i = 0; i < paths.size(); ++i) {
+        SeriesWindows seriesWindows = seriesWindowsMap.get(paths.get(i).getFullPath());
+        Object result = null;
+        if (seriesWindows != null) {
+          synchronized (seriesWindows) {
+            WindowAggregate aggregate = seriesWindows.windows.get(windowStart);
+            if (aggregate != null && (isNewWindow || aggregate.isDirty)) {
+              result = aggregate.getResult(aggregations.get(i));
+              emission.snapshot(aggregate);
+            }
+          }
+        }
+        if (result == null
+            && isNewWindow
+            && SQLConstant.COUNT.equalsIgnoreCase(aggregations.get(i))) {
+          result = 0L;
+        }
+        record.addField(result, resultTypes.get(i));
+      }
+      if (!record.isAllNull()) {
+        emission.dataSet.putRecord(record);
+      }
+    }
+    return emission;
+  }
+
+  private boolean isComplete(
+      List<PartialPath> paths, List<String> aggregations, long beginTime, long endTime) {
+    if (beginTime < completeSince || !incompleteWindows.subSet(beginTime, endTime).isEmpty()) {
+      return false;
+    }
+    for (Map.Entry<Long, Long> timeRange : incompleteTimeRanges.headMap(endTime).entrySet()) {
+      if (timeRange.getValue() >= beginTime) {
+        return false;
+      }
+    }
+    for (PartialPath path : paths) {
+      if (path instanceof AlignedPath) {
+        return false;
+      }
+    }
+    for (String aggregation : aggregations) {
+      if (!isMaintainable(aggregation)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Mark the windows of the emission as emitted after they have been written, and evict the
+   * windows which will never be emitted again.
+   */
+  void commitEmission(Emission emission) {
+    emittedUntil = Math.max(emittedUntil, emission.endTime);
+    retainedSince = Math.max(retainedSince, emission.beginTime);
+    for (int i = 0; i < emission.aggregates.size(); ++i) {
+      WindowAggregate aggregate = emission.aggregates.get(i);
+      synchronized (aggregate.owner) {
+        if (aggregate.version == emission.versions.get(i)) {
+          aggregate.isDirty = false;
+        }
+      }
+    }
+    for (SeriesWindows seriesWindows : seriesWindowsMap.values()) {
+      synchronized (seriesWindows) {
+        seriesWindows.windows.headMap(retainedSince).clear();
+      }
+    }
+    incompleteWindows.headSet(retainedSince).clear();
+    incompleteTimeRanges.values().removeIf(endTime -> endTime < retainedSince);
+  }
+
+  private class SeriesWindows {
+
+    private final PartialPath seriesPath;
+    private final TreeMap<Long, WindowAggregate> windows = new TreeMap<>();
+
+    private SeriesWindows(PartialPath seriesPath) {
+      this.seriesPath = seriesPath;
+    }
+
+    private void update(long time, Object value) {
+      long windowStart = getWindowStart(time);
+      if (windowStart < retainedSince) {
+        return;
+      }
+      WindowAggregate aggregate =
+          windows.computeIfAbsent(windowStart, k -> new WindowAggregate(this));
+      if (!aggregate.update(time, value)) {
+        incompleteWindows.add(windowStart);
+      }
+    }
+  }
+
+  /**
+   * The partial aggregate of a series in a window, from which all the native aggregations could be
+   * computed. It is guarded by the lock of its owner.
+   */
+  private static class WindowAggregate {
+
+    private final SeriesWindows owner;
+
+    private long count;
+    private double sum;
+    private Comparable<Object> minValue;
+    private Comparable<Object> maxValue;
+    private long minTime = Long.MAX_VALUE;
+    private long maxTime = Long.MIN_VALUE;
+    private Object firstValue;
+    private Object lastValue;
+
+    private long version;
+    private boolean isDirty;
+
+    private WindowAggregate(SeriesWindows owner) {
+      this.owner = owner;
+    }
+
+    /** @return false if the point may overwrite a point aggregated before */
+    @SuppressWarnings("unchecked")
+    private boolean update(long time, Object value) {
+      ++version;
+      isDirty = true;
+      if (count > 0 && minTime <= time && time <= maxTime) {
+        return false;
+      }
+
+      ++count;
+      if (value instanceof Number) {
+        sum += ((Number) value).doubleValue();
+      }
+      if (value instanceof Comparable) {
+        Comparable<Object> comparable = (Comparable<Object>) value;
+        if (minValue == null || comparable.compareTo(minValue) < 0) {
+          minValue = comparable;
+        }
+        if (maxValue == null || comparable.compareTo(maxValue) > 0) {
+          maxValue = comparable;
+        }
+      }
+      if (time < minTime) {
+        minTime = time;
+        firstValue = value;
+      }
+      if (time > maxTime) {
+        maxTime = time;
+        lastValue = value;
+      }
+      return true;
+    }
+
+    private void clear() {
+      ++version;
+      isDirty = true;
+      count = 0;
+      sum = 0;
+      minValue = null;
+      maxValue = null;
+      minTime = Long.MAX_VALUE;
+      maxTime = Long.MIN_VALUE;
+      firstValue = null;
+      lastValue = null;
+    }
+
+    private Object getResult(String aggregation) {
+      if (count == 0) {
+        return SQLConstant.COUNT.equalsIgnoreCase(aggregation) ? 0L : null;
+      }
+      switch (aggregation.toLowerCase()) {
+        case SQLConstant.COUNT:
+          return count;
+        case SQLConstant.SUM:
+          return sum;
+        case SQLConstant.AVG:
+          return sum / count;
+        case SQLConstant.MIN_VALUE:
+          return minValue;
+        case SQLConstant.MAX_VALUE:
+          return maxValue;
+        case SQLConstant.EXTREME:
+          return getExtreme();
+        case SQLConstant.MIN_TIME:
+          return minTime;
+        case SQLConstant.MAX_TIME:
+          return maxTime;
+        case SQLConstant.FIRST_VALUE:
+          return firstValue;
+        case SQLConstant.LAST_VALUE:
+          return lastValue;
+        default:
+          throw new IllegalArgumentException("Invalid Aggregation function: " + aggregation);
+      }
+    }
+
+    /** The value with the largest absolute value, the positive one wins a tie */
+    private Object getExtreme() {
+      double absMin = Math.abs(((Number) minValue).doubleValue());
+      double absMax = Math.abs(((Number) maxValue).doubleValue());
+      return absMin > absMax ? minValue : maxValue;
+    }
+  }
+
+  /** The windows collected by an execution and the versions of their aggregates at that time. */
+  static class Emission {
+
+    private final long beginTime;
+    private final long endTime;
+    private final List<WindowAggregate> aggregates = new ArrayList<>();
+    private final List<Long> versions = new ArrayList<>();
+
+    private ListDataSet dataSet;
+
+    private Emission(long beginTime, long endTime) {
+      this.beginTime = beginTime;
+      this.endTime = endTime;
+    }
+
+    private void snapshot(WindowAggregate aggregate) {
+      aggregates.add(aggregate);
+      versions.add(aggregate.version);
+    }
+
+    ListDataSet getDataSet() {
+      return dataSet;
+    }
+  }
+}
@@ -22,12 +22,16 @@ package org.apache.iotdb.db.engine.cq;
 import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
 import org.apache.iotdb.commons.exception.StartupException;
 import org.apache.iotdb.commons.file.SystemFileFactory;
+import org.apache.iotdb.commons.path.PartialPath;
 import org.apache.iotdb.commons.service.IService;
 import org.apache.iotdb.commons.service.ServiceType;
 import org.apache.iotdb.commons.utils.TestOnly;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.exception.ContinuousQueryException;
 import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
 import org.apache.iotdb.db.qp.physical.sys.CreateContinuousQueryPlan;
 import org.apache.iotdb.db.qp.physical.sys.DropContinuousQueryPlan;
 import org.apache.iotdb.db.qp.utils.DatetimeUtils;
@@ -68,6 +72,8 @@ public class ContinuousQueryService implements IService {
   private final ConcurrentHashMap<String, CreateContinuousQueryPlan> continuousQueryPlans =
       new ConcurrentHashMap<>();
   private final ConcurrentHashMap<String, Long> nextExecutionTimestamps = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, ContinuousQueryAggregationState> aggregationStates =
+      new ConcurrentHashMap<>();
 
   private CQLogWriter logWriter;
 
@@ -183,6 +189,7 @@ public class ContinuousQueryService implements IService {
       }
 
       continuousQueryPlans.clear();
+      aggregationStates.clear();
 
       if (logWriter != null) {
         logWriter.close();
@@ -243,6 +250,18 @@ public class ContinuousQueryService implements IService {
     nextExecutionTimestamps.put(
         plan.getContinuousQueryName(),
         calculateNextExecutionTimestamp(plan, DatetimeUtils.currentTime()));
+    try {
+      ContinuousQueryAggregationState aggregationState =
+          ContinuousQueryAggregationState.create(plan, DatetimeUtils.currentTime());
+      if (aggregationState != null) {
+        aggregationStates.put(plan.getContinuousQueryName(), aggregationState);
+      }
+    } catch (Exception e) {
+      LOGGER.warn(
+          "Continuous query {} will not be executed incrementally",
+          plan.getContinuousQueryName(),
+          e);
+    }
   }
 
   @TestOnly
@@ -276,6 +295,45 @@ public class ContinuousQueryService implements IService {
   private void doDeregister(DropContinuousQueryPlan plan) {
     continuousQueryPlans.remove(plan.getContinuousQueryName());
     nextExecutionTimestamps.remove(plan.getContinuousQueryName());
+    aggregationStates.remove(plan.getContinuousQueryName());
+  }
+
+  ContinuousQueryAggregationState getAggregationState(String continuousQueryName) {
+    return aggregationStates.get(continuousQueryName);
+  }
+
+  /** Update the partial aggregates of the incremental continuous queries after an insertion. */
+  public void onInsert(InsertRowPlan plan) {
+    for (ContinuousQueryAggregationState aggregationState : aggregationStates.values()) {
+      aggregationState.update(plan);
+    }
+  }
+
+  /** Update the partial aggregates with the rows in [start, end) of the inserted tablet. */
+  public void onInsert(InsertTabletPlan plan, int start, int end) {
+    for (ContinuousQueryAggregationState aggregationState : aggregationStates.values()) {
+      aggregationState.update(plan, start, end);
+    }
+  }
+
+  /** Some rows in [start, end) of the tablet failed to be inserted. */
+  public void onFailedInsert(InsertTabletPlan plan, int start, int end) {
+    for (ContinuousQueryAggregationState aggregationState : aggregationStates.values()) {
+      aggregationState.invalidate(plan, start, end);
+    }
+  }
+
+  /** The data of the loaded TsFile could only be read from the storage. */
+  public void onLoad(TsFileResource tsFileResource) {
+    for (ContinuousQueryAggregationState aggregationState : aggregationStates.values()) {
+      aggregationState.invalidate(tsFileResource);
+    }
+  }
+
+  public void onDelete(PartialPath pathPattern, long startTime, long endTime) {
+    for (ContinuousQueryAggregationState aggregationState : aggregationStates.values()) {
+      aggregationState.delete(pathPattern, startTime, endTime);
+    }
   }
 
   public List<ShowContinuousQueriesResult> getShowContinuousQueriesResultList() {
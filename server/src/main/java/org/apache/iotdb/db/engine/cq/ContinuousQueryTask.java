@@ -97,6 +97,37 @@ public class ContinuousQueryTask extends WrappedRunnable {
       return;
     }
 
+    final ContinuousQueryAggregationState aggregationState =
+        ContinuousQueryService.getInstance()
+            .getAggregationState(continuousQueryPlan.getContinuousQueryName());
+    if (aggregationState == null) {
+      executeQuery(sql, queryOperator, queryPlan);
+      return;
+    }
+
+    // the executions of an incremental continuous query are serialized by its state
+    synchronized (aggregationState) {
+      final ContinuousQueryAggregationState.Emission emission =
+          aggregationState.prepareEmission(
+              queryPlan.getDeduplicatedPaths(),
+              queryPlan.getDeduplicatedAggregations(),
+              queryPlan.getDeduplicatedDataTypes(),
+              windowEndTimestamp - continuousQueryPlan.getForInterval(),
+              windowEndTimestamp);
+      if (emission.getDataSet() == null) {
+        executeQuery(sql, queryOperator, queryPlan);
+      } else if (emission.getDataSet().hasNext()) {
+        doInsert(sql, queryOperator, queryPlan, emission.getDataSet());
+      } else if (continuousQueryPlan.isDebug()) {
+        LOGGER.info(continuousQueryPlan.getContinuousQueryName() + ": no window updated.");
+      }
+      aggregationState.commitEmission(emission);
+    }
+  }
+
+  private void executeQuery(String sql, QueryOperator queryOperator, GroupByTimePlan queryPlan)
+      throws QueryProcessException, StorageEngineException, IOException, InterruptedException,
+          QueryFilterOptimizationException, MetadataException, TException, SQLException {
     // construct query dataset
     final long queryId = ServiceProvider.SESSION_MANAGER.requestQueryId(true);
     try {
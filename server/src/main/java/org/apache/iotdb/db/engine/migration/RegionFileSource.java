@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.migration;
+
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.commons.consensus.DataRegionId;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.consensus.ConsensusImpl;
+import org.apache.iotdb.db.engine.StorageEngineV2;
+import org.apache.iotdb.db.engine.snapshot.SnapshotTaker;
+import org.apache.iotdb.db.engine.snapshot.exception.DirectoryNotLegalException;
+import org.apache.iotdb.db.engine.storagegroup.DataRegion;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionFile;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionFilesResp;
+import org.apache.iotdb.rpc.TSStatusCode;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The source side of a region migration. The sealed files of a DataRegion are hard linked into a
+ * private directory by {@link SnapshotTaker}, so that compaction and deletion of the region don't
+ * change them while they are being pulled. The pulling DataNode reads them chunk by chunk, and
+ * releases the directory when it has got all of them.
+ */
+public class RegionFileSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RegionFileSource.class);
+
+  private static final String OUTGOING_DIR =
+      IoTDBDescriptor.getInstance().getConfig().getSystemDir()
+          + File.separator
+          + "migration"
+          + File.separator
+          + "outgoing";
+
+  private RegionFileSource() {}
+
+  /**
+   * Flush the DataRegion and link all its sealed files into the outgoing directory of the region.
+   * Files linked by a former call are discarded. The consensus index is captured before flushing,
+   * so the writes up to it are all in the files, while a few writes after it may be in the files as
+   * well and are applied again by the new peer.
+   *
+   * @return the names and lengths of the linked files, and the captured consensus index
+   */
+  public TRegionFilesResp listRegionFiles(DataRegionId regionId)
+      throws IOException, DirectoryNotLegalException {
+    DataRegion dataRegion = StorageEngineV2.getInstance().getDataRegion(regionId);
+    if (dataRegion == null) {
+      throw new IOException(String.format("DataRegion %s doesn't exist", regionId));
+    }
+    File regionDir = getRegionDir(regionId);
+    if (regionDir.exists()) {
+      FileUtils.deleteDirectory(regionDir);
+    }
+    long consensusIndex = ConsensusImpl.getInstance().getCurrentIndex(regionId);
+    if (!new SnapshotTaker(dataRegion).takeFullSnapshot(regionDir.getAbsolutePath(), true)) {
+      throw new IOException(String.format("Failed to link the files of DataRegion %s", regionId));
+    }
+
+    List<TRegionFile> regionFiles = new ArrayList<>();
+    File[] files = regionDir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        regionFiles.add(new TRegionFile(file.getName(), file.length()));
+      }
+    }
+    LOGGER.info(
+        "Listed {} files of DataRegion {} at consensus index {} for migration",
+        regionFiles.size(),
+        regionId,
+        consensusIndex);
+    TRegionFilesResp resp =
+        new TRegionFilesResp(new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode()));
+    resp.setFiles(regionFiles);
+    resp.setConsensusIndex(consensusIndex);
+    return resp;
+  }
+
+  /**
+   * Read a chunk of a file listed by {@link #listRegionFiles}. The chunk is shorter than the given
+   * length only when the end of the file is reached.
+   */
+  public ByteBuffer readRegionFile(DataRegionId regionId, String fileName, long offset, int length)
+      throws IOException {
+    File regionDir = getRegionDir(regionId);
+    File file = new File(regionDir, fileName);
+    // the file name comes from the network, make sure it doesn't escape from the region dir
+    if (!regionDir.equals(file.getParentFile()) || !file.exists()) {
+      throw new IOException(
+          String.format("File %s of DataRegion %s is not listed", fileName, regionId));
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buffer =
+          ByteBuffer.allocate((int) Math.max(0, Math.min(length, channel.size() - offset)));
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, offset + buffer.position()) < 0) {
+          break;
+        }
+      }
+      buffer.flip();
+      return buffer;
+    }
+  }
+
+  /** Remove the files linked for the migration of the region */
+  public void releaseRegionFiles(DataRegionId regionId) throws IOException {
+    File regionDir = getRegionDir(regionId);
+    if (regionDir.exists()) {
+      FileUtils.deleteDirectory(regionDir);
+      LOGGER.info("Released the files of DataRegion {} linked for migration", regionId);
+    }
+  }
+
+  private File getRegionDir(DataRegionId regionId) {
+    return new File(OUTGOING_DIR, String.valueOf(regionId.getId()));
+  }
+
+  public static RegionFileSource getInstance() {
+    return RegionFileSourceHolder.INSTANCE;
+  }
+
+  private static class RegionFileSourceHolder {
+
+    private static final RegionFileSource INSTANCE = new RegionFileSource();
+
+    private RegionFileSourceHolder() {}
+  }
+}
@@ -0,0 +1,365 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.migration;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
+import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.commons.client.IClientManager;
+import org.apache.iotdb.commons.client.sync.SyncDataNodeInternalServiceClient;
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.commons.consensus.DataRegionId;
+import org.apache.iotdb.consensus.common.Peer;
+import org.apache.iotdb.consensus.common.response.ConsensusGenericResponse;
+import org.apache.iotdb.db.client.DataNodeClientPoolFactory;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.consensus.ConsensusImpl;
+import org.apache.iotdb.db.engine.StorageEngineV2;
+import org.apache.iotdb.db.engine.snapshot.SnapshotLoader;
+import org.apache.iotdb.db.engine.storagegroup.DataRegion;
+import org.apache.iotdb.mpp.rpc.thrift.InternalService;
+import org.apache.iotdb.mpp.rpc.thrift.TFetchRegionFileReq;
+import org.apache.iotdb.mpp.rpc.thrift.TFetchRegionFileResp;
+import org.apache.iotdb.mpp.rpc.thrift.TPullRegionReq;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionFile;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionFilesResp;
+import org.apache.iotdb.rpc.TSStatusCode;
+
+import com.google.common.util.concurrent.RateLimiter;
+import org.apache.commons.io.FileUtils;
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The target side of a region migration. The sealed files of the DataRegion are pulled from the
+ * source DataNode chunk by chunk in background, and the bytes pulled by all the migrations of this
+ * DataNode are throttled by region_migration_throughput_mb_per_sec to keep the disks and the
+ * network of both sides serving the foreground requests. After that the DataRegion is loaded from
+ * the pulled files and joins the consensus group, where the writes after the files were listed
+ * are caught up by the consensus log.
+ */
+public class RegionPuller {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RegionPuller.class);
+
+  private static final int CHUNK_SIZE = 1024 * 1024;
+
+  private static final String INCOMING_DIR =
+      IoTDBDescriptor.getInstance().getConfig().getSystemDir()
+          + File.separator
+          + "migration"
+          + File.separator
+          + "incoming";
+
+  private static final IClientManager<TEndPoint, SyncDataNodeInternalServiceClient>
+      INTERNAL_SERVICE_CLIENT_MANAGER =
+          new IClientManager.Factory<TEndPoint, SyncDataNodeInternalServiceClient>()
+              .createClientManager(
+                  new DataNodeClientPoolFactory.SyncDataNodeInternalServiceClientPoolFactory());
+
+  public enum PullState {
+    PULLING,
+    FINISHED,
+    FAILED
+  }
+
+  private final Map<DataRegionId, PullProgress> progressMap = new ConcurrentHashMap<>();
+  private final RateLimiter rateLimiter;
+  private final ExecutorService pullThreadPool;
+
+  private RegionPuller() {
+    double throughput =
+        IoTDBDescriptor.getInstance().getConfig().getRegionMigrationThroughputMbPerSec()
+            * 1024.0
+            * 1024.0;
+    // if throughput = 0, disable rate limiting
+    this.rateLimiter = RateLimiter.create(throughput == 0 ? Double.MAX_VALUE : throughput);
+    this.pullThreadPool =
+        IoTDBThreadPoolFactory.newCachedThreadPool(
+            ThreadName.DATA_REGION_MIGRATION_SERVICE.getName());
+  }
+
+  /**
+   * Start pulling the region in background. Submitting a region that is being pulled or has been
+   * pulled takes no effect, while a failed pulling is restarted.
+   */
+  public synchronized void submit(TPullRegionReq req) {
+    DataRegionId regionId = new DataRegionId(req.getRegionReplicaSet().getRegionId().getId());
+    PullProgress progress =
+        progressMap.compute(
+            regionId,
+            (id, oldProgress) ->
+                oldProgress == null || oldProgress.state == PullState.FAILED
+                    ? new PullProgress()
+                    : oldProgress);
+    if (progress.started) {
+      return;
+    }
+    progress.started = true;
+    if (StorageEngineV2.getInstance().getDataRegion(regionId) != null) {
+      // the region has been pulled before this DataNode restarted
+      progress.state = PullState.FINISHED;
+      return;
+    }
+    pullThreadPool.submit(() -> pull(regionId, req, progress));
+  }
+
+  /** @return the progress of pulling the region, null if it has never been submitted */
+  public PullProgress getProgress(DataRegionId regionId) {
+    return progressMap.get(regionId);
+  }
+
+  /**
+   * Stop pulling the region and drop what has been pulled, including the local replica of the
+   * region if it has been loaded. It is called when the migration is rolled back.
+   */
+  public synchronized void cancel(DataRegionId regionId) throws IOException {
+    PullProgress progress = progressMap.remove(regionId);
+    if (progress != null) {
+      progress.cancel();
+    }
+    if (StorageEngineV2.getInstance().getDataRegion(regionId) != null) {
+      dropRegion(regionId);
+    }
+    File regionDir = new File(INCOMING_DIR, String.valueOf(regionId.getId()));
+    if (regionDir.exists()) {
+      FileUtils.deleteDirectory(regionDir);
+    }
+    LOGGER.info("Cancelled pulling DataRegion {}", regionId);
+  }
+
+  private void pull(DataRegionId regionId, TPullRegionReq req, PullProgress progress) {
+    TDataNodeLocation source = req.getSourceDataNode();
+    File regionDir = new File(INCOMING_DIR, String.valueOf(regionId.getId()));
+    LOGGER.info("Start pulling DataRegion {} from DataNode {}", regionId, source.getDataNodeId());
+    try {
+      if (regionDir.exists()) {
+        FileUtils.deleteDirectory(regionDir);
+      }
+      if (!regionDir.mkdirs()) {
+        throw new IOException(String.format("Failed to make directory %s", regionDir));
+      }
+      try (SyncDataNodeInternalServiceClient client =
+          INTERNAL_SERVICE_CLIENT_MANAGER.borrowClient(source.getInternalEndPoint())) {
+        pullFiles(regionId, client, regionDir, progress);
+      } finally {
+        releaseFiles(regionId, source);
+      }
+      synchronized (this) {
+        // checked under the lock of cancel(), so a cancelled region is never left loaded
+        checkCancelled(regionId, progress);
+        loadRegion(regionId, req, regionDir);
+      }
+      progress.state = PullState.FINISHED;
+      LOGGER.info(
+          "Finish pulling DataRegion {} from DataNode {}, {} bytes in total",
+          regionId,
+          source.getDataNodeId(),
+          progress.transferredBytes.get());
+    } catch (Exception e) {
+      LOGGER.error("Failed to pull DataRegion {} from DataNode {}", regionId, source, e);
+      progress.errorMessage = e.getMessage();
+      progress.state = PullState.FAILED;
+    } finally {
+      try {
+        // the loaded DataRegion holds hard links of the pulled files
+        FileUtils.deleteDirectory(regionDir);
+      } catch (IOException e) {
+        LOGGER.warn("Failed to clean directory {}", regionDir, e);
+      }
+    }
+  }
+
+  /**
+   * Pull the files listed by the source into the region dir. The consensus index captured by the
+   * source when listing the files is recorded in the progress.
+   */
+  void pullFiles(
+      DataRegionId regionId, InternalService.Iface client, File regionDir, PullProgress progress)
+      throws IOException, TException {
+    TConsensusGroupId tRegionId = ConsensusGroupId.convertToTConsensusGroupId(regionId);
+    TRegionFilesResp filesResp = client.listRegionFiles(tRegionId);
+    checkStatus(filesResp.getStatus().getCode(), filesResp.getStatus().getMessage());
+    if (filesResp.isSetConsensusIndex()) {
+      progress.consensusIndex = filesResp.getConsensusIndex();
+    }
+    List<TRegionFile> files = filesResp.isSetFiles() ? filesResp.getFiles() : new ArrayList<>();
+    for (TRegionFile file : files) {
+      progress.totalBytes += file.getLength();
+    }
+
+    for (TRegionFile file : files) {
+      File localFile = new File(regionDir, new File(file.getFileName()).getName());
+      try (FileChannel channel =
+          FileChannel.open(
+              localFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+        long offset = 0;
+        while (offset < file.getLength()) {
+          checkCancelled(regionId, progress);
+          int length = (int) Math.min(CHUNK_SIZE, file.getLength() - offset);
+          rateLimiter.acquire(length);
+          TFetchRegionFileResp chunkResp =
+              client.fetchRegionFile(
+                  new TFetchRegionFileReq(tRegionId, file.getFileName(), offset, length));
+          checkStatus(chunkResp.getStatus().getCode(), chunkResp.getStatus().getMessage());
+          ByteBuffer data = chunkResp.bufferForData();
+          if (data == null || !data.hasRemaining()) {
+            throw new IOException(
+                String.format("File %s ends unexpectedly at %d", file.getFileName(), offset));
+          }
+          int written = 0;
+          while (data.hasRemaining()) {
+            written += channel.write(data, offset + written);
+          }
+          offset += written;
+          progress.transferredBytes.addAndGet(written);
+        }
+        channel.force(true);
+      }
+    }
+  }
+
+  private void checkCancelled(DataRegionId regionId, PullProgress progress) throws IOException {
+    if (progress.cancelled) {
+      throw new IOException(String.format("Pulling DataRegion %s is cancelled", regionId));
+    }
+  }
+
+  private void releaseFiles(DataRegionId regionId, TDataNodeLocation source) {
+    try (SyncDataNodeInternalServiceClient client =
+        INTERNAL_SERVICE_CLIENT_MANAGER.borrowClient(source.getInternalEndPoint())) {
+      client.releaseRegionFiles(ConsensusGroupId.convertToTConsensusGroupId(regionId));
+    } catch (IOException | TException e) {
+      LOGGER.warn(
+          "Failed to release the files of DataRegion {} on DataNode {}",
+          regionId,
+          source.getDataNodeId(),
+          e);
+    }
+  }
+
+  private void loadRegion(DataRegionId regionId, TPullRegionReq req, File regionDir)
+      throws IOException {
+    DataRegion dataRegion =
+        new SnapshotLoader(
+                regionDir.getAbsolutePath(),
+                req.getStorageGroup(),
+                String.valueOf(regionId.getId()))
+            .loadSnapshotForStateMachine();
+    if (dataRegion == null) {
+      throw new IOException(String.format("Failed to load DataRegion %s", regionId));
+    }
+    if (req.isSetTtl()) {
+      dataRegion.setDataTTL(req.getTtl());
+    }
+    StorageEngineV2.getInstance().setDataRegion(regionId, dataRegion);
+
+    List<Peer> peers = new ArrayList<>();
+    for (TDataNodeLocation dataNodeLocation : req.getRegionReplicaSet().getDataNodeLocations()) {
+      peers.add(new Peer(regionId, dataNodeLocation.getConsensusEndPoint()));
+    }
+    ConsensusGenericResponse resp = ConsensusImpl.getInstance().addConsensusGroup(regionId, peers);
+    if (!resp.isSuccess()) {
+      StorageEngineV2.getInstance().deleteDataRegion(regionId);
+      dataRegion.syncDeleteDataFiles();
+      throw new IOException(
+          String.format(
+              "Failed to join the consensus group of DataRegion %s: %s",
+              regionId, resp.getException() == null ? "" : resp.getException().getMessage()));
+    }
+  }
+
+  private void dropRegion(DataRegionId regionId) {
+    ConsensusImpl.getInstance().removeConsensusGroup(regionId);
+    DataRegion dataRegion = StorageEngineV2.getInstance().getDataRegion(regionId);
+    if (dataRegion != null) {
+      dataRegion.syncDeleteDataFiles();
+      StorageEngineV2.getInstance().deleteDataRegion(regionId);
+    }
+  }
+
+  private void checkStatus(int code, String message) throws IOException {
+    if (code != TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
+      throw new IOException(message);
+    }
+  }
+
+  public static class PullProgress {
+
+    private volatile boolean started = false;
+    private volatile PullState state = PullState.PULLING;
+    private final AtomicLong transferredBytes = new AtomicLong(0);
+    private volatile long totalBytes = 0;
+    private volatile long consensusIndex = -1;
+    private volatile String errorMessage;
+    private volatile boolean cancelled = false;
+
+    public PullState getState() {
+      return state;
+    }
+
+    public long getTransferredBytes() {
+      return transferredBytes.get();
+    }
+
+    public long getTotalBytes() {
+      return totalBytes;
+    }
+
+    /** @return the consensus index of the region on the source when its files were listed */
+    public long getConsensusIndex() {
+      return consensusIndex;
+    }
+
+    public String getErrorMessage() {
+      return errorMessage;
+    }
+
+    /** The pulling thread stops at the next chunk */
+    void cancel() {
+      cancelled = true;
+    }
+  }
+
+  public static RegionPuller getInstance() {
+    return RegionPullerHolder.INSTANCE;
+  }
+
+  private static class RegionPullerHolder {
+
+    private static final RegionPuller INSTANCE = new RegionPuller();
+
+    private RegionPullerHolder() {}
+  }
+}
@@ -0,0 +1,375 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.selectinto;
+
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.commons.exception.MetadataException;
+import org.apache.iotdb.commons.path.PartialPath;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
+import org.apache.iotdb.db.metadata.utils.MetaUtils;
+import org.apache.iotdb.db.qp.physical.crud.InsertMultiTabletsPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Inserts the plans generated by {@link InsertTabletPlansIterator} in background, so that the query
+ * of select-into could go on while its previous results are being inserted.
+ *
+ * <p>The plans are grouped by the storage groups of their devices, which are resolved through the
+ * schema, or by default_storage_group_level if the storage group will be created automatically by
+ * the insertion. The plans of different storage
+ * groups are inserted in parallel, while the plans of one storage group are inserted one batch
+ * after another. If several batches of one storage group are waiting, they are inserted together,
+ * and the tablets of the same device are merged, so that the schema of the device is checked and
+ * the WAL is written once for all of them.
+ */
+public class InsertTabletPlansWriter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(InsertTabletPlansWriter.class);
+
+  private static final ExecutorService WRITER_POOL =
+      IoTDBThreadPoolFactory.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors(), ThreadName.SELECT_INTO_WRITER.getName());
+
+  /** Insert the tablets, which belong to the same storage group. */
+  @FunctionalInterface
+  public interface Inserter {
+    TSStatus insert(InsertMultiTabletsPlan insertMultiTabletsPlan);
+  }
+
+  /** Get the storage group of the device. */
+  @FunctionalInterface
+  interface StorageGroupResolver {
+    PartialPath resolve(PartialPath devicePath) throws MetadataException;
+  }
+
+  private final Inserter inserter;
+  private final StorageGroupResolver storageGroupResolver;
+  // device -> storage group, the devices of a statement are resolved only once
+  private final Map<String, String> deviceToStorageGroup = new HashMap<>();
+
+  // the batches which are submitted but not inserted yet
+  private final Semaphore pendingBatches;
+  private int unfinishedBatches = 0;
+
+  private final Map<String, StorageGroupLane> storageGroupLanes = new HashMap<>();
+  private final AtomicReference<TSStatus> failure = new AtomicReference<>();
+
+  public InsertTabletPlansWriter(Inserter inserter) {
+    this(inserter, InsertTabletPlansWriter::resolveStorageGroup);
+  }
+
+  InsertTabletPlansWriter(Inserter inserter, StorageGroupResolver storageGroupResolver) {
+    this.inserter = inserter;
+    this.storageGroupResolver = storageGroupResolver;
+    pendingBatches =
+        new Semaphore(
+            Math.max(1, IoTDBDescriptor.getInstance().getConfig().getSelectIntoMaxPendingBatches()));
+  }
+
+  /**
+   * Submit a batch of plans, blocks if too many batches are waiting to be inserted.
+   *
+   * @return false if any insertion has failed, and the following batches should not be submitted
+   */
+  public boolean write(List<InsertTabletPlan> insertTabletPlans) throws InterruptedException {
+    if (failure.get() != null) {
+      return false;
+    }
+
+    Map<String, List<InsertTabletPlan>> storageGroupToPlans = new HashMap<>();
+    for (InsertTabletPlan insertTabletPlan : insertTabletPlans) {
+      storageGroupToPlans
+          .computeIfAbsent(getStorageGroup(insertTabletPlan), k -> new ArrayList<>())
+          .add(insertTabletPlan);
+    }
+
+    pendingBatches.acquire();
+    Batch batch = new Batch(storageGroupToPlans.size());
+    synchronized (this) {
+      ++unfinishedBatches;
+    }
+    for (Map.Entry<String, List<InsertTabletPlan>> entry : storageGroupToPlans.entrySet()) {
+      storageGroupLanes
+          .computeIfAbsent(entry.getKey(), k -> new StorageGroupLane())
+          .offer(entry.getValue(), batch);
+    }
+    return true;
+  }
+
+  /** Wait until all the submitted batches are inserted. */
+  public void close() {
+    synchronized (this) {
+      while (unfinishedBatches > 0) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          failure.compareAndSet(
+              null,
+              RpcUtils.getStatus(
+                  TSStatusCode.WRITE_PROCESS_ERROR, "Interrupted when inserting the results"));
+          return;
+        }
+      }
+    }
+  }
+
+  /** @return the status of the first failed insertion, or success */
+  public TSStatus getStatus() {
+    TSStatus status = failure.get();
+    return status == null ? RpcUtils.SUCCESS_STATUS : status;
+  }
+
+  private String getStorageGroup(InsertTabletPlan insertTabletPlan) {
+    PartialPath devicePath = insertTabletPlan.getDevicePath();
+    return deviceToStorageGroup.computeIfAbsent(
+        devicePath.getFullPath(),
+        device -> {
+          try {
+            return storageGroupResolver.resolve(devicePath).getFullPath();
+          } catch (MetadataException e) {
+            // the insertion of the device fails alone and reports the error
+            return device;
+          }
+        });
+  }
+
+  private static PartialPath resolveStorageGroup(PartialPath devicePath) throws MetadataException {
+    try {
+      return IoTDB.schemaProcessor.getBelongedStorageGroup(devicePath);
+    } catch (StorageGroupNotSetException e) {
+      // the storage group which will be set by the insertion
+      return MetaUtils.getStorageGroupPathByLevel(
+          devicePath, IoTDBDescriptor.getInstance().getConfig().getDefaultStorageGroupLevel());
+    }
+  }
+
+  private synchronized void onBatchFinished() {
+    pendingBatches.release();
+    if (--unfinishedBatches == 0) {
+      notifyAll();
+    }
+  }
+
+  private class Batch {
+
+    private final AtomicInteger unfinishedParts;
+
+    private Batch(int partCount) {
+      unfinishedParts = new AtomicInteger(partCount);
+    }
+
+    private void onPartFinished() {
+      if (unfinishedParts.decrementAndGet() == 0) {
+        onBatchFinished();
+      }
+    }
+  }
+
+  /** Inserts the plans of one storage group in the order they are submitted. */
+  private class StorageGroupLane implements Runnable {
+
+    private final Queue<List<InsertTabletPlan>> pendingPlans = new ArrayDeque<>();
+    private final Queue<Batch> pendingParts = new ArrayDeque<>();
+    private boolean isScheduled = false;
+
+    private void offer(List<InsertTabletPlan> insertTabletPlans, Batch batch) {
+      synchronized (this) {
+        pendingPlans.add(insertTabletPlans);
+        pendingParts.add(batch);
+        if (isScheduled) {
+          return;
+        }
+        isScheduled = true;
+      }
+      try {
+        WRITER_POOL.execute(this);
+      } catch (RuntimeException e) {
+        synchronized (this) {
+          isScheduled = false;
+        }
+        fail(e);
+        finishPending();
+      }
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        List<InsertTabletPlan> insertTabletPlans = new ArrayList<>();
+        List<Batch> parts = new ArrayList<>();
+        synchronized (this) {
+          if (pendingPlans.isEmpty()) {
+            isScheduled = false;
+            return;
+          }
+          while (!pendingPlans.isEmpty()) {
+            insertTabletPlans.addAll(pendingPlans.poll());
+            parts.add(pendingParts.poll());
+          }
+        }
+
+        try {
+          if (failure.get() == null) {
+            insert(parts.size() == 1 ? insertTabletPlans : mergeTablets(insertTabletPlans));
+          }
+        } catch (RuntimeException e) {
+          fail(e);
+        } finally {
+          for (Batch part : parts) {
+            part.onPartFinished();
+          }
+        }
+      }
+    }
+
+    private void insert(List<InsertTabletPlan> insertTabletPlans) {
+      TSStatus status = inserter.insert(new InsertMultiTabletsPlan(insertTabletPlans));
+      if (status.getCode() != TSStatusCode.SUCCESS_STATUS.getStatusCode()
+          && status.getCode() != TSStatusCode.NEED_REDIRECTION.getStatusCode()) {
+        failure.compareAndSet(null, status);
+      }
+    }
+
+    private void finishPending() {
+      List<Batch> parts;
+      synchronized (this) {
+        parts = new ArrayList<>(pendingParts);
+        pendingPlans.clear();
+        pendingParts.clear();
+      }
+      for (Batch part : parts) {
+        part.onPartFinished();
+      }
+    }
+  }
+
+  private void fail(RuntimeException e) {
+    LOGGER.warn("select into: failed to insert the results", e);
+    failure.compareAndSet(
+        null, RpcUtils.getStatus(TSStatusCode.INTERNAL_SERVER_ERROR, e.getMessage()));
+  }
+
+  /**
+   * Merge the tablets of the same device which have the same measurements, the tablets are
+   * concatenated in the order they are generated.
+   */
+  static List<InsertTabletPlan> mergeTablets(List<InsertTabletPlan> insertTabletPlans) {
+    Map<String, List<InsertTabletPlan>> mergeableTablets = new LinkedHashMap<>();
+    for (InsertTabletPlan insertTabletPlan : insertTabletPlans) {
+      String key =
+          insertTabletPlan.getDevicePath().getFullPath()
+              + insertTabletPlan.isAligned()
+              + Arrays.toString(insertTabletPlan.getMeasurements())
+              + Arrays.toString(insertTabletPlan.getDataTypes());
+      mergeableTablets.computeIfAbsent(key, k -> new ArrayList<>()).add(insertTabletPlan);
+    }
+
+    List<InsertTabletPlan> mergedTablets = new ArrayList<>(mergeableTablets.size());
+    for (List<InsertTabletPlan> tablets : mergeableTablets.values()) {
+      mergedTablets.add(tablets.size() == 1 ? tablets.get(0) : concatenate(tablets));
+    }
+    return mergedTablets;
+  }
+
+  private static InsertTabletPlan concatenate(List<InsertTabletPlan> tablets) {
+    InsertTabletPlan first = tablets.get(0);
+    TSDataType[] dataTypes = first.getDataTypes();
+    int rowCount = 0;
+    for (InsertTabletPlan tablet : tablets) {
+      rowCount += tablet.getRowCount();
+    }
+
+    long[] times = new long[rowCount];
+    Object[] columns = new Object[dataTypes.length];
+    BitMap[] bitMaps = new BitMap[dataTypes.length];
+    for (int i = 0; i < dataTypes.length; ++i) {
+      columns[i] = newColumn(dataTypes[i], rowCount);
+      bitMaps[i] = new BitMap(rowCount);
+    }
+
+    int offset = 0;
+    for (InsertTabletPlan tablet : tablets) {
+      int tabletRowCount = tablet.getRowCount();
+      System.arraycopy(tablet.getTimes(), 0, times, offset, tabletRowCount);
+      for (int i = 0; i < dataTypes.length; ++i) {
+        System.arraycopy(tablet.getColumns()[i], 0, columns[i], offset, tabletRowCount);
+        if (tablet.getBitMaps() != null && tablet.getBitMaps()[i] != null) {
+          BitMap.copyOfRange(tablet.getBitMaps()[i], 0, bitMaps[i], offset, tabletRowCount);
+        }
+      }
+      offset += tabletRowCount;
+    }
+
+    InsertTabletPlan merged = new InsertTabletPlan(first.getDevicePath(), first.getMeasurements());
+    merged.setAligned(first.isAligned());
+    merged.setRowCount(rowCount);
+    merged.setTimes(times);
+    merged.setColumns(columns);
+    merged.setBitMaps(bitMaps);
+    merged.setDataTypes(dataTypes);
+    return merged;
+  }
+
+  private static Object newColumn(TSDataType dataType, int rowCount) {
+    switch (dataType) {
+      case BOOLEAN:
+        return new boolean[rowCount];
+      case INT32:
+        return new int[rowCount];
+      case INT64:
+        return new long[rowCount];
+      case FLOAT:
+        return new float[rowCount];
+      case DOUBLE:
+        return new double[rowCount];
+      case TEXT:
+        return new Binary[rowCount];
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", dataType));
+    }
+  }
+}
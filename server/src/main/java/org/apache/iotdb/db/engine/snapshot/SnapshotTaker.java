@@ -40,6 +40,9 @@ import java.util.List;
  * for files or copying them. SnapshotTaker supports two different ways of snapshot: Full Snapshot
  * and Incremental Snapshot. The former takes a snapshot for all files in an empty directory, and
  * the latter takes a snapshot based on the snapshot that took before.
+ *
+ * <p>As unchanged TsFiles are hard links of the same files in successive snapshots, the consensus
+ * layer recognizes them and only describes the files added since the previous snapshot.
  */
 public class SnapshotTaker {
   private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotTaker.class);
@@ -123,6 +126,16 @@ public class SnapshotTaker {
     return resultDirs;
   }
 
+  /**
+   * Sealed TsFiles never change and resource files are replaced instead of being rewritten, so
+   * they are shared with the snapshot through hard links. Mods files are appended in place, so
+   * they are copied to keep the snapshot from seeing later deletions.
+   */
+  private boolean isAppendedInPlace(File file) {
+    return file.getName().endsWith(ModificationFile.FILE_SUFFIX)
+        || file.getName().endsWith(ModificationFile.COMPACTION_FILE_SUFFIX);
+  }
+
   private void createFileSnapshot(
       List<String> sourceDirPaths, File targetDir, boolean sequence, long timePartition)
       throws IOException {
@@ -158,8 +171,12 @@ public class SnapshotTaker {
                 + timePartition
                 + SNAPSHOT_FILE_INFO_SEP_STR
                 + file.getName();
-        File linkFile = new File(targetDir, newFileName);
-        Files.createLink(linkFile.toPath(), file.toPath());
+        File targetFile = new File(targetDir, newFileName);
+        if (isAppendedInPlace(file)) {
+          Files.copy(file.toPath(), targetFile.toPath());
+        } else {
+          Files.createLink(targetFile.toPath(), file.toPath());
+        }
       }
     }
   }
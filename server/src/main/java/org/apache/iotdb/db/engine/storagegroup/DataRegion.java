@@ -35,6 +35,7 @@ import org.apache.iotdb.db.engine.compaction.CompactionRecoverManager;
 import org.apache.iotdb.db.engine.compaction.CompactionScheduler;
 import org.apache.iotdb.db.engine.compaction.CompactionTaskManager;
 import org.apache.iotdb.db.engine.compaction.task.AbstractCompactionTask;
+import org.apache.iotdb.db.engine.cq.ContinuousQueryService;
 import org.apache.iotdb.db.engine.flush.CloseFileListener;
 import org.apache.iotdb.db.engine.flush.FlushListener;
 import org.apache.iotdb.db.engine.flush.TsFileFlushPolicy;
@@ -47,6 +48,7 @@ import org.apache.iotdb.db.engine.upgrade.UpgradeCheckStatus;
 import org.apache.iotdb.db.engine.upgrade.UpgradeLog;
 import org.apache.iotdb.db.engine.version.SimpleFileVersionController;
 import org.apache.iotdb.db.engine.version.VersionController;
+import org.apache.iotdb.db.exception.BatchLoadFileException;
 import org.apache.iotdb.db.exception.BatchProcessException;
 import org.apache.iotdb.db.exception.DataRegionException;
 import org.apache.iotdb.db.exception.DiskSpaceInsufficientException;
@@ -167,6 +169,12 @@ public class DataRegion {
   /** indicating the file to be loaded overlap with some files. */
   private static final int POS_OVERLAP = -3;
 
+  /**
+   * the folder in a sequence time partition folder where the TsFiles to be loaded are linked or
+   * copied into before the write lock is taken.
+   */
+  private static final String LOADING_FOLDER_NAME = "loading";
+
   private final boolean enableMemControl = config.isEnableMemControl();
   /**
    * a read write lock for guaranteeing concurrent safety when accessing all fields in this class
@@ -607,6 +615,11 @@ public class DataRegion {
             // such
             // resources
             continueFailedRenames(partitionFolder, TEMP_SUFFIX);
+            // the staged TsFiles were not loaded, their origin files are still there
+            File loadingFolder = fsFactory.getFile(partitionFolder, LOADING_FOLDER_NAME);
+            if (loadingFolder.exists()) {
+              FileUtils.deleteDirectory(loadingFolder);
+            }
 
             Collections.addAll(
                 tsFiles,
@@ -818,6 +831,7 @@ public class DataRegion {
       TriggerEngine.fire(TriggerEvent.BEFORE_INSERT, insertRowPlan);
       // insert to sequence or unSequence file
       insertToTsFileProcessor(insertRowPlan, isSequence, timePartitionId);
+      ContinuousQueryService.getInstance().onInsert(insertRowPlan);
       // fire trigger after insertion
       TriggerEngine.fire(TriggerEvent.AFTER_INSERT, insertRowPlan);
     } finally {
@@ -984,8 +998,12 @@ public class DataRegion {
       tryToUpdateBatchInsertLastCache(insertTabletPlan, globalLatestFlushedTime);
 
       if (!noFailure) {
+        ContinuousQueryService.getInstance()
+            .onFailedInsert(insertTabletPlan, firePosition, insertTabletPlan.getRowCount());
         throw new BatchProcessException(results);
       }
+      ContinuousQueryService.getInstance()
+          .onInsert(insertTabletPlan, firePosition, insertTabletPlan.getRowCount());
 
       // fire trigger after insertion
       TriggerEngine.fire(TriggerEvent.AFTER_INSERT, insertTabletPlan, firePosition);
@@ -2042,6 +2060,7 @@ public class DataRegion {
           planIndex,
           timePartitionFilter);
 
+      ContinuousQueryService.getInstance().onDelete(path, startTime, endTime);
     } catch (Exception e) {
       // roll back
       for (ModificationFile modFile : updatedModFiles) {
@@ -2474,6 +2493,7 @@ public class DataRegion {
           insertPos,
           deleteOriginFile);
       resetLastCacheWhenLoadingTsfile(newTsFileResource);
+      ContinuousQueryService.getInstance().onLoad(newTsFileResource);
 
       // update latest time map
       updateLatestTimeMap(newTsFileResource);
@@ -2496,6 +2516,122 @@ public class DataRegion {
     }
   }
 
+  /**
+   * Load a batch of new TsFiles in order. The TsFiles are linked, or copied if they are on another
+   * file system, into a sequence folder of the data dir before the write lock is taken. Then they
+   * are registered under the write lock held once for the whole batch. A TsFile loaded into the
+   * sequence list is renamed in the folder it is staged in. A TsFile loaded into the unsequence
+   * list is moved to an unsequence folder, which is copied under the lock if that folder is on
+   * another disk. Loading stops at the first failure, and the TsFiles before it stay loaded.
+   *
+   * @param deleteOriginFile whether to delete the origin tsfiles once they are loaded
+   * @throws BatchLoadFileException with the number of the TsFiles loaded before the failure
+   */
+  public void loadNewTsFiles(List<TsFileResource> newTsFileResources, boolean deleteOriginFile)
+      throws BatchLoadFileException {
+    List<File> originFiles = new ArrayList<>(newTsFileResources.size());
+    List<File> stagedFiles = new ArrayList<>(newTsFileResources.size());
+    int loadedNum = 0;
+    try {
+      for (TsFileResource newTsFileResource : newTsFileResources) {
+        File originFile = newTsFileResource.getTsFile();
+        File stagedFile = stageNewTsFile(originFile, newTsFileResource.getTimePartitionWithCheck());
+        originFiles.add(originFile);
+        stagedFiles.add(stagedFile);
+        newTsFileResource.setFile(stagedFile);
+      }
+
+      writeLock("loadNewTsFiles");
+      try {
+        for (TsFileResource newTsFileResource : newTsFileResources) {
+          loadNewTsFile(newTsFileResource, true);
+          loadedNum++;
+        }
+      } finally {
+        writeUnlock();
+      }
+    } catch (LoadFileException e) {
+      throw new BatchLoadFileException(e.getMessage(), loadedNum);
+    } finally {
+      for (int i = loadedNum; i < stagedFiles.size(); i++) {
+        deleteTsFileAndAttachments(stagedFiles.get(i));
+        newTsFileResources.get(i).setFile(originFiles.get(i));
+      }
+      if (deleteOriginFile) {
+        for (int i = 0; i < loadedNum; i++) {
+          deleteTsFileAndAttachments(originFiles.get(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * Link or copy the TsFile with its .resource and .mods file into the loading folder of its time
+   * partition. The loading folder is in a sequence folder, so loading the TsFile into the sequence
+   * list renames it in the same folder.
+   *
+   * @return the staged TsFile
+   */
+  private File stageNewTsFile(File tsFileToLoad, long filePartitionId) throws LoadFileException {
+    File stagedFile;
+    try {
+      File loadingFolder =
+          fsFactory.getFile(
+              DirectoryManager.getInstance().getNextFolderForSequenceFile(),
+              logicalStorageGroupName
+                  + File.separatorChar
+                  + dataRegionId
+                  + File.separatorChar
+                  + filePartitionId
+                  + File.separatorChar
+                  + LOADING_FOLDER_NAME);
+      stagedFile = fsFactory.getFile(loadingFolder, tsFileToLoad.getName());
+      if (!loadingFolder.exists()) {
+        loadingFolder.mkdirs();
+      }
+    } catch (DiskSpaceInsufficientException e) {
+      IoTDBDescriptor.getInstance().getConfig().setReadOnly(true);
+      throw new LoadFileException(e);
+    }
+
+    for (String suffix :
+        new String[] {"", TsFileResource.RESOURCE_SUFFIX, ModificationFile.FILE_SUFFIX}) {
+      File origin = fsFactory.getFile(tsFileToLoad.getAbsolutePath() + suffix);
+      File target = fsFactory.getFile(stagedFile.getAbsolutePath() + suffix);
+      if (!origin.exists() && !suffix.isEmpty()) {
+        continue;
+      }
+      try {
+        // left by a former load that failed
+        Files.deleteIfExists(target.toPath());
+        try {
+          Files.createLink(target.toPath(), origin.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+          // on another file system
+          FileUtils.copyFile(origin, target);
+        }
+      } catch (IOException e) {
+        deleteTsFileAndAttachments(stagedFile);
+        throw new LoadFileException(
+            String.format(
+                "Failed to stage %s to %s for loading, because %s",
+                origin.getAbsolutePath(), target.getAbsolutePath(), e.getMessage()));
+      }
+    }
+    return stagedFile;
+  }
+
+  private void deleteTsFileAndAttachments(File tsFile) {
+    for (String suffix :
+        new String[] {"", TsFileResource.RESOURCE_SUFFIX, ModificationFile.FILE_SUFFIX}) {
+      try {
+        Files.deleteIfExists(fsFactory.getFile(tsFile.getAbsolutePath() + suffix).toPath());
+      } catch (IOException e) {
+        logger.warn("Cannot delete {}{}", tsFile.getAbsolutePath(), suffix, e);
+      }
+    }
+  }
+
   /**
    * Set the version in "partition" to "version" if "version" is larger than the current version.
    */
@@ -2795,16 +2931,24 @@ public class DataRegion {
             targetFile.getAbsolutePath());
         break;
       case LOAD_SEQUENCE:
-        targetFile =
-            fsFactory.getFile(
-                DirectoryManager.getInstance().getNextFolderForSequenceFile(),
-                logicalStorageGroupName
-                    + File.separatorChar
-                    + dataRegionId
-                    + File.separatorChar
-                    + filePartitionId
-                    + File.separator
-                    + tsFileResource.getTsFile().getName());
+        if (LOADING_FOLDER_NAME.equals(tsFileToLoad.getParentFile().getName())) {
+          // staged by loadNewTsFiles in the time partition folder to load into
+          targetFile =
+              fsFactory.getFile(
+                  tsFileToLoad.getParentFile().getParentFile(),
+                  tsFileResource.getTsFile().getName());
+        } else {
+          targetFile =
+              fsFactory.getFile(
+                  DirectoryManager.getInstance().getNextFolderForSequenceFile(),
+                  logicalStorageGroupName
+                      + File.separatorChar
+                      + dataRegionId
+                      + File.separatorChar
+                      + filePartitionId
+                      + File.separator
+                      + tsFileResource.getTsFile().getName());
+        }
         tsFileResource.setFile(targetFile);
         if (tsFileManager.contains(tsFileResource, true)) {
           logger.error("The file {} has already been loaded in sequence list", tsFileResource);
@@ -3048,6 +3192,11 @@ public class DataRegion {
     return dataRegionId;
   }
 
+  /** @return unique id of this data region to apply for a wal node, like root.sg1-0 */
+  public String getWALApplicantUniqueId() {
+    return logicalStorageGroupName + "-" + dataRegionId;
+  }
+
   /** @return data region path, like root.sg1/0 */
   public String getStorageGroupPath() {
     return logicalStorageGroupName + File.separator + dataRegionId;
@@ -3243,6 +3392,7 @@ public class DataRegion {
         TriggerEngine.fire(TriggerEvent.BEFORE_INSERT, plan);
         // insert to sequence or unSequence file
         insertToTsFileProcessor(plan, isSequence, timePartitionId);
+        ContinuousQueryService.getInstance().onInsert(plan);
         // fire trigger before insertion
         TriggerEngine.fire(TriggerEvent.AFTER_INSERT, plan);
       }
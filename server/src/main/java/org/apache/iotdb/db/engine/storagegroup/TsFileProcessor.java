@@ -181,7 +181,7 @@ public class TsFileProcessor {
     this.writer = new RestorableTsFileIOWriter(tsfile);
     this.updateLatestFlushTimeCallback = updateLatestFlushTimeCallback;
     this.sequence = sequence;
-    this.walNode = WALManager.getInstance().applyForWALNode();
+    this.walNode = applyForWALNode(storageGroupInfo);
     flushListeners.add(FlushListener.DefaultMemTableFLushListener.INSTANCE);
     flushListeners.add(this.walNode);
     closeFileListeners.add(closeTsFileCallback);
@@ -203,13 +203,21 @@ public class TsFileProcessor {
     this.writer = writer;
     this.updateLatestFlushTimeCallback = updateLatestFlushTimeCallback;
     this.sequence = sequence;
-    this.walNode = WALManager.getInstance().applyForWALNode();
+    this.walNode = applyForWALNode(storageGroupInfo);
     flushListeners.add(FlushListener.DefaultMemTableFLushListener.INSTANCE);
     flushListeners.add(this.walNode);
     closeFileListeners.add(closeUnsealedTsFileProcessor);
     logger.info("reopen a tsfile processor {}", tsFileResource.getTsFile());
   }
 
+  private static IWALNode applyForWALNode(StorageGroupInfo storageGroupInfo) {
+    DataRegion dataRegion = storageGroupInfo.getDataRegion();
+    if (dataRegion == null) {
+      return WALManager.getInstance().applyForWALNode();
+    }
+    return WALManager.getInstance().applyForWALNode(dataRegion.getWALApplicantUniqueId());
+  }
+
   /**
    * insert data in an InsertRowPlan into the workingMemtable.
    *
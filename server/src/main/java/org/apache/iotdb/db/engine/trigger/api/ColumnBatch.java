@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.trigger.api;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+import java.util.Arrays;
+
+/**
+ * The inserted values of one time series, passed to {@link Trigger#fire(ColumnBatch)}.
+ *
+ * <p>A ColumnBatch is a view of the rows [start, end) of the inserted tablet without copying. The
+ * arrays returned by the getters are shared with the tablet, so they must be indexed from {@link
+ * #getStart()} to {@link #getEnd()} and must not be modified. A row holds no value if {@link
+ * #isNull(int)} returns true.
+ */
+public class ColumnBatch {
+
+  private final TSDataType dataType;
+  private final long[] timestamps;
+  private final Object values;
+  // null if all the rows hold values
+  private final BitMap bitMap;
+  private final int start;
+  private final int end;
+
+  public ColumnBatch(
+      TSDataType dataType, long[] timestamps, Object values, BitMap bitMap, int start, int end) {
+    this.dataType = dataType;
+    this.timestamps = timestamps;
+    this.values = values;
+    this.bitMap = bitMap;
+    this.start = start;
+    this.end = end;
+  }
+
+  public TSDataType getDataType() {
+    return dataType;
+  }
+
+  /** @return The index of the first row of the batch */
+  public int getStart() {
+    return start;
+  }
+
+  /** @return The index after the last row of the batch */
+  public int getEnd() {
+    return end;
+  }
+
+  public int size() {
+    return end - start;
+  }
+
+  public long[] getTimestamps() {
+    return timestamps;
+  }
+
+  public boolean isNull(int index) {
+    return bitMap != null && bitMap.isMarked(index);
+  }
+
+  /** @return True if some rows of the batch hold no value */
+  public boolean hasNull() {
+    if (bitMap == null) {
+      return false;
+    }
+    for (int i = start; i < end; ++i) {
+      if (bitMap.isMarked(i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int[] getIntValues() {
+    return (int[]) values;
+  }
+
+  public long[] getLongValues() {
+    return (long[]) values;
+  }
+
+  public float[] getFloatValues() {
+    return (float[]) values;
+  }
+
+  public double[] getDoubleValues() {
+    return (double[]) values;
+  }
+
+  public boolean[] getBooleanValues() {
+    return (boolean[]) values;
+  }
+
+  public Binary[] getBinaryValues() {
+    return (Binary[]) values;
+  }
+
+  /**
+   * Fire the array hooks of the trigger with the non-null rows of the batch. The arrays are copied
+   * only if the batch doesn't cover them exactly.
+   */
+  void fireArrayHooks(Trigger trigger) throws Exception {
+    int[] rows = selectRows();
+    long[] batchTimestamps = rows == null ? timestamps : select(timestamps, rows);
+    switch (dataType) {
+      case INT32:
+        trigger.fire(batchTimestamps, rows == null ? getIntValues() : select(getIntValues(), rows));
+        break;
+      case INT64:
+        trigger.fire(
+            batchTimestamps, rows == null ? getLongValues() : select(getLongValues(), rows));
+        break;
+      case FLOAT:
+        trigger.fire(
+            batchTimestamps, rows == null ? getFloatValues() : select(getFloatValues(), rows));
+        break;
+      case DOUBLE:
+        trigger.fire(
+            batchTimestamps, rows == null ? getDoubleValues() : select(getDoubleValues(), rows));
+        break;
+      case BOOLEAN:
+        trigger.fire(
+            batchTimestamps, rows == null ? getBooleanValues() : select(getBooleanValues(), rows));
+        break;
+      case TEXT:
+        trigger.fire(
+            batchTimestamps, rows == null ? getBinaryValues() : select(getBinaryValues(), rows));
+        break;
+      default:
+        throw new UnsupportedOperationException("Unsupported series data type " + dataType);
+    }
+  }
+
+  /** @return The non-null rows of the batch, or null if the arrays could be used as they are */
+  private int[] selectRows() {
+    if (start == 0 && end == timestamps.length && !hasNull()) {
+      return null;
+    }
+    int[] rows = new int[size()];
+    int count = 0;
+    for (int i = start; i < end; ++i) {
+      if (!isNull(i)) {
+        rows[count++] = i;
+      }
+    }
+    return Arrays.copyOf(rows, count);
+  }
+
+  private static long[] select(long[] array, int[] rows) {
+    long[] selected = new long[rows.length];
+    for (int i = 0; i < rows.length; ++i) {
+      selected[i] = array[rows[i]];
+    }
+    return selected;
+  }
+
+  private static int[] select(int[] array, int[] rows) {
+    int[] selected = new int[rows.length];
+    for (int i = 0; i < rows.length; ++i) {
+      selected[i] = array[rows[i]];
+    }
+    return selected;
+  }
+
+  private static float[] select(float[] array, int[] rows) {
+    float[] selected = new float[rows.length];
+    for (int i = 0; i < rows.length; ++i) {
+      selected[i] = array[rows[i]];
+    }
+    return selected;
+  }
+
+  private static double[] select(double[] array, int[] rows) {
+    double[] selected = new double[rows.length];
+    for (int i = 0; i < rows.length; ++i) {
+      selected[i] = array[rows[i]];
+    }
+    return selected;
+  }
+
+  private static boolean[] select(boolean[] array, int[] rows) {
+    boolean[] selected = new boolean[rows.length];
+    for (int i = 0; i < rows.length; ++i) {
+      selected[i] = array[rows[i]];
+    }
+    return selected;
+  }
+
+  private static Binary[] select(Binary[] array, int[] rows) {
+    Binary[] selected = new Binary[rows.length];
+    for (int i = 0; i < rows.length; ++i) {
+      selected[i] = array[rows[i]];
+    }
+    return selected;
+  }
+}
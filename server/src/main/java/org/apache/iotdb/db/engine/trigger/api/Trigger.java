@@ -113,4 +113,14 @@ public interface Trigger {
     }
     return values;
   }
+
+  /**
+   * Listen to the values of a time series inserted by a tablet. Override it to process the
+   * primitive values in place, see {@link ColumnBatch} for how to read the batch. By default, the
+   * non-null values are passed to the array hooks above.
+   */
+  @SuppressWarnings("squid:S112")
+  default void fire(ColumnBatch batch) throws Exception {
+    batch.fireArrayHooks(this);
+  }
 }
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.trigger.executor;
+
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.IoTThreadFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the hooks of one trigger on a dedicated thread, so that a slow trigger doesn't hold the
+ * insertion. The tasks are executed one by one in the order they are submitted, and at most
+ * queueSize tasks could be pending. When the queue is full, the insertion either waits for a free
+ * slot (BLOCK) or gives up firing the trigger (DROP).
+ */
+class AsyncTriggerDispatcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncTriggerDispatcher.class);
+
+  private static final long IDLE_THREAD_KEEP_ALIVE_MS = 60_000;
+  private static final long BLOCK_RETRY_INTERVAL_MS = 100;
+
+  enum RejectionPolicy {
+    BLOCK,
+    DROP
+  }
+
+  private final String triggerName;
+  private final RejectionPolicy rejectionPolicy;
+
+  private final BlockingQueue<Runnable> pendingTasks;
+  private final ExecutorService worker;
+
+  private final AtomicLong droppedTaskCount = new AtomicLong(0);
+
+  AsyncTriggerDispatcher(String triggerName, int queueSize, RejectionPolicy rejectionPolicy) {
+    this.triggerName = triggerName;
+    this.rejectionPolicy = rejectionPolicy;
+    this.pendingTasks = new ArrayBlockingQueue<>(queueSize);
+    String poolName = ThreadName.TRIGGER_ASYNC_EXECUTION.getName() + "-" + triggerName;
+    this.worker =
+        IoTDBThreadPoolFactory.newThreadPool(
+            1,
+            1,
+            IDLE_THREAD_KEEP_ALIVE_MS,
+            TimeUnit.MILLISECONDS,
+            pendingTasks,
+            new IoTThreadFactory(poolName),
+            poolName);
+    // Don't keep a thread for the triggers that are rarely fired
+    ((ThreadPoolExecutor) worker).allowCoreThreadTimeOut(true);
+  }
+
+  void submit(Runnable task) {
+    try {
+      worker.execute(task);
+      return;
+    } catch (RejectedExecutionException e) {
+      if (worker.isShutdown()) {
+        return;
+      }
+    }
+
+    if (rejectionPolicy == RejectionPolicy.DROP) {
+      long droppedCount = droppedTaskCount.incrementAndGet();
+      if (droppedCount % 1000 == 1) {
+        LOGGER.warn(
+            "Trigger {} can't keep up with the insertion, {} firings have been dropped",
+            triggerName,
+            droppedCount);
+      }
+      return;
+    }
+
+    // The queue is full only if the worker thread is alive, so the task will be taken by it
+    try {
+      while (!worker.isShutdown()) {
+        if (pendingTasks.offer(task, BLOCK_RETRY_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Discard the pending tasks and let the running one finish */
+  void shutdown() {
+    worker.shutdown();
+    pendingTasks.clear();
+  }
+
+  long getDroppedTaskCount() {
+    return droppedTaskCount.get();
+  }
+}
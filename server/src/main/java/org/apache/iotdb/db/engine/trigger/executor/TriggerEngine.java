@@ -19,6 +19,7 @@
 
 package org.apache.iotdb.db.engine.trigger.executor;
 
+import org.apache.iotdb.db.engine.trigger.api.ColumnBatch;
 import org.apache.iotdb.db.engine.trigger.service.TriggerRegistrationInformation;
 import org.apache.iotdb.db.engine.trigger.service.TriggerRegistrationService;
 import org.apache.iotdb.db.exception.TriggerExecutionException;
@@ -27,11 +28,11 @@ import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
 import org.apache.iotdb.db.qp.physical.sys.DropTriggerPlan;
+import org.apache.iotdb.tsfile.utils.BitMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
 import java.util.List;
 
 public class TriggerEngine {
@@ -70,20 +71,31 @@ public class TriggerEngine {
     IMeasurementMNode[] mNodes = insertTabletPlan.getMeasurementMNodes();
     int size = mNodes.length;
 
+    // the triggers see the rows [firePosition, rowCount) of the tablet without copying
     long[] timestamps = insertTabletPlan.getTimes();
     Object[] columns = insertTabletPlan.getColumns();
-    if (firePosition != 0) {
-      timestamps = Arrays.copyOfRange(timestamps, firePosition, timestamps.length);
-      columns = Arrays.copyOfRange(columns, firePosition, columns.length);
-    }
+    BitMap[] bitMaps = insertTabletPlan.getBitMaps();
+    int rowCount = insertTabletPlan.getRowCount();
 
     for (int i = 0; i < size; ++i) {
       IMeasurementMNode mNode = mNodes[i];
       if (mNode == null) {
         continue;
       }
-      for (TriggerExecutor executor : mNode.getUpperTriggerExecutorList()) {
-        executor.fireIfActivated(event, timestamps, columns[i], mNode.getSchema().getType());
+      List<TriggerExecutor> executors = mNode.getUpperTriggerExecutorList();
+      if (executors.isEmpty()) {
+        continue;
+      }
+      ColumnBatch batch =
+          new ColumnBatch(
+              mNode.getSchema().getType(),
+              timestamps,
+              columns[i],
+              bitMaps == null ? null : bitMaps[i],
+              firePosition,
+              rowCount);
+      for (TriggerExecutor executor : executors) {
+        executor.fireIfActivated(event, batch);
       }
     }
   }
@@ -20,6 +20,7 @@
 package org.apache.iotdb.db.engine.trigger.executor;
 
 import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.db.engine.trigger.api.ColumnBatch;
 import org.apache.iotdb.db.engine.trigger.api.Trigger;
 import org.apache.iotdb.db.engine.trigger.api.TriggerAttributes;
 import org.apache.iotdb.db.engine.trigger.service.TriggerClassLoader;
@@ -30,10 +31,25 @@ import org.apache.iotdb.db.metadata.mnode.IMNode;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.utils.Binary;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.lang.reflect.InvocationTargetException;
 
 public class TriggerExecutor {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(TriggerExecutor.class);
+
+  /** Fire the trigger asynchronously, so that a slow trigger doesn't hold the insertion */
+  public static final String ASYNC_ATTRIBUTE = "async";
+  /** The maximum number of pending firings of an asynchronous trigger */
+  public static final String ASYNC_QUEUE_SIZE_ATTRIBUTE = "async-queue-size";
+  /** What to do when the pending firings are full, BLOCK the insertion or DROP the firing */
+  public static final String ASYNC_REJECTION_POLICY_ATTRIBUTE = "async-rejection-policy";
+
+  private static final int DEFAULT_ASYNC_QUEUE_SIZE = 1024;
+  private static final String ASYNC_FIRE_ERROR = "Failed to fire asynchronous Trigger {}";
+
   private final TriggerRegistrationInformation registrationInformation;
   private final TriggerAttributes attributes;
 
@@ -43,6 +59,9 @@ public class TriggerExecutor {
 
   private final Trigger trigger;
 
+  // null if the trigger is fired synchronously
+  private final AsyncTriggerDispatcher asyncDispatcher;
+
   public TriggerExecutor(
       TriggerRegistrationInformation registrationInformation,
       TriggerClassLoader classLoader,
@@ -56,6 +75,31 @@ public class TriggerExecutor {
     this.imNode = imNode;
 
     trigger = constructTriggerInstance();
+    asyncDispatcher = constructAsyncDispatcher();
+  }
+
+  private AsyncTriggerDispatcher constructAsyncDispatcher() throws TriggerManagementException {
+    if (!attributes.getBooleanOrDefault(ASYNC_ATTRIBUTE, false)) {
+      return null;
+    }
+    try {
+      int queueSize =
+          attributes.getIntOrDefault(ASYNC_QUEUE_SIZE_ATTRIBUTE, DEFAULT_ASYNC_QUEUE_SIZE);
+      AsyncTriggerDispatcher.RejectionPolicy rejectionPolicy =
+          AsyncTriggerDispatcher.RejectionPolicy.valueOf(
+              attributes
+                  .getStringOrDefault(
+                      ASYNC_REJECTION_POLICY_ATTRIBUTE,
+                      AsyncTriggerDispatcher.RejectionPolicy.BLOCK.name())
+                  .toUpperCase());
+      return new AsyncTriggerDispatcher(
+          registrationInformation.getTriggerName(), queueSize, rejectionPolicy);
+    } catch (IllegalArgumentException e) {
+      throw new TriggerManagementException(
+          String.format(
+              "Failed to configure the asynchronous execution of Trigger %s(%s), because %s",
+              registrationInformation.getTriggerName(), registrationInformation.getClassName(), e));
+    }
   }
 
   private Trigger constructTriggerInstance() throws TriggerManagementException {
@@ -95,6 +139,9 @@ public class TriggerExecutor {
     Thread.currentThread().setContextClassLoader(classLoader);
 
     registrationInformation.markAsStopped();
+    if (asyncDispatcher != null) {
+      asyncDispatcher.shutdown();
+    }
 
     try {
       trigger.onDrop();
@@ -138,8 +185,22 @@ public class TriggerExecutor {
   public void fireIfActivated(
       TriggerEvent event, long timestamp, Object value, TSDataType seriesDataType)
       throws TriggerExecutionException {
-    if (!registrationInformation.isStopped() && event.equals(registrationInformation.getEvent())) {
+    if (registrationInformation.isStopped() || !event.equals(registrationInformation.getEvent())) {
+      return;
+    }
+    if (asyncDispatcher == null) {
       fire(timestamp, value, seriesDataType);
+    } else {
+      asyncDispatcher.submit(
+          () -> {
+            if (!registrationInformation.isStopped()) {
+              try {
+                fire(timestamp, value, seriesDataType);
+              } catch (TriggerExecutionException e) {
+                LOGGER.warn(ASYNC_FIRE_ERROR, registrationInformation.getTriggerName(), e);
+              }
+            }
+          });
     }
   }
 
@@ -177,45 +238,39 @@ public class TriggerExecutor {
     }
   }
 
-  public void fireIfActivated(
-      TriggerEvent event, long[] timestamps, Object values, TSDataType seriesDataType)
+  /**
+   * Fire the trigger with the values of a time series inserted by a tablet. If the trigger is
+   * asynchronous, the batch is retained until the trigger is fired, so the arrays of the tablet
+   * must not be reused after the insertion.
+   */
+  public void fireIfActivated(TriggerEvent event, ColumnBatch batch)
       throws TriggerExecutionException {
-    if (!registrationInformation.isStopped() && event.equals(registrationInformation.getEvent())) {
-      fire(timestamps, values, seriesDataType);
+    if (registrationInformation.isStopped() || !event.equals(registrationInformation.getEvent())) {
+      return;
+    }
+    if (asyncDispatcher == null) {
+      fire(batch);
+    } else {
+      asyncDispatcher.submit(
+          () -> {
+            if (!registrationInformation.isStopped()) {
+              try {
+                fire(batch);
+              } catch (TriggerExecutionException e) {
+                LOGGER.warn(ASYNC_FIRE_ERROR, registrationInformation.getTriggerName(), e);
+              }
+            }
+          });
     }
   }
 
-  private synchronized void fire(long[] timestamps, Object values, TSDataType seriesDataType)
-      throws TriggerExecutionException {
+  private synchronized void fire(ColumnBatch batch) throws TriggerExecutionException {
     Thread.currentThread().setContextClassLoader(classLoader);
 
     try {
-      switch (seriesDataType) {
-        case INT32:
-          trigger.fire(timestamps, (int[]) values);
-          break;
-        case INT64:
-          trigger.fire(timestamps, (long[]) values);
-          break;
-        case FLOAT:
-          trigger.fire(timestamps, (float[]) values);
-          break;
-        case DOUBLE:
-          trigger.fire(timestamps, (double[]) values);
-          break;
-        case BOOLEAN:
-          trigger.fire(timestamps, (boolean[]) values);
-          break;
-        case TEXT:
-          trigger.fire(timestamps, (Binary[]) values);
-          break;
-        default:
-          throw new TriggerExecutionException("Unsupported series data type.");
-      }
-    } catch (TriggerExecutionException e) {
-      throw e;
+      trigger.fire(batch);
     } catch (Exception e) {
-      onTriggerExecutionError("fire(long[], Object)", e);
+      onTriggerExecutionError("fire(ColumnBatch)", e);
     }
   }
 
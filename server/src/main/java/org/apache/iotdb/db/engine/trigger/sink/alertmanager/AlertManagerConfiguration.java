@@ -19,9 +19,9 @@
 
 package org.apache.iotdb.db.engine.trigger.sink.alertmanager;
 
-import org.apache.iotdb.db.engine.trigger.sink.api.Configuration;
+import org.apache.iotdb.db.engine.trigger.sink.api.BatchingConfiguration;
 
-public class AlertManagerConfiguration implements Configuration {
+public class AlertManagerConfiguration extends BatchingConfiguration {
 
   private final String endpoint;
 
@@ -19,7 +19,7 @@
 
 package org.apache.iotdb.db.engine.trigger.sink.alertmanager;
 
-import org.apache.iotdb.db.engine.trigger.sink.api.Handler;
+import org.apache.iotdb.db.engine.trigger.sink.api.BatchingHandler;
 import org.apache.iotdb.db.engine.trigger.sink.exception.SinkException;
 
 import org.apache.http.HttpStatus;
@@ -30,8 +30,15 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-public class AlertManagerHandler implements Handler<AlertManagerConfiguration, AlertManagerEvent> {
+public class AlertManagerHandler
+    extends BatchingHandler<AlertManagerConfiguration, AlertManagerEvent> {
 
   private static CloseableHttpClient client;
   private static int referenceCount;
@@ -51,12 +58,17 @@ public class AlertManagerHandler implements Handler<AlertManagerConfiguration, A
   }
 
   @Override
-  public void close() throws IOException {
+  protected String getSinkName() {
+    return "alertmanager";
+  }
+
+  @Override
+  protected void closeSink() throws IOException {
     closeClient();
   }
 
   @Override
-  public void open(AlertManagerConfiguration configuration) {
+  protected void openSink(AlertManagerConfiguration configuration) {
     if (this.request == null) {
       this.request = new HttpPost(configuration.getEndpoint());
       request.setHeader("Accept", "application/json");
@@ -67,9 +79,18 @@ public class AlertManagerHandler implements Handler<AlertManagerConfiguration, A
   }
 
   @Override
-  public void onEvent(AlertManagerEvent event) throws SinkException {
+  protected void sendBatch(List<AlertManagerEvent> events) throws SinkException {
+    StringBuilder alerts = new StringBuilder("[");
+    for (int i = 0; i < events.size(); ++i) {
+      if (i > 0) {
+        alerts.append(',');
+      }
+      alerts.append(events.get(i).toJsonString());
+    }
+    alerts.append(']');
+
     try {
-      request.setEntity(new StringEntity("[" + event.toJsonString() + "]"));
+      request.setEntity(new StringEntity(alerts.toString()));
 
       try (CloseableHttpResponse response = client.execute(request)) {
         if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
@@ -80,4 +101,19 @@ public class AlertManagerHandler implements Handler<AlertManagerConfiguration, A
       throw new SinkException(e.getMessage());
     }
   }
+
+  /** Alertmanager identifies an alert by its labels, only the latest one of each alert is kept. */
+  @Override
+  protected List<AlertManagerEvent> coalesce(List<AlertManagerEvent> batch) {
+    Set<Map<String, String>> seenLabels = new HashSet<>();
+    List<AlertManagerEvent> latestEvents = new ArrayList<>(batch.size());
+    for (int i = batch.size() - 1; i >= 0; --i) {
+      AlertManagerEvent event = batch.get(i);
+      if (seenLabels.add(event.getLabels())) {
+        latestEvents.add(event);
+      }
+    }
+    Collections.reverse(latestEvents);
+    return latestEvents;
+  }
 }
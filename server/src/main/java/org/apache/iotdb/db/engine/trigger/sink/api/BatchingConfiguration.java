@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.trigger.sink.api;
+
+/** The buffering and batching options of a {@link BatchingHandler} */
+public abstract class BatchingConfiguration implements Configuration {
+
+  /** The maximum number of events waiting to be sent, the events beyond it are dropped */
+  private int bufferCapacity = 16384;
+
+  /** The maximum number of events sent in one batch */
+  private int maxBatchSize = 256;
+
+  /** How many times a failed batch is retried before its events are given up */
+  private int maxRetries = 3;
+
+  /** The interval before the first retry in milliseconds, doubled for each following retry */
+  private long retryIntervalMs = 100;
+
+  public int getBufferCapacity() {
+    return bufferCapacity;
+  }
+
+  public void setBufferCapacity(int bufferCapacity) {
+    this.bufferCapacity = bufferCapacity;
+  }
+
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  public void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  public void setMaxRetries(int maxRetries) {
+    this.maxRetries = maxRetries;
+  }
+
+  public long getRetryIntervalMs() {
+    return retryIntervalMs;
+  }
+
+  public void setRetryIntervalMs(long retryIntervalMs) {
+    this.retryIntervalMs = retryIntervalMs;
+  }
+}
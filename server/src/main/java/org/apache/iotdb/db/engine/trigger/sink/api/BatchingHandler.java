@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.trigger.sink.api;
+
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.db.service.metrics.MetricsService;
+import org.apache.iotdb.db.service.metrics.enums.Metric;
+import org.apache.iotdb.db.service.metrics.enums.Tag;
+import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
+import org.apache.iotdb.metrics.utils.MetricLevel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A handler which never blocks the trigger firing it. Events are put into a bounded buffer and
+ * sent in batches by a dedicated I/O thread of the handler, the events arriving while the buffer is
+ * full are dropped. A failed batch is retried with exponential backoff, so an event may be sent
+ * more than once.
+ *
+ * <p>The events still buffered are sent before {@link #close()} returns.
+ */
+public abstract class BatchingHandler<C extends BatchingConfiguration, E extends Event>
+    implements Handler<C, E> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchingHandler.class);
+
+  private static final long POLL_TIMEOUT_MS = 100;
+  private static final long CLOSE_TIMEOUT_MS = 60_000;
+
+  private static final String STATUS_SENT = "sent";
+  private static final String STATUS_COALESCED = "coalesced";
+  private static final String STATUS_DROPPED = "dropped";
+  private static final String STATUS_FAILED = "failed";
+
+  private final AtomicLong sentEventCount = new AtomicLong();
+  private final AtomicLong coalescedEventCount = new AtomicLong();
+  private final AtomicLong droppedEventCount = new AtomicLong();
+  private final AtomicLong failedEventCount = new AtomicLong();
+
+  private BlockingQueue<E> buffer;
+  private int maxBatchSize;
+  private int maxRetries;
+  private long retryIntervalMs;
+
+  private ExecutorService sender;
+  private volatile boolean isOpen;
+
+  @Override
+  public final void open(C configuration) throws Exception {
+    openSink(configuration);
+
+    buffer = new ArrayBlockingQueue<>(configuration.getBufferCapacity());
+    maxBatchSize = configuration.getMaxBatchSize();
+    maxRetries = configuration.getMaxRetries();
+    retryIntervalMs = configuration.getRetryIntervalMs();
+
+    isOpen = true;
+    sender =
+        IoTDBThreadPoolFactory.newSingleThreadExecutor(
+            ThreadName.TRIGGER_SINK.getName() + "-" + getSinkName());
+    sender.submit(this::sendLoop);
+  }
+
+  @Override
+  public final void close() throws Exception {
+    if (!isOpen) {
+      return;
+    }
+    // the sender exits after the buffer is drained
+    isOpen = false;
+    sender.shutdown();
+    if (!sender.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+      LOGGER.warn("Sink {} was closed before all the buffered events were sent", getSinkName());
+      sender.shutdownNow();
+    }
+    closeSink();
+  }
+
+  @Override
+  public final void onEvent(E event) {
+    if (!buffer.offer(event)) {
+      droppedEventCount.incrementAndGet();
+      recordMetric(STATUS_DROPPED, 1);
+    }
+  }
+
+  private void sendLoop() {
+    List<E> batch = new ArrayList<>(maxBatchSize);
+    while (isOpen || !buffer.isEmpty()) {
+      try {
+        E event = buffer.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (event == null) {
+          continue;
+        }
+        batch.add(event);
+        buffer.drainTo(batch, maxBatchSize - 1);
+        sendWithRetry(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void sendWithRetry(List<E> batch) throws InterruptedException {
+    List<E> events = coalesce(batch);
+    int coalesced = batch.size() - events.size();
+    if (coalesced > 0) {
+      coalescedEventCount.addAndGet(coalesced);
+      recordMetric(STATUS_COALESCED, coalesced);
+    }
+
+    long interval = retryIntervalMs;
+    for (int retry = 0; ; ++retry) {
+      try {
+        sendBatch(events);
+        sentEventCount.addAndGet(events.size());
+        recordMetric(STATUS_SENT, events.size());
+        return;
+      } catch (Exception e) {
+        if (retry >= maxRetries) {
+          LOGGER.warn(
+              "Sink {} failed to send {} events after {} retries",
+              getSinkName(),
+              events.size(),
+              retry,
+              e);
+          failedEventCount.addAndGet(events.size());
+          recordMetric(STATUS_FAILED, events.size());
+          return;
+        }
+        TimeUnit.MILLISECONDS.sleep(interval);
+        interval <<= 1;
+      }
+    }
+  }
+
+  private void recordMetric(String status, long count) {
+    if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
+      MetricsService.getInstance()
+          .getMetricManager()
+          .count(
+              count,
+              Metric.TRIGGER_SINK_EVENT.toString(),
+              MetricLevel.IMPORTANT,
+              Tag.NAME.toString(),
+              getSinkName(),
+              Tag.STATUS.toString(),
+              status);
+    }
+  }
+
+  public long getSentEventCount() {
+    return sentEventCount.get();
+  }
+
+  public long getCoalescedEventCount() {
+    return coalescedEventCount.get();
+  }
+
+  public long getDroppedEventCount() {
+    return droppedEventCount.get();
+  }
+
+  public long getFailedEventCount() {
+    return failedEventCount.get();
+  }
+
+  /** The name of the sink, used to name the I/O thread and to tag the metrics */
+  protected abstract String getSinkName();
+
+  /** Connect to the sink, called before any event is sent */
+  @SuppressWarnings("squid:S112")
+  protected abstract void openSink(C configuration) throws Exception;
+
+  /** Disconnect from the sink, called after all the buffered events have been sent */
+  @SuppressWarnings("squid:S112")
+  protected abstract void closeSink() throws Exception;
+
+  /**
+   * Send the events to the sink in the order they arrived. It is called only by the I/O thread of
+   * the handler, and throws if the batch should be retried.
+   */
+  @SuppressWarnings("squid:S112")
+  protected abstract void sendBatch(List<E> events) throws Exception;
+
+  /**
+   * Remove the events of the batch superseded by later ones. The returned list must keep the order
+   * of the remaining events. No event is removed by default.
+   */
+  protected List<E> coalesce(List<E> batch) {
+    return batch;
+  }
+}
@@ -20,9 +20,9 @@
 package org.apache.iotdb.db.engine.trigger.sink.mqtt;
 
 import org.apache.iotdb.commons.path.PartialPath;
-import org.apache.iotdb.db.engine.trigger.sink.api.Configuration;
+import org.apache.iotdb.db.engine.trigger.sink.api.BatchingConfiguration;
 
-public class MQTTConfiguration implements Configuration {
+public class MQTTConfiguration extends BatchingConfiguration {
 
   private final String host;
   private final int port;
@@ -19,23 +19,38 @@
 
 package org.apache.iotdb.db.engine.trigger.sink.mqtt;
 
-import org.apache.iotdb.db.engine.trigger.sink.api.Handler;
+import org.apache.iotdb.db.engine.trigger.sink.api.BatchingHandler;
 import org.apache.iotdb.db.engine.trigger.sink.exception.SinkException;
 import org.apache.iotdb.tsfile.utils.Binary;
 
-import org.fusesource.mqtt.client.BlockingConnection;
+import org.fusesource.mqtt.client.Future;
+import org.fusesource.mqtt.client.FutureConnection;
 import org.fusesource.mqtt.client.MQTT;
+import org.fusesource.mqtt.client.QoS;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
-public class MQTTHandler implements Handler<MQTTConfiguration, MQTTEvent> {
+public class MQTTHandler extends BatchingHandler<MQTTConfiguration, MQTTEvent> {
 
-  private BlockingConnection connection;
+  private static final long PUBLISH_TIMEOUT_MS = 10_000;
+
+  private FutureConnection connection;
 
   private String payloadFormatter;
 
   @Override
-  public void open(MQTTConfiguration configuration) throws Exception {
+  protected String getSinkName() {
+    return "mqtt";
+  }
+
+  @Override
+  protected void openSink(MQTTConfiguration configuration) throws Exception {
     MQTT mqtt = new MQTT();
     ping(configuration.getHost());
     mqtt.setHost(configuration.getHost(), configuration.getPort());
@@ -43,8 +58,8 @@ public class MQTTHandler implements Handler<MQTTConfiguration, MQTTEvent> {
     mqtt.setPassword(configuration.getPassword());
     mqtt.setConnectAttemptsMax(configuration.getConnectAttemptsMax());
     mqtt.setReconnectDelay(configuration.getReconnectDelay());
-    connection = mqtt.blockingConnection();
-    connection.connect();
+    connection = mqtt.futureConnection();
+    connection.connect().await();
     payloadFormatter = generatePayloadFormatter(configuration);
   }
 
@@ -83,14 +98,43 @@ public class MQTTHandler implements Handler<MQTTConfiguration, MQTTEvent> {
   }
 
   @Override
-  public void close() throws Exception {
-    connection.disconnect();
+  protected void closeSink() throws Exception {
+    connection.disconnect().await();
+  }
+
+  /** All the events of the batch are published before waiting for their acknowledgements. */
+  @Override
+  protected void sendBatch(List<MQTTEvent> events) throws Exception {
+    List<Future<Void>> acknowledgements = new ArrayList<>(events.size());
+    for (MQTTEvent event : events) {
+      String payload =
+          String.format(payloadFormatter, event.getTimestamp(), arrayToJson(event.getValues()));
+      acknowledgements.add(
+          connection.publish(event.getTopic(), payload.getBytes(), event.getQoS(), event.retain()));
+    }
+    for (Future<Void> acknowledgement : acknowledgements) {
+      acknowledgement.await(PUBLISH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
   }
 
+  /**
+   * Only the latest non-retained QoS 0 message of each topic is published. QoS 0 messages may be
+   * lost anyway, while QoS 1 and 2 messages are promised to be delivered, and every retained
+   * message is still delivered to the connected subscribers.
+   */
   @Override
-  public void onEvent(MQTTEvent event) throws Exception {
-    String payload =
-        String.format(payloadFormatter, event.getTimestamp(), arrayToJson(event.getValues()));
-    connection.publish(event.getTopic(), payload.getBytes(), event.getQoS(), event.retain());
+  protected List<MQTTEvent> coalesce(List<MQTTEvent> batch) {
+    Set<String> atMostOnceTopics = new HashSet<>();
+    List<MQTTEvent> latestEvents = new ArrayList<>(batch.size());
+    for (int i = batch.size() - 1; i >= 0; --i) {
+      MQTTEvent event = batch.get(i);
+      if (event.retain()
+          || event.getQoS() != QoS.AT_MOST_ONCE
+          || atMostOnceTopics.add(event.getTopic())) {
+        latestEvents.add(event);
+      }
+    }
+    Collections.reverse(latestEvents);
+    return latestEvents;
   }
 }
@@ -18,11 +18,13 @@
  */
 package org.apache.iotdb.db.metadata.mtree;
 
+import org.apache.iotdb.commons.concurrent.ThreadName;
 import org.apache.iotdb.commons.conf.IoTDBConstant;
 import org.apache.iotdb.commons.exception.IllegalPathException;
 import org.apache.iotdb.commons.exception.MetadataException;
 import org.apache.iotdb.commons.path.PartialPath;
 import org.apache.iotdb.commons.utils.PathUtils;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.metadata.AliasAlreadyExistException;
 import org.apache.iotdb.db.exception.metadata.AlignedTimeseriesException;
 import org.apache.iotdb.db.exception.metadata.MNodeTypeMismatchException;
@@ -75,6 +77,8 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
@@ -784,6 +788,7 @@ public class MTreeBelowSGMemoryImpl implements IMTreeBelowSG {
       throws MetadataException {
     CounterTraverser counter = new MeasurementCounter(storageGroupMNode, pathPattern, store);
     counter.setPrefixMatch(isPrefixMatch);
+    counter.setForkJoinPool(CounterPoolHolder.getCounterPool());
     counter.traverse();
     return counter.getCount();
   }
@@ -810,6 +815,7 @@ public class MTreeBelowSGMemoryImpl implements IMTreeBelowSG {
       throws MetadataException {
     CounterTraverser counter = new EntityCounter(storageGroupMNode, pathPattern, store);
     counter.setPrefixMatch(isPrefixMatch);
+    counter.setForkJoinPool(CounterPoolHolder.getCounterPool());
     counter.traverse();
     return counter.getCount();
   }
@@ -1345,4 +1351,32 @@ public class MTreeBelowSGMemoryImpl implements IMTreeBelowSG {
   }
 
   // endregion
+
+  /** Lazily created pool shared by all the MTrees to count timeseries and devices concurrently. */
+  private static class CounterPoolHolder {
+
+    private static final ForkJoinPool COUNTER_POOL = createCounterPool();
+
+    private static ForkJoinPool createCounterPool() {
+      int parallelism = IoTDBDescriptor.getInstance().getConfig().getSchemaQueryParallelism();
+      if (parallelism <= 1) {
+        return null;
+      }
+      return new ForkJoinPool(
+          parallelism,
+          pool -> {
+            ForkJoinWorkerThread thread =
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(
+                ThreadName.SCHEMA_QUERY_SERVICE.getName() + "-" + thread.getPoolIndex());
+            return thread;
+          },
+          null,
+          false);
+    }
+
+    private static ForkJoinPool getCounterPool() {
+      return COUNTER_POOL;
+    }
+  }
 }
@@ -89,6 +89,24 @@ public abstract class Traverser {
     initStartIndexAndLevel(path);
   }
 
+  /**
+   * Create a traverser sharing the path pattern and the current traverse context of the given one.
+   * It is used to traverse a subtree of the given traverser's scope independently, e.g. in another
+   * thread.
+   */
+  protected Traverser(Traverser parent) {
+    this.store = parent.store;
+    this.startNode = parent.startNode;
+    this.nodes = parent.nodes;
+    this.startIndex = parent.startIndex;
+    this.startLevel = parent.startLevel;
+    this.isPrefixStart = parent.isPrefixStart;
+    this.traverseContext = new ArrayDeque<>(parent.traverseContext);
+    this.isInTemplate = parent.isInTemplate;
+    this.isMeasurementTraverser = parent.isMeasurementTraverser;
+    this.isPrefixMatch = parent.isPrefixMatch;
+  }
+
   /**
    * The traverser may start traversing from a storageGroupMNode, which is an InternalMNode of the
    * whole MTree.
@@ -224,7 +242,7 @@ public abstract class Traverser {
     IMNode child;
     IMNodeIterator iterator = store.getChildrenIterator(node);
     try {
-      while (iterator.hasNext()) {
+      while (!isTerminated() && iterator.hasNext()) {
         child = iterator.next();
         try {
           traverse(child, idx + 1, level + 1);
@@ -280,7 +298,7 @@ public abstract class Traverser {
     IMNode child;
     IMNodeIterator iterator = store.getChildrenIterator(node);
     try {
-      while (iterator.hasNext()) {
+      while (!isTerminated() && iterator.hasNext()) {
         child = iterator.next();
         try {
           if (child.isMeasurement()) {
@@ -309,7 +327,7 @@ public abstract class Traverser {
       traverseContext.push(node);
       iterator = store.getChildrenIterator(node);
       try {
-        while (iterator.hasNext()) {
+        while (!isTerminated() && iterator.hasNext()) {
           child = iterator.next();
           try {
             traverse(child, idx, level + 1);
@@ -388,7 +406,7 @@ public abstract class Traverser {
       IMNode child;
       IMNodeIterator iterator = store.getChildrenIterator(node);
       try {
-        while (iterator.hasNext()) {
+        while (!isTerminated() && iterator.hasNext()) {
           child = iterator.next();
           try {
             traverse(child, idx, level + 1);
@@ -425,6 +443,14 @@ public abstract class Traverser {
     isInTemplate = false;
   }
 
+  /**
+   * Whether the traversal has collected enough results. If true, the remaining children will not be
+   * iterated, which avoids loading them from the store.
+   */
+  protected boolean isTerminated() {
+    return false;
+  }
+
   public void setPrefixMatch(boolean isPrefixMatch) {
     this.isPrefixMatch = isPrefixMatch;
   }
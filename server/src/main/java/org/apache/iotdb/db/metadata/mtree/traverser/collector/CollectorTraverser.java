@@ -57,12 +57,18 @@ public abstract class CollectorTraverser<T> extends Traverser {
   /** extends traversal with limit restriction */
   @Override
   protected void traverse(IMNode node, int idx, int level) throws MetadataException {
-    if (hasLimit && count == limit) {
+    if (isTerminated()) {
       return;
     }
     super.traverse(node, idx, level);
   }
 
+  /** stop iterating siblings once the limit is reached */
+  @Override
+  protected boolean isTerminated() {
+    return hasLimit && count == limit;
+  }
+
   /**
    * After invoke traverse(), this method could be invoked to get result
    *
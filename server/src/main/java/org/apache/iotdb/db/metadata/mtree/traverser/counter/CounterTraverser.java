@@ -24,17 +24,131 @@ import org.apache.iotdb.db.metadata.mnode.IMNode;
 import org.apache.iotdb.db.metadata.mtree.store.IMTreeStore;
 import org.apache.iotdb.db.metadata.mtree.traverser.Traverser;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 // This class define the count as traversal result.
 public abstract class CounterTraverser extends Traverser {
 
+  // subtrees deeper than this level below the start node are counted by the task reaching them
+  private static final int MAX_FORK_DEPTH = 3;
+
   protected int count;
 
+  // if not null, the subtrees will be counted concurrently in this pool
+  private ForkJoinPool forkJoinPool;
+  // the level of the subtree root this counter is responsible for, nodes below it will be forked
+  private int subtreeRootLevel;
+  private List<CountTask> forkedTasks;
+
   public CounterTraverser(IMNode startNode, PartialPath path, IMTreeStore store)
       throws MetadataException {
     super(startNode, path, store);
   }
 
+  /** Create a counter for one subtree of the parent counter's scope. */
+  protected CounterTraverser(CounterTraverser parent) {
+    super(parent);
+    this.forkJoinPool = parent.forkJoinPool;
+  }
+
+  /**
+   * Count subtrees concurrently in the given pool. This only takes effect if the concrete counter
+   * supports {@link #createSubCounter()}, and should only be used when the store could be read
+   * concurrently without pinning nodes, i.e. the memory based MTree.
+   */
+  public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+    this.forkJoinPool = forkJoinPool;
+  }
+
+  /**
+   * Create a counter with the same pattern and current traverse context to count one subtree. The
+   * counter should hold no result state except the count.
+   *
+   * @return null if this counter doesn't support parallel traversal
+   */
+  protected CounterTraverser createSubCounter() {
+    return null;
+  }
+
+  @Override
+  public void traverse() throws MetadataException {
+    if (forkJoinPool == null || isPrefixStart && !isPrefixMatch) {
+      super.traverse();
+      return;
+    }
+    subtreeRootLevel = startLevel;
+    try {
+      count = forkJoinPool.invoke(new CountTask(this, startNode, startIndex, startLevel));
+    } catch (CountTaskException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Override
+  protected void traverse(IMNode node, int idx, int level) throws MetadataException {
+    if (forkedTasks != null
+        && level > subtreeRootLevel
+        && level - startLevel <= MAX_FORK_DEPTH
+        && !isInTemplate
+        && !node.isMeasurement()) {
+      CounterTraverser subCounter = createSubCounter();
+      if (subCounter != null) {
+        subCounter.subtreeRootLevel = level;
+        CountTask task = new CountTask(subCounter, node, idx, level);
+        task.fork();
+        forkedTasks.add(task);
+        return;
+      }
+    }
+    super.traverse(node, idx, level);
+  }
+
   public int getCount() {
     return count;
   }
+
+  private static class CountTask extends RecursiveTask<Integer> {
+
+    private final CounterTraverser counter;
+    private final IMNode node;
+    private final int idx;
+    private final int level;
+
+    private CountTask(CounterTraverser counter, IMNode node, int idx, int level) {
+      this.counter = counter;
+      this.node = node;
+      this.idx = idx;
+      this.level = level;
+    }
+
+    @Override
+    protected Integer compute() {
+      counter.forkedTasks = new ArrayList<>();
+      try {
+        counter.traverse(node, idx, level);
+      } catch (MetadataException e) {
+        throw new CountTaskException(e);
+      }
+      int result = counter.count;
+      for (CountTask task : counter.forkedTasks) {
+        result += task.join();
+      }
+      return result;
+    }
+  }
+
+  private static class CountTaskException extends RuntimeException {
+
+    private CountTaskException(MetadataException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized MetadataException getCause() {
+      return (MetadataException) super.getCause();
+    }
+  }
 }
@@ -31,6 +31,15 @@ public class EntityCounter extends CounterTraverser {
     super(startNode, path, store);
   }
 
+  private EntityCounter(EntityCounter parent) {
+    super(parent);
+  }
+
+  @Override
+  protected CounterTraverser createSubCounter() {
+    return new EntityCounter(this);
+  }
+
   @Override
   protected boolean processInternalMatchedMNode(IMNode node, int idx, int level) {
     return false;
@@ -33,6 +33,15 @@ public class MeasurementCounter extends CounterTraverser {
     isMeasurementTraverser = true;
   }
 
+  private MeasurementCounter(MeasurementCounter parent) {
+    super(parent);
+  }
+
+  @Override
+  protected CounterTraverser createSubCounter() {
+    return new MeasurementCounter(this);
+  }
+
   @Override
   protected boolean processInternalMatchedMNode(IMNode node, int idx, int level) {
     return false;
@@ -41,6 +41,14 @@ public interface Accumulator {
    */
   void addStatistics(Statistics statistics);
 
+  /**
+   * Sketch based aggregation functions could not be computed from statistics, so
+   * seriesAggregateScanOperator should always read the data for them.
+   */
+  default boolean canUseStatistics() {
+    return true;
+  }
+
   /**
    * Attention: setFinal should be invoked only once, and addInput() and addIntermediate() are not
    * allowed again.
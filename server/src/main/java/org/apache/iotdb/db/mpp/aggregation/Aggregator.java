@@ -110,6 +110,10 @@ public class Aggregator {
     accumulator.addStatistics(statistics);
   }
 
+  public boolean canUseStatistics() {
+    return accumulator.canUseStatistics();
+  }
+
   public TSDataType[] getOutputType() {
     if (step.isOutputPartial()) {
       return accumulator.getIntermediateType();
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.aggregation;
+
+import org.apache.iotdb.db.mpp.aggregation.sketch.HyperLogLog;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.read.common.TimeRange;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.ColumnBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Estimates the number of distinct values with a {@link HyperLogLog} sketch. The intermediate
+ * result is the serialized sketch, so the partial results of different regions are merged without
+ * any loss of accuracy.
+ */
+public class ApproxCountDistinctAccumulator implements Accumulator {
+
+  private final TSDataType seriesDataType;
+  private final HyperLogLog hyperLogLog = new HyperLogLog();
+  private boolean initResult = false;
+  // set by setFinal(), the sketch could not be rebuilt from a final result
+  private long finalCount = -1;
+
+  public ApproxCountDistinctAccumulator(TSDataType seriesDataType) {
+    this.seriesDataType = seriesDataType;
+  }
+
+  // Column should be like: | Time | Value |
+  @Override
+  public void addInput(Column[] column, TimeRange timeRange) {
+    TimeColumn timeColumn = (TimeColumn) column[0];
+    for (int i = 0; i < timeColumn.getPositionCount(); i++) {
+      long curTime = timeColumn.getLong(i);
+      if (curTime > timeRange.getMax() || curTime < timeRange.getMin()) {
+        break;
+      }
+      if (!column[1].isNull(i)) {
+        initResult = true;
+        offer(column[1], i);
+      }
+    }
+  }
+
+  private void offer(Column valueColumn, int position) {
+    switch (seriesDataType) {
+      case INT32:
+        hyperLogLog.offer(valueColumn.getInt(position));
+        break;
+      case INT64:
+        hyperLogLog.offer(valueColumn.getLong(position));
+        break;
+      case FLOAT:
+        hyperLogLog.offer(valueColumn.getFloat(position));
+        break;
+      case DOUBLE:
+        hyperLogLog.offer(valueColumn.getDouble(position));
+        break;
+      case BOOLEAN:
+        hyperLogLog.offer(valueColumn.getBoolean(position) ? 1 : 0);
+        break;
+      case TEXT:
+        hyperLogLog.offer(valueColumn.getBinary(position));
+        break;
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format(
+                "Unsupported data type in aggregation APPROX_COUNT_DISTINCT : %s",
+                seriesDataType));
+    }
+  }
+
+  // partialResult should be like: | serialized HyperLogLog |
+  @Override
+  public void addIntermediate(Column[] partialResult) {
+    checkArgument(partialResult.length == 1, "partialResult of ApproxCountDistinct should be 1");
+    if (partialResult[0].isNull(0)) {
+      return;
+    }
+    initResult = true;
+    hyperLogLog.merge(HyperLogLog.deserialize(partialResult[0].getBinary(0).getValues()));
+  }
+
+  @Override
+  public void addStatistics(Statistics statistics) {
+    throw new UnsupportedOperationException(
+        "ApproxCountDistinctAccumulator could not be updated by statistics");
+  }
+
+  // finalResult should be single column, like: | finalCountValue |
+  @Override
+  public void setFinal(Column finalResult) {
+    reset();
+    if (finalResult.isNull(0)) {
+      return;
+    }
+    initResult = true;
+    finalCount = finalResult.getLong(0);
+  }
+
+  // columnBuilder should be single in ApproxCountDistinctAccumulator
+  @Override
+  public void outputIntermediate(ColumnBuilder[] columnBuilders) {
+    checkArgument(columnBuilders.length == 1, "partialResult of ApproxCountDistinct should be 1");
+    if (!initResult) {
+      columnBuilders[0].appendNull();
+    } else {
+      columnBuilders[0].writeBinary(new Binary(hyperLogLog.serialize()));
+    }
+  }
+
+  @Override
+  public void outputFinal(ColumnBuilder columnBuilder) {
+    if (!initResult) {
+      columnBuilder.appendNull();
+    } else {
+      columnBuilder.writeLong(finalCount >= 0 ? finalCount : hyperLogLog.cardinality());
+    }
+  }
+
+  @Override
+  public void reset() {
+    initResult = false;
+    finalCount = -1;
+    hyperLogLog.reset();
+  }
+
+  @Override
+  public boolean hasFinalResult() {
+    return false;
+  }
+
+  @Override
+  public boolean canUseStatistics() {
+    return false;
+  }
+
+  @Override
+  public TSDataType[] getIntermediateType() {
+    return new TSDataType[] {TSDataType.TEXT};
+  }
+
+  @Override
+  public TSDataType getFinalType() {
+    return TSDataType.INT64;
+  }
+}
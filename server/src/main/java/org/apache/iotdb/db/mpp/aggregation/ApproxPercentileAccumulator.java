@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.aggregation;
+
+import org.apache.iotdb.db.mpp.aggregation.sketch.KLLSketch;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.read.common.TimeRange;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.ColumnBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Estimates a percentile of the values with a {@link KLLSketch}. The intermediate result is the
+ * serialized sketch, so the memory is bounded no matter how many values are aggregated, and the
+ * partial results of different regions could be merged.
+ */
+public class ApproxPercentileAccumulator implements Accumulator {
+
+  public static final String PERCENTILE_ATTRIBUTE = "percentile";
+  public static final double DEFAULT_PERCENTILE = 0.5;
+
+  private final TSDataType seriesDataType;
+  private final double percentile;
+  private final KLLSketch sketch = new KLLSketch();
+  private boolean initResult = false;
+  // set by setFinal(), the sketch could not be rebuilt from a final result
+  private double finalValue = Double.NaN;
+
+  public ApproxPercentileAccumulator(TSDataType seriesDataType, double percentile) {
+    checkArgument(
+        0 <= percentile && percentile <= 1,
+        "Attribute percentile of APPROX_PERCENTILE should be in [0, 1], but was %s",
+        percentile);
+    this.seriesDataType = seriesDataType;
+    this.percentile = percentile;
+  }
+
+  // Column should be like: | Time | Value |
+  @Override
+  public void addInput(Column[] column, TimeRange timeRange) {
+    TimeColumn timeColumn = (TimeColumn) column[0];
+    for (int i = 0; i < timeColumn.getPositionCount(); i++) {
+      long curTime = timeColumn.getLong(i);
+      if (curTime > timeRange.getMax() || curTime < timeRange.getMin()) {
+        break;
+      }
+      if (!column[1].isNull(i)) {
+        initResult = true;
+        sketch.update(getValue(column[1], i));
+      }
+    }
+  }
+
+  private double getValue(Column valueColumn, int position) {
+    switch (seriesDataType) {
+      case INT32:
+        return valueColumn.getInt(position);
+      case INT64:
+        return valueColumn.getLong(position);
+      case FLOAT:
+        return valueColumn.getFloat(position);
+      case DOUBLE:
+        return valueColumn.getDouble(position);
+      case TEXT:
+      case BOOLEAN:
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format(
+                "Unsupported data type in aggregation APPROX_PERCENTILE : %s", seriesDataType));
+    }
+  }
+
+  // partialResult should be like: | serialized KLLSketch |
+  @Override
+  public void addIntermediate(Column[] partialResult) {
+    checkArgument(partialResult.length == 1, "partialResult of ApproxPercentile should be 1");
+    if (partialResult[0].isNull(0)) {
+      return;
+    }
+    initResult = true;
+    sketch.merge(KLLSketch.deserialize(partialResult[0].getBinary(0).getValues()));
+  }
+
+  @Override
+  public void addStatistics(Statistics statistics) {
+    throw new UnsupportedOperationException(
+        "ApproxPercentileAccumulator could not be updated by statistics");
+  }
+
+  // finalResult should be single column, like: | finalPercentileValue |
+  @Override
+  public void setFinal(Column finalResult) {
+    reset();
+    if (finalResult.isNull(0)) {
+      return;
+    }
+    initResult = true;
+    finalValue = finalResult.getDouble(0);
+  }
+
+  // columnBuilder should be single in ApproxPercentileAccumulator
+  @Override
+  public void outputIntermediate(ColumnBuilder[] columnBuilders) {
+    checkArgument(columnBuilders.length == 1, "partialResult of ApproxPercentile should be 1");
+    if (!initResult) {
+      columnBuilders[0].appendNull();
+    } else {
+      columnBuilders[0].writeBinary(new Binary(sketch.serialize()));
+    }
+  }
+
+  @Override
+  public void outputFinal(ColumnBuilder columnBuilder) {
+    if (!initResult) {
+      columnBuilder.appendNull();
+    } else if (sketch.isEmpty()) {
+      columnBuilder.writeDouble(finalValue);
+    } else {
+      columnBuilder.writeDouble(sketch.getQuantile(percentile));
+    }
+  }
+
+  @Override
+  public void reset() {
+    initResult = false;
+    finalValue = Double.NaN;
+    sketch.reset();
+  }
+
+  @Override
+  public boolean hasFinalResult() {
+    return false;
+  }
+
+  @Override
+  public boolean canUseStatistics() {
+    return false;
+  }
+
+  @Override
+  public TSDataType[] getIntermediateType() {
+    return new TSDataType[] {TSDataType.TEXT};
+  }
+
+  @Override
+  public TSDataType getFinalType() {
+    return TSDataType.DOUBLE;
+  }
+}
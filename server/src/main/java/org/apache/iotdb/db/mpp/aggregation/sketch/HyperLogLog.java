@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.aggregation.sketch;
+
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.Murmur128Hash;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct values with {@code 2^precision} registers.
+ * The standard error of the estimation is about {@code 1.04 / sqrt(2^precision)}.
+ *
+ * <p>Two sketches of the same precision can be merged, and the result is the same as the sketch
+ * built from the union of their inputs. So a sketch could be built on each data region, serialized
+ * and merged where the final result is computed.
+ */
+public class HyperLogLog {
+
+  public static final int DEFAULT_PRECISION = 12;
+
+  private static final int MIN_PRECISION = 4;
+  private static final int MAX_PRECISION = 16;
+
+  private final int precision;
+  private final byte[] registers;
+
+  public HyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  public HyperLogLog(int precision) {
+    checkArgument(
+        MIN_PRECISION <= precision && precision <= MAX_PRECISION,
+        "precision of HyperLogLog should be in [%s, %s]",
+        MIN_PRECISION,
+        MAX_PRECISION);
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  public void offer(long value) {
+    offerHash(mix(value));
+  }
+
+  public void offer(double value) {
+    offer(Double.doubleToLongBits(value));
+  }
+
+  public void offer(Binary value) {
+    byte[] bytes = value.getValues();
+    offerHash(Murmur128Hash.hash64(bytes, 0, bytes.length, 0));
+  }
+
+  private void offerHash(long hash) {
+    int index = (int) (hash >>> (Long.SIZE - precision));
+    // the position of the first 1 bit in the remaining bits, the sentinel bit bounds the rank
+    long remaining = (hash << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+    if (registers[index] < rank) {
+      registers[index] = rank;
+    }
+  }
+
+  public void merge(HyperLogLog other) {
+    checkArgument(
+        precision == other.precision,
+        "HyperLogLog of precision %s could not be merged into precision %s",
+        other.precision,
+        precision);
+    for (int i = 0; i < registers.length; i++) {
+      if (registers[i] < other.registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  public long cardinality() {
+    int m = registers.length;
+    double sum = 0;
+    int zeroRegisters = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeroRegisters++;
+      }
+    }
+    double estimate = alpha(m) * m * m / sum;
+    if (estimate <= 2.5 * m && zeroRegisters != 0) {
+      // linear counting is more accurate for small cardinalities
+      estimate = m * Math.log((double) m / zeroRegisters);
+    }
+    return Math.round(estimate);
+  }
+
+  public boolean isEmpty() {
+    for (byte register : registers) {
+      if (register != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void reset() {
+    Arrays.fill(registers, (byte) 0);
+  }
+
+  /** Layout: | precision (1 byte) | registers (2^precision bytes) | */
+  public byte[] serialize() {
+    ByteBuffer buffer = ByteBuffer.allocate(1 + registers.length);
+    buffer.put((byte) precision);
+    buffer.put(registers);
+    return buffer.array();
+  }
+
+  public static HyperLogLog deserialize(byte[] bytes) {
+    HyperLogLog hyperLogLog = new HyperLogLog(bytes[0]);
+    System.arraycopy(bytes, 1, hyperLogLog.registers, 0, hyperLogLog.registers.length);
+    return hyperLogLog;
+  }
+
+  private static double alpha(int m) {
+    switch (m) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / (1 + 1.079 / m);
+    }
+  }
+
+  /** Finalization mix of MurmurHash3, spreading the bits of the value over the whole hash. */
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return value;
+  }
+}
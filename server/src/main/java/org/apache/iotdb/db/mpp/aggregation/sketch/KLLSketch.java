@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.aggregation.sketch;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * KLL sketch (Karnin, Lang and Liberty, "Optimal Quantile Approximation in Streams") estimating the
+ * quantiles of a stream of doubles in bounded memory.
+ *
+ * <p>Values are kept in a hierarchy of compactors. An item at level h stands for {@code 2^h} input
+ * values. When the sketch is full, a compactor sorts its items and promotes every other one to the
+ * next level, so the memory is about {@code 3k} items no matter how many values have been added.
+ * The rank error of a quantile is about {@code 1.7 / k}.
+ *
+ * <p>Two sketches of the same k can be merged, so a sketch could be built on each data region,
+ * serialized and merged where the final result is computed. The min and max values are kept
+ * exactly.
+ */
+public class KLLSketch {
+
+  public static final int DEFAULT_K = 200;
+
+  private static final double CAPACITY_DECAY = 2.0 / 3.0;
+  private static final int MIN_CAPACITY = 2;
+
+  private final int k;
+  private final List<double[]> levels = new ArrayList<>();
+  private final List<Integer> levelSizes = new ArrayList<>();
+  private final Random random = new Random();
+
+  private int size = 0;
+  private int maxSize = 0;
+  private long count = 0;
+  private double min = Double.MAX_VALUE;
+  private double max = -Double.MAX_VALUE;
+
+  public KLLSketch() {
+    this(DEFAULT_K);
+  }
+
+  public KLLSketch(int k) {
+    checkArgument(k >= MIN_CAPACITY, "k of KLLSketch should be at least %s", MIN_CAPACITY);
+    this.k = k;
+    grow();
+  }
+
+  public void update(double value) {
+    if (Double.isNaN(value)) {
+      return;
+    }
+    count++;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+    append(0, value);
+    if (size >= maxSize) {
+      compress();
+    }
+  }
+
+  public void merge(KLLSketch other) {
+    checkArgument(
+        k == other.k, "KLLSketch of k %s could not be merged into k %s", other.k, k);
+    if (other.count == 0) {
+      return;
+    }
+    while (levels.size() < other.levels.size()) {
+      grow();
+    }
+    for (int level = 0; level < other.levels.size(); level++) {
+      double[] items = other.levels.get(level);
+      for (int i = 0, levelSize = other.levelSizes.get(level); i < levelSize; i++) {
+        append(level, items[i]);
+      }
+    }
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    while (size >= maxSize) {
+      compress();
+    }
+  }
+
+  /**
+   * @param quantile in [0, 1]
+   * @return the estimated value of the quantile, or NaN if the sketch is empty
+   */
+  public double getQuantile(double quantile) {
+    checkArgument(0 <= quantile && quantile <= 1, "quantile should be in [0, 1]");
+    if (count == 0) {
+      return Double.NaN;
+    }
+    if (quantile == 0) {
+      return min;
+    }
+    if (quantile == 1) {
+      return max;
+    }
+
+    double[] values = new double[size];
+    long[] weights = new long[size];
+    int index = 0;
+    for (int level = 0; level < levels.size(); level++) {
+      double[] items = levels.get(level);
+      for (int i = 0, levelSize = levelSizes.get(level); i < levelSize; i++) {
+        values[index] = items[i];
+        weights[index] = 1L << level;
+        index++;
+      }
+    }
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+    long totalWeight = 0;
+    for (long weight : weights) {
+      totalWeight += weight;
+    }
+    double targetWeight = quantile * totalWeight;
+    long cumulativeWeight = 0;
+    for (int i : order) {
+      cumulativeWeight += weights[i];
+      if (cumulativeWeight >= targetWeight) {
+        return values[i];
+      }
+    }
+    return max;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  public void reset() {
+    levels.clear();
+    levelSizes.clear();
+    size = 0;
+    maxSize = 0;
+    count = 0;
+    min = Double.MAX_VALUE;
+    max = -Double.MAX_VALUE;
+    grow();
+  }
+
+  /**
+   * Layout: | k (int) | count (long) | min (double) | max (double) | level number (int) | for each
+   * level: size (int), items (doubles) |
+   */
+  public byte[] serialize() {
+    ByteBuffer buffer =
+        ByteBuffer.allocate(
+            Integer.BYTES * 2
+                + Long.BYTES
+                + Double.BYTES * 2
+                + Integer.BYTES * levels.size()
+                + Double.BYTES * size);
+    buffer.putInt(k);
+    buffer.putLong(count);
+    buffer.putDouble(min);
+    buffer.putDouble(max);
+    buffer.putInt(levels.size());
+    for (int level = 0; level < levels.size(); level++) {
+      double[] items = levels.get(level);
+      int levelSize = levelSizes.get(level);
+      buffer.putInt(levelSize);
+      for (int i = 0; i < levelSize; i++) {
+        buffer.putDouble(items[i]);
+      }
+    }
+    return buffer.array();
+  }
+
+  public static KLLSketch deserialize(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    KLLSketch sketch = new KLLSketch(buffer.getInt());
+    sketch.count = buffer.getLong();
+    sketch.min = buffer.getDouble();
+    sketch.max = buffer.getDouble();
+    int levelNumber = buffer.getInt();
+    while (sketch.levels.size() < levelNumber) {
+      sketch.grow();
+    }
+    for (int level = 0; level < levelNumber; level++) {
+      int levelSize = buffer.getInt();
+      for (int i = 0; i < levelSize; i++) {
+        sketch.append(level, buffer.getDouble());
+      }
+    }
+    return sketch;
+  }
+
+  private void append(int level, double value) {
+    double[] items = levels.get(level);
+    int levelSize = levelSizes.get(level);
+    if (levelSize == items.length) {
+      items = Arrays.copyOf(items, Math.max(MIN_CAPACITY, items.length * 2));
+      levels.set(level, items);
+    }
+    items[levelSize] = value;
+    levelSizes.set(level, levelSize + 1);
+    size++;
+  }
+
+  private void grow() {
+    levels.add(new double[MIN_CAPACITY]);
+    levelSizes.add(0);
+    maxSize = 0;
+    for (int level = 0; level < levels.size(); level++) {
+      maxSize += capacity(level);
+    }
+  }
+
+  private int capacity(int level) {
+    int depth = levels.size() - level - 1;
+    return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+  }
+
+  /** Compact the lowest full levels until the sketch is under its max size. */
+  private void compress() {
+    for (int level = 0; level < levels.size(); level++) {
+      if (levelSizes.get(level) >= capacity(level)) {
+        if (level + 1 == levels.size()) {
+          grow();
+        }
+        compact(level);
+        if (size < maxSize) {
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Sort the items of the level and promote every other one, starting at a random offset, to the
+   * next level. The largest item is kept if the number of items is odd.
+   */
+  private void compact(int level) {
+    double[] items = levels.get(level);
+    int levelSize = levelSizes.get(level);
+    Arrays.sort(items, 0, levelSize);
+    int kept = levelSize % 2;
+    int offset = random.nextBoolean() ? 1 : 0;
+    for (int i = offset; i < levelSize - kept; i += 2) {
+      append(level + 1, items[i]);
+    }
+    if (kept == 1) {
+      items[0] = items[levelSize - 1];
+    }
+    levelSizes.set(level, kept);
+    size -= levelSize - kept;
+  }
+}
@@ -26,11 +26,18 @@ import org.apache.iotdb.db.mpp.execution.operator.OperatorContext;
 import org.apache.iotdb.db.mpp.plan.analyze.TypeProvider;
 import org.apache.iotdb.db.mpp.plan.planner.plan.parameter.InputLocation;
 import org.apache.iotdb.db.query.expression.Expression;
+import org.apache.iotdb.db.query.expression.leaf.TimeSeriesOperand;
+import org.apache.iotdb.db.query.expression.multi.FunctionExpression;
+import org.apache.iotdb.db.query.udf.api.customizer.strategy.AccessStrategy;
+import org.apache.iotdb.db.query.udf.api.customizer.strategy.ColumnBatchAccessStrategy;
 import org.apache.iotdb.db.query.udf.core.executor.UDTFContext;
+import org.apache.iotdb.db.query.udf.core.executor.UDTFExecutor;
 import org.apache.iotdb.db.query.udf.core.layer.EvaluationDAGBuilder;
 import org.apache.iotdb.db.query.udf.core.layer.RawQueryInputLayer;
 import org.apache.iotdb.db.query.udf.core.layer.TsBlockInputDataSet;
 import org.apache.iotdb.db.query.udf.core.reader.LayerPointReader;
+import org.apache.iotdb.db.query.udf.core.reader.TsBlockColumnBatchReader;
+import org.apache.iotdb.db.query.udf.core.transformer.multi.UDFQueryColumnBatchTransformer;
 import org.apache.iotdb.db.query.udf.service.UDFClassLoaderManager;
 import org.apache.iotdb.db.query.udf.service.UDFRegistrationService;
 import org.apache.iotdb.db.utils.datastructure.TimeSelector;
@@ -92,6 +99,7 @@ public class TransformOperator implements ProcessOperator {
     initInputLayer(inputDataTypes);
     initUdtfContext(outputExpressions, zoneId);
     initTransformers(inputLocations, outputExpressions, typeProvider);
+    tryFeedColumnBatchesDirectly(inputLocations, outputExpressions);
   }
 
   private void initInputLayer(List<TSDataType> inputDataTypes) throws QueryProcessException {
@@ -135,6 +143,46 @@ public class TransformOperator implements ProcessOperator {
     }
   }
 
+  /**
+   * If the only output column is computed by a UDTF accessing the data in column batches, and all
+   * the inputs of the UDTF are input columns, the UDTF is fed with the columns of the input
+   * TsBlocks directly, instead of the rows buffered in the input layer.
+   */
+  private void tryFeedColumnBatchesDirectly(
+      Map<String, List<InputLocation>> inputLocations, Expression[] outputExpressions) {
+    if (outputExpressions.length != 1
+        || !(outputExpressions[0] instanceof FunctionExpression)
+        || ((FunctionExpression) outputExpressions[0]).isBuiltInAggregationFunctionExpression()) {
+      return;
+    }
+    FunctionExpression functionExpression = (FunctionExpression) outputExpressions[0];
+    UDTFExecutor executor = udtfContext.getExecutorByFunctionExpression(functionExpression);
+    AccessStrategy accessStrategy = executor.getConfigurations().getAccessStrategy();
+    if (accessStrategy.getAccessStrategyType() != AccessStrategy.AccessStrategyType.COLUMN_BATCH) {
+      return;
+    }
+
+    List<Expression> inputExpressions = functionExpression.getExpressions();
+    int[] valueColumnIndexes = new int[inputExpressions.size()];
+    for (int i = 0; i < valueColumnIndexes.length; ++i) {
+      Expression inputExpression = inputExpressions.get(i);
+      if (!(inputExpression instanceof TimeSeriesOperand)
+          || !inputLocations.containsKey(inputExpression.toString())) {
+        return;
+      }
+      valueColumnIndexes[i] =
+          inputLocations.get(inputExpression.toString()).get(0).getValueColumnIndex();
+    }
+
+    transformers[0] =
+        new UDFQueryColumnBatchTransformer(
+            new TsBlockColumnBatchReader(
+                inputOperator,
+                valueColumnIndexes,
+                ((ColumnBatchAccessStrategy) accessStrategy).getMaxBatchSize()),
+            executor);
+  }
+
   protected void readyForFirstIteration() throws QueryProcessException, IOException {
     timeHeap = new TimeSelector(transformers.length << 1, true);
     for (LayerPointReader reader : transformers) {
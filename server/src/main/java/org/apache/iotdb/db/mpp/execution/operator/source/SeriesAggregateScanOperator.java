@@ -64,6 +64,8 @@ public class SeriesAggregateScanOperator implements DataSourceOperator {
   // We still think aggregator in SeriesAggregateScanOperator is a inputRaw step.
   // But in facing of statistics, it will invoke another method processStatistics()
   private List<Aggregator> aggregators;
+  // false if any of the aggregators could not be computed from statistics
+  private final boolean canUseStatistics;
 
   private ITimeRangeIterator timeRangeIterator;
   // current interval of aggregation window [curStartTime, curEndTime)
@@ -98,6 +100,7 @@ public class SeriesAggregateScanOperator implements DataSourceOperator {
             null,
             ascending);
     this.aggregators = aggregators;
+    this.canUseStatistics = aggregators.stream().allMatch(Aggregator::canUseStatistics);
     List<TSDataType> dataTypes = new ArrayList<>();
     for (Aggregator aggregator : aggregators) {
       dataTypes.addAll(Arrays.asList(aggregator.getOutputType()));
@@ -398,21 +401,23 @@ public class SeriesAggregateScanOperator implements DataSourceOperator {
 
   public boolean canUseCurrentFileStatistics() throws IOException {
     Statistics fileStatistics = seriesScanUtil.currentFileStatistics();
-    return !seriesScanUtil.isFileOverlapped()
+    return canUseStatistics
+        && !seriesScanUtil.isFileOverlapped()
         && containedByTimeFilter(fileStatistics)
         && !seriesScanUtil.currentFileModified();
   }
 
   public boolean canUseCurrentChunkStatistics() throws IOException {
     Statistics chunkStatistics = seriesScanUtil.currentChunkStatistics();
-    return !seriesScanUtil.isChunkOverlapped()
+    return canUseStatistics
+        && !seriesScanUtil.isChunkOverlapped()
         && containedByTimeFilter(chunkStatistics)
         && !seriesScanUtil.currentChunkModified();
   }
 
   public boolean canUseCurrentPageStatistics() throws IOException {
     Statistics currentPageStatistics = seriesScanUtil.currentPageStatistics();
-    if (currentPageStatistics == null) {
+    if (!canUseStatistics || currentPageStatistics == null) {
       return false;
     }
     return !seriesScanUtil.isPageOverlapped()
@@ -18,10 +18,13 @@
  */
 package org.apache.iotdb.db.mpp.plan.analyze;
 
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
 import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
 import org.apache.iotdb.common.rpc.thrift.TSeriesPartitionSlot;
 import org.apache.iotdb.common.rpc.thrift.TTimePartitionSlot;
 import org.apache.iotdb.commons.client.IClientManager;
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
 import org.apache.iotdb.commons.consensus.PartitionRegionId;
 import org.apache.iotdb.commons.exception.MetadataException;
 import org.apache.iotdb.commons.partition.DataPartition;
@@ -36,14 +39,17 @@ import org.apache.iotdb.confignode.rpc.thrift.TSchemaPartitionResp;
 import org.apache.iotdb.confignode.rpc.thrift.TSetStorageGroupReq;
 import org.apache.iotdb.confignode.rpc.thrift.TStorageGroupSchema;
 import org.apache.iotdb.confignode.rpc.thrift.TStorageGroupSchemaResp;
+import org.apache.iotdb.consensus.common.Peer;
 import org.apache.iotdb.db.client.ConfigNodeClient;
 import org.apache.iotdb.db.client.ConfigNodeInfo;
 import org.apache.iotdb.db.client.DataNodeClientPoolFactory;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.consensus.ConsensusImpl;
 import org.apache.iotdb.db.exception.sql.StatementAnalyzeException;
 import org.apache.iotdb.db.metadata.utils.MetaUtils;
 import org.apache.iotdb.db.mpp.common.schematree.PathPatternTree;
+import org.apache.iotdb.mpp.rpc.thrift.TUpdatePartitionCacheReq;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.tsfile.utils.PublicBAOS;
 
@@ -64,6 +70,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class ClusterPartitionFetcher implements IPartitionFetcher {
@@ -75,6 +82,12 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
 
   private PartitionCache partitionCache;
 
+  // version of the latest partitions pushed by ConfigNode
+  private long partitionVersion = -1;
+
+  // Map<RegionId, DataNodeId of the leader>, reported by ConfigNode with the DataPartitions
+  private final Map<TConsensusGroupId, Integer> regionLeaderCache = new ConcurrentHashMap<>();
+
   private final IClientManager<PartitionRegionId, ConfigNodeClient> configNodeClientManager =
       new IClientManager.Factory<PartitionRegionId, ConfigNodeClient>()
           .createClientManager(new DataNodeClientPoolFactory.ConfigNodeClientPoolFactory());
@@ -112,7 +125,7 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
         if (schemaPartitionResp.getStatus().getCode()
             == TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
           schemaPartition = parseSchemaPartitionResp(schemaPartitionResp);
-          partitionCache.updateSchemaPartitionCache(devicePaths, schemaPartition);
+          partitionCache.updateSchemaPartitionCache(schemaPartition.getSchemaPartitionMap());
         }
       }
       return schemaPartition;
@@ -136,7 +149,7 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
         if (schemaPartitionResp.getStatus().getCode()
             == TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
           schemaPartition = parseSchemaPartitionResp(schemaPartitionResp);
-          partitionCache.updateSchemaPartitionCache(devicePaths, schemaPartition);
+          partitionCache.updateSchemaPartitionCache(schemaPartition.getSchemaPartitionMap());
         }
       }
       return schemaPartition;
@@ -176,7 +189,7 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
         if (dataPartitionResp.getStatus().getCode()
             == TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
           dataPartition = parseDataPartitionResp(dataPartitionResp);
-          partitionCache.updateDataPartitionCache(dataPartition);
+          partitionCache.updateDataPartitionCache(dataPartition.getDataPartitionMap());
         }
       }
       return dataPartition;
@@ -219,7 +232,7 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
         if (dataPartitionResp.getStatus().getCode()
             == TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
           dataPartition = parseDataPartitionResp(dataPartitionResp);
-          partitionCache.updateDataPartitionCache(dataPartition);
+          partitionCache.updateDataPartitionCache(dataPartition.getDataPartitionMap());
         }
       }
       return dataPartition;
@@ -235,9 +248,115 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
     partitionCache.storageGroupCache.clear();
     partitionCache.invalidAllDataPartitionCache();
     partitionCache.invalidAllSchemaPartitionCache();
+    regionLeaderCache.clear();
     logger.debug("PartitionCache is invalid:{}", partitionCache);
   }
 
+  /**
+   * Get the leader of a Region. The local consensus layer is asked if this DataNode hosts a replica
+   * of the Region, otherwise the leader reported by ConfigNode with the DataPartitions is used.
+   *
+   * @return the location of the leader, or null if the leader is unknown
+   */
+  public TDataNodeLocation getRegionLeader(TRegionReplicaSet regionReplicaSet) {
+    if (isLocalRegion(regionReplicaSet)) {
+      return getLocalRegionLeader(regionReplicaSet);
+    }
+    Integer leaderId = regionLeaderCache.get(regionReplicaSet.getRegionId());
+    if (leaderId == null) {
+      return null;
+    }
+    for (TDataNodeLocation location : regionReplicaSet.getDataNodeLocations()) {
+      if (location.getDataNodeId() == leaderId) {
+        return location;
+      }
+    }
+    return null;
+  }
+
+  /** Record the new leader of a Region after its leadership is transferred by this DataNode */
+  public void updateRegionLeader(TConsensusGroupId regionId, int leaderId) {
+    regionLeaderCache.put(regionId, leaderId);
+  }
+
+  private boolean isLocalRegion(TRegionReplicaSet regionReplicaSet) {
+    for (TDataNodeLocation location : regionReplicaSet.getDataNodeLocations()) {
+      if (location.getDataNodeId() == config.getDataNodeId()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private TDataNodeLocation getLocalRegionLeader(TRegionReplicaSet regionReplicaSet) {
+    Peer leader;
+    try {
+      leader =
+          ConsensusImpl.getInstance()
+              .getLeader(
+                  ConsensusGroupId.Factory.createFromTConsensusGroupId(
+                      regionReplicaSet.getRegionId()));
+    } catch (RuntimeException e) {
+      // the leader may be unknown during an election
+      logger.debug("Cannot get the leader of {}", regionReplicaSet.getRegionId(), e);
+      return null;
+    }
+    if (leader == null) {
+      return null;
+    }
+    for (TDataNodeLocation location : regionReplicaSet.getDataNodeLocations()) {
+      if (location.getConsensusEndPoint().equals(leader.getEndpoint())) {
+        return location;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Invalidate the cached partitions of a deleted storage group, the others are kept. The deltas
+   * pushed before the deletion are ignored afterwards, so that they could not add the partitions
+   * of the storage group back.
+   *
+   * @param storageGroup the full path of the storage group
+   * @param version the partition version of ConfigNode after the deletion, or -1 if unknown
+   */
+  public synchronized void invalidStorageGroupCache(String storageGroup, long version) {
+    logger.debug("Invalidate partition cache of {}", storageGroup);
+    partitionCache.invalidStorageGroupCache(Collections.singletonList(storageGroup));
+    partitionVersion = Math.max(partitionVersion, version);
+  }
+
+  /**
+   * Apply the partitions pushed by ConfigNode after they are created. The partitions are only
+   * added, so a delta arriving late or never could only cause cache misses, which fetch the
+   * partitions from ConfigNode as before.
+   *
+   * @return false if the delta is older than the latest delta applied and is ignored
+   */
+  public synchronized boolean updatePartitionCache(TUpdatePartitionCacheReq req) {
+    long version = req.getPartitionVersion();
+    if (version <= partitionVersion) {
+      logger.debug(
+          "Ignore partitions of version {}, version {} has been applied",
+          version,
+          partitionVersion);
+      return false;
+    }
+    if (version > partitionVersion + 1) {
+      logger.debug("Partitions from version {} to {} are missed", partitionVersion + 1, version);
+    }
+    if (req.isSetSchemaPartitionMap()) {
+      partitionCache.updateStorageCache(req.getSchemaPartitionMap().keySet());
+      partitionCache.updateSchemaPartitionCache(req.getSchemaPartitionMap());
+    }
+    if (req.isSetDataPartitionMap()) {
+      partitionCache.updateStorageCache(req.getDataPartitionMap().keySet());
+      partitionCache.updateDataPartitionCache(req.getDataPartitionMap());
+    }
+    partitionVersion = version;
+    return true;
+  }
+
   /** get deviceToStorageGroup map */
   private Map<String, String> getDeviceToStorageGroup(
       List<String> devicePaths, boolean isAutoCreate) {
@@ -368,6 +487,9 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
   }
 
   private DataPartition parseDataPartitionResp(TDataPartitionResp dataPartitionResp) {
+    if (dataPartitionResp.isSetRegionLeaderMap()) {
+      regionLeaderCache.putAll(dataPartitionResp.getRegionLeaderMap());
+    }
     return new DataPartition(
         dataPartitionResp.getDataPartitionMap(),
         config.getSeriesPartitionExecutorClass(),
@@ -379,9 +501,9 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
     private final int cacheSize = config.getPartitionCacheSize();
     /** the cache of storage group */
     private Set<String> storageGroupCache = Collections.synchronizedSet(new HashSet<>());
-    /** device -> tRegionReplicaSet */
-    private final Cache<String, TRegionReplicaSet> schemaPartitionCache;
-    /** tSeriesPartitionSlot, tTimesereisPartitionSlot -> TRegionReplicaSets * */
+    /** storageGroup, tSeriesPartitionSlot -> tRegionReplicaSet */
+    private final Cache<SchemaPartitionCacheKey, TRegionReplicaSet> schemaPartitionCache;
+    /** storageGroup, tSeriesPartitionSlot, tTimesereisPartitionSlot -> TRegionReplicaSets * */
     private final Cache<DataPartitionCacheKey, List<TRegionReplicaSet>> dataPartitionCache;
     /** calculate slotId by device */
     private final String seriesSlotExecutorName;
@@ -429,12 +551,20 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
       }
     }
 
-    /** invalid storage group after delete */
+    /** invalid storage group and its partitions after delete */
     public void invalidStorageGroupCache(List<String> storageGroupNames) {
       for (String storageGroupName : storageGroupNames) {
         if (storageGroupCache.contains(storageGroupName)) {
           storageGroupCache.remove(storageGroupName);
         }
+        schemaPartitionCache
+            .asMap()
+            .keySet()
+            .removeIf(key -> key.storageGroup.equals(storageGroupName));
+        dataPartitionCache
+            .asMap()
+            .keySet()
+            .removeIf(key -> key.storageGroup.equals(storageGroupName));
       }
     }
 
@@ -449,13 +579,15 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
       for (Map.Entry<String, String> entry : deviceToStorageGroupMap.entrySet()) {
         String device = entry.getKey();
         TSeriesPartitionSlot seriesPartitionSlot = partitionExecutor.getSeriesPartitionSlot(device);
-        TRegionReplicaSet regionReplicaSet = schemaPartitionCache.getIfPresent(device);
+        String storageGroupName = entry.getValue();
+        TRegionReplicaSet regionReplicaSet =
+            schemaPartitionCache.getIfPresent(
+                new SchemaPartitionCacheKey(storageGroupName, seriesPartitionSlot));
         if (null == regionReplicaSet) {
           // if one device not find, then return cache miss.
           logger.debug("Failed to find schema partition");
           return null;
         }
-        String storageGroupName = deviceToStorageGroupMap.get(device);
         if (!schemaPartitionMap.containsKey(storageGroupName)) {
           schemaPartitionMap.put(storageGroupName, new HashMap<>());
         }
@@ -505,7 +637,7 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
           for (TTimePartitionSlot timePartitionSlot :
               dataPartitionQueryParam.getTimePartitionSlotList()) {
             DataPartitionCacheKey dataPartitionCacheKey =
-                new DataPartitionCacheKey(seriesPartitionSlot, timePartitionSlot);
+                new DataPartitionCacheKey(storageGroupName, seriesPartitionSlot, timePartitionSlot);
             List<TRegionReplicaSet> regionReplicaSets =
                 dataPartitionCache.getIfPresent(dataPartitionCacheKey);
             if (null == regionReplicaSets) {
@@ -522,71 +654,55 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
       return new DataPartition(dataPartitionMap, seriesSlotExecutorName, seriesPartitionSlotNum);
     }
 
-    /** update schemaPartitionCache by schemaPartition. */
-    public void updateSchemaPartitionCache(List<String> devices, SchemaPartition schemaPartition) {
-      Map<String, Map<TSeriesPartitionSlot, TRegionReplicaSet>> storageGroupPartitionMap =
-          schemaPartition.getSchemaPartitionMap();
-      Set<String> storageGroupNames = storageGroupPartitionMap.keySet();
-      for (String device : devices) {
-        if (!device.contains("*")) {
-          String storageGroup = null;
-          for (String storageGroupName : storageGroupNames) {
-            if (device.startsWith(storageGroupName + ".")) {
-              storageGroup = storageGroupName;
-              break;
-            }
-          }
-          if (null == storageGroup) {
-            logger.error(
-                "Failed to get the storage group of {} when update SchemaPartitionCache", device);
-            continue;
-          }
-          TSeriesPartitionSlot seriesPartitionSlot =
-              partitionExecutor.getSeriesPartitionSlot(device);
-          TRegionReplicaSet regionReplicaSet =
-              storageGroupPartitionMap.get(storageGroup).getOrDefault(seriesPartitionSlot, null);
-          if (null == regionReplicaSet) {
-            logger.error(
-                "Failed to get the regionReplicaSet of {} when update SchemaPartitionCache",
-                device);
-            continue;
-          }
-          schemaPartitionCache.put(device, regionReplicaSet);
+    /** update schemaPartitionCache by schemaPartitionMap. */
+    public void updateSchemaPartitionCache(
+        Map<String, Map<TSeriesPartitionSlot, TRegionReplicaSet>> schemaPartitionMap) {
+      for (Map.Entry<String, Map<TSeriesPartitionSlot, TRegionReplicaSet>> entry1 :
+          schemaPartitionMap.entrySet()) {
+        for (Map.Entry<TSeriesPartitionSlot, TRegionReplicaSet> entry2 :
+            entry1.getValue().entrySet()) {
+          schemaPartitionCache.put(
+              new SchemaPartitionCacheKey(entry1.getKey(), entry2.getKey()), entry2.getValue());
         }
       }
     }
 
-    /** update dataPartitionCache by dataPartition */
-    public void updateDataPartitionCache(DataPartition dataPartition) {
+    /** update dataPartitionCache by dataPartitionMap */
+    public void updateDataPartitionCache(
+        Map<String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
+            dataPartitionMap) {
       for (Map.Entry<
               String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
-          entry1 : dataPartition.getDataPartitionMap().entrySet()) {
+          entry1 : dataPartitionMap.entrySet()) {
         for (Map.Entry<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>
             entry2 : entry1.getValue().entrySet()) {
           TSeriesPartitionSlot seriesPartitionSlot = entry2.getKey();
           for (Map.Entry<TTimePartitionSlot, List<TRegionReplicaSet>> entry3 :
               entry2.getValue().entrySet()) {
             DataPartitionCacheKey dataPartitionCacheKey =
-                new DataPartitionCacheKey(seriesPartitionSlot, entry3.getKey());
+                new DataPartitionCacheKey(entry1.getKey(), seriesPartitionSlot, entry3.getKey());
             dataPartitionCache.put(dataPartitionCacheKey, entry3.getValue());
           }
         }
       }
     }
 
-    /** invalid schemaPartitionCache by device */
-    public void invalidSchemaPartitionCache(String device) {
+    /** invalid schemaPartitionCache by storage group and device */
+    public void invalidSchemaPartitionCache(String storageGroup, String device) {
       // TODO should be called in two situation: 1. redirect status 2. config node trigger
-      schemaPartitionCache.invalidate(device);
+      schemaPartitionCache.invalidate(
+          new SchemaPartitionCacheKey(
+              storageGroup, partitionExecutor.getSeriesPartitionSlot(device)));
     }
 
-    /** invalid dataPartitionCache by seriesPartitionSlot, timePartitionSlot */
+    /** invalid dataPartitionCache by storage group, seriesPartitionSlot, timePartitionSlot */
     public void invalidDataPartitionCache(
-        TSeriesPartitionSlot seriesPartitionSlot, TTimePartitionSlot timePartitionSlot) {
+        String storageGroup,
+        TSeriesPartitionSlot seriesPartitionSlot,
+        TTimePartitionSlot timePartitionSlot) {
       // TODO should be called in two situation: 1. redirect status 2. config node trigger
-      DataPartitionCacheKey dataPartitionCacheKey =
-          new DataPartitionCacheKey(seriesPartitionSlot, timePartitionSlot);
-      dataPartitionCache.invalidate(dataPartitionCacheKey);
+      dataPartitionCache.invalidate(
+          new DataPartitionCacheKey(storageGroup, seriesPartitionSlot, timePartitionSlot));
     }
 
     /** invalid schemaPartitionCache by device */
@@ -614,12 +730,44 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
     }
   }
 
-  private class DataPartitionCacheKey {
-    private TSeriesPartitionSlot seriesPartitionSlot;
-    private TTimePartitionSlot timePartitionSlot;
+  private static class SchemaPartitionCacheKey {
+    private final String storageGroup;
+    private final TSeriesPartitionSlot seriesPartitionSlot;
+
+    public SchemaPartitionCacheKey(String storageGroup, TSeriesPartitionSlot seriesPartitionSlot) {
+      this.storageGroup = storageGroup;
+      this.seriesPartitionSlot = seriesPartitionSlot;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      SchemaPartitionCacheKey that = (SchemaPartitionCacheKey) o;
+      return Objects.equals(storageGroup, that.storageGroup)
+          && Objects.equals(seriesPartitionSlot, that.seriesPartitionSlot);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(storageGroup, seriesPartitionSlot);
+    }
+  }
+
+  private static class DataPartitionCacheKey {
+    private final String storageGroup;
+    private final TSeriesPartitionSlot seriesPartitionSlot;
+    private final TTimePartitionSlot timePartitionSlot;
 
     public DataPartitionCacheKey(
-        TSeriesPartitionSlot seriesPartitionSlot, TTimePartitionSlot timePartitionSlot) {
+        String storageGroup,
+        TSeriesPartitionSlot seriesPartitionSlot,
+        TTimePartitionSlot timePartitionSlot) {
+      this.storageGroup = storageGroup;
       this.seriesPartitionSlot = seriesPartitionSlot;
       this.timePartitionSlot = timePartitionSlot;
     }
@@ -633,13 +781,14 @@ public class ClusterPartitionFetcher implements IPartitionFetcher {
         return false;
       }
       DataPartitionCacheKey that = (DataPartitionCacheKey) o;
-      return Objects.equals(seriesPartitionSlot, that.seriesPartitionSlot)
+      return Objects.equals(storageGroup, that.storageGroup)
+          && Objects.equals(seriesPartitionSlot, that.seriesPartitionSlot)
           && Objects.equals(timePartitionSlot, that.timePartitionSlot);
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(seriesPartitionSlot, timePartitionSlot);
+      return Objects.hash(storageGroup, seriesPartitionSlot, timePartitionSlot);
     }
   }
 }
@@ -19,6 +19,7 @@
 package org.apache.iotdb.db.mpp.plan.execution;
 
 import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
 import org.apache.iotdb.commons.client.IClientManager;
 import org.apache.iotdb.commons.client.sync.SyncDataNodeInternalServiceClient;
 import org.apache.iotdb.db.conf.IoTDBConfig;
@@ -31,6 +32,7 @@ import org.apache.iotdb.db.mpp.execution.datatransfer.DataBlockService;
 import org.apache.iotdb.db.mpp.execution.datatransfer.ISourceHandle;
 import org.apache.iotdb.db.mpp.plan.analyze.Analysis;
 import org.apache.iotdb.db.mpp.plan.analyze.Analyzer;
+import org.apache.iotdb.db.mpp.plan.analyze.ClusterPartitionFetcher;
 import org.apache.iotdb.db.mpp.plan.analyze.IPartitionFetcher;
 import org.apache.iotdb.db.mpp.plan.analyze.ISchemaFetcher;
 import org.apache.iotdb.db.mpp.plan.analyze.QueryType;
@@ -342,6 +344,23 @@ public class QueryExecution implements IQueryExecution {
     }
   }
 
+  /**
+   * Recommend the client to send the following insertions of the devices to the leaders of their
+   * DataRegions. Only the insertion RPCs of Session consume the recommendation, so it is not
+   * attached by {@link #getStatus()}, which also serves the SQL statements.
+   *
+   * @param status the status of the successful insertion
+   */
+  public TSStatus recommendWriteEndPoints(TSStatus status) {
+    if (context.getQueryType() != QueryType.WRITE || !config.isClusterMode()) {
+      return status;
+    }
+    return new WriteEndPointRecommender(
+            ClusterPartitionFetcher.getInstance()::getRegionLeader,
+            new TEndPoint(config.getRpcAddress(), config.getRpcPort()))
+        .recommend(analysis.getStatement(), analysis.getDataPartitionInfo(), status);
+  }
+
   private void initResultHandle() {
     if (this.resultHandle == null) {
       this.resultHandle =
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.plan.execution;
+
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
+import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.common.rpc.thrift.TTimePartitionSlot;
+import org.apache.iotdb.commons.partition.DataPartition;
+import org.apache.iotdb.commons.path.PartialPath;
+import org.apache.iotdb.db.mpp.plan.statement.Statement;
+import org.apache.iotdb.db.mpp.plan.statement.crud.InsertBaseStatement;
+import org.apache.iotdb.db.mpp.plan.statement.crud.InsertMultiTabletsStatement;
+import org.apache.iotdb.db.mpp.plan.statement.crud.InsertRowStatement;
+import org.apache.iotdb.db.mpp.plan.statement.crud.InsertRowsOfOneDeviceStatement;
+import org.apache.iotdb.db.mpp.plan.statement.crud.InsertRowsStatement;
+import org.apache.iotdb.db.mpp.plan.statement.crud.InsertTabletStatement;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.TSStatusCode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * WriteEndPointRecommender recommends the client to send the following insertions of the devices
+ * to the DataNodes leading their DataRegions, so that the data need not be forwarded by this node
+ * any more. The client caches the recommendation by device when its leader cache is enabled.
+ *
+ * <p>The status code is kept SUCCESS_STATUS. Single-device insertions carry the recommendation as
+ * redirectNode, and multi-device insertions carry one sub status per device in the order of the
+ * request.
+ */
+public class WriteEndPointRecommender {
+
+  private static final Logger logger = LoggerFactory.getLogger(WriteEndPointRecommender.class);
+
+  private final Function<TRegionReplicaSet, TDataNodeLocation> leaderLookup;
+  private final TEndPoint localEndPoint;
+
+  /**
+   * @param leaderLookup get the leader of a Region, or null if it is unknown
+   * @param localEndPoint the client endpoint of this DataNode, which is never recommended
+   */
+  public WriteEndPointRecommender(
+      Function<TRegionReplicaSet, TDataNodeLocation> leaderLookup, TEndPoint localEndPoint) {
+    this.leaderLookup = leaderLookup;
+    this.localEndPoint = localEndPoint;
+  }
+
+  /**
+   * Attach the recommended endpoints to the status of a successful insertion
+   *
+   * @return the status with the recommendation, or the status itself if nothing is recommended
+   */
+  public TSStatus recommend(Statement statement, DataPartition dataPartition, TSStatus status) {
+    if (dataPartition == null || status.getCode() != TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
+      return status;
+    }
+    if (statement instanceof InsertTabletStatement
+        || statement instanceof InsertRowStatement
+        || statement instanceof InsertRowsOfOneDeviceStatement) {
+      TEndPoint endPoint =
+          getWriteEndPoint(
+              dataPartition,
+              ((InsertBaseStatement) statement).getDevicePath(),
+              getTimePartitionSlots(statement));
+      if (endPoint != null) {
+        status.setRedirectNode(endPoint);
+      }
+    } else if (statement instanceof InsertMultiTabletsStatement
+        || statement instanceof InsertRowsStatement) {
+      List<? extends InsertBaseStatement> subStatements =
+          statement instanceof InsertMultiTabletsStatement
+              ? ((InsertMultiTabletsStatement) statement).getInsertTabletStatementList()
+              : ((InsertRowsStatement) statement).getInsertRowStatementList();
+      List<TSStatus> subStatus = new ArrayList<>(subStatements.size());
+      boolean recommended = false;
+      for (InsertBaseStatement subStatement : subStatements) {
+        TSStatus deviceStatus = RpcUtils.getStatus(TSStatusCode.SUCCESS_STATUS);
+        TEndPoint endPoint =
+            getWriteEndPoint(
+                dataPartition, subStatement.getDevicePath(), getTimePartitionSlots(subStatement));
+        if (endPoint != null) {
+          deviceStatus.setRedirectNode(endPoint);
+          recommended = true;
+        }
+        subStatus.add(deviceStatus);
+      }
+      if (recommended) {
+        status.setSubStatus(subStatus);
+      }
+    }
+    return status;
+  }
+
+  private List<TTimePartitionSlot> getTimePartitionSlots(Statement statement) {
+    if (statement instanceof InsertTabletStatement) {
+      return ((InsertTabletStatement) statement).getTimePartitionSlots();
+    } else if (statement instanceof InsertRowStatement) {
+      return ((InsertRowStatement) statement).getTimePartitionSlots();
+    } else {
+      return ((InsertRowsOfOneDeviceStatement) statement).getTimePartitionSlots();
+    }
+  }
+
+  /**
+   * @return the client endpoint of the leader of the DataRegions the device is written to, or null
+   *     if it is this node, unknown or the device is written to more than one leader
+   */
+  private TEndPoint getWriteEndPoint(
+      DataPartition dataPartition, PartialPath devicePath, List<TTimePartitionSlot> slots) {
+    TEndPoint endPoint = null;
+    try {
+      for (TTimePartitionSlot slot : slots) {
+        TRegionReplicaSet regionReplicaSet =
+            dataPartition.getDataRegionReplicaSetForWriting(devicePath.getFullPath(), slot);
+        TDataNodeLocation leader = leaderLookup.apply(regionReplicaSet);
+        if (leader == null) {
+          return null;
+        }
+        if (endPoint == null) {
+          endPoint = leader.getExternalEndPoint();
+        } else if (!endPoint.equals(leader.getExternalEndPoint())) {
+          return null;
+        }
+      }
+    } catch (RuntimeException e) {
+      // the recommendation is only an optimization, the insertion has succeeded anyway
+      logger.debug("Cannot find the leader to write {}", devicePath, e);
+      return null;
+    }
+    return localEndPoint.equals(endPoint) ? null : endPoint;
+  }
+}
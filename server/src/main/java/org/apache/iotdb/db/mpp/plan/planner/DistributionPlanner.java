@@ -248,7 +248,8 @@ public class DistributionPlanner {
                     new AggregationDescriptor(
                         descriptor.getAggregationType(),
                         AggregationStep.PARTIAL,
-                        descriptor.getInputExpressions()));
+                        descriptor.getInputExpressions(),
+                        descriptor.getInputAttributes()));
               });
 
       List<AggregationDescriptor> rootAggDescriptorList = new ArrayList<>();
@@ -259,7 +260,8 @@ public class DistributionPlanner {
                     new AggregationDescriptor(
                         descriptor.getAggregationType(),
                         AggregationStep.FINAL,
-                        descriptor.getInputExpressions()));
+                        descriptor.getInputExpressions(),
+                        descriptor.getInputAttributes()));
               });
 
       AggregationNode aggregationNode =
@@ -378,6 +378,7 @@ public class LocalExecutionPlanner {
                           AccumulatorFactory.createAccumulator(
                               o.getAggregationType(),
                               node.getSeriesPath().getSeriesType(),
+                              o.getInputAttributes(),
                               ascending),
                           o.getStep())));
       SeriesAggregateScanOperator aggregateScanOperator =
@@ -581,6 +582,7 @@ public class LocalExecutionPlanner {
                         .getTypeProvider()
                         // get the type of first inputExpression
                         .getType(descriptor.getInputExpressions().get(0).toString()),
+                    descriptor.getInputAttributes(),
                     ascending),
                 descriptor.getStep(),
                 inputLocationList));
@@ -157,7 +157,10 @@ public class LogicalPlanBuilder {
                 ((FunctionExpression) sourceExpression).getFunctionName().toUpperCase());
         AggregationDescriptor aggregationDescriptor =
             new AggregationDescriptor(
-                aggregationFunction, curStep, sourceExpression.getExpressions());
+                aggregationFunction,
+                curStep,
+                sourceExpression.getExpressions(),
+                ((FunctionExpression) sourceExpression).getFunctionAttributes());
         if (curStep.isOutputPartial()) {
           updateTypeProviderByPartialAggregation(aggregationDescriptor, typeProvider);
         }
@@ -354,7 +357,8 @@ public class LogicalPlanBuilder {
           new AggregationDescriptor(
               aggregationFunction,
               curStep,
-              new ArrayList<>(groupByLevelExpressions.get(groupedExpression))));
+              new ArrayList<>(groupByLevelExpressions.get(groupedExpression)),
+              ((FunctionExpression) groupedExpression).getFunctionAttributes()));
     }
     return new GroupByLevelNode(
         context.getQueryId().genPlanNodeId(),
@@ -405,7 +409,10 @@ public class LogicalPlanBuilder {
                   AggregationType.valueOf(
                       ((FunctionExpression) expression).getFunctionName().toUpperCase());
               return new AggregationDescriptor(
-                  aggregationFunction, curStep, expression.getExpressions());
+                  aggregationFunction,
+                  curStep,
+                  expression.getExpressions(),
+                  ((FunctionExpression) expression).getFunctionAttributes());
             })
         .collect(Collectors.toList());
   }
@@ -18,10 +18,16 @@
  */
 package org.apache.iotdb.db.mpp.plan.planner;
 
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
+import org.apache.iotdb.common.rpc.thrift.TEndPoint;
 import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
+import org.apache.iotdb.consensus.common.ReadConsistencyLevel;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.mpp.common.MPPQueryContext;
 import org.apache.iotdb.db.mpp.common.PlanFragmentId;
 import org.apache.iotdb.db.mpp.plan.analyze.Analysis;
+import org.apache.iotdb.db.mpp.plan.analyze.ClusterPartitionFetcher;
 import org.apache.iotdb.db.mpp.plan.planner.plan.FragmentInstance;
 import org.apache.iotdb.db.mpp.plan.planner.plan.PlanFragment;
 import org.apache.iotdb.db.mpp.plan.planner.plan.SubPlan;
@@ -99,11 +105,39 @@ public class SimpleFragmentParallelPlanner implements IFragmentParallelPlaner {
     // redirected
     // to another host when scheduling
     fragmentInstance.setDataRegionAndHost(regionReplicaSet);
+    fragmentInstance.setHostDataNode(selectTargetDataNode(fragment.getId(), regionReplicaSet));
     fragmentInstance.getFragment().setTypeProvider(analysis.getTypeProvider());
     instanceMap.putIfAbsent(fragment.getId(), fragmentInstance);
     fragmentInstanceList.add(fragmentInstance);
   }
 
+  /**
+   * The query is sent to the leader of the region, which serves it without asking others, unless
+   * the read consistency level is BOUNDED_STALENESS. Then the local replica is preferred to save a
+   * hop, otherwise the fragments are spread over the replicas.
+   */
+  private TDataNodeLocation selectTargetDataNode(
+      PlanFragmentId fragmentId, TRegionReplicaSet regionReplicaSet) {
+    List<TDataNodeLocation> dataNodeLocations = regionReplicaSet.getDataNodeLocations();
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    if (dataNodeLocations.size() == 1 || !config.isClusterMode()) {
+      return dataNodeLocations.get(0);
+    }
+    if (config.getReadConsistencyLevel() != ReadConsistencyLevel.BOUNDED_STALENESS) {
+      TDataNodeLocation leader =
+          ClusterPartitionFetcher.getInstance().getRegionLeader(regionReplicaSet);
+      // a follower serves the query correctly too, after asking the leader for the read index
+      return leader == null ? dataNodeLocations.get(0) : leader;
+    }
+    TEndPoint localEndPoint = new TEndPoint(config.getInternalIp(), config.getInternalPort());
+    for (TDataNodeLocation dataNodeLocation : dataNodeLocations) {
+      if (localEndPoint.equals(dataNodeLocation.getInternalEndPoint())) {
+        return dataNodeLocation;
+      }
+    }
+    return dataNodeLocations.get(Math.floorMod(fragmentId.hashCode(), dataNodeLocations.size()));
+  }
+
   private void calculateNodeTopologyBetweenInstance() {
     for (FragmentInstance instance : fragmentInstanceList) {
       PlanNode rootNode = instance.getFragment().getRoot();
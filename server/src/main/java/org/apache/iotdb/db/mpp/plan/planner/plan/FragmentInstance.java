@@ -183,4 +183,8 @@ public class FragmentInstance implements IConsensusRequest {
   public TDataNodeLocation getHostDataNode() {
     return hostDataNode;
   }
+
+  public void setHostDataNode(TDataNodeLocation hostDataNode) {
+    this.hostDataNode = hostDataNode;
+  }
 }
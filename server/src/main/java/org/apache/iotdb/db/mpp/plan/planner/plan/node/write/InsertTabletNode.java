@@ -396,9 +396,7 @@ public class InsertTabletNode extends InsertNode implements WALEntryValue {
 
   private void writeTimes(ByteBuffer buffer) {
     buffer.putInt(rowCount);
-    for (long time : times) {
-      buffer.putLong(time);
-    }
+    ReadWriteIOUtils.write(times, times.length, buffer);
   }
 
   /** Serialize bitmaps, ignoring failed time series */
@@ -435,28 +433,16 @@ public class InsertTabletNode extends InsertNode implements WALEntryValue {
   private void serializeColumn(TSDataType dataType, Object column, ByteBuffer buffer) {
     switch (dataType) {
       case INT32:
-        int[] intValues = (int[]) column;
-        for (int j = 0; j < rowCount; j++) {
-          buffer.putInt(intValues[j]);
-        }
+        ReadWriteIOUtils.write((int[]) column, rowCount, buffer);
         break;
       case INT64:
-        long[] longValues = (long[]) column;
-        for (int j = 0; j < rowCount; j++) {
-          buffer.putLong(longValues[j]);
-        }
+        ReadWriteIOUtils.write((long[]) column, rowCount, buffer);
         break;
       case FLOAT:
-        float[] floatValues = (float[]) column;
-        for (int j = 0; j < rowCount; j++) {
-          buffer.putFloat(floatValues[j]);
-        }
+        ReadWriteIOUtils.write((float[]) column, rowCount, buffer);
         break;
       case DOUBLE:
-        double[] doubleValues = (double[]) column;
-        for (int j = 0; j < rowCount; j++) {
-          buffer.putDouble(doubleValues[j]);
-        }
+        ReadWriteIOUtils.write((double[]) column, rowCount, buffer);
         break;
       case BOOLEAN:
         boolean[] boolValues = (boolean[]) column;
@@ -512,7 +498,6 @@ public class InsertTabletNode extends InsertNode implements WALEntryValue {
     }
 
     rowCount = buffer.getInt();
-    times = new long[rowCount];
     times = QueryDataSetUtils.readTimesFromBuffer(buffer, rowCount);
 
     boolean hasBitMaps = BytesUtils.byteToBool(buffer.get());
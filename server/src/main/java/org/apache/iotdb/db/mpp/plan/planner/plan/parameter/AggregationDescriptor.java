@@ -25,7 +25,10 @@ import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public class AggregationDescriptor {
@@ -44,13 +47,28 @@ public class AggregationDescriptor {
    */
   private final List<Expression> inputExpressions;
 
+  /**
+   * Attributes of aggregation function, e.g. 'percentile' of approx_percentile. The insertion order
+   * is kept so that the output column names are the same as the ones in the query.
+   */
+  private final Map<String, String> inputAttributes;
+
   private String parametersString;
 
   public AggregationDescriptor(
       AggregationType aggregationType, AggregationStep step, List<Expression> inputExpressions) {
+    this(aggregationType, step, inputExpressions, Collections.emptyMap());
+  }
+
+  public AggregationDescriptor(
+      AggregationType aggregationType,
+      AggregationStep step,
+      List<Expression> inputExpressions,
+      Map<String, String> inputAttributes) {
     this.aggregationType = aggregationType;
     this.step = step;
     this.inputExpressions = inputExpressions;
+    this.inputAttributes = inputAttributes;
   }
 
   public List<String> getOutputColumnNames() {
@@ -88,9 +106,9 @@ public class AggregationDescriptor {
    *
    * <p>Example:
    *
-   * <p>Full column name -> udf(root.sg.d.s1, sin(root.sg.d.s1))
+   * <p>Full column name -> approx_percentile(root.sg.d.s1, "percentile"="0.9")
    *
-   * <p>The parameter part -> root.sg.d.s1, sin(root.sg.d.s1)
+   * <p>The parameter part -> root.sg.d.s1, "percentile"="0.9"
    */
   public String getParametersString() {
     if (parametersString == null) {
@@ -101,6 +119,17 @@ public class AggregationDescriptor {
           builder.append(", ").append(inputExpressions.get(i).toString());
         }
       }
+      for (Map.Entry<String, String> entry : inputAttributes.entrySet()) {
+        if (builder.length() > 0) {
+          builder.append(", ");
+        }
+        builder
+            .append("\"")
+            .append(entry.getKey())
+            .append("\"=\"")
+            .append(entry.getValue())
+            .append("\"");
+      }
       parametersString = builder.toString();
     }
     return parametersString;
@@ -110,6 +139,10 @@ public class AggregationDescriptor {
     return inputExpressions;
   }
 
+  public Map<String, String> getInputAttributes() {
+    return inputAttributes;
+  }
+
   public AggregationType getAggregationType() {
     return aggregationType;
   }
@@ -129,6 +162,11 @@ public class AggregationDescriptor {
     for (Expression expression : inputExpressions) {
       Expression.serialize(expression, byteBuffer);
     }
+    ReadWriteIOUtils.write(inputAttributes.size(), byteBuffer);
+    for (Map.Entry<String, String> entry : inputAttributes.entrySet()) {
+      ReadWriteIOUtils.write(entry.getKey(), byteBuffer);
+      ReadWriteIOUtils.write(entry.getValue(), byteBuffer);
+    }
   }
 
   public static AggregationDescriptor deserialize(ByteBuffer byteBuffer) {
@@ -141,7 +179,14 @@ public class AggregationDescriptor {
       inputExpressions.add(Expression.deserialize(byteBuffer));
       inputExpressionsSize--;
     }
-    return new AggregationDescriptor(aggregationType, step, inputExpressions);
+    int inputAttributesSize = ReadWriteIOUtils.readInt(byteBuffer);
+    Map<String, String> inputAttributes = new LinkedHashMap<>();
+    while (inputAttributesSize > 0) {
+      inputAttributes.put(
+          ReadWriteIOUtils.readString(byteBuffer), ReadWriteIOUtils.readString(byteBuffer));
+      inputAttributesSize--;
+    }
+    return new AggregationDescriptor(aggregationType, step, inputExpressions, inputAttributes);
   }
 
   @Override
@@ -155,11 +200,12 @@ public class AggregationDescriptor {
     AggregationDescriptor that = (AggregationDescriptor) o;
     return aggregationType == that.aggregationType
         && step == that.step
-        && Objects.equals(inputExpressions, that.inputExpressions);
+        && Objects.equals(inputExpressions, that.inputExpressions)
+        && Objects.equals(inputAttributes, that.inputAttributes);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(aggregationType, step, inputExpressions);
+    return Objects.hash(aggregationType, step, inputExpressions, inputAttributes);
   }
 }
@@ -24,6 +24,7 @@ import org.apache.iotdb.common.rpc.thrift.TEndPoint;
 import org.apache.iotdb.commons.client.IClientManager;
 import org.apache.iotdb.commons.client.sync.SyncDataNodeInternalServiceClient;
 import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
 import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.consensus.ConsensusImpl;
@@ -169,8 +170,16 @@ public class FragmentInstanceDispatcherImpl implements IFragInstanceDispatcher {
             instance.getRegionReplicaSet().getRegionId());
     switch (instance.getType()) {
       case READ:
-        FragmentInstanceInfo info =
-            (FragmentInstanceInfo) ConsensusImpl.getInstance().read(groupId, instance).getDataset();
+        ConsensusReadResponse readResponse =
+            ConsensusImpl.getInstance()
+                .read(
+                    groupId,
+                    instance,
+                    IoTDBDescriptor.getInstance().getConfig().getReadConsistencyLevel());
+        if (readResponse.getDataset() == null) {
+          throw new FragmentInstanceDispatchException(readResponse.getException());
+        }
+        FragmentInstanceInfo info = (FragmentInstanceInfo) readResponse.getDataset();
         return !info.getState().isFailed();
       case WRITE:
         PlanNode planNode = instance.getFragment().getRoot();
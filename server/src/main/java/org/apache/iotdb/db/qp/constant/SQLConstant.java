@@ -72,6 +72,9 @@ public class SQLConstant {
   public static final String AVG = "avg";
   public static final String SUM = "sum";
 
+  public static final String APPROX_COUNT_DISTINCT = "approx_count_distinct";
+  public static final String APPROX_PERCENTILE = "approx_percentile";
+
   public static final String ALL = "all";
 
   private static final Set<String> NATIVE_FUNCTION_NAMES =
@@ -86,7 +89,9 @@ public class SQLConstant {
               LAST_VALUE,
               COUNT,
               SUM,
-              AVG));
+              AVG,
+              APPROX_COUNT_DISTINCT,
+              APPROX_PERCENTILE));
 
   public static final int TOK_WHERE = 23;
   public static final int TOK_INSERT = 24;
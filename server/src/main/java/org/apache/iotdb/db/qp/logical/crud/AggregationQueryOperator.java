@@ -83,9 +83,20 @@ public class AggregationQueryOperator extends QueryOperator {
         throw new LogicalOperatorException(
             "The argument of the aggregation function must be a time series.");
       }
+      if (expression instanceof FunctionExpression
+          && isSketchAggregation(((FunctionExpression) expression).getFunctionName())) {
+        throw new LogicalOperatorException(
+            "Aggregate functions [APPROX_COUNT_DISTINCT, APPROX_PERCENTILE] are only supported in MPP mode.");
+      }
     }
   }
 
+  private static boolean isSketchAggregation(String functionName) {
+    String lowerCaseName = functionName.toLowerCase();
+    return SQLConstant.APPROX_COUNT_DISTINCT.equals(lowerCaseName)
+        || SQLConstant.APPROX_PERCENTILE.equals(lowerCaseName);
+  }
+
   @Override
   public PhysicalPlan generatePhysicalPlan(PhysicalGenerator generator)
       throws QueryProcessException {
@@ -35,7 +35,9 @@ public enum AggregationType {
   MIN_TIME,
   MAX_VALUE,
   MIN_VALUE,
-  EXTREME;
+  EXTREME,
+  APPROX_COUNT_DISTINCT,
+  APPROX_PERCENTILE;
 
   /**
    * give an integer to return a data type.
@@ -65,6 +67,10 @@ public enum AggregationType {
         return MIN_VALUE;
       case 9:
         return EXTREME;
+      case 10:
+        return APPROX_COUNT_DISTINCT;
+      case 11:
+        return APPROX_PERCENTILE;
       default:
         throw new IllegalArgumentException("Invalid Aggregation Type: " + i);
     }
@@ -103,6 +109,12 @@ public enum AggregationType {
       case EXTREME:
         i = 9;
         break;
+      case APPROX_COUNT_DISTINCT:
+        i = 10;
+        break;
+      case APPROX_PERCENTILE:
+        i = 11;
+        break;
       default:
         throw new IllegalArgumentException("Invalid Aggregation Type: " + this.name());
     }
@@ -33,6 +33,7 @@ import org.apache.iotdb.db.query.expression.Expression;
 import org.apache.iotdb.db.query.expression.ExpressionType;
 import org.apache.iotdb.db.query.expression.leaf.TimeSeriesOperand;
 import org.apache.iotdb.db.query.udf.api.customizer.strategy.AccessStrategy;
+import org.apache.iotdb.db.query.udf.api.customizer.strategy.ColumnBatchAccessStrategy;
 import org.apache.iotdb.db.query.udf.core.executor.UDTFContext;
 import org.apache.iotdb.db.query.udf.core.executor.UDTFExecutor;
 import org.apache.iotdb.db.query.udf.core.executor.UDTFTypeInferrer;
@@ -43,6 +44,7 @@ import org.apache.iotdb.db.query.udf.core.layer.RawQueryInputLayer;
 import org.apache.iotdb.db.query.udf.core.layer.SingleInputColumnMultiReferenceIntermediateLayer;
 import org.apache.iotdb.db.query.udf.core.layer.SingleInputColumnSingleReferenceIntermediateLayer;
 import org.apache.iotdb.db.query.udf.core.transformer.Transformer;
+import org.apache.iotdb.db.query.udf.core.transformer.multi.UDFQueryColumnBatchTransformer;
 import org.apache.iotdb.db.query.udf.core.transformer.multi.UDFQueryRowTransformer;
 import org.apache.iotdb.db.query.udf.core.transformer.multi.UDFQueryRowWindowTransformer;
 import org.apache.iotdb.db.query.udf.core.transformer.multi.UDFQueryTransformer;
@@ -393,6 +395,11 @@ public class FunctionExpression extends Expression {
             udfInputIntermediateLayer.constructRowWindowReader(
                 accessStrategy, memoryAssigner.assign()),
             executor);
+      case COLUMN_BATCH:
+        return new UDFQueryColumnBatchTransformer(
+            udfInputIntermediateLayer.constructColumnBatchReader(
+                (ColumnBatchAccessStrategy) accessStrategy),
+            executor);
       default:
         throw new UnsupportedOperationException("Unsupported transformer access strategy");
     }
@@ -499,6 +506,11 @@ public class FunctionExpression extends Expression {
             udfInputIntermediateLayer.constructRowWindowReader(
                 accessStrategy, memoryAssigner.assign()),
             executor);
+      case COLUMN_BATCH:
+        return new UDFQueryColumnBatchTransformer(
+            udfInputIntermediateLayer.constructColumnBatchReader(
+                (ColumnBatchAccessStrategy) accessStrategy),
+            executor);
       default:
         throw new UnsupportedOperationException("Unsupported transformer access strategy");
     }
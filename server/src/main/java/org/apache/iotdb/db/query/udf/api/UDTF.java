@@ -25,9 +25,12 @@ import org.apache.iotdb.db.query.udf.api.collector.PointCollector;
 import org.apache.iotdb.db.query.udf.api.customizer.config.UDTFConfigurations;
 import org.apache.iotdb.db.query.udf.api.customizer.parameter.UDFParameterValidator;
 import org.apache.iotdb.db.query.udf.api.customizer.parameter.UDFParameters;
+import org.apache.iotdb.db.query.udf.api.customizer.strategy.ColumnBatchAccessStrategy;
 import org.apache.iotdb.db.query.udf.api.customizer.strategy.RowByRowAccessStrategy;
 import org.apache.iotdb.db.query.udf.api.customizer.strategy.SlidingSizeWindowAccessStrategy;
 import org.apache.iotdb.db.query.udf.api.customizer.strategy.SlidingTimeWindowAccessStrategy;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
 
 /**
  * User-defined Time-series Generating Function (UDTF)
@@ -41,8 +44,8 @@ import org.apache.iotdb.db.query.udf.api.customizer.strategy.SlidingTimeWindowAc
  *
  * <ul>
  *   <li>{@link UDTF#beforeStart(UDFParameters, UDTFConfigurations)}
- *   <li>{@link UDTF#transform(RowWindow, PointCollector)} or {@link UDTF#transform(Row,
- *       PointCollector)}
+ *   <li>{@link UDTF#transform(RowWindow, PointCollector)}, {@link UDTF#transform(Row,
+ *       PointCollector)} or {@link UDTF#transform(TimeColumn, Column[], PointCollector)}
  * </ul>
  *
  * In the life cycle of a UDTF instance, the calling sequence of each method is as follows:
@@ -108,8 +111,29 @@ public interface UDTF extends UDF {
   default void transform(RowWindow rowWindow, PointCollector collector) throws Exception {}
 
   /**
-   * This method will be called once after all {@link UDTF#transform(Row, PointCollector) calls or
-   * {@link UDTF#transform(RowWindow, PointCollector) calls have been executed. In a single UDF
+   * When the user specifies {@link ColumnBatchAccessStrategy} to access the original data in {@link
+   * UDTFConfigurations}, this method will be called to process the transformation. In a single UDF
+   * query, this method may be called multiple times.
+   *
+   * <p>Each call processes a batch of rows (aligned by time) in columns. The values should be read
+   * by the primitive getters of the columns, such as {@link Column#getDouble(int)}, after checking
+   * {@link Column#isNull(int)}. A row in the batch may have null values in some columns, but not in
+   * all of them.
+   *
+   * @param timeColumn the timestamps of the rows in ascending order
+   * @param valueColumns the values of the rows, one column for each input series
+   * @param collector used to collect output data points
+   * @throws Exception the user can throw errors if necessary
+   * @see ColumnBatchAccessStrategy
+   */
+  @SuppressWarnings("squid:S112")
+  default void transform(TimeColumn timeColumn, Column[] valueColumns, PointCollector collector)
+      throws Exception {}
+
+  /**
+   * This method will be called once after all {@link UDTF#transform(Row, PointCollector) calls,
+   * {@link UDTF#transform(RowWindow, PointCollector) calls or {@link UDTF#transform(TimeColumn,
+   * Column[], PointCollector)} calls have been executed. In a single UDF
    * query, this method will and will only be called once.
    *
    * @param collector used to collect output data points
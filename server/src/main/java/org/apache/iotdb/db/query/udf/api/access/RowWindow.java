@@ -62,6 +62,29 @@ public interface RowWindow {
    */
   RowIterator getRowIterator();
 
+  /**
+   * Returns an iterator used to access the rows which are in this window but not in the previous
+   * window. For the first window, all the rows in this window are returned.
+   *
+   * <p>Together with {@link #getExitedRowIterator()}, it could be used to maintain the state of a
+   * window incrementally, so that a row of overlapping windows is only processed when it enters
+   * and when it leaves the window, instead of once for every window containing it.
+   *
+   * @return an iterator used to access the rows entering this window
+   * @since 0.14.0
+   */
+  RowIterator getEnteredRowIterator();
+
+  /**
+   * Returns an iterator used to access the rows which are in the previous window but not in this
+   * window. For the first window, no row is returned.
+   *
+   * @return an iterator used to access the rows leaving the previous window
+   * @since 0.14.0
+   * @see #getEnteredRowIterator()
+   */
+  RowIterator getExitedRowIterator();
+
   /**
    * For different types of windows, the definition of the window start time is different.
    *
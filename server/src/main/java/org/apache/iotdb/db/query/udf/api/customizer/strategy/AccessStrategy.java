@@ -39,7 +39,10 @@ public interface AccessStrategy {
     SLIDING_TIME_WINDOW,
 
     /** @see SlidingSizeWindowAccessStrategy */
-    SLIDING_SIZE_WINDOW
+    SLIDING_SIZE_WINDOW,
+
+    /** @see ColumnBatchAccessStrategy */
+    COLUMN_BATCH
   }
 
   /**
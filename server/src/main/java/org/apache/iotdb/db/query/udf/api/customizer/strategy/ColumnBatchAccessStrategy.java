@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.udf.api.customizer.strategy;
+
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.query.udf.api.UDTF;
+import org.apache.iotdb.db.query.udf.api.collector.PointCollector;
+import org.apache.iotdb.db.query.udf.api.customizer.config.UDTFConfigurations;
+import org.apache.iotdb.db.query.udf.api.customizer.parameter.UDFParameters;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
+
+/**
+ * Used in {@link UDTF#beforeStart(UDFParameters, UDTFConfigurations)}.
+ * <p>
+ * When the access strategy of a UDTF is set to an instance of this class, the method {@link
+ * UDTF#transform(TimeColumn, Column[], PointCollector)} of the UDTF will be called to transform the
+ * original data. You need to override the method in your own UDTF class.
+ * <p>
+ * Each call of the method {@link UDTF#transform(TimeColumn, Column[], PointCollector)} processes a
+ * batch of at most {@code maxBatchSize} rows (aligned by time) of the original data in columns and
+ * can generate any number of data points. Compared with {@link RowByRowAccessStrategy}, the values
+ * are not boxed into rows one by one, so it is preferred by the UDTFs processing a large amount of
+ * data.
+ * <p>
+ * As with {@link RowByRowAccessStrategy}, a row may have null values in some columns, and the rows
+ * in which all the columns are null are skipped. So a batch may have fewer than {@code
+ * maxBatchSize} rows even if it is not the last one.
+ * <p>
+ * Sample code:
+ * <pre>{@code
+ * @Override
+ * public void beforeStart(UDFParameters parameters, UDTFConfigurations configurations) {
+ *   configurations
+ *       .setOutputDataType(TSDataType.DOUBLE)
+ *       .setAccessStrategy(new ColumnBatchAccessStrategy());
+ * }</pre>
+ *
+ * @see UDTF
+ * @see UDTFConfigurations
+ */
+public class ColumnBatchAccessStrategy implements AccessStrategy {
+
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+  private final int maxBatchSize;
+
+  public ColumnBatchAccessStrategy() {
+    this(DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  /** @param maxBatchSize the maximum number of rows in a batch */
+  public ColumnBatchAccessStrategy(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  @Override
+  public void check() throws QueryProcessException {
+    if (maxBatchSize <= 0) {
+      throw new QueryProcessException(
+          String.format("Parameter maxBatchSize(%d) should be positive.", maxBatchSize));
+    }
+  }
+
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  @Override
+  public AccessStrategyType getAccessStrategyType() {
+    return AccessStrategyType.COLUMN_BATCH;
+  }
+}
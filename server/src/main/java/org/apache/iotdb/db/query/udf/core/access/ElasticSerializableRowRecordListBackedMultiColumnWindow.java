@@ -36,6 +36,10 @@ public class ElasticSerializableRowRecordListBackedMultiColumnWindow implements
   private int endIndex;
   private int size;
 
+  // [previousBeginIndex, previousEndIndex) of the previous window
+  private int previousBeginIndex;
+  private int previousEndIndex;
+
   private long startTime;
   private long endTime;
 
@@ -81,6 +85,18 @@ public class ElasticSerializableRowRecordListBackedMultiColumnWindow implements
     return rowIterator;
   }
 
+  @Override
+  public RowIterator getEnteredRowIterator() {
+    return new ElasticSerializableRowRecordListBackedMultiColumnWindowIterator(
+        rowRecordList, Math.max(beginIndex, previousEndIndex), endIndex);
+  }
+
+  @Override
+  public RowIterator getExitedRowIterator() {
+    return new ElasticSerializableRowRecordListBackedMultiColumnWindowIterator(
+        rowRecordList, previousBeginIndex, Math.min(beginIndex, previousEndIndex));
+  }
+
   @Override
   public long windowStartTime() {
     return startTime;
@@ -92,6 +108,9 @@ public class ElasticSerializableRowRecordListBackedMultiColumnWindow implements
   }
 
   public void seek(int beginIndex, int endIndex, long startTime, long endTime) {
+    previousBeginIndex = this.beginIndex;
+    previousEndIndex = this.endIndex;
+
     this.beginIndex = beginIndex;
     this.endIndex = endIndex;
     size = endIndex - beginIndex;
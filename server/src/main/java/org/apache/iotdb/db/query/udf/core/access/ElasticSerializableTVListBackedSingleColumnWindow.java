@@ -32,6 +32,10 @@ public class ElasticSerializableTVListBackedSingleColumnWindow implements RowWin
   private int endIndex;
   private int size;
 
+  // [previousBeginIndex, previousEndIndex) of the previous window
+  private int previousBeginIndex;
+  private int previousEndIndex;
+
   private long startTime;
   private long endTime;
 
@@ -75,6 +79,18 @@ public class ElasticSerializableTVListBackedSingleColumnWindow implements RowWin
     return rowIterator;
   }
 
+  @Override
+  public RowIterator getEnteredRowIterator() {
+    return new ElasticSerializableTVListBackedSingleColumnWindowIterator(
+        tvList, Math.max(beginIndex, previousEndIndex), endIndex);
+  }
+
+  @Override
+  public RowIterator getExitedRowIterator() {
+    return new ElasticSerializableTVListBackedSingleColumnWindowIterator(
+        tvList, previousBeginIndex, Math.min(beginIndex, previousEndIndex));
+  }
+
   @Override
   public long windowStartTime() {
     return startTime;
@@ -86,6 +102,9 @@ public class ElasticSerializableTVListBackedSingleColumnWindow implements RowWin
   }
 
   public void seek(int beginIndex, int endIndex, long startTime, long endTime) {
+    previousBeginIndex = this.beginIndex;
+    previousEndIndex = this.endIndex;
+
     this.beginIndex = beginIndex;
     this.endIndex = endIndex;
     size = endIndex - beginIndex;
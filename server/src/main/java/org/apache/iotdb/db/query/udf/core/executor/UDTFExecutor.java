@@ -32,6 +32,8 @@ import org.apache.iotdb.db.query.udf.api.customizer.parameter.UDFParameters;
 import org.apache.iotdb.db.query.udf.datastructure.tv.ElasticSerializableTVList;
 import org.apache.iotdb.db.query.udf.service.UDFRegistrationService;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -128,6 +130,15 @@ public class UDTFExecutor {
     }
   }
 
+  public void execute(TimeColumn timeColumn, Column[] valueColumns)
+      throws QueryProcessException {
+    try {
+      udtf.transform(timeColumn, valueColumns, collector);
+    } catch (Exception e) {
+      onError("transform(TimeColumn, Column[], PointCollector)", e);
+    }
+  }
+
   public void terminate() throws QueryProcessException {
     try {
       udtf.terminate(collector);
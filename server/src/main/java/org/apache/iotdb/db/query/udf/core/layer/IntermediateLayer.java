@@ -22,11 +22,14 @@ package org.apache.iotdb.db.query.udf.core.layer;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.query.expression.Expression;
 import org.apache.iotdb.db.query.udf.api.customizer.strategy.AccessStrategy;
+import org.apache.iotdb.db.query.udf.api.customizer.strategy.ColumnBatchAccessStrategy;
 import org.apache.iotdb.db.query.udf.api.customizer.strategy.SlidingSizeWindowAccessStrategy;
 import org.apache.iotdb.db.query.udf.api.customizer.strategy.SlidingTimeWindowAccessStrategy;
+import org.apache.iotdb.db.query.udf.core.reader.LayerColumnBatchReader;
 import org.apache.iotdb.db.query.udf.core.reader.LayerPointReader;
 import org.apache.iotdb.db.query.udf.core.reader.LayerRowReader;
 import org.apache.iotdb.db.query.udf.core.reader.LayerRowWindowReader;
+import org.apache.iotdb.db.query.udf.core.reader.RowColumnBatchReader;
 
 import java.io.IOException;
 
@@ -50,6 +53,11 @@ public abstract class IntermediateLayer {
 
   public abstract LayerRowReader constructRowReader();
 
+  public final LayerColumnBatchReader constructColumnBatchReader(
+      ColumnBatchAccessStrategy strategy) {
+    return new RowColumnBatchReader(constructRowReader(), strategy.getMaxBatchSize());
+  }
+
   public final LayerRowWindowReader constructRowWindowReader(
       AccessStrategy strategy, float memoryBudgetInMB) throws QueryProcessException, IOException {
     switch (strategy.getAccessStrategyType()) {
@@ -269,7 +269,8 @@ public class MultiInputColumnIntermediateLayer extends IntermediateLayer
       public void readyForNext() {
         hasCached = false;
 
-        rowRecordList.setEvictionUpperBound(beginIndex + 1);
+        // the rows of the current window are read again when they leave the window
+        rowRecordList.setEvictionUpperBound(beginIndex);
       }
 
       @Override
@@ -366,7 +367,8 @@ public class MultiInputColumnIntermediateLayer extends IntermediateLayer
         hasCached = false;
         nextWindowTimeBegin += slidingStep;
 
-        rowRecordList.setEvictionUpperBound(nextIndexBegin + 1);
+        // the rows of the current window are read again when they leave the window
+        rowRecordList.setEvictionUpperBound(nextIndexBegin);
       }
 
       @Override
@@ -265,7 +265,8 @@ public class SingleInputColumnMultiReferenceIntermediateLayer extends Intermedia
       public void readyForNext() {
         hasCached = false;
 
-        safetyPile.moveForwardTo(beginIndex + 1);
+        // the rows of the current window are read again when they leave the window
+        safetyPile.moveForwardTo(beginIndex);
         tvList.setEvictionUpperBound(safetyLine.getSafetyLine());
       }
 
@@ -362,7 +363,8 @@ public class SingleInputColumnMultiReferenceIntermediateLayer extends Intermedia
         hasCached = false;
         nextWindowTimeBegin += slidingStep;
 
-        safetyPile.moveForwardTo(nextIndexBegin + 1);
+        // the rows of the current window are read again when they leave the window
+        safetyPile.moveForwardTo(nextIndexBegin);
         tvList.setEvictionUpperBound(safetyLine.getSafetyLine());
       }
 
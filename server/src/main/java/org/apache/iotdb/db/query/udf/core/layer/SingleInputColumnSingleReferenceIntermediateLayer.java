@@ -173,7 +173,8 @@ public class SingleInputColumnSingleReferenceIntermediateLayer extends Intermedi
       public void readyForNext() {
         hasCached = false;
 
-        tvList.setEvictionUpperBound(beginIndex + 1);
+        // the rows of the current window are read again when they leave the window
+        tvList.setEvictionUpperBound(beginIndex);
       }
 
       @Override
@@ -269,7 +270,8 @@ public class SingleInputColumnSingleReferenceIntermediateLayer extends Intermedi
         hasCached = false;
         nextWindowTimeBegin += slidingStep;
 
-        tvList.setEvictionUpperBound(nextIndexBegin + 1);
+        // the rows of the current window are read again when they leave the window
+        tvList.setEvictionUpperBound(nextIndexBegin);
       }
 
       @Override
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.udf.core.reader;
+
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.query.udf.api.access.Row;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.ColumnBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumnBuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/** Collects the rows of a {@link LayerRowReader} into column batches. */
+public class RowColumnBatchReader implements LayerColumnBatchReader {
+
+  private final LayerRowReader layerRowReader;
+  private final TSDataType[] dataTypes;
+  private final int maxBatchSize;
+
+  private TimeColumn timeColumn;
+  private Column[] valueColumns;
+
+  public RowColumnBatchReader(LayerRowReader layerRowReader, int maxBatchSize) {
+    this.layerRowReader = layerRowReader;
+    this.dataTypes = layerRowReader.getDataTypes();
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  @Override
+  public boolean nextBatch() throws QueryProcessException, IOException {
+    TsBlockBuilder builder = new TsBlockBuilder(Arrays.asList(dataTypes));
+    TimeColumnBuilder timeColumnBuilder = builder.getTimeColumnBuilder();
+    ColumnBuilder[] valueColumnBuilders = builder.getValueColumnBuilders();
+
+    int rowCount = 0;
+    while (rowCount < maxBatchSize && layerRowReader.next()) {
+      // A null row will never trigger any UDF computing
+      if (!layerRowReader.isCurrentNull()) {
+        Row row = layerRowReader.currentRow();
+        timeColumnBuilder.writeLong(row.getTime());
+        for (int i = 0; i < dataTypes.length; ++i) {
+          writeValue(row, i, valueColumnBuilders[i]);
+        }
+        ++rowCount;
+      }
+      layerRowReader.readyForNext();
+    }
+    if (rowCount == 0) {
+      return false;
+    }
+
+    builder.declarePositions(rowCount);
+    TsBlock tsBlock = builder.build();
+    timeColumn = tsBlock.getTimeColumn();
+    valueColumns = new Column[dataTypes.length];
+    for (int i = 0; i < dataTypes.length; ++i) {
+      valueColumns[i] = tsBlock.getColumn(i);
+    }
+    return true;
+  }
+
+  private void writeValue(Row row, int index, ColumnBuilder builder) throws IOException {
+    if (row.isNull(index)) {
+      builder.appendNull();
+      return;
+    }
+    switch (dataTypes[index]) {
+      case INT32:
+        builder.writeInt(row.getInt(index));
+        break;
+      case INT64:
+        builder.writeLong(row.getLong(index));
+        break;
+      case FLOAT:
+        builder.writeFloat(row.getFloat(index));
+        break;
+      case DOUBLE:
+        builder.writeDouble(row.getDouble(index));
+        break;
+      case BOOLEAN:
+        builder.writeBoolean(row.getBoolean(index));
+        break;
+      case TEXT:
+        builder.writeBinary(row.getBinary(index));
+        break;
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", dataTypes[index]));
+    }
+  }
+
+  @Override
+  public TimeColumn currentTimeColumn() {
+    return timeColumn;
+  }
+
+  @Override
+  public Column[] currentValueColumns() {
+    return valueColumns;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.udf.core.reader;
+
+import org.apache.iotdb.db.mpp.execution.operator.Operator;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.ColumnBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumnBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Reads the columns of the TsBlocks returned by an {@link Operator} without copying them. */
+public class TsBlockColumnBatchReader implements LayerColumnBatchReader {
+
+  private final Operator operator;
+  private final int[] valueColumnIndexes;
+  private final int maxBatchSize;
+
+  private TsBlock tsBlock;
+  private int offset;
+
+  private TimeColumn timeColumn;
+  private Column[] valueColumns;
+
+  public TsBlockColumnBatchReader(Operator operator, int[] valueColumnIndexes, int maxBatchSize) {
+    this.operator = operator;
+    this.valueColumnIndexes = valueColumnIndexes;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  @Override
+  public boolean nextBatch() {
+    while (true) {
+      while (tsBlock == null || tsBlock.getPositionCount() <= offset) {
+        if (!operator.hasNext()) {
+          return false;
+        }
+        tsBlock = operator.next();
+        offset = 0;
+      }
+
+      TsBlock batch = tsBlock;
+      int length = Math.min(maxBatchSize, tsBlock.getPositionCount() - offset);
+      if (offset != 0 || length != tsBlock.getPositionCount()) {
+        batch = tsBlock.getRegion(offset, length);
+      }
+      offset += length;
+
+      timeColumn = batch.getTimeColumn();
+      valueColumns = batch.getColumns(valueColumnIndexes);
+      if (!mayHaveAllNullRows(valueColumns) || removeAllNullRows()) {
+        return true;
+      }
+    }
+  }
+
+  private static boolean mayHaveAllNullRows(Column[] columns) {
+    for (Column column : columns) {
+      if (!column.mayHaveNull()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The input TsBlocks contain the rows of the other columns too. Like the rows read from the
+   * intermediate layer, the rows in which all the value columns are null are skipped.
+   *
+   * @return false if all the rows of the batch are skipped
+   */
+  private boolean removeAllNullRows() {
+    int positionCount = timeColumn.getPositionCount();
+    boolean[] allNull = new boolean[positionCount];
+    int allNullCount = 0;
+    for (int i = 0; i < positionCount; ++i) {
+      allNull[i] = isAllNull(i);
+      if (allNull[i]) {
+        ++allNullCount;
+      }
+    }
+    if (allNullCount == 0) {
+      return true;
+    }
+    if (allNullCount == positionCount) {
+      return false;
+    }
+
+    List<TSDataType> dataTypes = new ArrayList<>(valueColumns.length);
+    for (Column column : valueColumns) {
+      dataTypes.add(column.getDataType());
+    }
+    TsBlockBuilder builder = new TsBlockBuilder(positionCount - allNullCount, dataTypes);
+    TimeColumnBuilder timeColumnBuilder = builder.getTimeColumnBuilder();
+    ColumnBuilder[] valueColumnBuilders = builder.getValueColumnBuilders();
+    for (int i = 0; i < positionCount; ++i) {
+      if (allNull[i]) {
+        continue;
+      }
+      timeColumnBuilder.writeLong(timeColumn.getLong(i));
+      for (int j = 0; j < valueColumns.length; ++j) {
+        if (valueColumns[j].isNull(i)) {
+          valueColumnBuilders[j].appendNull();
+        } else {
+          valueColumnBuilders[j].write(valueColumns[j], i);
+        }
+      }
+      builder.declarePosition();
+    }
+
+    TsBlock batch = builder.build();
+    timeColumn = batch.getTimeColumn();
+    for (int j = 0; j < valueColumns.length; ++j) {
+      valueColumns[j] = batch.getColumn(j);
+    }
+    return true;
+  }
+
+  private boolean isAllNull(int position) {
+    for (Column column : valueColumns) {
+      if (!column.isNull(position)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public TimeColumn currentTimeColumn() {
+    return timeColumn;
+  }
+
+  @Override
+  public Column[] currentValueColumns() {
+    return valueColumns;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.udf.core.transformer.multi;
+
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.query.udf.core.executor.UDTFExecutor;
+import org.apache.iotdb.db.query.udf.core.reader.LayerColumnBatchReader;
+
+import java.io.IOException;
+
+public class UDFQueryColumnBatchTransformer extends UDFQueryTransformer {
+
+  protected final LayerColumnBatchReader layerColumnBatchReader;
+
+  public UDFQueryColumnBatchTransformer(
+      LayerColumnBatchReader layerColumnBatchReader, UDTFExecutor executor) {
+    super(executor);
+    this.layerColumnBatchReader = layerColumnBatchReader;
+  }
+
+  @Override
+  protected boolean executeUDFOnce() throws IOException, QueryProcessException {
+    if (!layerColumnBatchReader.nextBatch()) {
+      return false;
+    }
+    executor.execute(
+        layerColumnBatchReader.currentTimeColumn(), layerColumnBatchReader.currentValueColumns());
+    return true;
+  }
+}
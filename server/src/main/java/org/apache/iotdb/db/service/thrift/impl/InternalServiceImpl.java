@@ -20,6 +20,7 @@
 package org.apache.iotdb.db.service.thrift.impl;
 
 import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupType;
 import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
 import org.apache.iotdb.common.rpc.thrift.TEndPoint;
 import org.apache.iotdb.common.rpc.thrift.THeartbeatReq;
@@ -38,8 +39,14 @@ import org.apache.iotdb.consensus.common.request.ByteBufferConsensusRequest;
 import org.apache.iotdb.consensus.common.response.ConsensusGenericResponse;
 import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
 import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.consensus.ConsensusImpl;
+import org.apache.iotdb.db.consensus.RegionLoadStatistics;
 import org.apache.iotdb.db.engine.StorageEngineV2;
+import org.apache.iotdb.db.engine.migration.RegionFileSource;
+import org.apache.iotdb.db.engine.migration.RegionPuller;
+import org.apache.iotdb.db.engine.snapshot.exception.DirectoryNotLegalException;
+import org.apache.iotdb.db.engine.storagegroup.DataRegion;
 import org.apache.iotdb.db.exception.DataRegionException;
 import org.apache.iotdb.db.exception.sql.SemanticException;
 import org.apache.iotdb.db.metadata.cache.DataNodeSchemaCache;
@@ -67,14 +74,22 @@ import org.apache.iotdb.mpp.rpc.thrift.TCancelResp;
 import org.apache.iotdb.mpp.rpc.thrift.TCreateDataRegionReq;
 import org.apache.iotdb.mpp.rpc.thrift.TCreateSchemaRegionReq;
 import org.apache.iotdb.mpp.rpc.thrift.TFetchFragmentInstanceStateReq;
+import org.apache.iotdb.mpp.rpc.thrift.TFetchRegionFileReq;
+import org.apache.iotdb.mpp.rpc.thrift.TFetchRegionFileResp;
 import org.apache.iotdb.mpp.rpc.thrift.TFragmentInstanceStateResp;
 import org.apache.iotdb.mpp.rpc.thrift.TInvalidateCacheReq;
 import org.apache.iotdb.mpp.rpc.thrift.TMigrateDataRegionReq;
 import org.apache.iotdb.mpp.rpc.thrift.TMigrateSchemaRegionReq;
+import org.apache.iotdb.mpp.rpc.thrift.TPullRegionReq;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionFilesResp;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionLeaderChangeReq;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionPeerReq;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionPullProgressResp;
 import org.apache.iotdb.mpp.rpc.thrift.TSchemaFetchRequest;
 import org.apache.iotdb.mpp.rpc.thrift.TSchemaFetchResponse;
 import org.apache.iotdb.mpp.rpc.thrift.TSendFragmentInstanceReq;
 import org.apache.iotdb.mpp.rpc.thrift.TSendFragmentInstanceResp;
+import org.apache.iotdb.mpp.rpc.thrift.TUpdatePartitionCacheReq;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.tsfile.exception.NotImplementedException;
 
@@ -82,6 +97,8 @@ import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -107,8 +124,15 @@ public class InternalServiceImpl implements InternalService.Iface {
       case READ:
         ConsensusReadResponse readResp =
             ConsensusImpl.getInstance()
-                .read(groupId, new ByteBufferConsensusRequest(req.fragmentInstance.body));
+                .read(
+                    groupId,
+                    new ByteBufferConsensusRequest(req.fragmentInstance.body),
+                    IoTDBDescriptor.getInstance().getConfig().getReadConsistencyLevel());
         FragmentInstanceInfo info = (FragmentInstanceInfo) readResp.getDataset();
+        if (info == null) {
+          LOGGER.error("Failed to read from group[{}]", groupId, readResp.getException());
+          return new TSendFragmentInstanceResp(false);
+        }
         return new TSendFragmentInstanceResp(!info.getState().isFailed());
       case WRITE:
         TSendFragmentInstanceResp response = new TSendFragmentInstanceResp();
@@ -244,7 +268,19 @@ public class InternalServiceImpl implements InternalService.Iface {
 
   @Override
   public TSStatus invalidatePartitionCache(TInvalidateCacheReq req) throws TException {
-    ClusterPartitionFetcher.getInstance().invalidAllCache();
+    if (req.isStorageGroup()) {
+      ClusterPartitionFetcher.getInstance()
+          .invalidStorageGroupCache(
+              req.getFullPath(), req.isSetPartitionVersion() ? req.getPartitionVersion() : -1);
+    } else {
+      ClusterPartitionFetcher.getInstance().invalidAllCache();
+    }
+    return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+  }
+
+  @Override
+  public TSStatus updatePartitionCache(TUpdatePartitionCacheReq req) throws TException {
+    ClusterPartitionFetcher.getInstance().updatePartitionCache(req);
     return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
   }
 
@@ -266,8 +302,171 @@ public class InternalServiceImpl implements InternalService.Iface {
 
   @Override
   public THeartbeatResp getHeartBeat(THeartbeatReq req) throws TException {
-    // TODO: Return load balancing messages
-    return new THeartbeatResp(req.getHeartbeatTimestamp());
+    THeartbeatResp resp = new THeartbeatResp(req.getHeartbeatTimestamp());
+    RegionLoadStatistics.getInstance().fillHeartbeatResp(req, resp, consensusImpl);
+    return resp;
+  }
+
+  @Override
+  public TSStatus changeRegionLeader(TRegionLeaderChangeReq req) throws TException {
+    ConsensusGroupId regionId =
+        ConsensusGroupId.Factory.createFromTConsensusGroupId(req.getRegionId());
+    TEndPoint newLeaderEndPoint =
+        new TEndPoint(
+            req.getNewLeaderNode().getConsensusEndPoint().getIp(),
+            req.getNewLeaderNode().getConsensusEndPoint().getPort());
+    ConsensusGenericResponse resp =
+        consensusImpl.transferLeader(regionId, new Peer(regionId, newLeaderEndPoint));
+    if (resp.isSuccess()) {
+      ClusterPartitionFetcher.getInstance()
+          .updateRegionLeader(req.getRegionId(), req.getNewLeaderNode().getDataNodeId());
+      return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+    }
+    TSStatus status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+    if (resp.getException() != null) {
+      status.setMessage(resp.getException().getMessage());
+    }
+    return status;
+  }
+
+  @Override
+  public TSStatus pullRegion(TPullRegionReq req) throws TException {
+    if (req.getRegionReplicaSet().getRegionId().getType() != TConsensusGroupType.DataRegion) {
+      TSStatus status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+      status.setMessage("Only DataRegion could be pulled");
+      return status;
+    }
+    RegionPuller.getInstance().submit(req);
+    return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+  }
+
+  @Override
+  public TRegionPullProgressResp getRegionPullProgress(TConsensusGroupId regionId)
+      throws TException {
+    RegionPuller.PullProgress progress =
+        RegionPuller.getInstance().getProgress(new DataRegionId(regionId.getId()));
+    if (progress == null) {
+      TSStatus status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+      status.setMessage(String.format("DataRegion %d is not being pulled", regionId.getId()));
+      return new TRegionPullProgressResp(status, RegionPuller.PullState.FAILED.name(), 0, 0);
+    }
+    TSStatus status = new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+    if (progress.getErrorMessage() != null) {
+      status.setMessage(progress.getErrorMessage());
+    }
+    TRegionPullProgressResp resp =
+        new TRegionPullProgressResp(
+            status,
+            progress.getState().name(),
+            progress.getTransferredBytes(),
+            progress.getTotalBytes());
+    resp.setConsensusIndex(progress.getConsensusIndex());
+    return resp;
+  }
+
+  @Override
+  public TSStatus cancelRegionPull(TConsensusGroupId regionId) throws TException {
+    try {
+      RegionPuller.getInstance().cancel(new DataRegionId(regionId.getId()));
+      return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+    } catch (IOException e) {
+      LOGGER.error("Failed to cancel pulling DataRegion {}", regionId.getId(), e);
+      TSStatus status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+      status.setMessage(e.getMessage());
+      return status;
+    }
+  }
+
+  @Override
+  public TRegionFilesResp listRegionFiles(TConsensusGroupId regionId) throws TException {
+    try {
+      return RegionFileSource.getInstance().listRegionFiles(new DataRegionId(regionId.getId()));
+    } catch (IOException | DirectoryNotLegalException e) {
+      LOGGER.error("Failed to list the files of DataRegion {}", regionId.getId(), e);
+      TSStatus status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+      status.setMessage(e.getMessage());
+      return new TRegionFilesResp(status);
+    }
+  }
+
+  @Override
+  public TFetchRegionFileResp fetchRegionFile(TFetchRegionFileReq req) throws TException {
+    try {
+      ByteBuffer data =
+          RegionFileSource.getInstance()
+              .readRegionFile(
+                  new DataRegionId(req.getRegionId().getId()),
+                  req.getFileName(),
+                  req.getOffset(),
+                  req.getLength());
+      TFetchRegionFileResp resp =
+          new TFetchRegionFileResp(new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode()));
+      resp.setData(data);
+      return resp;
+    } catch (IOException e) {
+      LOGGER.error("Failed to read file {} of a migrated region", req.getFileName(), e);
+      TSStatus status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+      status.setMessage(e.getMessage());
+      return new TFetchRegionFileResp(status);
+    }
+  }
+
+  @Override
+  public TSStatus releaseRegionFiles(TConsensusGroupId regionId) throws TException {
+    try {
+      RegionFileSource.getInstance().releaseRegionFiles(new DataRegionId(regionId.getId()));
+      return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+    } catch (IOException e) {
+      TSStatus status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+      status.setMessage(e.getMessage());
+      return status;
+    }
+  }
+
+  @Override
+  public TSStatus addRegionPeer(TRegionPeerReq req) throws TException {
+    ConsensusGroupId regionId =
+        ConsensusGroupId.Factory.createFromTConsensusGroupId(req.getRegionId());
+    Peer peer = new Peer(regionId, req.getDataNodeLocation().getConsensusEndPoint());
+    return convertConsensusResponse(
+        consensusImpl.addPeer(regionId, peer, req.isSetStartIndex() ? req.getStartIndex() : -1));
+  }
+
+  @Override
+  public TSStatus removeRegionPeer(TRegionPeerReq req) throws TException {
+    ConsensusGroupId regionId =
+        ConsensusGroupId.Factory.createFromTConsensusGroupId(req.getRegionId());
+    Peer peer = new Peer(regionId, req.getDataNodeLocation().getConsensusEndPoint());
+    TSStatus status = convertConsensusResponse(consensusImpl.removePeer(regionId, peer));
+    if (status.getCode() != TSStatusCode.SUCCESS_STATUS.getStatusCode()
+        || req.getDataNodeLocation().getDataNodeId()
+            != IoTDBDescriptor.getInstance().getConfig().getDataNodeId()) {
+      return status;
+    }
+
+    // this DataNode has left the group, drop its local replica
+    consensusImpl.removeConsensusGroup(regionId);
+    RegionLoadStatistics.getInstance().removeRegion(regionId);
+    if (regionId instanceof DataRegionId) {
+      DataRegion dataRegion = storageEngine.getDataRegion((DataRegionId) regionId);
+      if (dataRegion != null) {
+        dataRegion.syncDeleteDataFiles();
+        storageEngine.deleteDataRegion((DataRegionId) regionId);
+      }
+    }
+    LOGGER.info("Removed the local replica of {} after leaving its consensus group", regionId);
+    return status;
+  }
+
+  private TSStatus convertConsensusResponse(ConsensusGenericResponse resp) {
+    if (resp.isSuccess()) {
+      return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+    }
+    TSStatus status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+    if (resp.getException() != null) {
+      status.setMessage(resp.getException().getMessage());
+    }
+    return status;
   }
 
   @Override
@@ -279,6 +478,7 @@ public class InternalServiceImpl implements InternalService.Iface {
     ConsensusGroupId consensusGroupId =
         ConsensusGroupId.Factory.createFromTConsensusGroupId(tconsensusGroupId);
     deleteRegionNode.setConsensusGroupId(consensusGroupId);
+    RegionLoadStatistics.getInstance().removeRegion(consensusGroupId);
     deleteRegionNode.setPlanNodeId(planNodeId);
     PlanFragmentId planFragmentId = queryId.genPlanFragmentId();
     FragmentInstanceId fragmentInstanceId = planFragmentId.genFragmentInstanceId();
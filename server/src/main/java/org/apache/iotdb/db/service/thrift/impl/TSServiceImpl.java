@@ -32,6 +32,7 @@ import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.conf.OperationType;
 import org.apache.iotdb.db.engine.selectinto.InsertTabletPlansIterator;
+import org.apache.iotdb.db.engine.selectinto.InsertTabletPlansWriter;
 import org.apache.iotdb.db.exception.QueryInBatchStatementException;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
@@ -948,19 +949,31 @@ public class TSServiceImpl implements TSIEventHandler {
               selectIntoPlan.getFromPath(),
               selectIntoPlan.getIntoPaths(),
               selectIntoPlan.isIntoPathsAligned());
-      while (insertTabletPlansIterator.hasNext()) {
-        List<InsertTabletPlan> insertTabletPlans = insertTabletPlansIterator.next();
-        if (insertTabletPlans.isEmpty()) {
-          continue;
-        }
-        TSStatus executionStatus = insertTabletsInternally(insertTabletPlans, sessionId);
-        if (executionStatus.getCode() != TSStatusCode.SUCCESS_STATUS.getStatusCode()
-            && executionStatus.getCode() != TSStatusCode.NEED_REDIRECTION.getStatusCode()) {
-          return RpcUtils.getTSExecuteStatementResp(executionStatus).setQueryId(queryId);
+      // the results are inserted in background while the query goes on
+      InsertTabletPlansWriter insertTabletPlansWriter =
+          new InsertTabletPlansWriter(this::executeNonQueryPlan);
+      try {
+        while (insertTabletPlansIterator.hasNext()) {
+          List<InsertTabletPlan> insertTabletPlans = insertTabletPlansIterator.next();
+          if (insertTabletPlans.isEmpty()) {
+            continue;
+          }
+          for (InsertTabletPlan insertTabletPlan : insertTabletPlans) {
+            TSStatus authorityStatus = SESSION_MANAGER.checkAuthority(insertTabletPlan, sessionId);
+            if (authorityStatus != null) {
+              return RpcUtils.getTSExecuteStatementResp(authorityStatus).setQueryId(queryId);
+            }
+          }
+          if (!insertTabletPlansWriter.write(insertTabletPlans)) {
+            break;
+          }
         }
+      } finally {
+        insertTabletPlansWriter.close();
       }
 
-      return RpcUtils.getTSExecuteStatementResp(TSStatusCode.SUCCESS_STATUS).setQueryId(queryId);
+      return RpcUtils.getTSExecuteStatementResp(insertTabletPlansWriter.getStatus())
+          .setQueryId(queryId);
     } finally {
       SESSION_MANAGER.releaseQueryResourceNoExceptions(queryId);
       addOperationLatency(Operation.EXECUTE_SELECT_INTO, startTime);
@@ -971,23 +984,6 @@ public class TSServiceImpl implements TSIEventHandler {
     }
   }
 
-  private TSStatus insertTabletsInternally(
-      List<InsertTabletPlan> insertTabletPlans, long sessionId) {
-    InsertMultiTabletsPlan insertMultiTabletsPlan = new InsertMultiTabletsPlan();
-    for (int i = 0; i < insertTabletPlans.size(); i++) {
-      InsertTabletPlan insertTabletPlan = insertTabletPlans.get(i);
-      TSStatus status = SESSION_MANAGER.checkAuthority(insertTabletPlan, sessionId);
-
-      if (status != null) {
-        // not authorized
-        insertMultiTabletsPlan.getResults().put(i, status);
-      }
-    }
-    insertMultiTabletsPlan.setInsertTabletPlanList(insertTabletPlans);
-
-    return executeNonQueryPlan(insertMultiTabletsPlan);
-  }
-
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   @Override
   public TSFetchResultsResp fetchResults(TSFetchResultsReq req) {
@@ -33,6 +33,7 @@ public class SyncConstant {
   public static final String PIPE_LOG_NAME_SUFFIX = PIPE_LOG_NAME_SEPARATOR + "pipe.log";
   public static final String COMMIT_LOG_NAME = "commit.log";
   public static final Long DEFAULT_PIPE_LOG_SIZE_IN_BYTE = 10485760L;
+  public static final Long DEFAULT_PIPE_LOG_FORCE_SIZE_IN_BYTE = 1048576L;
 
   /** sender */
 
@@ -73,5 +74,7 @@ public class SyncConstant {
 
   public static final String RECEIVER_LOG_NAME = "receiverService.log";
   public static final String RECEIVER_MSG_LOG_NAME = "receiverMessage.log";
+  // the max number of pipe data the collector takes at a time
+  public static final int COLLECT_BATCH_SIZE = 64;
   public static final String IP_SEPARATOR = "\\.";
 }
@@ -24,28 +24,37 @@ import org.apache.iotdb.db.sync.conf.SyncConstant;
 import org.apache.iotdb.db.sync.conf.SyncPathUtil;
 import org.apache.iotdb.db.sync.pipedata.PipeData;
 import org.apache.iotdb.db.sync.pipedata.TsFilePipeData;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.zip.CRC32;
 
 public class BufferedPipeDataQueue implements PipeDataQueue {
   private static final Logger logger = LoggerFactory.getLogger(BufferedPipeDataQueue.class);
 
+  /** commit log: magic, start number of the first pipe log, offset in it, commit serial number */
+  private static final long COMMIT_CHECKPOINT_MAGIC = 0x434b50545049504cL;
+
+  private static final int COMMIT_CHECKPOINT_SIZE = 4 * Long.BYTES;
+
   private final String pipeLogDir;
 
   /** input */
@@ -54,8 +63,10 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
   private BlockingDeque<PipeData> inputDeque;
 
   private BlockingDeque<Long> pipeLogStartNumber;
-  private DataOutputStream outputStream;
-  private long currentPipeLogSize;
+  private final Map<Long, PipeLogIndex> pipeLogIndexes;
+  private MappedPipeLog writingPipeLog;
+  private final PublicBAOS serializeBuffer;
+  private final DataOutputStream serializeStream;
 
   /** output */
   private final Object waitLock = new Object();
@@ -64,18 +75,23 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
 
   private long pullSerialNumber;
   private long commitSerialNumber;
-  private DataOutputStream commitLogWriter;
-  private long currentCommitLogSize;
+  private RandomAccessFile commitLogWriter;
+  /** checkpoint of the pipe log to read from at recovery, -1 means reading from the beginning */
+  private long recoverPipeLogOffset;
 
   public BufferedPipeDataQueue(String pipeLogDir) {
     this.pipeLogDir = pipeLogDir;
 
     this.lastMaxSerialNumber = 0;
     this.pipeLogStartNumber = new LinkedBlockingDeque<>();
+    this.pipeLogIndexes = new ConcurrentHashMap<>();
+    this.serializeBuffer = new PublicBAOS();
+    this.serializeStream = new DataOutputStream(serializeBuffer);
 
     this.outputDeque = new LinkedBlockingDeque<>();
     this.pullSerialNumber = Long.MIN_VALUE;
     this.commitSerialNumber = Long.MIN_VALUE;
+    this.recoverPipeLogOffset = -1;
 
     recover();
   }
@@ -87,9 +103,9 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
     }
 
     recoverPipeLogStartNumber();
-    recoverLastMaxSerialNumber();
     recoverCommitSerialNumber();
     recoverOutputDeque();
+    recoverLastMaxSerialNumber();
   }
 
   private void recoverPipeLogStartNumber() {
@@ -108,27 +124,6 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
     }
   }
 
-  private void recoverLastMaxSerialNumber() {
-    if (pipeLogStartNumber.isEmpty()) {
-      return;
-    }
-
-    File writingPipeLog =
-        new File(pipeLogDir, SyncPathUtil.getPipeLogName(pipeLogStartNumber.peekLast()));
-    try {
-      List<PipeData> recoverPipeData = parsePipeLog(writingPipeLog);
-      int recoverPipeDataSize = recoverPipeData.size();
-      lastMaxSerialNumber =
-          recoverPipeDataSize == 0
-              ? pipeLogStartNumber.peekLast() - 1
-              : recoverPipeData.get(recoverPipeDataSize - 1).getSerialNumber();
-    } catch (IOException e) {
-      logger.error(
-          String.format(
-              "Can not recover inputQueue from %s, because %s.", writingPipeLog.getPath(), e));
-    }
-  }
-
   private void recoverCommitSerialNumber() {
     File commitLog = new File(pipeLogDir, SyncConstant.COMMIT_LOG_NAME);
     if (!commitLog.exists()) {
@@ -139,6 +134,14 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
     }
 
     try (RandomAccessFile raf = new RandomAccessFile(commitLog, "r")) {
+      if (raf.length() == COMMIT_CHECKPOINT_SIZE && raf.readLong() == COMMIT_CHECKPOINT_MAGIC) {
+        long checkpointPipeLog = raf.readLong();
+        long checkpointOffset = raf.readLong();
+        if (!pipeLogStartNumber.isEmpty() && pipeLogStartNumber.peek() == checkpointPipeLog) {
+          recoverPipeLogOffset = checkpointOffset;
+        }
+      }
+      // the commit log written by older versions is a sequence of commit serial numbers
       if (raf.length() >= Long.BYTES) {
         raf.seek(raf.length() - Long.BYTES);
         commitSerialNumber = raf.readLong();
@@ -156,10 +159,11 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
       return;
     }
 
-    File readingPipeLog =
-        new File(pipeLogDir, SyncPathUtil.getPipeLogName(pipeLogStartNumber.peek()));
+    long readingStartNumber = pipeLogStartNumber.peek();
+    File readingPipeLog = new File(pipeLogDir, SyncPathUtil.getPipeLogName(readingStartNumber));
     try {
-      List<PipeData> recoverPipeData = parsePipeLog(readingPipeLog);
+      List<PipeData> recoverPipeData =
+          readPipeLog(readingStartNumber, Math.max(recoverPipeLogOffset, 0));
       int recoverPipeDataSize = recoverPipeData.size();
       for (int i = recoverPipeDataSize - 1; i >= 0; --i) {
         PipeData pipeData = recoverPipeData.get(i);
@@ -176,6 +180,42 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
     }
   }
 
+  private void recoverLastMaxSerialNumber() {
+    if (pipeLogStartNumber.isEmpty()) {
+      return;
+    }
+
+    long writingStartNumber = pipeLogStartNumber.peekLast();
+    File writingPipeLog = new File(pipeLogDir, SyncPathUtil.getPipeLogName(writingStartNumber));
+    try {
+      List<PipeData> recoverPipeData;
+      if (writingStartNumber == pipeLogStartNumber.peek() && recoverPipeLogOffset > 0) {
+        // only the uncommitted part has been read, the pipe data before it are all committed
+        recoverPipeData = new ArrayList<>(outputDeque);
+        if (recoverPipeData.isEmpty()) {
+          lastMaxSerialNumber = commitSerialNumber;
+          return;
+        }
+      } else {
+        recoverPipeData = readPipeLog(writingStartNumber, 0);
+        if (recoverPipeData.isEmpty()) {
+          // the pipe log was created without any pipe data written, so it will be created again
+          pipeLogStartNumber.pollLast();
+          pipeLogIndexes.remove(writingStartNumber);
+        }
+      }
+      int recoverPipeDataSize = recoverPipeData.size();
+      lastMaxSerialNumber =
+          recoverPipeDataSize == 0
+              ? writingStartNumber - 1
+              : recoverPipeData.get(recoverPipeDataSize - 1).getSerialNumber();
+    } catch (IOException e) {
+      logger.error(
+          String.format(
+              "Can not recover inputQueue from %s, because %s.", writingPipeLog.getPath(), e));
+    }
+  }
+
   public long getLastMaxSerialNumber() {
     return lastMaxSerialNumber;
   }
@@ -187,11 +227,19 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
   /** input */
   @Override
   public boolean offer(PipeData pipeData) {
-    if (outputStream == null || currentPipeLogSize > SyncConstant.DEFAULT_PIPE_LOG_SIZE_IN_BYTE) {
+    try {
+      serializeBuffer.reset();
+      pipeData.serialize(serializeStream);
+    } catch (IOException e) {
+      logger.error(String.format("Serialize pipe data %s error, because %s.", pipeData, e));
+      return false;
+    }
+    if (writingPipeLog == null || writingPipeLog.remaining() < serializeBuffer.size()) {
       try {
-        moveToNextPipeLog(pipeData.getSerialNumber());
+        moveToNextPipeLog(pipeData.getSerialNumber(), serializeBuffer.size());
       } catch (IOException e) {
         logger.error(String.format("Move to next pipe log %s error, because %s.", pipeData, e));
+        return false;
       }
     }
     if (!inputDeque.offer(pipeData)) {
@@ -201,25 +249,28 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
       waitLock.notifyAll();
     }
 
-    try {
-      writeToDisk(pipeData);
-    } catch (IOException e) {
-      logger.error(String.format("Record pipe data %s error, because %s.", pipeData, e));
-      return false;
-    }
+    writeToDisk(pipeData);
     return true;
   }
 
-  private synchronized void moveToNextPipeLog(long startSerialNumber) throws IOException {
-    if (outputStream != null) {
-      outputStream.close();
+  private synchronized void moveToNextPipeLog(long startSerialNumber, int pipeDataSize)
+      throws IOException {
+    if (writingPipeLog != null) {
+      writingPipeLog.seal();
+      writingPipeLog = null;
     }
     File newPipeLog = new File(pipeLogDir, SyncPathUtil.getPipeLogName(startSerialNumber));
     SyncPathUtil.createFile(newPipeLog);
 
-    outputStream = new DataOutputStream(new FileOutputStream(newPipeLog));
+    PipeLogIndex index = new PipeLogIndex();
+    int capacity =
+        (int)
+            Math.max(
+                SyncConstant.DEFAULT_PIPE_LOG_SIZE_IN_BYTE,
+                MappedPipeLog.HEADER_SIZE + MappedPipeLog.RECORD_HEADER_SIZE + pipeDataSize);
+    writingPipeLog = new MappedPipeLog(newPipeLog, capacity, index);
+    pipeLogIndexes.put(startSerialNumber, index);
     pipeLogStartNumber.offer(startSerialNumber);
-    currentPipeLogSize = 0;
 
     inputDeque = new LinkedBlockingDeque<>();
     if (commitSerialNumber == Long.MIN_VALUE) {
@@ -227,11 +278,11 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
     }
   }
 
-  private void writeToDisk(PipeData pipeData) throws IOException {
+  private void writeToDisk(PipeData pipeData) {
     // skip trick
 
-    currentPipeLogSize += pipeData.serialize(outputStream);
-    outputStream.flush();
+    writingPipeLog.append(
+        pipeData.getSerialNumber(), serializeBuffer.getBuf(), serializeBuffer.size());
   }
 
   /** output */
@@ -249,8 +300,7 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
       } else if (serialNumber == pipeLogStartNumber.peekLast() && inputDeque != null) {
         outputDeque = inputDeque;
       } else {
-        List<PipeData> parsePipeData =
-            parsePipeLog(new File(pipeLogDir, SyncPathUtil.getPipeLogName(serialNumber)));
+        List<PipeData> parsePipeData = readPipeLogFrom(serialNumber);
         int parsePipeDataSize = parsePipeData.size();
         outputDeque = new LinkedBlockingDeque<>();
         for (int i = 0; i < parsePipeDataSize; i++) {
@@ -262,6 +312,26 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
     return null;
   }
 
+  /** Read the pipe data from the given serial number to the end of the pipe log holding it. */
+  private List<PipeData> readPipeLogFrom(long serialNumber) throws IOException {
+    long startNumber = pipeLogStartNumber.peek();
+    for (long number : pipeLogStartNumber) {
+      if (number > serialNumber) {
+        break;
+      }
+      startNumber = number;
+    }
+
+    PipeLogIndex index = pipeLogIndexes.get(startNumber);
+    int offset = index == null ? 0 : index.offsetAfter(serialNumber - 1);
+    List<PipeData> pipeData = readPipeLog(startNumber, offset);
+    int skipSize = 0;
+    while (skipSize < pipeData.size() && pipeData.get(skipSize).getSerialNumber() < serialNumber) {
+      skipSize++;
+    }
+    return pipeData.subList(skipSize, pipeData.size());
+  }
+
   @Override
   public List<PipeData> pull(long serialNumber) {
     List<PipeData> resPipeData = new ArrayList<>();
@@ -318,6 +388,7 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
     commit(pullSerialNumber);
   }
 
+  @Override
   public void commit(long serialNumber) {
     deletePipeData(serialNumber);
     deletePipeLog();
@@ -352,6 +423,7 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
       while (true) {
         nowPipeLogStartNumber = pipeLogStartNumber.poll();
         if (!pipeLogStartNumber.isEmpty() && pipeLogStartNumber.peek() <= commitSerialNumber) {
+          pipeLogIndexes.remove(nowPipeLogStartNumber);
           try {
             Files.deleteIfExists(
                 new File(pipeLogDir, SyncPathUtil.getPipeLogName(nowPipeLogStartNumber)).toPath());
@@ -367,21 +439,31 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
     }
   }
 
+  /**
+   * Overwrite the checkpoint in the commit log, which also records where the first uncommitted
+   * pipe data is, so that recovery could start reading from there.
+   */
   private void serializeCommitSerialNumber() {
     try {
       if (commitLogWriter == null) {
         commitLogWriter =
-            new DataOutputStream(
-                new FileOutputStream(new File(pipeLogDir, SyncConstant.COMMIT_LOG_NAME)));
-        currentCommitLogSize = 0;
+            new RandomAccessFile(new File(pipeLogDir, SyncConstant.COMMIT_LOG_NAME), "rw");
+        commitLogWriter.setLength(COMMIT_CHECKPOINT_SIZE);
       }
-      commitLogWriter.writeLong(commitSerialNumber);
-      commitLogWriter.flush();
-      currentCommitLogSize += Long.BYTES;
-      if (currentCommitLogSize >= SyncConstant.DEFAULT_PIPE_LOG_SIZE_IN_BYTE) {
-        commitLogWriter.close();
-        commitLogWriter = null;
+      long checkpointPipeLog = -1;
+      long checkpointOffset = -1;
+      Long firstStartNumber = pipeLogStartNumber.peek();
+      if (firstStartNumber != null && pipeLogIndexes.containsKey(firstStartNumber)) {
+        checkpointPipeLog = firstStartNumber;
+        checkpointOffset = pipeLogIndexes.get(firstStartNumber).offsetAfter(commitSerialNumber);
       }
+      ByteBuffer checkpoint = ByteBuffer.allocate(COMMIT_CHECKPOINT_SIZE);
+      checkpoint.putLong(COMMIT_CHECKPOINT_MAGIC);
+      checkpoint.putLong(checkpointPipeLog);
+      checkpoint.putLong(checkpointOffset);
+      checkpoint.putLong(commitSerialNumber);
+      checkpoint.flip();
+      commitLogWriter.getChannel().write(checkpoint, 0);
     } catch (IOException e) {
       logger.error(
           String.format(
@@ -403,9 +485,9 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
   @Override
   public void close() {
     try {
-      if (outputStream != null) {
-        outputStream.close();
-        outputStream = null;
+      if (writingPipeLog != null) {
+        writingPipeLog.seal();
+        writingPipeLog = null;
       }
       if (commitLogWriter != null) {
         commitLogWriter.close();
@@ -414,6 +496,7 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
 
       inputDeque = null;
       pipeLogStartNumber = null;
+      pipeLogIndexes.clear();
       outputDeque = null;
     } catch (IOException e) {
       logger.warn(String.format("Close pipe log dir %s error.", pipeLogDir), e);
@@ -431,16 +514,109 @@ public class BufferedPipeDataQueue implements PipeDataQueue {
   }
 
   public static List<PipeData> parsePipeLog(File file) throws IOException {
+    return parsePipeLog(file, 0, new PipeLogIndex());
+  }
+
+  /**
+   * Read the pipe log of the given start number from the offset, and keep the offsets of the read
+   * pipe data as the index of the pipe log. The space after the last complete pipe data, which is
+   * left if the pipe log was not sealed, is truncated.
+   */
+  private List<PipeData> readPipeLog(long startNumber, long offset) throws IOException {
+    File file = new File(pipeLogDir, SyncPathUtil.getPipeLogName(startNumber));
+    PipeLogIndex index = new PipeLogIndex();
+    List<PipeData> pipeData = parsePipeLog(file, offset, index);
+    if (file.length() > index.getLength()) {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(index.getLength());
+      }
+    }
+    pipeLogIndexes.put(startNumber, index);
+    return pipeData;
+  }
+
+  /**
+   * Parse the pipe data from the offset. A pipe log written by {@link MappedPipeLog} is parsed
+   * until the first record with a zero length or a mismatched CRC32, the others until the end of
+   * the file.
+   */
+  private static List<PipeData> parsePipeLog(File file, long offset, PipeLogIndex index)
+      throws IOException {
     List<PipeData> pipeData = new ArrayList<>();
-    try (DataInputStream inputStream = new DataInputStream(new FileInputStream(file))) {
-      while (true) {
-        pipeData.add(PipeData.deserialize(inputStream));
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      long fileLength = raf.length();
+      boolean isMapped =
+          fileLength >= MappedPipeLog.HEADER_SIZE && raf.readInt() == MappedPipeLog.MAGIC;
+      long start = isMapped ? Math.max(offset, MappedPipeLog.HEADER_SIZE) : offset;
+      if (start >= fileLength) {
+        index.setLength((int) fileLength);
+        return pipeData;
       }
-    } catch (EOFException e) {
+      byte[] bytes = new byte[(int) (fileLength - start)];
+      raf.seek(start);
+      raf.readFully(bytes);
+
+      int position =
+          isMapped
+              ? parseRecords(bytes, (int) start, pipeData, index)
+              : parseStream(bytes, (int) start, pipeData, index);
+      index.setLength((int) start + position);
     } catch (IllegalPathException e) {
       logger.error(String.format("Parsing pipeLog %s error, because %s", file.getPath(), e));
       throw new IOException(e);
     }
     return pipeData;
   }
+
+  /** @return the position after the last valid record */
+  private static int parseRecords(
+      byte[] bytes, int start, List<PipeData> pipeData, PipeLogIndex index)
+      throws IOException, IllegalPathException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    CRC32 crc32 = new CRC32();
+    int position = 0;
+    while (position + MappedPipeLog.RECORD_HEADER_SIZE <= bytes.length) {
+      int length = buffer.getInt(position);
+      int dataPosition = position + MappedPipeLog.RECORD_HEADER_SIZE;
+      if (length <= 0 || length > bytes.length - dataPosition) {
+        // the preallocated space, or a record whose length is torn
+        break;
+      }
+      crc32.reset();
+      crc32.update(bytes, dataPosition, length);
+      if ((int) crc32.getValue() != buffer.getInt(position + Integer.BYTES)) {
+        // a record that reached the disk partially
+        break;
+      }
+      PipeData data =
+          PipeData.deserialize(
+              new DataInputStream(new ByteArrayInputStream(bytes, dataPosition, length)));
+      pipeData.add(data);
+      index.add(
+          data.getSerialNumber(), start + position, MappedPipeLog.RECORD_HEADER_SIZE + length);
+      position = dataPosition + length;
+    }
+    return position;
+  }
+
+  /** @return the position after the last complete pipe data */
+  private static int parseStream(
+      byte[] bytes, int start, List<PipeData> pipeData, PipeLogIndex index)
+      throws IOException, IllegalPathException {
+    int position = 0;
+    ByteArrayInputStream byteStream = new ByteArrayInputStream(bytes);
+    DataInputStream inputStream = new DataInputStream(byteStream);
+    try {
+      while (position < bytes.length) {
+        PipeData data = PipeData.deserialize(inputStream);
+        int nextPosition = bytes.length - byteStream.available();
+        pipeData.add(data);
+        index.add(data.getSerialNumber(), start + position, nextPosition - position);
+        position = nextPosition;
+      }
+    } catch (EOFException e) {
+      // the last pipe data is incomplete
+    }
+    return position;
+  }
 }
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.pipedata.queue;
+
+import org.apache.iotdb.db.sync.conf.SyncConstant;
+import org.apache.iotdb.db.utils.MmapUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * The pipe log being written, which is preallocated and mapped into memory, so appending a {@link
+ * org.apache.iotdb.db.sync.pipedata.PipeData} costs no system call. The pipe log starts with
+ * {@link #MAGIC}, followed by records of the length and CRC32 of a serialized pipe data and the
+ * pipe data itself. The mapped buffer is forced to disk once every {@link
+ * SyncConstant#DEFAULT_PIPE_LOG_FORCE_SIZE_IN_BYTE} bytes, so the records after the last force may
+ * reach the disk partially or not at all after a power loss. Readers stop at the first record with
+ * a zero length, which is where the preallocated space starts, or with a mismatched CRC32. Sealing
+ * a pipe log forces the rest and truncates the preallocated space.
+ */
+class MappedPipeLog {
+  /** the pipe logs without it are written by a stream, one serialized pipe data after another */
+  static final int MAGIC = 0x504C4F47;
+
+  static final int HEADER_SIZE = Integer.BYTES;
+  /** the length and CRC32 of the serialized pipe data */
+  static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+  private final RandomAccessFile raf;
+  private final MappedByteBuffer buffer;
+  private final PipeLogIndex index;
+  private final CRC32 crc32 = new CRC32();
+  private long unforcedSize;
+
+  MappedPipeLog(File file, int capacity, PipeLogIndex index) throws IOException {
+    this.raf = new RandomAccessFile(file, "rw");
+    try {
+      // the magic number is synced before any record, so the pipe log is never read as one written
+      // by a stream
+      raf.setLength(0);
+      raf.writeInt(MAGIC);
+      raf.setLength(capacity);
+      raf.getChannel().force(true);
+      this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+      buffer.position(HEADER_SIZE);
+    } catch (IOException e) {
+      raf.close();
+      throw e;
+    }
+    this.index = index;
+    this.unforcedSize = 0;
+  }
+
+  /** @return how many bytes of pipe data could still be appended */
+  int remaining() {
+    return buffer.remaining() - RECORD_HEADER_SIZE;
+  }
+
+  /** Append one serialized pipe data, whose length should not be larger than remaining(). */
+  void append(long serialNumber, byte[] bytes, int length) {
+    int offset = buffer.position();
+    crc32.reset();
+    crc32.update(bytes, 0, length);
+    buffer.position(offset + RECORD_HEADER_SIZE);
+    buffer.put(bytes, 0, length);
+    buffer.putInt(offset + Integer.BYTES, (int) crc32.getValue());
+    // the length is written at last, so readers of the mapped file stop before an incomplete record
+    buffer.putInt(offset, length);
+    index.add(serialNumber, offset, RECORD_HEADER_SIZE + length);
+
+    unforcedSize += RECORD_HEADER_SIZE + length;
+    if (unforcedSize >= SyncConstant.DEFAULT_PIPE_LOG_FORCE_SIZE_IN_BYTE) {
+      buffer.force();
+      unforcedSize = 0;
+    }
+  }
+
+  void seal() throws IOException {
+    int length = buffer.position();
+    buffer.force();
+    MmapUtil.clean(buffer);
+    raf.getChannel().truncate(length);
+    raf.close();
+  }
+}
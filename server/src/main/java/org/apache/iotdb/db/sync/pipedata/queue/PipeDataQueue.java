@@ -31,6 +31,9 @@ public interface PipeDataQueue {
 
   void commit();
 
+  /** Commit all the pipe data whose serial number is not larger than the given one. */
+  void commit(long serialNumber);
+
   boolean isEmpty();
 
   void close();
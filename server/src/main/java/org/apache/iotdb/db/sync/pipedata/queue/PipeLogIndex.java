@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.pipedata.queue;
+
+import java.util.Arrays;
+
+/**
+ * Offsets of the pipe data in one pipe log, ordered by serial number. It may only cover the tail of
+ * the pipe log, if the pipe log is read from a checkpointed offset. The index of the writing pipe
+ * log is read by committing threads while being appended.
+ */
+class PipeLogIndex {
+  private long[] serialNumbers = new long[16];
+  private int[] offsets = new int[16];
+  private int size = 0;
+  private int length = 0;
+
+  synchronized void add(long serialNumber, int offset, int dataLength) {
+    if (size == serialNumbers.length) {
+      serialNumbers = Arrays.copyOf(serialNumbers, size * 2);
+      offsets = Arrays.copyOf(offsets, size * 2);
+    }
+    serialNumbers[size] = serialNumber;
+    offsets[size] = offset;
+    size++;
+    length = offset + dataLength;
+  }
+
+  synchronized int getLength() {
+    return length;
+  }
+
+  synchronized void setLength(int length) {
+    this.length = length;
+  }
+
+  /**
+   * @return the offset of the first pipe data whose serial number is larger than the given one, or
+   *     the length of the pipe log if there is no such pipe data
+   */
+  synchronized int offsetAfter(long serialNumber) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (serialNumbers[mid] <= serialNumber) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low < size ? offsets[low] : length;
+  }
+}
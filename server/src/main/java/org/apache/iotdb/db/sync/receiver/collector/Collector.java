@@ -21,30 +21,43 @@ package org.apache.iotdb.db.sync.receiver.collector;
 
 import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
 import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.commons.path.PartialPath;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.sync.PipeDataLoadBearableException;
 import org.apache.iotdb.db.exception.sync.PipeDataLoadException;
+import org.apache.iotdb.db.exception.sync.PipeDataLoadUnbearableException;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
 import org.apache.iotdb.db.sync.conf.SyncPathUtil;
 import org.apache.iotdb.db.sync.pipedata.PipeData;
 import org.apache.iotdb.db.sync.pipedata.queue.PipeDataQueue;
 import org.apache.iotdb.db.sync.pipedata.queue.PipeDataQueueFactory;
+import org.apache.iotdb.db.sync.receiver.load.TsFileLoader;
 import org.apache.iotdb.db.sync.receiver.manager.PipeMessage;
 import org.apache.iotdb.db.sync.receiver.manager.ReceiverManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
-/** scan sync receiver folder and load pipeData into IoTDB */
+/**
+ * scan sync receiver folder and load pipeData into IoTDB. Consecutive TsFiles of a pipe are loaded
+ * concurrently, while the TsFiles of one storage group are still loaded in the order of the pipe.
+ */
 public class Collector {
 
   private static final Logger logger = LoggerFactory.getLogger(Collector.class);
   private static final int WAIT_TIMEOUT = 2000;
   private ExecutorService executorService;
+  private ExecutorService loadExecutorService;
   private Map<String, Future> taskFutures;
 
   public Collector() {
@@ -54,6 +67,10 @@ public class Collector {
   public void startCollect() {
     this.executorService =
         IoTDBThreadPoolFactory.newCachedThreadPool(ThreadName.SYNC_RECEIVER_COLLECTOR.getName());
+    this.loadExecutorService =
+        IoTDBThreadPoolFactory.newFixedThreadPool(
+            IoTDBDescriptor.getInstance().getConfig().getSyncReceiverLoadParallelism(),
+            ThreadName.SYNC_RECEIVER_LOADER.getName());
   }
 
   public void stopCollect() {
@@ -81,6 +98,10 @@ public class Collector {
       }
       executorService = null;
     }
+    if (loadExecutorService != null) {
+      loadExecutorService.shutdownNow();
+      loadExecutorService = null;
+    }
   }
 
   public void startPipe(String pipeName, String remoteIp, long createTime) {
@@ -122,50 +143,171 @@ public class Collector {
           PipeDataQueueFactory.getBufferedPipeDataQueue(
               SyncPathUtil.getReceiverPipeLogDir(pipeName, remoteIp, createTime));
       while (!Thread.currentThread().isInterrupted()) {
-        PipeData pipeData = null;
         try {
-          pipeData = pipeDataQueue.take();
-          logger.info(
-              "Start load pipeData with serialize number {} and type {},value={}",
-              pipeData.getSerialNumber(),
-              pipeData.getType(),
-              pipeData);
-          pipeData.createLoader().load();
-          pipeDataQueue.commit();
-          logger.info("Commit pipeData with serialize number {}", pipeData.getSerialNumber());
+          PipeData firstPipeData = pipeDataQueue.take();
+          List<PipeData> pipeDataList =
+              pipeDataQueue.pull(
+                  firstPipeData.getSerialNumber() + SyncConstant.COLLECT_BATCH_SIZE - 1);
+          if (pipeDataList.isEmpty()) {
+            pipeDataList.add(firstPipeData);
+          }
+
+          int index = 0;
+          while (index < pipeDataList.size()) {
+            int end = index;
+            while (end < pipeDataList.size()
+                && PipeData.PipeDataType.TSFILE.equals(pipeDataList.get(end).getType())) {
+              end++;
+            }
+            boolean isSuccess;
+            if (end > index) {
+              isSuccess = loadTsFiles(pipeDataQueue, pipeDataList.subList(index, end));
+              index = end;
+            } else {
+              PipeData pipeData = pipeDataList.get(index);
+              logStartLoading(pipeData);
+              isSuccess = handleLoadResult(pipeDataQueue, pipeData, loadPipeData(pipeData));
+              index++;
+            }
+            if (!isSuccess) {
+              return;
+            }
+          }
         } catch (InterruptedException e) {
           logger.warn("Be interrupted when waiting for pipe data");
           Thread.currentThread().interrupt();
           break;
-        } catch (PipeDataLoadBearableException e) {
-          // bearable exception
-          logger.warn(e.getMessage());
-          ReceiverManager.getInstance()
-              .writePipeMessage(
-                  pipeName,
-                  remoteIp,
-                  createTime,
-                  new PipeMessage(PipeMessage.MsgType.WARN, e.getMessage()));
-          pipeDataQueue.commit();
-        } catch (PipeDataLoadException e) {
-          // unbearable exception
-          // TODO: should drop this pipe?
-          String msg;
-          if (pipeData != null) {
-            msg =
-                String.format(
-                    "Cannot load pipeData with serialize number %d and type %s, because %s",
-                    pipeData.getSerialNumber(), pipeData.getType(), e.getMessage());
-          } else {
-            msg = String.format("Cannot load pipeData because %s", e.getMessage());
-          }
-          logger.error(msg);
-          ReceiverManager.getInstance()
-              .writePipeMessage(
-                  pipeName, remoteIp, createTime, new PipeMessage(PipeMessage.MsgType.ERROR, msg));
-          break;
         }
       }
     }
+
+    /**
+     * Prepare the TsFiles concurrently, then register them with one task for each storage group.
+     *
+     * @return false if the pipe should stop
+     */
+    private boolean loadTsFiles(PipeDataQueue pipeDataQueue, List<PipeData> pipeDataList)
+        throws InterruptedException {
+      int size = pipeDataList.size();
+      List<TsFileLoader> loaders = new ArrayList<>(size);
+      PipeDataLoadException[] loadExceptions = new PipeDataLoadException[size];
+      List<Future<PipeDataLoadException>> prepareFutures = new ArrayList<>(size);
+      for (PipeData pipeData : pipeDataList) {
+        logStartLoading(pipeData);
+        TsFileLoader loader = (TsFileLoader) pipeData.createLoader();
+        loaders.add(loader);
+        prepareFutures.add(loadExecutorService.submit(() -> runLoadStep(loader::prepare)));
+      }
+      // the pipe stops at an unbearable failure, so the TsFiles after it are not registered
+      Map<PartialPath, List<Integer>> storageGroupToIndexes = new LinkedHashMap<>();
+      boolean isStopped = false;
+      for (int i = 0; i < size; i++) {
+        loadExceptions[i] = waitLoadStep(prepareFutures.get(i));
+        if (!isStopped && loadExceptions[i] == null) {
+          storageGroupToIndexes
+              .computeIfAbsent(loaders.get(i).getStorageGroup(), k -> new ArrayList<>())
+              .add(i);
+        }
+        isStopped |= loadExceptions[i] instanceof PipeDataLoadUnbearableException;
+      }
+
+      Map<List<Integer>, Future<PipeDataLoadException>> registerFutures = new LinkedHashMap<>();
+      for (List<Integer> indexes : storageGroupToIndexes.values()) {
+        List<TsFileLoader> storageGroupLoaders = new ArrayList<>(indexes.size());
+        for (int i : indexes) {
+          storageGroupLoaders.add(loaders.get(i));
+        }
+        registerFutures.put(
+            indexes,
+            loadExecutorService.submit(
+                () -> runLoadStep(() -> TsFileLoader.register(storageGroupLoaders))));
+      }
+      for (Map.Entry<List<Integer>, Future<PipeDataLoadException>> entry :
+          registerFutures.entrySet()) {
+        PipeDataLoadException registerException = waitLoadStep(entry.getValue());
+        for (int i : entry.getKey()) {
+          // the TsFiles loaded before the failed one are committed, the pipe stops at it
+          loadExceptions[i] = loaders.get(i).isRegistered() ? null : registerException;
+        }
+      }
+
+      for (int i = 0; i < size; i++) {
+        if (!handleLoadResult(pipeDataQueue, pipeDataList.get(i), loadExceptions[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private PipeDataLoadException runLoadStep(LoadStep step) {
+      try {
+        step.run();
+        return null;
+      } catch (PipeDataLoadException e) {
+        return e;
+      }
+    }
+
+    private PipeDataLoadException waitLoadStep(Future<PipeDataLoadException> future)
+        throws InterruptedException {
+      try {
+        return future.get();
+      } catch (ExecutionException e) {
+        return new PipeDataLoadUnbearableException(e.getCause().getMessage());
+      }
+    }
+
+    private PipeDataLoadException loadPipeData(PipeData pipeData) {
+      return runLoadStep(() -> pipeData.createLoader().load());
+    }
+
+    private void logStartLoading(PipeData pipeData) {
+      logger.info(
+          "Start load pipeData with serialize number {} and type {},value={}",
+          pipeData.getSerialNumber(),
+          pipeData.getType(),
+          pipeData);
+    }
+
+    /**
+     * Commit the pipe data if it is loaded or the load exception is bearable.
+     *
+     * @return false if the pipe should stop
+     */
+    private boolean handleLoadResult(
+        PipeDataQueue pipeDataQueue, PipeData pipeData, PipeDataLoadException e) {
+      if (e == null) {
+        pipeDataQueue.commit(pipeData.getSerialNumber());
+        logger.info("Commit pipeData with serialize number {}", pipeData.getSerialNumber());
+        return true;
+      } else if (e instanceof PipeDataLoadBearableException) {
+        // bearable exception
+        logger.warn(e.getMessage());
+        ReceiverManager.getInstance()
+            .writePipeMessage(
+                pipeName,
+                remoteIp,
+                createTime,
+                new PipeMessage(PipeMessage.MsgType.WARN, e.getMessage()));
+        pipeDataQueue.commit(pipeData.getSerialNumber());
+        return true;
+      }
+      // unbearable exception
+      // TODO: should drop this pipe?
+      String msg =
+          String.format(
+              "Cannot load pipeData with serialize number %d and type %s, because %s",
+              pipeData.getSerialNumber(), pipeData.getType(), e.getMessage());
+      logger.error(msg);
+      ReceiverManager.getInstance()
+          .writePipeMessage(
+              pipeName, remoteIp, createTime, new PipeMessage(PipeMessage.MsgType.ERROR, msg));
+      return false;
+    }
+  }
+
+  @FunctionalInterface
+  private interface LoadStep {
+    void run() throws PipeDataLoadException;
   }
 }
@@ -18,29 +18,63 @@
  */
 package org.apache.iotdb.db.sync.receiver.load;
 
+import org.apache.iotdb.commons.path.PartialPath;
 import org.apache.iotdb.db.engine.StorageEngine;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResourceStatus;
+import org.apache.iotdb.db.exception.BatchLoadFileException;
 import org.apache.iotdb.db.exception.sync.PipeDataLoadException;
 import org.apache.iotdb.db.exception.sync.PipeDataLoadUnbearableException;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.service.metrics.MetricsService;
+import org.apache.iotdb.db.service.metrics.enums.Metric;
+import org.apache.iotdb.db.service.metrics.enums.Tag;
 import org.apache.iotdb.db.tools.TsFileRewriteTool;
 import org.apache.iotdb.db.utils.FileLoaderUtils;
+import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
+import org.apache.iotdb.metrics.utils.MetricLevel;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-/** This loader is used to load tsFiles. If .mods file exists, it will be loaded as well. */
+/**
+ * This loader is used to load tsFiles. If .mods file exists, it will be loaded as well.
+ *
+ * <p>Loading is split into two steps. {@link #prepare()} generates the resource of the tsFile and
+ * splits it if necessary, which could run concurrently for any tsFiles. {@link #register(List)}
+ * moves the prepared tsFiles into their storage groups, where the tsFiles of one storage group are
+ * registered as a batch in order.
+ */
 public class TsFileLoader implements ILoader {
 
   private File tsFile;
 
+  private List<TsFileResource> resources;
+  private PartialPath storageGroup;
+  private long prepareStartTime;
+  private boolean registered = false;
+
   public TsFileLoader(File tsFile) {
     this.tsFile = tsFile;
   }
 
   @Override
   public void load() throws PipeDataLoadException {
+    prepare();
+    List<TsFileLoader> loaders = new ArrayList<>();
+    loaders.add(this);
+    register(loaders);
+  }
+
+  public void prepare() throws PipeDataLoadException {
+    prepareStartTime = System.currentTimeMillis();
+    if (!tsFile.exists()) {
+      // the received tsFile is only deleted after it is committed
+      throw new PipeDataLoadUnbearableException(
+          String.format("TsFile %s does not exist.", tsFile.getPath()));
+    }
     try {
       TsFileResource tsFileResource = new TsFileResource(tsFile);
       tsFileResource.setStatus(TsFileResourceStatus.CLOSED);
@@ -56,12 +90,81 @@ public class TsFileLoader implements ILoader {
       if (splitResources.isEmpty()) {
         splitResources.add(tsFileResource);
       }
+      resources = splitResources;
 
-      for (TsFileResource resource : splitResources) {
-        StorageEngine.getInstance().loadNewTsFile(resource, false);
+      String device = tsFileResource.getDevices().iterator().next();
+      storageGroup = IoTDB.schemaProcessor.getBelongedStorageGroup(new PartialPath(device));
+    } catch (Exception e) {
+      throw new PipeDataLoadUnbearableException(e.getMessage());
+    }
+  }
+
+  /** @return the storage group of the prepared tsFile */
+  public PartialPath getStorageGroup() {
+    return storageGroup;
+  }
+
+  /** @return whether the tsFile is loaded by {@link #register(List)}, even if the batch failed */
+  public boolean isRegistered() {
+    return registered;
+  }
+
+  /**
+   * Load the prepared tsFiles into IoTDB in order. The received tsFiles are linked, or copied if
+   * the data dir is on another file system, and are deleted when the pipe data is committed. If
+   * loading fails, the loaders whose tsFiles are loaded before the failure are marked registered.
+   */
+  public static void register(List<TsFileLoader> loaders) throws PipeDataLoadException {
+    List<TsFileResource> resources = new ArrayList<>();
+    for (TsFileLoader loader : loaders) {
+      resources.addAll(loader.resources);
+    }
+    try {
+      StorageEngine.getInstance().loadNewTsFiles(resources, false);
+    } catch (BatchLoadFileException e) {
+      // a split tsFile is registered only if all of its pieces are loaded
+      int loadedNum = e.getLoadedNum();
+      for (TsFileLoader loader : loaders) {
+        if (loader.resources.size() > loadedNum) {
+          break;
+        }
+        loader.registered = true;
+        loadedNum -= loader.resources.size();
       }
+      throw new PipeDataLoadUnbearableException(e.getMessage());
     } catch (Exception e) {
       throw new PipeDataLoadUnbearableException(e.getMessage());
     }
+    for (TsFileLoader loader : loaders) {
+      loader.registered = true;
+    }
+
+    if (!MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
+      return;
+    }
+    long currentTime = System.currentTimeMillis();
+    long loadedSize = 0;
+    for (TsFileLoader loader : loaders) {
+      MetricsService.getInstance()
+          .getMetricManager()
+          .timer(
+              currentTime - loader.prepareStartTime,
+              TimeUnit.MILLISECONDS,
+              Metric.COST_TASK.toString(),
+              MetricLevel.IMPORTANT,
+              Tag.NAME.toString(),
+              "sync_load");
+    }
+    for (TsFileResource resource : resources) {
+      loadedSize += resource.getTsFileSize();
+    }
+    MetricsService.getInstance()
+        .getMetricManager()
+        .count(
+            loadedSize / 1024L,
+            Metric.DATA_WRITTEN.toString(),
+            MetricLevel.IMPORTANT,
+            Tag.NAME.toString(),
+            "sync_load");
   }
 }
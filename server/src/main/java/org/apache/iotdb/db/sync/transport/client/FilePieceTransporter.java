@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.transport.client;
+
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.SyncConnectionException;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
+import org.apache.iotdb.service.transport.thrift.MetaInfo;
+import org.apache.iotdb.service.transport.thrift.TransportService;
+import org.apache.iotdb.service.transport.thrift.TransportStatus;
+import org.apache.iotdb.service.transport.thrift.Type;
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.transport.TTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.apache.iotdb.db.sync.transport.conf.TransportConstant.REBASE_CODE;
+import static org.apache.iotdb.db.sync.transport.conf.TransportConstant.RETRY_CODE;
+import static org.apache.iotdb.db.sync.transport.conf.TransportConstant.SUCCESS_CODE;
+
+/**
+ * Transfer files to the receiver piece by piece through several secondary connections. Each
+ * connection carries one piece at a time, so at most {@code sync_file_transport_parallelism} pieces
+ * are waiting for acknowledgement, and the pieces of different files are in flight together.
+ *
+ * <p>The first piece of a file is small and sent alone. If the receiver has received the beginning
+ * of the file before, it replies the offset to resume from, and the rest of the file is sent from
+ * there.
+ */
+class FilePieceTransporter {
+
+  private static final Logger logger = LoggerFactory.getLogger(FilePieceTransporter.class);
+
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  static final int FIRST_PIECE_SIZE_IN_BYTES = 1024 * 1024;
+
+  private final TransportClient transportClient;
+
+  private final int parallelism;
+
+  private final int firstPieceSize;
+
+  private final int pieceSize;
+
+  private final List<Lane> lanes;
+
+  private final BlockingQueue<Lane> idleLanes;
+
+  private final ExecutorService pieceSender;
+
+  FilePieceTransporter(
+      TransportClient transportClient, String pipeName, int firstPieceSize, int pieceSize) {
+    this.transportClient = transportClient;
+    this.parallelism = config.getSyncFileTransportParallelism();
+    this.firstPieceSize = firstPieceSize;
+    this.pieceSize = pieceSize;
+    this.lanes = new ArrayList<>(parallelism);
+    this.idleLanes = new ArrayBlockingQueue<>(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      Lane lane = new Lane();
+      lanes.add(lane);
+      idleLanes.add(lane);
+    }
+    this.pieceSender =
+        IoTDBThreadPoolFactory.newFixedThreadPool(
+            parallelism, ThreadName.SYNC_SENDER_FILE_PIECE.getName() + "-" + pipeName);
+  }
+
+  /** Transfer the files, return after all pieces of them have been acknowledged. */
+  void transport(List<File> files) throws SyncConnectionException {
+    Deque<Future<Long>> inFlightPieces = new ArrayDeque<>();
+    List<FileChannel> channels = new ArrayList<>();
+    try {
+      for (File file : files) {
+        long limit = getFileSizeLimit(file);
+        if (limit <= 0) {
+          continue;
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        channels.add(channel);
+
+        long position =
+            waitFor(submit(file, channel, 0, (int) Math.min(firstPieceSize, limit)));
+        while (position < limit) {
+          if (inFlightPieces.size() >= parallelism) {
+            waitFor(inFlightPieces.poll());
+          }
+          int length = (int) Math.min(pieceSize, limit - position);
+          inFlightPieces.add(submit(file, channel, position, length));
+          position += length;
+        }
+      }
+      while (!inFlightPieces.isEmpty()) {
+        waitFor(inFlightPieces.poll());
+      }
+    } catch (IOException e) {
+      throw new SyncConnectionException(String.format("Read files error, because %s.", e), e);
+    } finally {
+      for (Future<Long> future : inFlightPieces) {
+        future.cancel(false);
+      }
+      for (FileChannel channel : channels) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          logger.warn("Close file channel error.", e);
+        }
+      }
+    }
+  }
+
+  private Future<Long> submit(File file, FileChannel channel, long start, int length) {
+    return pieceSender.submit(
+        () -> {
+          Lane lane = idleLanes.take();
+          try {
+            return lane.transportPiece(file, channel, start, start + length);
+          } finally {
+            idleLanes.add(lane);
+          }
+        });
+  }
+
+  private long waitFor(Future<Long> future) throws SyncConnectionException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SyncConnectionException("Interrupted when transferring files.");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SyncConnectionException) {
+        throw (SyncConnectionException) e.getCause();
+      }
+      throw new SyncConnectionException(e.getCause());
+    }
+  }
+
+  private long getFileSizeLimit(File file) {
+    File offset = new File(file.getPath() + SyncConstant.MODS_OFFSET_FILE_SUFFIX);
+    if (offset.exists()) {
+      try (BufferedReader br = new BufferedReader(new FileReader(offset))) {
+        return Long.parseLong(br.readLine());
+      } catch (IOException e) {
+        logger.error(
+            String.format("Deserialize offset of file %s error, because %s.", file.getPath(), e));
+      }
+    }
+    return file.length();
+  }
+
+  void close() {
+    pieceSender.shutdownNow();
+    for (Lane lane : lanes) {
+      lane.close();
+    }
+  }
+
+  /**
+   * A secondary connection with the buffers to prepare the pieces sent through it. The buffers are
+   * allocated on demand, so that small files do not take a buffer of a whole piece per connection.
+   */
+  private class Lane {
+
+    private TTransport transport;
+
+    private TransportService.Client serviceClient;
+
+    private ByteBuffer readBuffer = null;
+
+    private byte[] compressedBuffer = new byte[0];
+
+    private MessageDigest messageDigest;
+
+    /**
+     * Send the piece [start, end) of the file.
+     *
+     * @return the offset of the file to continue from, which is larger than {@code end} if the
+     *     receiver has received more
+     */
+    private long transportPiece(File file, FileChannel channel, long start, long end)
+        throws SyncConnectionException, IOException, NoSuchAlgorithmException {
+      if (messageDigest == null) {
+        messageDigest = MessageDigest.getInstance("SHA-256");
+      }
+
+      long position = start;
+      int retryCount = 0;
+      while (true) {
+        int length = (int) (end - position);
+        read(channel, position, length);
+        messageDigest.reset();
+        messageDigest.update(readBuffer.array(), 0, length);
+        MetaInfo metaInfo = new MetaInfo(Type.FILE, file.getName(), position);
+        ByteBuffer buffToSend = prepareBuffToSend(metaInfo, length);
+
+        TransportStatus status;
+        try {
+          connect();
+          status =
+              serviceClient.transportData(
+                  metaInfo, buffToSend, ByteBuffer.wrap(messageDigest.digest()));
+        } catch (TException e) {
+          // reconnect and retry
+          logger.warn("Transfer piece of file {} error, retry.", file.getAbsoluteFile(), e);
+          close();
+          status = null;
+        }
+
+        if (status != null && status.code == SUCCESS_CODE) {
+          return end;
+        } else if (status != null && status.code == REBASE_CODE) {
+          long rebasePosition = Long.parseLong(status.msg);
+          if (rebasePosition >= end) {
+            return rebasePosition;
+          }
+          if (rebasePosition > position) {
+            // the head of the piece has been received, only send the rest of it
+            position = rebasePosition;
+            continue;
+          }
+        } else if (status != null && status.code != RETRY_CODE) {
+          logger.info(
+              "Receiver failed to receive data from {} because {}, abort.",
+              file.getAbsoluteFile(),
+              status.msg);
+          throw new SyncConnectionException(status.msg);
+        }
+
+        retryCount++;
+        if (retryCount > config.getMaxNumberOfSyncFileRetry()) {
+          throw new SyncConnectionException(
+              String.format(
+                  "Can not sync file %s after %s tries.",
+                  file.getAbsoluteFile(), config.getMaxNumberOfSyncFileRetry()));
+        }
+      }
+    }
+
+    /** Read the piece into the read buffer with positional reads of the shared channel. */
+    private void read(FileChannel channel, long position, int length) throws IOException {
+      if (readBuffer == null || readBuffer.capacity() < length) {
+        readBuffer = ByteBuffer.allocate(length);
+      }
+      readBuffer.clear();
+      readBuffer.limit(length);
+      while (readBuffer.hasRemaining()) {
+        if (channel.read(readBuffer, position + readBuffer.position()) < 0) {
+          throw new EOFException(
+              String.format("Reach the end of file before offset %d.", position + length));
+        }
+      }
+    }
+
+    private ByteBuffer prepareBuffToSend(MetaInfo metaInfo, int length) throws IOException {
+      CompressionType compressionType = config.getSyncFileTransportCompressor();
+      if (compressionType == CompressionType.UNCOMPRESSED) {
+        return ByteBuffer.wrap(readBuffer.array(), 0, length);
+      }
+      ICompressor compressor = ICompressor.getCompressor(compressionType);
+      int maxCompressedLength = compressor.getMaxBytesForCompression(length);
+      if (compressedBuffer.length < maxCompressedLength) {
+        compressedBuffer = new byte[maxCompressedLength];
+      }
+      int compressedLength = compressor.compress(readBuffer.array(), 0, length, compressedBuffer);
+      metaInfo.setCompressionType(compressionType.serialize());
+      metaInfo.setUncompressedLength(length);
+      return ByteBuffer.wrap(compressedBuffer, 0, compressedLength);
+    }
+
+    private void connect() throws TException, SyncConnectionException {
+      if (transport != null && transport.isOpen()) {
+        return;
+      }
+      TTransport newTransport = transportClient.openTransport();
+      try {
+        serviceClient = transportClient.handshake(newTransport, true);
+      } catch (TException | SyncConnectionException e) {
+        newTransport.close();
+        throw e;
+      } catch (UnknownHostException e) {
+        newTransport.close();
+        throw new SyncConnectionException(String.format("Get local host error, because %s.", e), e);
+      }
+      transport = newTransport;
+    }
+
+    private void close() {
+      if (transport != null) {
+        transport.close();
+        transport = null;
+      }
+    }
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.apache.iotdb.db.sync.transport.client;
 
+import org.apache.iotdb.commons.utils.TestOnly;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.SyncConnectionException;
@@ -46,25 +47,23 @@ import org.apache.thrift.protocol.TCompactProtocol;
 import org.apache.thrift.protocol.TProtocol;
 import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
 
 import static org.apache.iotdb.db.sync.transport.conf.TransportConfig.isCheckFileDegistAgain;
-import static org.apache.iotdb.db.sync.transport.conf.TransportConstant.REBASE_CODE;
-import static org.apache.iotdb.db.sync.transport.conf.TransportConstant.RETRY_CODE;
 import static org.apache.iotdb.db.sync.transport.conf.TransportConstant.SUCCESS_CODE;
 
 public class TransportClient implements ITransportClient {
@@ -73,8 +72,6 @@ public class TransportClient implements ITransportClient {
 
   private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
 
-  private static final int TRANSFER_BUFFER_SIZE_IN_BYTES = 1 * 1024 * 1024;
-
   private TTransport transport = null;
 
   private TransportService.Client serviceClient = null;
@@ -87,6 +84,12 @@ public class TransportClient implements ITransportClient {
 
   private Pipe pipe;
 
+  private FilePieceTransporter filePieceTransporter = null;
+
+  private int firstFilePieceSize = FilePieceTransporter.FIRST_PIECE_SIZE_IN_BYTES;
+
+  private int filePieceSize = TransportConstant.DATA_CHUNK_SIZE;
+
   public TransportClient(Pipe pipe, String ipAddress, int port) {
     RpcTransportFactory.setThriftMaxFrameSize(config.getThriftMaxFrameSize());
 
@@ -125,38 +128,8 @@ public class TransportClient implements ITransportClient {
     }
 
     try {
-      transport =
-          RpcTransportFactory.INSTANCE.getTransport(
-              new TSocket(
-                  TConfigurationConst.defaultTConfiguration,
-                  ipAddress,
-                  port,
-                  SyncConstant.SOCKET_TIMEOUT_MILLISECONDS,
-                  SyncConstant.CONNECT_TIMEOUT_MILLISECONDS));
-      TProtocol protocol;
-      if (config.isRpcThriftCompressionEnable()) {
-        protocol = new TCompactProtocol(transport);
-      } else {
-        protocol = new TBinaryProtocol(transport);
-      }
-      serviceClient = new TransportService.Client(protocol);
-
-      // Underlay socket open.
-      if (!transport.isOpen()) {
-        transport.open();
-      }
-
-      identityInfo =
-          new IdentityInfo(
-              InetAddress.getLocalHost().getHostAddress(),
-              pipe.getName(),
-              pipe.getCreateTime(),
-              config.getIoTDBMajorVersion());
-      TransportStatus status = serviceClient.handshake(identityInfo);
-      if (status.code != SUCCESS_CODE) {
-        throw new SyncConnectionException(
-            "The receiver rejected the synchronization task because " + status.msg);
-      }
+      transport = openTransport();
+      serviceClient = handshake(transport, false);
     } catch (TException e) {
       logger.warn("Cannot connect to the receiver. ", e);
       return false;
@@ -167,12 +140,62 @@ public class TransportClient implements ITransportClient {
     return true;
   }
 
+  /** Open a new connection to the receiver. */
+  TTransport openTransport() throws TTransportException {
+    TTransport newTransport =
+        RpcTransportFactory.INSTANCE.getTransport(
+            new TSocket(
+                TConfigurationConst.defaultTConfiguration,
+                ipAddress,
+                port,
+                SyncConstant.SOCKET_TIMEOUT_MILLISECONDS,
+                SyncConstant.CONNECT_TIMEOUT_MILLISECONDS));
+    // Underlay socket open.
+    if (!newTransport.isOpen()) {
+      newTransport.open();
+    }
+    return newTransport;
+  }
+
+  /**
+   * Handshake with the receiver through an opened transport.
+   *
+   * @param secondary whether the connection only carries pieces of files
+   * @return the client of the connection
+   */
+  TransportService.Client handshake(TTransport openedTransport, boolean secondary)
+      throws TException, UnknownHostException, SyncConnectionException {
+    TProtocol protocol;
+    if (config.isRpcThriftCompressionEnable()) {
+      protocol = new TCompactProtocol(openedTransport);
+    } else {
+      protocol = new TBinaryProtocol(openedTransport);
+    }
+    TransportService.Client client = new TransportService.Client(protocol);
+
+    IdentityInfo info =
+        new IdentityInfo(
+            InetAddress.getLocalHost().getHostAddress(),
+            pipe.getName(),
+            pipe.getCreateTime(),
+            config.getIoTDBMajorVersion());
+    if (secondary) {
+      info.setSecondary(true);
+    } else {
+      identityInfo = info;
+    }
+    TransportStatus status = client.handshake(info);
+    if (status.code != SUCCESS_CODE) {
+      throw new SyncConnectionException(
+          "The receiver rejected the synchronization task because " + status.msg);
+    }
+    return client;
+  }
+
   public boolean senderTransport(PipeData pipeData) throws SyncConnectionException {
     if (pipeData instanceof TsFilePipeData) {
       try {
-        for (File file : ((TsFilePipeData) pipeData).getTsFiles(true)) {
-          transportSingleFile(file);
-        }
+        transportFiles(((TsFilePipeData) pipeData).getTsFiles(true));
       } catch (IOException e) {
         logger.error(String.format("Get tsfiles error, because %s.", e), e);
         return false;
@@ -216,148 +239,42 @@ public class TransportClient implements ITransportClient {
     return true;
   }
 
-  /** Transfer data of a tsfile to the receiver. */
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
-  private void transportSingleFile(File file)
+  /** Transfer the files of a tsfile to the receiver, the pieces of them are sent in parallel. */
+  private void transportFiles(List<File> files)
       throws SyncConnectionException, NoSuchAlgorithmException {
-
-    MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-
-    int retryCount = 0;
-    while (true) {
-      retryCount++;
-      if (retryCount > config.getMaxNumberOfSyncFileRetry()) {
-        throw new SyncConnectionException(
-            String.format("Connect to receiver error when transferring file %s.", file.getName()));
-      }
-
-      try {
-        transportSingleFilePieceByPiece(file, messageDigest);
-
-        if (isCheckFileDegistAgain) {
-          // Check file digest as entirety.
-          try {
-            if (!checkFileDigest(file, messageDigest)) {
-              continue;
-            }
-          } catch (IOException e) {
-            logger.warn(
-                String.format(
-                    "Read from disk to make digest error, skip check file %s, because %s.",
-                    file.getName(), e));
-          }
-        }
-        break;
-      } catch (SyncConnectionException e) {
-        if (!handshake()) {
-          throw new SyncConnectionException(
-              String.format(
-                  "Connect to receiver error when transferring file %s.", file.getName()));
-        }
-      }
+    if (filePieceTransporter == null) {
+      filePieceTransporter =
+          new FilePieceTransporter(this, pipe.getName(), firstFilePieceSize, filePieceSize);
     }
-
-    logger.info("Receiver has received {} successfully.", file.getAbsoluteFile());
-  }
-
-  private void transportSingleFilePieceByPiece(File file, MessageDigest messageDigest)
-      throws SyncConnectionException {
-
-    // Cut the file into pieces to send
-    long position = 0;
-
-    long limit = getFileSizeLimit(file);
-
-    // Try small piece to rebase the file position.
-    byte[] buffer = new byte[TRANSFER_BUFFER_SIZE_IN_BYTES];
-
-    outer:
-    while (true) {
-
-      // Normal piece.
-      if (position != 0L && buffer.length != TransportConstant.DATA_CHUNK_SIZE) {
-        buffer = new byte[TransportConstant.DATA_CHUNK_SIZE];
-      }
-
-      int dataLength;
-      try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
-        if (limit <= position) {
-          break;
-        }
-        randomAccessFile.seek(position);
-        while ((dataLength =
-                randomAccessFile.read(buffer, 0, Math.min(buffer.length, (int) (limit - position))))
-            != -1) {
-          messageDigest.reset();
-          messageDigest.update(buffer, 0, dataLength);
-          ByteBuffer buffToSend = ByteBuffer.wrap(buffer, 0, dataLength);
-          MetaInfo metaInfo = new MetaInfo(Type.FILE, file.getName(), position);
-
-          TransportStatus status = null;
-          int retryCount = 0;
-          while (true) {
+    filePieceTransporter.transport(files);
+
+    if (isCheckFileDegistAgain) {
+      MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+      for (File file : files) {
+        // Check file digest as entirety, the receiver restarts the file if the check fails.
+        int retryCount = 0;
+        try {
+          while (!checkFileDigest(file, messageDigest)) {
             retryCount++;
             if (retryCount > config.getMaxNumberOfSyncFileRetry()) {
               throw new SyncConnectionException(
                   String.format(
-                      "Can not sync file %s after %s tries.",
-                      file.getAbsoluteFile(), config.getMaxNumberOfSyncFileRetry()));
-            }
-            try {
-              status =
-                  serviceClient.transportData(
-                      metaInfo, buffToSend, ByteBuffer.wrap(messageDigest.digest()));
-            } catch (TException e) {
-              // retry
-              logger.error("TException happened! ", e);
-              continue;
-            }
-            break;
-          }
-
-          if (status.code == REBASE_CODE) {
-            position = Long.parseLong(status.msg);
-            continue outer;
-          } else if (status.code == RETRY_CODE) {
-            logger.info(
-                "Receiver failed to receive data from {} because {}, retry.",
-                file.getAbsoluteFile(),
-                status.msg);
-            continue outer;
-          } else if (status.code != SUCCESS_CODE) {
-            logger.info(
-                "Receiver failed to receive data from {} because {}, abort.",
-                file.getAbsoluteFile(),
-                status.msg);
-            throw new SyncConnectionException(status.msg);
-          } else { // Success
-            position += dataLength;
-            if (position >= limit) {
-              break;
+                      "Connect to receiver error when transferring file %s.", file.getName()));
             }
+            filePieceTransporter.transport(Collections.singletonList(file));
           }
+        } catch (IOException e) {
+          logger.warn(
+              String.format(
+                  "Read from disk to make digest error, skip check file %s, because %s.",
+                  file.getName(), e));
         }
-      } catch (IOException e) {
-        // retry
-        logger.error("IOException happened! ", e);
-      } catch (SyncConnectionException e) {
-        logger.error("Cannot sync data with receiver. ", e);
-        throw e;
       }
     }
-  }
 
-  private long getFileSizeLimit(File file) {
-    File offset = new File(file.getPath() + SyncConstant.MODS_OFFSET_FILE_SUFFIX);
-    if (offset.exists()) {
-      try (BufferedReader br = new BufferedReader(new FileReader(offset))) {
-        return Long.parseLong(br.readLine());
-      } catch (IOException e) {
-        logger.error(
-            String.format("Deserialize offset of file %s error, because %s.", file.getPath(), e));
-      }
+    for (File file : files) {
+      logger.info("Receiver has received {} successfully.", file.getAbsoluteFile());
     }
-    return file.length();
   }
 
   private boolean checkFileDigest(File file, MessageDigest messageDigest)
@@ -537,7 +454,17 @@ public class TransportClient implements ITransportClient {
     }
   }
 
+  @TestOnly
+  public void setFilePieceSize(int firstFilePieceSize, int filePieceSize) {
+    this.firstFilePieceSize = firstFilePieceSize;
+    this.filePieceSize = filePieceSize;
+  }
+
   public void close() {
+    if (filePieceTransporter != null) {
+      filePieceTransporter.close();
+      filePieceTransporter = null;
+    }
     if (transport != null) {
       transport.close();
     }
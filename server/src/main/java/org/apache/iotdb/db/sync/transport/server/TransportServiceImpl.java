@@ -36,6 +36,8 @@ import org.apache.iotdb.service.transport.thrift.SyncResponse;
 import org.apache.iotdb.service.transport.thrift.TransportService;
 import org.apache.iotdb.service.transport.thrift.TransportStatus;
 import org.apache.iotdb.service.transport.thrift.Type;
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
@@ -44,10 +46,10 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
@@ -57,6 +59,9 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.apache.iotdb.db.sync.conf.SyncConstant.DATA_CHUNK_SIZE;
 import static org.apache.iotdb.db.sync.transport.conf.TransportConstant.CONFLICT_CODE;
@@ -73,71 +78,13 @@ public class TransportServiceImpl implements TransportService.Iface {
   private static final String PATCH_SUFFIX = ".patch";
   private ThreadLocal<IdentityInfo> identityInfoThreadLocal;
 
+  /** Receiving progress of the patch files, the key is the absolute path of the patch file. */
+  private final Map<String, PatchFileProgress> patchFileProgresses = new ConcurrentHashMap<>();
+
   public TransportServiceImpl() {
     identityInfoThreadLocal = new ThreadLocal<>();
   }
 
-  private class CheckResult {
-    boolean result;
-    String index;
-
-    public CheckResult(boolean result, String index) {
-      this.result = result;
-      this.index = index;
-    }
-
-    public boolean isResult() {
-      return result;
-    }
-
-    public String getIndex() {
-      return index;
-    }
-  }
-
-  private CheckResult checkStartIndexValid(File file, long startIndex) throws IOException {
-    File recordFile = new File(file.getAbsolutePath() + RECORD_SUFFIX);
-
-    if (!recordFile.exists() && startIndex != 0) {
-      logger.error(
-          "The start index {} of data sync is not valid. "
-              + "The file {} is not exist and start index should equal to 0).",
-          startIndex,
-          recordFile.getAbsolutePath());
-      return new CheckResult(false, "0");
-    }
-
-    if (recordFile.exists()) {
-      try (InputStream inputStream = new FileInputStream(recordFile);
-          BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream))) {
-        String index = bufferedReader.readLine();
-
-        if ((index == null) || (index.length() == 0)) {
-          if (startIndex != 0) {
-            logger.error(
-                "The start index {} of data sync is not valid. "
-                    + "The file {} is not exist and start index is should equal to 0.",
-                startIndex,
-                recordFile.getAbsolutePath());
-            return new CheckResult(false, "0");
-          }
-        }
-
-        if (Long.parseLong(index) != startIndex) {
-          logger.error(
-              "The start index {} of data sync is not valid. "
-                  + "The start index of the file {} should equal to {}.",
-              startIndex,
-              recordFile.getAbsolutePath(),
-              index);
-          return new CheckResult(false, index);
-        }
-      }
-    }
-
-    return new CheckResult(true, "0");
-  }
-
   @Override
   public TransportStatus handshake(IdentityInfo identityInfo) throws TException {
     logger.debug("Invoke handshake method from client ip = {}", identityInfo.address);
@@ -213,16 +160,13 @@ public class TransportServiceImpl implements TransportService.Iface {
     String fileName = metaInfo.fileName;
     long startIndex = metaInfo.startIndex;
 
-    // Check file start index valid
-    if (type == Type.FILE) {
+    // Uncompress buff
+    if (metaInfo.isSetCompressionType()) {
       try {
-        CheckResult result = checkStartIndexValid(new File(fileDir, fileName), startIndex);
-        if (!result.isResult()) {
-          return new TransportStatus(REBASE_CODE, result.getIndex());
-        }
+        buff = uncompress(buff, metaInfo);
       } catch (IOException e) {
-        logger.error(e.getMessage());
-        return new TransportStatus(ERROR_CODE, e.getMessage());
+        logger.error("Uncompress data of {} error, {}", fileName, e.getMessage());
+        return new TransportStatus(RETRY_CODE, "Data uncompress error, retry.");
       }
     }
 
@@ -263,24 +207,42 @@ public class TransportServiceImpl implements TransportService.Iface {
       // Write buff to {file}.patch
       buff.position(pos);
       File file = new File(fileDir, fileName + PATCH_SUFFIX);
-      try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
-        randomAccessFile.seek(startIndex);
-        int length = buff.capacity();
-        byte[] byteArray = new byte[length];
-        buff.get(byteArray);
-        randomAccessFile.write(byteArray);
-        writeRecordFile(new File(fileDir, fileName + RECORD_SUFFIX), startIndex + length);
-        logger.debug(
-            "Sync "
-                + fileName
-                + " start at "
-                + startIndex
-                + " to "
-                + (startIndex + length)
-                + " is done.");
-      } catch (IOException e) {
-        logger.error(e.getMessage());
-        return new TransportStatus(ERROR_CODE, e.getMessage());
+      PatchFileProgress progress =
+          patchFileProgresses.computeIfAbsent(file.getAbsolutePath(), k -> new PatchFileProgress());
+      synchronized (progress) {
+        try {
+          File recordFile = new File(fileDir, fileName + RECORD_SUFFIX);
+          if (progress.receivedLength < 0) {
+            progress.receivedLength = readRecordFile(recordFile);
+          }
+          // The beginning of the piece has been received, the sender should continue from the
+          // received length. Pieces after the received length may arrive out of order from
+          // different connections.
+          if (startIndex < progress.receivedLength) {
+            return new TransportStatus(REBASE_CODE, String.valueOf(progress.receivedLength));
+          }
+          int length = buff.remaining();
+          try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(startIndex);
+            byte[] byteArray = new byte[length];
+            buff.get(byteArray);
+            randomAccessFile.write(byteArray);
+          }
+          if (progress.receive(startIndex, startIndex + length)) {
+            writeRecordFile(recordFile, progress.receivedLength);
+          }
+          logger.debug(
+              "Sync "
+                  + fileName
+                  + " start at "
+                  + startIndex
+                  + " to "
+                  + (startIndex + length)
+                  + " is done.");
+        } catch (IOException e) {
+          logger.error(e.getMessage());
+          return new TransportStatus(ERROR_CODE, e.getMessage());
+        }
       }
     }
     return new TransportStatus(SUCCESS_CODE, "");
@@ -320,6 +282,7 @@ public class TransportServiceImpl implements TransportService.Iface {
               localDigest,
               digest);
           new File(fileDir, fileName + RECORD_SUFFIX).delete();
+          patchFileProgresses.remove(new File(fileDir, fileName + PATCH_SUFFIX).getAbsolutePath());
           return new TransportStatus(CONFLICT_CODE, "File digest check error.");
         }
       } catch (IOException e) {
@@ -336,6 +299,16 @@ public class TransportServiceImpl implements TransportService.Iface {
     return ReceiverService.getInstance().receiveMsg(syncRequest);
   }
 
+  private long readRecordFile(File recordFile) throws IOException {
+    if (!recordFile.exists()) {
+      return 0;
+    }
+    try (BufferedReader bufferedReader = new BufferedReader(new FileReader(recordFile))) {
+      String index = bufferedReader.readLine();
+      return index == null || index.isEmpty() ? 0 : Long.parseLong(index);
+    }
+  }
+
   private void writeRecordFile(File recordFile, long position) throws IOException {
     File tmpFile = new File(recordFile.getAbsolutePath() + ".tmp");
     FileWriter fileWriter = new FileWriter(tmpFile, false);
@@ -351,8 +324,12 @@ public class TransportServiceImpl implements TransportService.Iface {
     // Handle client exit here.
     IdentityInfo identityInfo = identityInfoThreadLocal.get();
     if (identityInfo != null) {
-      // stop pipe
       identityInfoThreadLocal.remove();
+      // secondary connections only carry pieces of files
+      if (identityInfo.isSecondary()) {
+        return;
+      }
+      // stop pipe
       ReceiverService.getInstance()
           .receiveMsg(
               new SyncRequest(
@@ -377,6 +354,7 @@ public class TransportServiceImpl implements TransportService.Iface {
         dir.listFiles((dir1, name) -> name.startsWith(tsFileName) && name.endsWith(PATCH_SUFFIX));
     if (targetFiles != null) {
       for (File targetFile : targetFiles) {
+        patchFileProgresses.remove(targetFile.getAbsolutePath());
         File newFile =
             new File(
                 dir,
@@ -395,4 +373,41 @@ public class TransportServiceImpl implements TransportService.Iface {
           String.format("Delete record file %s error, because %s.", recordFile.getPath(), e));
     }
   }
+
+  private ByteBuffer uncompress(ByteBuffer buff, MetaInfo metaInfo) throws IOException {
+    byte[] compressed = new byte[buff.remaining()];
+    buff.get(compressed);
+    byte[] uncompressed = new byte[metaInfo.getUncompressedLength()];
+    IUnCompressor.getUnCompressor(CompressionType.deserialize(metaInfo.getCompressionType()))
+        .uncompress(compressed, 0, compressed.length, uncompressed, 0);
+    return ByteBuffer.wrap(uncompressed);
+  }
+
+  /**
+   * Pieces of a patch file may arrive out of order. The record file only keeps the length received
+   * continuously from the beginning, the pieces after it are kept in memory.
+   */
+  private static class PatchFileProgress {
+
+    /** -1 means not loaded from the record file yet */
+    private long receivedLength = -1;
+
+    /** start offset -> end offset of the pieces received after receivedLength */
+    private final TreeMap<Long, Long> pendingPieces = new TreeMap<>();
+
+    /** @return true if receivedLength grows */
+    private boolean receive(long start, long end) {
+      if (start > receivedLength) {
+        pendingPieces.merge(start, end, Math::max);
+        return false;
+      }
+      receivedLength = Math.max(receivedLength, end);
+      Map.Entry<Long, Long> next;
+      while ((next = pendingPieces.firstEntry()) != null && next.getKey() <= receivedLength) {
+        receivedLength = Math.max(receivedLength, next.getValue());
+        pendingPieces.pollFirstEntry();
+      }
+      return true;
+    }
+  }
 }
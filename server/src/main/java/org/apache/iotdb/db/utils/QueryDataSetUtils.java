@@ -31,6 +31,7 @@ import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
 import org.apache.iotdb.tsfile.utils.Binary;
 import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.utils.BytesUtils;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
@@ -369,11 +370,7 @@ public class QueryDataSetUtils {
   }
 
   public static long[] readTimesFromBuffer(ByteBuffer buffer, int size) {
-    long[] times = new long[size];
-    for (int i = 0; i < size; i++) {
-      times[i] = buffer.getLong();
-    }
-    return times;
+    return ReadWriteIOUtils.readLongs(buffer, size);
   }
 
   public static long[] readTimesFromStream(DataInputStream stream, int size) throws IOException {
@@ -393,9 +390,7 @@ public class QueryDataSetUtils {
       boolean hasBitMap = BytesUtils.byteToBool(buffer.get());
       if (hasBitMap) {
         byte[] bytes = new byte[size / Byte.SIZE + 1];
-        for (int j = 0; j < bytes.length; j++) {
-          bytes[j] = buffer.get();
-        }
+        buffer.get(bytes);
         bitMaps[i] = new BitMap(size, bytes);
       }
     }
@@ -440,6 +435,11 @@ public class QueryDataSetUtils {
   }
 
   /**
+   * The columns are decoded into arrays of the insert node rather than into the memtable. The node
+   * is also written to the WAL and replicated by consensus before it reaches the memtable, and the
+   * TVLists copy the arrays into their own pooled chunks with System.arraycopy after sorting checks
+   * and null dropping, so decoding straight into them is not done here.
+   *
    * @param buffer data values
    * @param columns column number
    * @param size value count in each column
@@ -458,32 +458,16 @@ public class QueryDataSetUtils {
           values[i] = boolValues;
           break;
         case INT32:
-          int[] intValues = new int[size];
-          for (int index = 0; index < size; index++) {
-            intValues[index] = buffer.getInt();
-          }
-          values[i] = intValues;
+          values[i] = ReadWriteIOUtils.readInts(buffer, size);
           break;
         case INT64:
-          long[] longValues = new long[size];
-          for (int index = 0; index < size; index++) {
-            longValues[index] = buffer.getLong();
-          }
-          values[i] = longValues;
+          values[i] = ReadWriteIOUtils.readLongs(buffer, size);
           break;
         case FLOAT:
-          float[] floatValues = new float[size];
-          for (int index = 0; index < size; index++) {
-            floatValues[index] = buffer.getFloat();
-          }
-          values[i] = floatValues;
+          values[i] = ReadWriteIOUtils.readFloats(buffer, size);
           break;
         case DOUBLE:
-          double[] doubleValues = new double[size];
-          for (int index = 0; index < size; index++) {
-            doubleValues[index] = buffer.getDouble();
-          }
-          values[i] = doubleValues;
+          values[i] = ReadWriteIOUtils.readDoubles(buffer, size);
           break;
         case TEXT:
           Binary[] binaryValues = new Binary[size];
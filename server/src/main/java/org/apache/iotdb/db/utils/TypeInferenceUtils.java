@@ -114,6 +114,7 @@ public class TypeInferenceUtils {
       case SQLConstant.MIN_TIME:
       case SQLConstant.MAX_TIME:
       case SQLConstant.COUNT:
+      case SQLConstant.APPROX_COUNT_DISTINCT:
         return TSDataType.INT64;
       case SQLConstant.MIN_VALUE:
       case SQLConstant.LAST_VALUE:
@@ -123,6 +124,7 @@ public class TypeInferenceUtils {
         return dataType;
       case SQLConstant.AVG:
       case SQLConstant.SUM:
+      case SQLConstant.APPROX_PERCENTILE:
         return TSDataType.DOUBLE;
       default:
         throw new IllegalArgumentException("Invalid Aggregation function: " + aggrFuncName);
@@ -21,9 +21,11 @@ package org.apache.iotdb.db.wal;
 import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
 import org.apache.iotdb.commons.concurrent.ThreadName;
 import org.apache.iotdb.commons.exception.StartupException;
+import org.apache.iotdb.commons.file.SystemFileFactory;
 import org.apache.iotdb.commons.service.IService;
 import org.apache.iotdb.commons.service.ServiceType;
 import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.consensus.ConsensusFactory;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.conf.directories.FolderManager;
@@ -34,14 +36,18 @@ import org.apache.iotdb.db.wal.node.WALFakeNode;
 import org.apache.iotdb.db.wal.node.WALNode;
 import org.apache.iotdb.db.wal.utils.WALMode;
 
+import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -69,11 +75,74 @@ public class WALManager implements IService {
   /** each wal node has a unique long value identifier */
   private long nodeIdCounter = -1;
   // endregion
+  /**
+   * applicant unique id -> wal node, with {@link ConsensusFactory#MULTI_LEADER_CONSENSUS} each data
+   * region has a wal node of its own, from which its writes are read by their search indices
+   */
+  private final Map<String, WALNode> dedicatedWALNodes = new ConcurrentHashMap<>();
   /** single thread to delete old .wal files */
   private ScheduledExecutorService walDeleteThread;
 
   private WALManager() {}
 
+  /** Return true when each data region should have a wal node of its own */
+  public static boolean isWALNodeDedicated() {
+    return config.getWalMode() != WALMode.DISABLE
+        && config.isClusterMode()
+        && ConsensusFactory.MULTI_LEADER_CONSENSUS.equals(config.getConsensusProtocolClass());
+  }
+
+  /**
+   * Apply for a wal node of the applicant, e.g. a data region. The applicant has a wal node of its
+   * own when {@link #isWALNodeDedicated()}, otherwise this is the same as {@link
+   * #applyForWALNode()}.
+   */
+  public IWALNode applyForWALNode(String applicantUniqueId) {
+    if (!isWALNodeDedicated()) {
+      return applyForWALNode();
+    }
+    try {
+      return dedicatedWALNodes.computeIfAbsent(applicantUniqueId, this::createDedicatedWALNode);
+    } catch (IllegalStateException e) {
+      return WALFakeNode.getFailureInstance((Exception) e.getCause());
+    }
+  }
+
+  private WALNode createDedicatedWALNode(String applicantUniqueId) {
+    String folder;
+    try {
+      folder = folderManager.getNextFolder();
+    } catch (DiskSpaceInsufficientException e) {
+      logger.error("All disks of wal folders are full, change system mode to read-only.", e);
+      config.setReadOnly(true);
+      throw new IllegalStateException(e);
+    }
+    try {
+      return new WALNode(applicantUniqueId, folder + File.separator + applicantUniqueId);
+    } catch (FileNotFoundException e) {
+      logger.error("Fail to create wal node", e);
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Get the wal node of the applicant, null if it does not have a wal node of its own */
+  public WALNode getDedicatedWALNode(String applicantUniqueId) {
+    return dedicatedWALNodes.get(applicantUniqueId);
+  }
+
+  /** Close the wal node of the applicant and delete its files, e.g. when a region is deleted */
+  public void deleteDedicatedWALNode(String applicantUniqueId) {
+    WALNode walNode = dedicatedWALNodes.remove(applicantUniqueId);
+    if (walNode != null) {
+      walNode.close();
+      try {
+        FileUtils.deleteDirectory(SystemFileFactory.INSTANCE.getFile(walNode.getLogDirectory()));
+      } catch (IOException e) {
+        logger.warn("Fail to delete wal node-{}'s files.", applicantUniqueId, e);
+      }
+    }
+  }
+
   /** Apply for a wal node */
   public IWALNode applyForWALNode() {
     if (config.getWalMode() == WALMode.DISABLE) {
@@ -182,6 +251,9 @@ public class WALManager implements IService {
     for (WALNode walNode : getNodesSnapshot()) {
       walNode.deleteOutdatedFiles();
     }
+    for (WALNode walNode : dedicatedWALNodes.values()) {
+      walNode.deleteOutdatedFiles();
+    }
   }
 
   private List<WALNode> getNodesSnapshot() {
@@ -234,6 +306,10 @@ public class WALManager implements IService {
         walNode.close();
       }
       walNodes.clear();
+      for (WALNode walNode : dedicatedWALNodes.values()) {
+        walNode.close();
+      }
+      dedicatedWALNodes.clear();
     } finally {
       nodesLock.unlock();
     }
@@ -23,6 +23,7 @@ import org.apache.iotdb.commons.file.SystemFileFactory;
 import org.apache.iotdb.commons.path.PartialPath;
 import org.apache.iotdb.commons.utils.TestOnly;
 import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+import org.apache.iotdb.consensus.common.request.IndexedConsensusRequest;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.StorageEngine;
@@ -30,6 +31,7 @@ import org.apache.iotdb.db.engine.flush.FlushStatus;
 import org.apache.iotdb.db.engine.memtable.IMemTable;
 import org.apache.iotdb.db.engine.storagegroup.DataRegion;
 import org.apache.iotdb.db.exception.StorageEngineException;
+import org.apache.iotdb.db.mpp.plan.planner.plan.node.write.InsertNode;
 import org.apache.iotdb.db.mpp.plan.planner.plan.node.write.InsertRowNode;
 import org.apache.iotdb.db.mpp.plan.planner.plan.node.write.InsertTabletNode;
 import org.apache.iotdb.db.qp.physical.crud.DeletePlan;
@@ -46,14 +48,29 @@ import org.apache.iotdb.db.wal.utils.listener.WALFlushListener;
 import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
 import org.apache.iotdb.tsfile.utils.TsFileUtils;
 
+import org.apache.commons.io.input.CountingInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
@@ -65,6 +82,8 @@ public class WALNode implements IWALNode {
 
   private static final Logger logger = LoggerFactory.getLogger(WALNode.class);
   private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  /** interval to check whether the next insert node has been written into the .wal files */
+  private static final long WAIT_FOR_NEXT_REQUEST_INTERVAL_IN_MS = 10;
 
   /** unique identifier of this WALNode */
   private final String identifier;
@@ -86,6 +105,18 @@ public class WALNode implements IWALNode {
   private final AtomicLong totalCostOfFlushedMemTables = new AtomicLong();
   /** version id -> cost sum of memTables flushed at this file version */
   private final Map<Integer, Long> walFileVersionId2MemTablesTotalCost = new ConcurrentHashMap<>();
+  /**
+   * version id -> max search index of the insert nodes logged when this version is the current
+   * one. An insert node is written into the .wal file of the version when it's logged or a later
+   * one, so the insert nodes in a .wal file are covered by the floor entry of its version id.
+   */
+  private final NavigableMap<Integer, Long> walFileVersionId2MaxSearchIndex =
+      new ConcurrentSkipListMap<>();
+  /**
+   * insert nodes whose search indices are smaller than this have been sent to all the peers of the
+   * consensus group, the .wal files containing the others should not be deleted
+   */
+  private volatile long safelyDeletedSearchIndex = InsertNode.DEFAULT_SAFELY_DELETED_SEARCH_INDEX;
 
   public WALNode(String identifier, String logDirectory) throws FileNotFoundException {
     this.identifier = identifier;
@@ -111,6 +142,7 @@ public class WALNode implements IWALNode {
 
   @Override
   public WALFlushListener log(int memTableId, InsertRowNode insertRowNode) {
+    updateSearchIndex(insertRowNode);
     WALEntry walEntry = new WALEntry(memTableId, insertRowNode);
     return log(walEntry);
   }
@@ -125,6 +157,7 @@ public class WALNode implements IWALNode {
   @Override
   public WALFlushListener log(
       int memTableId, InsertTabletNode insertTabletNode, int start, int end) {
+    updateSearchIndex(insertTabletNode);
     WALEntry walEntry = new WALEntry(memTableId, insertTabletNode, start, end);
     return log(walEntry);
   }
@@ -135,6 +168,15 @@ public class WALNode implements IWALNode {
     return log(walEntry);
   }
 
+  private void updateSearchIndex(InsertNode insertNode) {
+    if (insertNode.getSearchIndex() == InsertNode.NO_CONSENSUS_INDEX) {
+      return;
+    }
+    walFileVersionId2MaxSearchIndex.merge(
+        buffer.getCurrentWALFileVersion(), insertNode.getSearchIndex(), Math::max);
+    safelyDeletedSearchIndex = insertNode.getSafelyDeletedSearchIndex();
+  }
+
   private WALFlushListener log(WALEntry walEntry) {
     buffer.write(walEntry);
     return walEntry.getWalFlushListener();
@@ -185,9 +227,12 @@ public class WALNode implements IWALNode {
   private class DeleteOutdatedFileTask implements Runnable {
     /** .wal files whose version ids are less than first valid version id should be deleted */
     private int firstValidVersionId;
+    /** true when some .wal files are kept because their insert nodes are not sent to all peers */
+    private boolean keptForConsensus;
 
     @Override
     public void run() {
+      keptForConsensus = false;
       // init firstValidVersionId
       firstValidVersionId = checkpointManager.getFirstValidWALVersionId();
       if (firstValidVersionId == Integer.MIN_VALUE) {
@@ -224,7 +269,8 @@ public class WALNode implements IWALNode {
       // effective information ratio is too small
       // update first valid version id by snapshotting or flushing memTable,
       // then delete old .wal files again
-      if (effectiveInfoRatio < config.getWalMinEffectiveInfoRatio()) {
+      // it's useless when the old .wal files are kept for the consensus group
+      if (effectiveInfoRatio < config.getWalMinEffectiveInfoRatio() && !keptForConsensus) {
         logger.info(
             "Effective information ratio {} of wal node-{} is below wal min effective info ratio {}, some mamTables will be snapshot or flushed.",
             effectiveInfoRatio,
@@ -249,6 +295,7 @@ public class WALNode implements IWALNode {
           if (memTableRamCostSum != null) {
             totalCostOfFlushedMemTables.addAndGet(-memTableRamCostSum);
           }
+          walFileVersionId2MaxSearchIndex.headMap(versionId).clear();
         }
       }
     }
@@ -260,10 +307,20 @@ public class WALNode implements IWALNode {
       if (matcher.find()) {
         int versionId = Integer.parseInt(matcher.group("versionId"));
         toDelete = versionId < firstValidVersionId;
+        if (toDelete && !isSentToAllPeers(versionId)) {
+          toDelete = false;
+          keptForConsensus = true;
+        }
       }
       return toDelete;
     }
 
+    private boolean isSentToAllPeers(int versionId) {
+      Map.Entry<Integer, Long> maxSearchIndex =
+          walFileVersionId2MaxSearchIndex.floorEntry(versionId);
+      return maxSearchIndex == null || maxSearchIndex.getValue() < safelyDeletedSearchIndex;
+    }
+
     private void snapshotOrFlushMemTable() {
       // find oldest memTable
       MemTableInfo oldestMemTableInfo = checkpointManager.getOldestMemTableInfo();
@@ -377,45 +434,163 @@ public class WALNode implements IWALNode {
   // endregion
 
   // region Search interfaces for consensus group
+  /** Get the first insert node with the search index */
   @Override
   public IConsensusRequest getReq(long index) {
+    ReqIterator iterator = getReqIterator(index);
+    if (iterator.hasNext()) {
+      IndexedConsensusRequest request = (IndexedConsensusRequest) iterator.next();
+      if (request.getSearchIndex() == index) {
+        return request;
+      }
+    }
     return null;
   }
 
   @Override
   public List<IConsensusRequest> getReqs(long startIndex, int num) {
-    return null;
+    List<IConsensusRequest> requests = new ArrayList<>(num);
+    ReqIterator iterator = getReqIterator(startIndex);
+    while (requests.size() < num && iterator.hasNext()) {
+      requests.add(iterator.next());
+    }
+    return requests;
   }
 
+  /**
+   * Iterate the insert nodes logged with search indices, from the first one whose search index is
+   * not smaller than the start index. Each insert node is returned in an {@link
+   * IndexedConsensusRequest}, the insert nodes split from one write share the same search index.
+   * The insert nodes are read from the .wal files, including the one being written.
+   */
   @Override
   public ReqIterator getReqIterator(long startIndex) {
-    return new PlanNodeIterator();
+    return new PlanNodeIterator(startIndex);
   }
 
   private class PlanNodeIterator implements ReqIterator {
+    /** insert nodes whose search indices are smaller than this are skipped */
+    private long startIndex;
+    /** version id of the .wal file being read */
+    private int currentFileVersion = Integer.MIN_VALUE;
+    /** position after the last complete WALEntry read from the current .wal file */
+    private long currentFileOffset = 0;
+    /** insert nodes read but not returned yet */
+    private final Deque<IndexedConsensusRequest> pendingRequests = new ArrayDeque<>();
+
+    private PlanNodeIterator(long startIndex) {
+      this.startIndex = startIndex;
+    }
+
     @Override
     public boolean hasNext() {
-      return false;
+      if (pendingRequests.isEmpty()) {
+        readNextRequests();
+      }
+      return !pendingRequests.isEmpty();
     }
 
     @Override
     public IConsensusRequest next() {
-      return null;
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return pendingRequests.poll();
     }
 
     @Override
     public IConsensusRequest waitForNext() throws InterruptedException {
-      return null;
+      while (!hasNext()) {
+        TimeUnit.MILLISECONDS.sleep(WAIT_FOR_NEXT_REQUEST_INTERVAL_IN_MS);
+      }
+      return pendingRequests.poll();
     }
 
     @Override
     public IConsensusRequest waitForNext(long timeout)
         throws InterruptedException, TimeoutException {
-      return null;
+      long deadline = System.currentTimeMillis() + timeout;
+      while (!hasNext()) {
+        long remainingTime = deadline - System.currentTimeMillis();
+        if (remainingTime <= 0) {
+          throw new TimeoutException();
+        }
+        TimeUnit.MILLISECONDS.sleep(
+            Math.min(remainingTime, WAIT_FOR_NEXT_REQUEST_INTERVAL_IN_MS));
+      }
+      return pendingRequests.poll();
     }
 
     @Override
-    public void skipTo(long targetIndex) {}
+    public void skipTo(long targetIndex) {
+      startIndex = targetIndex;
+      pendingRequests.removeIf(request -> request.getSearchIndex() < targetIndex);
+    }
+
+    /** Read the .wal files from the current position until some insert nodes are found. */
+    private void readNextRequests() {
+      File[] walFiles =
+          SystemFileFactory.INSTANCE
+              .getFile(logDirectory)
+              .listFiles(WALWriter::walFilenameFilter);
+      if (walFiles == null) {
+        return;
+      }
+      Arrays.sort(
+          walFiles, Comparator.comparingInt(file -> WALWriter.parseVersionId(file.getName())));
+      for (File walFile : walFiles) {
+        int versionId = WALWriter.parseVersionId(walFile.getName());
+        if (versionId < currentFileVersion) {
+          continue;
+        }
+        // files are read one by one, a file is complete once there is a newer one
+        if (versionId > currentFileVersion) {
+          currentFileVersion = versionId;
+          currentFileOffset = 0;
+        }
+        Map.Entry<Integer, Long> maxSearchIndex =
+            walFileVersionId2MaxSearchIndex.floorEntry(versionId);
+        if (maxSearchIndex == null || maxSearchIndex.getValue() < startIndex) {
+          continue;
+        }
+        readFile(walFile);
+        if (!pendingRequests.isEmpty()) {
+          return;
+        }
+      }
+    }
+
+    private void readFile(File walFile) {
+      try (FileInputStream fileInputStream = new FileInputStream(walFile)) {
+        fileInputStream.getChannel().position(currentFileOffset);
+        CountingInputStream countingStream =
+            new CountingInputStream(new BufferedInputStream(fileInputStream));
+        DataInputStream stream = new DataInputStream(countingStream);
+        long startOffset = currentFileOffset;
+        while (true) {
+          WALEntry walEntry;
+          try {
+            walEntry = WALEntry.deserialize(stream);
+          } catch (EOFException e) {
+            // reach the end of the file, or an entry is being written
+            return;
+          }
+          currentFileOffset = startOffset + countingStream.getByteCount();
+          if (walEntry.getValue() instanceof InsertNode) {
+            InsertNode insertNode = (InsertNode) walEntry.getValue();
+            long searchIndex = insertNode.getSearchIndex();
+            if (searchIndex != InsertNode.NO_CONSENSUS_INDEX && searchIndex >= startIndex) {
+              pendingRequests.add(new IndexedConsensusRequest(searchIndex, insertNode));
+            }
+          }
+        }
+      } catch (FileNotFoundException e) {
+        // the file has been deleted, the insert nodes in it have been sent to all the peers
+        logger.debug("Wal file {} of wal node-{} has been deleted.", walFile, identifier);
+      } catch (IOException | IllegalPathException e) {
+        logger.warn("Fail to read insert nodes from wal file {}.", walFile, e);
+      }
+    }
   }
   // endregion
 
@@ -425,6 +600,10 @@ public class WALNode implements IWALNode {
     checkpointManager.close();
   }
 
+  public String getLogDirectory() {
+    return logDirectory;
+  }
+
   @TestOnly
   boolean isAllWALEntriesConsumed() {
     return buffer.isAllWALEntriesConsumed();
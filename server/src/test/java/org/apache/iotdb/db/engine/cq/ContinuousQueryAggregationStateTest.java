@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cq;
+
+import org.apache.iotdb.commons.exception.IllegalPathException;
+import org.apache.iotdb.commons.path.PartialPath;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.query.dataset.ListDataSet;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ContinuousQueryAggregationStateTest {
+
+  private static final long INTERVAL = 10;
+
+  private final List<String> aggregations = Arrays.asList("count", "avg", "first_value");
+  private final List<TSDataType> seriesTypes =
+      Arrays.asList(TSDataType.DOUBLE, TSDataType.DOUBLE, TSDataType.DOUBLE);
+
+  @Test
+  public void emitUpdatedWindowsTest() throws Exception {
+    ContinuousQueryAggregationState state = createState(0);
+
+    insert(state, new long[] {1, 2, 11}, new double[] {1, 3, 5});
+    ContinuousQueryAggregationState.Emission emission = prepareEmission(state, 0, 20);
+    ListDataSet dataSet = emission.getDataSet();
+    assertRecord(dataSet.next(), 0, 2L, 2.0, 1.0);
+    assertRecord(dataSet.next(), 10, 1L, 5.0, 5.0);
+    assertFalse(dataSet.hasNext());
+    state.commitEmission(emission);
+
+    // the late point updates window 0, window 20 is emitted for the first time
+    insert(state, new long[] {0}, new double[] {8});
+    emission = prepareEmission(state, 0, 30);
+    dataSet = emission.getDataSet();
+    assertRecord(dataSet.next(), 0, 3L, 4.0, 8.0);
+    assertRecord(dataSet.next(), 20, 0L, null, null);
+    assertFalse(dataSet.hasNext());
+    state.commitEmission(emission);
+
+    emission = prepareEmission(state, 0, 30);
+    assertFalse(emission.getDataSet().hasNext());
+  }
+
+  @Test
+  public void incompleteWindowTest() throws Exception {
+    // the data of window 10 may have been inserted before the state was created
+    ContinuousQueryAggregationState state = createState(15);
+    insert(state, new long[] {21}, new double[] {1});
+    assertNull(prepareEmission(state, 10, 30).getDataSet());
+    assertNotNull(prepareEmission(state, 20, 30).getDataSet());
+
+    // the point may overwrite an existing one
+    insert(state, new long[] {23, 22}, new double[] {1, 2});
+    assertNull(prepareEmission(state, 20, 30).getDataSet());
+  }
+
+  @Test
+  public void deleteTest() throws Exception {
+    ContinuousQueryAggregationState state = createState(0);
+    insert(state, new long[] {1, 11, 21}, new double[] {1, 2, 3});
+    state.commitEmission(prepareEmission(state, 0, 30));
+
+    // window 0 is deleted as a whole
+    state.delete(new PartialPath("root.sg.d.*"), 0, 9);
+    ContinuousQueryAggregationState.Emission emission = prepareEmission(state, 0, 30);
+    ListDataSet dataSet = emission.getDataSet();
+    assertRecord(dataSet.next(), 0, 0L, null, null);
+    assertFalse(dataSet.hasNext());
+    state.commitEmission(emission);
+
+    // window 10 is partially deleted
+    state.delete(new PartialPath("root.sg.d.s"), 11, 11);
+    assertNull(prepareEmission(state, 0, 30).getDataSet());
+    assertNotNull(prepareEmission(state, 20, 40).getDataSet());
+  }
+
+  @Test
+  public void loadTest() throws Exception {
+    ContinuousQueryAggregationState state = createState(0);
+    insert(state, new long[] {1, 11, 21}, new double[] {1, 2, 3});
+    state.commitEmission(prepareEmission(state, 0, 30));
+
+    // the loaded data of root.sg.d could not be observed, the device of root.sg1 matches nothing
+    TsFileResource tsFileResource = new TsFileResource(new File("1-1-0-0.tsfile"));
+    tsFileResource.updateStartTime("root.sg.d", 12);
+    tsFileResource.updateEndTime("root.sg.d", 14);
+    tsFileResource.updateStartTime("root.sg1.d", 22);
+    tsFileResource.updateEndTime("root.sg1.d", 25);
+    state.invalidate(tsFileResource);
+    assertNull(prepareEmission(state, 0, 30).getDataSet());
+    assertNull(prepareEmission(state, 10, 20).getDataSet());
+    assertNotNull(prepareEmission(state, 20, 40).getDataSet());
+
+    // the loaded time range is evicted with its windows
+    state.commitEmission(prepareEmission(state, 20, 40));
+    assertNotNull(prepareEmission(state, 20, 50).getDataSet());
+  }
+
+  @Test
+  public void evictTest() throws Exception {
+    ContinuousQueryAggregationState state = createState(0);
+    insert(state, new long[] {1, 11}, new double[] {1, 2});
+    state.commitEmission(prepareEmission(state, 0, 20));
+    state.commitEmission(prepareEmission(state, 10, 30));
+
+    // window 0 will never be emitted again
+    insert(state, new long[] {0, 12}, new double[] {3, 4});
+    ListDataSet dataSet = prepareEmission(state, 10, 40).getDataSet();
+    assertRecord(dataSet.next(), 10, 2L, 3.0, 2.0);
+    assertRecord(dataSet.next(), 30, 0L, null, null);
+    assertFalse(dataSet.hasNext());
+  }
+
+  private ContinuousQueryAggregationState createState(long currentTime)
+      throws IllegalPathException {
+    return new ContinuousQueryAggregationState(
+        0,
+        INTERVAL,
+        Collections.singletonList(new PartialPath("root.sg.*.s")),
+        currentTime);
+  }
+
+  private ContinuousQueryAggregationState.Emission prepareEmission(
+      ContinuousQueryAggregationState state, long beginTime, long endTime)
+      throws IllegalPathException {
+    PartialPath path = new PartialPath("root.sg.d.s");
+    return state.prepareEmission(
+        Arrays.asList(path, path, path), aggregations, seriesTypes, beginTime, endTime);
+  }
+
+  private static void insert(ContinuousQueryAggregationState state, long[] times, double[] values)
+      throws IllegalPathException {
+    InsertTabletPlan plan = new InsertTabletPlan(new PartialPath("root.sg.d"), new String[] {"s"});
+    plan.setDataTypes(new TSDataType[] {TSDataType.DOUBLE});
+    plan.setTimes(times);
+    plan.setColumns(new Object[] {values});
+    plan.setRowCount(times.length);
+    state.update(plan, 0, times.length);
+  }
+
+  private static void assertRecord(
+      RowRecord record, long time, Long count, Double avg, Double firstValue) {
+    assertEquals(time, record.getTimestamp());
+    List<Field> fields = record.getFields();
+    assertEquals(count, fields.get(0) == null ? null : fields.get(0).getLongV());
+    assertEquals(avg, fields.get(1) == null ? null : fields.get(1).getDoubleV());
+    assertEquals(firstValue, fields.get(2) == null ? null : fields.get(2).getDoubleV());
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.migration;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.commons.consensus.DataRegionId;
+import org.apache.iotdb.commons.utils.StatusUtils;
+import org.apache.iotdb.mpp.rpc.thrift.InternalService;
+import org.apache.iotdb.mpp.rpc.thrift.TFetchRegionFileReq;
+import org.apache.iotdb.mpp.rpc.thrift.TFetchRegionFileResp;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionFile;
+import org.apache.iotdb.mpp.rpc.thrift.TRegionFilesResp;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class RegionPullerTest {
+
+  private static final DataRegionId REGION_ID = new DataRegionId(1);
+
+  private final File sourceDir = new File("target" + File.separator + "region-puller-source");
+  private final File targetDir = new File("target" + File.separator + "region-puller-target");
+
+  @Before
+  public void setUp() throws IOException {
+    FileUtils.deleteDirectory(sourceDir);
+    FileUtils.deleteDirectory(targetDir);
+    Assert.assertTrue(sourceDir.mkdirs());
+    Assert.assertTrue(targetDir.mkdirs());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(sourceDir);
+    FileUtils.deleteDirectory(targetDir);
+  }
+
+  @Test
+  public void testPullFiles() throws Exception {
+    // larger than a chunk, so it is fetched in several requests
+    File tsFile = createSourceFile("1-1-0-0.tsfile", 2 * 1024 * 1024 + 100);
+    File resourceFile = createSourceFile("1-1-0-0.tsfile.resource", 100);
+    File emptyModsFile = createSourceFile("1-1-0-0.tsfile.mods", 0);
+    InternalService.Iface client =
+        mockSource(Arrays.asList(tsFile, resourceFile, emptyModsFile), 42, 0);
+
+    RegionPuller.PullProgress progress = new RegionPuller.PullProgress();
+    RegionPuller.getInstance().pullFiles(REGION_ID, client, targetDir, progress);
+
+    for (File sourceFile : Arrays.asList(tsFile, resourceFile, emptyModsFile)) {
+      File pulledFile = new File(targetDir, sourceFile.getName());
+      Assert.assertTrue(pulledFile.exists());
+      Assert.assertArrayEquals(
+          Files.readAllBytes(sourceFile.toPath()), Files.readAllBytes(pulledFile.toPath()));
+    }
+    long totalBytes = tsFile.length() + resourceFile.length();
+    Assert.assertEquals(totalBytes, progress.getTotalBytes());
+    Assert.assertEquals(totalBytes, progress.getTransferredBytes());
+    Assert.assertEquals(42, progress.getConsensusIndex());
+    Mockito.verify(client, Mockito.times(4)).fetchRegionFile(Mockito.any());
+  }
+
+  @Test(expected = IOException.class)
+  public void testPullTruncatedFile() throws Exception {
+    File tsFile = createSourceFile("1-1-0-0.tsfile", 1024);
+    // the file is truncated on the source after it is listed
+    InternalService.Iface client = mockSource(Arrays.asList(tsFile), 42, 100);
+
+    RegionPuller.getInstance()
+        .pullFiles(REGION_ID, client, targetDir, new RegionPuller.PullProgress());
+  }
+
+  @Test
+  public void testCancelPulling() throws Exception {
+    File tsFile = createSourceFile("1-1-0-0.tsfile", 1024);
+    InternalService.Iface client = mockSource(Arrays.asList(tsFile), 42, 0);
+
+    RegionPuller.getInstance().cancel(REGION_ID);
+    Assert.assertNull(RegionPuller.getInstance().getProgress(REGION_ID));
+
+    RegionPuller.PullProgress progress = new RegionPuller.PullProgress();
+    progress.cancel();
+    try {
+      RegionPuller.getInstance().pullFiles(REGION_ID, client, targetDir, progress);
+      Assert.fail("A cancelled pulling should stop");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("cancelled"));
+    }
+    Mockito.verify(client, Mockito.never()).fetchRegionFile(Mockito.any());
+  }
+
+  private File createSourceFile(String name, int length) throws IOException {
+    byte[] content = new byte[length];
+    new Random(length).nextBytes(content);
+    File file = new File(sourceDir, name);
+    Files.write(file.toPath(), content);
+    return file;
+  }
+
+  /**
+   * Mock a source that lists the files with their current lengths and serves the chunks from them.
+   * The last missingBytes bytes of each file could not be read.
+   */
+  private InternalService.Iface mockSource(List<File> files, long consensusIndex, int missingBytes)
+      throws Exception {
+    List<TRegionFile> regionFiles = new ArrayList<>();
+    for (File file : files) {
+      regionFiles.add(new TRegionFile(file.getAbsolutePath(), file.length()));
+    }
+    TRegionFilesResp filesResp = new TRegionFilesResp(StatusUtils.OK);
+    filesResp.setFiles(regionFiles);
+    filesResp.setConsensusIndex(consensusIndex);
+
+    InternalService.Iface client = Mockito.mock(InternalService.Iface.class);
+    Mockito.when(client.listRegionFiles(Mockito.any(TConsensusGroupId.class)))
+        .thenReturn(filesResp);
+    Mockito.when(client.fetchRegionFile(Mockito.any(TFetchRegionFileReq.class)))
+        .thenAnswer(
+            invocation -> {
+              TFetchRegionFileReq req = invocation.getArgument(0);
+              byte[] content = Files.readAllBytes(new File(req.getFileName()).toPath());
+              int readableLength = content.length - missingBytes;
+              int offset = (int) req.getOffset();
+              int length = Math.max(0, Math.min(req.getLength(), readableLength - offset));
+              TFetchRegionFileResp resp = new TFetchRegionFileResp(StatusUtils.OK);
+              resp.setData(ByteBuffer.wrap(content, offset, length).slice());
+              return resp;
+            });
+    return client;
+  }
+}
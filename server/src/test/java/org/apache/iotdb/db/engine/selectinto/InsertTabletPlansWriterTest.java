@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.selectinto;
+
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.commons.exception.IllegalPathException;
+import org.apache.iotdb.commons.path.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InsertTabletPlansWriterTest {
+
+  @Test
+  public void mergeTabletsTest() throws IllegalPathException {
+    List<InsertTabletPlan> merged =
+        InsertTabletPlansWriter.mergeTablets(
+            Arrays.asList(
+                createTablet("root.sg.d1", "s1", new long[] {1, 2}),
+                createTablet("root.sg.d2", "s1", new long[] {1}),
+                createTablet("root.sg.d1", "s2", new long[] {3}),
+                createTablet("root.sg.d1", "s1", new long[] {4})));
+    assertEquals(3, merged.size());
+
+    InsertTabletPlan tablet = merged.get(0);
+    assertEquals("root.sg.d1", tablet.getDevicePath().getFullPath());
+    assertEquals(3, tablet.getRowCount());
+    assertArrayEquals(new long[] {1, 2, 4}, tablet.getTimes());
+    assertArrayEquals(new double[] {1, 2, 4}, (double[]) tablet.getColumns()[0], 0);
+    // the second value of each tablet is null
+    assertFalse(tablet.getBitMaps()[0].isMarked(0));
+    assertTrue(tablet.getBitMaps()[0].isMarked(1));
+    assertFalse(tablet.getBitMaps()[0].isMarked(2));
+
+    assertEquals("root.sg.d2", merged.get(1).getDevicePath().getFullPath());
+    assertEquals("s2", merged.get(2).getMeasurements()[0]);
+  }
+
+  @Test
+  public void writeTest() throws Exception {
+    List<InsertTabletPlan> insertedTablets = Collections.synchronizedList(new ArrayList<>());
+    InsertTabletPlansWriter writer =
+        new InsertTabletPlansWriter(
+            plan -> {
+              insertedTablets.addAll(plan.getInsertTabletPlanList());
+              return RpcUtils.SUCCESS_STATUS;
+            },
+            InsertTabletPlansWriterTest::resolveStorageGroup);
+    for (int i = 0; i < 100; ++i) {
+      assertTrue(
+          writer.write(
+              Arrays.asList(
+                  createTablet("root.sg1.d", "s", new long[] {i}),
+                  createTablet("root.sg2.d", "s", new long[] {i}))));
+    }
+    writer.close();
+
+    assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), writer.getStatus().getCode());
+    int rowCount = 0;
+    for (InsertTabletPlan tablet : insertedTablets) {
+      rowCount += tablet.getRowCount();
+    }
+    assertEquals(200, rowCount);
+  }
+
+  @Test
+  public void writeFailureTest() throws Exception {
+    AtomicInteger insertCount = new AtomicInteger();
+    TSStatus failure = RpcUtils.getStatus(TSStatusCode.WRITE_PROCESS_ERROR, "failed");
+    InsertTabletPlansWriter writer =
+        new InsertTabletPlansWriter(
+            plan -> {
+              insertCount.incrementAndGet();
+              return failure;
+            },
+            InsertTabletPlansWriterTest::resolveStorageGroup);
+    List<InsertTabletPlan> batch =
+        Collections.singletonList(createTablet("root.sg.d", "s", new long[] {1}));
+    assertTrue(writer.write(batch));
+    writer.close();
+
+    // the following batches are rejected once an insertion fails
+    assertFalse(writer.write(batch));
+    writer.close();
+    assertEquals(1, insertCount.get());
+    assertEquals(failure, writer.getStatus());
+  }
+
+  @Test
+  public void writeStorageGroupsConcurrentlyTest() throws Exception {
+    // the storage groups are below default_storage_group_level, and each of them has a lane
+    CountDownLatch insertingStorageGroups = new CountDownLatch(2);
+    AtomicInteger concurrentInsertions = new AtomicInteger();
+    InsertTabletPlansWriter writer =
+        new InsertTabletPlansWriter(
+            plan -> {
+              insertingStorageGroups.countDown();
+              try {
+                // blocks until the other storage group is being inserted too
+                if (insertingStorageGroups.await(10, TimeUnit.SECONDS)) {
+                  concurrentInsertions.incrementAndGet();
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              return RpcUtils.SUCCESS_STATUS;
+            },
+            devicePath -> devicePath.getDevicePath());
+    assertTrue(
+        writer.write(
+            Arrays.asList(
+                createTablet("root.sg.a.d", "s", new long[] {1}),
+                createTablet("root.sg.b.d", "s", new long[] {1}))));
+    writer.close();
+
+    assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), writer.getStatus().getCode());
+    assertEquals(2, concurrentInsertions.get());
+  }
+
+  /** The storage group is the second level of the device, e.g. root.sg1 */
+  private static PartialPath resolveStorageGroup(PartialPath devicePath) {
+    return new PartialPath(Arrays.copyOf(devicePath.getNodes(), 2));
+  }
+
+  private static InsertTabletPlan createTablet(String device, String measurement, long[] times)
+      throws IllegalPathException {
+    InsertTabletPlan tablet =
+        new InsertTabletPlan(new PartialPath(device), new String[] {measurement});
+    double[] values = new double[times.length];
+    BitMap bitMap = new BitMap(times.length);
+    for (int i = 0; i < times.length; ++i) {
+      values[i] = times[i];
+      if (i % 2 == 1) {
+        bitMap.mark(i);
+      }
+    }
+    tablet.setRowCount(times.length);
+    tablet.setTimes(times);
+    tablet.setColumns(new Object[] {values});
+    tablet.setBitMaps(new BitMap[] {bitMap});
+    tablet.setDataTypes(new TSDataType[] {TSDataType.DOUBLE});
+    return tablet;
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.trigger.api;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColumnBatchTest {
+
+  @Test
+  public void testArrayHooksWithoutCopy() throws Exception {
+    long[] timestamps = {1, 2, 3};
+    int[] values = {10, 20, 30};
+    ArrayRecorder recorder = new ArrayRecorder();
+    recorder.fire(new ColumnBatch(TSDataType.INT32, timestamps, values, null, 0, 3));
+    // the batch covers the whole tablet, so the arrays are passed as they are
+    Assert.assertSame(timestamps, recorder.timestamps);
+    Assert.assertSame(values, recorder.values);
+  }
+
+  @Test
+  public void testArrayHooksSkipNulls() throws Exception {
+    long[] timestamps = {1, 2, 3, 4, 5};
+    int[] values = {10, 20, 30, 40, 50};
+    BitMap bitMap = new BitMap(5);
+    bitMap.mark(2);
+    ColumnBatch batch = new ColumnBatch(TSDataType.INT32, timestamps, values, bitMap, 1, 5);
+    Assert.assertEquals(4, batch.size());
+    Assert.assertTrue(batch.hasNull());
+    Assert.assertTrue(batch.isNull(2));
+
+    ArrayRecorder recorder = new ArrayRecorder();
+    recorder.fire(batch);
+    Assert.assertArrayEquals(new long[] {2, 4, 5}, recorder.timestamps);
+    Assert.assertArrayEquals(new int[] {20, 40, 50}, recorder.values);
+    // the tablet is untouched
+    Assert.assertArrayEquals(new int[] {10, 20, 30, 40, 50}, values);
+  }
+
+  @Test
+  public void testNullsOutsideBatch() {
+    BitMap bitMap = new BitMap(3);
+    bitMap.mark(0);
+    ColumnBatch batch =
+        new ColumnBatch(TSDataType.DOUBLE, new long[] {1, 2, 3}, new double[3], bitMap, 1, 3);
+    Assert.assertFalse(batch.hasNull());
+  }
+
+  private static class ArrayRecorder implements Trigger {
+
+    private long[] timestamps;
+    private int[] values;
+
+    @Override
+    public int[] fire(long[] timestamps, int[] values) {
+      this.timestamps = timestamps;
+      this.values = values;
+      return values;
+    }
+  }
+}
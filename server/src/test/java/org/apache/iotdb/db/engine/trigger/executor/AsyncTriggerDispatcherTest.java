@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.trigger.executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncTriggerDispatcherTest {
+
+  @Test
+  public void testDropWhenFull() throws InterruptedException {
+    AsyncTriggerDispatcher dispatcher =
+        new AsyncTriggerDispatcher("drop-test", 1, AsyncTriggerDispatcher.RejectionPolicy.DROP);
+    CountDownLatch blocker = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    try {
+      // occupy the worker thread
+      dispatcher.submit(
+          () -> {
+            started.countDown();
+            awaitQuietly(blocker);
+          });
+      Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+      // fill the queue, then the next firings are dropped
+      dispatcher.submit(() -> {});
+      dispatcher.submit(() -> {});
+      dispatcher.submit(() -> {});
+      Assert.assertEquals(2, dispatcher.getDroppedTaskCount());
+    } finally {
+      blocker.countDown();
+      dispatcher.shutdown();
+    }
+  }
+
+  @Test
+  public void testBlockWhenFullKeepsOrder() throws InterruptedException {
+    AsyncTriggerDispatcher dispatcher =
+        new AsyncTriggerDispatcher("block-test", 2, AsyncTriggerDispatcher.RejectionPolicy.BLOCK);
+    List<Integer> fired = new ArrayList<>();
+    CountDownLatch finished = new CountDownLatch(1);
+    try {
+      for (int i = 0; i < 100; ++i) {
+        int index = i;
+        dispatcher.submit(
+            () -> {
+              fired.add(index);
+              sleepQuietly();
+            });
+      }
+      dispatcher.submit(finished::countDown);
+      Assert.assertTrue(finished.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(0, dispatcher.getDroppedTaskCount());
+      Assert.assertEquals(100, fired.size());
+      for (int i = 0; i < 100; ++i) {
+        Assert.assertEquals(i, (int) fired.get(i));
+      }
+    } finally {
+      dispatcher.shutdown();
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleepQuietly() {
+    try {
+      TimeUnit.MILLISECONDS.sleep(1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -835,4 +835,37 @@ public abstract class MTreeBelowSGTest {
     assertEquals(1, (int) result.get(new PartialPath("root.sg.a2.s1")));
     assertEquals(1, (int) result.get(new PartialPath("root.sg.a2.d1")));
   }
+
+  @Test
+  public void testCountAndCollectOnDeepTree() throws MetadataException {
+    storageGroup = getStorageGroup(new PartialPath("root.sg"));
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        for (int k = 0; k < 4; k++) {
+          for (int m = 0; m < 3; m++) {
+            storageGroup.createTimeseries(
+                new PartialPath(String.format("root.sg.a%d.b%d.c%d.d.s%d", i, j, k, m)),
+                TSDataType.INT32,
+                TSEncoding.RLE,
+                TSFileDescriptor.getInstance().getConfig().getCompressor(),
+                Collections.emptyMap(),
+                null);
+          }
+        }
+      }
+    }
+
+    assertEquals(192, storageGroup.getAllTimeseriesCount(new PartialPath("root.**")));
+    assertEquals(192, storageGroup.getAllTimeseriesCount(new PartialPath("root.sg"), true));
+    assertEquals(64, storageGroup.getAllTimeseriesCount(new PartialPath("root.**.s1")));
+    assertEquals(48, storageGroup.getAllTimeseriesCount(new PartialPath("root.sg.a1.**")));
+    assertEquals(4, storageGroup.getAllTimeseriesCount(new PartialPath("root.sg.a1.b2.*.d.s0")));
+    assertEquals(64, storageGroup.getDevicesNum(new PartialPath("root.**")));
+    assertEquals(16, storageGroup.getDevicesNum(new PartialPath("root.sg.*.b3.**")));
+
+    Pair<List<MeasurementPath>, Integer> result =
+        storageGroup.getMeasurementPathsWithAlias(new PartialPath("root.**"), 10, 5, false);
+    assertEquals(10, result.left.size());
+    assertEquals(15, (int) result.right);
+  }
 }
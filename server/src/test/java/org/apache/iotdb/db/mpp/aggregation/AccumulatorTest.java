@@ -19,12 +19,14 @@
 
 package org.apache.iotdb.db.mpp.aggregation;
 
+import org.apache.iotdb.db.mpp.aggregation.sketch.KLLSketch;
 import org.apache.iotdb.db.query.aggregation.AggregationType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.read.common.TimeRange;
 import org.apache.iotdb.tsfile.read.common.block.TsBlock;
 import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.BinaryColumnBuilder;
 import org.apache.iotdb.tsfile.read.common.block.column.Column;
 import org.apache.iotdb.tsfile.read.common.block.column.ColumnBuilder;
 import org.apache.iotdb.tsfile.read.common.block.column.DoubleColumnBuilder;
@@ -36,10 +38,15 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 public class AccumulatorTest {
 
+  /** The normalized rank error of KLLSketch with k = 200 is below 2% with high probability. */
+  private static final double KLL_RANK_ERROR_BOUND = 4.0 / KLLSketch.DEFAULT_K;
+
   private TsBlock rawData;
   private Statistics statistics;
   private TimeRange defaultTimeRange = new TimeRange(0, Long.MAX_VALUE);
@@ -422,4 +429,167 @@ public class AccumulatorTest {
     sumAccumulator.outputFinal(finalResult);
     Assert.assertEquals(100d, finalResult.build().getDouble(0), 0.001);
   }
+
+  @Test
+  public void approxCountDistinctAccumulatorTest() {
+    Accumulator approxCountDistinctAccumulator =
+        AccumulatorFactory.createAccumulator(
+            AggregationType.APPROX_COUNT_DISTINCT, TSDataType.DOUBLE, true);
+    Assert.assertEquals(TSDataType.TEXT, approxCountDistinctAccumulator.getIntermediateType()[0]);
+    Assert.assertEquals(TSDataType.INT64, approxCountDistinctAccumulator.getFinalType());
+    Assert.assertFalse(approxCountDistinctAccumulator.canUseStatistics());
+    // check returning null while no data
+    ColumnBuilder[] intermediateResult = new ColumnBuilder[1];
+    intermediateResult[0] = new BinaryColumnBuilder(null, 1);
+    approxCountDistinctAccumulator.outputIntermediate(intermediateResult);
+    Assert.assertTrue(intermediateResult[0].build().isNull(0));
+    ColumnBuilder finalResult = new LongColumnBuilder(null, 1);
+    approxCountDistinctAccumulator.outputFinal(finalResult);
+    Assert.assertTrue(finalResult.build().isNull(0));
+
+    approxCountDistinctAccumulator.addInput(rawData.getTimeAndValueColumn(0), defaultTimeRange);
+    Assert.assertFalse(approxCountDistinctAccumulator.hasFinalResult());
+    intermediateResult[0] = new BinaryColumnBuilder(null, 1);
+    approxCountDistinctAccumulator.outputIntermediate(intermediateResult);
+    finalResult = new LongColumnBuilder(null, 1);
+    approxCountDistinctAccumulator.outputFinal(finalResult);
+    Assert.assertEquals(100, finalResult.build().getLong(0), 5);
+
+    // merging the sketch of the same values should not change the estimation
+    approxCountDistinctAccumulator.addIntermediate(new Column[] {intermediateResult[0].build()});
+    finalResult = new LongColumnBuilder(null, 1);
+    approxCountDistinctAccumulator.outputFinal(finalResult);
+    Assert.assertEquals(100, finalResult.build().getLong(0), 5);
+
+    approxCountDistinctAccumulator.reset();
+    finalResult = new LongColumnBuilder(null, 1);
+    approxCountDistinctAccumulator.outputFinal(finalResult);
+    Assert.assertTrue(finalResult.build().isNull(0));
+  }
+
+  @Test
+  public void approxPercentileAccumulatorTest() {
+    Accumulator approxPercentileAccumulator =
+        AccumulatorFactory.createAccumulator(
+            AggregationType.APPROX_PERCENTILE,
+            TSDataType.DOUBLE,
+            Collections.singletonMap(ApproxPercentileAccumulator.PERCENTILE_ATTRIBUTE, "0.9"),
+            true);
+    Assert.assertEquals(TSDataType.TEXT, approxPercentileAccumulator.getIntermediateType()[0]);
+    Assert.assertEquals(TSDataType.DOUBLE, approxPercentileAccumulator.getFinalType());
+    Assert.assertFalse(approxPercentileAccumulator.canUseStatistics());
+    // check returning null while no data
+    ColumnBuilder[] intermediateResult = new ColumnBuilder[1];
+    intermediateResult[0] = new BinaryColumnBuilder(null, 1);
+    approxPercentileAccumulator.outputIntermediate(intermediateResult);
+    Assert.assertTrue(intermediateResult[0].build().isNull(0));
+    ColumnBuilder finalResult = new DoubleColumnBuilder(null, 1);
+    approxPercentileAccumulator.outputFinal(finalResult);
+    Assert.assertTrue(finalResult.build().isNull(0));
+
+    approxPercentileAccumulator.addInput(rawData.getTimeAndValueColumn(0), defaultTimeRange);
+    Assert.assertFalse(approxPercentileAccumulator.hasFinalResult());
+    intermediateResult[0] = new BinaryColumnBuilder(null, 1);
+    approxPercentileAccumulator.outputIntermediate(intermediateResult);
+    finalResult = new DoubleColumnBuilder(null, 1);
+    approxPercentileAccumulator.outputFinal(finalResult);
+    Assert.assertEquals(89d, finalResult.build().getDouble(0), 2);
+
+    // add intermediate result as input
+    approxPercentileAccumulator.addIntermediate(new Column[] {intermediateResult[0].build()});
+    finalResult = new DoubleColumnBuilder(null, 1);
+    approxPercentileAccumulator.outputFinal(finalResult);
+    Assert.assertEquals(89d, finalResult.build().getDouble(0), 2);
+
+    approxPercentileAccumulator.reset();
+    finalResult = new DoubleColumnBuilder(null, 1);
+    approxPercentileAccumulator.outputFinal(finalResult);
+    Assert.assertTrue(finalResult.build().isNull(0));
+  }
+
+  @Test
+  public void approxPercentileOfManyValuesTest() {
+    // far more values than k, so that the sketch is compacted many times
+    int n = 100_000;
+    List<Double> values = shuffledValues(n);
+    KLLSketch sketch = new KLLSketch();
+    for (double value : values) {
+      sketch.update(value);
+    }
+    Assert.assertEquals(n, sketch.getCount());
+    // the memory is bounded by about 3k items
+    Assert.assertTrue(sketch.serialize().length < 4 * KLLSketch.DEFAULT_K * Double.BYTES);
+    assertRankError(sketch, n);
+    Assert.assertEquals(0d, sketch.getQuantile(0), 0);
+    Assert.assertEquals(n - 1d, sketch.getQuantile(1), 0);
+  }
+
+  @Test
+  public void approxPercentileMergeCompactedSketchesTest() {
+    int n = 100_000;
+    int partNumber = 4;
+    List<Double> values = shuffledValues(n);
+
+    // each part is compacted before it is serialized and merged
+    KLLSketch[] parts = new KLLSketch[partNumber];
+    for (int i = 0; i < partNumber; i++) {
+      parts[i] = new KLLSketch();
+    }
+    for (int i = 0; i < n; i++) {
+      parts[i % partNumber].update(values.get(i));
+    }
+    KLLSketch merged = new KLLSketch();
+    for (KLLSketch part : parts) {
+      merged.merge(KLLSketch.deserialize(part.serialize()));
+    }
+    Assert.assertEquals(n, merged.getCount());
+    Assert.assertTrue(merged.serialize().length < 4 * KLLSketch.DEFAULT_K * Double.BYTES);
+    assertRankError(merged, n);
+
+    // the same through the intermediate results of the accumulators
+    Accumulator finalAccumulator = createApproxPercentileAccumulator("0.9");
+    for (int part = 0; part < partNumber; part++) {
+      TsBlockBuilder tsBlockBuilder =
+          new TsBlockBuilder(Collections.singletonList(TSDataType.DOUBLE));
+      for (int i = part; i < n; i += partNumber) {
+        tsBlockBuilder.getTimeColumnBuilder().writeLong(i);
+        tsBlockBuilder.getValueColumnBuilders()[0].writeDouble(values.get(i));
+        tsBlockBuilder.declarePosition();
+      }
+      Accumulator partialAccumulator = createApproxPercentileAccumulator("0.9");
+      partialAccumulator.addInput(
+          tsBlockBuilder.build().getTimeAndValueColumn(0), defaultTimeRange);
+      ColumnBuilder[] intermediateResult = new ColumnBuilder[] {new BinaryColumnBuilder(null, 1)};
+      partialAccumulator.outputIntermediate(intermediateResult);
+      finalAccumulator.addIntermediate(new Column[] {intermediateResult[0].build()});
+    }
+    ColumnBuilder finalResult = new DoubleColumnBuilder(null, 1);
+    finalAccumulator.outputFinal(finalResult);
+    Assert.assertEquals(0.9, finalResult.build().getDouble(0) / n, KLL_RANK_ERROR_BOUND);
+  }
+
+  /** Values 0 to n - 1, so that the rank of a value is the value itself. */
+  private List<Double> shuffledValues(int n) {
+    List<Double> values = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      values.add((double) i);
+    }
+    Collections.shuffle(values, new Random(0));
+    return values;
+  }
+
+  private void assertRankError(KLLSketch sketch, int n) {
+    for (int percent = 1; percent < 100; percent++) {
+      double quantile = percent / 100.0;
+      Assert.assertEquals(quantile, sketch.getQuantile(quantile) / n, KLL_RANK_ERROR_BOUND);
+    }
+  }
+
+  private Accumulator createApproxPercentileAccumulator(String percentile) {
+    return AccumulatorFactory.createAccumulator(
+        AggregationType.APPROX_PERCENTILE,
+        TSDataType.DOUBLE,
+        Collections.singletonMap(ApproxPercentileAccumulator.PERCENTILE_ATTRIBUTE, percentile),
+        true);
+  }
 }
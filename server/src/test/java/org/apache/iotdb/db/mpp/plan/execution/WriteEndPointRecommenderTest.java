@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.plan.execution;
+
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupId;
+import org.apache.iotdb.common.rpc.thrift.TConsensusGroupType;
+import org.apache.iotdb.common.rpc.thrift.TDataNodeLocation;
+import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.common.rpc.thrift.TRegionReplicaSet;
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.common.rpc.thrift.TSeriesPartitionSlot;
+import org.apache.iotdb.common.rpc.thrift.TTimePartitionSlot;
+import org.apache.iotdb.commons.partition.DataPartition;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.StorageEngineV2;
+import org.apache.iotdb.db.mpp.plan.parser.StatementGenerator;
+import org.apache.iotdb.db.mpp.plan.statement.Statement;
+import org.apache.iotdb.rpc.RedirectException;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordsReq;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class WriteEndPointRecommenderTest {
+
+  private static final TEndPoint LOCAL_END_POINT = new TEndPoint("127.0.0.1", 6667);
+
+  private final TDataNodeLocation localDataNode = newLocation(1, LOCAL_END_POINT);
+  private final TDataNodeLocation remoteDataNode1 =
+      newLocation(2, new TEndPoint("127.0.0.1", 6668));
+  private final TDataNodeLocation remoteDataNode2 =
+      newLocation(3, new TEndPoint("127.0.0.1", 6669));
+
+  // root.sg1 is led by a DataNode other than the first replica, root.sg2 is led by this DataNode
+  private final TRegionReplicaSet region1 =
+      new TRegionReplicaSet(
+          new TConsensusGroupId(TConsensusGroupType.DataRegion, 1),
+          Arrays.asList(localDataNode, remoteDataNode1));
+  private final TRegionReplicaSet region2 =
+      new TRegionReplicaSet(
+          new TConsensusGroupId(TConsensusGroupType.DataRegion, 2),
+          Arrays.asList(remoteDataNode2, localDataNode));
+
+  private final Map<TConsensusGroupId, TDataNodeLocation> leaderMap = new HashMap<>();
+
+  private boolean prevEnablePartition;
+  private DataPartition dataPartition;
+  private WriteEndPointRecommender recommender;
+
+  @Before
+  public void setUp() {
+    prevEnablePartition = StorageEngineV2.isEnablePartition();
+    StorageEngineV2.setEnablePartition(false);
+
+    String executorClassName =
+        IoTDBDescriptor.getInstance().getConfig().getSeriesPartitionExecutorClass();
+    int seriesSlotNum = IoTDBDescriptor.getInstance().getConfig().getSeriesPartitionSlotNum();
+    Map<String, Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>>
+        dataPartitionMap = new HashMap<>();
+    dataPartitionMap.put("root.sg1", newSeriesPartitionMap(seriesSlotNum, region1));
+    dataPartitionMap.put("root.sg2", newSeriesPartitionMap(seriesSlotNum, region2));
+    dataPartition = new DataPartition(dataPartitionMap, executorClassName, seriesSlotNum);
+
+    leaderMap.put(region1.getRegionId(), remoteDataNode1);
+    leaderMap.put(region2.getRegionId(), localDataNode);
+    recommender =
+        new WriteEndPointRecommender(r -> leaderMap.get(r.getRegionId()), LOCAL_END_POINT);
+  }
+
+  @After
+  public void tearDown() {
+    StorageEngineV2.setEnablePartition(prevEnablePartition);
+  }
+
+  @Test
+  public void testRecommendLeaderOfOneDevice() throws Exception {
+    TSInsertStringRecordReq req =
+        new TSInsertStringRecordReq(
+            0, "root.sg1.d1", Collections.singletonList("s1"), Collections.singletonList("1"), 1);
+    TSStatus status = recommend(StatementGenerator.createStatement(req));
+
+    Assert.assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), status.getCode());
+    Assert.assertEquals(remoteDataNode1.getExternalEndPoint(), status.getRedirectNode());
+    try {
+      RpcUtils.verifySuccessWithRedirection(status);
+      Assert.fail();
+    } catch (RedirectException e) {
+      Assert.assertEquals(remoteDataNode1.getExternalEndPoint(), e.getEndPoint());
+    }
+
+    // nothing is recommended if the leader is unknown
+    leaderMap.clear();
+    status = recommend(StatementGenerator.createStatement(req));
+    Assert.assertFalse(status.isSetRedirectNode());
+  }
+
+  @Test
+  public void testRecommendLeadersOfSessionInsertRecords() throws Exception {
+    List<String> devices = Arrays.asList("root.sg1.d1", "root.sg2.d1", "root.sg1.d2");
+    TSInsertStringRecordsReq req =
+        new TSInsertStringRecordsReq(
+            0,
+            devices,
+            Arrays.asList(
+                Collections.singletonList("s1"),
+                Collections.singletonList("s1"),
+                Collections.singletonList("s1")),
+            Arrays.asList(
+                Collections.singletonList("1"),
+                Collections.singletonList("2"),
+                Collections.singletonList("3")),
+            Arrays.asList(1L, 2L, 3L));
+    TSStatus status = recommend(StatementGenerator.createStatement(req));
+
+    // the insertion has succeeded, only the sub status carry the recommendation
+    Assert.assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), status.getCode());
+    Assert.assertEquals(3, status.getSubStatusSize());
+    Assert.assertEquals(
+        remoteDataNode1.getExternalEndPoint(), status.getSubStatus().get(0).getRedirectNode());
+    // the leader of root.sg2 is this DataNode
+    Assert.assertFalse(status.getSubStatus().get(1).isSetRedirectNode());
+    Assert.assertEquals(
+        remoteDataNode1.getExternalEndPoint(), status.getSubStatus().get(2).getRedirectNode());
+
+    try {
+      RpcUtils.verifySuccessWithRedirectionForMultiDevices(status, devices);
+      Assert.fail();
+    } catch (RedirectException e) {
+      Map<String, TEndPoint> deviceEndPointMap = e.getDeviceEndPointMap();
+      Assert.assertEquals(2, deviceEndPointMap.size());
+      Assert.assertEquals(
+          remoteDataNode1.getExternalEndPoint(), deviceEndPointMap.get(devices.get(0)));
+      Assert.assertEquals(
+          remoteDataNode1.getExternalEndPoint(), deviceEndPointMap.get(devices.get(2)));
+    }
+  }
+
+  @Test
+  public void testSqlInsertionKeepsSuccessStatus() throws Exception {
+    // executeStatement takes any code other than SUCCESS_STATUS as a failure
+    Statement statement =
+        StatementGenerator.createStatement(
+            "insert into root.sg1.d1(time, s1) values(1, 1), (2, 2)", ZoneId.systemDefault());
+    TSStatus status = recommend(statement);
+    Assert.assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), status.getCode());
+    Assert.assertFalse(status.isSetRedirectNode());
+    Assert.assertFalse(status.isSetSubStatus());
+
+    // the failed insertions are not touched
+    TSStatus failure = RpcUtils.getStatus(TSStatusCode.EXECUTE_STATEMENT_ERROR);
+    Assert.assertSame(failure, recommender.recommend(statement, dataPartition, failure));
+    Assert.assertFalse(failure.isSetSubStatus());
+  }
+
+  private TSStatus recommend(Statement statement) {
+    return recommender.recommend(
+        statement, dataPartition, RpcUtils.getStatus(TSStatusCode.SUCCESS_STATUS));
+  }
+
+  private static Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>
+      newSeriesPartitionMap(int seriesSlotNum, TRegionReplicaSet regionReplicaSet) {
+    Map<TSeriesPartitionSlot, Map<TTimePartitionSlot, List<TRegionReplicaSet>>>
+        seriesPartitionMap = new HashMap<>();
+    for (int i = 0; i < seriesSlotNum; i++) {
+      Map<TTimePartitionSlot, List<TRegionReplicaSet>> timePartitionMap = new HashMap<>();
+      timePartitionMap.put(new TTimePartitionSlot(0), Collections.singletonList(regionReplicaSet));
+      seriesPartitionMap.put(new TSeriesPartitionSlot(i), timePartitionMap);
+    }
+    return seriesPartitionMap;
+  }
+
+  private static TDataNodeLocation newLocation(int dataNodeId, TEndPoint externalEndPoint) {
+    TEndPoint internalEndPoint = new TEndPoint(externalEndPoint.getIp(), 9003 + dataNodeId);
+    return new TDataNodeLocation(
+        dataNodeId, externalEndPoint, internalEndPoint, internalEndPoint, internalEndPoint);
+  }
+}
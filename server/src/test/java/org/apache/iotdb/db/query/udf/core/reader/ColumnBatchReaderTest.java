@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.udf.core.reader;
+
+import org.apache.iotdb.db.mpp.execution.operator.Operator;
+import org.apache.iotdb.db.mpp.execution.operator.OperatorContext;
+import org.apache.iotdb.db.query.udf.api.access.Row;
+import org.apache.iotdb.db.query.udf.core.access.ElasticSerializableRowRecordListBackedMultiColumnRow;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.ColumnBuilder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class ColumnBatchReaderTest {
+
+  private static final List<TSDataType> INPUT_DATA_TYPES =
+      Arrays.asList(TSDataType.INT32, TSDataType.DOUBLE, TSDataType.INT64);
+
+  /** The UDTF reads the third and the first columns of the input TsBlocks */
+  private static final int[] VALUE_COLUMN_INDEXES = {2, 0};
+
+  private static final TSDataType[] VALUE_DATA_TYPES = {TSDataType.INT64, TSDataType.INT32};
+
+  /**
+   * Rows of time, a (INT32), b (DOUBLE) and c (INT64). The rows are not null because of b, but
+   * the rows at 4, 5, 7, 9 and 10 are null in a and c.
+   */
+  private static final Object[][][] INPUT_ROWS = {
+    {
+      {1L, 1, 0.1, 10L},
+      {2L, null, 0.2, 20L},
+      {3L, 3, 0.3, null},
+      {4L, null, 0.4, null},
+      {5L, null, 0.5, null},
+      {6L, 6, 0.6, 60L},
+      {7L, null, 0.7, null},
+      {8L, 8, 0.8, 80L}
+    },
+    {
+      {9L, null, 0.9, null},
+      {10L, null, 1.0, null}
+    },
+    {
+      {11L, 11, 1.1, null}
+    }
+  };
+
+  @Test
+  public void testTsBlockColumnBatchReader() throws Exception {
+    TsBlockColumnBatchReader reader =
+        new TsBlockColumnBatchReader(new TsBlockOperator(), VALUE_COLUMN_INDEXES, 3);
+
+    List<long[]> batchTimes = new ArrayList<>();
+    List<Object[]> values = new ArrayList<>();
+    while (reader.nextBatch()) {
+      batchTimes.add(readBatch(reader, values));
+    }
+
+    // the batches of the input TsBlocks are used directly if they have no all-null rows
+    Assert.assertArrayEquals(new long[] {1, 2, 3}, batchTimes.get(0));
+    // the all-null rows are skipped, the TsBlock with only all-null rows gives no batch
+    Assert.assertArrayEquals(new long[] {6}, batchTimes.get(1));
+    Assert.assertArrayEquals(new long[] {8}, batchTimes.get(2));
+    Assert.assertArrayEquals(new long[] {11}, batchTimes.get(3));
+    Assert.assertEquals(4, batchTimes.size());
+    Assert.assertArrayEquals(expectedValues(), values.toArray());
+  }
+
+  @Test
+  public void testRowColumnBatchReader() throws Exception {
+    RowColumnBatchReader reader = new RowColumnBatchReader(new RowReader(), 3);
+
+    List<long[]> batchTimes = new ArrayList<>();
+    List<Object[]> values = new ArrayList<>();
+    while (reader.nextBatch()) {
+      batchTimes.add(readBatch(reader, values));
+    }
+
+    // the same rows as the ones fed directly from the input TsBlocks
+    Assert.assertArrayEquals(new long[] {1, 2, 3}, batchTimes.get(0));
+    Assert.assertArrayEquals(new long[] {6, 8, 11}, batchTimes.get(1));
+    Assert.assertEquals(2, batchTimes.size());
+    Assert.assertArrayEquals(expectedValues(), values.toArray());
+  }
+
+  /** @return the times of the batch, the values of each row are added to values */
+  private long[] readBatch(LayerColumnBatchReader reader, List<Object[]> values) {
+    Column timeColumn = reader.currentTimeColumn();
+    Column[] valueColumns = reader.currentValueColumns();
+    Assert.assertEquals(VALUE_DATA_TYPES.length, valueColumns.length);
+    long[] times = new long[timeColumn.getPositionCount()];
+    for (int i = 0; i < times.length; ++i) {
+      times[i] = timeColumn.getLong(i);
+      Object[] row = new Object[valueColumns.length];
+      for (int j = 0; j < valueColumns.length; ++j) {
+        Assert.assertEquals(VALUE_DATA_TYPES[j], valueColumns[j].getDataType());
+        row[j] = valueColumns[j].isNull(i) ? null : valueColumns[j].getObject(i);
+      }
+      values.add(row);
+    }
+    return times;
+  }
+
+  private Object[] expectedValues() {
+    return new Object[] {
+      new Object[] {10L, 1},
+      new Object[] {20L, null},
+      new Object[] {null, 3},
+      new Object[] {60L, 6},
+      new Object[] {80L, 8},
+      new Object[] {null, 11}
+    };
+  }
+
+  /** The input operator of the TransformOperator */
+  private static class TsBlockOperator implements Operator {
+
+    private int index = 0;
+
+    @Override
+    public OperatorContext getOperatorContext() {
+      return null;
+    }
+
+    @Override
+    public TsBlock next() {
+      TsBlockBuilder builder = new TsBlockBuilder(INPUT_DATA_TYPES);
+      ColumnBuilder[] valueColumnBuilders = builder.getValueColumnBuilders();
+      for (Object[] row : INPUT_ROWS[index++]) {
+        builder.getTimeColumnBuilder().writeLong((long) row[0]);
+        for (int i = 0; i < valueColumnBuilders.length; ++i) {
+          if (row[i + 1] == null) {
+            valueColumnBuilders[i].appendNull();
+          } else {
+            valueColumnBuilders[i].writeObject(row[i + 1]);
+          }
+        }
+        builder.declarePosition();
+      }
+      return builder.build();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < INPUT_ROWS.length;
+    }
+
+    @Override
+    public boolean isFinished() {
+      return !hasNext();
+    }
+  }
+
+  /** The rows of the UDTF inputs read from the intermediate layer */
+  private static class RowReader implements LayerRowReader {
+
+    private final Iterator<Object[]> rows;
+    private final ElasticSerializableRowRecordListBackedMultiColumnRow row =
+        new ElasticSerializableRowRecordListBackedMultiColumnRow(VALUE_DATA_TYPES);
+    private Object[] rowRecord;
+
+    private RowReader() {
+      List<Object[]> rowRecords = new ArrayList<>();
+      for (Object[][] block : INPUT_ROWS) {
+        for (Object[] inputRow : block) {
+          // values of the UDTF inputs, followed by the time
+          Object[] rowRecord = new Object[VALUE_COLUMN_INDEXES.length + 1];
+          for (int i = 0; i < VALUE_COLUMN_INDEXES.length; ++i) {
+            rowRecord[i] = inputRow[VALUE_COLUMN_INDEXES[i] + 1];
+          }
+          rowRecord[VALUE_COLUMN_INDEXES.length] = inputRow[0];
+          rowRecords.add(rowRecord);
+        }
+      }
+      rows = rowRecords.iterator();
+    }
+
+    @Override
+    public boolean next() {
+      if (rowRecord == null && rows.hasNext()) {
+        rowRecord = rows.next();
+      }
+      return rowRecord != null;
+    }
+
+    @Override
+    public void readyForNext() {
+      rowRecord = null;
+    }
+
+    @Override
+    public TSDataType[] getDataTypes() {
+      return VALUE_DATA_TYPES;
+    }
+
+    @Override
+    public long currentTime() {
+      return (long) rowRecord[VALUE_COLUMN_INDEXES.length];
+    }
+
+    @Override
+    public Row currentRow() {
+      return row.setRowRecord(rowRecord);
+    }
+
+    @Override
+    public boolean isCurrentNull() {
+      for (int i = 0; i < VALUE_COLUMN_INDEXES.length; ++i) {
+        if (rowRecord[i] != null) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
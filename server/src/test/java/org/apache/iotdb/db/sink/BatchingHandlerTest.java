@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sink;
+
+import org.apache.iotdb.db.engine.trigger.sink.alertmanager.AlertManagerConfiguration;
+import org.apache.iotdb.db.engine.trigger.sink.alertmanager.AlertManagerEvent;
+import org.apache.iotdb.db.engine.trigger.sink.alertmanager.AlertManagerHandler;
+import org.apache.iotdb.db.engine.trigger.sink.mqtt.MQTTEvent;
+import org.apache.iotdb.db.engine.trigger.sink.mqtt.MQTTHandler;
+
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import org.fusesource.mqtt.client.QoS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchingHandlerTest {
+
+  private static final String ENDPOINT = "http://127.0.0.1:9094/api/v2/alerts";
+
+  private HttpServer httpServer;
+
+  // the number of alerts in each request received by the server
+  private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+  private final AtomicInteger failuresToInject = new AtomicInteger();
+  private CountDownLatch firstRequestReceived;
+  private CountDownLatch serverReleased;
+
+  @Before
+  public void setUp() throws IOException {
+    firstRequestReceived = new CountDownLatch(1);
+    serverReleased = new CountDownLatch(0);
+
+    httpServer = HttpServer.create(new InetSocketAddress(9094), 0);
+    httpServer.createContext(
+        "/api/v2/alerts",
+        httpExchange -> {
+          BufferedReader br =
+              new BufferedReader(
+                  new InputStreamReader(httpExchange.getRequestBody(), StandardCharsets.UTF_8));
+          int batchSize = JsonParser.parseString(br.readLine()).getAsJsonArray().size();
+
+          firstRequestReceived.countDown();
+          try {
+            serverReleased.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+
+          int status = HttpURLConnection.HTTP_OK;
+          if (failuresToInject.getAndDecrement() > 0) {
+            status = HttpURLConnection.HTTP_INTERNAL_ERROR;
+          } else {
+            batchSizes.add(batchSize);
+          }
+          byte[] response = "{\"success\": true}".getBytes();
+          httpExchange.sendResponseHeaders(status, response.length);
+          httpExchange.getResponseBody().write(response);
+          httpExchange.close();
+        });
+    httpServer.start();
+  }
+
+  @After
+  public void tearDown() {
+    httpServer.stop(0);
+  }
+
+  @Test
+  public void sendInBatchesTest() throws Exception {
+    AlertManagerConfiguration configuration = new AlertManagerConfiguration(ENDPOINT);
+    configuration.setMaxBatchSize(100);
+    AlertManagerHandler handler = new AlertManagerHandler();
+    handler.open(configuration);
+
+    for (int i = 0; i < 1000; ++i) {
+      handler.onEvent(createEvent("alert" + i, i));
+    }
+    handler.close();
+
+    int alertCount = 0;
+    for (int batchSize : batchSizes) {
+      assertTrue(batchSize <= 100);
+      alertCount += batchSize;
+    }
+    assertEquals(1000, alertCount);
+    assertEquals(1000, handler.getSentEventCount());
+    assertEquals(0, handler.getDroppedEventCount());
+  }
+
+  @Test
+  public void coalesceTest() throws Exception {
+    serverReleased = new CountDownLatch(1);
+    AlertManagerHandler handler = new AlertManagerHandler();
+    handler.open(new AlertManagerConfiguration(ENDPOINT));
+
+    handler.onEvent(createEvent("first", 0));
+    assertTrue(firstRequestReceived.await(10, TimeUnit.SECONDS));
+    // buffered while the first request is in flight, all of them share the same labels
+    for (int i = 0; i < 5; ++i) {
+      handler.onEvent(createEvent("repeated", 0));
+    }
+    serverReleased.countDown();
+    handler.close();
+
+    assertEquals(2, batchSizes.size());
+    assertEquals(1, (int) batchSizes.get(1));
+    assertEquals(2, handler.getSentEventCount());
+    assertEquals(4, handler.getCoalescedEventCount());
+  }
+
+  @Test
+  public void mqttCoalesceTest() {
+    List<MQTTEvent> batch =
+        Arrays.asList(
+            new MQTTEvent("a", QoS.AT_MOST_ONCE, false, 0, 0),
+            new MQTTEvent("a", QoS.AT_LEAST_ONCE, false, 1, 1),
+            new MQTTEvent("a", QoS.AT_MOST_ONCE, true, 2, 2),
+            new MQTTEvent("b", QoS.AT_MOST_ONCE, false, 3, 3),
+            new MQTTEvent("a", QoS.AT_MOST_ONCE, true, 4, 4),
+            new MQTTEvent("a", QoS.EXACTLY_ONCE, true, 5, 5),
+            new MQTTEvent("a", QoS.AT_MOST_ONCE, false, 6, 6));
+
+    // only the non-retained QoS 0 events of topic a except the latest one are coalesced
+    List<MQTTEvent> coalesced = new ExposedMQTTHandler().coalesce(batch);
+    List<Long> timestamps = new ArrayList<>();
+    for (MQTTEvent event : coalesced) {
+      timestamps.add(event.getTimestamp());
+    }
+    assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L), timestamps);
+  }
+
+  @Test
+  public void dropWhenBufferIsFullTest() throws Exception {
+    serverReleased = new CountDownLatch(1);
+    AlertManagerConfiguration configuration = new AlertManagerConfiguration(ENDPOINT);
+    configuration.setBufferCapacity(2);
+    AlertManagerHandler handler = new AlertManagerHandler();
+    handler.open(configuration);
+
+    handler.onEvent(createEvent("first", 0));
+    assertTrue(firstRequestReceived.await(10, TimeUnit.SECONDS));
+    for (int i = 0; i < 5; ++i) {
+      handler.onEvent(createEvent("alert" + i, i));
+    }
+    serverReleased.countDown();
+    handler.close();
+
+    assertEquals(3, handler.getSentEventCount());
+    assertEquals(3, handler.getDroppedEventCount());
+  }
+
+  @Test
+  public void retryTest() throws Exception {
+    failuresToInject.set(2);
+    AlertManagerConfiguration configuration = new AlertManagerConfiguration(ENDPOINT);
+    configuration.setRetryIntervalMs(10);
+    AlertManagerHandler handler = new AlertManagerHandler();
+    handler.open(configuration);
+
+    handler.onEvent(createEvent("alert", 0));
+    handler.close();
+
+    assertEquals(1, batchSizes.size());
+    assertEquals(1, handler.getSentEventCount());
+    assertEquals(0, handler.getFailedEventCount());
+
+    failuresToInject.set(Integer.MAX_VALUE);
+    handler.open(configuration);
+    handler.onEvent(createEvent("alert", 0));
+    handler.close();
+
+    assertEquals(1, handler.getSentEventCount());
+    assertEquals(1, handler.getFailedEventCount());
+  }
+
+  private static class ExposedMQTTHandler extends MQTTHandler {
+
+    @Override
+    protected List<MQTTEvent> coalesce(List<MQTTEvent> batch) {
+      return super.coalesce(batch);
+    }
+  }
+
+  private static AlertManagerEvent createEvent(String alertName, double value) throws Exception {
+    Map<String, String> extraLabels = new HashMap<>();
+    extraLabels.put("value", String.valueOf(value));
+    return new AlertManagerEvent(alertName, extraLabels);
+  }
+}
@@ -37,6 +37,7 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -540,4 +541,97 @@ public class BufferedPipeDataQueueTest {
       Assert.fail();
     }
   }
+
+  /** Recover from the pipe logs and the commit checkpoint of a pipe which has not been closed. */
+  @Test
+  public void testRecoveryFromUnsealedPipeLog() {
+    File copyDir = new File(pipeLogDir.getPath() + "-copy");
+    try {
+      BufferedPipeDataQueue pipeDataQueue = new BufferedPipeDataQueue(pipeLogDir.getPath());
+      List<PipeData> pipeDataList = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        PipeData pipeData =
+            new DeletionPipeData(new Deletion(new PartialPath("fake" + i), 0, 99), i);
+        pipeDataList.add(pipeData);
+        pipeDataQueue.offer(pipeData);
+      }
+      for (int i = 0; i < 4; i++) {
+        Assert.assertEquals(pipeDataList.get(i), pipeDataQueue.take());
+        pipeDataQueue.commit();
+      }
+      // the pipe log is still being written, recover from a copy of it
+      FileUtils.copyDirectory(pipeLogDir, copyDir);
+      pipeDataQueue.clear();
+
+      BufferedPipeDataQueue recoveredQueue = new BufferedPipeDataQueue(copyDir.getPath());
+      Assert.assertEquals(3, recoveredQueue.getCommitSerialNumber());
+      Assert.assertEquals(9, recoveredQueue.getLastMaxSerialNumber());
+      PipeData offerPipeData = new TsFilePipeData("fake10", 10);
+      pipeDataList.add(offerPipeData);
+      recoveredQueue.offer(offerPipeData);
+      for (int i = 4; i < 11; i++) {
+        Assert.assertEquals(pipeDataList.get(i), recoveredQueue.take());
+        recoveredQueue.commit();
+      }
+      recoveredQueue.clear();
+    } catch (Exception e) {
+      e.printStackTrace();
+      Assert.fail();
+    } finally {
+      FileUtils.deleteQuietly(copyDir);
+    }
+  }
+
+  /**
+   * After a power loss, the last pipe data of an unsealed pipe log may reach the disk partially.
+   * Recovery drops it and truncates the pipe log.
+   */
+  @Test
+  public void testRecoveryFromTornPipeLog() {
+    File copyDir = new File(pipeLogDir.getPath() + "-copy");
+    try {
+      BufferedPipeDataQueue pipeDataQueue = new BufferedPipeDataQueue(pipeLogDir.getPath());
+      List<PipeData> pipeDataList = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        PipeData pipeData =
+            new DeletionPipeData(new Deletion(new PartialPath("fake" + i), 0, 99), i);
+        pipeDataList.add(pipeData);
+        pipeDataQueue.offer(pipeData);
+      }
+      FileUtils.copyDirectory(pipeLogDir, copyDir);
+      pipeDataQueue.clear();
+
+      // corrupt the last written byte, which belongs to the pipe data 4
+      File pipeLog = new File(copyDir, SyncPathUtil.getPipeLogName(0));
+      long preallocatedLength = pipeLog.length();
+      try (RandomAccessFile raf = new RandomAccessFile(pipeLog, "rw")) {
+        long position = raf.length() - 1;
+        raf.seek(position);
+        while (raf.readByte() == 0) {
+          raf.seek(--position);
+        }
+        raf.seek(position);
+        int lastByte = raf.readByte();
+        raf.seek(position);
+        raf.writeByte(~lastByte);
+      }
+
+      BufferedPipeDataQueue recoveredQueue = new BufferedPipeDataQueue(copyDir.getPath());
+      Assert.assertEquals(3, recoveredQueue.getLastMaxSerialNumber());
+      Assert.assertTrue(pipeLog.length() < preallocatedLength);
+      PipeData offerPipeData = new TsFilePipeData("fake4", 4);
+      pipeDataList.set(4, offerPipeData);
+      recoveredQueue.offer(offerPipeData);
+      for (int i = 0; i < 5; i++) {
+        Assert.assertEquals(pipeDataList.get(i), recoveredQueue.take());
+        recoveredQueue.commit();
+      }
+      recoveredQueue.clear();
+    } catch (Exception e) {
+      e.printStackTrace();
+      Assert.fail();
+    } finally {
+      FileUtils.deleteQuietly(copyDir);
+    }
+  }
 }
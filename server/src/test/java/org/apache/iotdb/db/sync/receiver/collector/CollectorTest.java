@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.receiver.collector;
+
+import org.apache.iotdb.commons.path.PartialPath;
+import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.qp.physical.sys.SetStorageGroupPlan;
+import org.apache.iotdb.db.sync.conf.SyncPathUtil;
+import org.apache.iotdb.db.sync.pipedata.SchemaPipeData;
+import org.apache.iotdb.db.sync.pipedata.TsFilePipeData;
+import org.apache.iotdb.db.sync.pipedata.queue.BufferedPipeDataQueue;
+import org.apache.iotdb.db.sync.pipedata.queue.PipeDataQueueFactory;
+import org.apache.iotdb.db.sync.receiver.manager.PipeMessage;
+import org.apache.iotdb.db.sync.receiver.manager.ReceiverManager;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.apache.iotdb.tsfile.write.schema.Schema;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+public class CollectorTest {
+  private static final String pipeName = "pipe";
+  private static final String remoteIp = "192.168.0.11";
+  private static final long createTime = System.currentTimeMillis();
+  private static final long WAIT_TIMEOUT_MS = 10_000;
+
+  private File fileDir;
+  private String pipeLogDir;
+  private BufferedPipeDataQueue pipeDataQueue;
+  private Collector collector;
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    fileDir = new File(SyncPathUtil.getReceiverFileDataDir(pipeName, remoteIp, createTime));
+    if (!fileDir.exists()) {
+      fileDir.mkdirs();
+    }
+    pipeLogDir = SyncPathUtil.getReceiverPipeLogDir(pipeName, remoteIp, createTime);
+    pipeDataQueue = PipeDataQueueFactory.getBufferedPipeDataQueue(pipeLogDir);
+    collector = new Collector();
+    collector.startCollect();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    collector.stopCollect();
+    PipeDataQueueFactory.removeBufferedPipeDataQueue(pipeLogDir);
+    EnvironmentUtils.cleanEnv();
+  }
+
+  /**
+   * The TsFiles of two storage groups are loaded concurrently, while the TsFiles of each storage
+   * group keep the order of the pipe.
+   */
+  @Test
+  public void testLoadTsFilesOfStorageGroups() throws Exception {
+    pipeDataQueue.offer(
+        new SchemaPipeData(new SetStorageGroupPlan(new PartialPath("root.sg1")), 0));
+    pipeDataQueue.offer(
+        new SchemaPipeData(new SetStorageGroupPlan(new PartialPath("root.sg2")), 1));
+    File[] tsFiles = {
+      writeTsFile("1-1-0-0.tsfile", "root.sg1.d0", 1, 10),
+      writeTsFile("2-2-0-0.tsfile", "root.sg2.d0", 1, 10),
+      writeTsFile("3-3-0-0.tsfile", "root.sg1.d0", 11, 20),
+      writeTsFile("4-4-0-0.tsfile", "root.sg2.d0", 11, 20)
+    };
+    for (int i = 0; i < tsFiles.length; i++) {
+      pipeDataQueue.offer(new TsFilePipeData(tsFiles[i].getPath(), i + 2));
+    }
+
+    collector.startPipe(pipeName, remoteIp, createTime);
+    long startTime = System.currentTimeMillis();
+    while (pipeDataQueue.getCommitSerialNumber() < 5) {
+      Assert.assertTrue(System.currentTimeMillis() - startTime < WAIT_TIMEOUT_MS);
+      Thread.sleep(50);
+    }
+
+    for (String storageGroup : new String[] {"root.sg1", "root.sg2"}) {
+      List<TsFileResource> resources =
+          StorageEngine.getInstance()
+              .getProcessor(new PartialPath(storageGroup))
+              .getSequenceFileList();
+      Assert.assertEquals(2, resources.size());
+      Assert.assertEquals(1, resources.get(0).getStartTime(storageGroup + ".d0"));
+      Assert.assertEquals(11, resources.get(1).getStartTime(storageGroup + ".d0"));
+      for (TsFileResource resource : resources) {
+        Assert.assertTrue(resource.getTsFile().exists());
+      }
+    }
+    // the received TsFiles are deleted when committed
+    for (File tsFile : tsFiles) {
+      Assert.assertFalse(tsFile.exists());
+    }
+  }
+
+  /** A TsFile that is missing can't be loaded, the pipe stops before it. */
+  @Test
+  public void testStopOnMissingTsFile() throws Exception {
+    pipeDataQueue.offer(
+        new SchemaPipeData(new SetStorageGroupPlan(new PartialPath("root.sg1")), 0));
+    File tsFile = writeTsFile("1-1-0-0.tsfile", "root.sg1.d0", 1, 10);
+    pipeDataQueue.offer(new TsFilePipeData(tsFile.getPath(), 1));
+    pipeDataQueue.offer(new TsFilePipeData(new File(fileDir, "2-2-0-0.tsfile").getPath(), 2));
+    File nextTsFile = writeTsFile("3-3-0-0.tsfile", "root.sg1.d0", 11, 20);
+    pipeDataQueue.offer(new TsFilePipeData(nextTsFile.getPath(), 3));
+
+    collector.startPipe(pipeName, remoteIp, createTime);
+    long startTime = System.currentTimeMillis();
+    while (!PipeMessage.MsgType.ERROR.equals(
+        ReceiverManager.getInstance()
+            .getPipeMessage(pipeName, remoteIp, createTime, false)
+            .getType())) {
+      Assert.assertTrue(System.currentTimeMillis() - startTime < WAIT_TIMEOUT_MS);
+      Thread.sleep(50);
+    }
+
+    Assert.assertEquals(1, pipeDataQueue.getCommitSerialNumber());
+    // the TsFile after the missing one is not loaded
+    List<TsFileResource> resources =
+        StorageEngine.getInstance().getProcessor(new PartialPath("root.sg1")).getSequenceFileList();
+    Assert.assertEquals(1, resources.size());
+    Assert.assertEquals(1, resources.get(0).getStartTime("root.sg1.d0"));
+    Assert.assertFalse(tsFile.exists());
+    Assert.assertTrue(nextTsFile.exists());
+  }
+
+  private File writeTsFile(String name, String device, long startTime, long endTime)
+      throws Exception {
+    File file = new File(fileDir, name);
+    MeasurementSchema measurementSchema =
+        new MeasurementSchema("s0", TSDataType.INT64, TSEncoding.PLAIN);
+    Schema schema = new Schema();
+    schema.registerTimeseries(new Path(device), measurementSchema);
+    try (TsFileWriter tsFileWriter = new TsFileWriter(file, schema)) {
+      Tablet tablet = new Tablet(device, Collections.singletonList(measurementSchema));
+      for (long time = startTime; time <= endTime; time++) {
+        int row = tablet.rowSize++;
+        tablet.timestamps[row] = time;
+        ((long[]) tablet.values[0])[row] = time;
+      }
+      tsFileWriter.write(tablet);
+    }
+    return file;
+  }
+}
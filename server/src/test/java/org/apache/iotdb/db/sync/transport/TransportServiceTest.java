@@ -20,6 +20,7 @@
 package org.apache.iotdb.db.sync.transport;
 
 import org.apache.iotdb.commons.path.PartialPath;
+import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.modification.Deletion;
 import org.apache.iotdb.db.engine.modification.ModificationFile;
@@ -38,6 +39,7 @@ import org.apache.iotdb.db.sync.sender.pipe.TsFilePipe;
 import org.apache.iotdb.db.sync.transport.client.TransportClient;
 import org.apache.iotdb.db.sync.transport.server.TransportServerManager;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
@@ -51,11 +53,16 @@ import org.junit.Test;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -182,6 +189,143 @@ public class TransportServiceTest {
     pipeDataQueue.clear();
   }
 
+  @Test
+  public void testCompressedFilePieces() throws Exception {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    int parallelism = config.getSyncFileTransportParallelism();
+    CompressionType compressor = config.getSyncFileTransportCompressor();
+    config.setSyncFileTransportParallelism(2);
+    config.setSyncFileTransportCompressor(CompressionType.SNAPPY);
+    TransportServerManager.getInstance().startService();
+    try {
+      // a file larger than the first piece, so that it is sent in several pieces
+      File tsfile = new File(tmpDir, "test2.tsfile");
+      File resourceFile = new File(tsfile.getAbsoluteFile() + TsFileResource.RESOURCE_SUFFIX);
+      Random random = new Random(0);
+      try (FileOutputStream out = new FileOutputStream(tsfile)) {
+        byte[] block = new byte[1024];
+        for (int i = 0; i < 3 * 1024; i++) {
+          // half of the bytes are the same, so that the file could be compressed
+          random.nextBytes(block);
+          Arrays.fill(block, 0, block.length / 2, (byte) 0);
+          out.write(block);
+        }
+      }
+      try (FileWriter out = new FileWriter(resourceFile)) {
+        out.write("resource");
+      }
+      TsFilePipeData tsFilePipeData = new TsFilePipeData(tsfile.getPath(), 0);
+
+      Pipe pipe = new TsFilePipe(createdTime1, pipeName1, null, 0, false);
+      TransportClient client = new TransportClient(pipe, "127.0.0.1", config.getPipeServerPort());
+      Assert.assertTrue(client.handshake());
+      Assert.assertTrue(client.senderTransport(tsFilePipeData));
+      client.close();
+
+      File[] targetFiles = fileDir.listFiles((dir1, name) -> name.equals(tsfile.getName()));
+      Assert.assertNotNull(targetFiles);
+      Assert.assertEquals(1, targetFiles.length);
+      compareFile(targetFiles[0], tsfile);
+      File[] resourceFiles = fileDir.listFiles((dir1, name) -> name.equals(resourceFile.getName()));
+      Assert.assertNotNull(resourceFiles);
+      Assert.assertEquals(1, resourceFiles.length);
+      compareFile(resourceFiles[0], resourceFile);
+    } finally {
+      TransportServerManager.getInstance().stopService();
+      config.setSyncFileTransportParallelism(parallelism);
+      config.setSyncFileTransportCompressor(compressor);
+    }
+  }
+
+  @Test
+  public void testManyPiecesInFlight() throws Exception {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    int parallelism = config.getSyncFileTransportParallelism();
+    config.setSyncFileTransportParallelism(8);
+    TransportServerManager.getInstance().startService();
+    try {
+      // 256 pieces of 1 KB, 8 of them wait for acknowledgement at the same time, so that they
+      // arrive at the receiver out of order
+      File tsfile = new File(tmpDir, "test3.tsfile");
+      File resourceFile = new File(tsfile.getAbsoluteFile() + TsFileResource.RESOURCE_SUFFIX);
+      writeRandomFile(tsfile, 256 * 1024);
+      writeRandomFile(resourceFile, 10 * 1024 + 1);
+      TsFilePipeData tsFilePipeData = new TsFilePipeData(tsfile.getPath(), 0);
+
+      Pipe pipe = new TsFilePipe(createdTime1, pipeName1, null, 0, false);
+      TransportClient client = new TransportClient(pipe, "127.0.0.1", config.getPipeServerPort());
+      client.setFilePieceSize(1024, 1024);
+      Assert.assertTrue(client.handshake());
+      Assert.assertTrue(client.senderTransport(tsFilePipeData));
+      client.close();
+
+      File[] targetFiles = fileDir.listFiles((dir1, name) -> name.equals(tsfile.getName()));
+      Assert.assertNotNull(targetFiles);
+      Assert.assertEquals(1, targetFiles.length);
+      compareFile(targetFiles[0], tsfile);
+      File[] resourceFiles = fileDir.listFiles((dir1, name) -> name.equals(resourceFile.getName()));
+      Assert.assertNotNull(resourceFiles);
+      Assert.assertEquals(1, resourceFiles.length);
+      compareFile(resourceFiles[0], resourceFile);
+    } finally {
+      TransportServerManager.getInstance().stopService();
+      config.setSyncFileTransportParallelism(parallelism);
+    }
+  }
+
+  @Test
+  public void testResumeAfterReconnect() throws Exception {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    int parallelism = config.getSyncFileTransportParallelism();
+    config.setSyncFileTransportParallelism(4);
+    TransportServerManager.getInstance().startService();
+    try {
+      File tsfile = new File(tmpDir, "test4.tsfile");
+      File resourceFile = new File(tsfile.getAbsoluteFile() + TsFileResource.RESOURCE_SUFFIX);
+      writeRandomFile(tsfile, 64 * 1024);
+      try (FileWriter out = new FileWriter(resourceFile)) {
+        out.write("resource");
+      }
+      TsFilePipeData tsFilePipeData = new TsFilePipeData(tsfile.getPath(), 0);
+
+      // the receiver has received the beginning of the tsfile through a former connection, the
+      // received length is not aligned with the pieces
+      int receivedLength = 10 * 1024 + 512;
+      fileDir.mkdirs();
+      byte[] content = Files.readAllBytes(tsfile.toPath());
+      try (FileOutputStream out = new FileOutputStream(new File(fileDir, "test4.tsfile.patch"))) {
+        out.write(content, 0, receivedLength);
+      }
+      try (FileWriter out = new FileWriter(new File(fileDir, "test4.tsfile.record"))) {
+        out.write(String.valueOf(receivedLength));
+      }
+
+      Pipe pipe = new TsFilePipe(createdTime1, pipeName1, null, 0, false);
+      TransportClient client = new TransportClient(pipe, "127.0.0.1", config.getPipeServerPort());
+      client.setFilePieceSize(4 * 1024, 4 * 1024);
+      Assert.assertTrue(client.handshake());
+      Assert.assertTrue(client.senderTransport(tsFilePipeData));
+      client.close();
+
+      File[] targetFiles = fileDir.listFiles((dir1, name) -> name.equals(tsfile.getName()));
+      Assert.assertNotNull(targetFiles);
+      Assert.assertEquals(1, targetFiles.length);
+      compareFile(targetFiles[0], tsfile);
+      Assert.assertFalse(new File(fileDir, "test4.tsfile.record").exists());
+    } finally {
+      TransportServerManager.getInstance().stopService();
+      config.setSyncFileTransportParallelism(parallelism);
+    }
+  }
+
+  private void writeRandomFile(File file, int size) throws IOException {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(content);
+    }
+  }
+
   private void compareFile(File firFile, File secFile) {
     try {
       MessageDigest messageDigest1 = MessageDigest.getInstance("SHA-256");
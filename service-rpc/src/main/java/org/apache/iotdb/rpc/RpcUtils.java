@@ -121,8 +121,11 @@ public class RpcUtils {
   public static void verifySuccessWithRedirectionForMultiDevices(
       TSStatus status, List<String> devices) throws StatementExecutionException, RedirectException {
     verifySuccess(status);
+    // a successful insertion may also recommend the endpoints of the devices by the sub status
     if (status.getCode() == TSStatusCode.MULTIPLE_ERROR.getStatusCode()
-        || status.getCode() == TSStatusCode.NEED_REDIRECTION.getStatusCode()) {
+        || status.getCode() == TSStatusCode.NEED_REDIRECTION.getStatusCode()
+        || (status.getCode() == TSStatusCode.SUCCESS_STATUS.getStatusCode()
+            && status.isSetSubStatus())) {
       Map<String, TEndPoint> deviceEndPointMap = new HashMap<>();
       List<TSStatus> statusSubStatus = status.getSubStatus();
       for (int i = 0; i < statusSubStatus.size(); i++) {
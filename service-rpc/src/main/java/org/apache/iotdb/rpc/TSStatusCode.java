@@ -125,7 +125,8 @@ public enum TSStatusCode {
   NOT_ENOUGH_DATA_NODE(903),
   ERROR_GLOBAL_CONFIG(904),
   APPLY_CONFIGNODE_FAILED(905),
-  PERSISTENCE_FAILURE(906);
+  PERSISTENCE_FAILURE(906),
+  REGION_MIGRATE_FAILED(907);
 
   private int statusCode;
 
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session;
+
+import org.apache.iotdb.common.rpc.thrift.TEndPoint;
+import org.apache.iotdb.rpc.BatchExecutionException;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.RedirectException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
+import org.apache.iotdb.session.util.ThreadUtils;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batcher behind the asynchronous tablet insertion of {@link Session}. Tablets routed to the same
+ * connection are merged into one {@link TSInsertTabletsReq}, which is sent in background once it
+ * holds enough rows or has waited long enough. Tablets are serialized when submitted, so the caller
+ * could reuse them as soon as the submission returns.
+ *
+ * <p>Requests of different connections are sent concurrently, while the requests of one connection
+ * are sent one by one. At most {@code maxInFlightBatches} batches are being sent at the same time,
+ * submitting more blocks the caller until one of them finishes.
+ */
+class AsyncTabletBatcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsyncTabletBatcher.class);
+
+  private final Session session;
+  private final int maxBatchRows;
+  private final long maxBatchDelayMs;
+  private final int maxInFlightBatches;
+
+  private final Semaphore inFlightBatches;
+  private final ScheduledExecutorService batchTimer;
+  private final ExecutorService batchSender;
+
+  // the batches waiting for more tablets
+  private final Map<BatchKey, Batch> openBatches = new HashMap<>();
+  private boolean isClosed = false;
+
+  AsyncTabletBatcher(
+      Session session, int maxBatchRows, long maxBatchDelayMs, int maxInFlightBatches) {
+    this.session = session;
+    this.maxBatchRows = maxBatchRows;
+    this.maxBatchDelayMs = maxBatchDelayMs;
+    this.maxInFlightBatches = maxInFlightBatches;
+    this.inFlightBatches = new Semaphore(maxInFlightBatches);
+    this.batchTimer =
+        Executors.newSingleThreadScheduledExecutor(
+            ThreadUtils.createThreadFactory("SessionAsyncInsertTimer", true));
+    this.batchSender =
+        Executors.newFixedThreadPool(
+            maxInFlightBatches, ThreadUtils.createThreadFactory("SessionAsyncInsert", true));
+  }
+
+  /**
+   * Add the tablet into the batch of its target connection.
+   *
+   * @return a future completed when the batch holding the tablet has been inserted
+   */
+  CompletableFuture<Void> submit(Tablet tablet, boolean isAligned) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    // serialize the tablet on its own first, so that a bad tablet never touches a batch
+    TSInsertTabletsReq tabletRequest = new TSInsertTabletsReq();
+    try {
+      session.updateTSInsertTabletsReq(tabletRequest, tablet, false, isAligned);
+    } catch (BatchExecutionException | UnSupportedDataTypeException e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+    Batch fullBatch = null;
+    synchronized (this) {
+      if (isClosed) {
+        future.completeExceptionally(
+            new IoTDBConnectionException("Asynchronous insertion of the session is closed"));
+        return future;
+      }
+      BatchKey key = new BatchKey(session.getSessionConnection(tablet.deviceId), isAligned);
+      Batch batch = openBatches.get(key);
+      if (batch == null) {
+        batch = new Batch(key);
+        openBatches.put(key, batch);
+        Batch newBatch = batch;
+        batchTimer.schedule(() -> sendIfOpen(newBatch), maxBatchDelayMs, TimeUnit.MILLISECONDS);
+      }
+      batch.add(tabletRequest);
+      batch.futures.add(future);
+      batch.rowCount += tablet.rowSize;
+      if (batch.rowCount >= maxBatchRows) {
+        openBatches.remove(key);
+        fullBatch = batch;
+      }
+    }
+    if (fullBatch != null) {
+      send(fullBatch);
+    }
+    return future;
+  }
+
+  /** Send all the open batches and wait until all the batches in flight have been inserted. */
+  void flush() {
+    List<Batch> batches;
+    synchronized (this) {
+      batches = new ArrayList<>(openBatches.values());
+      openBatches.clear();
+    }
+    for (Batch batch : batches) {
+      send(batch);
+    }
+    inFlightBatches.acquireUninterruptibly(maxInFlightBatches);
+    inFlightBatches.release(maxInFlightBatches);
+  }
+
+  void close() {
+    synchronized (this) {
+      if (isClosed) {
+        return;
+      }
+      isClosed = true;
+    }
+    flush();
+    batchTimer.shutdownNow();
+    batchSender.shutdown();
+  }
+
+  private void sendIfOpen(Batch batch) {
+    synchronized (this) {
+      if (openBatches.get(batch.key) != batch) {
+        return;
+      }
+      openBatches.remove(batch.key);
+    }
+    send(batch);
+  }
+
+  private void send(Batch batch) {
+    inFlightBatches.acquireUninterruptibly();
+    try {
+      batchSender.execute(() -> insertBatch(batch));
+    } catch (RuntimeException e) {
+      inFlightBatches.release();
+      batch.completeExceptionally(e);
+    }
+  }
+
+  private void insertBatch(Batch batch) {
+    SessionConnection connection = batch.key.connection;
+    try {
+      // one connection could only serve one request at a time
+      synchronized (connection) {
+        connection.insertTablets(batch.request);
+      }
+      batch.complete();
+    } catch (RedirectException e) {
+      // the data has been inserted, only the leader cache should be updated
+      for (Map.Entry<String, TEndPoint> entry : e.getDeviceEndPointMap().entrySet()) {
+        try {
+          session.handleRedirection(entry.getKey(), entry.getValue());
+        } catch (IoTDBConnectionException ex) {
+          logger.warn("Failed to update the leader of {}", entry.getKey(), ex);
+        }
+      }
+      batch.complete();
+    } catch (IoTDBConnectionException e) {
+      session.removeBrokenSessionConnection(connection);
+      batch.completeExceptionally(e);
+    } catch (StatementExecutionException | RuntimeException e) {
+      batch.completeExceptionally(e);
+    } finally {
+      inFlightBatches.release();
+    }
+  }
+
+  private static class BatchKey {
+
+    private final SessionConnection connection;
+    private final boolean isAligned;
+
+    private BatchKey(SessionConnection connection, boolean isAligned) {
+      this.connection = connection;
+      this.isAligned = isAligned;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      BatchKey batchKey = (BatchKey) o;
+      return isAligned == batchKey.isAligned && connection == batchKey.connection;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(connection), isAligned);
+    }
+  }
+
+  private static class Batch {
+
+    private final BatchKey key;
+    private final TSInsertTabletsReq request = new TSInsertTabletsReq();
+    private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+    private int rowCount = 0;
+
+    private Batch(BatchKey key) {
+      this.key = key;
+      request.setIsAligned(key.isAligned);
+    }
+
+    private void add(TSInsertTabletsReq tabletRequest) {
+      request.addToPrefixPaths(tabletRequest.getPrefixPaths().get(0));
+      request.addToMeasurementsList(tabletRequest.getMeasurementsList().get(0));
+      request.addToTypesList(tabletRequest.getTypesList().get(0));
+      request.addToTimestampsList(tabletRequest.getTimestampsList().get(0));
+      request.addToValuesList(tabletRequest.getValuesList().get(0));
+      request.addToSizeList(tabletRequest.getSizeList().get(0));
+    }
+
+    private void complete() {
+      for (CompletableFuture<Void> future : futures) {
+        future.complete(null);
+      }
+    }
+
+    private void completeExceptionally(Throwable t) {
+      for (CompletableFuture<Void> future : futures) {
+        future.completeExceptionally(t);
+      }
+    }
+  }
+}
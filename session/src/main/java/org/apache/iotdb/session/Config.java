@@ -45,5 +45,14 @@ public class Config {
 
   public static final int DEFAULT_SESSION_POOL_MAX_SIZE = 5;
 
+  /** a batch of asynchronous insertion is sent once it holds so many rows */
+  public static final int DEFAULT_ASYNC_INSERT_MAX_BATCH_ROWS = 10_000;
+
+  /** a batch of asynchronous insertion is sent at most so many milliseconds after it is created */
+  public static final long DEFAULT_ASYNC_INSERT_MAX_BATCH_DELAY_MS = 10;
+
+  /** the max number of asynchronous insertion batches being sent at the same time */
+  public static final int DEFAULT_ASYNC_INSERT_MAX_IN_FLIGHT_BATCHES = 4;
+
   public static final Version DEFAULT_VERSION = Version.V_0_13;
 }
@@ -136,6 +136,12 @@ public class Session {
   // The version number of the client which used for compatibility in the server
   protected Version version;
 
+  // Asynchronous insertion, the batcher is created when it is used for the first time
+  private int asyncInsertMaxBatchRows = Config.DEFAULT_ASYNC_INSERT_MAX_BATCH_ROWS;
+  private long asyncInsertMaxBatchDelayMs = Config.DEFAULT_ASYNC_INSERT_MAX_BATCH_DELAY_MS;
+  private int asyncInsertMaxInFlightBatches = Config.DEFAULT_ASYNC_INSERT_MAX_IN_FLIGHT_BATCHES;
+  private AsyncTabletBatcher asyncTabletBatcher;
+
   public static void main(String args[])
       throws IoTDBConnectionException, StatementExecutionException {
     Session session = new Session("127.0.0.1", 6667);
@@ -415,6 +421,10 @@ public class Session {
     if (isClosed) {
       return;
     }
+    if (asyncTabletBatcher != null) {
+      asyncTabletBatcher.close();
+      asyncTabletBatcher = null;
+    }
     try {
       if (enableCacheLeader) {
         for (SessionConnection sessionConnection : endPointToSessionConnection.values()) {
@@ -833,7 +843,7 @@ public class Session {
     }
   }
 
-  private SessionConnection getSessionConnection(String deviceId) {
+  SessionConnection getSessionConnection(String deviceId) {
     TEndPoint endPoint;
     if (enableCacheLeader
         && !deviceIdToEndpoint.isEmpty()
@@ -849,7 +859,7 @@ public class Session {
   }
 
   // TODO https://issues.apache.org/jira/browse/IOTDB-1399
-  private void removeBrokenSessionConnection(SessionConnection sessionConnection) {
+  void removeBrokenSessionConnection(SessionConnection sessionConnection) {
     // remove the cached broken leader session
     if (enableCacheLeader) {
       TEndPoint endPoint = null;
@@ -897,7 +907,7 @@ public class Session {
     }
   }
 
-  private void handleRedirection(String deviceId, TEndPoint endpoint)
+  void handleRedirection(String deviceId, TEndPoint endpoint)
       throws IoTDBConnectionException {
     if (enableCacheLeader) {
       AtomicReference<IoTDBConnectionException> exceptionReference = new AtomicReference<>();
@@ -1670,6 +1680,71 @@ public class Session {
     }
   }
 
+  /**
+   * insert a Tablet asynchronously. The tablets inserted asynchronously to the same server are
+   * merged into batches, which are sent in background once they hold enough rows or have waited
+   * long enough. The tablet is serialized before this method returns, so it could be reset and
+   * reused at once.
+   *
+   * <p>The batches are sent with the connections of this session, so synchronous operations should
+   * not be issued by other threads while asynchronous insertions are in flight.
+   *
+   * @param tablet data batch
+   * @return a future completed when the tablet has been inserted, or completed exceptionally with
+   *     IoTDBConnectionException or StatementExecutionException
+   */
+  public CompletableFuture<Void> insertTabletAsync(Tablet tablet) {
+    return submitAsyncTablet(tablet, false);
+  }
+
+  /**
+   * insert the aligned timeseries data of a device asynchronously.
+   *
+   * @param tablet data batch
+   * @return a future completed when the tablet has been inserted
+   * @see Session#insertTabletAsync(Tablet)
+   */
+  public CompletableFuture<Void> insertAlignedTabletAsync(Tablet tablet) {
+    return submitAsyncTablet(tablet, true);
+  }
+
+  /** send all the pending asynchronous insertions and wait until they are done */
+  public void flushAsyncInsertions() {
+    AsyncTabletBatcher batcher;
+    synchronized (this) {
+      batcher = asyncTabletBatcher;
+    }
+    if (batcher != null) {
+      batcher.flush();
+    }
+  }
+
+  private CompletableFuture<Void> submitAsyncTablet(Tablet tablet, boolean isAligned) {
+    AsyncTabletBatcher batcher = getAsyncTabletBatcher();
+    if (batcher == null) {
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      future.completeExceptionally(new IoTDBConnectionException("Session is not open"));
+      return future;
+    }
+    return batcher.submit(tablet, isAligned);
+  }
+
+  /** @return null if the session is not open, the batcher is not recreated after close */
+  private synchronized AsyncTabletBatcher getAsyncTabletBatcher() {
+    if (isClosed) {
+      return null;
+    }
+    if (asyncTabletBatcher == null) {
+      asyncTabletBatcher =
+          new AsyncTabletBatcher(
+              this,
+              asyncInsertMaxBatchRows,
+              asyncInsertMaxBatchDelayMs,
+              asyncInsertMaxInFlightBatches);
+    }
+    return asyncTabletBatcher;
+  }
+
   private TSInsertTabletReq genTSInsertTabletReq(Tablet tablet, boolean sorted, boolean isAligned)
       throws BatchExecutionException {
     if (!checkSorted(tablet)) {
@@ -1793,7 +1868,7 @@ public class Session {
     return request;
   }
 
-  private void updateTSInsertTabletsReq(
+  void updateTSInsertTabletsReq(
       TSInsertTabletsReq request, Tablet tablet, boolean sorted, boolean isAligned)
       throws BatchExecutionException {
     if (!checkSorted(tablet)) {
@@ -2527,6 +2602,18 @@ public class Session {
     this.enableCacheLeader = enableCacheLeader;
   }
 
+  public void setAsyncInsertMaxBatchRows(int asyncInsertMaxBatchRows) {
+    this.asyncInsertMaxBatchRows = asyncInsertMaxBatchRows;
+  }
+
+  public void setAsyncInsertMaxBatchDelayMs(long asyncInsertMaxBatchDelayMs) {
+    this.asyncInsertMaxBatchDelayMs = asyncInsertMaxBatchDelayMs;
+  }
+
+  public void setAsyncInsertMaxInFlightBatches(int asyncInsertMaxInFlightBatches) {
+    this.asyncInsertMaxInFlightBatches = asyncInsertMaxInFlightBatches;
+  }
+
   public static class Builder {
     private String host = Config.DEFAULT_HOST;
     private int rpcPort = Config.DEFAULT_PORT;
@@ -2538,6 +2625,9 @@ public class Session {
     private int thriftMaxFrameSize = Config.DEFAULT_MAX_FRAME_SIZE;
     private boolean enableCacheLeader = Config.DEFAULT_CACHE_LEADER_MODE;
     private Version version = Config.DEFAULT_VERSION;
+    private int asyncInsertMaxBatchRows = Config.DEFAULT_ASYNC_INSERT_MAX_BATCH_ROWS;
+    private long asyncInsertMaxBatchDelayMs = Config.DEFAULT_ASYNC_INSERT_MAX_BATCH_DELAY_MS;
+    private int asyncInsertMaxInFlightBatches = Config.DEFAULT_ASYNC_INSERT_MAX_IN_FLIGHT_BATCHES;
 
     private List<String> nodeUrls = null;
 
@@ -2596,6 +2686,21 @@ public class Session {
       return this;
     }
 
+    public Builder asyncInsertMaxBatchRows(int asyncInsertMaxBatchRows) {
+      this.asyncInsertMaxBatchRows = asyncInsertMaxBatchRows;
+      return this;
+    }
+
+    public Builder asyncInsertMaxBatchDelayMs(long asyncInsertMaxBatchDelayMs) {
+      this.asyncInsertMaxBatchDelayMs = asyncInsertMaxBatchDelayMs;
+      return this;
+    }
+
+    public Builder asyncInsertMaxInFlightBatches(int asyncInsertMaxInFlightBatches) {
+      this.asyncInsertMaxInFlightBatches = asyncInsertMaxInFlightBatches;
+      return this;
+    }
+
     public Session build() {
       if (nodeUrls != null
           && (!Config.DEFAULT_HOST.equals(host) || rpcPort != Config.DEFAULT_PORT)) {
@@ -2616,20 +2721,30 @@ public class Session {
                 enableCacheLeader,
                 version);
         newSession.setEnableQueryRedirection(true);
+        setAsyncInsertOptions(newSession);
         return newSession;
       }
 
-      return new Session(
-          host,
-          rpcPort,
-          username,
-          password,
-          fetchSize,
-          zoneId,
-          thriftDefaultBufferSize,
-          thriftMaxFrameSize,
-          enableCacheLeader,
-          version);
+      Session newSession =
+          new Session(
+              host,
+              rpcPort,
+              username,
+              password,
+              fetchSize,
+              zoneId,
+              thriftDefaultBufferSize,
+              thriftMaxFrameSize,
+              enableCacheLeader,
+              version);
+      setAsyncInsertOptions(newSession);
+      return newSession;
+    }
+
+    private void setAsyncInsertOptions(Session session) {
+      session.setAsyncInsertMaxBatchRows(asyncInsertMaxBatchRows);
+      session.setAsyncInsertMaxBatchDelayMs(asyncInsertMaxBatchDelayMs);
+      session.setAsyncInsertMaxInFlightBatches(asyncInsertMaxInFlightBatches);
     }
   }
 }
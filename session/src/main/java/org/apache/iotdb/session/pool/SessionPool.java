@@ -24,11 +24,13 @@ import org.apache.iotdb.session.Config;
 import org.apache.iotdb.session.Session;
 import org.apache.iotdb.session.SessionDataSet;
 import org.apache.iotdb.session.template.Template;
+import org.apache.iotdb.session.util.ThreadUtils;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.write.record.Tablet;
 
+import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +41,13 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * SessionPool is a wrapper of a Session Set. Using SessionPool, the user do not need to consider
@@ -50,6 +59,10 @@ import java.util.concurrent.ConcurrentMap;
  *
  * <p>If a user has waited for a session for more than 60 seconds, a warn log will be printed.
  *
+ * <p>Getting and putting back a session are lock free, the pool hands out at most maxSize sessions
+ * by a fair semaphore. The idle sessions could be checked in background, see {@link
+ * #enableIdleSessionValidation(long)}.
+ *
  * <p>The only thing you have to remember is that:
  *
  * <p>For a query, if you have get all data, i.e., SessionDataSetWrapper.hasNext() == false, it is
@@ -73,10 +86,23 @@ public class SessionPool {
   private final ConcurrentLinkedDeque<Session> queue = new ConcurrentLinkedDeque<>();
   // for session whose resultSet is not released.
   private final ConcurrentMap<Session, Session> occupied = new ConcurrentHashMap<>();
-  private int size = 0;
-  private int maxSize = 0;
+  // each permit stands for a session that could be handed out, either idle or not created yet. A
+  // user holds the permit until the session is put back, so getting a session needs no pool lock.
+  private final Semaphore permits;
+  // the number of sessions created and not closed
+  private final AtomicInteger size = new AtomicInteger(0);
+  private final int maxSize;
   private final long waitToGetSessionTimeoutInMs;
 
+  // statistics of getting sessions
+  private final LongAdder acquireCount = new LongAdder();
+  private final LongAdder acquireTimeInNs = new LongAdder();
+  private final AtomicLong maxAcquireTimeInNs = new AtomicLong(0);
+  private final LongAdder exhaustedCount = new LongAdder();
+
+  // validates idle sessions periodically if enabled
+  private ScheduledExecutorService idleSessionValidator;
+
   // parameters for Session constructor
   private final String host;
   private final int port;
@@ -91,7 +117,7 @@ public class SessionPool {
   private final boolean enableCompression;
 
   // whether the queue is closed.
-  private boolean closed;
+  private volatile boolean closed;
 
   // Redirect-able SessionPool
   private final List<String> nodeUrls;
@@ -243,6 +269,7 @@ public class SessionPool {
       boolean enableCacheLeader,
       int connectionTimeoutInMs) {
     this.maxSize = maxSize;
+    this.permits = new Semaphore(maxSize, true);
     this.host = host;
     this.port = port;
     this.nodeUrls = null;
@@ -268,6 +295,7 @@ public class SessionPool {
       boolean enableCacheLeader,
       int connectionTimeoutInMs) {
     this.maxSize = maxSize;
+    this.permits = new Semaphore(maxSize, true);
     this.host = null;
     this.port = -1;
     this.nodeUrls = nodeUrls;
@@ -312,69 +340,21 @@ public class SessionPool {
 
   // if this method throws an exception, either the server is broken, or the ip/port/user/password
   // is incorrect.
-  @SuppressWarnings({"squid:S3776", "squid:S2446"}) // Suppress high Cognitive Complexity warning
   private Session getSession() throws IoTDBConnectionException {
-    Session session = queue.poll();
     if (closed) {
       throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
     }
-    if (session != null) {
-      return session;
-    }
-
-    boolean shouldCreate = false;
+    long startTime = System.nanoTime();
+    acquirePermit();
 
-    long start = System.currentTimeMillis();
-    while (session == null) {
-      synchronized (this) {
-        if (size < maxSize) {
-          // we can create more session
-          size++;
-          shouldCreate = true;
-          // but we do it after skip synchronized block because connection a session is time
-          // consuming.
-          break;
-        }
-
-        // we have to wait for someone returns a session.
-        try {
-          if (logger.isDebugEnabled()) {
-            logger.debug("no more sessions can be created, wait... queue.size={}", queue.size());
-          }
-          this.wait(1000);
-          long timeOut = Math.min(waitToGetSessionTimeoutInMs, 60_000);
-          if (System.currentTimeMillis() - start > timeOut) {
-            logger.warn(
-                "the SessionPool has wait for {} seconds to get a new connection: {}:{} with {}, {}",
-                (System.currentTimeMillis() - start) / 1000,
-                host,
-                port,
-                user,
-                password);
-            logger.warn(
-                "current occupied size {}, queue size {}, considered size {} ",
-                occupied.size(),
-                queue.size(),
-                size);
-            if (System.currentTimeMillis() - start > waitToGetSessionTimeoutInMs) {
-              throw new IoTDBConnectionException(
-                  String.format("timeout to get a connection from %s:%s", host, port));
-            }
-          }
-        } catch (InterruptedException e) {
-          // wake up from this.wait(1000) by this.notify()
-        }
-
-        session = queue.poll();
-
-        if (closed) {
-          throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
-        }
-      }
+    Session session = queue.poll();
+    if (closed) {
+      permits.release();
+      throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
     }
 
-    if (shouldCreate) {
-      // create a new one.
+    if (session == null) {
+      // no idle session, the permit we hold allows to create a new one.
       if (logger.isDebugEnabled()) {
         if (nodeUrls == null) {
           logger.debug("Create a new Session {}, {}, {}, {}", host, port, user, password);
@@ -383,36 +363,84 @@ public class SessionPool {
         }
       }
 
+      size.incrementAndGet();
       session = constructNewSession();
-
       try {
         session.open(enableCompression, connectionTimeoutInMs);
         // avoid someone has called close() the session pool
-        synchronized (this) {
-          if (closed) {
-            // have to release the connection...
-            session.close();
-            throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
-          }
+        if (closed) {
+          // have to release the connection...
+          session.close();
+          throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
         }
       } catch (IoTDBConnectionException e) {
         // if exception, we will throw the exception.
-        // Meanwhile, we have to set size--
-        synchronized (this) {
-          size--;
-          // we do not need to notifyAll as any waited thread can continue to work after waked up.
-          this.notify();
-          if (logger.isDebugEnabled()) {
-            logger.debug("open session failed, reduce the count and notify others...");
-          }
+        // Meanwhile, we have to reduce the count and give the permit back
+        size.decrementAndGet();
+        permits.release();
+        if (logger.isDebugEnabled()) {
+          logger.debug("open session failed, reduce the count and notify others...");
         }
         throw e;
       }
     }
 
+    recordAcquireTime(System.nanoTime() - startTime);
     return session;
   }
 
+  private void acquirePermit() throws IoTDBConnectionException {
+    if (permits.tryAcquire()) {
+      return;
+    }
+    exhaustedCount.increment();
+
+    // we have to wait for someone returns a session.
+    long start = System.currentTimeMillis();
+    long timeOut = Math.min(waitToGetSessionTimeoutInMs, 60_000);
+    try {
+      while (!permits.tryAcquire(1, TimeUnit.SECONDS)) {
+        if (closed) {
+          throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
+        }
+        if (logger.isDebugEnabled()) {
+          logger.debug("no more sessions can be created, wait... queue.size={}", queue.size());
+        }
+        if (System.currentTimeMillis() - start > timeOut) {
+          logger.warn(
+              "the SessionPool has wait for {} seconds to get a new connection: {}:{} with {}, {}",
+              (System.currentTimeMillis() - start) / 1000,
+              host,
+              port,
+              user,
+              password);
+          logger.warn(
+              "current occupied size {}, queue size {}, considered size {} ",
+              occupied.size(),
+              queue.size(),
+              size.get());
+          if (System.currentTimeMillis() - start > waitToGetSessionTimeoutInMs) {
+            throw new IoTDBConnectionException(
+                String.format("timeout to get a connection from %s:%s", host, port));
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IoTDBConnectionException(
+          String.format("interrupted when getting a connection from %s:%s", host, port));
+    }
+  }
+
+  private void recordAcquireTime(long timeInNs) {
+    acquireCount.increment();
+    acquireTimeInNs.add(timeInNs);
+    long max = maxAcquireTimeInNs.get();
+    while (timeInNs > max && !maxAcquireTimeInNs.compareAndSet(max, timeInNs)) {
+      max = maxAcquireTimeInNs.get();
+    }
+  }
+
   public int currentAvailableSize() {
     return queue.size();
   }
@@ -421,26 +449,96 @@ public class SessionPool {
     return occupied.size();
   }
 
-  @SuppressWarnings({"squid:S2446"})
+  /** @return the number of sessions created and not closed */
+  public int currentSize() {
+    return size.get();
+  }
+
+  /** @return the number of threads waiting for a session */
+  public int currentWaitingThreadNum() {
+    return permits.getQueueLength();
+  }
+
+  /** @return how many times a session has been handed out */
+  public long getAcquireCount() {
+    return acquireCount.sum();
+  }
+
+  /** @return the average time to get a session, including the time to open it if needed */
+  public long getAverageAcquireTimeInNs() {
+    long count = acquireCount.sum();
+    return count == 0 ? 0 : acquireTimeInNs.sum() / count;
+  }
+
+  /** @return the longest time to get a session, including the time to open it if needed */
+  public long getMaxAcquireTimeInNs() {
+    return maxAcquireTimeInNs.get();
+  }
+
+  /** @return how many times a user has to wait because all the sessions are in use */
+  public long getExhaustedCount() {
+    return exhaustedCount.sum();
+  }
+
   private void putBack(Session session) {
+    // the session must be in the queue before the permit is given back
     queue.push(session);
-    synchronized (this) {
-      // we do not need to notifyAll as any waited thread can continue to work after waked up.
-      this.notify();
-      // comment the following codes as putBack is too frequently called.
-      //      if (logger.isTraceEnabled()) {
-      //        logger.trace("put a session back and notify others..., queue.size = {}",
-      // queue.size());
-      //      }
-    }
+    permits.release();
   }
 
   private void occupy(Session session) {
     occupied.put(session, session);
   }
 
+  /**
+   * Check the idle sessions periodically and replace the broken ones with new sessions, so that a
+   * user would not get a dead connection after the server restarts. Only the sessions that no one
+   * is waiting for are checked.
+   *
+   * @param intervalInMs the interval between two checks
+   */
+  public synchronized void enableIdleSessionValidation(long intervalInMs) {
+    if (idleSessionValidator != null || closed) {
+      return;
+    }
+    idleSessionValidator =
+        Executors.newSingleThreadScheduledExecutor(
+            ThreadUtils.createThreadFactory("SessionPoolValidator", true));
+    idleSessionValidator.scheduleWithFixedDelay(
+        this::validateIdleSessions, intervalInMs, intervalInMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void validateIdleSessions() {
+    int idleNum = queue.size();
+    for (int i = 0; i < idleNum && !closed; i++) {
+      if (!permits.tryAcquire()) {
+        // all the sessions are in use
+        return;
+      }
+      // the least recently used one
+      Session session = queue.pollLast();
+      if (session == null) {
+        permits.release();
+        return;
+      }
+      try {
+        session.getTimestampPrecision();
+        putBack(session);
+      } catch (TException | RuntimeException e) {
+        logger.warn("an idle session is broken, replace it with a new one", e);
+        closeSession(session);
+        tryConstructNewSession();
+        permits.release();
+      }
+    }
+  }
+
   /** close all connections in the pool */
   public synchronized void close() {
+    if (idleSessionValidator != null) {
+      idleSessionValidator.shutdownNow();
+      idleSessionValidator = null;
+    }
     for (Session session : queue) {
       try {
         session.close();
@@ -468,39 +566,41 @@ public class SessionPool {
     try {
       wrapper.sessionDataSet.closeOperationHandle();
     } catch (IoTDBConnectionException | StatementExecutionException e) {
-      tryConstructNewSession();
       putback = false;
     } finally {
       Session session = occupied.remove(wrapper.session);
-      if (putback && session != null) {
-        putBack(wrapper.session);
+      // the permit is held until the result set is closed
+      if (session != null) {
+        if (putback) {
+          putBack(session);
+        } else {
+          closeSession(session);
+          tryConstructNewSession();
+          permits.release();
+        }
       }
     }
   }
 
-  @SuppressWarnings({"squid:S2446"})
+  /**
+   * Replace a broken session with a new one. The caller holds the permit of the broken session and
+   * should give it back after this method returns.
+   */
   private void tryConstructNewSession() {
     Session session = constructNewSession();
     try {
       session.open(enableCompression, connectionTimeoutInMs);
       // avoid someone has called close() the session pool
-      synchronized (this) {
-        if (closed) {
-          // have to release the connection...
-          session.close();
-          throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
-        }
-        queue.push(session);
-        this.notify();
+      if (closed) {
+        // have to release the connection...
+        session.close();
+        throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
       }
+      queue.push(session);
     } catch (IoTDBConnectionException e) {
-      synchronized (this) {
-        size--;
-        // we do not need to notifyAll as any waited thread can continue to work after waked up.
-        this.notify();
-        if (logger.isDebugEnabled()) {
-          logger.debug("open session failed, reduce the count and notify others...");
-        }
+      size.decrementAndGet();
+      if (logger.isDebugEnabled()) {
+        logger.debug("open session failed, reduce the count and notify others...");
       }
     }
   }
@@ -520,6 +620,7 @@ public class SessionPool {
       Session session, int times, IoTDBConnectionException e) throws IoTDBConnectionException {
     closeSession(session);
     tryConstructNewSession();
+    permits.release();
     if (times == FINAL_RETRY) {
       throw new IoTDBConnectionException(
           String.format(
@@ -2315,6 +2416,7 @@ public class SessionPool {
     private ZoneId zoneId = null;
     private boolean enableCacheLeader = Config.DEFAULT_CACHE_LEADER_MODE;
     private int connectionTimeoutInMs = Config.DEFAULT_CONNECTION_TIMEOUT_MS;
+    private long idleSessionValidationIntervalInMs = 0;
 
     public Builder host(String host) {
       this.host = host;
@@ -2376,7 +2478,21 @@ public class SessionPool {
       return this;
     }
 
+    /** validate idle sessions in background with the given interval, 0 means never */
+    public Builder idleSessionValidationIntervalInMs(long idleSessionValidationIntervalInMs) {
+      this.idleSessionValidationIntervalInMs = idleSessionValidationIntervalInMs;
+      return this;
+    }
+
     public SessionPool build() {
+      SessionPool pool = constructSessionPool();
+      if (idleSessionValidationIntervalInMs > 0) {
+        pool.enableIdleSessionValidation(idleSessionValidationIntervalInMs);
+      }
+      return pool;
+    }
+
+    private SessionPool constructSessionPool() {
       if (nodeUrls == null) {
         return new SessionPool(
             host,
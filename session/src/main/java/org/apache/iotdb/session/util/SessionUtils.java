@@ -46,9 +46,7 @@ public class SessionUtils {
 
   public static ByteBuffer getTimeBuffer(Tablet tablet) {
     ByteBuffer timeBuffer = ByteBuffer.allocate(tablet.getTimeBytesSize());
-    for (int i = 0; i < tablet.rowSize; i++) {
-      timeBuffer.putLong(tablet.timestamps[i]);
-    }
+    ReadWriteIOUtils.write(tablet.timestamps, tablet.rowSize, timeBuffer);
     timeBuffer.flip();
     return timeBuffer;
   }
@@ -65,10 +63,7 @@ public class SessionUtils {
         boolean columnHasNull = bitMap != null && !bitMap.isAllUnmarked();
         valueBuffer.put(BytesUtils.boolToByte(columnHasNull));
         if (columnHasNull) {
-          byte[] bytes = bitMap.getByteArray();
-          for (int j = 0; j < tablet.rowSize / Byte.SIZE + 1; j++) {
-            valueBuffer.put(bytes[j]);
-          }
+          valueBuffer.put(bitMap.getByteArray(), 0, tablet.rowSize / Byte.SIZE + 1);
         }
       }
     }
@@ -166,6 +161,10 @@ public class SessionUtils {
     switch (dataType) {
       case INT32:
         int[] intValues = (int[]) tablet.values[i];
+        if (!columnHasNull(tablet, i)) {
+          ReadWriteIOUtils.write(intValues, tablet.rowSize, valueBuffer);
+          break;
+        }
         for (int index = 0; index < tablet.rowSize; index++) {
           if (tablet.bitMaps == null
               || tablet.bitMaps[i] == null
@@ -178,6 +177,10 @@ public class SessionUtils {
         break;
       case INT64:
         long[] longValues = (long[]) tablet.values[i];
+        if (!columnHasNull(tablet, i)) {
+          ReadWriteIOUtils.write(longValues, tablet.rowSize, valueBuffer);
+          break;
+        }
         for (int index = 0; index < tablet.rowSize; index++) {
           if (tablet.bitMaps == null
               || tablet.bitMaps[i] == null
@@ -190,6 +193,10 @@ public class SessionUtils {
         break;
       case FLOAT:
         float[] floatValues = (float[]) tablet.values[i];
+        if (!columnHasNull(tablet, i)) {
+          ReadWriteIOUtils.write(floatValues, tablet.rowSize, valueBuffer);
+          break;
+        }
         for (int index = 0; index < tablet.rowSize; index++) {
           if (tablet.bitMaps == null
               || tablet.bitMaps[i] == null
@@ -202,6 +209,10 @@ public class SessionUtils {
         break;
       case DOUBLE:
         double[] doubleValues = (double[]) tablet.values[i];
+        if (!columnHasNull(tablet, i)) {
+          ReadWriteIOUtils.write(doubleValues, tablet.rowSize, valueBuffer);
+          break;
+        }
         for (int index = 0; index < tablet.rowSize; index++) {
           if (tablet.bitMaps == null
               || tablet.bitMaps[i] == null
@@ -237,6 +248,12 @@ public class SessionUtils {
     }
   }
 
+  private static boolean columnHasNull(Tablet tablet, int columnIndex) {
+    return tablet.bitMaps != null
+        && tablet.bitMaps[columnIndex] != null
+        && !tablet.bitMaps[columnIndex].isAllUnmarked();
+  }
+
   public static List<TEndPoint> parseSeedNodeUrls(List<String> nodeUrls) {
     if (nodeUrls == null) {
       throw new NumberFormatException("nodeUrls is null");
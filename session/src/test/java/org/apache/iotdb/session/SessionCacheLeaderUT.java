@@ -43,10 +43,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class SessionCacheLeaderUT {
@@ -711,6 +714,81 @@ public class SessionCacheLeaderUT {
     session.close();
   }
 
+  @Test
+  public void testInsertTabletAsync() throws IoTDBConnectionException {
+    session = new MockSession("127.0.0.1", 55560, true);
+    session.setAsyncInsertMaxBatchRows(30);
+    session.open();
+
+    List<String> allDeviceIds =
+        new ArrayList<String>() {
+          {
+            add("root.sg1.d1");
+            add("root.sg2.d1");
+            add("root.sg3.d1");
+            add("root.sg4.d1");
+          }
+        };
+    List<MeasurementSchema> schemaList = new ArrayList<>();
+    schemaList.add(new MeasurementSchema("s1", TSDataType.INT64));
+    schemaList.add(new MeasurementSchema("s2", TSDataType.INT64));
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    long timestamp = System.currentTimeMillis();
+    for (String deviceId : allDeviceIds) {
+      Tablet tablet = new Tablet(deviceId, schemaList, 10);
+      for (int i = 0; i < 10; i++) {
+        for (long row = 0; row < 10; row++) {
+          int rowIndex = tablet.rowSize++;
+          tablet.addTimestamp(rowIndex, timestamp + i * 10 + row);
+          tablet.addValue("s1", rowIndex, row);
+          tablet.addValue("s2", rowIndex, row);
+        }
+        // the tablet could be reused as soon as it is submitted
+        futures.add(session.insertTabletAsync(tablet));
+        tablet.reset();
+      }
+    }
+    session.flushAsyncInsertions();
+
+    for (CompletableFuture<Void> future : futures) {
+      assertTrue(future.isDone());
+      future.join();
+    }
+    assertEquals(4, session.deviceIdToEndpoint.size());
+    for (String deviceId : allDeviceIds) {
+      assertEquals(getDeviceIdBelongedEndpoint(deviceId), session.deviceIdToEndpoint.get(deviceId));
+    }
+    assertEquals(4, session.endPointToSessionConnection.size());
+
+    ((MockSessionConnection)
+            session.endPointToSessionConnection.get(
+                getDeviceIdBelongedEndpoint(allDeviceIds.get(3))))
+        .setConnectionBroken(true);
+    Tablet tablet = new Tablet(allDeviceIds.get(3), schemaList, 10);
+    tablet.addTimestamp(tablet.rowSize++, timestamp);
+    tablet.addValue("s1", 0, 1L);
+    tablet.addValue("s2", 0, 1L);
+    CompletableFuture<Void> future = session.insertTabletAsync(tablet);
+    session.flushAsyncInsertions();
+    try {
+      future.join();
+      fail();
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof IoTDBConnectionException);
+    }
+    session.close();
+
+    // no batcher is created once the session is closed
+    future = session.insertTabletAsync(tablet);
+    try {
+      future.join();
+      fail();
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof IoTDBConnectionException);
+    }
+  }
+
   @Test
   public void testInsertRecordsWithSessionBroken() throws StatementExecutionException {
     // without leader cache
@@ -64,6 +64,9 @@ struct TConfigNodeLocation {
 
 struct THeartbeatReq {
   1: required i64 heartbeatTimestamp
+  // heartbeatTimestamp of the last response whose region loads have been applied by the ConfigNode,
+  // the DataNode only reports the changed region loads if it matches the last response it sent
+  2: optional i64 regionLoadsBaseline
 }
 
 struct TDataNodeLocation {
@@ -78,8 +81,25 @@ struct TDataNodeLocation {
   5: required TEndPoint consensusEndPoint
 }
 
+struct TRegionLoad {
+  1: required TConsensusGroupId regionId
+  2: required bool isLeader
+  // requests served per second since the last heartbeat
+  3: required double writeRate
+  4: required double queryRate
+  // size of the TsFiles in bytes, 0 for SchemaRegion
+  5: required i64 diskUsage
+  // memory used by the memtables divided by the memory for write, 0 for SchemaRegion
+  6: required double memTablePressure
+}
+
 struct THeartbeatResp {
   1: required i64 heartbeatTimestamp
+  2: optional list<TRegionLoad> regionLoads
+  // whether regionLoads only contains the loads changed since the regionLoadsBaseline
+  3: optional bool isRegionLoadsDelta
+  // the regions removed since the regionLoadsBaseline, only set in delta responses
+  4: optional list<TConsensusGroupId> removedRegionIds
 }
 
 struct TDataNodeInfo {
@@ -127,6 +127,8 @@ struct TDataPartitionResp {
   1: required common.TSStatus status
   // map<StorageGroupName, map<TSeriesPartitionSlot, map<TTimePartitionSlot, list<TRegionReplicaSet>>>>
   2: optional map<string, map<common.TSeriesPartitionSlot, map<common.TTimePartitionSlot, list<common.TRegionReplicaSet>>>> dataPartitionMap
+  // map<RegionId, DataNodeId of the leader> of the Regions in dataPartitionMap, by the latest heartbeats
+  3: optional map<common.TConsensusGroupId, i32> regionLeaderMap
 }
 
 // Authorize
@@ -36,6 +36,8 @@ struct IdentityInfo{
   // The version of sender and receiver need to be the same.
   4:required string version
 
+  // Secondary connections only carry pieces of files, closing them does not stop the pipe.
+  5:optional bool secondary
 }
 
 enum Type {
@@ -68,6 +70,12 @@ struct MetaInfo{
 
   // The start index of the file slice in sending.
   3:required i64 startIndex
+
+  // The compression type of the buff, see CompressionType of TsFile. Uncompressed if not set.
+  4:optional i8 compressionType
+
+  // The length of the buff before compression.
+  5:optional i32 uncompressedLength
 }
 
 struct SyncRequest{
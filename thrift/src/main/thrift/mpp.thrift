@@ -33,6 +33,20 @@ struct TCreateDataRegionReq {
 struct TInvalidateCacheReq {
     1: required bool storageGroup
     2: required string fullPath
+    // version of the ConfigNode's partition table after the storage group is deleted
+    3: optional i64 partitionVersion
+}
+
+struct TUpdatePartitionCacheReq {
+    // version of the ConfigNode's partition table after the partitions are created
+    1: required i64 partitionVersion
+    2: optional map<string, map<common.TSeriesPartitionSlot, common.TRegionReplicaSet>> schemaPartitionMap
+    3: optional map<string, map<common.TSeriesPartitionSlot, map<common.TTimePartitionSlot, list<common.TRegionReplicaSet>>>> dataPartitionMap
+}
+
+struct TRegionLeaderChangeReq {
+    1: required common.TConsensusGroupId regionId
+    2: required common.TDataNodeLocation newLeaderNode
 }
 
 struct TMigrateSchemaRegionReq{
@@ -47,6 +61,55 @@ struct TMigrateDataRegionReq{
     3: required i32 dataRegionID
 }
 
+struct TPullRegionReq {
+    // replicas of the region after the migration, including the DataNode that pulls it
+    1: required common.TRegionReplicaSet regionReplicaSet
+    2: required string storageGroup
+    3: required common.TDataNodeLocation sourceDataNode
+    4: optional i64 ttl
+}
+
+struct TRegionPullProgressResp {
+    1: required common.TSStatus status
+    // one of PULLING, FINISHED, FAILED
+    2: required string state
+    3: required i64 transferredBytes
+    4: required i64 totalBytes
+    // consensus index of the region on the source when its files were listed
+    5: optional i64 consensusIndex
+}
+
+struct TRegionFile {
+    1: required string fileName
+    2: required i64 length
+}
+
+struct TRegionFilesResp {
+    1: required common.TSStatus status
+    2: optional list<TRegionFile> files
+    // the writes up to this consensus index are all in the files
+    3: optional i64 consensusIndex
+}
+
+struct TFetchRegionFileReq {
+    1: required common.TConsensusGroupId regionId
+    2: required string fileName
+    3: required i64 offset
+    4: required i32 length
+}
+
+struct TFetchRegionFileResp {
+    1: required common.TSStatus status
+    2: optional binary data
+}
+
+struct TRegionPeerReq {
+    1: required common.TConsensusGroupId regionId
+    2: required common.TDataNodeLocation dataNodeLocation
+    // the added data node has got the writes up to this consensus index
+    3: optional i64 startIndex
+}
+
 struct TFragmentInstanceId {
   1: required string queryId
   2: required i32 fragmentId
@@ -175,6 +238,13 @@ service InternalService {
      */
   common.TSStatus invalidatePartitionCache(TInvalidateCacheReq req)
 
+  /**
+   * Config node will push the newly created partitions to the partition cache.
+   *
+   * @param the created SchemaPartitions and DataPartitions, and the partition table version
+   */
+  common.TSStatus updatePartitionCache(TUpdatePartitionCacheReq req)
+
   /**
        * Config node will invalidate Schema Info cache.
        *
@@ -204,6 +274,63 @@ service InternalService {
    */
   common.TSStatus migrateDataRegion(TMigrateDataRegionReq req)
 
+  /**
+   * Config node will transfer the leadership of a region to another replica to balance load
+   *
+   * @param region id and the data node of the new leader
+   */
+  common.TSStatus changeRegionLeader(TRegionLeaderChangeReq req)
+
+  /**
+   * Config node will ask the target data node to pull the sealed files of a region from the
+   * source data node in background, and join the consensus group of the region after that
+   *
+   * @param replicas of the region after the migration, storage group and the source data node
+   */
+  common.TSStatus pullRegion(TPullRegionReq req)
+
+  /**
+   * Config node will poll the progress of pulling a region
+   */
+  TRegionPullProgressResp getRegionPullProgress(common.TConsensusGroupId regionId)
+
+  /**
+   * Config node will ask the target data node to stop pulling a region, and drop the pulled files
+   * and the local replica of the region if it has been loaded
+   */
+  common.TSStatus cancelRegionPull(common.TConsensusGroupId regionId)
+
+  /**
+   * The target data node of a migration will ask the source data node to list the sealed files of
+   * the region, which are kept unchanged until releaseRegionFiles is called
+   */
+  TRegionFilesResp listRegionFiles(common.TConsensusGroupId regionId)
+
+  /**
+   * The target data node of a migration will fetch a chunk of a listed file
+   */
+  TFetchRegionFileResp fetchRegionFile(TFetchRegionFileReq req)
+
+  /**
+   * The target data node of a migration will release the files listed by listRegionFiles
+   */
+  common.TSStatus releaseRegionFiles(common.TConsensusGroupId regionId)
+
+  /**
+   * Config node will add a data node into the consensus group of a region
+   *
+   * @param region id and the data node to be added, sent to a data node already in the group
+   */
+  common.TSStatus addRegionPeer(TRegionPeerReq req)
+
+  /**
+   * Config node will remove a data node from the consensus group of a region. If the removed data
+   * node is the receiver itself, its local replica of the region is dropped afterwards
+   *
+   * @param region id and the data node to be removed, sent to a data node already in the group
+   */
+  common.TSStatus removeRegionPeer(TRegionPeerReq req)
+
   /**
   * ConfigNode will ask DataNode for heartbeat in every few seconds.
   *
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+include "common.thrift"
+namespace java org.apache.iotdb.consensus.multileader.thrift
+
+struct TLogBatch {
+  // the serialized IConsensusRequests, in the order they are written on the source peer
+  1: required list<binary> data
+  // the search index of the last request in this batch on the source peer
+  2: required i64 searchIndex
+}
+
+struct TSyncLogReq {
+  1: required common.TConsensusGroupId consensusGroupId
+  2: required TLogBatch batch
+}
+
+struct TSyncLogRes {
+  1: required list<common.TSStatus> status
+}
+
+service MultiLeaderConsensusIService {
+  TSyncLogRes syncLog(TSyncLogReq req)
+}
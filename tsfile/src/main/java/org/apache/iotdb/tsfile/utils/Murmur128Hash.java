@@ -52,6 +52,19 @@ public class Murmur128Hash {
             seed);
   }
 
+  /**
+   * get 64-bit hashcode of a part of the bytes by seed
+   *
+   * @param value bytes
+   * @param offset the offset of the part
+   * @param length the length of the part
+   * @param seed seed
+   * @return hashcode of the part
+   */
+  public static long hash64(byte[] value, int offset, int length, long seed) {
+    return innerHash(value, offset, length, seed);
+  }
+
   /** Methods to perform murmur 128 hash. */
   private static long getBlock(byte[] key, int offset, int index) {
     int i8 = index << 3;
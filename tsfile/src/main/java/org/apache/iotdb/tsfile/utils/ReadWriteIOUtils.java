@@ -330,6 +330,34 @@ public class ReadWriteIOUtils {
     return DOUBLE_LEN;
   }
 
+  /** write the first length ints of values to byteBuffer with one bulk copy. */
+  public static int write(int[] values, int length, ByteBuffer buffer) {
+    buffer.asIntBuffer().put(values, 0, length);
+    buffer.position(buffer.position() + length * INT_LEN);
+    return length * INT_LEN;
+  }
+
+  /** write the first length longs of values to byteBuffer with one bulk copy. */
+  public static int write(long[] values, int length, ByteBuffer buffer) {
+    buffer.asLongBuffer().put(values, 0, length);
+    buffer.position(buffer.position() + length * LONG_LEN);
+    return length * LONG_LEN;
+  }
+
+  /** write the first length floats of values to byteBuffer with one bulk copy. */
+  public static int write(float[] values, int length, ByteBuffer buffer) {
+    buffer.asFloatBuffer().put(values, 0, length);
+    buffer.position(buffer.position() + length * FLOAT_LEN);
+    return length * FLOAT_LEN;
+  }
+
+  /** write the first length doubles of values to byteBuffer with one bulk copy. */
+  public static int write(double[] values, int length, ByteBuffer buffer) {
+    buffer.asDoubleBuffer().put(values, 0, length);
+    buffer.position(buffer.position() + length * DOUBLE_LEN);
+    return length * DOUBLE_LEN;
+  }
+
   /**
    * write string to outputStream.
    *
@@ -565,6 +593,38 @@ public class ReadWriteIOUtils {
     return buffer.getLong();
   }
 
+  /** read length ints from byteBuffer with one bulk copy. */
+  public static int[] readInts(ByteBuffer buffer, int length) {
+    int[] values = new int[length];
+    buffer.asIntBuffer().get(values);
+    buffer.position(buffer.position() + length * INT_LEN);
+    return values;
+  }
+
+  /** read length longs from byteBuffer with one bulk copy. */
+  public static long[] readLongs(ByteBuffer buffer, int length) {
+    long[] values = new long[length];
+    buffer.asLongBuffer().get(values);
+    buffer.position(buffer.position() + length * LONG_LEN);
+    return values;
+  }
+
+  /** read length floats from byteBuffer with one bulk copy. */
+  public static float[] readFloats(ByteBuffer buffer, int length) {
+    float[] values = new float[length];
+    buffer.asFloatBuffer().get(values);
+    buffer.position(buffer.position() + length * FLOAT_LEN);
+    return values;
+  }
+
+  /** read length doubles from byteBuffer with one bulk copy. */
+  public static double[] readDoubles(ByteBuffer buffer, int length) {
+    double[] values = new double[length];
+    buffer.asDoubleBuffer().get(values);
+    buffer.position(buffer.position() + length * DOUBLE_LEN);
+    return values;
+  }
+
   /** read string from inputStream. */
   public static String readString(InputStream inputStream) throws IOException {
     int strLength = readInt(inputStream);
@@ -163,4 +163,29 @@ public class ReadWriteIOUtilsTest {
     result = ReadWriteIOUtils.readMap(ByteBuffer.wrap(byteArrayOutputStream.toByteArray()));
     Assert.assertNull(result);
   }
+
+  @Test
+  public void primitiveArraySerdeTest() {
+    int[] ints = {1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE};
+    long[] longs = {1L, -2L, Long.MAX_VALUE};
+    float[] floats = {1.5f, -2.25f};
+    double[] doubles = {1.5d, -2.25d, Double.MIN_VALUE};
+    ByteBuffer buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+    buffer.put((byte) 7);
+    Assert.assertEquals(12, ReadWriteIOUtils.write(ints, 3, buffer));
+    Assert.assertEquals(24, ReadWriteIOUtils.write(longs, 3, buffer));
+    Assert.assertEquals(8, ReadWriteIOUtils.write(floats, 2, buffer));
+    Assert.assertEquals(24, ReadWriteIOUtils.write(doubles, 3, buffer));
+    buffer.putInt(42);
+    buffer.flip();
+
+    Assert.assertEquals(7, buffer.get());
+    Assert.assertArrayEquals(
+        new int[] {1, -2, Integer.MAX_VALUE}, ReadWriteIOUtils.readInts(buffer, 3));
+    Assert.assertArrayEquals(longs, ReadWriteIOUtils.readLongs(buffer, 3));
+    Assert.assertArrayEquals(floats, ReadWriteIOUtils.readFloats(buffer, 2), 0f);
+    Assert.assertArrayEquals(doubles, ReadWriteIOUtils.readDoubles(buffer, 3), 0d);
+    Assert.assertEquals(42, buffer.getInt());
+    Assert.assertFalse(buffer.hasRemaining());
+  }
 }